@@ -70,6 +70,8 @@ public abstract class Connection
     // See ClientDataSource pre-connect settings
     protected final String user_;
     public boolean retrieveMessageText_;
+    public int prefetchBlocks_;
+    public int prefetchBufferSize_;
     protected boolean jdbcReadOnly_;
     /**
      * Holdabilty for created statements.
@@ -234,6 +236,8 @@ public abstract class Connection
             databaseName_ = databaseName_ + ";" + connAtrrs;
 
         retrieveMessageText_ = dataSource.getRetrieveMessageText();
+        prefetchBlocks_ = dataSource.getPrefetchBlocks();
+        prefetchBufferSize_ = dataSource.getPrefetchBufferSize();
 
         loginTimeout_ = dataSource.getLoginTimeout();
         dataSource_ = dataSource;
@@ -266,6 +270,8 @@ public abstract class Connection
         // Extract common properties.
         databaseName_ = dataSource.getDatabaseName();
         retrieveMessageText_ = dataSource.getRetrieveMessageText();
+        prefetchBlocks_ = dataSource.getPrefetchBlocks();
+        prefetchBufferSize_ = dataSource.getPrefetchBufferSize();
 
         loginTimeout_ = dataSource.getLoginTimeout();
         dataSource_ = dataSource;
@@ -320,6 +326,8 @@ public abstract class Connection
         // Extract common properties.
         user_ = ClientDataSource.getUser(properties);
         retrieveMessageText_ = ClientDataSource.getRetrieveMessageText(properties);
+        prefetchBlocks_ = ClientDataSource.getPrefetchBlocks(properties);
+        prefetchBufferSize_ = ClientDataSource.getPrefetchBufferSize(properties);
 
         loginTimeout_ = driverManagerLoginTimeout;
         serverNameIP_ = serverName;
@@ -193,6 +193,11 @@ public class NetConnection extends com.splicemachine.db.client.am.Connection {
     // Flag to indicate a read only transaction
     protected boolean readOnlyTransaction_ = true;
 
+    // QRYDTA blocks received on this connection, and how many of them came
+    // ahead of the one the client asked for
+    private long queryBlocksReceived_;
+    private long queryBlocksPrefetched_;
+
     //---------------------constructors/finalizer---------------------------------
 
     public NetConnection(NetLogWriter netLogWriter,
@@ -1696,6 +1701,45 @@ public class NetConnection extends com.splicemachine.db.client.am.Connection {
         return metadata.serverSupportsQryclsimp();
     }
 
+    /**
+     * The number of extra query blocks to ask for when opening or continuing
+     * a forward-only cursor: prefetchBlocks, held to what fits in
+     * prefetchBufferSize alongside the block asked for.
+     *
+     * @return the MAXBLKEXT to send, 0 if prefetching is off
+     */
+    final int prefetchBlocks() {
+        int fit = prefetchBufferSize_ / DssConstants.MAX_DSS_LEN - 1;
+        return Math.max(0, Math.min(Math.min(prefetchBlocks_, fit), Short.MAX_VALUE));
+    }
+
+    /**
+     * Count the QRYDTA blocks of one reply to OPNQRY or CNTQRY. Any block
+     * after the first is one the client didn't have to ask for.
+     *
+     * @param blocks the number of QRYDTA blocks in the reply
+     */
+    final void countQueryBlocks(int blocks) {
+        queryBlocksReceived_ += blocks;
+        if (blocks > 1) {
+            queryBlocksPrefetched_ += blocks - 1;
+        }
+    }
+
+    /**
+     * @return the number of query blocks received on this connection
+     */
+    public long getQueryBlocksReceived() {
+        return queryBlocksReceived_;
+    }
+
+    /**
+     * @return the number of query blocks which the server sent ahead of
+     * the one the client asked for, each of which saved a round trip
+     */
+    public long getQueryBlocksPrefetched() {
+        return queryBlocksPrefetched_;
+    }
     
     public final boolean serverSupportsLayerBStreaming() {
         
@@ -135,10 +135,13 @@ public class NetResultSetReply extends NetStatementReply implements ResultSetRep
                 }
                 return;
             }
+            int blocks = 0;
             do {
                 parseQRYDTA((NetResultSet) resultSetI);
+                blocks++;
                 peekCP = peekCodePoint();
             } while (peekCP == CodePoint.QRYDTA);
+            netAgent_.netConnection_.countQueryBlocks(blocks);
         }
 
         if (peekCP == CodePoint.EXTDTA) {
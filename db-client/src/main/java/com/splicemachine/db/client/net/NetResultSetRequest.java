@@ -65,8 +65,17 @@ public class NetResultSetRequest extends NetStatementRequest
             sendQryrowset = false;
         }
 
+        // a forward-only cursor which isn't fetched by rowsets may have the server
+        // send query blocks ahead of the one it needs
+        int maxblkext = sendQryrowset ? -1 : 0;
+        if (!sendQryrowset && resultSet.resultSetType_ == java.sql.ResultSet.TYPE_FORWARD_ONLY &&
+                !((NetCursor) resultSet.cursor_).hasLobs_) {
+            maxblkext = netAgent_.netConnection_.prefetchBlocks();
+        }
+
         buildCNTQRY(section,
                 sendQryrowset,
+                maxblkext,
                 resultSet.queryInstanceIdentifier_,
                 fetchSize,
                 sendRtnextdta);
@@ -162,11 +171,13 @@ public class NetResultSetRequest extends NetStatementRequest
 
     private void buildCNTQRY(Section section,
                              boolean sendQryrowset,
+                             int maxblkext,
                              long queryInstanceIdentifier,
                              int qryrowsetSize,
                              boolean sendRtnextdta) throws SqlException {
         buildCoreCNTQRY(section,
                 sendQryrowset,
+                maxblkext,
                 queryInstanceIdentifier,
                 qryrowsetSize);
 
@@ -186,6 +197,7 @@ public class NetResultSetRequest extends NetStatementRequest
     // buildCoreCntqry builds the common parameters
     private void buildCoreCNTQRY(Section section,
                                  boolean sendQryrowset,
+                                 int maxblkext,
                                  long queryInstanceIdentifier,
                                  int qryrowsetSize)
             throws SqlException {
@@ -195,9 +207,11 @@ public class NetResultSetRequest extends NetStatementRequest
         buildPKGNAMCSN(section); // 1. packageNameAndConsistencyToken
         buildQRYBLKSZ(); // 2. qryblksz
 
-        // maxblkext (-1) tells the server that the client is capable of receiving any number of query blocks
-        if (sendQryrowset) {
-            buildMAXBLKEXT(-1); // 3. maxblkext
+        // maxblkext (-1) tells the server that the client is capable of receiving any number of query blocks,
+        // a positive maxblkext asks for that many blocks beyond the first. Without either, it isn't sent,
+        // as it never was before prefetching.
+        if (maxblkext != 0) {
+            buildMAXBLKEXT(maxblkext); // 3. maxblkext
         }
 
         // 4. qryinsid
@@ -219,6 +233,7 @@ public class NetResultSetRequest extends NetStatementRequest
             throws SqlException {
         buildCoreCNTQRY(section,
                 sendQryrowset,
+                sendQryrowset ? -1 : 0,
                 queryInstanceIdentifier,
                 qryrowsetSize);
 
@@ -457,10 +457,13 @@ public class NetStatementReply extends NetPackageReply implements StatementReply
         statementI.completeExecuteCallOpenQuery(netSqlca, netResultSet, resultSetMetaData, section);
 
         // Depending on the blocking rules, QRYDTA may have been returned on the open.
+        int blocks = 0;
         while (peekCP == CodePoint.QRYDTA) {
             parseQRYDTA(netResultSet);
+            blocks++;
             peekCP = peekCodePoint();
         }
+        netAgent_.netConnection_.countQueryBlocks(blocks);
 
         // Under some circumstances, the server may have closed the cursor.
         // This will be indicated by an ENDQRYRM.
@@ -510,10 +513,13 @@ public class NetStatementReply extends NetPackageReply implements StatementReply
         parseQRYDSC(netResultSet.netCursor_);
 
         peekCP = peekCodePoint();
+        int blocks = 0;
         while (peekCP == CodePoint.QRYDTA) {
             parseQRYDTA(netResultSet);
+            blocks++;
             peekCP = peekCodePoint();
         }
+        netAgent_.netConnection_.countQueryBlocks(blocks);
 
         if (peekCP == CodePoint.SQLCARD) {
             NetSqlca netSqlca = parseSQLCARD(null);
@@ -340,6 +340,9 @@ public class NetStatementRequest extends NetPackageRequest implements StatementR
         if (sendQueryRowSet) {
             buildMAXBLKEXT(-1);
             buildQRYROWSET(fetchSize);
+        } else if (netAgent_.netConnection_.prefetchBlocks() > 0) {
+            // a forward-only cursor may have the server send query blocks ahead of the first
+            buildMAXBLKEXT(netAgent_.netConnection_.prefetchBlocks());
         }
 
         // Tell the server to close forward-only result sets
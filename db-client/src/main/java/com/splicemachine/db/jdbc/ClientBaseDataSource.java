@@ -400,6 +400,27 @@ public abstract class ClientBaseDataSource implements Serializable, Referenceabl
         return parseBoolean(retrieveMessageTextString, propertyDefault_retrieveMessageText);
     }
 
+    // ---------------------------- prefetchBlocks -----------------------------------
+    // The number of query blocks of a forward-only result set which the server is
+    // asked to send along with each one the client requests. 0 turns prefetching off.
+    private int prefetchBlocks = propertyDefault_prefetchBlocks;
+    public final static int propertyDefault_prefetchBlocks = 0;
+
+    public static int getPrefetchBlocks(Properties properties) {
+        String prefetchBlocksString = properties.getProperty(Attribute.CLIENT_PREFETCH_BLOCKS);
+        return parseInt(prefetchBlocksString, propertyDefault_prefetchBlocks);
+    }
+
+    // ---------------------------- prefetchBufferSize -----------------------------------
+    // The most bytes of query blocks requested at once, which bounds prefetchBlocks.
+    private int prefetchBufferSize = propertyDefault_prefetchBufferSize;
+    public final static int propertyDefault_prefetchBufferSize = 1024 * 1024;
+
+    public static int getPrefetchBufferSize(Properties properties) {
+        String prefetchBufferSizeString = properties.getProperty(Attribute.CLIENT_PREFETCH_BUFFER_SIZE);
+        return parseInt(prefetchBufferSizeString, propertyDefault_prefetchBufferSize);
+    }
+
     // ---------------------------- traceFile -----------------------------------
     //
     private String traceFile;
@@ -845,6 +866,22 @@ public abstract class ClientBaseDataSource implements Serializable, Referenceabl
         return this.retrieveMessageText;
     }
 
+    synchronized public void setPrefetchBlocks(int prefetchBlocks) {
+        this.prefetchBlocks = prefetchBlocks;
+    }
+
+    public int getPrefetchBlocks() {
+        return this.prefetchBlocks;
+    }
+
+    synchronized public void setPrefetchBufferSize(int prefetchBufferSize) {
+        this.prefetchBufferSize = prefetchBufferSize;
+    }
+
+    public int getPrefetchBufferSize() {
+        return this.prefetchBufferSize;
+    }
+
     // ---------------------------- securityMechanism -----------------------------------
     /**
      * The source security mechanism to use when connecting to this data source.
@@ -1153,6 +1190,12 @@ public abstract class ClientBaseDataSource implements Serializable, Referenceabl
         if (prop.containsKey(Attribute.CLIENT_RETIEVE_MESSAGE_TEXT)) {
             setRetrieveMessageText(getRetrieveMessageText(prop));
         }
+        if (prop.containsKey(Attribute.CLIENT_PREFETCH_BLOCKS)) {
+            setPrefetchBlocks(getPrefetchBlocks(prop));
+        }
+        if (prop.containsKey(Attribute.CLIENT_PREFETCH_BUFFER_SIZE)) {
+            setPrefetchBufferSize(getPrefetchBufferSize(prop));
+        }
         if (prop.containsKey(Attribute.SSL_ATTR)) {
             sslMode = getClientSSLMode(prop);
         }
@@ -230,6 +230,18 @@ class DDMReader
     protected CcsidManager getCurrentCcsidManager() {
         return ccsidManager;
     }
+
+	/**
+	 * Tell whether bytes have been read from the client which haven't been
+	 * processed yet, e.g. the start of a request sent before the reply to
+	 * the previous one was read.
+	 *
+	 * @return true if the buffer holds unprocessed bytes
+	 */
+	protected boolean hasUnreadData()
+	{
+		return pos < count;
+	}
     
 	protected boolean terminateChainOnErr()
 	{
@@ -332,6 +332,8 @@ class DRDAConnThread extends Thread {
                                 // DDMReader.fill(), which will happen
                                 // only when timeSlice is set.
                             }
+							if (parkIdleSession())
+								break;
 							currentTimeSlice = getTimeSlice();
 						} while ((currentTimeSlice <= 0)  || 
 							(System.currentTimeMillis() - timeStart < currentTimeSlice));
@@ -682,10 +684,67 @@ class DRDAConnThread extends Thread {
 		// set sqlamLevel
 		if (session.state == Session.ATTEXC)
 			sqlamLevel = appRequester.getManagerLevel(CodePoint.SQLAM);
+		else if (session.state == Session.CHKSEC && appRequester != null)
+		{
+			// a connected session coming back to this thread, which may
+			// have served another client since
+			sqlamLevel = appRequester.getManagerLevel(CodePoint.SQLAM);
+			initializeForClient();
+		}
 
-        /* All sessions MUST start as EBCDIC */
-        reader.setEbcdicCcsid();
-        writer.setEbcdicCcsid();
+        /* All sessions MUST start as EBCDIC, but a session which has
+         * connected to its database switched to UTF8 at ACCSEC if its
+         * client supports it */
+        if (database != null && appRequester != null &&
+                appRequester.supportsUtf8Ccsid())
+            switchToUtf8();
+        else
+            switchToEbcdic();
+	}
+
+	/**
+	 * Set up how replies are sent to the session's client, from the product
+	 * it identified itself as at ACCRDB.
+	 */
+	private void initializeForClient()
+	{
+		// All versions of DNC,the only client supported, handle
+		// warnings on CNTQRY
+		sendWarningsOnCNTQRY = true;
+		// The client can not request DIAGLVL because when run with
+		// an older server it will cause an exception. Older version
+		// of the server do not recognize requests for DIAGLVL.
+		if ((appRequester.getClientType() == appRequester.DNC_CLIENT) &&
+				appRequester.greaterThanOrEqualTo(10, 2, 0)) {
+			diagnosticLevel = CodePoint.DIAGLVL1;
+		}
+		else
+			diagnosticLevel = CodePoint.DIAGLVL0;
+	}
+
+	/**
+	 * Give up the current session if it is waiting for its client's next
+	 * request, so that an idle session doesn't hold this thread. The server
+	 * runs the session again once the client sends something.
+	 *
+	 * <p>Only sessions which are connected to a database (and so have their
+	 * application requester, which initializeForSession needs to restore
+	 * their CCSID), and whose requests have all been read, are given up. XA
+	 * sessions, and sessions with a statement timeout still to be applied to
+	 * their next statement, are kept, since that state is kept by this
+	 * thread.
+	 *
+	 * @return true if the session was given up
+	 */
+	private boolean parkIdleSession()
+	{
+		if (session == null || session.state != Session.CHKSEC ||
+				session.appRequester == null ||
+				database == null || database instanceof XADatabase ||
+				pendingStatementTimeout >= 0 || reader.hasUnreadData() || !server.parkSession(session))
+			return false;
+		session = null;
+		return true;
 	}
 	/**      
 	 * In initial state for a session, 
@@ -790,6 +849,7 @@ class DRDAConnThread extends Thread {
 						if (stmt != null)
 						{
 							writeQRYDTA(stmt);
+							writeExtraQRYDTA(stmt);
 							if (stmt.rsIsClosed())
 							{
 								writeENDQRYRM(CodePoint.SVRCOD_WARNING);
@@ -3459,16 +3519,7 @@ class DRDAConnThread extends Thread {
                     if (appRequester.getClientType() != appRequester.DNC_CLIENT) {
                         invalidClient(appRequester.prdid);
                     }
-                    // All versions of DNC,the only client supported, handle
-                    // warnings on CNTQRY
-                    sendWarningsOnCNTQRY = true;
-					// The client can not request DIAGLVL because when run with
-					// an older server it will cause an exception. Older version
-					// of the server do not recognize requests for DIAGLVL.
-					if ((appRequester.getClientType() == appRequester.DNC_CLIENT) &&
-							appRequester.greaterThanOrEqualTo(10, 2, 0)) {
-						diagnosticLevel = CodePoint.DIAGLVL1;
-					}
+					initializeForClient();
 
 					removeFromRequired(CodePoint.PRDID);
 					break;
@@ -4109,7 +4160,7 @@ class DRDAConnThread extends Thread {
 					// 0 - no extra query blocks
 					// -1 - can receive entire result set
 					checkLength(CodePoint.MAXBLKEXT, 2);
-					maxblkext = reader.readNetworkShort();
+					maxblkext = reader.readSignedNetworkShort();
 					if (SanityManager.DEBUG) 
 						trace("max extra blocks: "+maxblkext);
 					break;
@@ -4295,7 +4346,10 @@ class DRDAConnThread extends Thread {
 			 * to add "no lob columns".
 			 */
 			if (stmt.getQryprctyp() == CodePoint.LMTBLKPRC)
+			{
 				writeQRYDTA(stmt);
+				writeExtraQRYDTA(stmt);
+			}
 		}
 		else  if (! sendSQLDTARD)
 		{
@@ -7052,6 +7106,41 @@ class DRDAConnThread extends Thread {
 		}
 	}
 
+	/**
+	 * Write as many more QRYDTA blocks as the requester asked for with a
+	 * positive MAXBLKEXT, so that a client reading a forward-only cursor
+	 * gets the blocks after the one it needs without a CNTQRY for each.
+	 * A MAXBLKEXT of -1 (any number of blocks) still gets one block per
+	 * request, which is what requesters sending it have always been given.
+	 * Scrollable cursors, and cursors with LOB columns which may need
+	 * EXTDTA after a block, get no extra blocks.
+	 *
+	 * @param stmt	DRDA statement we are processing
+	 * @throws DRDAProtocolException
+	 * @throws SQLException
+	 */
+	private void writeExtraQRYDTA(DRDAStatement stmt)
+		throws DRDAProtocolException, SQLException
+	{
+		int maxblkext = stmt.getMaxblkext();
+		if (maxblkext <= 0 || stmt.isScrollable() ||
+				stmt.getQryprctyp() != CodePoint.LMTBLKPRC)
+			return;
+		// the block just written may already have ended the data and
+		// closed the result set, which then has no metadata to check
+		DRDAResultSet drdars = stmt.getCurrentDrdaResultSet();
+		if (drdars == null || drdars.getResultSet() == null ||
+				drdars.hasLobColumns())
+			return;
+
+		for (int i = 0; i < maxblkext && !stmt.rsIsClosed() && stmt.hasdata(); i++)
+		{
+			if (SanityManager.DEBUG)
+				trace("Write extra QRYDTA " + (i + 1) + " of " + maxblkext);
+			writeQRYDTA(stmt);
+		}
+	}
+
 	/**
 	 * This routine places some data into the current QRYDTA block using
 	 * FDODTA (Formatted Data Object DaTA rules).
@@ -7130,9 +7219,13 @@ class DRDAConnThread extends Thread {
 			{
 				doneData(stmt, rs);
 				moreData = false;
+				// the last block ended with the last row, so this one only
+				// says there are no more; don't write another after it
+				if (!stmt.isScrollable())
+					stmt.setHasdata(false);
 				return moreData;
 			}
-			
+
 			// Send ResultSet warnings if there are any
 			SQLWarning sqlw = (rs != null)? rs.getWarnings(): null;
 			if (rs != null) {
@@ -542,6 +542,11 @@ class DRDAStatement
 		return currentDrdaRs.qryrowset;
 	}
 
+	protected int  getMaxblkext()
+	{
+		return currentDrdaRs.maxblkext;
+	}
+
 	
 	protected int getBlksize()
 	{
@@ -35,6 +35,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import javax.net.SocketFactory;
@@ -44,6 +45,7 @@ import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.SSLServerSocketFactory;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.Charset;
 import java.security.Permission;
 import java.security.AccessController;
@@ -277,6 +279,7 @@ public final class NetworkServerControlImpl {
 										// and changing timeSlice
 
 	private boolean keepAlive = true;   // keepAlive value for client socket 
+	private boolean selectIdleSessions;	// park idle sessions on a selector
 	private int minPoolSize;			//minimum pool size for pooled connections
 	private int maxPoolSize;			//maximum pool size for pooled connections
 	private Object poolSync = new Object();	// object to use for syning reading
@@ -324,6 +327,12 @@ public final class NetworkServerControlImpl {
 	// number of DRDAConnThreads waiting for something to do
 	private int freeThreads;
 
+	// sessions waiting for their client's next request, or null if idle
+	// sessions hold their threads
+	private SessionSelector sessionSelector;
+	// object to use for syncing the start of sessions on DRDAConnThreads
+	private final Object runSessionSync = new Object();
+
 	// known application requesters
 	private Hashtable appRequesterTable = new Hashtable();
 
@@ -673,6 +682,13 @@ public final class NetworkServerControlImpl {
 		switch (getSSLMode()) {
 		case SSL_OFF:
 		default:
+			if (selectIdleSessions) {
+				// sockets accepted through a channel can wait for their
+				// next request on the session selector
+				ServerSocketChannel ssc = ServerSocketChannel.open();
+				ssc.socket().bind(new InetSocketAddress(hostAddress, portNumber));
+				return ssc.socket();
+			}
 			ServerSocketFactory sf =
 				ServerSocketFactory.getDefault();
 			return sf.createServerSocket(portNumber
@@ -803,6 +819,17 @@ public final class NetworkServerControlImpl {
 									}
 								}
 							);
+		if (serverSocket.getChannel() != null) {
+			sessionSelector = (SessionSelector) AccessController.doPrivileged(
+								new PrivilegedExceptionAction() {
+									public Object run() throws Exception
+									{
+										return new SessionSelector(thisControl);
+									}
+								}
+							);
+			sessionSelector.start();
+		}
 		clientThread.start();
 
 		try {
@@ -830,6 +857,9 @@ public final class NetworkServerControlImpl {
 	                            //interrupt client thread
 	                            clientThread.interrupt();
 
+	                            if (sessionSelector != null)
+	                                sessionSelector.close();
+
 	                            return null;
 	                       }
 	                    });
@@ -3082,6 +3112,12 @@ public final class NetworkServerControlImpl {
 		if (propval != null && 
 			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
 			keepAlive = false;
+
+		propval = PropertyUtil.getSystemProperty( 
+			Property.DRDA_PROP_SELECT_IDLE_SESSIONS);
+		if (propval != null && 
+			StringUtil.SQLEqualsIgnoreCase(propval,"true"))
+			selectIdleSessions = true;
 		
 		propval = PropertyUtil.getSystemProperty( 
 			Property.DRDA_PROP_HOSTNAME);
@@ -3896,6 +3932,7 @@ public final class NetworkServerControlImpl {
 		retval.put(Property.DRDA_PROP_PORTNUMBER, new Integer(portNumber).toString());
 		retval.put(Property.DRDA_PROP_HOSTNAME, hostArg);
 		retval.put(Property.DRDA_PROP_KEEPALIVE, new Boolean(keepAlive).toString());
+		retval.put(Property.DRDA_PROP_SELECT_IDLE_SESSIONS, new Boolean(selectIdleSessions).toString());
 
 		String tracedir = getTraceDirectory();
 		if (tracedir != null)
@@ -3942,10 +3979,7 @@ public final class NetworkServerControlImpl {
 
 	/**
 	 * Add a session - for use by <code>ClientThread</code>. Put the session
-	 * into the session table and the run queue. Start a new
-	 * <code>DRDAConnThread</code> if there are more sessions waiting than
-	 * there are free threads, and the maximum number of threads is not
-	 * exceeded.
+	 * into the session table and run it.
 	 *
 	 * <p><code>addSession()</code> should only be called from one thread at a
 	 * time.
@@ -3969,43 +4003,76 @@ public final class NetworkServerControlImpl {
 
 		sessionTable.put(new Integer(connectionNumber), session);
 
-		// Check whether there are enough free threads to service all the
-		// threads in the run queue in addition to the newly added session.
-		boolean enoughThreads;
-		synchronized (runQueue) {
-			enoughThreads = (runQueue.size() < freeThreads);
-		}
-		// No need to hold the synchronization on runQueue any longer than
-		// this. Since no other threads can make runQueue grow, and no other
-		// threads will reduce the number of free threads without removing
-		// sessions from runQueue, (runQueue.size() < freeThreads) cannot go
-		// from true to false until addSession() returns.
-
-		DRDAConnThread thread = null;
-
-		// try to start a new thread if we don't have enough free threads
-		if (!enoughThreads) {
-			// Synchronize on threadsSync to ensure that the value of
-			// maxThreads doesn't change until the new thread is added to
-			// threadList.
-			synchronized (threadsSync) {
-				// only start a new thread if we have no maximum number of
-				// threads or the maximum number of threads is not exceeded
-				if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
-					thread = new DRDAConnThread(session, this, getTimeSlice(),
-												getLogConnections());
-					threadList.add(thread);
-					thread.start();
+		runSession(session);
+	}
+
+	/**
+	 * Give a session which has work to do to a <code>DRDAConnThread</code>:
+	 * put it into the run queue, and start a new thread if there are more
+	 * sessions waiting than there are free threads, and the maximum number
+	 * of threads is not exceeded.
+	 *
+	 * <p>Called for new sessions by <code>ClientThread</code>, and for idle
+	 * sessions whose clients have sent a request by
+	 * <code>SessionSelector</code>.
+	 *
+	 * @param session the session to run
+	 */
+	void runSession(Session session) {
+		synchronized (runSessionSync) {
+			// Check whether there are enough free threads to service all the
+			// threads in the run queue in addition to the newly added session.
+			boolean enoughThreads;
+			synchronized (runQueue) {
+				enoughThreads = (runQueue.size() < freeThreads);
+			}
+			// No need to hold the synchronization on runQueue any longer than
+			// this. Since no other threads can make runQueue grow (those which
+			// add sessions hold runSessionSync), and no other
+			// threads will reduce the number of free threads without removing
+			// sessions from runQueue, (runQueue.size() < freeThreads) cannot go
+			// from true to false until runSession() returns.
+
+			DRDAConnThread thread = null;
+
+			// try to start a new thread if we don't have enough free threads
+			if (!enoughThreads) {
+				// Synchronize on threadsSync to ensure that the value of
+				// maxThreads doesn't change until the new thread is added to
+				// threadList.
+				synchronized (threadsSync) {
+					// only start a new thread if we have no maximum number of
+					// threads or the maximum number of threads is not exceeded
+					if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
+						thread = new DRDAConnThread(session, this, getTimeSlice(),
+													getLogConnections());
+						threadList.add(thread);
+						thread.start();
+					}
 				}
 			}
-		}
 
-		// add the session to the run queue if we didn't start a new thread
-		if (thread == null) {
-			runQueueAdd(session);
+			// add the session to the run queue if we didn't start a new thread
+			if (thread == null) {
+				runQueueAdd(session);
+			}
 		}
 	}
 
+	/**
+	 * Park a session which is waiting for its client's next request, so that
+	 * it doesn't hold the calling <code>DRDAConnThread</code>. The session is
+	 * run again once its client sends something.
+	 *
+	 * @param session the idle session
+	 * @return true if the session was parked, false if the caller should keep
+	 *         serving it
+	 */
+	boolean parkSession(Session session) {
+		SessionSelector selector = sessionSelector;
+		return selector != null && selector.park(session);
+	}
+
 	/**
 	 * Remove a thread from the thread list. Should be called when a
 	 * <code>DRDAConnThread</code> has been closed.
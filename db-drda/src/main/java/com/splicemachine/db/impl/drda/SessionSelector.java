@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Waits on a single thread for the clients of idle sessions to send their
+ * next request, so that a session which is between requests doesn't hold a
+ * <code>DRDAConnThread</code>.
+ *
+ * <p>A <code>DRDAConnThread</code> which has replied to a request and has no
+ * more input from the client parks the session here. The session's channel is
+ * switched to non-blocking mode and registered with the selector; once the
+ * client sends something (or goes away), the channel is switched back to
+ * blocking mode, since the protocol code reads the session's socket streams,
+ * and the session is run again on the next free thread.
+ */
+class SessionSelector extends Thread {
+
+	private final NetworkServerControlImpl server;
+	private final Selector selector;
+	// sessions parked since the selector last woke up
+	private final ConcurrentLinkedQueue<Session> parked = new ConcurrentLinkedQueue<Session>();
+	private volatile boolean closed;
+
+	SessionSelector(NetworkServerControlImpl server) throws IOException {
+		NetworkServerControlImpl.setUniqueThreadName(this, "NetworkServerSelector");
+		setDaemon(true);
+		this.server = server;
+		this.selector = Selector.open();
+	}
+
+	/**
+	 * Park an idle session until its client sends its next request.
+	 *
+	 * @param session a session with no unread input
+	 * @return false if the session can't be parked (its socket has no
+	 *         channel, e.g. with SSL), in which case the caller keeps it
+	 */
+	boolean park(Session session) {
+		if (closed || session.clientSocket.getChannel() == null)
+			return false;
+		parked.add(session);
+		selector.wakeup();
+		return true;
+	}
+
+	/**
+	 * Stop selecting. Parked sessions are left to be closed with the server.
+	 */
+	void close() {
+		closed = true;
+		selector.wakeup();
+	}
+
+	public void run() {
+		try {
+			while (!closed) {
+				try {
+					selector.select();
+					register();
+					resumeSelected();
+				} catch (ClosedSelectorException cse) {
+					// shut down
+					break;
+				} catch (RuntimeException re) {
+					// not tied to one session; the parked sessions are still
+					// registered, so keep selecting
+					report(re);
+				}
+			}
+		} catch (IOException ioe) {
+			if (!closed)
+				report(ioe);
+		} finally {
+			try {
+				selector.close();
+			} catch (IOException ioe) {
+				// ignore, we're going away anyway
+			}
+		}
+	}
+
+	private void register() {
+		Session session;
+		while ((session = parked.poll()) != null) {
+			SocketChannel channel = session.clientSocket.getChannel();
+			try {
+				channel.configureBlocking(false);
+				channel.register(selector, SelectionKey.OP_READ, session);
+			} catch (IOException ioe) {
+				// the session was closed while it was idle; let a thread
+				// find that out and clean it up
+				resume(session);
+			} catch (CancelledKeyException cke) {
+				resume(session);
+			} catch (RuntimeException re) {
+				closeSession(session, re);
+			}
+		}
+	}
+
+	private void resumeSelected() throws IOException {
+		Set<SelectionKey> selected = selector.selectedKeys();
+		if (selected.isEmpty())
+			return;
+		List<Session> ready = new ArrayList<Session>(selected.size());
+		for (SelectionKey key : selected) {
+			key.cancel();
+			ready.add((Session) key.attachment());
+		}
+		selected.clear();
+		// deregister the cancelled keys, which a channel must not
+		// have when it goes back to blocking mode
+		selector.selectNow();
+		for (Session session : ready)
+			resume(session);
+	}
+
+	private void resume(Session session) {
+		if (session.state == Session.CLOSED)
+			return;
+		try {
+			try {
+				session.clientSocket.getChannel().configureBlocking(true);
+			} catch (IOException ioe) {
+				// the channel is closed, which the thread reading it will see
+			}
+			runSession(session);
+		} catch (RuntimeException re) {
+			closeSession(session, re);
+		}
+	}
+
+	/**
+	 * Close a session which failed to be parked or resumed. The other parked
+	 * sessions are left alone.
+	 */
+	private void closeSession(Session session, RuntimeException cause) {
+		try {
+			session.close();
+		} catch (SQLException se) {
+			report(se);
+		}
+		removeSession(session);
+		report(cause);
+	}
+
+	/*
+	 * The calls into the server, package-private so that tests can run the
+	 * selector without one.
+	 */
+
+	void runSession(Session session) {
+		server.runSession(session);
+	}
+
+	void removeSession(Session session) {
+		server.removeFromSessionTable(session.connNum);
+	}
+
+	void report(Throwable t) {
+		server.consoleExceptionPrintTrace(t);
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class SessionSelectorTest {
+	private static final long WAIT_SECONDS = 10;
+
+	private final List<SocketChannel> channels = new ArrayList<SocketChannel>();
+	private ServerSocketChannel listener;
+	private RecordingSelector selector;
+	private int sessions;
+
+	@Before
+	public void setUp() throws Exception {
+		listener = ServerSocketChannel.open();
+		listener.socket().bind(new InetSocketAddress("localhost", 0));
+		selector = new RecordingSelector();
+		selector.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		selector.close();
+		selector.join(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+		for (SocketChannel channel : channels)
+			channel.close();
+		listener.close();
+	}
+
+	@Test
+	public void testWakesASessionWhenItsClientSendsARequest() throws Exception {
+		SocketChannel client = connect();
+		Session session = newSession();
+
+		Assert.assertTrue("Session was not parked", selector.park(session));
+		Assert.assertNull("Session was woken without a request",
+				selector.woken.poll(200, TimeUnit.MILLISECONDS));
+
+		client.write(ByteBuffer.wrap(new byte[]{1}));
+		Assert.assertSame("Incorrect session woken", session, awaitWoken());
+		Assert.assertTrue("Channel was not switched back to blocking mode",
+				session.clientSocket.getChannel().isBlocking());
+		Assert.assertEquals("Incorrect byte read by the woken session",
+				1, session.clientSocket.getInputStream().read());
+	}
+
+	@Test
+	public void testWakesASessionWhenItsClientGoesAway() throws Exception {
+		SocketChannel client = connect();
+		Session session = newSession();
+
+		Assert.assertTrue("Session was not parked", selector.park(session));
+		client.close();
+		Assert.assertSame("Incorrect session woken", session, awaitWoken());
+	}
+
+	@Test
+	public void testParksASessionAgainOnceItHasBeenWoken() throws Exception {
+		SocketChannel client = connect();
+		Session session = newSession();
+
+		Assert.assertTrue("Session was not parked", selector.park(session));
+		client.write(ByteBuffer.wrap(new byte[]{1}));
+		Assert.assertSame("Incorrect session woken", session, awaitWoken());
+		Assert.assertEquals(1, session.clientSocket.getInputStream().read());
+
+		Assert.assertTrue("Session was not parked again", selector.park(session));
+		client.write(ByteBuffer.wrap(new byte[]{2}));
+		Assert.assertSame("Incorrect session woken", session, awaitWoken());
+		Assert.assertEquals(2, session.clientSocket.getInputStream().read());
+	}
+
+	@Test
+	public void testClosesOnlyASessionWhichFailsToResume() throws Exception {
+		SocketChannel failingClient = connect();
+		Session failing = newSession();
+		SocketChannel idleClient = connect();
+		Session idle = newSession();
+		selector.failing.add(failing);
+
+		Assert.assertTrue("Session was not parked", selector.park(failing));
+		Assert.assertTrue("Session was not parked", selector.park(idle));
+		failingClient.write(ByteBuffer.wrap(new byte[]{1}));
+		Assert.assertSame("Incorrect session removed", failing,
+				selector.removed.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+		Assert.assertEquals("Failed session was not closed", Session.CLOSED, failing.state);
+		Assert.assertTrue("Failure was not reported",
+				selector.reported.poll(WAIT_SECONDS, TimeUnit.SECONDS) instanceof IllegalStateException);
+
+		// the selector keeps serving the other parked sessions, and new ones
+		idleClient.write(ByteBuffer.wrap(new byte[]{1}));
+		Assert.assertSame("Incorrect session woken", idle, awaitWoken());
+		Assert.assertTrue("Idle session was closed", idle.state != Session.CLOSED);
+
+		SocketChannel laterClient = connect();
+		Session later = newSession();
+		Assert.assertTrue("Session was not parked", selector.park(later));
+		laterClient.write(ByteBuffer.wrap(new byte[]{1}));
+		Assert.assertSame("Incorrect session woken", later, awaitWoken());
+		Assert.assertTrue("Other sessions were removed", selector.removed.isEmpty());
+	}
+
+	@Test
+	public void testDoesNotParkASessionWithoutAChannel() throws Exception {
+		Socket socket = new Socket(listener.socket().getInetAddress(), listener.socket().getLocalPort());
+		try {
+			Session session = new Session(null, ++sessions, socket, null, false);
+			Assert.assertFalse("Session without a channel was parked", selector.park(session));
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testDoesNotParkOnceClosed() throws Exception {
+		connect();
+		Session session = newSession();
+		selector.close();
+		Assert.assertFalse("Session was parked by a closed selector", selector.park(session));
+	}
+
+	private Session awaitWoken() throws InterruptedException {
+		Session session = selector.woken.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+		Assert.assertNotNull("No session was woken", session);
+		return session;
+	}
+
+	private SocketChannel connect() throws Exception {
+		SocketChannel client = SocketChannel.open(listener.socket().getLocalSocketAddress());
+		channels.add(client);
+		return client;
+	}
+
+	/* the server side of the last connection */
+	private Session newSession() throws Exception {
+		SocketChannel channel = listener.accept();
+		channels.add(channel);
+		return new Session(null, ++sessions, channel.socket(), null, false);
+	}
+
+	/**
+	 * Records what the selector asks of the server instead of running the
+	 * sessions.
+	 */
+	private static class RecordingSelector extends SessionSelector {
+		final BlockingQueue<Session> woken = new LinkedBlockingQueue<Session>();
+		final BlockingQueue<Session> removed = new LinkedBlockingQueue<Session>();
+		final BlockingQueue<Throwable> reported = new LinkedBlockingQueue<Throwable>();
+		final Set<Session> failing = Collections.synchronizedSet(new HashSet<Session>());
+
+		RecordingSelector() throws Exception {
+			super(null);
+		}
+
+		@Override
+		void runSession(Session session) {
+			if (failing.contains(session))
+				throw new IllegalStateException("Unable to run session " + session.connNum);
+			woken.add(session);
+		}
+
+		@Override
+		void removeSession(Session session) {
+			removed.add(session);
+		}
+
+		@Override
+		void report(Throwable t) {
+			reported.add(t);
+		}
+	}
+}
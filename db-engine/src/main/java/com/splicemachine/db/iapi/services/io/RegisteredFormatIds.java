@@ -143,7 +143,7 @@ String[] TwoByte = {
         /* 87 */        "com.splicemachine.db.iapi.types.DTSClassInfo", //InstanceGetter
         /* 88 */        "com.splicemachine.db.iapi.types.DTSClassInfo", //InstanceGetter
         /* 89 */        "com.splicemachine.db.iapi.types.SQLLongint",
-        /* 90 */        "com.splicemachine.db.impl.store.access.heap.HeapClassInfo",
+        /* 90 */        "com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation", // ACCESS_HEAP_ROW_LOCATION_V1_ID
         /* 91 */        "com.splicemachine.db.impl.store.access.heap.Heap_v10_2",
         /* 92 */        null,
         /* 93 */        "com.splicemachine.db.impl.store.access.StorableFormatId",
@@ -529,14 +529,16 @@ String[] TwoByte = {
         /* 464 */   null,
 		/* 465 */   "com.splicemachine.db.impl.store.raw.data.CompressSpacePageOperation",
         /* 466 */   "com.splicemachine.db.impl.store.access.btree.index.B2I_10_3",
-        /* 467 */   "com.splicemachine.db.impl.store.access.heap.Heap",
+        /* 467 */   "com.splicemachine.derby.impl.store.access.hbase.HBaseConglomerate", // ACCESS_HEAP_V3_ID
         /* 468 */   "com.splicemachine.db.iapi.types.DTSClassInfo",
         /* 469 */   "com.splicemachine.db.catalog.types.RowMultiSetImpl",
-        /* 470 */   "com.splicemachine.db.impl.store.access.btree.index.B2I",
+        /* 470 */   "com.splicemachine.derby.impl.store.access.btree.IndexConglomerate", // ACCESS_B2I_V5_ID
         /* 471 */   "com.splicemachine.db.impl.sql.catalog.CoreDDFinderClassInfo",
         /* 472 */       "com.splicemachine.db.impl.sql.catalog.CoreDDFinderClassInfo",
         /* 473 */       "com.splicemachine.db.impl.sql.catalog.CoreDDFinderClassInfo",
         /* 474 */       "com.splicemachine.db.catalog.types.UDTAliasInfo",
         /* 475 */       "com.splicemachine.db.catalog.types.AggregateAliasInfo",
+        /* 476 */       "com.splicemachine.db.impl.sql.execute.WindowFunctionInfo",
+        /* 477 */       "com.splicemachine.db.impl.sql.execute.WindowFunctionInfoList",
 };
 }
@@ -622,4 +622,16 @@ public interface CompilerContext extends Context
 
     public DataSetProcessorType getDataSetProcessorType();
 
+    /**
+     * Mark the plan being compiled as suiting only the default values of its parameters, because the
+     * optimizer found that the selectivity of one of those values is far from that of an average value.
+     * Such a plan shouldn't be reused for other values of its parameters.
+     */
+    public void setParameterValueSensitive(boolean parameterValueSensitive);
+
+    /**
+     * @return true if the plan being compiled suits only the default values of its parameters.
+     */
+    public boolean isParameterValueSensitive();
+
 }
@@ -95,4 +95,14 @@ public interface OptimizerFactory {
 	 * @return	maxMemoryPerTable value
 	 */
 	public int getMaxMemoryPerTable();
+
+	/**
+	 * Return a description of the settings which affect the plans the
+	 * optimizer chooses, which changes whenever any of them does. Plans
+	 * which are kept outside of the server are only reused under the
+	 * same settings.
+	 *
+	 * @return the settings which affect the choice of plans
+	 */
+	public String getPlanSettings();
 }
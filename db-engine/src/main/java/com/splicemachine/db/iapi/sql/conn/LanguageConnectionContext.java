@@ -883,6 +883,23 @@ public interface LanguageConnectionContext extends Context {
         public PreparedStatement prepareInternalStatement(String sqlText) 
 	    throws StandardException;
 
+	/**
+	 * Return an Activation for a query executed through java.sql.Statement, whose plan is shared with
+	 * the queries which differ from it only in the literals of their predicates. Those literals are
+	 * replaced by parameters, which the activation holds the values of.
+	 *
+	 * @param compilationSchema schema
+	 * @param sqlText sql query string
+	 * @param isForReadOnly read only status for resultset
+	 * @param scrollable whether the activation should support scrolling
+	 * @return the activation, or null if literals aren't normalized (see
+	 * {@link com.splicemachine.db.iapi.reference.Property#LANG_NORMALIZE_LITERALS}), or the query
+	 * should be prepared as written.
+	 */
+	public Activation getNormalizedActivation(SchemaDescriptor compilationSchema,
+			String sqlText, boolean isForReadOnly, boolean scrollable)
+	    throws StandardException;
+
 	/**
 	 * Control whether or not optimizer trace is on.
 	 *
@@ -1296,6 +1313,19 @@ public interface LanguageConnectionContext extends Context {
 
     CompilerContext.DataSetProcessorType getDataSetProcessorType();
 
+    /**
+     * Set the number of threads which a control-side scan may use for this session.
+     *
+     * @param controlParallelism the degree of parallelism, or 0 to use the server default
+     */
+    void setControlParallelism(int controlParallelism);
+
+    /**
+     * @return the number of threads which a control-side scan may use for this session, or 0 if the
+     * server default should be used.
+     */
+    int getControlParallelism();
+
 	/**
 	 *
 	 * Setting the dynamic withDescriptors
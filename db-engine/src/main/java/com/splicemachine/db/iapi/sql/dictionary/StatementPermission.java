@@ -35,11 +35,13 @@ import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
 import com.splicemachine.db.iapi.sql.depend.DependencyManager;
 import com.splicemachine.db.iapi.services.context.ContextManager;
 
+import java.io.Serializable;
+
 /**
  * This class describes a permission require by a statement.
  */
 
-public abstract class StatementPermission
+public abstract class StatementPermission implements Serializable
 {
 	public static final int UNAUTHORIZED = 0;
 	public static final int AUTHORIZED = 1;
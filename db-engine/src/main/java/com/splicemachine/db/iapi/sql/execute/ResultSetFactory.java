@@ -110,6 +110,8 @@ public interface ResultSetFactory {
 			be inserted into the target table.
 		@param generationClauses	The code to compute column generation clauses if any
 		@param checkGM	The code to enforce the check constraints, if any
+		@param bulkImportDirectory	The staging directory for store files, if the rows are to be
+			bulk imported rather than inserted
 		@return the insert operation as a result set.
 		@exception StandardException thrown when unable to perform the insert
 	 */
@@ -119,6 +121,7 @@ public interface ResultSetFactory {
 								 String insertMode,
 								 String statusDirectory,
 								 int failBadRecordCount,
+								 String bulkImportDirectory,
                                  double optimizerEstimatedRowCount,
                                  double optimizerEstimatedCost,
                                  String tableVersion,
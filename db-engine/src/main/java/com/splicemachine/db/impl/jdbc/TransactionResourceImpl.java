@@ -127,6 +127,7 @@ public final class TransactionResourceImpl
 	private String url;
 	private String drdaID;
     private CompilerContext.DataSetProcessorType useSpark;
+    private int controlParallelism;
 
 	// set these up after constructor, called by EmbedConnection
 	protected Database database;
@@ -161,6 +162,16 @@ public final class TransactionResourceImpl
             }
         } else
             useSpark = CompilerContext.DataSetProcessorType.DEFAULT_CONTROL;
+        String controlParallelismString = info.getProperty("controlParallelism",null);
+        if (controlParallelismString != null) {
+            try {
+                controlParallelism = Integer.parseInt(controlParallelismString.trim());
+            } catch (NumberFormatException nfe) {
+                controlParallelism = -1;
+            }
+            if (controlParallelism < 1)
+                throw new SQLException(StandardException.newException(SQLState.PROPERTY_INVALID_VALUE,"controlParallelism",controlParallelismString));
+        }
 
 		// make a new context manager for this TransactionResource
 
@@ -199,6 +210,8 @@ public final class TransactionResourceImpl
 	{
 		// setting up local connection
 		lcc = database.setupConnection(cm, username, drdaID, dbname,useSpark);
+		if (controlParallelism > 0)
+			lcc.setControlParallelism(controlParallelism);
 	}
 
 	/**
@@ -43,6 +43,7 @@ import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
 import com.splicemachine.db.iapi.util.ByteArray;
 import com.splicemachine.db.iapi.util.InterruptStatus;
 import com.splicemachine.db.impl.ast.JsonTreeBuilderVisitor;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
 import com.splicemachine.db.impl.sql.compile.ExplainNode;
 import com.splicemachine.db.impl.sql.compile.StatementNode;
 import com.splicemachine.db.impl.sql.conn.GenericLanguageConnectionContext;
@@ -65,6 +66,10 @@ public class GenericStatement implements Statement{
     private final boolean isForReadOnly;
     private int prepareIsolationLevel;
     private GenericStorablePreparedStatement preparedStmt;
+    // the values the optimizer peeks at for the parameters of a statement whose literals were normalized
+    private final Object[] paramDefaults;
+    private boolean compiled;
+    private boolean parameterValueSensitive;
 
     /**
      * Constructor for a Statement given the text of the statement in a String
@@ -75,9 +80,24 @@ public class GenericStatement implements Statement{
      */
 
     public GenericStatement(SchemaDescriptor compilationSchema,String statementText,boolean isForReadOnly){
+        this(compilationSchema,statementText,isForReadOnly,null);
+    }
+
+    /**
+     * Constructor for a Statement whose literals were replaced by parameters.
+     *
+     * @param compilationSchema schema
+     * @param statementText     The normalized text of the statement
+     * @param isForReadOnly     if the statement is opened with level CONCUR_READ_ONLY
+     * @param paramDefaults     The values of the replaced literals, which the optimizer uses to estimate
+     *                          the selectivity of the predicates they appear in
+     * @see NormalizedStatement
+     */
+    public GenericStatement(SchemaDescriptor compilationSchema,String statementText,boolean isForReadOnly,Object[] paramDefaults){
         this.compilationSchema=compilationSchema;
         this.statementText=statementText;
         this.isForReadOnly=isForReadOnly;
+        this.paramDefaults=paramDefaults;
     }
 
     public PreparedStatement prepare(LanguageConnectionContext lcc) throws StandardException{
@@ -99,7 +119,7 @@ public class GenericStatement implements Statement{
         while(true){
             boolean recompile=false;
             try{
-                return prepMinion(lcc,true,null,null,forMetaData);
+                return prepMinion(lcc,true,paramDefaults,null,forMetaData);
             }catch(StandardException se){
                 // There is a chance that we didn't see the invalidation
                 // request from a DDL operation in another thread because
@@ -194,6 +214,31 @@ public class GenericStatement implements Statement{
     @Override
     public String getSource(){ return statementText; }
 
+    /**
+     * @return true if the last call to prepare() compiled the statement, rather than finding an
+     * up-to-date plan for it in the statement cache
+     */
+    public boolean isCompiled(){ return compiled; }
+
+    /**
+     * @return true if the plan was compiled for the default values of the statement's parameters,
+     * and shouldn't be reused for other values
+     * @see CompilerContext#isParameterValueSensitive()
+     */
+    public boolean isParameterValueSensitive(){ return parameterValueSensitive; }
+
+    /**
+     * @param lcc the session which is about to prepare this statement
+     * @return true if this statement has been compiled before, with the same key in the statement cache, into a
+     * plan which suited only the values of its parameters it was compiled for
+     * @throws StandardException
+     */
+    public boolean wasParameterValueSensitive(LanguageConnectionContext lcc) throws StandardException{
+        // the isolation level the statement will be prepared at is part of its key
+        prepareIsolationLevel=lcc.getPrepareIsolationLevel();
+        return lcc.getDataDictionary().getDataDictionaryCache().parameterValueSensitiveStatementFind(this);
+    }
+
     public String getCompilationSchema(){ return compilationSchema.getDescriptorName(); }
 
     /**
@@ -216,6 +261,17 @@ public class GenericStatement implements Statement{
 
     public int hashCode(){ return statementText.hashCode(); }
 
+    /**
+     * @param dataSetProcessorType whether the session preparing the statement asked for Spark or control execution
+     * @return a string which identifies this statement as {@link #equals} does, and the session's choice of
+     * execution engine, under which its plan is kept outside of the server
+     * @see PersistentPlanCache
+     */
+    String getPlanKey(CompilerContext.DataSetProcessorType dataSetProcessorType){
+        return compilationSchema.getUUID()+" "+compilationSchema.getSchemaName()+" "+isForReadOnly+" "
+                +prepareIsolationLevel+" "+dataSetProcessorType+" "+statementText;
+    }
+
     public String toString() {
         return statementText.trim().toUpperCase();
     }
@@ -306,10 +362,15 @@ public class GenericStatement implements Statement{
 		 * relevant Derby property) then the value of cacheMe is irrelevant.
 		 */
         boolean foundInCache=false;
+        boolean neverCompiled;
+        boolean restored=false;
+        PersistentPlanCache planCache=null;
 //        boolean isExplain=isExplainStatement();
         if(preparedStmt==null){
+            // a statement whose literals were normalized isn't added to the cache until it has been compiled,
+            // since its plan may turn out to suit only the values it was compiled for
             if(cacheMe)
-                preparedStmt=(GenericStorablePreparedStatement)((GenericLanguageConnectionContext)lcc).lookupStatement(this);
+                preparedStmt=(GenericStorablePreparedStatement)((GenericLanguageConnectionContext)lcc).lookupStatement(this,paramDefaults==null);
 
             if(preparedStmt==null){
                 preparedStmt=new GenericStorablePreparedStatement(this);
@@ -375,8 +436,12 @@ public class GenericStatement implements Statement{
                 }
             }
 
+            // lookupStatement() adds a new statement to the cache before it's compiled, so foundInCache
+            // doesn't tell us whether this server has compiled it yet
+            neverCompiled=preparedStmt.activationClass==null;
             preparedStmt.compilingStatement=true;
             preparedStmt.setActivationClass(null);
+            compiled=true;
         }
 
         try{
@@ -400,21 +465,28 @@ public class GenericStatement implements Statement{
 			** get the CompilerContext to make the createDependency()
 			** call a noop.
 			*/
-            CompilerContext cc=lcc.pushCompilerContext(compilationSchema);
+            if(cacheMe)
+                planCache=lcc.getDataDictionary().getDataDictionaryCache().getPersistentPlanCache();
+            // a statement which this server hasn't compiled yet may have been compiled before it restarted
+            restored=neverCompiled && planCache!=null && planCache.restore(this,preparedStmt,lcc);
 
-            if(prepareIsolationLevel!=ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL){
-                cc.setScanIsolationLevel(prepareIsolationLevel);
-            }
+            if(!restored){
+                CompilerContext cc=lcc.pushCompilerContext(compilationSchema);
 
-            // Look for stored statements that are in a system schema
-            // and with a match compilation schema. If so, allow them
-            // to compile using internal SQL constructs.
-            if(internalSQL ||
-                    (spsSchema!=null) && (spsSchema.isSystemSchema()) && (spsSchema.equals(compilationSchema))){
-                cc.setReliability(CompilerContext.INTERNAL_SQL_LEGAL);
-            }
+                if(prepareIsolationLevel!=ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL){
+                    cc.setScanIsolationLevel(prepareIsolationLevel);
+                }
+
+                // Look for stored statements that are in a system schema
+                // and with a match compilation schema. If so, allow them
+                // to compile using internal SQL constructs.
+                if(internalSQL ||
+                        (spsSchema!=null) && (spsSchema.isSystemSchema()) && (spsSchema.equals(compilationSchema))){
+                    cc.setReliability(CompilerContext.INTERNAL_SQL_LEGAL);
+                }
 
-            fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cc);
+                fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cc);
+            }
         }catch(StandardException se){
             if(foundInCache)
                 ((GenericLanguageConnectionContext)lcc).removeStatement(this);
@@ -429,6 +501,17 @@ public class GenericStatement implements Statement{
 
         lcc.commitNestedTransaction();
 
+        if(planCache!=null && !restored && !parameterValueSensitive)
+            planCache.save(this,preparedStmt,lcc);
+
+        if(cacheMe && paramDefaults!=null){
+            DataDictionaryCache cache=lcc.getDataDictionary().getDataDictionaryCache();
+            if(parameterValueSensitive)
+                cache.parameterValueSensitiveStatementAdd(this);
+            else if(!foundInCache && !preparedStmt.referencesSessionSchema())
+                cache.statementCacheAdd(this,preparedStmt);
+        }
+
         if(statementContext!=null)
             lcc.popStatementContext(statementContext,null);
 
@@ -480,6 +563,11 @@ public class GenericStatement implements Statement{
              * we mark it valid.
              */
             Timestamp endTimestamp=generate(lcc,timestamps,cc,qt);
+            parameterValueSensitive=cc.isParameterValueSensitive();
+            // a cached plan which is recompiled for other values may now suit only those, so no one else
+            // may find it any more
+            if(parameterValueSensitive && foundInCache)
+                ((GenericLanguageConnectionContext)lcc).removeStatement(this);
 
             saveTree(qt, CompilationPhase.AFTER_GENERATE);
 
@@ -45,6 +45,7 @@ import com.splicemachine.db.iapi.util.ByteArray;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.List;
 
 /**
  * Prepared statement that can be made persistent.
@@ -126,6 +127,21 @@ public class GenericStorablePreparedStatement extends GenericPreparedStatement
         setActivationClass(gc);
     }
 
+    /**
+     * Replace the plan of this statement with one written by {@link #writeExternal}, as though the
+     * statement had just been compiled.
+     *
+     * @param in the saved plan
+     * @param requiredPermissions the permissions the plan requires, which aren't part of the saved plan
+     */
+    void restorePlan(ObjectInput in, List requiredPermissions) throws IOException, ClassNotFoundException, StandardException {
+        readExternal(in);
+        setRequiredPermissionsList(requiredPermissions);
+        incrementVersionCounter();
+        loadGeneratedClass();
+        isValid = true;
+    }
+
     @Override
     public ExecPreparedStatement getClone() throws StandardException {
         GenericStorablePreparedStatement clone = new GenericStorablePreparedStatement(statement);
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.TypeId;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The text of a statement with the literals of its predicates replaced by parameters, along with the
+ * values of those literals, so that statements which differ only in those literals can share one plan
+ * in the statement cache.
+ *
+ * Only literals which the optimizer treats the same whatever their value are replaced: integer and
+ * string literals which are compared for equality with a column, or which make up the IN list of a
+ * column, in a WHERE or ON clause. Everything else (ranges, LIKE patterns, select lists, decimal and
+ * date literals, hints) is left as written.
+ */
+public class NormalizedStatement{
+    private static final Set<String> STATEMENTS=new HashSet<>(Arrays.asList(
+            "SELECT","WITH","INSERT","UPDATE","DELETE"));
+    private static final Set<String> CLAUSES=new HashSet<>(Arrays.asList(
+            "SELECT","FROM","WHERE","GROUP","HAVING","ORDER","SET","VALUES","ON","FETCH","OFFSET",
+            "UNION","EXCEPT","INTERSECT"));
+    /*
+     * The words which may follow a comparison which is complete in itself; anything else (e.g. an arithmetic
+     * operator, or a CASE's THEN) means that the literal is part of a larger expression.
+     */
+    private static final Set<String> TERMINATORS=new HashSet<>(Arrays.asList(
+            "AND","OR","WHERE","GROUP","HAVING","ORDER","FETCH","OFFSET","UNION","EXCEPT","INTERSECT","FOR",
+            "WITH","JOIN","INNER","LEFT","RIGHT","FULL","CROSS","NATURAL"));
+
+    private final String text;
+    private final DataValueDescriptor[] values;
+
+    private NormalizedStatement(String text,DataValueDescriptor[] values){
+        this.text=text;
+        this.values=values;
+    }
+
+    /**
+     * @return the text of the statement, with a parameter in place of each replaced literal
+     */
+    public String getText(){ return text; }
+
+    /**
+     * @return the values of the replaced literals, in the order of the parameters which replaced them
+     */
+    public DataValueDescriptor[] getValues(){ return values; }
+
+    /**
+     * Set the replaced literals as the values of the parameters of a compiled plan for this statement.
+     *
+     * @param types the types the compiler bound to the parameters
+     * @param pvs the parameters of an activation of the plan
+     * @return false if a literal doesn't fit the type of its parameter as it would have fit the type of its
+     * column (e.g. a string compared with an integer column), in which case the statement should be compiled
+     * as written so that it behaves exactly as it would have without normalization.
+     * @throws StandardException
+     */
+    public boolean bind(DataTypeDescriptor[] types,ParameterValueSet pvs) throws StandardException{
+        if(types==null || types.length!=values.length)
+            return false;
+        for(int i=0;i<values.length;i++){
+            if(types[i]==null)
+                return false;
+            TypeId typeId=types[i].getTypeId();
+            boolean fits;
+            if(values[i] instanceof SQLChar)
+                fits=(typeId.isStringTypeId() && !typeId.isLOBTypeId()) || typeId.isDateTimeTimeStampTypeID();
+            else
+                fits=typeId.isNumericTypeId();
+            if(!fits)
+                return false;
+        }
+        try{
+            for(int i=0;i<values.length;i++){
+                pvs.getParameterForSet(i).setValue(values[i]);
+            }
+        }catch(StandardException se){
+            //the value is out of the range of the column's type, which only a literal can compare against
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Normalize the text of a statement.
+     *
+     * @param sql the statement, as written
+     * @return the normalized statement, or null if the statement has no literal which can be replaced,
+     * or isn't a statement which can be normalized.
+     */
+    public static NormalizedStatement normalize(String sql){
+        List<Token> tokens=tokenize(sql);
+        if(tokens==null || tokens.isEmpty())
+            return null;
+        Token first=tokens.get(0);
+        if(first.type!=Token.WORD || !STATEMENTS.contains(first.word))
+            return null;
+
+        List<Token> literals=new ArrayList<>();
+        Deque<String> outerClauses=new ArrayDeque<>();
+        String clause=null;
+        for(int i=0;i<tokens.size();i++){
+            Token token=tokens.get(i);
+            if(token.is("(")){
+                outerClauses.push(clause==null?"":clause);
+                int end=inListEnd(tokens,i);
+                if(end>0 && isNormalizable(clause)){
+                    for(int j=i+1;j<end;j+=2){
+                        literals.add(tokens.get(j));
+                    }
+                    i=end;
+                    clause=outerClauses.pop();
+                }
+            }else if(token.is(")")){
+                if(outerClauses.isEmpty())
+                    return null;
+                clause=outerClauses.pop();
+            }else if(token.type==Token.WORD && CLAUSES.contains(token.word)){
+                clause=token.word;
+            }else if(token.value!=null && isNormalizable(clause)
+                    && isColumn(tokens,i-2) && tokens.get(i-1).is("=") && endsComparison(tokens,i+1)){
+                literals.add(token);
+            }
+        }
+        if(literals.isEmpty())
+            return null;
+
+        StringBuilder text=new StringBuilder(sql.length());
+        DataValueDescriptor[] values=new DataValueDescriptor[literals.size()];
+        int position=0;
+        for(int i=0;i<values.length;i++){
+            Token literal=literals.get(i);
+            text.append(sql,position,literal.start).append('?');
+            position=literal.end;
+            values[i]=literal.value;
+        }
+        text.append(sql,position,sql.length());
+        return new NormalizedStatement(text.toString(),values);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean isNormalizable(String clause){
+        return "WHERE".equals(clause) || "ON".equals(clause);
+    }
+
+    private static boolean isColumn(List<Token> tokens,int position){
+        if(position<0)
+            return false;
+        Token token=tokens.get(position);
+        return (token.type==Token.WORD && !CLAUSES.contains(token.word) && !TERMINATORS.contains(token.word))
+                || token.type==Token.QUOTED_WORD;
+    }
+
+    private static boolean endsComparison(List<Token> tokens,int position){
+        if(position>=tokens.size())
+            return true;
+        Token token=tokens.get(position);
+        return token.is(")") || (token.type==Token.WORD && TERMINATORS.contains(token.word));
+    }
+
+    /*
+     * Find the closing parenthesis of an IN list made only of literals, "column IN (literal, ...)" where
+     * the opening parenthesis is at position, or return -1 if the parenthesis opens anything else.
+     */
+    private static int inListEnd(List<Token> tokens,int position){
+        if(position<2 || !tokens.get(position-1).is("IN") || !isColumn(tokens,position-2))
+            return -1;
+        int i=position+1;
+        while(i+1<tokens.size() && tokens.get(i).value!=null){
+            Token next=tokens.get(i+1);
+            if(next.is(")"))
+                return endsComparison(tokens,i+2)?i+1:-1;
+            if(!next.is(","))
+                return -1;
+            i+=2;
+        }
+        return -1;
+    }
+
+    /*
+     * Split the statement into words, quoted identifiers, literals and symbols, or return null if it holds
+     * anything which must be compiled as written: comments (which may hold optimizer hints), parameters,
+     * JDBC escapes, or text we can't make sense of.
+     */
+    private static List<Token> tokenize(String sql){
+        List<Token> tokens=new ArrayList<>();
+        int length=sql.length();
+        int i=0;
+        while(i<length){
+            char c=sql.charAt(i);
+            int start=i;
+            if(Character.isWhitespace(c)){
+                i++;
+            }else if(c=='-' && i+1<length && sql.charAt(i+1)=='-'){
+                return null;
+            }else if(c=='/' && i+1<length && sql.charAt(i+1)=='*'){
+                return null;
+            }else if(c=='?' || c=='{' || c=='}'){
+                return null;
+            }else if(c=='\''){
+                StringBuilder value=new StringBuilder();
+                for(i++;;i++){
+                    if(i>=length)
+                        return null;
+                    char s=sql.charAt(i);
+                    if(s=='\''){
+                        if(i+1<length && sql.charAt(i+1)=='\''){
+                            value.append(s);
+                            i++;
+                        }else
+                            break;
+                    }else
+                        value.append(s);
+                }
+                i++;
+                //a string right after a word is a typed literal (DATE '...', X'...'), which we leave alone
+                Token previous=tokens.isEmpty()?null:tokens.get(tokens.size()-1);
+                boolean typed=previous!=null && previous.type==Token.WORD && previous.end==start;
+                tokens.add(new Token(Token.LITERAL,null,typed?null:new SQLChar(value.toString()),start,i));
+            }else if(c=='"'){
+                for(i++;;i++){
+                    if(i>=length)
+                        return null;
+                    if(sql.charAt(i)=='"'){
+                        if(i+1<length && sql.charAt(i+1)=='"')
+                            i++;
+                        else
+                            break;
+                    }
+                }
+                i++;
+                tokens.add(new Token(Token.QUOTED_WORD,null,null,start,i));
+            }else if(Character.isDigit(c) || (c=='.' && i+1<length && Character.isDigit(sql.charAt(i+1)))){
+                boolean integer=true;
+                while(i<length && Character.isDigit(sql.charAt(i)))
+                    i++;
+                if(i<length && sql.charAt(i)=='.'){
+                    integer=false;
+                    i++;
+                    while(i<length && Character.isDigit(sql.charAt(i)))
+                        i++;
+                }
+                if(i<length && (sql.charAt(i)=='e' || sql.charAt(i)=='E')){
+                    integer=false;
+                    i++;
+                    if(i<length && (sql.charAt(i)=='+' || sql.charAt(i)=='-'))
+                        i++;
+                    while(i<length && Character.isDigit(sql.charAt(i)))
+                        i++;
+                }
+                if(i<length && Character.isLetter(sql.charAt(i)))
+                    return null;
+                tokens.add(new Token(Token.LITERAL,null,integer?integerValue(sql.substring(start,i)):null,start,i));
+            }else if(Character.isLetter(c) || c=='_'){
+                while(i<length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i)=='_' || sql.charAt(i)=='$'))
+                    i++;
+                tokens.add(new Token(Token.WORD,sql.substring(start,i).toUpperCase(),null,start,i));
+            }else{
+                i++;
+                if(i<length && (c=='<' || c=='>' || c=='!' || c=='|') && "=>|".indexOf(sql.charAt(i))>=0)
+                    i++;
+                tokens.add(new Token(Token.SYMBOL,sql.substring(start,i),null,start,i));
+            }
+        }
+        return tokens;
+    }
+
+    private static DataValueDescriptor integerValue(String digits){
+        if(digits.length()>18)
+            return null;
+        long value=Long.parseLong(digits);
+        if(value<=Integer.MAX_VALUE)
+            return new SQLInteger((int)value);
+        return new SQLLongint(value);
+    }
+
+    private static class Token{
+        static final int WORD=0;
+        static final int QUOTED_WORD=1;
+        static final int LITERAL=2;
+        static final int SYMBOL=3;
+
+        final int type;
+        final String word;
+        final DataValueDescriptor value;
+        final int start;
+        final int end;
+
+        Token(int type,String word,DataValueDescriptor value,int start,int end){
+            this.type=type;
+            this.word=word;
+            this.value=value;
+            this.start=start;
+            this.end=end;
+        }
+
+        boolean is(String text){
+            return text.equals(word);
+        }
+    }
+}
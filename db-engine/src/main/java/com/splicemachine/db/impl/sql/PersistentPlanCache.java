@@ -0,0 +1,403 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.catalog.Dependable;
+import com.splicemachine.db.catalog.DependableFinder;
+import com.splicemachine.db.catalog.UUID;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatIdInputStream;
+import com.splicemachine.db.iapi.services.io.FormatIdOutputStream;
+import com.splicemachine.db.iapi.sql.ResultDescription;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.depend.Dependency;
+import com.splicemachine.db.iapi.sql.depend.DependencyManager;
+import com.splicemachine.db.iapi.sql.depend.Provider;
+import com.splicemachine.db.iapi.sql.dictionary.ColumnDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A cache of compiled plans in a local directory, which outlives the server, so that after a restart
+ * the server loads the plans of the statements it ran before rather than compiling them again.
+ *
+ * Only the plans of queries are kept, along with the dictionary objects they depend on. A saved plan
+ * is used only if it was generated by the same build of the engine, and each of those objects still
+ * exists and is unchanged (for a table: its version, columns, conglomerates and statistics); otherwise
+ * the statement is compiled as usual, and its new plan replaces the saved one. Plans are also kept apart
+ * by the optimizer's settings and by the session's choice of Spark or control execution, so that a change
+ * of settings doesn't reuse plans chosen under the old ones.
+ *
+ * Since a saved plan includes generated code which the server loads and runs, the directory must belong
+ * to the user the server runs as, and must not be writable by anyone else.
+ */
+public class PersistentPlanCache{
+    private static final Logger LOG=Logger.getLogger(PersistentPlanCache.class);
+    private static final int FORMAT_VERSION=1;
+    private static final String SUFFIX=".plan";
+
+    private final File directory;
+    private final ExecutorService writer;
+    private volatile String buildStamp;
+
+    /**
+     * Open the cache in a directory, creating the directory (readable by its owner only) if it doesn't exist.
+     *
+     * @return the cache, or null if the directory can't be used: it isn't a directory, belongs to another user,
+     * or can be written by other users.
+     */
+    public static PersistentPlanCache open(File directory){
+        try{
+            Path path=directory.toPath();
+            if(!Files.exists(path,LinkOption.NOFOLLOW_LINKS)){
+                if(path.getFileSystem().supportedFileAttributeViews().contains("posix"))
+                    Files.createDirectories(path,PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                else
+                    Files.createDirectories(path);
+            }
+            String problem=checkDirectory(path);
+            if(problem!=null){
+                LOG.warn("Not using "+directory+" as the plan cache directory: "+problem+", plans will not be saved");
+                return null;
+            }
+        }catch(IOException|RuntimeException e){
+            LOG.warn("Unable to open the plan cache directory "+directory+", plans will not be saved",e);
+            return null;
+        }
+        return new PersistentPlanCache(directory,null);
+    }
+
+    /**
+     * @param buildStamp the stamp of the engine's build, or null to compute it from the engine's code. Visible
+     *                   for testing.
+     */
+    PersistentPlanCache(File directory,String buildStamp){
+        this.directory=directory;
+        this.buildStamp=buildStamp;
+        this.writer=Executors.newSingleThreadExecutor(r -> {
+            Thread t=new Thread(r,"plan-cache-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Load the saved plan of a statement, if there is one which is still valid.
+     *
+     * On success, the plan is loaded into the prepared statement, which is registered as a dependent of the
+     * objects the plan depends on in the nested transaction this method begins; the caller commits it, as it
+     * would after a compile.
+     *
+     * @return true if the plan was loaded, false if the statement should be compiled.
+     */
+    boolean restore(GenericStatement statement,GenericStorablePreparedStatement ps,LanguageConnectionContext lcc){
+        String key=planKey(statement,lcc);
+        File file=file(key);
+        if(!Files.isRegularFile(file.toPath(),LinkOption.NOFOLLOW_LINKS))
+            return false;
+
+        boolean restored=false;
+        try{
+            lcc.beginNestedTransaction(true);
+        }catch(StandardException se){
+            LOG.debug("Unable to begin a transaction to load the plan of "+statement,se);
+            return false;
+        }
+        try(FormatIdInputStream in=new FormatIdInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if(in.readInt()!=FORMAT_VERSION || !getBuildStamp(lcc).equals(in.readObject())){
+                discard(file);
+                return false;
+            }
+            if(!key.equals(in.readObject()))
+                return false; //another statement whose key has the same digest
+
+            DataDictionary dd=lcc.getDataDictionary();
+            TransactionController tc=lcc.getTransactionCompile();
+            int size=in.readInt();
+            List<Provider> providers=new ArrayList<>(size);
+            for(int i=0;i<size;i++){
+                DependableFinder finder=(DependableFinder)in.readObject();
+                UUID id=(UUID)in.readObject();
+                String fingerprint=(String)in.readObject();
+                Dependable dependable=finder.getDependable(dd,id);
+                if(!(dependable instanceof Provider) || !fingerprint.equals(fingerprint(dependable,dd,tc))){
+                    discard(file);
+                    return false;
+                }
+                providers.add((Provider)dependable);
+            }
+            List requiredPermissions=(List)in.readObject();
+            ps.restorePlan(in,requiredPermissions);
+
+            DependencyManager dm=dd.getDependencyManager();
+            for(Provider provider : providers){
+                dm.addDependency(ps,provider,lcc.getContextManager());
+            }
+            restored=true;
+            if(LOG.isDebugEnabled())
+                LOG.debug("Loaded the saved plan of "+statement);
+        }catch(StandardException|IOException|ClassNotFoundException|RuntimeException|LinkageError e){
+            //a dropped object, or a plan we can no longer read: either way, the statement is compiled again
+            if(LOG.isDebugEnabled())
+                LOG.debug("Unable to load the saved plan of "+statement,e);
+            discard(file);
+        }finally{
+            if(!restored){
+                try{
+                    lcc.commitNestedTransaction();
+                }catch(StandardException se){
+                    LOG.warn("Unable to commit the transaction used to load the plan of "+statement,se);
+                }
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Save the plan of a statement which was just compiled, if it's a plan which can be saved. The plan is
+     * serialized by the caller, and written out in the background.
+     */
+    void save(GenericStatement statement,GenericStorablePreparedStatement ps,LanguageConnectionContext lcc){
+        if(!isSavable(ps))
+            return;
+        try{
+            DataDictionary dd=lcc.getDataDictionary();
+            Collection<Dependency> dependencies=dd.getDependencyManager().find(ps.getObjectID());
+            if(dependencies==null)
+                return;
+            List<Provider> providers=new ArrayList<>(dependencies.size());
+            for(Dependency dependency : dependencies){
+                if(!dependency.getDependent().equals(ps))
+                    continue;
+                Provider provider=dependency.getProvider();
+                if(!provider.isPersistent() || provider.getDependableFinder()==null)
+                    return; //we wouldn't be able to find it again
+                providers.add(provider);
+            }
+
+            String key=planKey(statement,lcc);
+            TransactionController tc=lcc.getTransactionCompile();
+            ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+            FormatIdOutputStream out=new FormatIdOutputStream(bytes);
+            out.writeInt(FORMAT_VERSION);
+            out.writeObject(getBuildStamp(lcc));
+            out.writeObject(key);
+            out.writeInt(providers.size());
+            for(Provider provider : providers){
+                out.writeObject(provider.getDependableFinder());
+                out.writeObject(provider.getObjectID());
+                out.writeObject(fingerprint(provider,dd,tc));
+            }
+            List requiredPermissions=ps.getRequiredPermissionsList();
+            out.writeObject(requiredPermissions==null?null:new ArrayList<>(requiredPermissions));
+            ps.writeExternal(out);
+            out.flush();
+
+            final File file=file(key);
+            final byte[] plan=bytes.toByteArray();
+            writer.execute(() -> write(file,plan));
+        }catch(StandardException|IOException|RuntimeException e){
+            if(LOG.isDebugEnabled())
+                LOG.debug("Unable to save the plan of "+statement,e);
+        }
+    }
+
+    /**
+     * Remove every saved plan.
+     */
+    public void clear(){
+        writer.execute(() -> {
+            File[] files=directory.listFiles((dir,name) -> name.endsWith(SUFFIX));
+            if(files!=null){
+                for(File file : files){
+                    discard(file);
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for every plan which has been saved so far to be written out. Visible for testing.
+     */
+    void awaitWrites() throws InterruptedException, ExecutionException{
+        writer.submit(() -> {}).get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * A reason not to trust the directory with plans, or null if there isn't one. A new file shows who the
+     * server runs as.
+     */
+    private static String checkDirectory(Path directory) throws IOException{
+        if(!Files.isDirectory(directory,LinkOption.NOFOLLOW_LINKS))
+            return "it is not a directory";
+        UserPrincipal owner=Files.getOwner(directory,LinkOption.NOFOLLOW_LINKS);
+        Path probe=Files.createTempFile(directory,"owner",".tmp");
+        try{
+            if(!owner.equals(Files.getOwner(probe)))
+                return "it belongs to "+owner.getName();
+        }finally{
+            Files.delete(probe);
+        }
+        PosixFileAttributeView view=Files.getFileAttributeView(directory,PosixFileAttributeView.class,LinkOption.NOFOLLOW_LINKS);
+        if(view!=null){
+            Set<PosixFilePermission> permissions=view.readAttributes().permissions();
+            if(permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE))
+                return "it is writable by other users";
+        }
+        return null;
+    }
+
+    /*
+     * The statement's identity, including whether the session asked for Spark or control execution, and the
+     * settings under which its plan was chosen
+     */
+    private static String planKey(GenericStatement statement,LanguageConnectionContext lcc){
+        return statement.getPlanKey(lcc.getDataSetProcessorType())+"\n"+lcc.getOptimizerFactory().getPlanSettings()
+                +" lockEscalationThreshold="+lcc.getLockEscalationThreshold();
+    }
+
+    /*
+     * Only query plans are saved: they are the ones which take long enough to compile to matter, and
+     * they depend on nothing but the dictionary objects we check before loading them.
+     */
+    private static boolean isSavable(GenericStorablePreparedStatement ps){
+        ResultDescription rd=ps.getResultDescription();
+        return rd!=null && "SELECT".equals(rd.getStatementType())
+                && ps.getConstantAction()==null
+                && ps.getTargetTable()==null
+                && ps.getSPSName()==null
+                && ps.getCompileTimeWarnings()==null
+                && !ps.referencesSessionSchema()
+                && !ps.hasXPlainTableOrProcedure();
+    }
+
+    /*
+     * A description of the state of a dictionary object which a plan depends on, which changes whenever
+     * the plan would have to be compiled again.
+     */
+    private static String fingerprint(Dependable dependable,DataDictionary dd,TransactionController tc) throws StandardException{
+        StringBuilder sb=new StringBuilder(dependable.getClassType());
+        if(dependable instanceof TableDescriptor){
+            TableDescriptor td=(TableDescriptor)dependable;
+            sb.append(':').append(td.getVersion());
+            for(ColumnDescriptor cd : td.getColumnDescriptorList()){
+                sb.append(':').append(cd.getColumnName()).append(' ').append(cd.getPosition()).append(' ').append(cd.getType());
+            }
+            for(ConglomerateDescriptor cd : td.getConglomerateDescriptorList()){
+                sb.append(':').append(cd.getConglomerateNumber());
+            }
+            ConglomerateDescriptor base=td.getBaseConglomerateDescriptor();
+            if(base!=null){
+                for(PartitionStatisticsDescriptor stats : dd.getPartitionStatistics(base.getConglomerateNumber(),tc)){
+                    sb.append(' ').append(stats.getPartitionId()).append('@').append(stats.getTimestamp());
+                }
+            }
+        }else if(dependable instanceof ConglomerateDescriptor){
+            sb.append(':').append(((ConglomerateDescriptor)dependable).getConglomerateNumber());
+        }
+        return sb.toString();
+    }
+
+    /*
+     * A stamp of the engine's build, so that plans generated by one build are not loaded by another.
+     */
+    private String getBuildStamp(LanguageConnectionContext lcc) throws StandardException{
+        String stamp=buildStamp;
+        if(stamp==null){
+            Class<?> resultSetFactory=lcc.getLanguageConnectionFactory().getExecutionFactory().getResultSetFactory().getClass();
+            stamp=buildStamp=codeStamp(GenericStatement.class)+";"+codeStamp(resultSetFactory);
+        }
+        return stamp;
+    }
+
+    private static String codeStamp(Class<?> c){
+        CodeSource source=c.getProtectionDomain().getCodeSource();
+        if(source==null || source.getLocation()==null)
+            return c.getName();
+        File location=new File(source.getLocation().getPath());
+        return location.getPath()+" "+location.length()+" "+location.lastModified();
+    }
+
+    private File file(String key){
+        try{
+            byte[] digest=MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name=new StringBuilder(digest.length*2+SUFFIX.length());
+            for(byte b : digest){
+                name.append(Character.forDigit((b>>4)&0xF,16)).append(Character.forDigit(b&0xF,16));
+            }
+            return new File(directory,name.append(SUFFIX).toString());
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException(e); //every JVM has SHA-1
+        }
+    }
+
+    /*
+     * Write through a temporary file, so that a plan is never read while it's only partly written.
+     */
+    private void write(File file,byte[] plan){
+        File temp=null;
+        try{
+            temp=File.createTempFile("plan",".tmp",directory);
+            try(OutputStream out=new FileOutputStream(temp)){
+                out.write(plan);
+            }
+            Files.move(temp.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        }catch(IOException|RuntimeException e){
+            LOG.warn("Unable to save a plan to "+file,e);
+            if(temp!=null)
+                discard(temp);
+        }
+    }
+
+    private static void discard(File file){
+        if(!file.delete() && file.exists())
+            LOG.warn("Unable to remove "+file);
+    }
+}
@@ -39,22 +39,24 @@ import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.iapi.store.access.conglomerate.Conglomerate;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.PersistentPlanCache;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.cache.Cache;
 import org.spark_project.guava.cache.CacheBuilder;
 import org.spark_project.guava.cache.RemovalListener;
 import org.spark_project.guava.cache.RemovalNotification;
 
-import javax.management.MXBean;
+import java.io.File;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
  * Cache Holder for making sense of data dictionary caching and concurrency.
  *
  */
-public class DataDictionaryCache {
+public class DataDictionaryCache implements StatementCacheManagement {
     private static Logger LOG = Logger.getLogger(DataDictionaryCache.class);
     private Cache<UUID,TableDescriptor> oidTdCache;
     private Cache<TableKey,TableDescriptor> nameTdCache;
@@ -65,12 +67,17 @@ public class DataDictionaryCache {
     private Cache<UUID, SPSDescriptor> storedPreparedStatementCache;
     private Cache<Long,Conglomerate> conglomerateCache;
     private Cache<GenericStatement,GenericStorablePreparedStatement> statementCache;
+    private Cache<GenericStatement,Boolean> parameterValueSensitiveCache;
+    private final AtomicLong normalizedStatementHits = new AtomicLong();
+    private final AtomicLong normalizedStatementMisses = new AtomicLong();
+    private final AtomicLong normalizedStatementFallbacks = new AtomicLong();
     private Cache<String,SchemaDescriptor> schemaCache;
     private Cache<String,Optional<RoleGrantDescriptor>> roleCache;
     private int tdCacheSize;
     private int stmtCacheSize;
     private int permissionsCacheSize;
     private DataDictionary dd;
+    private PersistentPlanCache persistentPlanCache;
 
 
     public DataDictionaryCache(Properties startParams,DataDictionary dd) throws StandardException {
@@ -90,6 +97,10 @@ public class DataDictionaryCache {
         permissionsCacheSize=PropertyUtil.intPropertyValue(Property.LANG_PERMISSIONS_CACHE_SIZE, value,
                 0, Integer.MAX_VALUE, Property.LANG_PERMISSIONS_CACHE_SIZE_DEFAULT);
 
+        value=PropertyUtil.getPropertyFromSet(startParams,Property.LANG_PLAN_CACHE_DIRECTORY);
+        if(value!=null)
+            persistentPlanCache=PersistentPlanCache.open(new File(value));
+
         RemovalListener<Object,Dependent> dependentInvalidator = new RemovalListener<Object, Dependent>() {
             @Override
             public void onRemoval(RemovalNotification<Object, Dependent> removalNotification) {
@@ -111,7 +122,8 @@ public class DataDictionaryCache {
         sequenceGeneratorCache=CacheBuilder.newBuilder().maximumSize(seqgenCacheSize).build();
         partitionStatisticsCache = CacheBuilder.newBuilder().maximumSize(8092).build();
         conglomerateCache = CacheBuilder.newBuilder().maximumSize(1024).build();
-        statementCache = CacheBuilder.newBuilder().maximumSize(1024).removalListener(dependentInvalidator).build();
+        statementCache = CacheBuilder.newBuilder().maximumSize(1024).removalListener(dependentInvalidator).recordStats().build();
+        parameterValueSensitiveCache = CacheBuilder.newBuilder().maximumSize(1024).build();
         schemaCache = CacheBuilder.newBuilder().maximumSize(1024).build();
         roleCache = CacheBuilder.newBuilder().maximumSize(100).build();
         permissionsCache=CacheBuilder.newBuilder().maximumSize(permissionsCacheSize).build();
@@ -336,6 +348,7 @@ public class DataDictionaryCache {
         storedPreparedStatementCache.invalidateAll();
         schemaCache.invalidateAll();
         statementCache.invalidateAll();
+        parameterValueSensitiveCache.invalidateAll();
         roleCache.invalidateAll();
     }
 
@@ -347,6 +360,7 @@ public class DataDictionaryCache {
         sequenceGeneratorCache.invalidateAll();
         permissionsCache.invalidateAll();
         statementCache.invalidateAll();
+        parameterValueSensitiveCache.invalidateAll();
         roleCache.invalidateAll();
     }
 
@@ -366,6 +380,16 @@ public class DataDictionaryCache {
         if (LOG.isDebugEnabled())
             LOG.debug("clearStatementCache ");
         statementCache.invalidateAll();
+        parameterValueSensitiveCache.invalidateAll();
+        if(persistentPlanCache!=null)
+            persistentPlanCache.clear();
+    }
+
+    /**
+     * @return the cache of compiled plans which outlives the server, or null if it isn't enabled
+     */
+    public PersistentPlanCache getPersistentPlanCache() {
+        return persistentPlanCache;
     }
 
     public void statementCacheAdd(GenericStatement gs, GenericStorablePreparedStatement gsp) throws StandardException {
@@ -385,6 +409,33 @@ public class DataDictionaryCache {
         return gsps;
     }
 
+    /**
+     * Remember that the plan of a normalized statement suited only the literals it was compiled for, so
+     * that later executions of the statement are compiled with their own literals instead. The statement
+     * is kept under the same key as in the statement cache.
+     */
+    public void parameterValueSensitiveStatementAdd(GenericStatement gs) throws StandardException {
+        if (LOG.isDebugEnabled())
+            LOG.debug("parameterValueSensitiveStatementAdd " + gs.toString());
+        parameterValueSensitiveCache.put(gs,Boolean.TRUE);
+    }
+
+    public boolean parameterValueSensitiveStatementFind(GenericStatement gs) throws StandardException {
+        return parameterValueSensitiveCache.getIfPresent(gs)!=null;
+    }
+
+    public void recordNormalizedStatementHit() {
+        normalizedStatementHits.incrementAndGet();
+    }
+
+    public void recordNormalizedStatementMiss() {
+        normalizedStatementMisses.incrementAndGet();
+    }
+
+    public void recordNormalizedStatementFallback() {
+        normalizedStatementFallbacks.incrementAndGet();
+    }
+
     public void roleCacheAdd(String roleName, Optional<RoleGrantDescriptor> optional) throws StandardException {
         if (!dd.canUseCache(null))
             return;
@@ -409,10 +460,39 @@ public class DataDictionaryCache {
 
 
 
-    @MXBean
-    @SuppressWarnings("UnusedDeclaration")
-    public interface DataDictionaryCacheIFace {
+    @Override
+    public long getStatementCacheSize() {
+        return statementCache.size();
+    }
+
+    @Override
+    public long getStatementCacheHitCount() {
+        return statementCache.stats().hitCount();
+    }
+
+    @Override
+    public long getStatementCacheMissCount() {
+        return statementCache.stats().missCount();
+    }
+
+    @Override
+    public long getNormalizedStatementHitCount() {
+        return normalizedStatementHits.get();
+    }
+
+    @Override
+    public long getNormalizedStatementMissCount() {
+        return normalizedStatementMisses.get();
+    }
+
+    @Override
+    public long getNormalizedStatementFallbackCount() {
+        return normalizedStatementFallbacks.get();
+    }
 
+    @Override
+    public long getParameterValueSensitiveStatementCount() {
+        return parameterValueSensitiveCache.size();
     }
 
 }
\ No newline at end of file
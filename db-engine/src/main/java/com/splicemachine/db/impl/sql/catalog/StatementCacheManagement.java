@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql.catalog;
+
+import javax.management.MXBean;
+
+/**
+ * Statistics for the cache of compiled statement plans held on this server.
+ */
+@MXBean
+public interface StatementCacheManagement{
+
+    /**
+     * @return the number of plans in the statement cache
+     */
+    long getStatementCacheSize();
+
+    /**
+     * @return the number of times a statement was found in the statement cache
+     */
+    long getStatementCacheHitCount();
+
+    /**
+     * @return the number of times a statement was not found in the statement cache
+     */
+    long getStatementCacheMissCount();
+
+    /**
+     * @return the number of times a statement whose literals were normalized reused a cached plan
+     */
+    long getNormalizedStatementHitCount();
+
+    /**
+     * @return the number of times a statement whose literals were normalized had to be compiled
+     */
+    long getNormalizedStatementMissCount();
+
+    /**
+     * @return the number of times a statement whose literals could be normalized was compiled with its
+     * literals instead, because its normalized plan depended on the literals or didn't fit them
+     */
+    long getNormalizedStatementFallbackCount();
+
+    /**
+     * @return the number of normalized statements whose plans were found to depend on their literals
+     */
+    long getParameterValueSensitiveStatementCount();
+}
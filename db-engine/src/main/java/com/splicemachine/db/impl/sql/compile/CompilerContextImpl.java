@@ -133,6 +133,7 @@ public class CompilerContextImpl extends ContextImpl
 		defaultSchemaStack = null;
         referencedSequences = null;
         dataSetProcessorType = DataSetProcessorType.DEFAULT_CONTROL;
+        parameterValueSensitive = false;
 	}
 
 	//
@@ -1061,6 +1062,7 @@ public class CompilerContextImpl extends ContextImpl
 	private HashMap requiredRolePrivileges;
     private HashMap referencedSequences;
     private DataSetProcessorType dataSetProcessorType = DataSetProcessorType.DEFAULT_CONTROL;
+    private boolean parameterValueSensitive;
 
     @Override
     public void setDataSetProcessorType(DataSetProcessorType type) {
@@ -1071,4 +1073,14 @@ public class CompilerContextImpl extends ContextImpl
     public DataSetProcessorType getDataSetProcessorType() {
         return dataSetProcessorType;
     }
+
+    @Override
+    public void setParameterValueSensitive(boolean parameterValueSensitive) {
+        this.parameterValueSensitive = parameterValueSensitive;
+    }
+
+    @Override
+    public boolean isParameterValueSensitive() {
+        return parameterValueSensitive;
+    }
 } // end of class CompilerContextImpl
@@ -525,7 +525,8 @@ public class FromBaseTable extends FromTable {
 
     @Override
     public void verifyProperties(DataDictionary dDictionary) throws StandardException{
-        if (tableDescriptor.getStoredAs()!=null) {
+        // Parquet files can be read on the control side, so small Parquet tables are left to the cost estimate
+        if (tableDescriptor.getStoredAs()!=null && !tableDescriptor.getStoredAs().equals("P")) {
             dataSetProcessorType = CompilerContext.DataSetProcessorType.FORCED_SPARK;
         }
         if(tableProperties==null){
@@ -619,7 +620,7 @@ public class FromBaseTable extends FromTable {
             else if (key.equals("pin")) {
                 try {
                     pin = Boolean.parseBoolean(StringUtil.SQLToUpperCase(value));
-                    dataSetProcessorType = CompilerContext.DataSetProcessorType.FORCED_SPARK;
+                    // pinned tables can also be read on the control side, so small ones are left to the cost estimate
                     tableProperties.setProperty("index","null");
                 } catch (Exception pinE) {
                     throw StandardException.newException(SQLState.LANG_INVALID_FORCED_SPARK,value); // TODO Fix Error message - JL
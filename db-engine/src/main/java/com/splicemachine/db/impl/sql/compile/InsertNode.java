@@ -85,6 +85,7 @@ public final class InsertNode extends DMLModStatementNode {
     public static final String INSERT_MODE = "insertMode";
     public static final String STATUS_DIRECTORY = "statusDirectory";
     public static final String BAD_RECORDS_ALLOWED = "badRecordsAllowed";
+    public static final String BULK_IMPORT_DIRECTORY = "bulkImportDirectory";
     public static final String INSERT = "INSERT";
 
 
@@ -99,6 +100,7 @@ public final class InsertNode extends DMLModStatementNode {
     private     boolean           hasJDBClimitClause; // true if using JDBC limit/offset escape syntax
     private     String              statusDirectory;
     private     int              badRecordsAllowed = 0;
+    private     String              bulkImportDirectory;
 
 
 	protected   RowLocation[] 		autoincRowLocation;
@@ -481,6 +483,19 @@ public final class InsertNode extends DMLModStatementNode {
 												false,
 											    true);  /* we always include
 														 * triggers in core language */
+
+			/*
+			** A bulk import loads store files straight into the table and its indexes, so nothing
+			** would check its rows against a parent table, or fire triggers for them.
+			*/
+			if (bulkImportDirectory != null) {
+				if (super.fkInfo != null)
+					throw StandardException.newException(SQLState.LANG_BULK_IMPORT_NOT_SUPPORTED,
+							targetTableName, "foreign keys");
+				if (relevantTriggers != null && relevantTriggers.size() > 0)
+					throw StandardException.newException(SQLState.LANG_BULK_IMPORT_NOT_SUPPORTED,
+							targetTableName, "triggers");
+			}
 	
 			/* Do we need to do a deferred mode insert */
 			/* 
@@ -710,6 +725,7 @@ public final class InsertNode extends DMLModStatementNode {
 		String insertModeString = targetProperties.getProperty(INSERT_MODE);
         String statusDirectoryString = targetProperties.getProperty(STATUS_DIRECTORY);
         String failBadRecordCountString = targetProperties.getProperty(BAD_RECORDS_ALLOWED);
+        String bulkImportDirectoryString = targetProperties.getProperty(BULK_IMPORT_DIRECTORY);
 
 		if (insertModeString != null) {
             String upperValue = StringUtil.SQLToUpperCase(insertModeString);
@@ -730,6 +746,11 @@ public final class InsertNode extends DMLModStatementNode {
             statusDirectory = statusDirectoryString;
         }
 
+        if (bulkImportDirectoryString != null) {
+            // the staging directory for store files, when they are loaded directly rather than written
+            bulkImportDirectory = bulkImportDirectoryString;
+        }
+
 
 
 
@@ -962,6 +983,7 @@ public final class InsertNode extends DMLModStatementNode {
             else
                 mb.push(statusDirectory);
             mb.push(badRecordsAllowed);
+            BaseJoinStrategy.pushNullableString(mb,bulkImportDirectory);
             mb.push((double) this.resultSet.getFinalCostEstimate().getEstimatedRowCount());
             mb.push(this.resultSet.getFinalCostEstimate().getEstimatedCost());
             mb.push(targetTableDescriptor.getVersion());
@@ -973,7 +995,7 @@ public final class InsertNode extends DMLModStatementNode {
 			BaseJoinStrategy.pushNullableString(mb,targetTableDescriptor.getLocation());
 			BaseJoinStrategy.pushNullableString(mb,targetTableDescriptor.getCompression());
 			mb.push(partitionReferenceItem);
-			mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getInsertResultSet", ClassName.ResultSet, 17);
+			mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getInsertResultSet", ClassName.ResultSet, 18);
 		}
 		else
 		{
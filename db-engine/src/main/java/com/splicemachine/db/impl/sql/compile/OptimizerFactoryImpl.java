@@ -211,5 +211,17 @@ public class OptimizerFactoryImpl
 	{
 		return maxMemoryPerTable;
 	}
+
+	/**
+	 * @see OptimizerFactory#getPlanSettings
+	 */
+	public String getPlanSettings()
+	{
+		return "ruleBased="+ruleBasedOptimization+
+				" noTimeout="+noTimeout+
+				" useStatistics="+useStatistics+
+				" maxMemoryPerTable="+maxMemoryPerTable+
+				" optimizeJoinOrder="+PropertyUtil.getSystemProperty(Optimizer.JOIN_ORDER_OPTIMIZATION);
+	}
 }
 
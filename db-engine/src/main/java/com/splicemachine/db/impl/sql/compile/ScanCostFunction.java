@@ -45,6 +45,8 @@ import java.util.*;
  *         Date: 5/15/15
  */
 public class ScanCostFunction{
+    // how many times more (or less) selective than average a parameter's default value may be before the plan depends on it
+    private static final double PARAMETER_VALUE_SKEW = 10d;
     private final Optimizable baseTable;
     private final CostEstimate scanCost;
     private final StoreCostController scc;
@@ -383,6 +385,26 @@ public class ScanCostFunction{
         return selectivity;
     }
 
+    /**
+     *
+     * The value compared with the column is the default value of a parameter, which the plan will be
+     * reused for whatever value the parameter has. When statistics show that this value matches far more
+     * (or far fewer) rows than an average value of the column does, mark the plan as only suiting the
+     * default values of its parameters, so that it isn't shared.
+     *
+     * @param colNum
+     * @param value
+     */
+    private void checkParameterValueSelectivity(int colNum,DataValueDescriptor value) throws StandardException{
+        long cardinality=scc.cardinality(colNum);
+        if(value==null || cardinality<=0 || !(baseTable instanceof QueryTreeNode))
+            return;
+        double averageSelectivity=(1d-scc.nullSelectivity(colNum))/cardinality;
+        double selectivity=scc.getSelectivity(colNum,value,true,value,true);
+        if(selectivity>averageSelectivity*PARAMETER_VALUE_SKEW || selectivity*PARAMETER_VALUE_SKEW<averageSelectivity)
+            ((QueryTreeNode)baseTable).getCompilerContext().setParameterValueSensitive(true);
+    }
+
     /**
      *
      * Method to combine range qualifiers a>12 and a< 15 -> range qualifier (12<a<15)
@@ -401,6 +423,8 @@ public class ScanCostFunction{
         List<SelectivityHolder> columnHolder = getSelectivityListForColumn(colNum);
         OP_SWITCH: switch(relationalOperator){
             case RelationalOperator.EQUALS_RELOP:
+                if(!p.compareWithKnownConstant(baseTable,false))
+                    checkParameterValueSelectivity(colNum,value);
                 columnHolder.add(new RangeSelectivity(scc,value,value,true,true,colNum,phase));
                 break;
             case RelationalOperator.NOT_EQUALS_RELOP:
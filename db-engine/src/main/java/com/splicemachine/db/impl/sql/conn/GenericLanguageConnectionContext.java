@@ -61,6 +61,8 @@ import com.splicemachine.db.iapi.util.IdUtil;
 import com.splicemachine.db.iapi.util.InterruptStatus;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.NormalizedStatement;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
 import com.splicemachine.db.impl.sql.compile.CompilerContextImpl;
 import com.splicemachine.db.impl.sql.execute.*;
 import java.util.*;
@@ -125,6 +127,7 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
 
     private StringBuffer sb;
     private CompilerContext.DataSetProcessorType type;
+    private int controlParallelism;
 
     private Database db;
 
@@ -239,6 +242,8 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     private boolean logStatementText;
     private boolean logQueryPlan;
     private HeaderPrintWriter istream;
+    // Whether or not to share plans among statements which differ only in their literals
+    private boolean normalizeLiterals;
 
     // this used to be computed in OptimizerFactoryContextImpl; i.e everytime a
     // connection was made. To keep the semantics same I'm putting it out here
@@ -329,6 +334,9 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         String logQueryPlanProperty=PropertyUtil.getServiceProperty(getTransactionCompile(),"derby.language.logQueryPlan");
         logQueryPlan=Boolean.valueOf(logQueryPlanProperty);
 
+        String normalizeLiteralsProperty=PropertyUtil.getServiceProperty(getTransactionCompile(),Property.LANG_NORMALIZE_LITERALS);
+        normalizeLiterals=Boolean.valueOf(normalizeLiteralsProperty);
+
         lockEscalationThreshold=Property.DEFAULT_LOCKS_ESCALATION_THRESHOLD;
         stmtValidators=new ArrayList<>();
         triggerTables=new ArrayList<>();
@@ -1090,6 +1098,43 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         return connFactory.getStatement(getDefaultSchema(),sqlText,true).prepare(this);
     }
 
+    @Override
+    public Activation getNormalizedActivation(SchemaDescriptor compilationSchema,
+                                              String sqlText,
+                                              boolean isForReadOnly,
+                                              boolean scrollable) throws StandardException{
+        if(!normalizeLiterals)
+            return null;
+        if(restoreMode){
+            throw StandardException.newException(SQLState.CONNECTION_RESET_ON_RESTORE_MODE);
+        }
+        NormalizedStatement normalized=NormalizedStatement.normalize(sqlText);
+        if(normalized==null)
+            return null;
+
+        DataDictionaryCache cache=getDataDictionary().getDataDictionaryCache();
+        GenericStatement statement=new GenericStatement(compilationSchema,normalized.getText(),isForReadOnly,normalized.getValues());
+        if(statement.wasParameterValueSensitive(this)){
+            cache.recordNormalizedStatementFallback();
+            return null;
+        }
+        // if the plan turns out to suit only this statement's own literals, prepare() keeps it out of the
+        // statement cache, and remembers not to share the plans of this statement any more
+        PreparedStatement ps=statement.prepare(this);
+        if(statement.isCompiled())
+            cache.recordNormalizedStatementMiss();
+        else
+            cache.recordNormalizedStatementHit();
+
+        Activation activation=ps.getActivation(this,scrollable);
+        if(!normalized.bind(ps.getParameterTypes(),activation.getParameterValueSet())){
+            activation.close();
+            cache.recordNormalizedStatementFallback();
+            return null;
+        }
+        return activation;
+    }
+
     /**
      * Remove the activation to those known about by this connection.
      */
@@ -1198,8 +1243,24 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
      * @throws StandardException thrown if lookup goes wrong.
      */
     public PreparedStatement lookupStatement(GenericStatement statement) throws StandardException{
+        return lookupStatement(statement,true);
+    }
+
+    /**
+     * See if a given statement has already been compiled for this user, and
+     * if so use its prepared statement.
+     *
+     * @param addIfMissing whether to add a new, not yet compiled, prepared statement
+     *                     to the cache if none was found
+     * @return the prepared statement for the given string, null
+     * if none was found and addIfMissing is false.
+     * @throws StandardException thrown if lookup goes wrong.
+     */
+    public PreparedStatement lookupStatement(GenericStatement statement,boolean addIfMissing) throws StandardException{
         GenericStorablePreparedStatement ps = getDataDictionary().getDataDictionaryCache().statementCacheFind(statement);
         if (ps==null) {
+            if (!addIfMissing)
+                return null;
             ps = new GenericStorablePreparedStatement(statement);
             getDataDictionary().getDataDictionaryCache().statementCacheAdd(statement,ps);
         }
@@ -3482,6 +3543,16 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         return this.type;
     }
 
+    @Override
+    public void setControlParallelism(int controlParallelism) {
+        this.controlParallelism = controlParallelism;
+    }
+
+    @Override
+    public int getControlParallelism() {
+        return controlParallelism;
+    }
+
     public void materialize() throws StandardException {}
 
     protected Map<String,TableDescriptor> withDescriptors;
@@ -103,7 +103,7 @@ public class WindowFunctionInfoList extends Vector<WindowFunctionInfo> implement
 	 *
 	 *	@return	the formatID of this class
 	 */
-	public	int	getTypeFormatId()	{ return StoredFormatIds.AGG_INFO_LIST_V01_ID; }
+	public	int	getTypeFormatId()	{ return StoredFormatIds.WINDOW_FUNCTION_INFO_LIST_V01_ID; }
 
 	///////////////////////////////////////////////////////////////
 	//
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NormalizedStatementTest{
+
+    @Test
+    public void testReplacesEqualityLiterals() throws Exception{
+        NormalizedStatement normalized=NormalizedStatement.normalize(
+                "select * from t where a = 5 and t.b='it''s' order by a");
+        Assert.assertNotNull(normalized);
+        Assert.assertEquals("select * from t where a = ? and t.b=? order by a",normalized.getText());
+        DataValueDescriptor[] values=normalized.getValues();
+        Assert.assertEquals(2,values.length);
+        Assert.assertEquals(5,values[0].getInt());
+        Assert.assertEquals("it's",values[1].getString());
+    }
+
+    @Test
+    public void testStatementsDifferingOnlyInLiteralsShareText() throws Exception{
+        NormalizedStatement first=NormalizedStatement.normalize("SELECT c FROM t WHERE a = 1 AND b IN (1, 2)");
+        NormalizedStatement second=NormalizedStatement.normalize("SELECT c FROM t WHERE a = 9 AND b IN (3, 4)");
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(second);
+        Assert.assertEquals("SELECT c FROM t WHERE a = ? AND b IN (?, ?)",first.getText());
+        Assert.assertEquals(first.getText(),second.getText());
+        Assert.assertEquals(4,second.getValues()[2].getInt());
+    }
+
+    @Test
+    public void testReplacesLiteralsInJoinConditionsAndSubqueries() throws Exception{
+        NormalizedStatement normalized=NormalizedStatement.normalize(
+                "select * from t join u on t.a = u.a and u.b = 7 where t.c in (select d from v where e = 'x')");
+        Assert.assertNotNull(normalized);
+        Assert.assertEquals("select * from t join u on t.a = u.a and u.b = ? where t.c in (select d from v where e = ?)",
+                normalized.getText());
+    }
+
+    @Test
+    public void testLargeIntegersBecomeBigints() throws Exception{
+        NormalizedStatement normalized=NormalizedStatement.normalize("select * from t where a = 12345678901");
+        Assert.assertNotNull(normalized);
+        Assert.assertEquals(12345678901L,normalized.getValues()[0].getLong());
+    }
+
+    @Test
+    public void testLeavesValueDependentLiteralsAlone() throws Exception{
+        //ranges, patterns, decimals, typed and negative literals, and literals inside larger expressions
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a > 5"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where b like 'x%'"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a = 1.5"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a = DATE '2016-01-01'"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a = -5"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a = 5 + b"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a in (1, b)"));
+    }
+
+    @Test
+    public void testLeavesLiteralsOutsideOfPredicatesAlone() throws Exception{
+        Assert.assertNull(NormalizedStatement.normalize("select case when a = 5 then 1 end from t"));
+        Assert.assertNull(NormalizedStatement.normalize("insert into t values (1, 'a')"));
+        NormalizedStatement normalized=NormalizedStatement.normalize("update t set a = 5 where b = 6");
+        Assert.assertNotNull(normalized);
+        Assert.assertEquals("update t set a = 5 where b = ?",normalized.getText());
+    }
+
+    @Test
+    public void testLeavesStatementsWhichMustBeCompiledAsWritten() throws Exception{
+        Assert.assertNull(NormalizedStatement.normalize("select * from t --splice-properties index=i\n where a = 5"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t /* hint */ where a = 5"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a = ? and b = 5"));
+        Assert.assertNull(NormalizedStatement.normalize("explain select * from t where a = 5"));
+        Assert.assertNull(NormalizedStatement.normalize("create table t (a int check (a = 5))"));
+        Assert.assertNull(NormalizedStatement.normalize("select * from t where a = 'unterminated"));
+    }
+}
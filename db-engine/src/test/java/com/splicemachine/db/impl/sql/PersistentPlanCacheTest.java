@@ -0,0 +1,264 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.catalog.Dependable;
+import com.splicemachine.db.catalog.UUID;
+import com.splicemachine.db.iapi.services.context.ContextManager;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.services.monitor.Monitor;
+import com.splicemachine.db.iapi.sql.ResultDescription;
+import com.splicemachine.db.iapi.sql.compile.CompilerContext;
+import com.splicemachine.db.iapi.sql.compile.OptimizerFactory;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.depend.Dependency;
+import com.splicemachine.db.iapi.sql.depend.DependencyManager;
+import com.splicemachine.db.iapi.sql.depend.Provider;
+import com.splicemachine.db.iapi.sql.dictionary.ColumnDescriptorList;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptorList;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.impl.services.uuid.BasicUUID;
+import com.splicemachine.db.impl.sql.catalog.DDdependableFinder;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PersistentPlanCacheTest{
+    private static final int PLAN=1568;
+
+    @Rule public final TemporaryFolder folder=new TemporaryFolder();
+
+    private final GenericStatement statement=mock(GenericStatement.class);
+    private final LanguageConnectionContext lcc=mock(LanguageConnectionContext.class);
+    private final DataDictionary dd=mock(DataDictionary.class);
+    private final DependencyManager dm=mock(DependencyManager.class);
+    private final OptimizerFactory optimizerFactory=mock(OptimizerFactory.class);
+    private final TableDescriptor table=mock(TableDescriptor.class);
+    private File directory;
+    private String tableVersion="2.0";
+    private String planSettings="ruleBased=false";
+    private CompilerContext.DataSetProcessorType dataSetProcessorType=CompilerContext.DataSetProcessorType.DEFAULT_CONTROL;
+
+    @BeforeClass
+    public static void startup(){
+        Monitor.setMonitor(Monitor.getMonitorLite());
+    }
+
+    @Before
+    public void setUp() throws Exception{
+        directory=folder.newFolder("plans");
+        when(statement.getPlanKey(any(CompilerContext.DataSetProcessorType.class))).thenAnswer(new Answer<String>(){
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable{
+                return "APP "+invocation.getArguments()[0]+" select * from t";
+            }
+        });
+        when(lcc.getDataDictionary()).thenReturn(dd);
+        when(lcc.getOptimizerFactory()).thenReturn(optimizerFactory);
+        when(optimizerFactory.getPlanSettings()).thenAnswer(new Answer<String>(){
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable{
+                return planSettings;
+            }
+        });
+        when(lcc.getDataSetProcessorType()).thenAnswer(new Answer<CompilerContext.DataSetProcessorType>(){
+            @Override
+            public CompilerContext.DataSetProcessorType answer(InvocationOnMock invocation) throws Throwable{
+                return dataSetProcessorType;
+            }
+        });
+        when(dd.getDependencyManager()).thenReturn(dm);
+        when(dd.getTableDescriptor(any(UUID.class))).thenReturn(table);
+        when(table.getClassType()).thenReturn(Dependable.TABLE);
+        when(table.isPersistent()).thenReturn(true);
+        when(table.getDependableFinder()).thenReturn(new DDdependableFinder(StoredFormatIds.TABLE_DESCRIPTOR_FINDER_V01_ID));
+        when(table.getObjectID()).thenReturn(new BasicUUID(7L,1L,0));
+        when(table.getVersion()).thenAnswer(new Answer<String>(){
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable{
+                return tableVersion;
+            }
+        });
+        when(table.getColumnDescriptorList()).thenReturn(new ColumnDescriptorList());
+        when(table.getConglomerateDescriptorList()).thenReturn(new ConglomerateDescriptorList());
+    }
+
+    @Test
+    public void testRestoresASavedPlan() throws Exception{
+        PersistentPlanCache cache=new PersistentPlanCache(directory,"build-1");
+        save(cache);
+
+        GenericStorablePreparedStatement restored=restorable();
+        Assert.assertTrue(cache.restore(statement,restored,lcc));
+        verify(restored).restorePlan(any(ObjectInput.class),anyList());
+        verify(dm).addDependency(any(GenericStorablePreparedStatement.class),any(Provider.class),any(ContextManager.class));
+    }
+
+    @Test
+    public void testDiscardsThePlanOnceATableItDependsOnChanges() throws Exception{
+        PersistentPlanCache cache=new PersistentPlanCache(directory,"build-1");
+        save(cache);
+
+        tableVersion="2.1"; //as after an ALTER TABLE
+        GenericStorablePreparedStatement restored=restorable();
+        Assert.assertFalse(cache.restore(statement,restored,lcc));
+        verify(restored,never()).restorePlan(any(ObjectInput.class),anyList());
+        Assert.assertEquals("The stale plan was not removed",0,planFiles().length);
+    }
+
+    @Test
+    public void testDiscardsThePlanOnceATableItDependsOnIsDropped() throws Exception{
+        PersistentPlanCache cache=new PersistentPlanCache(directory,"build-1");
+        save(cache);
+
+        when(dd.getTableDescriptor(any(UUID.class))).thenReturn(null);
+        Assert.assertFalse(cache.restore(statement,restorable(),lcc));
+        Assert.assertEquals("The stale plan was not removed",0,planFiles().length);
+    }
+
+    @Test
+    public void testDiscardsPlansOfAnotherBuild() throws Exception{
+        save(new PersistentPlanCache(directory,"build-1"));
+
+        PersistentPlanCache upgraded=new PersistentPlanCache(directory,"build-2");
+        GenericStorablePreparedStatement restored=restorable();
+        Assert.assertFalse(upgraded.restore(statement,restored,lcc));
+        verify(restored,never()).restorePlan(any(ObjectInput.class),anyList());
+        Assert.assertEquals("The plan of the old build was not removed",0,planFiles().length);
+    }
+
+    @Test
+    public void testKeepsPlansApartByOptimizerSettings() throws Exception{
+        PersistentPlanCache cache=new PersistentPlanCache(directory,"build-1");
+        save(cache);
+
+        planSettings="ruleBased=true";
+        Assert.assertFalse(cache.restore(statement,restorable(),lcc));
+        planSettings="ruleBased=false";
+        Assert.assertTrue(cache.restore(statement,restorable(),lcc));
+    }
+
+    @Test
+    public void testKeepsPlansApartByDataSetProcessorType() throws Exception{
+        PersistentPlanCache cache=new PersistentPlanCache(directory,"build-1");
+        save(cache);
+
+        dataSetProcessorType=CompilerContext.DataSetProcessorType.FORCED_SPARK; //as after set session property useSpark=true
+        Assert.assertFalse(cache.restore(statement,restorable(),lcc));
+        dataSetProcessorType=CompilerContext.DataSetProcessorType.DEFAULT_CONTROL;
+        Assert.assertTrue(cache.restore(statement,restorable(),lcc));
+    }
+
+    @Test
+    public void testDoesNotSaveStatementsOtherThanQueries() throws Exception{
+        PersistentPlanCache cache=new PersistentPlanCache(directory,"build-1");
+        GenericStorablePreparedStatement ps=compiled("INSERT");
+        cache.save(statement,ps,lcc);
+        cache.awaitWrites();
+        Assert.assertEquals(0,planFiles().length);
+    }
+
+    @Test
+    public void testCreatesADirectoryOnlyItsOwnerCanUse() throws Exception{
+        Assume.assumeTrue(directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        File created=new File(directory,"created");
+        Assert.assertNotNull(PersistentPlanCache.open(created));
+        Assert.assertEquals("rwx------",PosixFilePermissions.toString(Files.getPosixFilePermissions(created.toPath())));
+    }
+
+    @Test
+    public void testRefusesADirectoryOtherUsersCanWrite() throws Exception{
+        Assume.assumeTrue(directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Files.setPosixFilePermissions(directory.toPath(),PosixFilePermissions.fromString("rwxrwxrwx"));
+        Assert.assertNull(PersistentPlanCache.open(directory));
+        Files.setPosixFilePermissions(directory.toPath(),PosixFilePermissions.fromString("rwx------"));
+        Assert.assertNotNull(PersistentPlanCache.open(directory));
+    }
+
+    @Test
+    public void testRefusesAFile() throws Exception{
+        Assert.assertNull(PersistentPlanCache.open(folder.newFile("plans.txt")));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void save(PersistentPlanCache cache) throws Exception{
+        cache.save(statement,compiled("SELECT"),lcc);
+        cache.awaitWrites();
+        Assert.assertEquals("The plan was not written",1,planFiles().length);
+    }
+
+    private File[] planFiles(){
+        File[] files=directory.listFiles((dir,name) -> name.endsWith(".plan"));
+        Assert.assertNotNull(files);
+        return files;
+    }
+
+    private GenericStorablePreparedStatement compiled(String statementType) throws Exception{
+        GenericStorablePreparedStatement ps=mock(GenericStorablePreparedStatement.class);
+        ResultDescription rd=mock(ResultDescription.class);
+        when(rd.getStatementType()).thenReturn(statementType);
+        when(ps.getResultDescription()).thenReturn(rd);
+        when(ps.getObjectID()).thenReturn(new BasicUUID(1L,1L,0));
+        when(ps.getRequiredPermissionsList()).thenReturn(null);
+        Dependency dependency=mock(Dependency.class);
+        when(dependency.getDependent()).thenReturn(ps);
+        when(dependency.getProvider()).thenReturn(table);
+        when(dm.find(any(UUID.class))).thenReturn(Collections.singletonList(dependency));
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                ((ObjectOutput)invocation.getArguments()[0]).writeInt(PLAN);
+                return null;
+            }
+        }).when(ps).writeExternal(any(ObjectOutput.class));
+        return ps;
+    }
+
+    private GenericStorablePreparedStatement restorable() throws Exception{
+        GenericStorablePreparedStatement ps=mock(GenericStorablePreparedStatement.class);
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                Assert.assertEquals("Incorrect plan",PLAN,((ObjectInput)invocation.getArguments()[0]).readInt());
+                return null;
+            }
+        }).when(ps).restorePlan(any(ObjectInput.class),anyList());
+        return ps;
+    }
+}
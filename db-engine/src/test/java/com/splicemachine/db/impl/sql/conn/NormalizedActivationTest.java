@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql.conn;
+
+import com.splicemachine.db.iapi.services.loader.ClassFactory;
+import com.splicemachine.db.iapi.services.loader.GeneratedClass;
+import com.splicemachine.db.iapi.services.monitor.Monitor;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionFactory;
+import com.splicemachine.db.iapi.sql.depend.Dependency;
+import com.splicemachine.db.iapi.sql.depend.DependencyManager;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.TypeId;
+import com.splicemachine.db.impl.services.uuid.BasicUUID;
+import com.splicemachine.db.impl.sql.GenericStatement;
+import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests how a statement whose literals were normalized reuses, or declines to reuse, the cached plan of its
+ * normalized text.
+ */
+public class NormalizedActivationTest{
+    private static final String NORMALIZED_TEXT="select * from t where a = ?";
+
+    private final GenericLanguageConnectionContext lcc=mock(GenericLanguageConnectionContext.class,CALLS_REAL_METHODS);
+    private final DataDictionary dd=mock(DataDictionary.class);
+    private final GenericStorablePreparedStatement plan=mock(GenericStorablePreparedStatement.class);
+    private final Activation activation=mock(Activation.class);
+    private final ParameterValueSet pvs=mock(ParameterValueSet.class);
+    private final DataValueDescriptor parameter=mock(DataValueDescriptor.class);
+    private SchemaDescriptor schema;
+    private DataDictionaryCache cache;
+
+    @BeforeClass
+    public static void startup(){
+        Monitor.setMonitor(Monitor.getMonitorLite());
+    }
+
+    @Before
+    public void setUp() throws Exception{
+        setField("normalizeLiterals",true);
+        setField("prepareIsolationLevel",ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL);
+        doReturn(dd).when(lcc).getDataDictionary();
+        schema=new SchemaDescriptor(dd,"APP","SPLICE",new BasicUUID(4L,5L,6),false);
+
+        when(dd.canUseCache(null)).thenReturn(true);
+        cache=new DataDictionaryCache(new Properties(),dd);
+        when(dd.getDataDictionaryCache()).thenReturn(cache);
+
+        // a compiled plan for the normalized text, as an earlier statement left it in the statement cache
+        GeneratedClass activationClass=mock(GeneratedClass.class);
+        when(activationClass.getClassLoaderVersion()).thenReturn(1);
+        ClassFactory classFactory=mock(ClassFactory.class);
+        when(classFactory.getClassLoaderVersion()).thenReturn(1);
+        LanguageConnectionFactory connFactory=mock(LanguageConnectionFactory.class);
+        when(connFactory.getClassFactory()).thenReturn(classFactory);
+        doReturn(connFactory).when(lcc).getLanguageConnectionFactory();
+
+        BasicUUID planId=new BasicUUID(1L,2L,3);
+        Dependency dependency=mock(Dependency.class);
+        when(dependency.getDependent()).thenReturn(plan);
+        DependencyManager dm=mock(DependencyManager.class);
+        when(dm.find(planId)).thenReturn(Collections.singletonList(dependency));
+        when(dd.getDependencyManager()).thenReturn(dm);
+
+        when(plan.upToDate()).thenReturn(true);
+        when(plan.getActivationClass()).thenReturn(activationClass);
+        when(plan.getObjectID()).thenReturn(planId);
+        when(plan.getActivation(lcc,false)).thenReturn(activation);
+        when(plan.getParameterTypes()).thenReturn(new DataTypeDescriptor[]{
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(TypeId.INTEGER_ID.getJDBCTypeId())});
+        when(activation.getParameterValueSet()).thenReturn(pvs);
+        when(pvs.getParameterForSet(0)).thenReturn(parameter);
+        cache.statementCacheAdd(statement(true),plan);
+    }
+
+    @Test
+    public void testReusesCachedPlan() throws Exception{
+        Activation a=lcc.getNormalizedActivation(schema,"select * from t where a = 42",true,false);
+
+        Assert.assertSame("The cached plan was not reused",activation,a);
+        verify(parameter).setValue(new SQLInteger(42));
+        Assert.assertEquals(1,cache.getNormalizedStatementHitCount());
+        Assert.assertEquals(0,cache.getNormalizedStatementMissCount());
+        Assert.assertEquals(0,cache.getNormalizedStatementFallbackCount());
+    }
+
+    @Test
+    public void testFallsBackWhenPlanIsParameterValueSensitive() throws Exception{
+        cache.parameterValueSensitiveStatementAdd(statement(true));
+
+        Assert.assertNull("A parameter value sensitive plan was reused",
+                lcc.getNormalizedActivation(schema,"select * from t where a = 42",true,false));
+        verify(plan,never()).getActivation(lcc,false);
+        Assert.assertEquals(0,cache.getNormalizedStatementHitCount());
+        Assert.assertEquals(1,cache.getNormalizedStatementFallbackCount());
+    }
+
+    @Test
+    public void testParameterValueSensitivityIsKeyedLikeTheStatementCache() throws Exception{
+        // flagged when opened for update, which is cached apart from the read-only statement
+        cache.parameterValueSensitiveStatementAdd(statement(false));
+
+        Assert.assertSame("A plan was not reused because of another statement's flag",activation,
+                lcc.getNormalizedActivation(schema,"select * from t where a = 42",true,false));
+        Assert.assertEquals(1,cache.getNormalizedStatementHitCount());
+        Assert.assertEquals(0,cache.getNormalizedStatementFallbackCount());
+    }
+
+    @Test
+    public void testFallsBackWhenLiteralDoesNotBind() throws Exception{
+        // a string compared with an integer column is compiled as written
+        Assert.assertNull("A literal which doesn't fit its parameter was bound",
+                lcc.getNormalizedActivation(schema,"select * from t where a = 'x'",true,false));
+        verify(activation).close();
+        verify(parameter,never()).setValue(any(DataValueDescriptor.class));
+        Assert.assertEquals(1,cache.getNormalizedStatementHitCount());
+        Assert.assertEquals(1,cache.getNormalizedStatementFallbackCount());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private GenericStatement statement(boolean isForReadOnly){
+        return new GenericStatement(schema,NORMALIZED_TEXT,isForReadOnly);
+    }
+
+    private void setField(String name,Object value) throws Exception{
+        Field field=GenericLanguageConnectionContext.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(lcc,value);
+    }
+}
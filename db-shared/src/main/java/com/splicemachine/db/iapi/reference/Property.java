@@ -667,6 +667,26 @@ public interface Property {
 	String STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
 	int STATEMENT_CACHE_SIZE_DEFAULT = 100;
 
+	/**
+	 * Tells if the integer and string literals which statements executed through java.sql.Statement
+	 * compare with columns should be replaced by parameters, so that statements which differ only in
+	 * those literals share one plan in the statement cache. Default is false.  Database.  Static.
+	 * <p>
+	 * Externally visible.
+	 */
+	String LANG_NORMALIZE_LITERALS = "derby.language.normalizeLiterals";
+	boolean LANG_NORMALIZE_LITERALS_DEFAULT = false;
+
+	/**
+	 * The local directory in which the plans of queries are kept after they are compiled, so that a server
+	 * loads them rather than compiling them again after it restarts. The directory holds generated code
+	 * which the server loads, so it should be private to the server. Not set by default, which disables
+	 * the cache.  Database.  Static.
+	 * <p>
+	 * Externally visible.
+	 */
+	String LANG_PLAN_CACHE_DIRECTORY = "derby.language.planCacheDirectory";
+
 	/**
 	 * Tells if the system stored procedures should be updated during database boot up.
 	 * Default is false.  System property.  Loaded once (static initializer).
@@ -1081,6 +1101,18 @@ public interface Property {
 	 * client socket setKeepAlive value
 	 */
 	public final static String DRDA_PROP_KEEPALIVE = "derby.drda.keepAlive";
+
+	/**
+	 * db.drda.selectIdleSessions
+	 *
+	 *<BR>
+	 * If true, a session which is waiting for its client's next request
+	 * waits on a selector rather than holding a connection thread, so that
+	 * idle connections cost no thread and db.drda.maxThreads bounds only the
+	 * threads serving requests. Has no effect when SSL is enabled.
+	 * Default: false
+	 */
+	public final static String DRDA_PROP_SELECT_IDLE_SESSIONS = "derby.drda.selectIdleSessions";
 	
 
     /**
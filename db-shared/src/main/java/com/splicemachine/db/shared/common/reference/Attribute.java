@@ -273,6 +273,19 @@ public interface Attribute {
      */    
     String CLIENT_RETIEVE_MESSAGE_TEXT = "retrieveMessageText";
 
+    /**
+     * prefetchBlocks sets how many query blocks of a forward-only result set
+     * the client asks the server to send ahead of the one it needs.
+     * Client driver attribute.
+     */
+    String CLIENT_PREFETCH_BLOCKS = "prefetchBlocks";
+
+    /**
+     * prefetchBufferSize caps the bytes of query blocks the client asks
+     * for at once when prefetching. Client driver attribute.
+     */
+    String CLIENT_PREFETCH_BUFFER_SIZE = "prefetchBufferSize";
+
     /**
        The attribute that is used to set client SSL mode.
     */
@@ -1926,6 +1926,7 @@ public interface SQLState {
 
 	//general SPlice errors
 	String LANG_INVALID_DAY										   = "SE022";
+	String LANG_BULK_IMPORT_NOT_SUPPORTED						   = "SE023";
 	/*
      * Backup and restore
      */
@@ -102,6 +102,8 @@ public class DataSourceReferenceTest
         // Properties with default values
         BASE_CLIENT_DS.addProperty("loginTimeout", "1280", "0");
         BASE_CLIENT_DS.addProperty("portNumber", "1070", "1527");
+        BASE_CLIENT_DS.addProperty("prefetchBlocks", "8", "0");
+        BASE_CLIENT_DS.addProperty("prefetchBufferSize", "65536", "1048576");
         BASE_CLIENT_DS.addProperty("retrieveMessageText", "false", "true");
         BASE_CLIENT_DS.addProperty("securityMechanism", "1851", "4");
         BASE_CLIENT_DS.addProperty("serverName", "tmpHostName", "localhost");
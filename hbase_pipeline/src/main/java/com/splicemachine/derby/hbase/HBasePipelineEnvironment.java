@@ -35,6 +35,7 @@ import com.splicemachine.pipeline.api.PipelineMeter;
 import com.splicemachine.pipeline.api.WritePipelineFactory;
 import com.splicemachine.pipeline.client.RpcChannelFactory;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
+import com.splicemachine.pipeline.utils.LZ4PipelineCompressor;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.pipeline.utils.SimplePipelineCompressor;
 import com.splicemachine.si.api.data.ExceptionFactory;
@@ -43,6 +44,7 @@ import com.splicemachine.si.api.data.OperationStatusFactory;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.RollForward;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
 import com.splicemachine.si.api.txn.KeepAliveScheduler;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -97,8 +99,9 @@ public class HBasePipelineEnvironment implements PipelineEnvironment{
 
         KryoPool kryoPool=new KryoPool(pipelineConfiguration.getPipelineKryoPoolSize());
         kryoPool.setKryoRegistry(new PipelineKryoRegistry());
-        //TODO -sf- enable snappy compression here
-        this.compressor = new SimplePipelineCompressor(kryoPool,env.getSIDriver().getOperationFactory());
+        String codec = pipelineConfiguration.getPipelineCompressionCodec();
+        this.compressor = new LZ4PipelineCompressor(new SimplePipelineCompressor(kryoPool,env.getSIDriver().getOperationFactory(),
+                LZ4PipelineCompressor.isLegacyCodec(codec)),codec);
 
         RpcChannelFactory channelFactory = ChannelFactoryService.loadChannelFactory(this.pipelineConfiguration);
         this.writerFactory = new CoprocessorWriterFactory(compressor,partitionInfoCache(),pipelineExceptionFactory,channelFactory,
@@ -212,6 +215,11 @@ public class HBasePipelineEnvironment implements PipelineEnvironment{
         return delegate.snowflakeFactory();
     }
 
+    @Override
+    public ActiveTxnRegistry activeTxnRegistry(){
+        return delegate.activeTxnRegistry();
+    }
+
     private static class AvailablePipelineFactory implements WritePipelineFactory{
         /*
          * As it turns out, a Region cannot be considered to be "online" until it has been
@@ -40,12 +40,18 @@ public class PipelineKryoRegistry implements KryoPool.KryoRegistry{
             @Override
             public void write(Kryo kryo,Output output,BulkWritesResult object){
                 kryo.writeClassAndObject(output,object.getBulkWriteResults());
+                output.writeVarInt(object.getQueueDepth(),false);
+                output.writeVarInt(object.getPermitHeadroom(),false);
             }
 
             @Override
             public BulkWritesResult read(Kryo kryo,Input input,Class type){
                 Collection<BulkWriteResult> results=(Collection<BulkWriteResult>)kryo.readClassAndObject(input);
-                return new BulkWritesResult(results);
+                if(input.eof()) //written by a server which does not report its load
+                    return new BulkWritesResult(results);
+                int queueDepth=input.readVarInt(false);
+                int permitHeadroom=input.readVarInt(false);
+                return new BulkWritesResult(results,queueDepth,permitHeadroom);
             }
         },11);
 
@@ -178,6 +178,6 @@ public class SpliceIndexEndpoint extends SpliceMessage.SpliceIndexService implem
     public byte[] bulkWrites(byte[] bulkWriteBytes) throws IOException{
         assert bulkWriteBytes!=null;
         BulkWrites bulkWrites=compressor.decompress(bulkWriteBytes,BulkWrites.class);
-        return compressor.compress(bulkWrite(bulkWrites));
+        return compressor.compressReply(bulkWrite(bulkWrites),bulkWriteBytes);
     }
 }
\ No newline at end of file
@@ -261,7 +261,9 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                     SIDriver driver=SIDriver.driver();
                     SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
                             driver.getRollForward(),
-                            driver.getConfiguration().getActiveTransactionCacheSize());
+                            driver.getConfiguration().getActiveTransactionCacheSize(),
+                            driver.getTxnLowWatermark(),
+                            scanType==ScanType.COMPACT_DROP_DELETES);
                     scanner = new SICompactionScanner(state,scanner);
                 }
                 if (scanner == null) {
@@ -77,6 +77,7 @@ public class RegionServerLifecycleObserver extends BaseRegionServerObserver{
         //ensure that the SI environment is booted properly
         HBaseSIEnvironment env=HBaseSIEnvironment.loadEnvironment(new SystemClock(),ZkUtils.getRecoverableZooKeeper());
         SIDriver driver = env.getSIDriver();
+        driver.getTxnLowWatermark().setPublishesWatermark(true);
 
         //make sure the configuration is correct
         SConfiguration config=driver.getConfiguration();
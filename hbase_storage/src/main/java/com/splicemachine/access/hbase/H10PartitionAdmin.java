@@ -20,18 +20,26 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 import org.spark_project.guava.base.Function;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.spark_project.guava.collect.Collections2;
 
 import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.access.HConfiguration;
 import com.splicemachine.access.api.PartitionCreator;
+import com.splicemachine.access.api.StoreFileWriter;
 import com.splicemachine.access.api.TableDescriptor;
 import com.splicemachine.concurrent.Clock;
+import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.LazyPartitionServer;
 import com.splicemachine.storage.Partition;
@@ -110,6 +118,36 @@ public class H10PartitionAdmin implements PartitionAdmin{
         }
     }
 
+    /**
+     * Open a new HFile in the directory of the table's data family, as {@code LoadIncrementalHFiles} expects
+     * to find it.
+     */
+    @Override
+    public StoreFileWriter newStoreFile(String tableName,String directory) throws IOException{
+        Path familyDir=new Path(directory,Bytes.toString(SIConstants.DEFAULT_FAMILY_BYTES));
+        return new HStoreFileWriter(HConfiguration.unwrapDelegate(),new Path(familyDir,UUID.randomUUID().toString().replace("-","")));
+    }
+
+    /**
+     * Load HFiles into a table. Files which span more than one region (for example because the table
+     * has split since they were written) are split to fit before they are loaded.
+     */
+    @Override
+    public void bulkLoad(String tableName,String directory) throws IOException{
+        LoadIncrementalHFiles loader;
+        try{
+            loader=new LoadIncrementalHFiles(HConfiguration.unwrapDelegate());
+        }catch(Exception e){
+            throw new IOException(e);
+        }
+        TableName tableInfo=tableInfoFactory.getTableInfo(tableName);
+        Connection connection=admin.getConnection();
+        try(Table table=connection.getTable(tableInfo);
+            RegionLocator locator=connection.getRegionLocator(tableInfo)){
+            loader.doBulkLoad(new Path(directory),admin,table,locator);
+        }
+    }
+
     @Override
     public void close() throws IOException{
         admin.close();
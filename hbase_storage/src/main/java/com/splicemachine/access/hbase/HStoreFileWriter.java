@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.access.hbase;
+
+import com.splicemachine.access.api.StoreFileWriter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+
+/**
+ * Writes an HFile which can be handed to a region by {@code LoadIncrementalHFiles}.
+ */
+public class HStoreFileWriter implements StoreFileWriter{
+    private final HFile.Writer writer;
+    private long size;
+
+    public HStoreFileWriter(Configuration conf,Path path) throws IOException{
+        this.writer=HFile.getWriterFactory(conf,new CacheConfig(conf))
+                .withPath(path.getFileSystem(conf),path)
+                .withComparator(KeyValue.COMPARATOR)
+                .withFileContext(new HFileContextBuilder().build())
+                .create();
+    }
+
+    @Override
+    public void append(byte[] key,byte[] family,byte[] qualifier,long version,byte[] value) throws IOException{
+        KeyValue kv=new KeyValue(key,family,qualifier,version,value);
+        writer.append(kv);
+        size+=kv.getLength();
+    }
+
+    @Override
+    public long size(){
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException{
+        writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY,Bytes.toBytes(System.currentTimeMillis()));
+        writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY,Bytes.toBytes(false));
+        writer.close();
+    }
+}
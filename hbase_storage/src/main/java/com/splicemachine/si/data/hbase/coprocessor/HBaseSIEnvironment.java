@@ -36,6 +36,7 @@ import com.splicemachine.si.api.data.OperationStatusFactory;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.RollForward;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
 import com.splicemachine.si.api.txn.KeepAliveScheduler;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -46,11 +47,13 @@ import com.splicemachine.si.impl.HOperationFactory;
 import com.splicemachine.si.impl.QueuedKeepAliveScheduler;
 import com.splicemachine.si.impl.SimpleTxnOperationFactory;
 import com.splicemachine.si.impl.TxnNetworkLayerFactory;
+import com.splicemachine.si.impl.ZkActiveTxnRegistry;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.driver.SIEnvironment;
 import com.splicemachine.si.impl.readresolve.SynchronousReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.LocalActiveTxnRegistry;
 import com.splicemachine.storage.DataFilterFactory;
 import com.splicemachine.storage.HFilterFactory;
 import com.splicemachine.storage.HNIOFileSystem;
@@ -77,6 +80,7 @@ public class HBaseSIEnvironment implements SIEnvironment{
     private final Clock clock;
     private final DistributedFileSystem fileSystem;
     private final SnowflakeFactory snowflakeFactory;
+    private final ActiveTxnRegistry activeTxnRegistry;
     private SIDriver siDriver;
 
 
@@ -113,6 +117,7 @@ public class HBaseSIEnvironment implements SIEnvironment{
         this.txnOpFactory = new SimpleTxnOperationFactory(exceptionFactory(),opFactory);
         this.clock = clock;
         this.snowflakeFactory = new HSnowflakeFactory();
+        this.activeTxnRegistry = LocalActiveTxnRegistry.INSTANCE;
         this.fileSystem =new HNIOFileSystem(FileSystem.get((Configuration) config.getConfigSource().unwrapDelegate()), exceptionFactory());
         this.keepAlive = new QueuedKeepAliveScheduler(config.getTransactionKeepAliveInterval(),
                 config.getTransactionTimeout(),
@@ -140,7 +145,7 @@ public class HBaseSIEnvironment implements SIEnvironment{
         this.clock = clock;
         this.fileSystem =new HNIOFileSystem(FileSystem.get((Configuration) config.getConfigSource().unwrapDelegate()), exceptionFactory());
         this.snowflakeFactory = new HSnowflakeFactory();
-
+        this.activeTxnRegistry = new ZkActiveTxnRegistry(config);
 
         this.keepAlive = new QueuedKeepAliveScheduler(config.getTransactionKeepAliveInterval(),
                 config.getTransactionTimeout(),
@@ -245,4 +250,9 @@ public class HBaseSIEnvironment implements SIEnvironment{
     public SnowflakeFactory snowflakeFactory() {
         return snowflakeFactory;
     }
+
+    @Override
+    public ActiveTxnRegistry activeTxnRegistry(){
+        return activeTxnRegistry;
+    }
 }
@@ -102,7 +102,8 @@ public class SIObserver extends BaseRegionObserver{
                     driver.getReadResolver(regionPartition),
                     driver.getTxnSupplier(),
                     driver.getTransactor(),
-                    driver.getOperationFactory()
+                    driver.getOperationFactory(),
+                    driver.getActiveTxnCache()
                     );
             Tracer.traceRegion(region.getTableName(),rce.getRegion());
         }
@@ -169,7 +170,9 @@ public class SIObserver extends BaseRegionObserver{
             SIDriver driver=SIDriver.driver();
             SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
                     driver.getRollForward(),
-                    driver.getConfiguration().getActiveTransactionCacheSize());
+                    driver.getConfiguration().getActiveTransactionCacheSize(),
+                    driver.getTxnLowWatermark(),
+                    scanType==ScanType.COMPACT_DROP_DELETES);
             return new SICompactionScanner(state,scanner);
         }else{
             return super.preCompact(e,store,scanner,scanType,compactionRequest);
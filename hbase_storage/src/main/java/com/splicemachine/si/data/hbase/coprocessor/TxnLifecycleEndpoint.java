@@ -42,6 +42,7 @@ import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.region.RegionServerControl;
 import com.splicemachine.si.impl.region.RegionTxnStore;
 import com.splicemachine.si.impl.region.TransactionResolver;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.timestamp.api.TimestampSource;
 import com.splicemachine.utils.Source;
 import com.splicemachine.utils.SpliceLogUtils;
@@ -173,6 +174,24 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void getTransactions(RpcController controller,TxnMessage.MultiTxnRequest request,RpcCallback<TxnMessage.MultiTxnResponse> done){
+        try{
+            long[] txnIds=new long[request.getTxnIdsCount()];
+            for(int i=0;i<txnIds.length;i++){
+                txnIds[i]=request.getTxnIds(i);
+            }
+            TxnMessage.Txn[] transactions=lifecycleStore.getTransactions(txnIds);
+            TxnMessage.MultiTxnResponse.Builder response=TxnMessage.MultiTxnResponse.newBuilder();
+            for(TxnMessage.Txn transaction : transactions){
+                response.addTxns(transaction);
+            }
+            done.run(response.build());
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
+
     @Override
     public void getActiveTransactionIds(RpcController controller,TxnMessage.ActiveTxnRequest request,RpcCallback<TxnMessage.ActiveTxnIdResponse> done){
         long endTxnId=request.getEndTxnId();
@@ -214,17 +233,32 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
     }
 
     public long commit(long txnId) throws IOException{
-        return lifecycleStore.commitTransaction(txnId);
+        long commitTs=lifecycleStore.commitTransaction(txnId);
+        invalidateCachedTxn(txnId);
+        return commitTs;
     }
 
     public void rollback(long txnId) throws IOException{
         lifecycleStore.rollbackTransaction(txnId);
+        invalidateCachedTxn(txnId);
     }
 
     public boolean keepAlive(long txnId) throws IOException{
         return lifecycleStore.keepAlive(txnId);
     }
 
+    private void invalidateCachedTxn(long txnId){
+        /*
+         * Scans on this server may have cached the transaction as active, so make sure that
+         * they look it up again
+         */
+        SIDriver driver=SIDriver.driver();
+        if(driver==null) return;
+        SharedActiveTxnCache activeTxnCache=driver.getActiveTxnCache();
+        if(activeTxnCache!=null)
+            activeTxnCache.invalidate(txnId);
+    }
+
     @Override
     public void rollbackTransactionsAfter(RpcController controller, TxnMessage.TxnRequest request, RpcCallback<TxnMessage.VoidResponse> done) {
 
@@ -235,4 +269,24 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
             ResponseConverter.setControllerException(controller,ioe);
         }
     }
+
+    @Override
+    public void keepAliveTransactions(RpcController controller,TxnMessage.KeepAliveRequest request,RpcCallback<TxnMessage.KeepAliveResponse> done){
+        try{
+            long[] txnIds=new long[request.getTxnIdsCount()];
+            for(int i=0;i<txnIds.length;i++){
+                txnIds[i]=request.getTxnIds(i);
+            }
+            boolean[] timedOut=new boolean[txnIds.length];
+            boolean[] keepGoing=lifecycleStore.keepAlive(txnIds,timedOut);
+            TxnMessage.KeepAliveResponse.Builder response=TxnMessage.KeepAliveResponse.newBuilder();
+            for(int i=0;i<txnIds.length;i++){
+                response.addContinue(keepGoing[i]);
+                response.addTimedOut(timedOut[i]);
+            }
+            done.run(response.build());
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
 }
\ No newline at end of file
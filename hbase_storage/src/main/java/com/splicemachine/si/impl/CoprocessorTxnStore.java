@@ -15,6 +15,7 @@
 
 package com.splicemachine.si.impl;
 
+import com.carrotsearch.hppc.IntArrayList;
 import org.apache.hadoop.hbase.ipc.ServerRpcController;
 import org.spark_project.guava.collect.Iterators;
 import org.spark_project.guava.collect.Lists;
@@ -27,6 +28,7 @@ import com.splicemachine.encoding.Encoding;
 import com.splicemachine.encoding.MultiFieldDecoder;
 import com.splicemachine.encoding.MultiFieldEncoder;
 import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
@@ -144,6 +146,29 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public boolean[] keepAlive(long[] txnIds,boolean[] timedOut) throws IOException{
+        IntArrayList[] buckets=groupByBucket(txnIds);
+        boolean[] keepGoing=new boolean[txnIds.length];
+        try(TxnNetworkLayer table = tableFactory.accessTxnNetwork()){
+            for(IntArrayList bucket : buckets){
+                if(bucket==null) continue;
+                TxnMessage.KeepAliveRequest.Builder request=TxnMessage.KeepAliveRequest.newBuilder();
+                for(int i=0;i<bucket.size();i++){
+                    request.addTxnIds(txnIds[bucket.get(i)]);
+                }
+                byte[] rowKey=getTransactionRowKey(txnIds[bucket.get(0)]);
+                TxnMessage.KeepAliveResponse response=table.keepAlive(rowKey,request.build());
+                for(int i=0;i<bucket.size();i++){
+                    int pos=bucket.get(i);
+                    keepGoing[pos]=response.getContinue(i);
+                    timedOut[pos]=response.getTimedOut(i);
+                }
+            }
+        }
+        return keepGoing;
+    }
+
     @Override
     public void elevateTransaction(Txn txn,byte[] newDestinationTable) throws IOException{
         byte[] rowKey=getTransactionRowKey(txn.getTxnId());
@@ -242,6 +267,28 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        lookups.addAndGet(txnIds.length);
+        IntArrayList[] buckets=groupByBucket(txnIds);
+        TxnView[] txns=new TxnView[txnIds.length];
+        try(TxnNetworkLayer table = tableFactory.accessTxnNetwork()){
+            for(IntArrayList bucket : buckets){
+                if(bucket==null) continue;
+                TxnMessage.MultiTxnRequest.Builder request=TxnMessage.MultiTxnRequest.newBuilder();
+                for(int i=0;i<bucket.size();i++){
+                    request.addTxnIds(txnIds[bucket.get(i)]);
+                }
+                byte[] rowKey=getTransactionRowKey(txnIds[bucket.get(0)]);
+                TxnMessage.MultiTxnResponse response=table.getTxns(rowKey,request.build());
+                for(int i=0;i<bucket.size();i++){
+                    txns[bucket.get(i)]=decode(response.getTxns(i));
+                }
+            }
+        }
+        return txns;
+    }
+
     /*caching methods--since we don't have a cache, these are no-ops*/
     @Override
     public boolean transactionCached(long txnId){
@@ -403,6 +450,22 @@ public class CoprocessorTxnStore implements TxnStore {
         return TxnUtils.getRowKey(txnId);
     }
 
+    /*
+     * The first byte of the row key is the transaction's bucket, and each bucket is held by a single
+     * region, so requests for many transactions are sent once for each bucket. Returns the positions
+     * of the transactions in each bucket, or null for buckets with none.
+     */
+    private static IntArrayList[] groupByBucket(long[] txnIds){
+        IntArrayList[] buckets=new IntArrayList[SIConstants.TRANSACTION_TABLE_BUCKET_COUNT];
+        for(int i=0;i<txnIds.length;i++){
+            int bucket=getTransactionRowKey(txnIds[i])[0];
+            if(buckets[bucket]==null)
+                buckets[bucket]=new IntArrayList();
+            buckets[bucket].add(i);
+        }
+        return buckets;
+    }
+
     private void dealWithError(ServerRpcController controller) throws IOException{
         if(!controller.failed()) return; //nothing to worry about
         throw controller.getFailedOn();
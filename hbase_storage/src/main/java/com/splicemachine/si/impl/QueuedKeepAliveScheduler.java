@@ -24,21 +24,38 @@ import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Keeps transactions alive in groups.
+ * <p/>
+ * Each transaction is due for a keep alive at a random point within the keep alive interval. A periodic tick
+ * gathers every transaction which is due, and keeps them all alive with a single call to the transaction store,
+ * which sends one request for each transaction table region involved rather than one for each transaction.
+ *
  * @author Scott Fines
  *         Date: 6/25/14
  */
 public class QueuedKeepAliveScheduler implements KeepAliveScheduler{
     private static final Logger LOG=Logger.getLogger(QueuedKeepAliveScheduler.class);
+    /*
+     * The number of ticks in each keep alive interval. A transaction may be kept alive up to one tick
+     * later than it was due.
+     */
+    private static final int TICKS_PER_INTERVAL=4;
     private final long maxWaitIntervalMs;
     private final long maxKeepAliveIntervalMs;
     private final ScheduledExecutorService threadPool;
     private final com.splicemachine.concurrent.ThreadLocalRandom random;
+    private final ConcurrentMap<Long, KeepAlive> activeTxns=new ConcurrentHashMap<>();
 
     private final
     @ThreadSafe
@@ -56,14 +73,25 @@ public class QueuedKeepAliveScheduler implements KeepAliveScheduler{
         this.random=ThreadLocalRandom.current();
         this.txnStore=txnStore;
         this.maxKeepAliveIntervalMs=maxKeepAliveIntervalMs;
+        long tickIntervalMs=Math.max(1l,maxWaitIntervalMs/TICKS_PER_INTERVAL);
+        threadPool.scheduleWithFixedDelay(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    keepAliveDueTransactions();
+                }catch(RuntimeException re){
+                    //don't let an unexpected error stop all future keep alives
+                    LOG.error("Unexpected error while keeping transactions alive",re);
+                }
+            }
+        },tickIntervalMs,tickIntervalMs,TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void scheduleKeepAlive(Txn txn){
         if(shutdown) return;
 
-//				activeTxns.add(txn);
-        threadPool.schedule(new KeepAlive(txn),random.nextLong(maxWaitIntervalMs),TimeUnit.MILLISECONDS);
+        activeTxns.put(txn.getTxnId(),new KeepAlive(txn,random.nextLong(maxWaitIntervalMs)));
     }
 
     @Override
@@ -76,77 +104,110 @@ public class QueuedKeepAliveScheduler implements KeepAliveScheduler{
         threadPool.shutdownNow();
     }
 
-    private class KeepAlive implements Runnable{
-        private final Txn txn;
-        private long lastKeepAliveTime;
-
-        public KeepAlive(Txn txn){
-            this.txn=txn;
-            this.lastKeepAliveTime=System.currentTimeMillis();
-        }
-
-        @Override
-        public void run(){
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void keepAliveDueTransactions(){
+        long now=System.currentTimeMillis();
+        List<KeepAlive> due=new ArrayList<>();
+        Iterator<KeepAlive> iterator=activeTxns.values().iterator();
+        while(iterator.hasNext()){
+            KeepAlive keepAlive=iterator.next();
+            Txn txn=keepAlive.txn;
             if(txn.getEffectiveState()!=Txn.State.ACTIVE){
-                return; //nothing to do, we no longer need to keep anything alive
+                iterator.remove(); //nothing to do, we no longer need to keep anything alive
+                continue;
             }
-            long keepAliveTime=System.currentTimeMillis()-lastKeepAliveTime;
+            if(keepAlive.nextKeepAliveTime>now) continue;
 
+            long keepAliveTime=now-keepAlive.lastKeepAliveTime;
             if(keepAliveTime>2*maxKeepAliveIntervalMs){
                 SpliceLogUtils.warn(LOG,"It has been %d ms since the last time we tried to perform"+
-                        "a keep alive, which is longer than the maximum interval");
-                                /*
-								 * We are the only ones trying to keep this transaction alive. If we know
-								 * for a fact that we had to wait longer than the transaction timeout, then
-								 * we don't need to keep trying--just roll back the transaction and return.
-								 *
-								 * However, we want to leave some room for network slop here, so we err
-								 * on the side of caution, and only use this if we exceed twice the actual
-								 * keep alive window. That way, we probably never need this, but it's available
-								 * if we do.
-								 */
-                try{
-                    txn.rollback();
-                }catch(IOException e){
-                    LOG.info("Unable to roll back transaction "+txn.getTxnId()
-                            +" but nothing to be concerned with, since it has already timed out",e);
-                }
-                return;
+                        "a keep alive, which is longer than the maximum interval",keepAliveTime);
+                /*
+                 * We are the only ones trying to keep this transaction alive. If we know
+                 * for a fact that we had to wait longer than the transaction timeout, then
+                 * we don't need to keep trying--just roll back the transaction and return.
+                 *
+                 * However, we want to leave some room for network slop here, so we err
+                 * on the side of caution, and only use this if we exceed twice the actual
+                 * keep alive window. That way, we probably never need this, but it's available
+                 * if we do.
+                 */
+                iterator.remove();
+                rollback(txn);
+                continue;
             }
+            due.add(keepAlive);
+        }
+        if(due.isEmpty()) return;
 
-            try{
-                long time=System.currentTimeMillis();
-                boolean reschedule=txnStore.keepAlive(txn.getTxnId());
-                time=System.currentTimeMillis()-time; //measure our latency
-                if(reschedule){
+        long[] txnIds=new long[due.size()];
+        for(int i=0;i<txnIds.length;i++){
+            txnIds[i]=due.get(i).txn.getTxnId();
+        }
+        boolean[] timedOut=new boolean[txnIds.length];
+        try{
+            boolean[] reschedule=txnStore.keepAlive(txnIds,timedOut);
+            long time=System.currentTimeMillis();
+            for(int i=0;i<txnIds.length;i++){
+                KeepAlive keepAlive=due.get(i);
+                if(timedOut[i]){
+                    LOG.error("Transaction "+txnIds[i]+" has timed out");
+                    /*
+                     * We attempted to keep alive a transaction that has already timed out for a different
+                     * reason. Ensure that the transaction is rolled back
+                     */
+                    activeTxns.remove(txnIds[i]);
+                    rollback(keepAlive.txn);
+                }else if(reschedule[i]){
                     //use a random slop factor to load-balance our keep alive requests.
-                    threadPool.schedule(this,random.nextLong(maxWaitIntervalMs),TimeUnit.MILLISECONDS);
-                    lastKeepAliveTime=System.currentTimeMillis(); //include network latency in our wait period
-                }
-                if(time>0.1*maxKeepAliveIntervalMs)
-                    SpliceLogUtils.warn(LOG,"It took longer than 10% of the keep-alive interval to perform"+
-                            "keep alive for transaction %d. This may be a sign that load will begin interfering"+
-                            "with the transaction system",txn.getTxnId());
-            }catch(HTransactionTimeout tte){
-                LOG.error("Transaction "+txn.getTxnId()+" has timed out");
-									/*
-									 * We attempted to keep alive a transaction that has already timed out for a different
-									 * reason. Ensure that the transaction is rolled back
-									 */
+                    keepAlive.lastKeepAliveTime=time; //include network latency in our wait period
+                    keepAlive.nextKeepAliveTime=time+random.nextLong(maxWaitIntervalMs);
+                }else
+                    activeTxns.remove(txnIds[i]);
+            }
+            time-=now; //measure our latency
+            if(time>0.1*maxKeepAliveIntervalMs)
+                SpliceLogUtils.warn(LOG,"It took longer than 10%% of the keep-alive interval to perform"+
+                        "keep alive for %d transactions. This may be a sign that load will begin interfering"+
+                        "with the transaction system",txnIds.length);
+        }catch(IOException e){
+            /*
+             * This could be a real problem, but we don't have anything that we can really do about this,
+             * so we just log the error and hope it resolves itself.
+             */
+            LOG.error("Unable to keep "+txnIds.length+" transactions alive. Will try again in a bit",e);
+            for(KeepAlive keepAlive : due){
+                keepAlive.nextKeepAliveTime=now+random.nextLong(maxWaitIntervalMs);
+            }
+        }
+    }
+
+    private void rollback(final Txn txn){
+        //roll back off of the tick thread, so that it doesn't delay the keep alives of other transactions
+        threadPool.execute(new Runnable(){
+            @Override
+            public void run(){
                 try{
                     txn.rollback();
                 }catch(IOException e){
-                    LOG.info("Unable to roll back transaction "+
-                            txn.getTxnId()+" but nothing to be concerned with, since it has already timed out",e);
+                    LOG.info("Unable to roll back transaction "+txn.getTxnId()
+                            +" but nothing to be concerned with, since it has already timed out",e);
                 }
-            }catch(IOException e){
-								/*
-								 * This could be a real problem, but we don't have anything that we can really do about this,
-								 * so we just log the error and hope it resolves itself.
-								 */
-                LOG.error("Unable to keep transaction "+txn.getTxnId()+" alive. Will try again in a bit",e);
-                threadPool.schedule(this,random.nextLong(maxWaitIntervalMs),TimeUnit.MILLISECONDS);
             }
+        });
+    }
+
+    private static class KeepAlive{
+        private final Txn txn;
+        /*only accessed from the tick thread, once the keep alive has been published through the map*/
+        private long lastKeepAliveTime;
+        private long nextKeepAliveTime;
+
+        KeepAlive(Txn txn,long initialDelayMs){
+            this.txn=txn;
+            this.lastKeepAliveTime=System.currentTimeMillis();
+            this.nextKeepAliveTime=lastKeepAliveTime+initialDelayMs;
         }
     }
 }
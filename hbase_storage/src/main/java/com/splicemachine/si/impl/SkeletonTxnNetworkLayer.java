@@ -117,6 +117,26 @@ public abstract class SkeletonTxnNetworkLayer implements TxnNetworkLayer{
         return done.get();
     }
 
+    @Override
+    public TxnMessage.MultiTxnResponse getTxns(byte[] rowKey,TxnMessage.MultiTxnRequest request) throws IOException{
+        TxnMessage.TxnLifecycleService service=getLifecycleService(rowKey);
+        ServerRpcController controller=new ServerRpcController();
+        BlockingRpcCallback<TxnMessage.MultiTxnResponse> done=new BlockingRpcCallback<>();
+        service.getTransactions(controller,request,done);
+        dealWithError(controller);
+        return done.get();
+    }
+
+    @Override
+    public TxnMessage.KeepAliveResponse keepAlive(byte[] rowKey,TxnMessage.KeepAliveRequest request) throws IOException{
+        TxnMessage.TxnLifecycleService service=getLifecycleService(rowKey);
+        ServerRpcController controller=new ServerRpcController();
+        BlockingRpcCallback<TxnMessage.KeepAliveResponse> done=new BlockingRpcCallback<>();
+        service.keepAliveTransactions(controller,request,done);
+        dealWithError(controller);
+        return done.get();
+    }
+
     protected abstract TxnMessage.TxnLifecycleService getLifecycleService(byte[] rowKey) throws IOException;
 
     protected abstract <C> Map<byte[],C> coprocessorService(Class<TxnMessage.TxnLifecycleService> txnLifecycleServiceClass,
@@ -38,5 +38,9 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.Txn getTxn(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
+    TxnMessage.MultiTxnResponse getTxns(byte[] rowKey,TxnMessage.MultiTxnRequest request) throws IOException;
+
+    TxnMessage.KeepAliveResponse keepAlive(byte[] rowKey,TxnMessage.KeepAliveRequest request) throws IOException;
+
     void close() throws IOException;
 }
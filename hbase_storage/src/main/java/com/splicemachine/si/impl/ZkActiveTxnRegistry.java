@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.hbase.ZkUtils;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.zookeeper.RecoverableZooKeeper;
+import org.apache.log4j.Logger;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ActiveTxnRegistry which shares the oldest active transaction of each server through ZooKeeper.
+ * <p/>
+ * Each server owns an ephemeral node underneath {@link HConfiguration#OLDEST_ACTIVE_PATH}, so a server
+ * which dies stops holding back the cluster as soon as its session expires. The node is created
+ * with a value of 0, so that nothing can be discarded until the server has published for the first time.
+ * <p/>
+ * While a server's node is missing, the other servers cannot see its transactions. So the node is watched,
+ * and re-created with the last published value as soon as ZooKeeper tells us that it (or the session which
+ * owned it) is gone. The next publication after the node was lost reports the watermark as unknown, so that
+ * nothing is discarded on the strength of a watermark which may have been computed without us.
+ * <p/>
+ * The low watermark itself is kept in the persistent node {@link HConfiguration#LOW_WATERMARK_PATH}, which
+ * only ever moves forwards.
+ */
+public class ZkActiveTxnRegistry implements ActiveTxnRegistry,Watcher{
+    private static final Logger LOG=Logger.getLogger(ZkActiveTxnRegistry.class);
+
+    private final String parentPath;
+    private final String lowWatermarkPath;
+    private volatile String serverPath; //null while we don't have a node
+    private volatile long lastPublished=0L;
+    private final AtomicBoolean lost=new AtomicBoolean(false);
+
+    public ZkActiveTxnRegistry(SConfiguration config) throws IOException{
+        this.parentPath=config.getSpliceRootPath()+HConfiguration.OLDEST_ACTIVE_PATH;
+        this.lowWatermarkPath=config.getSpliceRootPath()+HConfiguration.LOW_WATERMARK_PATH;
+        try{
+            createParent(parentPath);
+            ensureRegistered();
+        }catch(KeeperException e){
+            throw new IOException(e);
+        }catch(InterruptedException e){
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    @Override
+    public long publishOldestActive(long oldestActive) throws IOException{
+        lastPublished=oldestActive;
+        byte[] data=Bytes.toBytes(oldestActive);
+        RecoverableZooKeeper rzk=ZkUtils.getRecoverableZooKeeper();
+        try{
+            String path=serverPath;
+            if(path==null)
+                ensureRegistered();
+            else{
+                try{
+                    rzk.setData(path,data,-1);
+                }catch(KeeperException.NoNodeException nne){
+                    //our session expired, so our node was removed along with it
+                    nodeLost(path);
+                    ensureRegistered();
+                }
+            }
+            if(lost.getAndSet(false)){
+                LOG.warn("Our entry under "+parentPath+" was lost, the transaction low watermark is unknown until the next refresh");
+                return -1L;
+            }
+
+            long oldest=oldestActive;
+            List<String> children=rzk.getChildren(parentPath,false);
+            for(String child : children){
+                byte[] childData;
+                try{
+                    childData=rzk.getData(parentPath+"/"+child,false,null);
+                }catch(KeeperException.NoNodeException nne){
+                    continue; //that server has gone away
+                }
+                if(childData==null || childData.length!=Bytes.SIZEOF_LONG){
+                    LOG.warn("Ignoring malformed entry "+child+" under "+parentPath);
+                    continue;
+                }
+                long ts=Bytes.toLong(childData);
+                if(ts<oldest)
+                    oldest=ts;
+            }
+            return oldest;
+        }catch(KeeperException e){
+            throw new IOException(e);
+        }catch(InterruptedException e){
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void publishLowWatermark(long lowWatermark) throws IOException{
+        RecoverableZooKeeper rzk=ZkUtils.getRecoverableZooKeeper();
+        byte[] data=Bytes.toBytes(lowWatermark);
+        try{
+            while(true){
+                Stat stat=new Stat();
+                byte[] current;
+                try{
+                    current=rzk.getData(lowWatermarkPath,false,stat);
+                }catch(KeeperException.NoNodeException nne){
+                    try{
+                        rzk.create(lowWatermarkPath,data,ZooDefs.Ids.OPEN_ACL_UNSAFE,CreateMode.PERSISTENT);
+                        return;
+                    }catch(KeeperException.NodeExistsException nee){
+                        continue; //another server created it first, so compare with theirs
+                    }
+                }
+                if(current!=null && current.length==Bytes.SIZEOF_LONG && Bytes.toLong(current)>=lowWatermark)
+                    return; //never move backwards
+                try{
+                    rzk.setData(lowWatermarkPath,data,stat.getVersion());
+                    return;
+                }catch(KeeperException.BadVersionException bve){
+                    //another server published at the same time, so compare with theirs
+                }
+            }
+        }catch(KeeperException e){
+            throw new IOException(e);
+        }catch(InterruptedException e){
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void process(WatchedEvent event){
+        String path=serverPath;
+        switch(event.getType()){
+            case None:
+                switch(event.getState()){
+                    case Expired:
+                        //the session which owned our node is gone, and the node with it
+                        nodeLost(path);
+                        break;
+                    case SyncConnected:
+                        break; //check that our node survived the disconnection
+                    default:
+                        return; //nothing we can do until we are connected again
+                }
+                break;
+            case NodeDeleted:
+                nodeLost(path);
+                break;
+            default:
+                break; //just re-arm the watch
+        }
+        try{
+            ensureRegistered();
+        }catch(Exception e){
+            LOG.warn("Unable to re-register under "+parentPath+", will try again on the next publication",e);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void createParent(String path) throws KeeperException, InterruptedException{
+        RecoverableZooKeeper rzk=ZkUtils.getRecoverableZooKeeper();
+        if(rzk.exists(path,false)!=null) return;
+        int parentEnd=path.lastIndexOf('/');
+        if(parentEnd>0)
+            createParent(path.substring(0,parentEnd));
+        try{
+            rzk.create(path,new byte[]{},ZooDefs.Ids.OPEN_ACL_UNSAFE,CreateMode.PERSISTENT);
+        }catch(KeeperException.NodeExistsException ignored){
+            //someone else created it first
+        }
+    }
+
+    private void nodeLost(String path){
+        if(path==null) return;
+        synchronized(this){
+            if(path.equals(serverPath)){
+                serverPath=null;
+                lost.set(true);
+            }
+        }
+    }
+
+    /**
+     * Make sure that we have a node, and that it is watched.
+     */
+    private synchronized void ensureRegistered() throws KeeperException, InterruptedException{
+        /*
+         * Always go back to ZkUtils, since it replaces its connection when the session expires
+         */
+        RecoverableZooKeeper rzk=ZkUtils.getRecoverableZooKeeper();
+        String path=serverPath;
+        if(path!=null){
+            if(rzk.exists(path,this)!=null) return;
+            nodeLost(path);
+        }
+        path=rzk.create(parentPath+"/server-",Bytes.toBytes(lastPublished),ZooDefs.Ids.OPEN_ACL_UNSAFE,CreateMode.EPHEMERAL_SEQUENTIAL);
+        if(rzk.exists(path,this)==null){
+            lost.set(true); //gone again already, try again next time
+            return;
+        }
+        serverPath=path;
+    }
+}
@@ -27,15 +27,19 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.RegionPartition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -119,8 +123,126 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    /**
+     * Resolves the batch with as few region writes as possible: each transaction is looked up once, and
+     * the resulting Puts and Deletes are applied with a single {@code batchMutate()} per group of rows,
+     * rather than one write per row.
+     * <p/>
+     * The size of each group is taken from {@code trafficControl}. If the region pushes back because its
+     * memstore is full, the remaining rows are left unresolved (they will be resolved again by a later read)
+     * rather than adding to the pressure on the region.
+     */
+    @Override
+    public int resolve(Partition region,ByteSlice[] rowKeys,long[] txnIds,int size,TxnSupplier supplier,
+                       RollForwardStatus status,boolean failOnError,TrafficControl trafficControl,boolean[] resolved){
+        assert region instanceof RegionPartition: "Not on a region!";
+        Arrays.fill(resolved,0,size,false);
+        Mutation[] mutations=new Mutation[size];
+        int[] rows=new int[size];
+        int numMutations=0;
+        TxnView transaction=null;
+        long commitTimestamp=-1L;
+        for(int i=0;i<size;i++){
+            long txnId=txnIds[i];
+            if(transaction==null || transaction.getTxnId()!=txnId){
+                //the rows are grouped by transaction, so we only need to look each one up once
+                try{
+                    transaction=supplier.getTransaction(txnId);
+                    commitTimestamp=resolvedCommitTimestamp(transaction);
+                }catch(IOException e){
+                    LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+                    if(failOnError)
+                        throw new RuntimeException(e);
+                    transaction=null;
+                    continue;
+                }
+            }
+            Mutation mutation;
+            if(commitTimestamp>0)
+                mutation=committedPut(rowKeys[i],txnId,commitTimestamp);
+            else if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK)
+                mutation=rolledbackDelete(rowKeys[i],txnId);
+            else
+                continue; //still active, so there's nothing to resolve yet
+            rows[numMutations]=i;
+            mutations[numMutations]=mutation;
+            numMutations++;
+        }
+
+        int numResolved=0;
+        int written=0;
+        try{
+            while(written<numMutations){
+                if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+                    break; //do nothing if we are closing or rollforward is disabled
+                int permits=trafficControl.tryAcquire(1,numMutations-written);
+                if(permits<=0){
+                    trafficControl.acquire(1);
+                    permits=1;
+                }
+                try{
+                    Mutation[] group=Arrays.copyOfRange(mutations,written,written+permits);
+                    OperationStatus[] statuses=((RegionPartition)region).unwrapDelegate().batchMutate(group);
+                    for(int i=0;i<statuses.length;i++){
+                        if(statuses[i].getOperationStatusCode()==HConstants.OperationStatusCode.SUCCESS){
+                            resolved[rows[written+i]]=true;
+                            numResolved++;
+                        }
+                    }
+                }catch(RegionTooBusyException | NotServingRegionException ignored){
+                    //the memstore is full (or the region is going away), so don't add to its load
+                    break;
+                }catch(IOException e){
+                    LOG.info("Exception encountered when attempting to resolve a batch of rows",e);
+                    if(failOnError)
+                        throw new RuntimeException(e);
+                    break;
+                }finally{
+                    trafficControl.release(permits);
+                }
+                written+=permits;
+            }
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+        }
+        for(int i=0;i<size;i++){
+            status.rowResolved();
+        }
+        return numResolved;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
+    private static long resolvedCommitTimestamp(TxnView transaction){
+        TxnView t=transaction;
+        while(t.getState()==Txn.State.COMMITTED){
+            t=t.getParentTxnView();
+        }
+        return t==Txn.ROOT_TRANSACTION? transaction.getEffectiveCommitTimestamp() : -1L;
+    }
+
+    private static Put committedPut(ByteSlice rowKey,long txnId,long commitTimestamp){
+        Put put=new Put(rowKey.getByteCopy());
+        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                Bytes.toBytes(commitTimestamp));
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private static Delete rolledbackDelete(ByteSlice rowKey,long txnId){
+        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.setDurability(Durability.SKIP_WAL);
+        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
+
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
         assert region instanceof RegionPartition: "Not on a region!";
         /*
@@ -131,13 +253,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey,txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
@@ -159,12 +275,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Delete delete=rolledbackDelete(rowKey,txnId);
         try{
             ((RegionPartition)region).unwrapDelegate().delete(delete);
         }catch(IOException ioe){
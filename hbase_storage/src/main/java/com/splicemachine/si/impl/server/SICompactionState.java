@@ -15,6 +15,7 @@
 
 package com.splicemachine.si.impl.server;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.splicemachine.hbase.CellUtils;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.readresolve.RollForward;
@@ -25,14 +26,20 @@ import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
 import com.splicemachine.si.impl.txn.CommittedTxn;
 import com.splicemachine.si.impl.txn.RolledBackTxn;
+import com.splicemachine.si.impl.txn.TxnLowWatermark;
 import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.index.BitIndex;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -42,6 +49,10 @@ import java.util.TreeSet;
  * guts for SICompactionScanner.
  * <p/>
  * It is handed key-values and can change them.
+ * <p/>
+ * When a transaction low watermark is known, versions which can no longer be seen by any transaction are
+ * also discarded: those hidden by a tombstone or anti-tombstone, and those whose every field has been
+ * overwritten by newer versions, so long as the hiding versions were committed before the watermark.
  */
 public class SICompactionState {
     private static final Logger LOG = Logger.getLogger(SICompactionState.class);
@@ -49,11 +60,41 @@ public class SICompactionState {
     private SortedSet<Cell> dataToReturn;
     private final RollForward rollForward;
     private ByteSlice rowSlice = new ByteSlice();
+    private final TxnLowWatermark lowWatermark;
+    private final long watermark;
+    private final boolean purgeDeleteMarkers;
+    private final EntryDecoder entryDecoder = new EntryDecoder();
+    /*
+     * What we know about the last row we purged, in case the scanner hands it to us across more than one call.
+     * Markers sort before data within a row, so the later calls only ever need what the earlier ones saw.
+     */
+    private Cell lastRow;
+    private long lastTombstone = -1l;
+    private long lastAntiTombstone = -1l;
+    private BitSet lastCovered;
 
     public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize) {
+        this(transactionStore,rollForward,activeTransactionCacheSize,null,false);
+    }
+
+    /**
+     * @param lowWatermark the watermark below which committed versions are visible to every transaction, or
+     *                     {@code null} if no versions should be discarded
+     * @param purgeDeleteMarkers whether this compaction includes every file of the store, so that a tombstone
+     *                           may be removed along with all of the versions that it hides
+     */
+    public SICompactionState(TxnSupplier transactionStore,
+                             RollForward rollForward,
+                             int activeTransactionCacheSize,
+                             TxnLowWatermark lowWatermark,
+                             boolean purgeDeleteMarkers) {
         this.rollForward = rollForward;
         this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
         this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
+        this.lowWatermark = lowWatermark;
+        //read once, so that the whole compaction works against the same watermark
+        this.watermark = lowWatermark==null?-1l:lowWatermark.getLowWatermark();
+        this.purgeDeleteMarkers = purgeDeleteMarkers;
     }
 
     /**
@@ -67,7 +108,10 @@ public class SICompactionState {
         for (Cell aRawList : rawList) {
             mutate(aRawList);
         }
-        results.addAll(dataToReturn);
+        if(watermark>0 && !dataToReturn.isEmpty())
+            purgeDeadVersions(results);
+        else
+            results.addAll(dataToReturn);
     }
 
     /**
@@ -104,6 +148,137 @@ public class SICompactionState {
         }
     }
 
+    private void purgeDeadVersions(List<Cell> results) throws IOException{
+        List<Cell> cells = new ArrayList<>(dataToReturn);
+        long[] purged = new long[3]; //data cells, delete markers, commit timestamps
+        int rowStart = 0;
+        for(int i=1;i<=cells.size();i++){
+            if(i==cells.size() || !CellUtil.matchingRow(cells.get(rowStart),cells.get(i))){
+                purgeDeadVersions(cells.subList(rowStart,i),results,purged);
+                rowStart = i;
+            }
+        }
+        if(purged[0]>0 || purged[1]>0 || purged[2]>0)
+            lowWatermark.recordPurged(purged[0],purged[1],purged[2]);
+    }
+
+    /**
+     * Discard the versions of a single row which no transaction can see any more.
+     */
+    private void purgeDeadVersions(List<Cell> row,List<Cell> results,long[] purged) throws IOException{
+        long tombstone = -1l;
+        long antiTombstone = -1l;
+        BitSet covered = null; //the fields written by newer settled versions which we are keeping
+        if(lastRow!=null && CellUtil.matchingRow(lastRow,row.get(0))){
+            tombstone = lastTombstone;
+            antiTombstone = lastAntiTombstone;
+            covered = lastCovered;
+        }
+        for(Cell cell : row){
+            CellType type = getKeyValueType(cell);
+            long ts = cell.getTimestamp();
+            if(type==CellType.TOMBSTONE && ts>tombstone && isSettled(ts))
+                tombstone = ts;
+            else if(type==CellType.ANTI_TOMBSTONE && ts>antiTombstone && isSettled(ts))
+                antiTombstone = ts;
+        }
+        long newestMarker = Math.max(tombstone,antiTombstone);
+
+        LongArrayList purgedVersions = new LongArrayList();
+        LongArrayList keptVersions = new LongArrayList();
+        List<Cell> kept = new ArrayList<>(row.size());
+        for(Cell cell : row){
+            CellType type = getKeyValueType(cell);
+            long ts = cell.getTimestamp();
+            boolean purge = false;
+            switch(type){
+                case USER_DATA:
+                    if(ts<=tombstone || ts<antiTombstone)
+                        purge = true;
+                    else if(isSettled(ts)){
+                        //versions are sorted newest first, so everything in covered is newer than this version
+                        BitIndex fields = fieldsOf(cell);
+                        if(fields!=null && covered!=null && isCovered(fields,covered))
+                            purge = true;
+                        else if(fields!=null){
+                            if(covered==null) covered = new BitSet();
+                            for(int f=fields.nextSetBit(0);f>=0;f=fields.nextSetBit(f+1)){
+                                covered.set(f);
+                            }
+                        }
+                    }
+                    if(purge) purged[0]++;
+                    break;
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                    /*
+                     * Older markers are redundant, since anything they hide is also hidden by the newest one. The
+                     * newest tombstone can go too once everything it hides has been removed, but since older
+                     * versions may live in files which are not part of this compaction, only when it has them all.
+                     */
+                    if(ts<newestMarker)
+                        purge = true;
+                    else if(type==CellType.TOMBSTONE && ts==tombstone && tombstone>antiTombstone && purgeDeleteMarkers)
+                        purge = true;
+                    if(purge) purged[1]++;
+                    break;
+                default:
+                    break;
+            }
+            if(purge){
+                purgedVersions.add(ts);
+            }else{
+                kept.add(cell);
+                if(type!=CellType.COMMIT_TIMESTAMP)
+                    keptVersions.add(ts);
+            }
+        }
+
+        for(Cell cell : kept){
+            if(getKeyValueType(cell)==CellType.COMMIT_TIMESTAMP){
+                long ts = cell.getTimestamp();
+                if(purgedVersions.contains(ts) && !keptVersions.contains(ts)){
+                    purged[2]++; //nothing left for this commit timestamp to describe
+                    continue;
+                }
+            }
+            results.add(cell);
+        }
+
+        lastRow = row.get(row.size()-1);
+        lastTombstone = tombstone;
+        lastAntiTombstone = antiTombstone;
+        lastCovered = covered;
+    }
+
+    /**
+     * @return true if the version was committed before the low watermark, and so is visible to every transaction
+     */
+    private boolean isSettled(long timestamp) throws IOException{
+        TxnView txn = transactionStore.getTransaction(timestamp);
+        if(txn.getEffectiveState()!=Txn.State.COMMITTED) return false;
+        long commitTs = txn.getEffectiveCommitTimestamp();
+        return commitTs>=0 && commitTs<watermark;
+    }
+
+    private BitIndex fieldsOf(Cell cell){
+        try{
+            entryDecoder.set(cell.getValueArray(),cell.getValueOffset(),cell.getValueLength());
+            return entryDecoder.getCurrentIndex();
+        }catch(RuntimeException e){
+            //we can't tell which fields it holds, so be safe and keep it
+            LOG.warn("Unable to decode the fields of a row version, it will not be discarded",e);
+            return null;
+        }
+    }
+
+    private static boolean isCovered(BitIndex fields,BitSet covered){
+        for(int f=fields.nextSetBit(0);f>=0;f=fields.nextSetBit(f+1)){
+            if(!covered.get(f)) return false;
+        }
+        return true;
+    }
+
     private void ensureTransactionCached(long timestamp,Cell element) {
         if(!transactionStore.transactionCached(timestamp)){
             if(isFailedCommitTimestamp(element)){
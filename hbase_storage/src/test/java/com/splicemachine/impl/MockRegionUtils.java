@@ -25,6 +25,7 @@ import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.mockito.invocation.InvocationOnMock;
@@ -153,6 +154,23 @@ public class MockRegionUtils{
         };
         doAnswer(deleteAnswer).when(fakeRegion).delete(any(Delete.class));
 
+        final HRegion region=fakeRegion;
+        when(fakeRegion.batchMutate(any(Mutation[].class))).thenAnswer(new Answer<OperationStatus[]>(){
+            @Override
+            public OperationStatus[] answer(InvocationOnMock invocationOnMock) throws Throwable{
+                Mutation[] mutations=(Mutation[])invocationOnMock.getArguments()[0];
+                OperationStatus[] statuses=new OperationStatus[mutations.length];
+                for(int i=0;i<mutations.length;i++){
+                    if(mutations[i] instanceof Put)
+                        region.put((Put)mutations[i]);
+                    else
+                        region.delete((Delete)mutations[i]);
+                    statuses[i]=new OperationStatus(HConstants.OperationStatusCode.SUCCESS);
+                }
+                return statuses;
+            }
+        });
+
         when(fakeRegion.getScanner(any(Scan.class))).thenAnswer(new Answer<RegionScanner>(){
 
             @Override
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnStore;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueuedKeepAliveSchedulerTest{
+    private static final int NUM_TXNS=100;
+
+    @Test(timeout=10000)
+    public void testKeepsDueTransactionsAliveTogether() throws Exception{
+        final List<long[]> batches=new CopyOnWriteArrayList<>();
+        final CountDownLatch kept=new CountDownLatch(NUM_TXNS);
+        TxnStore store=mock(TxnStore.class);
+        doAnswer(new Answer<boolean[]>(){
+            @Override
+            public boolean[] answer(InvocationOnMock invocation) throws Throwable{
+                long[] txnIds=(long[])invocation.getArguments()[0];
+                batches.add(txnIds.clone());
+                for(int i=0;i<txnIds.length;i++){
+                    kept.countDown();
+                }
+                return new boolean[txnIds.length]; //stop keeping them alive after the first time
+            }
+        }).when(store).keepAlive(any(long[].class),any(boolean[].class));
+
+        //a long interval, so that the transactions are all due by the first tick after the wait
+        QueuedKeepAliveScheduler scheduler=new QueuedKeepAliveScheduler(1000,60000,1,store);
+        try{
+            for(long txnId=1;txnId<=NUM_TXNS;txnId++){
+                scheduler.scheduleKeepAlive(activeTxn(txnId));
+            }
+            Assert.assertTrue("Not every transaction was kept alive",kept.await(5,TimeUnit.SECONDS));
+
+            long[] all=new long[0];
+            for(long[] batch : batches){
+                long[] merged=Arrays.copyOf(all,all.length+batch.length);
+                System.arraycopy(batch,0,merged,all.length,batch.length);
+                all=merged;
+            }
+            Arrays.sort(all);
+            Assert.assertEquals("Each transaction should be kept alive exactly once",NUM_TXNS,all.length);
+            for(int i=0;i<all.length;i++){
+                Assert.assertEquals(i+1,all[i]);
+            }
+            //the keep alive interval holds 4 ticks, and the first keep alive may fall in a 5th
+            Assert.assertTrue("Should have grouped the transactions, but made "+batches.size()+" calls",batches.size()<=5);
+        }finally{
+            scheduler.stop();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testRollsBackTimedOutTransactions() throws Exception{
+        TxnStore store=mock(TxnStore.class);
+        doAnswer(new Answer<boolean[]>(){
+            @Override
+            public boolean[] answer(InvocationOnMock invocation) throws Throwable{
+                long[] txnIds=(long[])invocation.getArguments()[0];
+                boolean[] timedOut=(boolean[])invocation.getArguments()[1];
+                boolean[] keepGoing=new boolean[txnIds.length];
+                for(int i=0;i<txnIds.length;i++){
+                    timedOut[i]=txnIds[i]==1;
+                    keepGoing[i]=!timedOut[i];
+                }
+                return keepGoing;
+            }
+        }).when(store).keepAlive(any(long[].class),any(boolean[].class));
+
+        QueuedKeepAliveScheduler scheduler=new QueuedKeepAliveScheduler(20,60000,1,store);
+        try{
+            Txn timedOut=activeTxn(1);
+            Txn alive=activeTxn(2);
+            scheduler.scheduleKeepAlive(timedOut);
+            scheduler.scheduleKeepAlive(alive);
+
+            verify(timedOut,timeout(5000)).rollback();
+            verify(alive,never()).rollback();
+        }finally{
+            scheduler.stop();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Txn activeTxn(long txnId){
+        Txn txn=mock(Txn.class);
+        when(txn.getTxnId()).thenReturn(txnId);
+        when(txn.getEffectiveState()).thenReturn(Txn.State.ACTIVE);
+        return txn;
+    }
+}
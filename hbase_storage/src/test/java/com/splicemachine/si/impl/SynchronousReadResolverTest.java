@@ -34,6 +34,7 @@ import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.HCell;
 import com.splicemachine.storage.RegionPartition;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.GreenLight;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.hadoop.hbase.Cell;
@@ -220,4 +221,55 @@ public class SynchronousReadResolverTest {
         Assert.assertEquals("Incorrect committed txnId", childTxn.getTxnId(), commitTs.getTimestamp());
         Assert.assertEquals("Incorrect commit timestamp!", childTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
     }
+
+    @Test
+    public void testResolvingABatchWorks() throws Exception {
+        HRegion region = MockRegionUtils.getMockRegion();
+        RegionPartition rp = new RegionPartition(region);
+
+        TestingTimestampSource timestampSource = new TestingTimestampSource();
+        TxnStore store = new TestingTxnStore(new IncrementingClock(),timestampSource,HExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        ClientTxnLifecycleManager tc = new ClientTxnLifecycleManager(timestampSource,HExceptionFactory.INSTANCE);
+        tc.setTxnStore(store);
+        tc.setKeepAliveScheduler(new ManualKeepAliveScheduler(store));
+
+        Txn committedTxn = tc.beginTransaction(Bytes.toBytes("1184"));
+        Txn rolledBackTxn = tc.beginTransaction(Bytes.toBytes("1184"));
+        Txn activeTxn = tc.beginTransaction(Bytes.toBytes("1184"));
+
+        byte[][] rowKeys = new byte[][]{Encoding.encode("a"),Encoding.encode("b"),Encoding.encode("c"),Encoding.encode("d")};
+        Txn[] writers = new Txn[]{committedTxn,committedTxn,rolledBackTxn,activeTxn};
+        for(int i=0;i<rowKeys.length;i++){
+            Put testPut = new Put(rowKeys[i]);
+            testPut.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                    SIConstants.PACKED_COLUMN_BYTES,
+                    writers[i].getTxnId(), Encoding.encode("hello"));
+            region.put(testPut);
+        }
+        committedTxn.commit();
+        rolledBackTxn.rollback();
+
+        ByteSlice[] keys = new ByteSlice[rowKeys.length];
+        long[] txnIds = new long[rowKeys.length];
+        for(int i=0;i<rowKeys.length;i++){
+            keys[i] = ByteSlice.wrap(rowKeys[i]);
+            txnIds[i] = writers[i].getTxnId();
+        }
+        boolean[] resolved = new boolean[rowKeys.length];
+        int numResolved = SynchronousReadResolver.INSTANCE.resolve(rp,keys,txnIds,keys.length,store,new RollForwardStatus(),true,GreenLight.INSTANCE,resolved);
+        Assert.assertEquals("Incorrect number of rows resolved!", 3, numResolved);
+        Assert.assertTrue("Committed row not resolved!", resolved[0] && resolved[1]);
+        Assert.assertTrue("Rolled back row not resolved!", resolved[2]);
+        Assert.assertFalse("Active row should not be resolved!", resolved[3]);
+
+        for(int i=0;i<2;i++){
+            Result result = region.get(new Get(rowKeys[i]));
+            Assert.assertEquals("Incorrect result size after read resolve!", 2, result.size());
+            Cell commitTs = result.getColumnLatestCell(SIConstants.DEFAULT_FAMILY_BYTES, SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES);
+            Assert.assertNotNull("No Commit TS column found!", commitTs);
+            Assert.assertEquals("Incorrect commit timestamp!", committedTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
+        }
+        Assert.assertEquals("Rolled back row not deleted!", 0, region.get(new Get(rowKeys[2])).size());
+        Assert.assertEquals("Active row should be untouched!", 1, region.get(new Get(rowKeys[3])).size());
+    }
 }
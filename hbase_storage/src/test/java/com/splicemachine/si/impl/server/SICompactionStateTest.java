@@ -0,0 +1,308 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import com.splicemachine.si.impl.txn.TxnLowWatermark;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests around the discarding of dead versions by the SICompactionState
+ */
+public class SICompactionStateTest{
+    private static final long WATERMARK=100L;
+    private static final byte[] ROW=Bytes.toBytes("row");
+    private static final byte[] OTHER_ROW=Bytes.toBytes("row2");
+
+    private MapTxnSupplier txns;
+    private TxnLowWatermark watermark;
+
+    @Before
+    public void setUp() throws Exception{
+        txns=new MapTxnSupplier();
+        watermark=mock(TxnLowWatermark.class);
+        when(watermark.getLowWatermark()).thenReturn(WATERMARK);
+    }
+
+    @Test
+    public void testTombstoneHidesOlderVersions() throws Exception{
+        txns.committed(10,11);
+        txns.committed(20,21);
+        txns.committed(30,31);
+        List<Cell> results=compact(false,data(ROW,10,0,1),tombstone(ROW,20),data(ROW,30,0));
+
+        assertVersions(results,CellType.USER_DATA,30);
+        assertVersions(results,CellType.TOMBSTONE,20);
+        assertVersions(results,CellType.COMMIT_TIMESTAMP,30,20);
+        verify(watermark).recordPurged(1,0,1);
+    }
+
+    @Test
+    public void testTombstoneRemovedOnlyWhenCompactingEveryFile() throws Exception{
+        txns.committed(10,11);
+        txns.committed(20,21);
+        List<Cell> results=compact(true,data(ROW,10,0,1),tombstone(ROW,20));
+
+        Assert.assertTrue("Everything should have been discarded, but got "+results,results.isEmpty());
+        verify(watermark).recordPurged(1,1,2);
+    }
+
+    @Test
+    public void testAntiTombstoneHidesOlderVersionsButKeepsItsOwn() throws Exception{
+        txns.committed(5,6);
+        txns.committed(10,11);
+        txns.committed(20,21);
+        List<Cell> results=compact(true,data(ROW,5,0,1),tombstone(ROW,10),antiTombstone(ROW,20),data(ROW,20,0,1));
+
+        assertVersions(results,CellType.USER_DATA,20);
+        assertVersions(results,CellType.TOMBSTONE);
+        assertVersions(results,CellType.ANTI_TOMBSTONE,20);
+        assertVersions(results,CellType.COMMIT_TIMESTAMP,20);
+        verify(watermark).recordPurged(1,1,2);
+    }
+
+    @Test
+    public void testKeepsVersionsCommittedAtOrAboveWatermark() throws Exception{
+        txns.committed(10,11);
+        txns.committed(90,WATERMARK); //committed at the watermark
+        List<Cell> results=compact(true,data(ROW,10,0,1),tombstone(ROW,90));
+        assertVersions(results,CellType.USER_DATA,10);
+        assertVersions(results,CellType.TOMBSTONE,90);
+
+        txns.committed(120,130);
+        txns.committed(40,41);
+        results=compact(true,data(OTHER_ROW,40,0,1),data(OTHER_ROW,120,0,1));
+        assertVersions(results,CellType.USER_DATA,120,40);
+
+        verify(watermark,never()).recordPurged(anyLong(),anyLong(),anyLong());
+    }
+
+    @Test
+    public void testKeepsVersionsHiddenByActiveTombstone() throws Exception{
+        txns.committed(10,11);
+        //50 is still active
+        List<Cell> results=compact(true,data(ROW,10,0,1),tombstone(ROW,50));
+
+        assertVersions(results,CellType.USER_DATA,10);
+        assertVersions(results,CellType.TOMBSTONE,50);
+        verify(watermark,never()).recordPurged(anyLong(),anyLong(),anyLong());
+    }
+
+    @Test
+    public void testRolledBackVersionsHideNothing() throws Exception{
+        txns.committed(5,6);
+        txns.committed(15,16);
+        txns.rolledBack(20);
+        txns.rolledBack(30);
+        List<Cell> results=compact(true,data(ROW,5,0),tombstone(ROW,20),data(ROW,15,1),data(ROW,30,0,1));
+
+        //the rolled back versions are removed anyway, but must not be taken to hide the others
+        assertVersions(results,CellType.TOMBSTONE);
+        assertVersions(results,CellType.USER_DATA,15,5);
+        verify(watermark,never()).recordPurged(anyLong(),anyLong(),anyLong());
+    }
+
+    @Test
+    public void testDiscardsVersionsWhoseFieldsAreAllOverwritten() throws Exception{
+        txns.committed(10,11);
+        txns.committed(20,21);
+        txns.committed(30,31);
+        List<Cell> results=compact(false,data(ROW,10,0,1,2),data(ROW,20,1),data(ROW,30,0,1));
+
+        //20 only wrote a field which 30 overwrote, but 10 holds a field which nothing newer wrote
+        assertVersions(results,CellType.USER_DATA,30,10);
+        assertVersions(results,CellType.COMMIT_TIMESTAMP,30,10);
+        verify(watermark).recordPurged(1,0,1);
+    }
+
+    @Test
+    public void testRowsAreIndependent() throws Exception{
+        txns.committed(10,11);
+        txns.committed(20,21);
+        List<Cell> results=compact(false,tombstone(ROW,20),data(OTHER_ROW,10,0));
+
+        assertVersions(results,CellType.TOMBSTONE,20);
+        assertVersions(results,CellType.USER_DATA,10);
+    }
+
+    @Test
+    public void testRowSplitAcrossCalls() throws Exception{
+        txns.committed(10,11);
+        txns.committed(20,21);
+        txns.committed(30,31);
+        SICompactionState state=state(true);
+        List<Cell> results=new ArrayList<>();
+
+        //the markers arrive in one call, and the data which they hide in the next
+        state.mutate(Arrays.asList(tombstone(ROW,20)),results);
+        Assert.assertTrue("The tombstone should have been discarded",results.isEmpty());
+        state.mutate(Arrays.asList(data(ROW,10,0,1)),results);
+        Assert.assertTrue("Data hidden by a discarded tombstone came back: "+results,results.isEmpty());
+
+        //and the fields which a newer version overwrote stay overwritten
+        state.mutate(Arrays.asList(data(OTHER_ROW,30,0,1)),results);
+        state.mutate(Arrays.asList(data(OTHER_ROW,10,0)),results);
+        assertVersions(results,CellType.USER_DATA,30);
+    }
+
+    @Test
+    public void testNothingDiscardedWithoutWatermark() throws Exception{
+        when(watermark.getLowWatermark()).thenReturn(-1L);
+        txns.committed(10,11);
+        txns.committed(20,21);
+        List<Cell> results=compact(true,data(ROW,10,0,1),tombstone(ROW,20));
+
+        assertVersions(results,CellType.USER_DATA,10);
+        assertVersions(results,CellType.TOMBSTONE,20);
+        verify(watermark,never()).recordPurged(anyLong(),anyLong(),anyLong());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private SICompactionState state(boolean purgeDeleteMarkers){
+        return new SICompactionState(txns,NoopRollForward.INSTANCE,1024,watermark,purgeDeleteMarkers);
+    }
+
+    private List<Cell> compact(boolean purgeDeleteMarkers,Cell... cells) throws IOException{
+        List<Cell> results=new ArrayList<>();
+        state(purgeDeleteMarkers).mutate(Arrays.asList(cells),results);
+        return results;
+    }
+
+    private static void assertVersions(List<Cell> results,CellType type,long... expected){
+        SICompactionState typer=new SICompactionState(null,NoopRollForward.INSTANCE,1);
+        List<Long> actual=new ArrayList<>();
+        for(Cell cell : results){
+            if(typer.getKeyValueType(cell)==type)
+                actual.add(cell.getTimestamp());
+        }
+        List<Long> wanted=new ArrayList<>();
+        for(long ts : expected){
+            wanted.add(ts);
+        }
+        Assert.assertEquals("Incorrect "+type+" versions",wanted,actual);
+    }
+
+    private static Cell data(byte[] row,long ts,int... fields) throws IOException{
+        BitSet setFields=new BitSet();
+        for(int field : fields){
+            setFields.set(field);
+        }
+        EntryEncoder encoder=EntryEncoder.create(new KryoPool(1),3,setFields,null,null,null);
+        try{
+            for(int field : fields){
+                encoder.getEntryEncoder().encodeNext(field);
+            }
+            return cell(row,SIConstants.PACKED_COLUMN_BYTES,ts,encoder.encode());
+        }finally{
+            encoder.close();
+        }
+    }
+
+    private static Cell tombstone(byte[] row,long ts){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,ts,SIConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    private static Cell antiTombstone(byte[] row,long ts){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,ts,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES);
+    }
+
+    private static Cell cell(byte[] row,byte[] qualifier,long ts,byte[] value){
+        return new KeyValue(row,SIConstants.DEFAULT_FAMILY_BYTES,qualifier,ts,KeyValue.Type.Put,value);
+    }
+
+    /**
+     * Transactions which are not known are still active.
+     */
+    private static class MapTxnSupplier implements TxnSupplier{
+        private final Map<Long,TxnView> txns=new HashMap<>();
+
+        void committed(long beginTs,long commitTs){
+            txns.put(beginTs,new CommittedTxn(beginTs,commitTs));
+        }
+
+        void rolledBack(long beginTs){
+            txns.put(beginTs,new RolledBackTxn(beginTs));
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return getTransaction(txnId,false);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            TxnView txn=txns.get(txnId);
+            if(txn==null)
+                txn=new ActiveWriteTxn(txnId,txnId,Txn.ROOT_TRANSACTION,false,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+            return txn;
+        }
+
+        @Override
+        public TxnView[] getTransactions(long[] txnIds) throws IOException{
+            TxnView[] views=new TxnView[txnIds.length];
+            for(int i=0;i<txnIds.length;i++){
+                views[i]=getTransaction(txnIds[i]);
+            }
+            return views;
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return txns.containsKey(txnId);
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+            txns.put(toCache.getTxnId(),toCache);
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return txns.get(txnId);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import com.splicemachine.si.api.data.OperationStatusFactory;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.RollForward;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
 import com.splicemachine.si.api.txn.KeepAliveScheduler;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -192,6 +193,11 @@ public class MPipelineEnv  implements PipelineEnvironment{
         return siEnv.snowflakeFactory();
     }
 
+    @Override
+    public ActiveTxnRegistry activeTxnRegistry(){
+        return siEnv.activeTxnRegistry();
+    }
+
     @Override
     public DistributedFileSystem fileSystem(String path) throws IOException, URISyntaxException {
         return siEnv.fileSystem(path);
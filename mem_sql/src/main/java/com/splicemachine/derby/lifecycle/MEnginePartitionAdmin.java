@@ -17,6 +17,7 @@ package com.splicemachine.derby.lifecycle;
 
 import com.splicemachine.access.api.PartitionAdmin;
 import com.splicemachine.access.api.PartitionCreator;
+import com.splicemachine.access.api.StoreFileWriter;
 import com.splicemachine.access.api.TableDescriptor;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.PartitionServer;
@@ -56,6 +57,16 @@ public class MEnginePartitionAdmin implements PartitionAdmin{
         admin.splitRegion(regionName, splitPoints);
     }
 
+    @Override
+    public StoreFileWriter newStoreFile(String tableName,String directory) throws IOException{
+        return admin.newStoreFile(tableName,directory);
+    }
+
+    @Override
+    public void bulkLoad(String tableName,String directory) throws IOException{
+        admin.bulkLoad(tableName,directory);
+    }
+
     @Override
     public void close() throws IOException{
         admin.close();
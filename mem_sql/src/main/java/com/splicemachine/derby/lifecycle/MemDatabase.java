@@ -24,6 +24,7 @@ import com.splicemachine.access.configuration.ConfigurationBuilder;
 import com.splicemachine.access.configuration.ConfigurationDefault;
 import com.splicemachine.access.configuration.ConfigurationSource;
 import com.splicemachine.access.configuration.HConfigurationDefaultsList;
+import com.splicemachine.access.configuration.SQLConfiguration;
 import com.splicemachine.access.util.ReflectingConfigurationSource;
 import com.splicemachine.concurrent.ConcurrentTicker;
 import com.splicemachine.concurrent.SystemClock;
@@ -101,6 +102,8 @@ public class MemDatabase{
             builder.ipcThreads = 100;
             builder.partitionserverPort = 16020;
             builder.storageFactoryHome = System.getProperty("user.dir");
+            // allow scan benchmarks to compare batch and row-at-a-time qualification
+            builder.vectorizedScanBatchSize = Integer.getInteger(SQLConfiguration.VECTORIZED_SCAN_BATCH_SIZE, builder.vectorizedScanBatchSize);
         }
     }
 }
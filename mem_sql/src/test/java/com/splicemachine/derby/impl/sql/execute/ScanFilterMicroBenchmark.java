@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Measures the throughput of filtered table scans against a running MemDatabase, for comparing batch
+ * qualification of scans against row-at-a-time qualification.
+ * <p/>
+ * Boot the database once with batches turned on, and once with them off, and compare the results:
+ * <pre>
+ *     mvn exec:java
+ *     mvn exec:java -Dsplice.execution.vectorizedScanBatchSize=0
+ * </pre>
+ * then run this class (with the splice_machine test jar on the classpath). The optional arguments are the
+ * number of rows to load, and the number of times to run each query.
+ */
+public class ScanFilterMicroBenchmark{
+    private static final String SCHEMA="SCAN_BENCHMARK";
+    private static final String TABLE=SCHEMA+".T";
+    private static final LocalDate FIRST_DATE=LocalDate.of(2015,6,1);
+
+    private static final String[] QUERIES=new String[]{
+            "select count(*) from "+TABLE,                                            //no qualifiers
+            "select * from "+TABLE+" where i < 1000",                                  //integer, 1% selective
+            "select * from "+TABLE+" where i >= 50000 and b < 75000",                  //integer and bigint, 25%
+            "select * from "+TABLE+" where d > 0.99",                                  //double, 1%
+            "select * from "+TABLE+" where dt = date('2016-01-01')",                   //date, ~0.3%
+            "select * from "+TABLE+" where v = 'value-42'",                            //varchar, 0.1%
+            "select * from "+TABLE+" where i < 1000 or d > 0.99"                       //OR: row-at-a-time only
+    };
+
+    public static void main(String...args) throws Exception{
+        int numRows=args.length>0?Integer.parseInt(args[0]):100000;
+        int iterations=args.length>1?Integer.parseInt(args[1]):10;
+
+        try(Connection conn=SpliceNetConnection.getConnection()){
+            load(conn,numRows);
+            for(String query : QUERIES){
+                run(conn,query,numRows,iterations);
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void load(Connection conn,int numRows) throws SQLException{
+        try(Statement s=conn.createStatement()){
+            try{
+                s.execute("drop table "+TABLE);
+            }catch(SQLException ignored){
+                //the table doesn't exist yet
+            }
+            try{
+                s.execute("create schema "+SCHEMA);
+            }catch(SQLException ignored){
+                //the schema already exists
+            }
+            s.execute("create table "+TABLE+" (i int, b bigint, d double, dt date, v varchar(20), pad varchar(100))");
+        }
+
+        Random random=new Random(0);
+        long start=System.nanoTime();
+        conn.setAutoCommit(false);
+        try(PreparedStatement ps=conn.prepareStatement("insert into "+TABLE+" values (?,?,?,?,?,?)")){
+            for(int i=0;i<numRows;i++){
+                ps.setInt(1,i);
+                ps.setLong(2,(long)numRows-i);
+                ps.setDouble(3,random.nextDouble());
+                ps.setDate(4,Date.valueOf(FIRST_DATE.plusDays(i%365)));
+                ps.setString(5,"value-"+(i%1000));
+                ps.setString(6,"padding-padding-padding-padding-padding-padding-"+i);
+                ps.addBatch();
+                if(i%1000==999)
+                    ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        System.out.printf("Loaded %d rows in %d ms%n",numRows,(System.nanoTime()-start)/1000000);
+    }
+
+    private static void run(Connection conn,String query,int numRows,int iterations) throws SQLException{
+        //warm up
+        long rows=execute(conn,query);
+
+        long totalNanos=0L;
+        long minNanos=Long.MAX_VALUE;
+        for(int i=0;i<iterations;i++){
+            long start=System.nanoTime();
+            rows=execute(conn,query);
+            long elapsed=System.nanoTime()-start;
+            totalNanos+=elapsed;
+            minNanos=Math.min(minNanos,elapsed);
+        }
+        double avgMillis=totalNanos/(iterations*1000000d);
+        System.out.printf("%-75s rows=%-7d avg=%.2f ms min=%.2f ms scanned rows/s=%.0f%n",
+                query,rows,avgMillis,minNanos/1000000d,numRows/(avgMillis/1000d));
+    }
+
+    private static long execute(Connection conn,String query) throws SQLException{
+        long rows=0L;
+        try(Statement s=conn.createStatement();ResultSet rs=s.executeQuery(query)){
+            while(rs.next()){
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
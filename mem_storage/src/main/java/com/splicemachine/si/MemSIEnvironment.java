@@ -32,6 +32,7 @@ import com.splicemachine.si.api.data.OperationStatusFactory;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.RollForward;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
 import com.splicemachine.si.api.txn.KeepAliveScheduler;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -40,6 +41,7 @@ import com.splicemachine.si.impl.data.MExceptionFactory;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.driver.SIEnvironment;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.si.impl.txn.LocalActiveTxnRegistry;
 import com.splicemachine.storage.*;
 import com.splicemachine.timestamp.api.TimestampSource;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -179,4 +181,9 @@ public class MemSIEnvironment implements SIEnvironment{
     public SnowflakeFactory snowflakeFactory() {
         return snowflakeFactory;
     }
+
+    @Override
+    public ActiveTxnRegistry activeTxnRegistry(){
+        return LocalActiveTxnRegistry.INSTANCE;
+    }
 }
@@ -113,6 +113,19 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public int resolve(Partition region,ByteSlice[] rowKeys,long[] txnIds,int size,TxnSupplier supplier,
+                       RollForwardStatus status,boolean failOnError,TrafficControl trafficControl,boolean[] resolved){
+        //there's no memstore to protect in memory, so just resolve one row at a time
+        int numResolved=0;
+        for(int i=0;i<size;i++){
+            resolved[i]=resolve(region,rowKeys[i],txnIds[i],supplier,status,failOnError,trafficControl);
+            if(resolved[i])
+                numResolved++;
+        }
+        return numResolved;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -83,6 +83,15 @@ public class MemTxnStore implements TxnStore{
         return getTransaction(txnId);
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
 
     @Override
     public boolean transactionCached(long txnId){
@@ -244,6 +253,19 @@ public class MemTxnStore implements TxnStore{
         }
     }
 
+    @Override
+    public boolean[] keepAlive(long[] txnIds,boolean[] timedOut) throws IOException{
+        boolean[] keepGoing=new boolean[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            try{
+                keepGoing[i]=keepAlive(txnIds[i]);
+            }catch(MTransactionTimeout mtt){
+                timedOut[i]=true;
+            }
+        }
+        return keepGoing;
+    }
+
     //		@Override
     public void timeout(long txnId) throws IOException{
         rollback(txnId);
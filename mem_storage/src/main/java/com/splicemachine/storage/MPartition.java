@@ -163,6 +163,22 @@ public class MPartition implements Partition{
         put((MPut)put);
     }
 
+    /**
+     * Add cells from store files directly to the memstore, bypassing the row locks taken by ordinary writes.
+     * Bulk loaded cells are written by a transaction which has not yet committed, so transactional readers
+     * will not see any of them until all of them are present.
+     */
+    public void bulkLoad(List<DataCell> cells){
+        long seq=sequenceGen.incrementAndGet();
+        for(DataCell dc : cells){
+            if(memstore.contains(dc)){
+                memstore.remove(dc);
+            }
+            ((MCell)dc).sequence(seq);
+            memstore.add(dc);
+        }
+    }
+
     @Override
     public boolean checkAndPut(byte[] key,byte[] family,byte[] qualifier,byte[] expectedValue,DataPut put) throws IOException{
         Lock lock = getRowLock(key,0,key.length);
@@ -22,10 +22,16 @@ import com.splicemachine.concurrent.Clock;
 import com.splicemachine.primitives.Bytes;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -119,6 +125,26 @@ public class MPartitionFactory implements PartitionFactory<Object>{
             throw new UnsupportedOperationException("Cannot split partitions in an in-memory storage engine!");
         }
 
+        @Override
+        public StoreFileWriter newStoreFile(String tableName,String directory) throws IOException{
+            Path dir=Paths.get(directory);
+            Files.createDirectories(dir);
+            return new MStoreFileWriter(dir.resolve(UUID.randomUUID().toString()));
+        }
+
+        @Override
+        public void bulkLoad(String tableName,String directory) throws IOException{
+            Partition partition=getTable(tableName);
+            assert partition instanceof MPartition:"Incorrect partition type";
+            List<DataCell> cells=new ArrayList<>();
+            try(DirectoryStream<Path> files=Files.newDirectoryStream(Paths.get(directory))){
+                for(Path file : files){
+                    cells.addAll(MStoreFileWriter.readCells(file));
+                }
+            }
+            ((MPartition)partition).bulkLoad(cells);
+        }
+
         @Override
         public void close() throws IOException{
         } //no-op
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.access.api.StoreFileWriter;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.constants.SIConstants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A store file for the in-memory storage engine: a plain local file of length-prefixed cells, which
+ * {@link MPartition#bulkLoad(List)} reads back into the memstore.
+ *
+ * @see MPartitionFactory
+ */
+public class MStoreFileWriter implements StoreFileWriter{
+    private final DataOutputStream out;
+    private long size;
+
+    public MStoreFileWriter(Path file) throws IOException{
+        this.out=new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+    }
+
+    @Override
+    public void append(byte[] key,byte[] family,byte[] qualifier,long version,byte[] value) throws IOException{
+        writeBytes(key);
+        writeBytes(family);
+        writeBytes(qualifier);
+        out.writeLong(version);
+        writeBytes(value);
+        size+=key.length+family.length+qualifier.length+value.length+8;
+    }
+
+    @Override
+    public long size(){
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException{
+        out.close();
+    }
+
+    public static List<DataCell> readCells(Path file) throws IOException{
+        List<DataCell> cells=new ArrayList<>();
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            while(true){
+                byte[] key;
+                try{
+                    key=readBytes(in);
+                }catch(EOFException eof){
+                    return cells;
+                }
+                byte[] family=readBytes(in);
+                byte[] qualifier=readBytes(in);
+                long version=in.readLong();
+                byte[] value=readBytes(in);
+                cells.add(new MCell(key,family,qualifier,version,value,cellType(qualifier)));
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void writeBytes(byte[] bytes) throws IOException{
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException{
+        byte[] bytes=new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static CellType cellType(byte[] qualifier){
+        if(Bytes.equals(qualifier,SIConstants.PACKED_COLUMN_BYTES))
+            return CellType.USER_DATA;
+        else if(Bytes.equals(qualifier,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES))
+            return CellType.COMMIT_TIMESTAMP;
+        else if(Bytes.equals(qualifier,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES))
+            return CellType.TOMBSTONE;
+        else if(Bytes.equals(qualifier,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES))
+            return CellType.FOREIGN_KEY_COUNTER;
+        else return CellType.OTHER;
+    }
+}
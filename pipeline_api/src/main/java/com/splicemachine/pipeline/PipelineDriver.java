@@ -23,8 +23,14 @@ import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.concurrent.Clock;
@@ -94,7 +100,7 @@ public class PipelineDriver{
         int maxDependentWrites = config.getMaxDependentWrites();
 
         this.writeControl= new SynchronousWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites);
-        this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
+        this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter,createRegionWriteExecutor(config));
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
         try{
@@ -144,6 +150,24 @@ public class PipelineDriver{
         writePipelineFactory.deregisterPipeline(partitionName);
     }
 
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ExecutorService createRegionWriteExecutor(SConfiguration config){
+        int regionWriteThreads = config.getRegionWriteThreads();
+        if(regionWriteThreads<=0) return null;
+        /*
+         * The thread which received the request always does its share of the work, so we never queue: if there
+         * is no idle thread (and we are at the maximum), the task is discarded and the caller does it instead.
+         */
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(regionWriteThreads,regionWriteThreads,
+                config.getThreadKeepaliveTime(),TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("regionWriter-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @MXBean
     @SuppressWarnings("UnusedDeclaration")
     public interface ActiveWriteHandlersIface{
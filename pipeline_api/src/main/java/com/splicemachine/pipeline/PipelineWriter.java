@@ -22,6 +22,7 @@ import com.splicemachine.pipeline.api.WritePipelineFactory;
 import com.splicemachine.pipeline.client.*;
 import com.splicemachine.pipeline.exception.IndexNotSetUpException;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
+import com.splicemachine.pipeline.traffic.WriteStatus;
 import com.splicemachine.pipeline.writehandler.SharedCallBufferFactory;
 import com.splicemachine.utils.Pair;
 import org.apache.log4j.Logger;
@@ -30,6 +31,10 @@ import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -46,15 +51,30 @@ public class PipelineWriter{
     private final PipelineExceptionFactory exceptionFactory;
     private final WritePipelineFactory writePipelineFactory;
     private final PipelineMeter pipelineMeter;
+    private final Executor regionWriteExecutor;
 
     public PipelineWriter(PipelineExceptionFactory pipelineExceptionFactory,
                           WritePipelineFactory writePipelineFactory,
                           SpliceWriteControl writeControl,
                           PipelineMeter pipelineMeter){
+        this(pipelineExceptionFactory,writePipelineFactory,writeControl,pipelineMeter,null);
+    }
+
+    /**
+     * @param regionWriteExecutor the executor used to help apply the regions of a single request in parallel, or
+     *                            {@code null} to apply them one at a time. The thread which receives the request
+     *                            always takes part, so the executor may reject (or delay) tasks when it is busy.
+     */
+    public PipelineWriter(PipelineExceptionFactory pipelineExceptionFactory,
+                          WritePipelineFactory writePipelineFactory,
+                          SpliceWriteControl writeControl,
+                          PipelineMeter pipelineMeter,
+                          Executor regionWriteExecutor){
         this.writeControl = writeControl;
         this.exceptionFactory = pipelineExceptionFactory;
         this.writePipelineFactory = writePipelineFactory;
         this.pipelineMeter = pipelineMeter;
+        this.regionWriteExecutor = regionWriteExecutor;
     }
 
 
@@ -110,10 +130,18 @@ public class PipelineWriter{
                 LOG.trace("Rejecting "+numBulkWrites+" rows in "+ bws.size()+"writes because the pipeline is too busy");
             rejectAll(bws,result, Code.PIPELINE_TOO_BUSY,null);
             rejectedCount.addAndGet(numBulkWrites);
-            return new BulkWritesResult(result);
+            return withLoad(new BulkWritesResult(result),dependent);
         }
+        BulkWritesResult writesResult;
         try {
-            return performWrite(bulkWrites,bws,result,indexWriteBufferFactory);
+            /*
+             * Dependent writes share the index call buffers of indexWriteBufferFactory across all of the regions
+             * in the request, and those are not thread safe, so only independent writes are applied in parallel.
+             */
+            if(!dependent && regionWriteExecutor!=null && numBulkWrites>1)
+                writesResult = performParallelWrite(bulkWrites,bws,result,indexWriteBufferFactory);
+            else
+                writesResult = performWrite(bulkWrites,bws,result,indexWriteBufferFactory);
         } finally {
             switch (status) {
                 case REJECTED:
@@ -126,6 +154,7 @@ public class PipelineWriter{
                     break;
             }
         }
+        return withLoad(writesResult,dependent);
     }
 
     protected BulkWritesResult performWrite(@Nonnull BulkWrites bulkWrites,Collection<BulkWrite> bws,List<BulkWriteResult> result,SharedCallBufferFactory indexWriteBufferFactory) throws IOException{
@@ -194,6 +223,82 @@ public class PipelineWriter{
         return new BulkWritesResult(result);
     }
 
+    /**
+     * Apply each region's write (both submission and finish) as an independent task, spread across the
+     * calling thread and the region write executor.
+     *
+     * We don't return until every region's write has completed, so the write permits held by our caller
+     * continue to cover all of the work of the request.
+     */
+    protected BulkWritesResult performParallelWrite(@Nonnull final BulkWrites bulkWrites,
+                                                    Collection<BulkWrite> bws,
+                                                    List<BulkWriteResult> result,
+                                                    final SharedCallBufferFactory indexWriteBufferFactory) throws IOException{
+        final Map<BulkWrite, Pair<BulkWriteResult, PartitionWritePipeline>> writePairMap = getBulkWritePairMap(bws);
+        final List<BulkWrite> toWrite = new ArrayList<>(bws.size());
+        for(BulkWrite bw:bws){
+            if(writePairMap.get(bw).getSecond()!=null)
+                toWrite.add(bw);
+        }
+
+        final int numTasks = toWrite.size();
+        final AtomicInteger nextTask = new AtomicInteger(0);
+        final CountDownLatch completed = new CountDownLatch(numTasks);
+        final Throwable[] errors = new Throwable[numTasks];
+        Runnable worker = new Runnable(){
+            @Override
+            public void run(){
+                int task;
+                while((task=nextTask.getAndIncrement())<numTasks){
+                    BulkWrite bulkWrite = toWrite.get(task);
+                    try{
+                        writeRegion(bulkWrites,bulkWrite,writePairMap.get(bulkWrite),indexWriteBufferFactory);
+                    }catch(Throwable t){
+                        errors[task] = t;
+                    }finally{
+                        completed.countDown();
+                    }
+                }
+            }
+        };
+        //the calling thread takes one share of the work, so only ask for help with the rest
+        for(int i=1;i<numTasks;i++){
+            try{
+                regionWriteExecutor.execute(worker);
+            }catch(RejectedExecutionException ree){
+                break; //the pool is saturated, so we'll do the rest ourselves
+            }
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        while(true){
+            try{
+                completed.await();
+                break;
+            }catch(InterruptedException ie){
+                //we cannot leave until the writes are done, since they are covered by our write permits
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+
+        for(Throwable error:errors){
+            if(error==null) continue;
+            if(error instanceof IOException) throw (IOException)error;
+            if(error instanceof RuntimeException) throw (RuntimeException)error;
+            if(error instanceof Error) throw (Error)error;
+            throw new IOException(error);
+        }
+
+        //collect the results in the order the writes were received, exactly as performWrite does
+        for(BulkWrite bw:bws){
+            result.add(writePairMap.get(bw).getFirst());
+        }
+        return new BulkWritesResult(result);
+    }
+
     public void setWriteCoordinator(WriteCoordinator writeCoordinator){
         this.writeCoordinator = writeCoordinator;
     }
@@ -213,6 +318,32 @@ public class PipelineWriter{
     }
     /* ****************************************************************************************************************/
     /*private helper methods*/
+
+    /*
+     * Attach the current load of the write control to the result, so that the client can pace the writes
+     * that it sends to us. Independent writes may borrow dependent permits when their own run out, so their
+     * headroom includes both.
+     */
+    private BulkWritesResult withLoad(BulkWritesResult writesResult,boolean dependent){
+        WriteStatus writeStatus = writeControl.getWriteStatus();
+        int dependentHeadroom = headroom(writeStatus.getDependentWriteThreads(),writeControl.maxDependendentWriteThreads(),
+                writeStatus.getDependentWriteCount(),writeControl.maxDependentWriteCount());
+        if(dependent){
+            writesResult.setLoad(writeStatus.getDependentWriteCount(),dependentHeadroom);
+        }else{
+            int independentHeadroom = headroom(writeStatus.getIndependentWriteThreads(),writeControl.maxIndependentWriteThreads(),
+                    writeStatus.getIndependentWriteCount(),writeControl.maxIndependentWriteCount());
+            writesResult.setLoad(writeStatus.getIndependentWriteCount(),independentHeadroom+dependentHeadroom);
+        }
+        return writesResult;
+    }
+
+    private static int headroom(int threads,int maxThreads,int count,int maxCount){
+        //the write control admits writes until the limits are exceeded, not just reached
+        if(threads>maxThreads) return 0;
+        return Math.max(0,maxCount-count);
+    }
+
     private void rejectAll(Collection<BulkWrite> writes, Collection<BulkWriteResult> result, Code status,String msg) {
         for(BulkWrite write:writes){
             pipelineMeter.mark(0,write.getSize());
@@ -235,6 +366,26 @@ public class PipelineWriter{
         }
     }
 
+    private void writeRegion(BulkWrites bulkWrites,
+                             BulkWrite bulkWrite,
+                             Pair<BulkWriteResult, PartitionWritePipeline> pair,
+                             SharedCallBufferFactory indexWriteBufferFactory) throws IOException{
+        PartitionWritePipeline writePipeline = pair.getSecond();
+        BulkWriteResult submitResult = writePipeline.submitBulkWrite(bulkWrites.getTxn(), bulkWrite,indexWriteBufferFactory, writePipeline.getRegionCoprocessorEnvironment());
+        BulkWriteResult finishResult = writePipeline.finishWrite(submitResult, bulkWrite);
+        if(LOG.isTraceEnabled()){
+            LOG.trace("Write of "+bulkWrite.getSize()+" rows to region "+ bulkWrite.getEncodedStringName()+" has result "+ finishResult.getGlobalResult());
+            if(finishResult.getFailedRows().size()>0){
+                LOG.trace("Detected "+ finishResult.getFailedRows().size()+" failed rows");
+            }
+            if(finishResult.getNotRunRows().size()>0){
+                LOG.trace("Detected "+ finishResult.getNotRunRows().size()+" not run rows");
+            }
+        }
+        pair.setFirst(finishResult);
+        pipelineMeter.mark(bulkWrite.getSize()-finishResult.getFailedRows().size(),finishResult.getFailedRows().size());
+    }
+
     /**
      * Just builds this map:  BulkWrite -> (BulkWriteResult, PartitionWritePipeline) where the PartitionWritePipeline may
      * be null for some BulkWrites.
@@ -77,6 +77,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
     private final Counter partialFailureCounter;
     private final Counter regionTooBusy;
     private final PartitionFactory partitionFactory;
+    private final ServerWriteThrottle throttle;
     private PipingCallBuffer retryPipingCallBuffer=null; // retryCallBuffer
 
 
@@ -89,6 +90,19 @@ public class BulkWriteAction implements Callable<WriteStats>{
                            PipelineExceptionFactory pipelineExceptionFactory,
                            PartitionFactory partitionFactory,
                            Clock clock){
+        this(tableName,writes,writeConfiguration,statusReporter,writerFactory,pipelineExceptionFactory,partitionFactory,clock,null);
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+    public BulkWriteAction(byte[] tableName,
+                           BulkWrites writes,
+                           WriteConfiguration writeConfiguration,
+                           ActionStatusReporter statusReporter,
+                           BulkWriterFactory writerFactory,
+                           PipelineExceptionFactory pipelineExceptionFactory,
+                           PartitionFactory partitionFactory,
+                           Clock clock,
+                           ServerWriteThrottle throttle){
         assert writes!=null:"writes passed into BWA are null";
         this.tableName=tableName;
         this.bulkWrites=writes;
@@ -106,6 +120,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
         this.writeTimer=metricFactory.newTimer();
         this.pipelineExceptionFactory = pipelineExceptionFactory;
         this.partitionFactory = partitionFactory;
+        this.throttle = throttle;
         thrownErrorsRows=metricFactory.newCounter();
         retriedRows=metricFactory.newCounter();
         partialRows=metricFactory.newCounter();
@@ -211,7 +226,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
                 retryCounter.increment();
             }
             first = false;
-            BulkWrites nextWrite=writesToPerform.removeFirst();
+            BulkWrites nextWrite=limitToBatchSize(writesToPerform.removeFirst(),writesToPerform);
             assert nextWrite!=null:"next write is null";
             ctx.reset();
             ctx.attemptCount++;
@@ -227,7 +242,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
              * simply because we were told to wait a bit by the write pipeline (i.e. we were rejected).
              */
             if(ctx.shouldSleep()){
-                clock.sleep(PipelineUtils.getPauseTime(ctx.attemptCount,10),TimeUnit.MILLISECONDS);
+                clock.sleep(PipelineUtils.getPauseTime(ctx.pauseAttempts(),10),TimeUnit.MILLISECONDS);
             }if(ctx.directRetry)
                 writesToPerform.add(nextWrite);
             else if(ctx.nextWriteSet!=null &&ctx.nextWriteSet.size()>0){
@@ -251,10 +266,13 @@ public class BulkWriteAction implements Callable<WriteStats>{
 
         //used to indicate that the exception was thrown inside the try{} block explicitly, and should just be re-thrown
         boolean thrown = false;
+        String server=throttle==null?null:nextWrite.getDestinationServer();
+        long ticket=server==null?0L:throttle.acquire(server);
+        BulkWritesResult bulkWritesResult=null;
         try{
             BulkWriter writer=writerFactory.newWriter(tableName);
             writeTimer.startTiming();
-            BulkWritesResult bulkWritesResult=writer.write(nextWrite,ctx.refreshCache);
+            bulkWritesResult=writer.write(nextWrite,ctx.refreshCache);
             writeTimer.stopTiming();
             Iterator<BulkWrite> bws=nextWrite.getBulkWrites().iterator();
             Collection<BulkWriteResult> results=bulkWritesResult.getBulkWriteResults();
@@ -289,6 +307,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
 
                         ctx.addBulkWrites(currentBulkWrite.getMutations());
                         ctx.refreshCache = ctx.refreshCache || bulkWriteResult.getGlobalResult().refreshCache();
+                        ctx.tooBusy = ctx.tooBusy || bulkWriteResult.getGlobalResult().getCode()==Code.PIPELINE_TOO_BUSY;
                         ctx.sleep=true; //always sleep due to rejection, even if we don't need to refresh the cache
                         break;
                     case PARTIAL:
@@ -365,6 +384,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
 
                 regionTooBusy.increment();
                 ctx.sleep = true;
+                ctx.tooBusy = true;
                 ctx.directRetry();
                 return;
             }
@@ -398,9 +418,59 @@ public class BulkWriteAction implements Callable<WriteStats>{
                     LOG.warn(String.format("Ignoring error after receiving unknown global error %s response: id=%d ",writeResponse,id),e);
                     throw new IllegalStateException("Programmer error: Unknown global response: "+writeResponse);
             }
+        }finally{
+            if(server!=null){
+                if(ctx.tooBusy)
+                    throttle.rejected(server,ticket);
+                else if(bulkWritesResult!=null)
+                    throttle.succeeded(server,ticket,bulkWritesResult);
+                else
+                    throttle.failed(server);
+            }
         }
     }
 
+    /*
+     * When the throttle has cut the batch size for the destination server, send only the first batch of
+     * the write now, and queue the rest of it to be sent immediately afterwards (in order).
+     */
+    private BulkWrites limitToBatchSize(BulkWrites write,LinkedList<BulkWrites> writesToPerform){
+        String server=write.getDestinationServer();
+        if(throttle==null || server==null) return write;
+        int batchSize=throttle.batchSize(server);
+        if(write.numEntries()<=batchSize) return write;
+
+        List<BulkWrites> batches=new ArrayList<>(write.numEntries()/batchSize+1);
+        List<BulkWrite> batch=new ArrayList<>();
+        int batchRows=0;
+        for(BulkWrite bw : write.getBulkWrites()){
+            List<KVPair> mutations=bw.mutationsList();
+            int position=0;
+            while(position<mutations.size()){
+                int rows=Math.min(mutations.size()-position,batchSize-batchRows);
+                if(rows==mutations.size())
+                    batch.add(bw);
+                else
+                    batch.add(new BulkWrite(new ArrayList<>(mutations.subList(position,position+rows)),bw.getEncodedStringName(),bw.getSkipIndexWrite()));
+                position+=rows;
+                batchRows+=rows;
+                if(batchRows==batchSize){
+                    batches.add(new BulkWrites(batch,write.getTxn(),write.getRegionKey(),server));
+                    batch=new ArrayList<>();
+                    batchRows=0;
+                }
+            }
+        }
+        if(batchRows>0)
+            batches.add(new BulkWrites(batch,write.getTxn(),write.getRegionKey(),server));
+        if(LOG.isTraceEnabled())
+            SpliceLogUtils.trace(LOG,"Splitting write of %d rows into %d batches for server %s: id=%d",write.numEntries(),batches.size(),server,id);
+        for(int i=batches.size()-1;i>0;i--){
+            writesToPerform.addFirst(batches.get(i));
+        }
+        return batches.get(0);
+    }
+
     /**
      * Return an error message describing the types and number of failures in the BatchWrite.
      *
@@ -481,6 +551,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
         boolean refreshCache = false;
         boolean sleep = false;
         boolean rejected= false;
+        boolean tooBusy = false;
         /*
          * Either directRetrySet !=null or nextWriteSet !=null. Otherwise, it's an error (since nextWriteSet is
          * necessarily a subset of the rows contained in directWriteSet).
@@ -492,13 +563,26 @@ public class BulkWriteAction implements Callable<WriteStats>{
 
         int rejectedCount;
         int failedCount;
+        /*
+         * The number of attempts in a row which the server has turned away as too busy. The throttle already
+         * slows us down when that happens, so there's no need to keep backing off further once it succeeds.
+         */
+        int busyCount;
 
 
         boolean shouldSleep(){
             return sleep || refreshCache;
         }
 
+        int pauseAttempts(){
+            if(throttle!=null && tooBusy && !refreshCache)
+                return busyCount+1;
+            return attemptCount;
+        }
+
         void reset(){
+            busyCount = tooBusy ? busyCount+1 : 0;
+            tooBusy = false;
             refreshCache = false;
             sleep = false;
             nextWriteSet = null;
@@ -35,6 +35,10 @@ public class BulkWrites{
      * any region which is present on the destination region server
      */
     private transient byte[] regionKey;
+    /*
+     * The host and port of the region server which the write is destined for, if known.
+     */
+    private transient String destinationServer;
 
     public BulkWrites(){
         bulkWrites=new ArrayList<>(0);
@@ -51,11 +55,21 @@ public class BulkWrites{
         this.regionKey=regionKey;
     }
 
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+    public BulkWrites(Collection<BulkWrite> bulkWrites,TxnView txn,byte[] regionKey,String destinationServer){
+        this(bulkWrites,txn,regionKey);
+        this.destinationServer=destinationServer;
+    }
+
     @SuppressFBWarnings(value="EI_EXPOSE_REP", justification="Intentional")
     public byte[] getRegionKey(){
         return regionKey;
     }
 
+    public String getDestinationServer(){
+        return destinationServer;
+    }
+
     public Collection<BulkWrite> getBulkWrites(){
         return bulkWrites;
     }
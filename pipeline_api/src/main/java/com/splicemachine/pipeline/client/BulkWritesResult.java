@@ -22,19 +22,67 @@ import java.util.Collection;
  * Created on: 8/8/13
  */
 public class BulkWritesResult {
+		/**
+		 * Marks a result which carries no load information (for example, one from a server which did not
+		 * get as far as asking for write permits).
+		 */
+		public static final int UNKNOWN_LOAD = -1;
+
 		private Collection<BulkWriteResult> bulkWriteResults;
+		/*
+		 * The load on the server's write pipeline when the write completed: the number of rows being written
+		 * by other requests, and the number of rows which it could accept before it starts rejecting writes.
+		 */
+		private int queueDepth = UNKNOWN_LOAD;
+		private int permitHeadroom = UNKNOWN_LOAD;
 
 		public BulkWritesResult(Collection<BulkWriteResult> bulkWriteResults){
 				this.bulkWriteResults = bulkWriteResults;
 		}
 
+		public BulkWritesResult(Collection<BulkWriteResult> bulkWriteResults,int queueDepth,int permitHeadroom){
+				this.bulkWriteResults = bulkWriteResults;
+				this.queueDepth = queueDepth;
+				this.permitHeadroom = permitHeadroom;
+		}
+
 		public Collection<BulkWriteResult> getBulkWriteResults() {
 				return bulkWriteResults;
 		}
 
+		public void setLoad(int queueDepth,int permitHeadroom){
+				this.queueDepth = queueDepth;
+				this.permitHeadroom = permitHeadroom;
+		}
+
+		public int getQueueDepth(){
+				return queueDepth;
+		}
+
+		public int getPermitHeadroom(){
+				return permitHeadroom;
+		}
+
+		public boolean hasLoad(){
+				return queueDepth>=0 && permitHeadroom>=0;
+		}
+
+		/**
+		 * @return the fraction of the server's write permits which are in use, between 0 and 1, or a negative
+		 * number if the server did not report its load.
+		 */
+		public double loadFactor(){
+				if(!hasLoad()) return UNKNOWN_LOAD;
+				long capacity = (long)queueDepth+permitHeadroom;
+				if(capacity==0) return 1d;
+				return queueDepth/(double)capacity;
+		}
+
 		@Override
 		public String toString() {
 				StringBuilder sb = new StringBuilder("BulkWritesResult{");
+				if(hasLoad())
+						sb.append("queueDepth=").append(queueDepth).append(",permitHeadroom=").append(permitHeadroom).append(",");
 				boolean first = true;
 				for (BulkWriteResult result:bulkWriteResults) {
 						if(first) first=false;
@@ -33,10 +33,26 @@ import java.util.*;
  *         Date: 1/19/15
  */
 public class PipelineEncoding {
+    /*
+     * The original encoding starts with the encoded length of the Txn, whose first byte is never 0xFF,
+     * so a leading 0xFF marks an encoding which carries its version in the next byte.
+     */
+    static final byte FORMAT_MARKER = (byte)0xFF;
+    /* row keys are sent as the prefix shared with the previous row key plus a suffix */
+    static final byte PREFIX_KEY_VERSION = 1;
 
     public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
+        return encode(operationFactory,bulkWrites,false);
+    }
+
+    /**
+     * @param legacyFormat if true, write the unversioned encoding with whole row keys, which servers and
+     *                     clients that predate the versioned encoding are able to read
+     */
+    public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites,boolean legacyFormat){
         /*
          * The encoding for a BulkWrites is as follows:
+         * 0xFF, version (2 bytes, absent in the legacy format)
          * Txn (1-N bytes)
          * # of BulkWrites (1-N bytes)
          * for 1...# of BulkWrites:
@@ -44,7 +60,22 @@ public class PipelineEncoding {
          * for 1...# of BulkWrites:
          *  skipWriteIndex
          * for 1...# of BulkWrites:
-         *  KVPairs
+         *  # of KVPairs
+         *  total row key length
+         *  for 1...# of KVPairs:
+         *      type (1 byte)
+         *      length of row key prefix shared with the previous row key
+         *      row key suffix
+         *      value
+         *
+         * The legacy format has no total row key length, and sends each whole row key in place
+         * of the shared prefix length and suffix.
+         *
+         * Row keys within a single BulkWrite are almost always sorted (or at least clustered), so
+         * consecutive keys tend to share long prefixes (table-specific key prefixes, leading key columns,
+         * etc.). Rather than send those prefixes over and over, we only send the bytes which differ
+         * from the previous key. The total row key length allows the decoder to rebuild all the
+         * row keys for a BulkWrite into a single array, rather than allocating one per row.
          *
          * This encoding follows the rule of "Header-body", where the "header" of the data
          * in this case is the metadata about the request, while the "body" is a byte array
@@ -55,7 +86,11 @@ public class PipelineEncoding {
         byte[] txnBytes = operationFactory.encode(bulkWrites.getTxn());
 
         int heapSize = bulkWrites.getBufferHeapSize();
-        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length);
+        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length+2);
+        if(!legacyFormat){
+            buffer.rawEncode(FORMAT_MARKER);
+            buffer.rawEncode(PREFIX_KEY_VERSION);
+        }
         buffer.rawEncode(txnBytes);
 
         //encode BulkWrite metadata
@@ -72,11 +107,29 @@ public class PipelineEncoding {
         for(BulkWrite bw:bws){
             Collection<KVPair> mutations = bw.getMutations();
             buffer.encode(mutations.size());
+            if(legacyFormat){
+                for(KVPair kvPair:mutations){
+                    buffer.rawEncode(kvPair.getType().asByte());
+                    buffer.rawEncode(kvPair.rowKeySlice());
+                    buffer.rawEncode(kvPair.valueSlice());
+                }
+                continue;
+            }
+            int totalRowKeyLength = 0;
+            for(KVPair kvPair:mutations){
+                totalRowKeyLength+=kvPair.rowKeySlice().length();
+            }
+            buffer.encode(totalRowKeyLength);
+            ByteSlice previousKey = null;
             for(KVPair kvPair:mutations){
                 //TODO -sf- use a run-length encoding for type information here?
                 buffer.rawEncode(kvPair.getType().asByte());
-                buffer.rawEncode(kvPair.rowKeySlice());
+                ByteSlice rowKey = kvPair.rowKeySlice();
+                int prefixLength = previousKey==null? 0 : sharedPrefixLength(previousKey,rowKey);
+                buffer.encode(prefixLength);
+                buffer.rawEncode(rowKey.array(),rowKey.offset()+prefixLength,rowKey.length()-prefixLength);
                 buffer.rawEncode(kvPair.valueSlice());
+                previousKey = rowKey;
             }
         }
         return buffer.getBuffer();
@@ -84,7 +137,14 @@ public class PipelineEncoding {
 
 
     public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
-        ExpandedDecoder decoder = new ExpandedDecoder(data);
+        ExpandedDecoder decoder;
+        boolean prefixKeys = data.length>0 && data[0]==FORMAT_MARKER;
+        if(prefixKeys){
+            if(data.length<2 || data[1]!=PREFIX_KEY_VERSION)
+                throw new IllegalArgumentException("Unsupported BulkWrites encoding version: "+(data.length<2? "none" : data[1]));
+            decoder = new ExpandedDecoder(data,2);
+        }else
+            decoder = new ExpandedDecoder(data);
         byte[] txnBytes = decoder.rawBytes();
         TxnView txn = operationFactory.decode(txnBytes,0,txnBytes.length);
         int bwSize = decoder.decodeInt();
@@ -97,10 +157,25 @@ public class PipelineEncoding {
             skipIndexWrites[i] = decoder.decodeByte();
         }
 
-        return new BulkWrites(new BulkWriteCol(skipIndexWrites,data,decoder.currentOffset(),stringNames),txn);
+        return new BulkWrites(new BulkWriteCol(skipIndexWrites,data,decoder.currentOffset(),stringNames,prefixKeys),txn);
     }
 
 
+    /***********************************************************************************************************/
+    /*private helper methods*/
+    private static int sharedPrefixLength(ByteSlice previous,ByteSlice next){
+        byte[] pArray = previous.array();
+        byte[] nArray = next.array();
+        int pOff = previous.offset();
+        int nOff = next.offset();
+        int max = Math.min(previous.length(),next.length());
+        int i=0;
+        while(i<max && pArray[pOff+i]==nArray[nOff+i]){
+            i++;
+        }
+        return i;
+    }
+
     /***********************************************************************************************************/
     /*private helper classes*/
     private static class BulkWriteCol extends AbstractCollection<BulkWrite>{
@@ -108,6 +183,7 @@ public class PipelineEncoding {
         private final List<String> encodedStringNames;
         private final byte[] skipIndexWrites;
         private final byte[] buffer;
+        private final boolean prefixKeys;
         /*
          * we keep a cache of previously created BulkWrites, so that we can have
          * deterministic iteration (i.e. returning the same objects instead of
@@ -117,8 +193,9 @@ public class PipelineEncoding {
         private transient ExpandedDecoder decoder;
         private transient int lastIndex = 0;
 
-        public BulkWriteCol(byte[] skipIndexWrites, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+        public BulkWriteCol(byte[] skipIndexWrites, byte[] buffer,int kvOffset, List<String> encodedStringNames,boolean prefixKeys) {
             this.kvOffset = kvOffset;
+            this.prefixKeys = prefixKeys;
             this.encodedStringNames = encodedStringNames;
             this.buffer = buffer;
             this.skipIndexWrites = skipIndexWrites;
@@ -166,17 +243,47 @@ public class PipelineEncoding {
                 byte skipIndexWrite = skipIndexWrites[index++];
                 int size = decoder.decodeInt();
                 Collection<KVPair> kvPairs = new ArrayList<>(size);
+                if(!prefixKeys){
+                    KVPair template = new KVPair();
+                    ByteSlice rowKeySlice = template.rowKeySlice();
+                    ByteSlice valueSlice = template.valueSlice();
+                    for(int i=0;i<size;i++){
+                        template.setType(KVPair.Type.decode(decoder.rawByte()));
+                        decoder.sliceNext(rowKeySlice);
+                        decoder.sliceNext(valueSlice);
+                        kvPairs.add(template.shallowClone());
+                    }
+                    return newBulkWrite(kvPairs,esN,skipIndexWrite);
+                }
+                /*
+                 * Row keys are prefix-compressed against one another, so we rebuild them all
+                 * into a single shared array, and slice each KVPair's row key out of it.
+                 */
+                byte[] rowKeys = new byte[decoder.decodeInt()];
+                int rowKeyOffset = 0;
+                int previousKeyOffset = 0;
                 KVPair template = new KVPair();
                 ByteSlice rowKeySlice = template.rowKeySlice();
                 ByteSlice valueSlice = template.valueSlice();
+                ByteSlice suffixSlice = new ByteSlice();
                 for(int i=0;i<size;i++){
                     template.setType(KVPair.Type.decode(decoder.rawByte()));
-                    decoder.sliceNext(rowKeySlice);
+                    int prefixLength = decoder.decodeInt();
+                    decoder.sliceNext(suffixSlice);
+                    System.arraycopy(rowKeys,previousKeyOffset,rowKeys,rowKeyOffset,prefixLength);
+                    System.arraycopy(suffixSlice.array(),suffixSlice.offset(),rowKeys,rowKeyOffset+prefixLength,suffixSlice.length());
+                    int keyLength = prefixLength+suffixSlice.length();
+                    rowKeySlice.set(rowKeys,rowKeyOffset,keyLength);
+                    previousKeyOffset = rowKeyOffset;
+                    rowKeyOffset+=keyLength;
                     decoder.sliceNext(valueSlice);
                     kvPairs.add(template.shallowClone());
                 }
 
+                return newBulkWrite(kvPairs,esN,skipIndexWrite);
+            }
 
+            private BulkWrite newBulkWrite(Collection<KVPair> kvPairs,String esN,byte skipIndexWrite){
                 BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, skipIndexWrite);
                 cache.add(bulkWrite);
                 lastIndex=index;
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Paces the writes that a client sends to each region server, using the load that the servers report
+ * back in every {@link BulkWritesResult}.
+ * <p/>
+ * For each server, the throttle keeps a limit on the number of writes which may be outstanding against it,
+ * and on the number of rows to send in each of them, and adjusts both in the AIMD fashion of TCP congestion
+ * control: every write which finds the server with spare capacity raises the limits a little, while a write
+ * which is rejected as too busy, or which finds the server close to its own write limits, halves them.
+ * Under sustained load, then, writers slow down smoothly as a server fills up, rather than repeatedly
+ * sending whole batches that the server can only reject.
+ */
+@ThreadSafe
+public class ServerWriteThrottle{
+    /*
+     * The fraction of its write permits which a server may have in use before we treat it as overloaded
+     */
+    private static final double HIGH_LOAD=0.9d;
+    private static final int BATCH_SIZE_STEPS=32;
+
+    private final int maxConcurrency;
+    private final int maxBatchSize;
+    private final int minBatchSize;
+    private final int batchSizeIncrement;
+    private final ConcurrentMap<String,ServerState> servers=new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConcurrency the maximum number of writes to have outstanding against a single server
+     * @param maxBatchSize the maximum number of rows to send to a server in a single write
+     */
+    public ServerWriteThrottle(int maxConcurrency,int maxBatchSize){
+        assert maxConcurrency>0 && maxBatchSize>0: "Limits must be positive";
+        this.maxConcurrency=maxConcurrency;
+        this.maxBatchSize=maxBatchSize;
+        this.minBatchSize=Math.max(1,maxBatchSize/BATCH_SIZE_STEPS);
+        this.batchSizeIncrement=minBatchSize;
+    }
+
+    /**
+     * Wait until another write may be sent to the specified server. Every call must be followed by
+     * exactly one call to {@link #succeeded}, {@link #rejected}, or {@link #failed} for the same server.
+     *
+     * @return a ticket for the write, to be passed back when it completes
+     */
+    public long acquire(String server) throws InterruptedException{
+        return stateOf(server).acquire();
+    }
+
+    /**
+     * Record that a write has been processed by the server, and adjust its limits according to the load
+     * that it reported.
+     */
+    public void succeeded(String server,long ticket,BulkWritesResult result){
+        double loadFactor=result==null?BulkWritesResult.UNKNOWN_LOAD:result.loadFactor();
+        if(loadFactor>=HIGH_LOAD)
+            stateOf(server).decrease(ticket);
+        else
+            stateOf(server).increase();
+    }
+
+    /**
+     * Record that a write was rejected because the server was too busy to accept it.
+     */
+    public void rejected(String server,long ticket){
+        stateOf(server).decrease(ticket);
+    }
+
+    /**
+     * Record that a write failed for a reason which says nothing about the load on the server.
+     */
+    public void failed(String server){
+        stateOf(server).release();
+    }
+
+    /**
+     * @return the number of rows which should currently be sent to the server in a single write
+     */
+    public int batchSize(String server){
+        return stateOf(server).batchSize();
+    }
+
+    /**
+     * @return the number of writes which may currently be outstanding against the server
+     */
+    public int concurrencyLimit(String server){
+        return stateOf(server).concurrencyLimit();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private ServerState stateOf(String server){
+        ServerState state=servers.get(server);
+        if(state==null){
+            state=new ServerState();
+            ServerState old=servers.putIfAbsent(server,state);
+            if(old!=null)
+                state=old;
+        }
+        return state;
+    }
+
+    private class ServerState{
+        /*
+         * Start wide open, so that a server which is never overloaded is written to exactly as before. The
+         * limit is fractional so that it can grow by 1/limit per write, i.e. by roughly one write per round
+         * of writes.
+         */
+        private double limit=maxConcurrency;
+        private int batchSize=maxBatchSize;
+        private int inFlight;
+        /*
+         * Incremented whenever the limits are cut. Writes which were sent before the last cut report the
+         * same overload that caused it, so they must not cut the limits again.
+         */
+        private long epoch;
+
+        synchronized long acquire() throws InterruptedException{
+            while(inFlight>=(int)limit){
+                wait();
+            }
+            inFlight++;
+            return epoch;
+        }
+
+        synchronized void increase(){
+            limit=Math.min(maxConcurrency,limit+1d/limit);
+            batchSize=Math.min(maxBatchSize,batchSize+batchSizeIncrement);
+            release();
+        }
+
+        synchronized void decrease(long ticket){
+            if(ticket==epoch){
+                limit=Math.max(1d,limit/2);
+                batchSize=Math.max(minBatchSize,batchSize/2);
+                epoch++;
+            }
+            release();
+        }
+
+        synchronized void release(){
+            assert inFlight>0: "Released a write which was never acquired";
+            inFlight--;
+            notifyAll();
+        }
+
+        synchronized int batchSize(){
+            return batchSize;
+        }
+
+        synchronized int concurrencyLimit(){
+            return (int)limit;
+        }
+    }
+}
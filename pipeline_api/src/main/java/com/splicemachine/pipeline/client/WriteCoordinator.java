@@ -71,11 +71,16 @@ public class WriteCoordinator {
         assert config != null;
         MonitoredThreadPool writerPool = MonitoredThreadPool.create(config);
         int maxEntries = config.getMaxBufferEntries();//SpliceConstants.maxBufferEntries;
+        /*
+         * A single throttle paces all of the writes to each region server, whichever writer sends them
+         */
+        int maxConcurrencyPerServer = config.getWriteMaxConcurrencyPerServer();
+        ServerWriteThrottle throttle = maxConcurrencyPerServer>0 ? new ServerWriteThrottle(maxConcurrencyPerServer,Math.max(1,maxEntries)) : null;
         Writer writer = new AsyncBucketingWriter(writerPool,
                 writerFactory,
                 exceptionFactory,
-                partitionFactory,clock);
-        Writer syncWriter = new SynchronousBucketingWriter(writerFactory,exceptionFactory,partitionFactory,clock);
+                partitionFactory,clock,throttle);
+        Writer syncWriter = new SynchronousBucketingWriter(writerFactory,exceptionFactory,partitionFactory,clock,throttle);
         long maxBufferHeapSize = config.getMaxBufferHeapSize();
         int numRetries = config.getMaxRetries();
         long pause = config.getClientPause();
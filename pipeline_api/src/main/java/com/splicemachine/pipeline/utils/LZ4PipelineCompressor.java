@@ -0,0 +1,333 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.utils;
+
+import com.splicemachine.compression.LZ4BlockCodec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A PipelineCompressor which compresses the output of another compressor using (pure java) LZ4.
+ *
+ * Every compressed message carries a small header:
+ * <pre>
+ *     format marker (1 byte, 0xFE)
+ *     format version (1 byte)
+ *     codec (1 byte)
+ *     uncompressed length (4 bytes, only present when codec is LZ4)
+ *     payload
+ * </pre>
+ *
+ * The codec is chosen by the sender on a per-message basis; small messages and messages which do
+ * not compress are sent uncompressed. Because the header is self-describing, a receiver is able to
+ * decode any message regardless of how its own compression is configured, which means that the codec
+ * is effectively negotiated for each BulkWrites request (and each response) independently.
+ *
+ * Messages from servers which predate this header have no marker (their first byte is never 0xFE),
+ * and are handed to the delegate as they are. A reply to such a message is written without the header
+ * (see {@link #compressReply(Object, byte[])}), so that an older client can read it. An older server
+ * can't read the header, though, so while a cluster is being upgraded from such a release the
+ * {@link #LEGACY} codec makes the sender write only the old format.
+ */
+public class LZ4PipelineCompressor implements PipelineCompressor{
+    public static final String NONE="none";
+    public static final String LZ4="lz4";
+    public static final String LEGACY="legacy";
+
+    static final byte FORMAT_MARKER=(byte)0xFE;
+    static final byte FORMAT_VERSION=1;
+    private static final int HEADER_SIZE=3;
+
+    static final byte CODEC_NONE=0x00;
+    static final byte CODEC_LZ4=0x01;
+
+    /*
+     * Messages smaller than this aren't worth the CPU to compress; the savings are
+     * dwarfed by the fixed per-RPC overhead.
+     */
+    static final int MIN_COMPRESSION_SIZE=256;
+    private static final int STREAM_BLOCK_SIZE=1<<16;
+
+    private static final ThreadLocal<LZ4BlockCodec> codecs=new ThreadLocal<LZ4BlockCodec>(){
+        @Override
+        protected LZ4BlockCodec initialValue(){
+            return new LZ4BlockCodec();
+        }
+    };
+
+    private final PipelineCompressor delegate;
+    private final boolean compressionEnabled;
+    private final boolean legacyFormat;
+
+    public LZ4PipelineCompressor(PipelineCompressor delegate,String codec){
+        this.delegate=delegate;
+        this.legacyFormat=LEGACY.equalsIgnoreCase(codec);
+        if(LZ4.equalsIgnoreCase(codec))
+            this.compressionEnabled=true;
+        else if(NONE.equalsIgnoreCase(codec) || legacyFormat)
+            this.compressionEnabled=false;
+        else
+            throw new IllegalArgumentException("Unknown pipeline compression codec: "+codec);
+    }
+
+    /**
+     * @return true if the codec makes the sender write only the format of releases which predate the
+     * format header
+     */
+    public static boolean isLegacyCodec(String codec){
+        return LEGACY.equalsIgnoreCase(codec);
+    }
+
+    @Override
+    public InputStream compressedInput(InputStream input) throws IOException{
+        return new BlockInputStream(delegate.compressedInput(input));
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException{
+        return new BlockOutputStream(delegate.compress(output),compressionEnabled);
+    }
+
+    @Override
+    public byte[] compress(Object o) throws IOException{
+        byte[] data=delegate.compress(o);
+        if(legacyFormat)
+            return data;
+        if(compressionEnabled && data.length>=MIN_COMPRESSION_SIZE){
+            byte[] compressed=new byte[HEADER_SIZE+4+LZ4BlockCodec.maxCompressedLength(data.length)];
+            int cLen=codecs.get().compress(data,0,data.length,compressed,HEADER_SIZE+4);
+            if(cLen<data.length){
+                writeHeader(compressed,CODEC_LZ4);
+                writeInt(data.length,compressed,HEADER_SIZE);
+                byte[] result=new byte[HEADER_SIZE+4+cLen];
+                System.arraycopy(compressed,0,result,0,result.length);
+                return result;
+            }
+        }
+        byte[] result=new byte[data.length+HEADER_SIZE];
+        writeHeader(result,CODEC_NONE);
+        System.arraycopy(data,0,result,HEADER_SIZE,data.length);
+        return result;
+    }
+
+    @Override
+    public byte[] compressReply(Object reply,byte[] request) throws IOException{
+        if(!hasHeader(request))
+            return delegate.compressReply(reply,request);
+        return compress(reply);
+    }
+
+    @Override
+    public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException{
+        if(bytes==null || bytes.length<=0)
+            throw new IOException("Cannot decompress an empty message");
+        if(!hasHeader(bytes))
+            return delegate.decompress(bytes,clazz);
+        if(bytes.length<HEADER_SIZE)
+            throw new IOException("Truncated pipeline message header");
+        if(bytes[1]!=FORMAT_VERSION)
+            throw new IOException("Unsupported pipeline message format version: "+bytes[1]);
+        byte[] data;
+        switch(bytes[2]){
+            case CODEC_NONE:
+                data=new byte[bytes.length-HEADER_SIZE];
+                System.arraycopy(bytes,HEADER_SIZE,data,0,data.length);
+                break;
+            case CODEC_LZ4:
+                if(bytes.length<HEADER_SIZE+4)
+                    throw new IOException("Truncated LZ4 message header");
+                data=new byte[readInt(bytes,HEADER_SIZE)];
+                LZ4BlockCodec.decompress(bytes,HEADER_SIZE+4,bytes.length-HEADER_SIZE-4,data,0,data.length);
+                break;
+            default:
+                throw new IOException("Unknown pipeline compression codec: "+bytes[2]);
+        }
+        return delegate.decompress(data,clazz);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static boolean hasHeader(byte[] message){
+        return message!=null && message.length>0 && message[0]==FORMAT_MARKER;
+    }
+
+    private static void writeHeader(byte[] dest,byte codec){
+        dest[0]=FORMAT_MARKER;
+        dest[1]=FORMAT_VERSION;
+        dest[2]=codec;
+    }
+
+    private static void writeInt(int value,byte[] dest,int offset){
+        dest[offset]=(byte)(value>>>24);
+        dest[offset+1]=(byte)(value>>>16);
+        dest[offset+2]=(byte)(value>>>8);
+        dest[offset+3]=(byte)value;
+    }
+
+    private static int readInt(byte[] src,int offset){
+        return ((src[offset]&0xFF)<<24)
+                |((src[offset+1]&0xFF)<<16)
+                |((src[offset+2]&0xFF)<<8)
+                |(src[offset+3]&0xFF);
+    }
+
+    /*
+     * Streams are written as a sequence of blocks, each of which looks like:
+     *
+     * codec (1 byte)
+     * uncompressed length (4 bytes)
+     * payload length (4 bytes)
+     * payload
+     */
+    private static class BlockOutputStream extends FilterOutputStream{
+        private final DataOutputStream dataOut;
+        private final boolean compressionEnabled;
+        private final byte[] block=new byte[STREAM_BLOCK_SIZE];
+        private byte[] compressed;
+        private int position;
+
+        BlockOutputStream(OutputStream out,boolean compressionEnabled){
+            super(out);
+            this.dataOut=new DataOutputStream(out);
+            this.compressionEnabled=compressionEnabled;
+        }
+
+        @Override
+        public void write(int b) throws IOException{
+            if(position==block.length)
+                writeBlock();
+            block[position++]=(byte)b;
+        }
+
+        @Override
+        public void write(byte[] b,int off,int len) throws IOException{
+            while(len>0){
+                if(position==block.length)
+                    writeBlock();
+                int toCopy=Math.min(len,block.length-position);
+                System.arraycopy(b,off,block,position,toCopy);
+                position+=toCopy;
+                off+=toCopy;
+                len-=toCopy;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException{
+            writeBlock();
+            dataOut.flush();
+        }
+
+        @Override
+        public void close() throws IOException{
+            flush();
+            dataOut.close();
+        }
+
+        private void writeBlock() throws IOException{
+            if(position==0) return;
+            if(compressionEnabled && position>=MIN_COMPRESSION_SIZE){
+                if(compressed==null)
+                    compressed=new byte[LZ4BlockCodec.maxCompressedLength(block.length)];
+                int cLen=codecs.get().compress(block,0,position,compressed,0);
+                if(cLen<position){
+                    writeBlock(CODEC_LZ4,compressed,cLen);
+                    return;
+                }
+            }
+            writeBlock(CODEC_NONE,block,position);
+        }
+
+        private void writeBlock(byte codec,byte[] payload,int payloadLength) throws IOException{
+            dataOut.writeByte(codec);
+            dataOut.writeInt(position);
+            dataOut.writeInt(payloadLength);
+            dataOut.write(payload,0,payloadLength);
+            position=0;
+        }
+    }
+
+    private static class BlockInputStream extends InputStream{
+        private final DataInputStream dataIn;
+        private byte[] block=new byte[0];
+        private byte[] compressed;
+        private int position;
+        private int limit;
+
+        BlockInputStream(InputStream in){
+            this.dataIn=new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException{
+            if(position==limit && !readBlock()) return -1;
+            return block[position++]&0xFF;
+        }
+
+        @Override
+        public int read(byte[] b,int off,int len) throws IOException{
+            if(len==0) return 0;
+            if(position==limit && !readBlock()) return -1;
+            int toCopy=Math.min(len,limit-position);
+            System.arraycopy(block,position,b,off,toCopy);
+            position+=toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() throws IOException{
+            return limit-position;
+        }
+
+        @Override
+        public void close() throws IOException{
+            dataIn.close();
+        }
+
+        private boolean readBlock() throws IOException{
+            int codec;
+            do{
+                codec=dataIn.read();
+                if(codec<0) return false;
+                int uncompressedLength=dataIn.readInt();
+                int payloadLength=dataIn.readInt();
+                if(block.length<uncompressedLength)
+                    block=new byte[uncompressedLength];
+                switch(codec){
+                    case CODEC_NONE:
+                        dataIn.readFully(block,0,payloadLength);
+                        break;
+                    case CODEC_LZ4:
+                        if(compressed==null || compressed.length<payloadLength)
+                            compressed=new byte[payloadLength];
+                        dataIn.readFully(compressed,0,payloadLength);
+                        LZ4BlockCodec.decompress(compressed,0,payloadLength,block,0,uncompressedLength);
+                        break;
+                    default:
+                        throw new IOException("Unknown pipeline compression codec: "+codec);
+                }
+                position=0;
+                limit=uncompressedLength;
+            }while(limit==0);
+            return true;
+        }
+    }
+}
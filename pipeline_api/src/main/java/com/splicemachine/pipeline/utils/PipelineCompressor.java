@@ -32,4 +32,10 @@ public interface PipelineCompressor{
    byte[] compress(Object o) throws IOException;
 
    <T> T decompress(byte[] bytes, Class<T> clazz) throws IOException;
+
+   /**
+    * Compress a reply so that whoever sent the request it answers is able to read it, even if
+    * the sender uses an older message format than this compressor writes by default.
+    */
+   byte[] compressReply(Object reply, byte[] request) throws IOException;
 }
@@ -34,10 +34,20 @@ import java.io.OutputStream;
 public class SimplePipelineCompressor implements PipelineCompressor{
     private final TxnOperationFactory txnOperationFactory;
     private final KryoPool kp;
+    private final boolean legacyFormat;
 
     public SimplePipelineCompressor(KryoPool kp,TxnOperationFactory txnOperationFactory){
+        this(kp,txnOperationFactory,false);
+    }
+
+    /**
+     * @param legacyFormat if true, encode BulkWrites in the format of servers which predate its versioned
+     *                     encoding (see {@link PipelineEncoding#encode(TxnOperationFactory, BulkWrites, boolean)})
+     */
+    public SimplePipelineCompressor(KryoPool kp,TxnOperationFactory txnOperationFactory,boolean legacyFormat){
         this.txnOperationFactory = txnOperationFactory;
         this.kp = kp;
+        this.legacyFormat = legacyFormat;
     }
 
     @Override
@@ -54,7 +64,7 @@ public class SimplePipelineCompressor implements PipelineCompressor{
     public byte[] compress(Object o) throws IOException{
         if(o instanceof BulkWrites){
             BulkWrites bw = (BulkWrites)o;
-            return PipelineEncoding.encode(txnOperationFactory,bw);
+            return PipelineEncoding.encode(txnOperationFactory,bw,legacyFormat);
         }else {
             Output out = new Output(128,-1);
             Kryo kryo = kp.get();
@@ -68,6 +78,11 @@ public class SimplePipelineCompressor implements PipelineCompressor{
         }
     }
 
+    @Override
+    public byte[] compressReply(Object reply,byte[] request) throws IOException{
+        return compress(reply);
+    }
+
     @Override
     public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException{
         if(clazz.isAssignableFrom(BulkWrites.class))
@@ -34,6 +34,7 @@ import com.splicemachine.pipeline.api.Writer;
 import com.splicemachine.pipeline.client.ActionStatusReporter;
 import com.splicemachine.pipeline.client.BulkWriteAction;
 import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.ServerWriteThrottle;
 import com.splicemachine.pipeline.config.CountingWriteConfiguration;
 import com.splicemachine.pipeline.config.WriteConfiguration;
 import com.splicemachine.pipeline.threadpool.MonitoredThreadPool;
@@ -52,12 +53,22 @@ public class AsyncBucketingWriter implements Writer {
     private final BulkWriterFactory writerFactory;
     private final PartitionFactory partitionFactory;
     private final Clock clock;
+    private final ServerWriteThrottle throttle;
 
     public AsyncBucketingWriter(MonitoredThreadPool writerPool,
                                 BulkWriterFactory writerFactory,
                                 PipelineExceptionFactory exceptionFactory,
                                 PartitionFactory partitionFactory,
                                 Clock clock) {
+        this(writerPool,writerFactory,exceptionFactory,partitionFactory,clock,null);
+    }
+
+    public AsyncBucketingWriter(MonitoredThreadPool writerPool,
+                                BulkWriterFactory writerFactory,
+                                PipelineExceptionFactory exceptionFactory,
+                                PartitionFactory partitionFactory,
+                                Clock clock,
+                                ServerWriteThrottle throttle) {
         this.writerPool = writerPool;
         this.statusMonitor = new ActionStatusReporter();
         this.monitor = new ActionStatusMonitor(statusMonitor);
@@ -65,6 +76,7 @@ public class AsyncBucketingWriter implements Writer {
         this.writerFactory = writerFactory;
         this.partitionFactory = partitionFactory;
         this.clock = clock;
+        this.throttle = throttle;
     }
 
     @Override
@@ -78,7 +90,8 @@ public class AsyncBucketingWriter implements Writer {
                 writerFactory,
                 exceptionFactory,
                 partitionFactory,
-                clock);
+                clock,
+                throttle);
         statusMonitor.totalFlushesSubmitted.incrementAndGet();
         return writerPool.submit(action);
     }
@@ -24,6 +24,7 @@ import com.splicemachine.pipeline.api.Writer;
 import com.splicemachine.pipeline.client.ActionStatusReporter;
 import com.splicemachine.pipeline.client.BulkWriteAction;
 import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.ServerWriteThrottle;
 import com.splicemachine.pipeline.config.CountingWriteConfiguration;
 import com.splicemachine.pipeline.config.WriteConfiguration;
 import com.splicemachine.pipeline.writerstatus.ActionStatusMonitor;
@@ -46,17 +47,27 @@ public class SynchronousBucketingWriter implements Writer{
     private final PipelineExceptionFactory exceptionFactory;
     private final PartitionFactory partitionFactory;
     private final Clock clock;
+    private final ServerWriteThrottle throttle;
 
     public SynchronousBucketingWriter(BulkWriterFactory writerFactory,
                                       PipelineExceptionFactory exceptionFactory,
                                       PartitionFactory partitionFactory,
                                       Clock clock){
+        this(writerFactory,exceptionFactory,partitionFactory,clock,null);
+    }
+
+    public SynchronousBucketingWriter(BulkWriterFactory writerFactory,
+                                      PipelineExceptionFactory exceptionFactory,
+                                      PartitionFactory partitionFactory,
+                                      Clock clock,
+                                      ServerWriteThrottle throttle){
         this.writerFactory=writerFactory;
         this.exceptionFactory=exceptionFactory;
         this.partitionFactory=partitionFactory;
         this.statusMonitor=new ActionStatusReporter();
         this.monitor=new ActionStatusMonitor(statusMonitor);
         this.clock = clock;
+        this.throttle = throttle;
 
     }
 
@@ -73,7 +84,8 @@ public class SynchronousBucketingWriter implements Writer{
                 writerFactory,
                 exceptionFactory,
                 partitionFactory,
-                clock);
+                clock,
+                throttle);
         statusMonitor.totalFlushesSubmitted.incrementAndGet();
         Exception e=null;
         WriteStats stats=null;
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.pipeline;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.api.Code;
+import com.splicemachine.pipeline.api.PipelineExceptionFactory;
+import com.splicemachine.pipeline.api.PipelineMeter;
+import com.splicemachine.pipeline.api.WritePipelineFactory;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWriteResult;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.BulkWritesResult;
+import com.splicemachine.pipeline.client.WriteCoordinator;
+import com.splicemachine.pipeline.client.WriteResult;
+import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
+import com.splicemachine.pipeline.traffic.WriteStatus;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineWriterTest{
+    private final ExecutorService executor=Executors.newFixedThreadPool(4);
+    private final SynchronousWriteControl writeControl=new SynchronousWriteControl(10,10,1000,1000);
+    private final Set<String> writingThreads=Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @After
+    public void tearDown() throws Exception{
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIndependentRegionsAreWrittenInParallel() throws Exception{
+        //each region waits until all of them have started, which can only happen if they run concurrently
+        CountDownLatch allStarted=new CountDownLatch(3);
+        WritePipelineFactory pipelines=mock(WritePipelineFactory.class);
+        for(String region : Arrays.asList("r0","r1","r2")){
+            PartitionWritePipeline pwp=pipeline(region,false,allStarted);
+            when(pipelines.getPipeline(region)).thenReturn(pwp);
+        }
+        PipelineWriter writer=writer(pipelines);
+
+        BulkWritesResult result=writer.bulkWrite(bulkWrites("r0","missing","r1","r2"));
+        assertResultsInOrder(result,"r0",null,"r1","r2");
+        Assert.assertTrue("Regions were not written by more than one thread",writingThreads.size()>1);
+        assertPermitsReleased();
+    }
+
+    @Test
+    public void testDependentRegionsAreWrittenByTheCaller() throws Exception{
+        WritePipelineFactory pipelines=mock(WritePipelineFactory.class);
+        for(String region : Arrays.asList("r0","r1","r2")){
+            PartitionWritePipeline pwp=pipeline(region,true,null);
+            when(pipelines.getPipeline(region)).thenReturn(pwp);
+        }
+        PipelineWriter writer=writer(pipelines);
+
+        BulkWritesResult result=writer.bulkWrite(bulkWrites("r0","r1","r2"));
+        assertResultsInOrder(result,"r0","r1","r2");
+        Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()),writingThreads);
+        assertPermitsReleased();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private PipelineWriter writer(WritePipelineFactory pipelines){
+        PipelineWriter writer=new PipelineWriter(mock(PipelineExceptionFactory.class),pipelines,writeControl,
+                mock(PipelineMeter.class),executor);
+        writer.setWriteCoordinator(mock(WriteCoordinator.class));
+        return writer;
+    }
+
+    private PartitionWritePipeline pipeline(final String region,boolean dependent,final CountDownLatch allStarted) throws Exception{
+        PartitionWritePipeline pwp=mock(PartitionWritePipeline.class);
+        when(pwp.isDependent(any(TxnView.class))).thenReturn(dependent);
+        when(pwp.submitBulkWrite(any(TxnView.class),any(BulkWrite.class),any(),any()))
+                .thenReturn(new BulkWriteResult(WriteResult.success()));
+        when(pwp.finishWrite(any(BulkWriteResult.class),any(BulkWrite.class))).thenAnswer(new Answer<BulkWriteResult>(){
+            @Override
+            public BulkWriteResult answer(InvocationOnMock invocation) throws Throwable{
+                writingThreads.add(Thread.currentThread().getName());
+                if(allStarted!=null){
+                    allStarted.countDown();
+                    Assert.assertTrue("Regions were not written concurrently",allStarted.await(10,TimeUnit.SECONDS));
+                }
+                return new BulkWriteResult(new WriteResult(Code.SUCCESS,region));
+            }
+        });
+        return pwp;
+    }
+
+    private static BulkWrites bulkWrites(String... regions){
+        List<BulkWrite> writes=new ArrayList<>(regions.length);
+        for(String region : regions){
+            List<KVPair> mutations=Collections.singletonList(new KVPair(new byte[]{1},new byte[]{2}));
+            writes.add(new BulkWrite(mutations,region));
+        }
+        return new BulkWrites(writes,Txn.ROOT_TRANSACTION);
+    }
+
+    private static void assertResultsInOrder(BulkWritesResult result,String... regions){
+        List<BulkWriteResult> results=new ArrayList<>(result.getBulkWriteResults());
+        Assert.assertEquals(regions.length,results.size());
+        for(int i=0;i<regions.length;i++){
+            WriteResult globalResult=results.get(i).getGlobalResult();
+            if(regions[i]==null)
+                Assert.assertEquals(Code.NOT_SERVING_REGION,globalResult.getCode());
+            else
+                Assert.assertEquals("Result out of order",regions[i],globalResult.getErrorMessage());
+        }
+    }
+
+    private void assertPermitsReleased(){
+        WriteStatus status=writeControl.getWriteStatus();
+        Assert.assertEquals(0,status.getDependentWriteThreads());
+        Assert.assertEquals(0,status.getIndependentWriteThreads());
+    }
+}
@@ -1,83 +1,151 @@
-//package com.splicemachine.pipeline.client;
-//
-//import com.splicemachine.kvpair.KVPair;
-//import com.splicemachine.primitives.Bytes;
-//import com.splicemachine.si.api.txn.TxnView;
-//import com.splicemachine.si.impl.txn.ActiveWriteTxn;
-//import org.junit.Assert;
-//import org.junit.Test;
-//
-//import java.util.ArrayList;
-//import java.util.Arrays;
-//import java.util.Collection;
-//import java.util.Iterator;
-//
-//TODO -sf- move this to hbase_pipeline
-//public class PipelineEncodingTest {
-//
-//    @Test
-//    public void testCanEncodeAndDecodeASingleBulkWrite() throws Exception {
-//        TxnView txnView = new ActiveWriteTxn(1l,1l);
-//
-//        Collection<BulkWrite> bws = generateBulkWrites(1);
-//        BulkWrites toEncode = new BulkWrites(bws,txnView);
-//
-//        byte[] bytes = PipelineEncoding.encode(toEncode);
-//        BulkWrites decoded = PipelineEncoding.decode(bytes);
-//        assertMatches("Incorrect BulkWrites",toEncode,decoded);
-//    }
-//
-//    @Test
-//    public void testCanEncodeAndDecodeMultipleBulkWrites() throws Exception {
-//        TxnView txnView = new ActiveWriteTxn(1l,1l);
-//
-//        Collection<BulkWrite> bws = generateBulkWrites(10);
-//        BulkWrites toEncode = new BulkWrites(bws,txnView);
-//
-//        byte[] bytes = PipelineEncoding.encode(toEncode);
-//        BulkWrites decoded = PipelineEncoding.decode(bytes);
-//        assertMatches("Incorrect BulkWrites",toEncode,decoded);
-//    }
-//
-//    private void assertMatches(String errorMsgPrefix, BulkWrites correct, BulkWrites actual) {
-//        Assert.assertEquals(errorMsgPrefix+": transaction ids don't match!",correct.getTxn().getTxnId(),actual.getTxn().getTxnId());
-//        Assert.assertEquals(errorMsgPrefix+": transaction write permission doesn't match!",correct.getTxn().allowsWrites(),actual.getTxn().allowsWrites());
-//        Collection<BulkWrite> correctBws = correct.getBulkWrites();
-//        Collection<BulkWrite> actualBws = actual.getBulkWrites();
-//        Assert.assertEquals(errorMsgPrefix+": bulk write size does not match!",correctBws.size(),actualBws.size());
-//        Iterator<BulkWrite> correctIter = correctBws.iterator();
-//        Iterator<BulkWrite> actualIter = actualBws.iterator();
-//        int pos =0;
-//        while(correctIter.hasNext()){
-//            BulkWrite cbw = correctIter.next();
-//            BulkWrite abw = actualIter.next();
-//            Assert.assertEquals(errorMsgPrefix+": Incorrect encodedStringName at pos "+ pos,cbw.getEncodedStringName(),abw.getEncodedStringName());
-//
-//            Collection<KVPair> cKvs = cbw.getMutations();
-//            Collection<KVPair> aKvs = abw.getMutations();
-//            Assert.assertEquals(errorMsgPrefix+": Incorrect kvPair size at pos "+ pos,cKvs.size(),aKvs.size());
-//            Iterator<KVPair> cKvIter = cKvs.iterator();
-//            Iterator<KVPair> aKvIter = aKvs.iterator();
-//            while(cKvIter.hasNext()){
-//                KVPair cKv = cKvIter.next();
-//                KVPair aKv = aKvIter.next();
-//                Assert.assertEquals(errorMsgPrefix+": KVPair row not correct",cKv.rowKeySlice(),aKv.rowKeySlice());
-//                Assert.assertEquals(errorMsgPrefix+": KVPair value not correct",cKv.valueSlice(),aKv.valueSlice());
-//                Assert.assertEquals(errorMsgPrefix+": KVPair type not correct",cKv.getType(),aKv.getType());
-//            }
-//        }
-//    }
-//
-//    private Collection<BulkWrite> generateBulkWrites(int size) {
-//        Collection<BulkWrite> bws = new ArrayList<>(size);
-//        for(int i=0;i<size;i++){
-//            Collection<KVPair> kvPairs = new ArrayList<>(Arrays.asList(
-//                new KVPair(Bytes.toBytes(i), Bytes.toBytes(i + 2),KVPair.Type.INSERT),
-//                new KVPair(Bytes.toBytes(i+1), Bytes.toBytes(Integer.toString(2*i)),KVPair.Type.DELETE),
-//                    new KVPair(Bytes.toBytes(i+2), Bytes.toBytes(i/.2f),KVPair.Type.UPDATE)
-//            ));
-//            bws.add(new BulkWrite(kvPairs,Integer.toString(i)));
-//        }
-//        return bws;
-//    }
-//}
\ No newline at end of file
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+public class PipelineEncodingTest {
+    private static final TxnOperationFactory operationFactory = new SimpleTxnOperationFactory(null,null);
+
+    @Test
+    public void testCanEncodeAndDecodeASingleBulkWrite() throws Exception {
+        TxnView txnView = new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+
+        Collection<BulkWrite> bws = generateBulkWrites(1);
+        BulkWrites toEncode = new BulkWrites(bws,txnView);
+
+        byte[] bytes = PipelineEncoding.encode(operationFactory,toEncode);
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,bytes);
+        assertMatches("Incorrect BulkWrites",toEncode,decoded);
+    }
+
+    @Test
+    public void testCanEncodeAndDecodeMultipleBulkWrites() throws Exception {
+        TxnView txnView = new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+
+        Collection<BulkWrite> bws = generateBulkWrites(10);
+        BulkWrites toEncode = new BulkWrites(bws,txnView);
+
+        byte[] bytes = PipelineEncoding.encode(operationFactory,toEncode);
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,bytes);
+        assertMatches("Incorrect BulkWrites",toEncode,decoded);
+    }
+
+    @Test
+    public void testSharedRowKeyPrefixesAreNotRepeated() throws Exception {
+        TxnView txnView = new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        byte[] prefix = new byte[64];
+        Arrays.fill(prefix,(byte)0x7F);
+        Collection<KVPair> kvPairs = new ArrayList<>();
+        for(int i=0;i<100;i++){
+            kvPairs.add(new KVPair(Bytes.concat(Arrays.asList(prefix,Bytes.toBytes(i))),Bytes.toBytes(i),KVPair.Type.INSERT));
+        }
+        //keys which share nothing, are shorter than their predecessor, and are empty
+        kvPairs.add(new KVPair(Bytes.toBytes(1),Bytes.toBytes(1),KVPair.Type.UPSERT));
+        kvPairs.add(new KVPair(new byte[]{},Bytes.toBytes(2),KVPair.Type.DELETE));
+        kvPairs.add(new KVPair(prefix,Bytes.toBytes(3),KVPair.Type.UPDATE));
+        BulkWrites toEncode = new BulkWrites(Arrays.asList(new BulkWrite(kvPairs,"1")),txnView);
+
+        byte[] bytes = PipelineEncoding.encode(operationFactory,toEncode);
+        Assert.assertTrue("Row key prefixes were not compressed!",bytes.length<100*prefix.length);
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,bytes);
+        assertMatches("Incorrect BulkWrites",toEncode,decoded);
+    }
+
+    @Test
+    public void testDecodesLegacyEncoding() throws Exception {
+        TxnView txnView = new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+
+        Collection<BulkWrite> bws = generateBulkWrites(10);
+        BulkWrites toEncode = new BulkWrites(bws,txnView);
+
+        byte[] bytes = PipelineEncoding.encode(operationFactory,toEncode,true);
+        Assert.assertNotEquals("Legacy encoding should not be versioned",PipelineEncoding.FORMAT_MARKER,bytes[0]);
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,bytes);
+        assertMatches("Incorrect BulkWrites",toEncode,decoded);
+    }
+
+    @Test
+    public void testEncodingIsVersioned() throws Exception {
+        TxnView txnView = new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        byte[] bytes = PipelineEncoding.encode(operationFactory,new BulkWrites(generateBulkWrites(1),txnView));
+        Assert.assertEquals(PipelineEncoding.FORMAT_MARKER,bytes[0]);
+        Assert.assertEquals(PipelineEncoding.PREFIX_KEY_VERSION,bytes[1]);
+
+        bytes[1] = (byte)(PipelineEncoding.PREFIX_KEY_VERSION+1);
+        try{
+            PipelineEncoding.decode(operationFactory,bytes);
+            Assert.fail("Decoded an unknown encoding version");
+        }catch(IllegalArgumentException expected){
+        }
+    }
+
+    private void assertMatches(String errorMsgPrefix, BulkWrites correct, BulkWrites actual) {
+        Assert.assertEquals(errorMsgPrefix+": transaction ids don't match!",correct.getTxn().getTxnId(),actual.getTxn().getTxnId());
+        Assert.assertEquals(errorMsgPrefix+": transaction write permission doesn't match!",correct.getTxn().allowsWrites(),actual.getTxn().allowsWrites());
+        Collection<BulkWrite> correctBws = correct.getBulkWrites();
+        Collection<BulkWrite> actualBws = actual.getBulkWrites();
+        Assert.assertEquals(errorMsgPrefix+": bulk write size does not match!",correctBws.size(),actualBws.size());
+        Iterator<BulkWrite> correctIter = correctBws.iterator();
+        Iterator<BulkWrite> actualIter = actualBws.iterator();
+        int pos =0;
+        while(correctIter.hasNext()){
+            BulkWrite cbw = correctIter.next();
+            BulkWrite abw = actualIter.next();
+            Assert.assertEquals(errorMsgPrefix+": Incorrect encodedStringName at pos "+ pos,cbw.getEncodedStringName(),abw.getEncodedStringName());
+
+            Collection<KVPair> cKvs = cbw.getMutations();
+            Collection<KVPair> aKvs = abw.getMutations();
+            Assert.assertEquals(errorMsgPrefix+": Incorrect kvPair size at pos "+ pos,cKvs.size(),aKvs.size());
+            Iterator<KVPair> cKvIter = cKvs.iterator();
+            Iterator<KVPair> aKvIter = aKvs.iterator();
+            while(cKvIter.hasNext()){
+                KVPair cKv = cKvIter.next();
+                KVPair aKv = aKvIter.next();
+                Assert.assertArrayEquals(errorMsgPrefix+": KVPair row not correct",cKv.getRowKey(),aKv.getRowKey());
+                Assert.assertArrayEquals(errorMsgPrefix+": KVPair value not correct",cKv.getValue(),aKv.getValue());
+                Assert.assertEquals(errorMsgPrefix+": KVPair type not correct",cKv.getType(),aKv.getType());
+            }
+            pos++;
+        }
+    }
+
+    private Collection<BulkWrite> generateBulkWrites(int size) {
+        Collection<BulkWrite> bws = new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            Collection<KVPair> kvPairs = new ArrayList<>(Arrays.asList(
+                new KVPair(Bytes.toBytes(i), Bytes.toBytes(i + 2),KVPair.Type.INSERT),
+                new KVPair(Bytes.toBytes(i+1), Bytes.toBytes(Integer.toString(2*i)),KVPair.Type.DELETE),
+                    new KVPair(Bytes.toBytes(i+2), Bytes.toBytes(i/.2f),KVPair.Type.UPDATE)
+            ));
+            bws.add(new BulkWrite(kvPairs,Integer.toString(i)));
+        }
+        return bws;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Category(ArchitectureIndependent.class)
+public class ServerWriteThrottleTest{
+    private static final String SERVER="host1:16020";
+
+    @Test
+    public void testStartsAtTheMaximumLimits() throws Exception{
+        ServerWriteThrottle throttle=new ServerWriteThrottle(8,1000);
+        Assert.assertEquals(8,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(1000,throttle.batchSize(SERVER));
+
+        long ticket=throttle.acquire(SERVER);
+        throttle.succeeded(SERVER,ticket,result(10,1000));
+        Assert.assertEquals("Should not grow beyond the maximum",8,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals("Should not grow beyond the maximum",1000,throttle.batchSize(SERVER));
+    }
+
+    @Test
+    public void testRejectionHalvesLimitsOncePerRound() throws Exception{
+        ServerWriteThrottle throttle=new ServerWriteThrottle(8,1000);
+        long[] tickets=new long[4];
+        for(int i=0;i<tickets.length;i++){
+            tickets[i]=throttle.acquire(SERVER);
+        }
+        for(long ticket : tickets){
+            throttle.rejected(SERVER,ticket);
+        }
+        Assert.assertEquals("Writes sent before the cut should not cut again",4,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(500,throttle.batchSize(SERVER));
+
+        long ticket=throttle.acquire(SERVER);
+        throttle.rejected(SERVER,ticket);
+        Assert.assertEquals(2,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(250,throttle.batchSize(SERVER));
+    }
+
+    @Test
+    public void testHighLoadCutsLimitsAndLowLoadRestoresThemGradually() throws Exception{
+        ServerWriteThrottle throttle=new ServerWriteThrottle(4,320);
+        long ticket=throttle.acquire(SERVER);
+        throttle.succeeded(SERVER,ticket,result(950,50));
+        Assert.assertEquals(2,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(160,throttle.batchSize(SERVER));
+
+        ticket=throttle.acquire(SERVER);
+        throttle.succeeded(SERVER,ticket,result(100,900));
+        Assert.assertEquals("Should grow by a fraction of a write at a time",2,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(170,throttle.batchSize(SERVER));
+
+        for(int i=0;i<100;i++){
+            ticket=throttle.acquire(SERVER);
+            throttle.succeeded(SERVER,ticket,new BulkWritesResult(Collections.<BulkWriteResult>emptyList()));
+        }
+        Assert.assertEquals(4,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(320,throttle.batchSize(SERVER));
+    }
+
+    @Test
+    public void testLimitsAreKeptPerServer() throws Exception{
+        ServerWriteThrottle throttle=new ServerWriteThrottle(8,1000);
+        long ticket=throttle.acquire(SERVER);
+        throttle.rejected(SERVER,ticket);
+        Assert.assertEquals(4,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(8,throttle.concurrencyLimit("host2:16020"));
+    }
+
+    @Test
+    public void testFailureDoesNotChangeLimits() throws Exception{
+        ServerWriteThrottle throttle=new ServerWriteThrottle(8,1000);
+        throttle.acquire(SERVER);
+        throttle.failed(SERVER);
+        Assert.assertEquals(8,throttle.concurrencyLimit(SERVER));
+        Assert.assertEquals(1000,throttle.batchSize(SERVER));
+    }
+
+    @Test(timeout=10000)
+    public void testAcquireWaitsForAnOutstandingWrite() throws Exception{
+        final ServerWriteThrottle throttle=new ServerWriteThrottle(1,1000);
+        final long ticket=throttle.acquire(SERVER);
+
+        final CountDownLatch acquired=new CountDownLatch(1);
+        final AtomicBoolean released=new AtomicBoolean(false);
+        final AtomicBoolean acquiredAfterRelease=new AtomicBoolean(false);
+        Thread writer=new Thread(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    throttle.acquire(SERVER);
+                    acquiredAfterRelease.set(released.get());
+                    acquired.countDown();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+        Assert.assertFalse("Should not be able to exceed the limit",acquired.await(100,TimeUnit.MILLISECONDS));
+
+        released.set(true);
+        throttle.succeeded(SERVER,ticket,result(0,1000));
+        Assert.assertTrue("Should acquire once the outstanding write is released",acquired.await(5,TimeUnit.SECONDS));
+        Assert.assertTrue(acquiredAfterRelease.get());
+        writer.join();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static BulkWritesResult result(int queueDepth,int permitHeadroom){
+        return new BulkWritesResult(Collections.<BulkWriteResult>emptyList(),queueDepth,permitHeadroom);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.utils;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+public class LZ4PipelineCompressorTest{
+    private static final TxnOperationFactory operationFactory=new SimpleTxnOperationFactory(null,null);
+
+    @Test
+    public void testRoundTripsCompressedAndUncompressedMessages() throws Exception{
+        byte[] compressible=new byte[4096];
+        byte[] small=Bytes.toBytes("small");
+        for(String codec:Arrays.asList(LZ4PipelineCompressor.LZ4,LZ4PipelineCompressor.NONE)){
+            PipelineCompressor compressor=new LZ4PipelineCompressor(new BytesCompressor(),codec);
+            for(byte[] message:Arrays.asList(compressible,small)){
+                byte[] compressed=compressor.compress(message);
+                Assert.assertEquals(LZ4PipelineCompressor.FORMAT_MARKER,compressed[0]);
+                Assert.assertEquals(LZ4PipelineCompressor.FORMAT_VERSION,compressed[1]);
+                Assert.assertArrayEquals(codec,message,compressor.decompress(compressed,byte[].class));
+            }
+        }
+        Assert.assertEquals(LZ4PipelineCompressor.CODEC_LZ4,
+                new LZ4PipelineCompressor(new BytesCompressor(),LZ4PipelineCompressor.LZ4).compress(compressible)[2]);
+    }
+
+    @Test
+    public void testReadsAndAnswersMessagesWithoutHeader() throws Exception{
+        PipelineCompressor compressor=new LZ4PipelineCompressor(new BytesCompressor(),LZ4PipelineCompressor.LZ4);
+        byte[] request=new byte[]{(byte)0x81,1,2,3};
+        Assert.assertArrayEquals(request,compressor.decompress(request,byte[].class));
+
+        byte[] reply=new byte[1024];
+        Assert.assertArrayEquals("A request without a header should get a reply without one",
+                reply,compressor.compressReply(reply,request));
+        byte[] framedReply=compressor.compressReply(reply,compressor.compress(request));
+        Assert.assertEquals(LZ4PipelineCompressor.FORMAT_MARKER,framedReply[0]);
+        Assert.assertArrayEquals(reply,compressor.decompress(framedReply,byte[].class));
+    }
+
+    @Test
+    public void testLegacyCodecWritesNoHeader() throws Exception{
+        PipelineCompressor compressor=new LZ4PipelineCompressor(new BytesCompressor(),LZ4PipelineCompressor.LEGACY);
+        byte[] message=new byte[1024];
+        Assert.assertArrayEquals(message,compressor.compress(message));
+
+        PipelineCompressor lz4=new LZ4PipelineCompressor(new BytesCompressor(),LZ4PipelineCompressor.LZ4);
+        Assert.assertArrayEquals("A legacy sender should still read the current format",
+                message,compressor.decompress(lz4.compress(message),byte[].class));
+    }
+
+    @Test(expected=IOException.class)
+    public void testRejectsUnknownVersion() throws Exception{
+        PipelineCompressor compressor=new LZ4PipelineCompressor(new BytesCompressor(),LZ4PipelineCompressor.LZ4);
+        byte[] compressed=compressor.compress(new byte[16]);
+        compressed[1]=LZ4PipelineCompressor.FORMAT_VERSION+1;
+        compressor.decompress(compressed,byte[].class);
+    }
+
+    @Test
+    public void testBulkWritesCrossBetweenLegacyAndCurrentSenders() throws Exception{
+        KryoPool kryoPool=new KryoPool(1);
+        PipelineCompressor legacy=new LZ4PipelineCompressor(new SimplePipelineCompressor(kryoPool,operationFactory,true),
+                LZ4PipelineCompressor.LEGACY);
+        PipelineCompressor current=new LZ4PipelineCompressor(new SimplePipelineCompressor(kryoPool,operationFactory),
+                LZ4PipelineCompressor.LZ4);
+
+        Collection<KVPair> kvPairs=new ArrayList<>();
+        for(int i=0;i<100;i++){
+            kvPairs.add(new KVPair(Bytes.toBytes("row-key-"+i),Bytes.toBytes(i),KVPair.Type.INSERT));
+        }
+        BulkWrites bulkWrites=new BulkWrites(Arrays.asList(new BulkWrite(kvPairs,"1")),
+                new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION));
+
+        assertSameMutations(kvPairs,current.decompress(legacy.compress(bulkWrites),BulkWrites.class));
+        assertSameMutations(kvPairs,legacy.decompress(current.compress(bulkWrites),BulkWrites.class));
+    }
+
+    private static void assertSameMutations(Collection<KVPair> expected,BulkWrites actual){
+        Iterator<KVPair> actualIter=actual.getBulkWrites().iterator().next().getMutations().iterator();
+        for(KVPair kvPair:expected){
+            KVPair actualPair=actualIter.next();
+            Assert.assertArrayEquals(kvPair.getRowKey(),actualPair.getRowKey());
+            Assert.assertArrayEquals(kvPair.getValue(),actualPair.getValue());
+        }
+        Assert.assertFalse(actualIter.hasNext());
+    }
+
+    /* passes byte arrays through untouched, so the tests see exactly what the header wraps */
+    private static class BytesCompressor implements PipelineCompressor{
+        @Override public InputStream compressedInput(InputStream input){ return input; }
+        @Override public OutputStream compress(OutputStream output){ return output; }
+        @Override public byte[] compress(Object o){ return ((byte[])o).clone(); }
+        @Override public byte[] compressReply(Object reply,byte[] request){ return compress(reply); }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T decompress(byte[] bytes,Class<T> clazz){
+            return (T)bytes.clone();
+        }
+    }
+}
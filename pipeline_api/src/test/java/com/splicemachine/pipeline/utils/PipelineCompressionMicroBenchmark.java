@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.utils;
+
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the encode/decode throughput and the number of bytes put on the wire by the
+ * write pipeline compressors, using BulkWrites which look like TPC-C NEW_ORDER transactions
+ * (an ORDER_LINE insert batch along with its index maintenance, and a STOCK update batch).
+ *
+ * Run directly with {@code main()}; this is not part of the unit test suite.
+ */
+public class PipelineCompressionMicroBenchmark{
+    private static final int WARMUP_ITERATIONS=2000;
+    private static final int ITERATIONS=20000;
+    private static final int ORDER_LINES_PER_BATCH=1000;
+
+    public static void main(String...args) throws IOException{
+        TxnOperationFactory operationFactory=new SimpleTxnOperationFactory(null,null);
+        PipelineCompressor simple=new SimplePipelineCompressor(new KryoPool(1),operationFactory);
+
+        BulkWrites batch=newOrderBatch(new Random(0l));
+        benchmark("uncompressed",new LZ4PipelineCompressor(simple,LZ4PipelineCompressor.NONE),batch);
+        System.out.println("-----");
+        benchmark("lz4",new LZ4PipelineCompressor(simple,LZ4PipelineCompressor.LZ4),batch);
+    }
+
+    private static void benchmark(String name,PipelineCompressor compressor,BulkWrites batch) throws IOException{
+        long sink=0l;
+        for(int i=0;i<WARMUP_ITERATIONS;i++){
+            sink+=roundTrip(compressor,batch);
+        }
+
+        byte[] encoded=null;
+        long start=System.nanoTime();
+        for(int i=0;i<ITERATIONS;i++){
+            encoded=compressor.compress(batch);
+        }
+        long encodeTime=System.nanoTime()-start;
+
+        start=System.nanoTime();
+        for(int i=0;i<ITERATIONS;i++){
+            sink+=consume(compressor.decompress(encoded,BulkWrites.class));
+        }
+        long decodeTime=System.nanoTime()-start;
+
+        int rows=batch.numEntries();
+        System.out.printf("%s: bytes on wire=%d (%.2f bytes/row)%n",name,encoded.length,(double)encoded.length/rows);
+        System.out.printf("%s: encode=%.2f us/batch (%.0f rows/s)%n",name,encodeTime/1000d/ITERATIONS,rows*ITERATIONS*1e9/encodeTime);
+        System.out.printf("%s: decode=%.2f us/batch (%.0f rows/s)%n",name,decodeTime/1000d/ITERATIONS,rows*ITERATIONS*1e9/decodeTime);
+        //print this out so that the loops don't get optimized away
+        System.out.printf("sink=%d%n",sink);
+    }
+
+    private static long roundTrip(PipelineCompressor compressor,BulkWrites batch) throws IOException{
+        return consume(compressor.decompress(compressor.compress(batch),BulkWrites.class));
+    }
+
+    private static long consume(BulkWrites bulkWrites){
+        long sum=0l;
+        for(BulkWrite bw:bulkWrites.getBulkWrites()){
+            for(KVPair kvPair:bw.getMutations()){
+                sum+=kvPair.rowKeySlice().length()+kvPair.valueSlice().length();
+            }
+        }
+        return sum;
+    }
+
+    private static BulkWrites newOrderBatch(Random random){
+        TxnView txn=new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,true,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        int warehouse=random.nextInt(100)+1;
+        int district=random.nextInt(10)+1;
+        int orderId=3001;
+
+        List<KVPair> orderLines=new ArrayList<>(ORDER_LINES_PER_BATCH);
+        List<KVPair> orderLineIndex=new ArrayList<>(ORDER_LINES_PER_BATCH);
+        List<KVPair> stock=new ArrayList<>(ORDER_LINES_PER_BATCH);
+        for(int i=0;i<ORDER_LINES_PER_BATCH;i++){
+            int lineNumber=i%15+1;
+            if(lineNumber==1) orderId++;
+            int itemId=random.nextInt(100000)+1;
+            byte[] key=MultiFieldEncoder.create(4)
+                    .encodeNext(warehouse).encodeNext(district).encodeNext(orderId).encodeNext(lineNumber)
+                    .build();
+            byte[] value=MultiFieldEncoder.create(6)
+                    .encodeNext(itemId)
+                    .encodeNext(warehouse)
+                    .encodeNext(System.currentTimeMillis())
+                    .encodeNext(5)
+                    .encodeNext(BigDecimal.valueOf(random.nextInt(999999),2))
+                    .encodeNext(distInfo(random))
+                    .build();
+            orderLines.add(new KVPair(key,value,KVPair.Type.INSERT));
+
+            byte[] indexKey=MultiFieldEncoder.create(3)
+                    .encodeNext(warehouse).encodeNext(itemId).encodeNext(orderId)
+                    .build();
+            orderLineIndex.add(new KVPair(indexKey,key,KVPair.Type.INSERT));
+
+            byte[] stockKey=MultiFieldEncoder.create(2).encodeNext(warehouse).encodeNext(itemId).build();
+            byte[] stockValue=MultiFieldEncoder.create(4)
+                    .encodeNext(random.nextInt(91)+10)
+                    .encodeNext(random.nextInt(1000))
+                    .encodeNext(random.nextInt(100))
+                    .encodeNext(0)
+                    .build();
+            stock.add(new KVPair(stockKey,stockValue,KVPair.Type.UPDATE));
+        }
+        Collection<BulkWrite> bws=Arrays.asList(
+                new BulkWrite(orderLines,"order_line"),
+                new BulkWrite(orderLineIndex,"order_line_idx"),
+                new BulkWrite(stock,"stock"));
+        return new BulkWrites(bws,txn);
+    }
+
+    private static String distInfo(Random random){
+        char[] chars=new char[24];
+        for(int i=0;i<chars.length;i++){
+            chars[i]=(char)('A'+random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -36,6 +36,27 @@ public interface PartitionAdmin extends AutoCloseable{
 
     void splitRegion(byte[] regionName, byte[]... splitPoints) throws IOException;
 
+    /**
+     * Open a new store file in the specified staging directory, to be loaded into the table later
+     * by {@link #bulkLoad(String, String)}.
+     *
+     * @param tableName the table that the file will be loaded into
+     * @param directory the staging directory for the table's files
+     * @return a writer for the new file
+     * @throws IOException if the file cannot be created
+     */
+    StoreFileWriter newStoreFile(String tableName,String directory) throws IOException;
+
+    /**
+     * Hand all of the store files in the staging directory to the partitions of the table which cover them,
+     * bypassing the write path of the table. Once a file has been loaded, all of its cells are visible.
+     *
+     * @param tableName the table to load
+     * @param directory the staging directory holding the files written by {@link #newStoreFile(String, String)}
+     * @throws IOException if the files cannot be loaded
+     */
+    void bulkLoad(String tableName,String directory) throws IOException;
+
     void close() throws IOException;
 
     Collection<PartitionServer> allServers() throws IOException;
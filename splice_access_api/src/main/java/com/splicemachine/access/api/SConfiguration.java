@@ -118,6 +118,10 @@ public interface SConfiguration {
 
     int getMaxWriterThreads();
 
+    int getRegionWriteThreads();
+
+    int getWriteMaxConcurrencyPerServer();
+
     int getPipelineKryoPoolSize();
 
     int getWriteMaxFlushesPerRegion();
@@ -130,6 +134,8 @@ public interface SConfiguration {
 
     long getThreadKeepaliveTime();
 
+    String getPipelineCompressionCodec();
+
     String getSparkIoCompressionCodec();
 
     int getSparkResultStreamingBatches();
@@ -138,6 +144,14 @@ public interface SConfiguration {
     // SIConfigurations
     int getActiveTransactionCacheSize();
 
+    int getSharedActiveTxnCacheSize();
+
+    long getSharedActiveTxnCacheTtl();
+
+    long getTxnLowWatermarkRefreshInterval();
+
+    int getTxnPrefetchRows();
+
     int getCompletedTxnCacheSize();
 
     int getCompletedTxnConcurrency();
@@ -213,6 +227,26 @@ public interface SConfiguration {
 
     int getNestedLoopJoinBatchSize();
 
+    int getNestedLoopJoinProbeBatchSize();
+
+    long getControlSideSpillThreshold();
+
+    String getControlSideSpillDirectory();
+
+    int getControlSideParallelism();
+
+    long getBroadcastJoinCacheSize();
+
+    long getBroadcastJoinCacheExpiration();
+
+    long getPinnedTableCacheSize();
+
+    int getVectorizedScanBatchSize();
+
+    double getBulkImportSampleFraction();
+
+    long getImportSplitSize();
+
     // StatsConfiguration
     double getFallbackNullFraction();
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.access.api;
+
+import java.io.IOException;
+
+/**
+ * Writes a single store file, to be handed to a table by {@link PartitionAdmin#bulkLoad(String, String)}
+ * without going through the write path of the table.
+ * <p/>
+ * Cells must be appended in the order in which the table stores them: ascending by row key, and within a
+ * row by family, qualifier, and then by descending version.
+ */
+public interface StoreFileWriter extends AutoCloseable{
+
+    void append(byte[] key,byte[] family,byte[] qualifier,long version,byte[] value) throws IOException;
+
+    /**
+     * @return the number of bytes appended to the file so far
+     */
+    long size();
+
+    @Override
+    void close() throws IOException;
+}
@@ -27,6 +27,10 @@ import com.splicemachine.access.api.SConfiguration;
 public class ConfigurationBuilder {
     // SIConfigurations
     public int activeTransactionCacheSize;
+    public int sharedActiveTxnCacheSize;
+    public long sharedActiveTxnCacheTtl;
+    public long txnLowWatermarkRefreshInterval;
+    public int txnPrefetchRows;
     public int completedTxnCacheSize;
     public int completedTxnConcurrency;
     public int readResolverQueueSize;
@@ -118,6 +122,16 @@ public class ConfigurationBuilder {
     public String upgradeForcedFrom;
     public String storageFactoryHome;
     public int nestedLoopJoinBatchSize;
+    public int nestedLoopJoinProbeBatchSize;
+    public long controlSideSpillThreshold;
+    public String controlSideSpillDirectory;
+    public int controlSideParallelism;
+    public long broadcastJoinCacheSize;
+    public long broadcastJoinCacheExpiration;
+    public long pinnedTableCacheSize;
+    public int vectorizedScanBatchSize;
+    public double bulkImportSampleFraction;
+    public long importSplitSize;
 
     // PipelineConfiguration
     public int coreWriterThreads;
@@ -128,11 +142,14 @@ public class ConfigurationBuilder {
     public int maxRetries;
     public int maxWriterThreads;
     public int pipelineKryoPoolSize;
+    public int regionWriteThreads;
+    public int writeMaxConcurrencyPerServer;
     public int writeMaxFlushesPerRegion;
     public long clientPause;
     public long maxBufferHeapSize;
     public long startupLockWaitPeriod;
     public long threadKeepaliveTime;
+    public String pipelineCompressionCodec;
     public String sparkIoCompressionCodec;
     public int sparkResultStreamingBatchSize;
     public int sparkResultStreamingBatches;
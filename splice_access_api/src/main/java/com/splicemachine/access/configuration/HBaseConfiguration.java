@@ -70,6 +70,19 @@ public class HBaseConfiguration implements ConfigurationDefault {
      */
     public static final String MINIMUM_ACTIVE_PATH = TRANSACTION_PATH+"/minimum";
 
+    /**
+     * The Path in zookeeper under which each server records the begin timestamp of its oldest active transaction.
+     * Defaults to [TRANSACTION_PATH]/oldestActive
+     */
+    public static final String OLDEST_ACTIVE_PATH = TRANSACTION_PATH+"/oldestActive";
+
+    /**
+     * The Path in zookeeper for storing the transaction low watermark, below which compactions discard
+     * versions which no transaction can see.
+     * Defaults to [TRANSACTION_PATH]/lowWatermark
+     */
+    public static final String LOW_WATERMARK_PATH = TRANSACTION_PATH+"/lowWatermark";
+
     /**
      * Path in ZooKeeper for manipulating Conglomerate information.
      * Defaults to /conglomerates
@@ -134,6 +147,8 @@ public class HBaseConfiguration implements ConfigurationDefault {
         CONGLOMERATE_SCHEMA_PATH,
         CONGLOMERATE_SCHEMA_PATH,
         MINIMUM_ACTIVE_PATH,
+        OLDEST_ACTIVE_PATH,
+        LOW_WATERMARK_PATH,
         TRANSACTION_PATH,
         MAX_RESERVED_TIMESTAMP_PATH,
         DDL_CHANGE_PATH,
@@ -145,6 +145,27 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String THREAD_KEEPALIVE_TIME= "hbase.htable.threads.keepalivetime";
     public static final long DEFAULT_THREAD_KEEPALIVE_TIME= 60;
 
+    /**
+     * The maximum number of threads which a region server may use to apply the regions of a single incoming
+     * write request in parallel (in addition to the IPC thread which received it). Only writes to tables without
+     * indexes are applied in parallel. Set to 0 to apply the regions of each request one at a time.
+     *
+     * Default is 8.
+     */
+    public static final String REGION_WRITE_THREADS= "splice.writer.regionWriteThreads";
+    public static final int DEFAULT_REGION_WRITE_THREADS= 8;
+
+    /**
+     * The maximum number of writes which a client may have outstanding against a single region server at
+     * once. The client lowers its own limit (and the size of the batches that it sends) when a server reports
+     * that it is close to its write limits or rejects a write, and raises it again gradually as the server
+     * recovers. Set to 0 to disable this throttling, so that rejected writes are simply retried after a pause.
+     *
+     * Default is 16.
+     */
+    public static final String WRITE_MAX_CONCURRENCY_PER_SERVER= "splice.client.write.maxConcurrencyPerServer";
+    public static final int DEFAULT_WRITE_MAX_CONCURRENCY_PER_SERVER= 16;
+
     public static final String MAX_INDEPENDENT_WRITES = "splice.client.write.maxIndependentWrites";
     public static final int DEFAULT_MAX_INDEPENDENT_WRITES = 40000;
 
@@ -157,6 +178,22 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String PIPELINE_KRYO_POOL_SIZE= "splice.writer.kryoPoolSize";
     private static final int DEFAULT_PIPELINE_KRYO_POOL_SIZE=1024;
 
+    /**
+     * The compression codec to use when sending BulkWrites over the network. Each request records
+     * the codec that it was compressed with, so servers and clients with different settings are able
+     * to communicate. Available options are "lz4", "none" and "legacy".
+     *
+     * Turn this to "none" if the network is not a bottleneck and CPU is scarce.
+     *
+     * "legacy" sends uncompressed messages in the format of releases which don't record the codec.
+     * Use it on upgraded servers while a rolling upgrade from such a release is in progress, since
+     * the older servers can't read the newer format; messages in either format are always accepted.
+     *
+     * Defaults to lz4
+     */
+    public static final String PIPELINE_COMPRESSION_CODEC = "splice.writer.compression";
+    public static final String DEFAULT_PIPELINE_COMPRESSION_CODEC = "lz4";
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.ipcThreads = configurationSource.getInt(IPC_THREADS, DEFAULT_IPC_THREADS);
@@ -164,6 +201,8 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.maxDependentWrites = configurationSource.getInt(MAX_DEPENDENT_WRITES, DEFAULT_MAX_DEPENDENT_WRITES);
         builder.coreWriterThreads = configurationSource.getInt(CORE_WRITER_THREADS, DEFAULT_WRITE_THREADS_CORE);
         builder.maxWriterThreads = configurationSource.getInt(MAX_WRITER_THREADS, DEFAULT_MAX_WRITER_THREADS);
+        builder.regionWriteThreads = configurationSource.getInt(REGION_WRITE_THREADS, DEFAULT_REGION_WRITE_THREADS);
+        builder.writeMaxConcurrencyPerServer = configurationSource.getInt(WRITE_MAX_CONCURRENCY_PER_SERVER, DEFAULT_WRITE_MAX_CONCURRENCY_PER_SERVER);
         builder.writeMaxFlushesPerRegion = configurationSource.getInt(WRITE_MAX_FLUSHES_PER_REGION, WRITE_DEFAULT_MAX_FLUSHES_PER_REGION);
         builder.maxRetries = configurationSource.getInt(MAX_RETRIES, DEFAULT_HBASE_CLIENT_RETRIES_NUMBER);
         builder.maxBufferEntries = configurationSource.getInt(MAX_BUFFER_ENTRIES, DEFAULT_MAX_BUFFER_ENTRIES);
@@ -174,6 +213,7 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.maxBufferHeapSize = configurationSource.getLong(MAX_BUFFER_HEAP_SIZE, DEFAULT_WRITE_BUFFER_SIZE);
         builder.startupLockWaitPeriod = configurationSource.getLong(STARTUP_LOCK_WAIT_PERIOD, DEFAULT_STARTUP_LOCK_PERIOD);
 
+        builder.pipelineCompressionCodec = configurationSource.getString(PIPELINE_COMPRESSION_CODEC, DEFAULT_PIPELINE_COMPRESSION_CODEC);
         builder.sparkIoCompressionCodec = configurationSource.getString(SPARK_IO_COMPRESSION_CODEC, DEFAULT_SPARK_IO_COMPRESSION_CODEC);
         builder.sparkResultStreamingBatches = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCHES, DEFAULT_SPARK_RESULT_STREAMING_BATCHES);
         builder.sparkResultStreamingBatchSize = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCH_SIZE, DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE);
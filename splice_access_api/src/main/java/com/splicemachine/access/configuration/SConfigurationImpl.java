@@ -89,11 +89,14 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int maxRetries;
     private final  int maxWriterThreads;
     private final  int pipelineKryoPoolSize;
+    private final  int regionWriteThreads;
+    private final  int writeMaxConcurrencyPerServer;
     private final  int writeMaxFlushesPerRegion;
     private final  long clientPause;
     private final  long maxBufferHeapSize;
     private final  long startupLockWaitPeriod;
     private final  long threadKeepaliveTime;
+    private final  String pipelineCompressionCodec;
     private final  String sparkIoCompressionCodec;
     private final int sparkResultStreamingBatches;
     private final int sparkResultStreamingBatchSize;
@@ -111,6 +114,10 @@ public final class SConfigurationImpl implements SConfiguration {
 
     // SIConfigurations
     private final  int activeTransactionCacheSize;
+    private final  int sharedActiveTxnCacheSize;
+    private final  long sharedActiveTxnCacheTtl;
+    private final  long txnLowWatermarkRefreshInterval;
+    private final  int txnPrefetchRows;
     private final  int completedTxnCacheSize;
     private final  int completedTxnConcurrency;
     private final  int readResolverQueueSize;
@@ -145,6 +152,16 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  String upgradeForcedFrom;
     private final String storageFactoryHome;
     private final int nestedLoopJoinBatchSize;
+    private final int nestedLoopJoinProbeBatchSize;
+    private final long controlSideSpillThreshold;
+    private final String controlSideSpillDirectory;
+    private final int controlSideParallelism;
+    private final long broadcastJoinCacheSize;
+    private final long broadcastJoinCacheExpiration;
+    private final long pinnedTableCacheSize;
+    private final int vectorizedScanBatchSize;
+    private final double bulkImportSampleFraction;
+    private final long importSplitSize;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -323,6 +340,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return maxWriterThreads;
     }
     @Override
+    public int getRegionWriteThreads() {
+        return regionWriteThreads;
+    }
+    @Override
+    public int getWriteMaxConcurrencyPerServer() {
+        return writeMaxConcurrencyPerServer;
+    }
+    @Override
     public int getPipelineKryoPoolSize() {
         return pipelineKryoPoolSize;
     }
@@ -347,6 +372,10 @@ public final class SConfigurationImpl implements SConfiguration {
         return threadKeepaliveTime;
     }
     @Override
+    public String getPipelineCompressionCodec() {
+        return pipelineCompressionCodec;
+    }
+    @Override
     public String getSparkIoCompressionCodec() {
         return sparkIoCompressionCodec;
     }
@@ -367,6 +396,22 @@ public final class SConfigurationImpl implements SConfiguration {
         return activeTransactionCacheSize;
     }
     @Override
+    public int getSharedActiveTxnCacheSize() {
+        return sharedActiveTxnCacheSize;
+    }
+    @Override
+    public long getSharedActiveTxnCacheTtl() {
+        return sharedActiveTxnCacheTtl;
+    }
+    @Override
+    public long getTxnLowWatermarkRefreshInterval() {
+        return txnLowWatermarkRefreshInterval;
+    }
+    @Override
+    public int getTxnPrefetchRows() {
+        return txnPrefetchRows;
+    }
+    @Override
     public int getCompletedTxnCacheSize() {
         return completedTxnCacheSize;
     }
@@ -512,6 +557,46 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getNestedLoopJoinBatchSize() {
         return nestedLoopJoinBatchSize;
     }
+    @Override
+    public int getNestedLoopJoinProbeBatchSize() {
+        return nestedLoopJoinProbeBatchSize;
+    }
+    @Override
+    public long getControlSideSpillThreshold() {
+        return controlSideSpillThreshold;
+    }
+    @Override
+    public String getControlSideSpillDirectory() {
+        return controlSideSpillDirectory;
+    }
+    @Override
+    public int getControlSideParallelism() {
+        return controlSideParallelism;
+    }
+    @Override
+    public long getBroadcastJoinCacheSize() {
+        return broadcastJoinCacheSize;
+    }
+    @Override
+    public long getBroadcastJoinCacheExpiration() {
+        return broadcastJoinCacheExpiration;
+    }
+    @Override
+    public long getPinnedTableCacheSize() {
+        return pinnedTableCacheSize;
+    }
+    @Override
+    public int getVectorizedScanBatchSize() {
+        return vectorizedScanBatchSize;
+    }
+    @Override
+    public double getBulkImportSampleFraction() {
+        return bulkImportSampleFraction;
+    }
+    @Override
+    public long getImportSplitSize() {
+        return importSplitSize;
+    }
 
     // StatsConfiguration
     @Override
@@ -596,6 +681,10 @@ public final class SConfigurationImpl implements SConfiguration {
     SConfigurationImpl(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         configSource = configurationSource;
         activeTransactionCacheSize = builder.activeTransactionCacheSize;
+        sharedActiveTxnCacheSize = builder.sharedActiveTxnCacheSize;
+        sharedActiveTxnCacheTtl = builder.sharedActiveTxnCacheTtl;
+        txnLowWatermarkRefreshInterval = builder.txnLowWatermarkRefreshInterval;
+        txnPrefetchRows = builder.txnPrefetchRows;
         completedTxnCacheSize = builder.completedTxnCacheSize;
         completedTxnConcurrency = builder.completedTxnConcurrency;
         readResolverQueueSize = builder.readResolverQueueSize;
@@ -672,6 +761,8 @@ public final class SConfigurationImpl implements SConfiguration {
         maxRetries = builder.maxRetries;
         maxWriterThreads = builder.maxWriterThreads;
         pipelineKryoPoolSize = builder.pipelineKryoPoolSize;
+        regionWriteThreads = builder.regionWriteThreads;
+        writeMaxConcurrencyPerServer = builder.writeMaxConcurrencyPerServer;
         writeMaxFlushesPerRegion = builder.writeMaxFlushesPerRegion;
         clientPause = builder.clientPause;
         maxBufferHeapSize = builder.maxBufferHeapSize;
@@ -679,6 +770,7 @@ public final class SConfigurationImpl implements SConfiguration {
         threadKeepaliveTime = builder.threadKeepaliveTime;
         indexFetchSampleSize = builder.indexFetchSampleSize;
         batchOnceBatchSize = builder.batchOnceBatchSize;
+        pipelineCompressionCodec = builder.pipelineCompressionCodec;
         sparkIoCompressionCodec = builder.sparkIoCompressionCodec;
         olapClientWaitTime = builder.olapClientWaitTime;
         olapClientTickTime = builder.olapClientTickTime;
@@ -693,6 +785,16 @@ public final class SConfigurationImpl implements SConfiguration {
         reservedSlotsTimeout = builder.reservedSlotsTimeout;
         storageFactoryHome = builder.storageFactoryHome;
         nestedLoopJoinBatchSize = builder.nestedLoopJoinBatchSize;
+        nestedLoopJoinProbeBatchSize = builder.nestedLoopJoinProbeBatchSize;
+        controlSideSpillThreshold = builder.controlSideSpillThreshold;
+        controlSideSpillDirectory = builder.controlSideSpillDirectory;
+        controlSideParallelism = builder.controlSideParallelism;
+        broadcastJoinCacheSize = builder.broadcastJoinCacheSize;
+        broadcastJoinCacheExpiration = builder.broadcastJoinCacheExpiration;
+        pinnedTableCacheSize = builder.pinnedTableCacheSize;
+        vectorizedScanBatchSize = builder.vectorizedScanBatchSize;
+        bulkImportSampleFraction = builder.bulkImportSampleFraction;
+        importSplitSize = builder.importSplitSize;
 
     }
 
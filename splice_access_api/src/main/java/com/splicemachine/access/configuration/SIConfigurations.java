@@ -152,6 +152,44 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String ACTIVE_TRANSACTION_CACHE_SIZE="splice.txn.activeCacheSize";
     private static final int DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE = 1<<12;
 
+    /*
+     * The maximum number of transactions held in the region server-wide transaction cache which is shared
+     * by all transactional scans on the server. Set to 0 to give each scan its own private cache instead.
+     *
+     * Defaults to 16384
+     */
+    public static final String SHARED_ACTIVE_TXN_CACHE_SIZE="splice.txn.sharedActiveCache.size";
+    private static final int DEFAULT_SHARED_ACTIVE_TXN_CACHE_SIZE = 1<<14;
+
+    /*
+     * The time (in milliseconds) for which an entry in the shared transaction cache may be used. This bounds
+     * the time that a transaction whose commit was not observed by this server can be held in the cache.
+     *
+     * Defaults to 1000 ms
+     */
+    public static final String SHARED_ACTIVE_TXN_CACHE_TTL="splice.txn.sharedActiveCache.ttlMs";
+    private static final long DEFAULT_SHARED_ACTIVE_TXN_CACHE_TTL = 1000L;
+
+    /*
+     * How often (in milliseconds) each server recomputes the transaction low watermark--the begin timestamp
+     * of the oldest transaction which is active anywhere in the cluster. Compactions remove the versions
+     * of a row which no transaction at or after the low watermark can see. Set to 0 to keep every version.
+     *
+     * Defaults to 30000 ms
+     */
+    public static final String TXN_LOW_WATERMARK_REFRESH_INTERVAL="splice.txn.lowWatermark.refreshIntervalMs";
+    private static final long DEFAULT_TXN_LOW_WATERMARK_REFRESH_INTERVAL = 30000L;
+
+    /*
+     * The number of rows which a table scan reads ahead, so that it can look up the transactions which wrote
+     * them (and which have not yet been resolved) together instead of one at a time. This helps scans over
+     * data written recently by many different transactions. Set to 0 to look up each transaction when it is met.
+     *
+     * Defaults to 0
+     */
+    public static final String TXN_PREFETCH_ROWS="splice.txn.prefetchRows";
+    private static final int DEFAULT_TXN_PREFETCH_ROWS = 0;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.completedTxnConcurrency  = configurationSource.getInt(completedTxnConcurrency, DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY);
@@ -163,6 +201,10 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.timestampClientWaitTime  = configurationSource.getInt(TIMESTAMP_CLIENT_WAIT_TIME, DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME);
         builder.timestampServerBindPort  = configurationSource.getInt(TIMESTAMP_SERVER_BIND_PORT, DEFAULT_TIMESTAMP_SERVER_BIND_PORT);
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
+        builder.sharedActiveTxnCacheSize  = configurationSource.getInt(SHARED_ACTIVE_TXN_CACHE_SIZE, DEFAULT_SHARED_ACTIVE_TXN_CACHE_SIZE);
+        builder.sharedActiveTxnCacheTtl  = configurationSource.getLong(SHARED_ACTIVE_TXN_CACHE_TTL, DEFAULT_SHARED_ACTIVE_TXN_CACHE_TTL);
+        builder.txnLowWatermarkRefreshInterval  = configurationSource.getLong(TXN_LOW_WATERMARK_REFRESH_INTERVAL, DEFAULT_TXN_LOW_WATERMARK_REFRESH_INTERVAL);
+        builder.txnPrefetchRows  = configurationSource.getInt(TXN_PREFETCH_ROWS, DEFAULT_TXN_PREFETCH_ROWS);
         builder.olapServerBindPort  = configurationSource.getInt(OLAP_SERVER_BIND_PORT, DEFAULT_OLAP_SERVER_BIND_PORT);
         builder.olapClientWaitTime  = configurationSource.getInt(OLAP_CLIENT_WAIT_TIME, DEFAULT_OLAP_CLIENT_WAIT_TIME);
         builder.olapClientTickTime  = configurationSource.getInt(OLAP_CLIENT_TICK_TIME, DEFAULT_OLAP_CLIENT_TICK_TIME);
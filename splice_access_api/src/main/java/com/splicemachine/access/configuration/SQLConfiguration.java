@@ -203,6 +203,102 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String NESTEDLOOPJOIN_BATCH_SIZE = "splice.nestedLoopJoin.batchSize";
     private static final int DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE = 10;
 
+    /**
+     * The largest number of outer rows whose inner rows a nested loop join fetches together, when each inner row is
+     * looked up by its full primary key. The join starts with batches of splice.nestedLoopJoin.batchSize rows and
+     * doubles them up to this size, so this bounds how far the outer side is read ahead of the rows returned. At
+     * 128 rows, each round trip is already shared by enough lookups that larger batches would save little more
+     * than they read ahead. A value of 0 or less looks up each inner row with a scan of its own.
+     *
+     * Defaults to 128
+     */
+    public static final String NESTEDLOOPJOIN_PROBE_BATCH_SIZE = "splice.nestedLoopJoin.probeBatchSize";
+    private static final int DEFAULT_NESTEDLOOPJOIN_PROBE_BATCH_SIZE = 128;
+
+    /**
+     * The (estimated) number of bytes that a single control-side aggregation or sort may hold
+     * in memory before it spills sorted runs to disk. A value of 0 or less disables spilling.
+     *
+     * Defaults to 5% of the maximum heap size
+     */
+    public static final String CONTROL_SIDE_SPILL_THRESHOLD = "splice.dataset.control.spillThreshold";
+    private static final long DEFAULT_CONTROL_SIDE_SPILL_THRESHOLD = Runtime.getRuntime().maxMemory()/20;
+
+    /**
+     * The local directory in which control-side aggregations and sorts write their spilled runs.
+     *
+     * Defaults to the value of java.io.tmpdir
+     */
+    public static final String CONTROL_SIDE_SPILL_DIRECTORY = "splice.dataset.control.spillDirectory";
+    private static final String DEFAULT_CONTROL_SIDE_SPILL_DIRECTORY = System.getProperty("java.io.tmpdir");
+
+    /**
+     * The number of threads which a single control-side table scan may use to read its regions concurrently,
+     * unless a session overrides it with the "controlParallelism" connection property. A value of 1 reads
+     * the regions one at a time in the caller's thread.
+     *
+     * Defaults to 1
+     */
+    public static final String CONTROL_SIDE_PARALLELISM = "splice.dataset.control.parallelism";
+    private static final int DEFAULT_CONTROL_SIDE_PARALLELISM = 1;
+
+    /**
+     * The maximum (estimated) number of bytes held by the inner tables of broadcast joins which are
+     * cached for reuse. When the cache grows past this size, the least recently used tables are evicted.
+     *
+     * Defaults to 10% of the maximum heap size
+     */
+    public static final String BROADCAST_JOIN_CACHE_SIZE = "splice.broadcastJoin.cacheSize";
+    private static final long DEFAULT_BROADCAST_JOIN_CACHE_SIZE = Runtime.getRuntime().maxMemory()/10;
+
+    /**
+     * The length of time (in ms) that the inner table of a broadcast join is retained after it was
+     * last used.
+     *
+     * Defaults to 60000 ms (1 minute)
+     */
+    public static final String BROADCAST_JOIN_CACHE_EXPIRATION = "splice.broadcastJoin.cacheExpiration";
+    private static final long DEFAULT_BROADCAST_JOIN_CACHE_EXPIRATION = 60000L;
+
+    /**
+     * The maximum number of (off-heap) bytes used by each server to hold local copies of pinned tables,
+     * which control-side scans read instead of going through Spark. A table which is larger than this
+     * is never copied. Set to 0 to read pinned tables through Spark only.
+     *
+     * Defaults to 67108864 bytes (64 MB)
+     */
+    public static final String PINNED_TABLE_CACHE_SIZE = "splice.pin.localCacheSize";
+    private static final long DEFAULT_PINNED_TABLE_CACHE_SIZE = 64*1024*1024L;
+
+    /**
+     * The number of rows which a table scan reads at a time before evaluating its simple qualifiers
+     * (comparisons of a numeric, date, or character column against a constant) over the whole batch, so that
+     * rows are only fully decoded if they pass. A value of 0 turns batch evaluation off, and every row is
+     * decoded and then qualified individually.
+     *
+     * Defaults to 1024
+     */
+    public static final String VECTORIZED_SCAN_BATCH_SIZE = "splice.execution.vectorizedScanBatchSize";
+    private static final int DEFAULT_VECTORIZED_SCAN_BATCH_SIZE = 1024;
+
+    /**
+     * The fraction of row keys which a bulk import samples in order to choose the points at which to
+     * pre-split the table and its indexes before loading them.
+     *
+     * Defaults to 0.005 (one key in every 200)
+     */
+    public static final String BULK_IMPORT_SAMPLE_FRACTION = "splice.import.bulk.sampleFraction";
+    private static final double DEFAULT_BULK_IMPORT_SAMPLE_FRACTION = 0.005d;
+
+    /**
+     * The size, in bytes, of the ranges into which an import splits a large, uncompressed file whose
+     * records may span lines, so that the ranges can be parsed in parallel.
+     *
+     * Defaults to 128 MB
+     */
+    public static final String IMPORT_SPLIT_SIZE = "splice.import.splitSize";
+    private static final long DEFAULT_IMPORT_SPLIT_SIZE = 128L*1024*1024;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -216,6 +312,16 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.partitionserverJmxPort = configurationSource.getInt(PARTITIONSERVER_JMX_PORT, DEFAULT_PARTITIONSERVER_JMX_PORT);
         builder.partitionserverPort = configurationSource.getInt(PARTITIONSERVER_PORT, DEFAULT_PARTITIONSERVER_PORT);
         builder.nestedLoopJoinBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE);
+        builder.nestedLoopJoinProbeBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_PROBE_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_PROBE_BATCH_SIZE);
+        builder.controlSideSpillThreshold = configurationSource.getLong(CONTROL_SIDE_SPILL_THRESHOLD, DEFAULT_CONTROL_SIDE_SPILL_THRESHOLD);
+        builder.controlSideSpillDirectory = configurationSource.getString(CONTROL_SIDE_SPILL_DIRECTORY, DEFAULT_CONTROL_SIDE_SPILL_DIRECTORY);
+        builder.controlSideParallelism = configurationSource.getInt(CONTROL_SIDE_PARALLELISM, DEFAULT_CONTROL_SIDE_PARALLELISM);
+        builder.broadcastJoinCacheSize = configurationSource.getLong(BROADCAST_JOIN_CACHE_SIZE, DEFAULT_BROADCAST_JOIN_CACHE_SIZE);
+        builder.broadcastJoinCacheExpiration = configurationSource.getLong(BROADCAST_JOIN_CACHE_EXPIRATION, DEFAULT_BROADCAST_JOIN_CACHE_EXPIRATION);
+        builder.pinnedTableCacheSize = configurationSource.getLong(PINNED_TABLE_CACHE_SIZE, DEFAULT_PINNED_TABLE_CACHE_SIZE);
+        builder.vectorizedScanBatchSize = configurationSource.getInt(VECTORIZED_SCAN_BATCH_SIZE, DEFAULT_VECTORIZED_SCAN_BATCH_SIZE);
+        builder.bulkImportSampleFraction = configurationSource.getDouble(BULK_IMPORT_SAMPLE_FRACTION, DEFAULT_BULK_IMPORT_SAMPLE_FRACTION);
+        builder.importSplitSize = configurationSource.getLong(IMPORT_SPLIT_SIZE, DEFAULT_IMPORT_SPLIT_SIZE);
 
         // Where to place jar files...
         String defaultStorageFactoryHome;
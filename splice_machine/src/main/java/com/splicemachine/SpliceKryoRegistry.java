@@ -38,6 +38,9 @@ import com.splicemachine.db.iapi.stats.ColumnStatisticsMerge;
 import com.splicemachine.db.impl.sql.execute.*;
 import com.splicemachine.derby.impl.sql.execute.operations.*;
 import com.splicemachine.derby.stream.function.RowToLocatedRowFunction;
+import com.splicemachine.derby.stream.function.BulkImportFunction;
+import com.splicemachine.derby.impl.load.KeySample;
+import com.splicemachine.derby.impl.load.CsvFileRange;
 import com.splicemachine.derby.stream.function.StatisticsFlatMapFunction;
 import de.javakaffee.kryoserializers.UnmodifiableCollectionsSerializer;
 import com.splicemachine.db.catalog.types.AggregateAliasInfo;
@@ -850,6 +853,9 @@ public class SpliceKryoRegistry implements KryoPool.KryoRegistry{
         instance.register(StatisticsFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER,277);
         instance.register(ColumnStatisticsMerge.class,EXTERNALIZABLE_SERIALIZER,278);
         instance.register(RowToLocatedRowFunction.class,EXTERNALIZABLE_SERIALIZER,279);
+        instance.register(KeySample.class,EXTERNALIZABLE_SERIALIZER,280);
+        instance.register(BulkImportFunction.class,EXTERNALIZABLE_SERIALIZER,281);
+        instance.register(CsvFileRange.class,EXTERNALIZABLE_SERIALIZER,282);
 
     }
 }
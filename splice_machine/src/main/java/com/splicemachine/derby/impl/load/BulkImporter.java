@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.catalog.IndexDescriptor;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.control.ControlDataSet;
+import com.splicemachine.derby.stream.function.BulkImportEncodeFunction;
+import com.splicemachine.derby.stream.function.BulkImportFunction;
+import com.splicemachine.derby.stream.function.KVPairKeyFunction;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.protobuf.ProtoUtil;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import org.apache.commons.collections.iterators.SingletonIterator;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.base.Optional;
+import org.spark_project.guava.collect.Iterables;
+import org.spark_project.guava.collect.Multimap;
+import org.spark_project.guava.collect.Multimaps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.splicemachine.pipeline.ConglomerateDescriptors.*;
+
+/**
+ * Imports rows into a table and its indexes by writing store files and handing them directly to the
+ * regions, instead of writing the rows through the write pipeline.
+ * <p/>
+ * The import runs in a child transaction, like an ordinary insert, and every cell is versioned by that
+ * transaction. Commit timestamps are not written with the cells: the import cannot know its commit
+ * timestamp until it commits, which is after the files have been loaded, and should it fail the loaded
+ * rows must stay invisible. Instead, the rows are resolved as committed by the usual read resolution.
+ * <p/>
+ * Since the rows never pass through the write pipeline, primary key and unique constraints are enforced by
+ * shuffling the encoded rows by key, so that duplicates meet wherever they came from. Only the imported rows
+ * are compared with each other, so a table with such a constraint must be empty to be bulk imported into.
+ * The import is rejected at compile time for tables with foreign keys or triggers. Check constraints and
+ * generated columns are evaluated as usual.
+ */
+public class BulkImporter{
+    private static final Logger LOG=Logger.getLogger(BulkImporter.class);
+
+    private final InsertOperation insertOperation;
+    private final long heapConglom;
+    private final String bulkImportDirectory;
+
+    public BulkImporter(InsertOperation insertOperation,long heapConglom,String bulkImportDirectory){
+        this.insertOperation=insertOperation;
+        this.heapConglom=heapConglom;
+        this.bulkImportDirectory=bulkImportDirectory;
+    }
+
+    public DataSet<LocatedRow> bulkImport(DataSet<LocatedRow> dataSet,
+                                          OperationContext<InsertOperation> operationContext,
+                                          TxnView parentTxn) throws StandardException{
+        Txn txn=null;
+        String stagingDirectory=null;
+        try{
+            TableDescriptor td=getTableDescriptor();
+            List<DDLMessage.TentativeIndex> indexes=getIndexes(td);
+            checkUniqueConglomeratesEmpty(td,indexes);
+
+            txn=SIDriver.driver().lifecycleManager().beginChildTransaction(parentTxn,Bytes.toBytes(Long.toString(heapConglom)));
+            stagingDirectory=bulkImportDirectory+"/"+txn.getTxnId();
+            SConfiguration config=SIDriver.driver().getConfiguration();
+            //group by key across every partition, so that rows which violate a unique constraint end up together
+            DataSet<KVPair> encoded=dataSet.mapPartitions(new BulkImportEncodeFunction(operationContext,heapConglom,indexes));
+            List<KeySample> partitionSamples=encoded.index(new KVPairKeyFunction())
+                    .groupByKey("Check Unique Keys",operationContext)
+                    .mapPartitions(new BulkImportFunction(operationContext,stagingDirectory,
+                            heapConglom,txn.getTxnId(),config.getBulkImportSampleFraction())).collect();
+
+            Map<Long,KeySample> samples=new LinkedHashMap<>();
+            for(KeySample sample : partitionSamples){
+                KeySample existing=samples.get(sample.getConglomerateId());
+                if(existing==null)
+                    samples.put(sample.getConglomerateId(),sample);
+                else
+                    existing.merge(sample);
+            }
+
+            long rowsWritten=0L;
+            try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+                for(KeySample sample : samples.values()){
+                    if(sample.getRowCount()==0) continue;
+                    String conglomName=Long.toString(sample.getConglomerateId());
+                    split(admin,conglomName,sample.splitPoints(config.getRegionMaxFileSize()));
+                    admin.bulkLoad(conglomName,BulkImportFunction.conglomerateDirectory(stagingDirectory,sample.getConglomerateId()));
+                    if(sample.getConglomerateId()==heapConglom)
+                        rowsWritten=sample.getRowCount();
+                }
+            }
+            DataSet<LocatedRow> result=result(operationContext,rowsWritten);
+            txn.commit();
+            return result;
+        }catch(Exception e){
+            if(txn!=null){
+                try{
+                    txn.rollback();
+                }catch(IOException e1){
+                    e.addSuppressed(e1);
+                }
+            }
+            throw Exceptions.parseException(e);
+        }finally{
+            if(stagingDirectory!=null){
+                try{
+                    SIDriver.driver().fileSystem().delete(stagingDirectory,true);
+                }catch(IOException e){
+                    LOG.warn("Unable to remove bulk import staging directory "+stagingDirectory,e);
+                }
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private TableDescriptor getTableDescriptor() throws StandardException{
+        DataDictionary dd=insertOperation.getActivation().getLanguageConnectionContext().getDataDictionary();
+        ConglomerateDescriptor heapDescriptor=dd.getConglomerateDescriptor(heapConglom);
+        return dd.getTableDescriptor(heapDescriptor.getTableID());
+    }
+
+    /**
+     * @return the indexes to write alongside the base table, chosen as the write pipeline chooses them
+     */
+    private List<DDLMessage.TentativeIndex> getIndexes(TableDescriptor td) throws StandardException{
+        LanguageConnectionContext lcc=insertOperation.getActivation().getLanguageConnectionContext();
+        Multimap<Long, ConglomerateDescriptor> numberToDescriptorMap=Multimaps.index(td.getConglomerateDescriptorList(),numberFunction());
+        List<DDLMessage.TentativeIndex> indexes=new ArrayList<>();
+        for(Long conglomerateNumber : numberToDescriptorMap.keySet()){
+            if(conglomerateNumber==heapConglom) continue;
+            Collection<ConglomerateDescriptor> currentCongloms=numberToDescriptorMap.get(conglomerateNumber);
+            Optional<ConglomerateDescriptor> indexConglom=Iterables.tryFind(currentCongloms,isIndex());
+            Optional<ConglomerateDescriptor> uniqueIndexConglom=Iterables.tryFind(currentCongloms,isUniqueIndex());
+            if(indexConglom.isPresent()){
+                ConglomerateDescriptor srcConglomDesc=uniqueIndexConglom.isPresent()?uniqueIndexConglom.get():currentCongloms.iterator().next();
+                IndexDescriptor indexDescriptor=srcConglomDesc.getIndexDescriptor().getIndexDescriptor();
+                indexes.add(ProtoUtil.createTentativeIndex(lcc,heapConglom,indexConglom.get().getConglomerateNumber(),td,indexDescriptor));
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * The imported rows are only checked against each other, so refuse to import into a table which already
+     * holds rows that they could collide with.
+     */
+    private void checkUniqueConglomeratesEmpty(TableDescriptor td,List<DDLMessage.TentativeIndex> indexes) throws StandardException, IOException{
+        List<Long> uniqueConglomerates=new ArrayList<>();
+        if(insertOperation.hasPrimaryKey())
+            uniqueConglomerates.add(heapConglom);
+        for(DDLMessage.TentativeIndex index : indexes){
+            if(index.getIndex().getUnique() || index.getIndex().getUniqueWithDuplicateNulls())
+                uniqueConglomerates.add(index.getIndex().getConglomerate());
+        }
+        for(long conglomId : uniqueConglomerates){
+            if(!isEmpty(conglomId))
+                throw ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(td.getName(),"existing rows and a primary key or unique constraint");
+        }
+    }
+
+    /**
+     * @return true if nothing at all is stored in the conglomerate. Rows which have been deleted count until
+     * they are compacted away, so this may refuse a table which holds no visible rows.
+     */
+    private boolean isEmpty(long conglomId) throws IOException{
+        SIDriver driver=SIDriver.driver();
+        try(Partition table=driver.getTableFactory().getTable(Long.toString(conglomId));
+            DataScanner scanner=table.openScanner(driver.baseOperationFactory().newScan().cacheRows(1).batchCells(1))){
+            return scanner.next(1).isEmpty();
+        }
+    }
+
+    private void split(PartitionAdmin admin,String conglomName,byte[][] splitPoints) throws IOException{
+        if(splitPoints.length==0) return;
+        try{
+            admin.splitTable(conglomName,splitPoints);
+        }catch(UnsupportedOperationException uoe){
+            //the storage engine does not split tables, so the files all go to its single partition
+            LOG.debug("Unable to split "+conglomName+" before bulk import",uoe);
+        }
+    }
+
+    private DataSet<LocatedRow> result(OperationContext operationContext,long rowsWritten) throws StandardException{
+        ValueRow valueRow=new ValueRow(3);
+        valueRow.setColumn(1,new SQLLongint(rowsWritten));
+        valueRow.setColumn(2,new SQLLongint());
+        valueRow.setColumn(3,new SQLVarchar());
+        if(operationContext.isPermissive()){
+            long numBadRecords=operationContext.getBadRecords();
+            valueRow.setColumn(2,new SQLLongint(numBadRecords));
+            if(numBadRecords>0){
+                String fileName=operationContext.getBadRecordFileName();
+                valueRow.setColumn(3,new SQLVarchar(fileName));
+                if(insertOperation.isAboveFailThreshold(numBadRecords))
+                    throw ErrorState.LANG_IMPORT_TOO_MANY_BAD_RECORDS.newException(fileName);
+            }
+        }
+        operationContext.getActivation().getLanguageConnectionContext().setRecordsImported(rowsWritten);
+        return new ControlDataSet<>(new SingletonIterator(new LocatedRow(valueRow)));
+    }
+}
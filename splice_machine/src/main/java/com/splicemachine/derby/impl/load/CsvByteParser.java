@@ -0,0 +1,344 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.load;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A CSV tokenizer which works directly on the bytes of a file, rather than on lines of decoded text.
+ * <p/>
+ * Each call to {@link #next()} parses a single record out of the buffer in one pass, handling quoted
+ * fields, escaped (doubled) quotes and quoted fields which span lines, and records where each of the
+ * record's fields lies, so that they can be converted straight into column values. A field is only
+ * copied out of the buffer when it is not a contiguous run of its bytes (when it contains an escaped
+ * quote, for example); every other field is just a slice of the buffer.
+ * <p/>
+ * The quoting rules are the same as those of {@link com.splicemachine.derby.stream.function.QuoteTrackingTokenizer}.
+ * The quote and delimiter characters must each be a single byte, and the file must be in an encoding
+ * in which those bytes cannot occur inside a multi-byte character, such as UTF-8 or ISO-8859-1.
+ */
+@NotThreadSafe
+public class CsvByteParser{
+    private static final byte CR='\r';
+    private static final byte LF='\n';
+
+    private final byte quote;
+    private final byte delimiter;
+    private final int maxLinesPerRow;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    private int numFields;
+    private int[] fieldOffsets=new int[16];
+    private int[] fieldLengths=new int[16];
+    private boolean[] quotedFields=new boolean[16];
+    private boolean[] escapedFields=new boolean[16];
+    private boolean emptyLine;
+
+    /*
+     * Holds the fields which are not a contiguous slice of the buffer, once they have been unescaped
+     */
+    private byte[] escapeBuffer=new byte[256];
+    private int escapeLength;
+
+    /*the field currently being parsed*/
+    private int fieldStart;
+    private int fieldEnd;
+    private boolean fieldQuoted;
+    private boolean fieldEscaped;
+
+    /**
+     * @param quote the character used to quote fields
+     * @param delimiter the character which separates fields
+     * @param maxLinesPerRow the maximum number of lines which a single quoted field may span, or 0 if there
+     *                       is no limit
+     */
+    public CsvByteParser(char quote,char delimiter,int maxLinesPerRow){
+        if(quote>0x7F || delimiter>0x7F)
+            throw new IllegalArgumentException("The quote and delimiter must be single byte characters");
+        this.quote=(byte)quote;
+        this.delimiter=(byte)delimiter;
+        this.maxLinesPerRow=maxLinesPerRow;
+    }
+
+    /**
+     * Parse the records in {@code buffer[offset,limit)}.
+     *
+     * @param endOfInput whether the buffer holds the end of the input. If not, a record which runs off the
+     *                   end of the buffer is left unparsed until the buffer has been refilled
+     */
+    public void reset(byte[] buffer,int offset,int limit,boolean endOfInput){
+        this.buffer=buffer;
+        this.position=offset;
+        this.limit=limit;
+        this.endOfInput=endOfInput;
+    }
+
+    /**
+     * @return the position in the buffer at which the next record starts
+     */
+    public int position(){
+        return position;
+    }
+
+    /**
+     * Parse the next record in the buffer.
+     *
+     * @return {@code true} if a record was parsed, or {@code false} if the rest of the buffer does not hold a
+     * complete record, in which case the position is left at the start of the incomplete record
+     * @throws MalformedRecordException if the record is malformed. The position is moved past the malformed
+     * part of the record, so that parsing can continue
+     */
+    public boolean next() throws MalformedRecordException{
+        int recordStart=position;
+        int p=recordStart;
+        if(p>=limit) return false;
+
+        numFields=0;
+        escapeLength=0;
+        startField();
+        boolean inQuotes=false;
+        int quotedLines=0;
+        while(true){
+            if(p==limit){
+                if(!endOfInput) return false;
+                position=limit;
+                if(inQuotes)
+                    throw new MalformedRecordException("unexpected end of file while reading quoted column");
+                endField();
+                emptyLine=false;
+                return true;
+            }
+            byte b=buffer[p];
+            if(inQuotes){
+                if(b==quote){
+                    if(p+1==limit && !endOfInput) return false; //we can't yet tell whether the quote is escaped
+                    if(p+1<limit && buffer[p+1]==quote){
+                        append(p);
+                        p+=2;
+                    }else{
+                        inQuotes=false;
+                        p++;
+                    }
+                }else if(b==CR || b==LF){
+                    int next=p+1;
+                    if(b==CR){
+                        if(next==limit && !endOfInput) return false;
+                        if(next<limit && buffer[next]==LF) next++;
+                    }
+                    quotedLines++;
+                    if(maxLinesPerRow>0 && quotedLines>=maxLinesPerRow){
+                        position=next;
+                        throw new MalformedRecordException(maxLinesPerRow==1?
+                                "unexpected end of line while reading quoted column":
+                                "max number of lines to read exceeded while reading quoted column");
+                    }
+                    //line breaks within a quoted field are always read as a single \n
+                    if(next==p+1 && b==LF)
+                        append(p);
+                    else
+                        appendByte(LF);
+                    p=next;
+                }else{
+                    append(p);
+                    p++;
+                }
+            }else if(b==delimiter){
+                endField();
+                startField();
+                p++;
+            }else if(b==quote){
+                inQuotes=true;
+                fieldQuoted=true;
+                quotedLines=0;
+                p++;
+            }else if(b==CR || b==LF){
+                int next=p+1;
+                if(b==CR){
+                    if(next==limit && !endOfInput) return false;
+                    if(next<limit && buffer[next]==LF) next++;
+                }
+                emptyLine=p==recordStart;
+                endField();
+                position=next;
+                return true;
+            }else{
+                append(p);
+                p++;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the last record parsed was an empty line, which should be ignored
+     */
+    public boolean isEmptyLine(){
+        return emptyLine;
+    }
+
+    public int numFields(){
+        return numFields;
+    }
+
+    /**
+     * @return {@code true} if the field is empty, which is treated as {@code null} whether or not it was quoted
+     */
+    public boolean isEmpty(int field){
+        return fieldLengths[field]==0;
+    }
+
+    public boolean isQuoted(int field){
+        return quotedFields[field];
+    }
+
+    /**
+     * @return the array holding the field, which is valid until the next call to {@link #next()}
+     */
+    public byte[] fieldArray(int field){
+        return escapedFields[field]?escapeBuffer:buffer;
+    }
+
+    public int fieldOffset(int field){
+        return fieldOffsets[field];
+    }
+
+    public int fieldLength(int field){
+        return fieldLengths[field];
+    }
+
+    /**
+     * @return {@code true} if the field is equal to the specified ASCII text, ignoring case
+     */
+    public boolean equalsIgnoreCase(int field,String text){
+        int length=fieldLengths[field];
+        if(length!=text.length()) return false;
+        byte[] array=fieldArray(field);
+        int offset=fieldOffsets[field];
+        for(int i=0;i<length;i++){
+            if(Character.toLowerCase((char)array[offset+i])!=Character.toLowerCase(text.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    public String fieldString(int field,Charset charset){
+        return new String(fieldArray(field),fieldOffsets[field],fieldLengths[field],charset);
+    }
+
+    /**
+     * @return the fields of the last record as strings, for reporting a bad record
+     */
+    public List<String> fieldStrings(Charset charset){
+        List<String> fields=new ArrayList<>(numFields);
+        for(int i=0;i<numFields;i++){
+            fields.add(isEmpty(i)?null:fieldString(i,charset));
+        }
+        return fields;
+    }
+
+    byte quote(){
+        return quote;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void startField(){
+        fieldStart=-1;
+        fieldEnd=-1;
+        fieldQuoted=false;
+        fieldEscaped=false;
+    }
+
+    private void endField(){
+        if(numFields==fieldOffsets.length){
+            int size=numFields*2;
+            fieldOffsets=Arrays.copyOf(fieldOffsets,size);
+            fieldLengths=Arrays.copyOf(fieldLengths,size);
+            quotedFields=Arrays.copyOf(quotedFields,size);
+            escapedFields=Arrays.copyOf(escapedFields,size);
+        }
+        if(fieldStart<0){
+            fieldOffsets[numFields]=0;
+            fieldLengths[numFields]=0;
+        }else{
+            fieldOffsets[numFields]=fieldStart;
+            fieldLengths[numFields]=(fieldEscaped?escapeLength:fieldEnd)-fieldStart;
+        }
+        quotedFields[numFields]=fieldQuoted;
+        escapedFields[numFields]=fieldEscaped;
+        numFields++;
+    }
+
+    /*
+     * Add the byte at position p of the buffer to the current field
+     */
+    private void append(int p){
+        if(fieldEscaped)
+            appendEscaped(buffer[p]);
+        else if(fieldStart<0){
+            fieldStart=p;
+            fieldEnd=p+1;
+        }else if(fieldEnd==p)
+            fieldEnd++;
+        else{
+            //the field is no longer a contiguous slice of the buffer, so we have to copy it out
+            escapeField();
+            appendEscaped(buffer[p]);
+        }
+    }
+
+    /*
+     * Add a byte which does not appear at this point in the buffer to the current field
+     */
+    private void appendByte(byte b){
+        if(!fieldEscaped)
+            escapeField();
+        appendEscaped(b);
+    }
+
+    private void escapeField(){
+        int start=escapeLength;
+        if(fieldStart>=0){
+            for(int i=fieldStart;i<fieldEnd;i++){
+                appendEscaped(buffer[i]);
+            }
+        }
+        fieldStart=start;
+        fieldEscaped=true;
+    }
+
+    private void appendEscaped(byte b){
+        if(escapeLength==escapeBuffer.length)
+            escapeBuffer=Arrays.copyOf(escapeBuffer,escapeBuffer.length*2);
+        escapeBuffer[escapeLength++]=b;
+    }
+
+    /**
+     * Thrown when a record cannot be parsed.
+     */
+    public static class MalformedRecordException extends IOException{
+        public MalformedRecordException(String message){
+            super(message);
+        }
+    }
+}
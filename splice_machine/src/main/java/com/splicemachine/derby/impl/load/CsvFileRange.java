@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.access.api.FileInfo;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A range of bytes of an import file, so that a single large file can be parsed by several tasks at once.
+ * <p/>
+ * A record belongs to the range which holds its first byte. Any but the first range is therefore likely to
+ * start part way through a record, and its reader skips forward to the first line break which ends a record.
+ * When quoted fields may span lines, a line break only ends a record if it is outside of quotes, which
+ * depends on the number of quotes which come before the range; that is counted first, across all of the
+ * ranges in parallel, and recorded by {@link #setStartsInQuotes(boolean)}.
+ */
+public class CsvFileRange implements Externalizable{
+    private static final String[] COMPRESSED_EXTENSIONS=new String[]{".gz",".bz2",".deflate",".snappy",".lz4",".lzo",".zip"};
+
+    private String fileName;
+    private long start;
+    private long end;
+    private boolean startsInQuotes;
+
+    public CsvFileRange(){
+    }
+
+    public CsvFileRange(String fileName,long start,long end){
+        this.fileName=fileName;
+        this.start=start;
+        this.end=end;
+    }
+
+    /**
+     * Split a file into ranges of roughly {@code splitSize} bytes.
+     *
+     * @return the ranges, or {@code null} if the file cannot be split: because it is a directory, is compressed,
+     * is in an encoding in which the delimiters could occur within multi-byte characters, or is small enough
+     * to be parsed as a single range anyway
+     */
+    public static List<CsvFileRange> split(DistributedFileSystem fileSystem,String fileName,String charset,long splitSize) throws IOException{
+        if(splitSize<=0 || !isAsciiCompatible(charset) || isCompressed(fileName))
+            return null;
+        FileInfo info=fileSystem.getInfo(fileName);
+        if(info.isDirectory() || info.size()<=splitSize)
+            return null;
+        long size=info.size();
+        int numRanges=(int)((size+splitSize-1)/splitSize);
+        List<CsvFileRange> ranges=new ArrayList<>(numRanges);
+        for(int i=0;i<numRanges;i++){
+            ranges.add(new CsvFileRange(fileName,i*splitSize,Math.min(size,(i+1)*splitSize)));
+        }
+        return ranges;
+    }
+
+    /**
+     * @return {@code true} if the delimiter and quote characters are encoded as single bytes in the charset,
+     * and cannot occur within the encoding of any other character
+     */
+    public static boolean isAsciiCompatible(String charset){
+        Charset cs=Charset.forName(charset);
+        return cs.equals(StandardCharsets.UTF_8)
+                || cs.equals(StandardCharsets.US_ASCII)
+                || cs.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    public String getFileName(){
+        return fileName;
+    }
+
+    public long getStart(){
+        return start;
+    }
+
+    public long getEnd(){
+        return end;
+    }
+
+    /**
+     * @return the offset from which to start reading the range. The byte before the range has to be read as
+     * well, to tell whether a record starts at the very beginning of the range.
+     */
+    public long getScanStart(){
+        return start==0?0:start-1;
+    }
+
+    /**
+     * @return the offset at which the next range starts to read, so that counting the quotes of each range
+     * up to here counts each byte of the file once
+     */
+    public long getScanEnd(){
+        return end-1;
+    }
+
+    public boolean startsInQuotes(){
+        return startsInQuotes;
+    }
+
+    /**
+     * @param startsInQuotes whether the byte at {@link #getScanStart()} lies inside a quoted field
+     */
+    public void setStartsInQuotes(boolean startsInQuotes){
+        this.startsInQuotes=startsInQuotes;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeUTF(fileName);
+        out.writeLong(start);
+        out.writeLong(end);
+        out.writeBoolean(startsInQuotes);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        fileName=in.readUTF();
+        start=in.readLong();
+        end=in.readLong();
+        startsInQuotes=in.readBoolean();
+    }
+
+    @Override
+    public String toString(){
+        return fileName+"["+start+","+end+")";
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean isCompressed(String fileName){
+        String name=fileName.toLowerCase();
+        for(String extension : COMPRESSED_EXTENSIONS){
+            if(name.endsWith(extension)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.load;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads CSV records from a stream of bytes with a {@link CsvByteParser}, refilling (and if a single
+ * record demands it, growing) the parser's buffer as it goes.
+ */
+@NotThreadSafe
+public class CsvRecordReader implements Closeable{
+    private static final int DEFAULT_BUFFER_SIZE=1<<16;
+
+    private final InputStream in;
+    private final CsvByteParser parser;
+    private byte[] buffer;
+    private int limit;
+    private boolean endOfInput;
+    /*the offset in the stream of the start of the buffer, and of the last record read*/
+    private long bufferOffset;
+    private long recordOffset;
+
+    /**
+     * @param offset the offset in the file at which the stream starts
+     */
+    public CsvRecordReader(InputStream in,CsvByteParser parser,long offset){
+        this.in=in;
+        this.parser=parser;
+        this.buffer=new byte[DEFAULT_BUFFER_SIZE];
+        this.bufferOffset=offset;
+        this.recordOffset=offset;
+        parser.reset(buffer,0,0,false);
+    }
+
+    /**
+     * Read the next record, whose fields can then be fetched from the {@link #parser()}.
+     *
+     * @return {@code false} if there are no more records
+     * @throws CsvByteParser.MalformedRecordException if the record is malformed. Reading may continue
+     * with the following record.
+     */
+    public boolean next() throws IOException{
+        while(true){
+            recordOffset=bufferOffset+parser.position();
+            if(parser.next()) return true;
+            if(endOfInput) return false;
+            fill();
+        }
+    }
+
+    /**
+     * @return the offset in the file of the start of the last record read
+     */
+    public long recordOffset(){
+        return recordOffset;
+    }
+
+    public CsvByteParser parser(){
+        return parser;
+    }
+
+    /**
+     * Skip to the start of the first record which begins after the current position, for a reader which
+     * starts part way into a file.
+     *
+     * @param inQuotes whether the current position lies inside a quoted field
+     * @param quotesSpanLines whether quoted fields may span lines. If not, every line break ends a record.
+     */
+    public void skipPartialRecord(boolean inQuotes,boolean quotesSpanLines) throws IOException{
+        byte quote=parser.quote();
+        boolean quoted=inQuotes && quotesSpanLines;
+        int p=parser.position();
+        while(true){
+            if(p==limit){
+                parser.reset(buffer,p,limit,endOfInput);
+                if(endOfInput) return;
+                fill();
+                p=parser.position();
+                continue;
+            }
+            byte b=buffer[p++];
+            if(b==quote && quotesSpanLines)
+                quoted=!quoted;
+            else if(!quoted && (b=='\n' || b=='\r')){
+                parser.reset(buffer,p,limit,endOfInput);
+                if(b=='\r'){
+                    if(p==limit && !endOfInput){
+                        fill();
+                        p=parser.position();
+                    }
+                    if(p<limit && buffer[p]=='\n')
+                        parser.reset(buffer,p+1,limit,endOfInput);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count the quote characters in the next {@code length} bytes of a stream.
+     */
+    public static long countQuotes(InputStream in,long length,char quote) throws IOException{
+        byte[] buffer=new byte[DEFAULT_BUFFER_SIZE];
+        byte q=(byte)quote;
+        long count=0L;
+        long remaining=length;
+        while(remaining>0){
+            int read=in.read(buffer,0,(int)Math.min(buffer.length,remaining));
+            if(read<0) break;
+            for(int i=0;i<read;i++){
+                if(buffer[i]==q) count++;
+            }
+            remaining-=read;
+        }
+        return count;
+    }
+
+    /**
+     * Skip the next {@code bytes} bytes of a stream.
+     */
+    public static void skipFully(InputStream in,long bytes) throws IOException{
+        long remaining=bytes;
+        while(remaining>0){
+            long skipped=in.skip(remaining);
+            if(skipped<=0){
+                //skip() may stop short of the end of the stream, so read a byte to tell whether it has
+                if(in.read()<0)
+                    throw new EOFException("Unexpected end of file, "+remaining+" bytes short of "+bytes);
+                skipped=1;
+            }
+            remaining-=skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        in.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void fill() throws IOException{
+        int start=parser.position();
+        int remaining=limit-start;
+        if(start==0 && remaining==buffer.length){
+            //a single record which doesn't fit in the buffer
+            buffer=Arrays.copyOf(buffer,buffer.length*2);
+        }else if(start>0){
+            System.arraycopy(buffer,start,buffer,0,remaining);
+            bufferOffset+=start;
+        }
+        limit=remaining;
+        int read;
+        do{
+            read=in.read(buffer,limit,buffer.length-limit);
+        }while(read==0);
+        if(read<0)
+            endOfInput=true;
+        else
+            limit+=read;
+        parser.reset(buffer,0,limit,endOfInput);
+    }
+}
@@ -188,6 +188,7 @@ public class HdfsImport {
                  charset,
                  true,
                  false,
+                 null,
                  results);
     }
 
@@ -268,6 +269,58 @@ public class HdfsImport {
                  charset,
                  false,
                  false,
+                 null,
+                 results);
+    }
+
+    /**
+     * The SYSCS_UTIL.BULK_IMPORT_HFILE system procedure imports data in the same way as
+     * {@link #IMPORT_DATA}, but rather than writing the rows through the write pipeline, it writes them
+     * into store files in a staging directory, pre-splits the table and its indexes from a sample of the
+     * keys, and then loads the files directly into the regions.
+     * <p/>
+     * This is much faster for large loads into a new or empty table, but primary key and unique constraints
+     * are not checked against the existing data, and tables with foreign keys or triggers cannot be
+     * bulk imported.
+     *
+     * @param bulkImportDirectory the directory in which to stage the store files before they are loaded. It
+     *                            must be on the same file system as the database.
+     * @see #IMPORT_DATA for the remaining parameters
+     */
+    public static void BULK_IMPORT_HFILE(String schemaName,
+                                         String tableName,
+                                         String insertColumnList,
+                                         String fileName,
+                                         String columnDelimiter,
+                                         String characterDelimiter,
+                                         String timestampFormat,
+                                         String dateFormat,
+                                         String timeFormat,
+                                         long badRecordsAllowed,
+                                         String badRecordDirectory,
+                                         String oneLineRecords,
+                                         String charset,
+                                         String bulkImportDirectory,
+                                         ResultSet[] results
+    ) throws SQLException {
+        if (bulkImportDirectory == null || bulkImportDirectory.isEmpty())
+            throw PublicAPI.wrapStandardException(ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(tableName, "no staging directory"));
+        doImport(schemaName,
+                 tableName,
+                 insertColumnList,
+                 fileName,
+                 columnDelimiter,
+                 characterDelimiter,
+                 timestampFormat,
+                 dateFormat,
+                 timeFormat,
+                 badRecordsAllowed,
+                 badRecordDirectory,
+                 oneLineRecords,
+                 charset,
+                 false,
+                 false,
+                 bulkImportDirectory,
                  results);
     }
 
@@ -287,15 +340,16 @@ public class HdfsImport {
                                  String charset,
                                  boolean isUpsert,
                                  boolean isCheckScan,
+                                 String bulkImportDirectory,
                                  ResultSet[] results) throws SQLException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "doImport {schemaName=%s, tableName=%s, insertColumnList=%s, fileName=%s, " +
                                      "columnDelimiter=%s, characterDelimiter=%s, timestampFormat=%s, dateFormat=%s, " +
                 "timeFormat=%s, badRecordsAllowed=%d, badRecordDirectory=%s, oneLineRecords=%s, charset=%s, " +
-                "isUpsert=%s, isCheckScan=%s}",
+                "isUpsert=%s, isCheckScan=%s, bulkImportDirectory=%s}",
                                  schemaName, tableName, insertColumnListString, fileName, columnDelimiter, characterDelimiter,
                                  timestampFormat, dateFormat, timeFormat, badRecordsAllowed, badRecordDirectory,
-                                 oneLineRecords, charset, isUpsert, isCheckScan);
+                                 oneLineRecords, charset, isUpsert, isCheckScan, bulkImportDirectory);
 
         if (charset == null) {
             charset = StandardCharsets.UTF_8.name();
@@ -375,7 +429,8 @@ public class HdfsImport {
             ColumnInfo columnInfo = new ColumnInfo(conn, schemaName, tableName, insertColumnList);
             String insertSql = "INSERT INTO " + entityName + "(" + columnInfo.getInsertColumnNames() + ") " +
                 "--splice-properties insertMode=" + (isUpsert ? "UPSERT" : "INSERT") + ", statusDirectory=" +
-                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed + "\n" +
+                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed +
+                (bulkImportDirectory == null ? "" : ", bulkImportDirectory=" + bulkImportDirectory) + "\n" +
                 " SELECT "+
                     generateColumnList(((EmbedConnection)conn).getLanguageConnection(),schemaName,tableName,insertColumnList) +
                     " from " +
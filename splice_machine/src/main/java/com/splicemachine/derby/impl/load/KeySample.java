@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.primitives.Bytes;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A random sample of the row keys which a bulk import writes to a single conglomerate, along with the total
+ * number and size of all of its rows, from which to choose the points at which to split the conglomerate.
+ */
+public class KeySample implements Externalizable{
+    private long conglomerateId;
+    private long rowCount;
+    private long byteCount;
+    private List<byte[]> keys;
+
+    public KeySample(){
+    }
+
+    public KeySample(long conglomerateId){
+        this.conglomerateId=conglomerateId;
+        this.keys=new ArrayList<>();
+    }
+
+    /**
+     * Record a row written to the conglomerate.
+     *
+     * @param sampledKey the key of the row, if it is part of the sample, or {@code null} if it is not
+     * @param rowSize the size of the row in bytes
+     */
+    public void add(byte[] sampledKey,long rowSize){
+        rowCount++;
+        byteCount+=rowSize;
+        if(sampledKey!=null)
+            keys.add(sampledKey);
+    }
+
+    public void merge(KeySample other){
+        assert other.conglomerateId==conglomerateId:"Cannot merge samples of different conglomerates";
+        rowCount+=other.rowCount;
+        byteCount+=other.byteCount;
+        keys.addAll(other.keys);
+    }
+
+    public long getConglomerateId(){
+        return conglomerateId;
+    }
+
+    public long getRowCount(){
+        return rowCount;
+    }
+
+    public long getByteCount(){
+        return byteCount;
+    }
+
+    /**
+     * Choose the points at which to split the conglomerate so that each of its regions holds roughly
+     * {@code regionSize} bytes, from the quantiles of the sampled keys.
+     *
+     * @return the split points in ascending order, or an empty array if the rows fit in a single region,
+     * or if {@code regionSize} is not positive
+     */
+    public byte[][] splitPoints(long regionSize){
+        if(regionSize<=0 || byteCount<=regionSize) return new byte[0][];
+        long regions=byteCount/regionSize+(byteCount%regionSize==0?0:1); //rounded up, without overflowing
+        regions=Math.min(regions,keys.size()+1);
+        if(regions<=1) return new byte[0][];
+
+        List<byte[]> sorted=new ArrayList<>(keys);
+        Collections.sort(sorted,Bytes.BASE_COMPARATOR);
+        List<byte[]> splits=new ArrayList<>((int)regions-1);
+        for(long i=1;i<regions;i++){
+            byte[] split=sorted.get((int)(i*sorted.size()/regions));
+            //a heavily duplicated key can fall on more than one quantile, but can only split the table once
+            if(splits.isEmpty() || !Bytes.equals(splits.get(splits.size()-1),split))
+                splits.add(split);
+        }
+        return splits.toArray(new byte[splits.size()][]);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeLong(conglomerateId);
+        out.writeLong(rowCount);
+        out.writeLong(byteCount);
+        out.writeInt(keys.size());
+        for(byte[] key : keys){
+            out.writeInt(key.length);
+            out.write(key);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        conglomerateId=in.readLong();
+        rowCount=in.readLong();
+        byteCount=in.readLong();
+        int size=in.readInt();
+        keys=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            byte[] key=new byte[in.readInt()];
+            in.readFully(key);
+            keys.add(key);
+        }
+    }
+}
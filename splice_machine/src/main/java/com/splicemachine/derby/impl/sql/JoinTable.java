@@ -28,7 +28,16 @@ import java.util.Iterator;
 public interface JoinTable extends AutoCloseable{
 
     interface Factory{
-        JoinTable newTable();
+        /**
+         * The same factory may be shared by joins with different outer sides, so the outer hash keys
+         * and row shape are supplied per table.
+         */
+        JoinTable newTable(int[] outerHashKeys,ExecRow outerTemplateRow);
+
+        /**
+         * @return the (approximate) number of bytes of heap held by the inner rows.
+         */
+        long sizeInBytes();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
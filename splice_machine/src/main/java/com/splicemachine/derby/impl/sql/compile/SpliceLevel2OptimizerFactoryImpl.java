@@ -16,6 +16,8 @@
 package com.splicemachine.derby.impl.sql.compile;
 
 import java.util.Properties;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.compile.CostEstimate;
 import com.splicemachine.db.iapi.sql.compile.JoinStrategy;
@@ -42,6 +44,27 @@ public class SpliceLevel2OptimizerFactoryImpl extends OptimizerFactoryImpl {
 		return true;
 	}
 
+	/**
+	 * @see OptimizerFactory#getPlanSettings
+	 */
+	@Override
+	public String getPlanSettings() {
+		SConfiguration config = EngineDriver.driver().getConfiguration();
+		return super.getPlanSettings()+
+				" planMinimumTimeout="+config.getOptimizerPlanMinimumTimeout()+
+				" planMaximumTimeout="+config.getOptimizerPlanMaximumTimeout()+
+				" broadcastRegionMbThreshold="+config.getBroadcastRegionMbThreshold()+
+				" broadcastRegionRowThreshold="+config.getBroadcastRegionRowThreshold()+
+				" extraQualifierMultiplier="+config.getOptimizerExtraQualifierMultiplier()+
+				" fallbackNullFraction="+config.getFallbackNullFraction()+
+				" fallbackRowWidth="+config.getFallbackRowWidth()+
+				" fallbackMinimumRowCount="+config.getFallbackMinimumRowCount()+
+				" fallbackRegionRowCount="+config.getFallbackRegionRowCount()+
+				" fallbackLocalLatency="+config.getFallbackLocalLatency()+
+				" fallbackRemoteLatencyRatio="+config.getFallbackRemoteLatencyRatio()+
+				" fallbackOpencloseLatency="+config.getFallbackOpencloseLatency();
+	}
+
 	public SpliceLevel2OptimizerFactoryImpl()  {
 		
 	}
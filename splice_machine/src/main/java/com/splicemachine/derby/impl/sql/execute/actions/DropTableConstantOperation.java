@@ -21,6 +21,7 @@ import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
 import com.splicemachine.db.impl.sql.catalog.TableKey;
 import com.splicemachine.ddl.DDLMessage.*;
 import com.splicemachine.derby.ddl.DDLUtils;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedTableCache;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.db.catalog.UUID;
 import com.splicemachine.db.iapi.services.sanity.SanityManager;
@@ -181,6 +182,7 @@ public class DropTableConstantOperation extends DDLSingleTableConstantOperation
             /* is the table pinned ? , if yes we need to drop it */
             if(td.isPined()){
                 EngineDriver.driver().processorFactory().distributedProcessor().dropPinnedTable(td.getHeapConglomerateId());
+                PinnedTableCache.getInstance().invalidate(td.getHeapConglomerateId());
             }
 
         } catch (Exception e) {
@@ -17,13 +17,23 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 
 import org.spark_project.guava.cache.Cache;
 import org.spark_project.guava.cache.CacheBuilder;
+import org.spark_project.guava.cache.CacheStats;
+import org.spark_project.guava.cache.Weigher;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.management.BroadcastJoinCacheManagement;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.stream.Stream;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -32,42 +42,90 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a Cache of records for use in a Broadcast Join.
+ * <p/>
+ * Tables are weighed by their estimated size in bytes, and the least recently used tables are evicted
+ * once the configured budget is exceeded. A table which is too large to be retained is built and used anyway.
+ * <p/>
+ * When the inner side of the join is an unrestricted scan of a table, and it is read from a read-only snapshot,
+ * the built table is keyed by the conglomerate, the snapshot and the shape of the scanned rows rather than by
+ * the join operation. Read-only statements run in children of the user transaction which share its begin
+ * timestamp, so every statement of a read-only transaction reads the same snapshot: such tables are kept after
+ * the last join using them closes, for the later statements of the transaction to reuse, and are only removed
+ * by size or age. Snapshots of different transactions are never matched, since there is no record of which
+ * tables were written between them. Tables which are private to a join operation are removed as soon as the
+ * last join using them closes.
  *
  * @author Scott Fines
  *         Date: 10/27/15
  */
-public class BroadcastJoinCache{
-    private final Cache<Long,ReferenceCountingFactory> cache;
+public class BroadcastJoinCache implements BroadcastJoinCacheManagement{
+    private static volatile BroadcastJoinCache INSTANCE;
+
+    private final Cache<CacheKey,ReferenceCountingFactory> cache;
     private final JoinTableLoader tableLoader;
+    private final long maxSizeInBytes;
 
     interface JoinTableLoader{
         JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,
-                               int[] innerHashKeys,
-                               int[] outerHashKeys,
-                               ExecRow outerTemplateRow) throws ExecutionException;
+                               int[] innerHashKeys) throws ExecutionException;
+    }
+
+    /**
+     * @return the cache shared by all broadcast joins on this server.
+     */
+    public static BroadcastJoinCache getInstance(){
+        BroadcastJoinCache cache=INSTANCE;
+        if(cache==null){
+            synchronized(BroadcastJoinCache.class){
+                cache=INSTANCE;
+                if(cache==null){
+                    EngineDriver driver=EngineDriver.driver();
+                    if(driver==null){
+                        //not running inside of a server, so use the defaults
+                        cache=new BroadcastJoinCache();
+                    }else{
+                        SConfiguration config=driver.getConfiguration();
+                        cache=new BroadcastJoinCache(CompactJoinTableLoader.INSTANCE,
+                                config.getBroadcastJoinCacheSize(),config.getBroadcastJoinCacheExpiration());
+                    }
+                    INSTANCE=cache;
+                }
+            }
+        }
+        return cache;
     }
 
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(CompactJoinTableLoader.INSTANCE,Runtime.getRuntime().maxMemory()/10,60000l);
     }
 
-    public BroadcastJoinCache(JoinTableLoader tableLoader){
+    /**
+     * @param maxSizeInBytes the maximum (estimated) number of bytes held by cached tables
+     * @param expirationMillis the time (in ms) that a table is retained after it was last used
+     */
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxSizeInBytes,long expirationMillis){
         this.tableLoader = tableLoader;
+        this.maxSizeInBytes=maxSizeInBytes;
         this.cache =CacheBuilder.newBuilder()
-                .maximumSize(1000)
-                .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
+                .maximumWeight(Math.max(1l,maxSizeInBytes/1024))
+                .weigher(new Weigher<CacheKey,ReferenceCountingFactory>(){
+                    @Override
+                    public int weigh(CacheKey key,ReferenceCountingFactory value){
+                        //weigh in kilobytes, so that large tables don't overflow
+                        return (int)Math.min(Integer.MAX_VALUE,(value.sizeInBytes()+1023)/1024);
+                    }
+                })
+                .expireAfterAccess(expirationMillis,TimeUnit.MILLISECONDS)
+                .recordStats()
                 .build();
     }
 
-    public JoinTable.Factory get(Long operationId,
+    public JoinTable.Factory get(CacheKey key,
                          Callable<Stream<ExecRow>> loader,
-                         int[] rightHashKeys,
-                         int[] leftHashKeys,
-                         ExecRow leftTemplateRow) throws IOException, StandardException{
+                         int[] rightHashKeys) throws IOException, StandardException{
         try{
-            Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
+            Loader callable=new Loader(key,tableLoader,rightHashKeys,loader);
+            ReferenceCountingFactory joinTable=cache.get(key,callable);
             joinTable.refCount.incrementAndGet();
             return joinTable;
         }catch(ExecutionException e){
@@ -80,33 +138,206 @@ public class BroadcastJoinCache{
         }
     }
 
+    /**
+     * Determine the key under which the inner table of the join is cached.
+     * <p/>
+     * The inner table can only be shared when its contents are determined entirely by the table, the
+     * snapshot, and the columns which are read: that is, when the right side is a plain table scan with no
+     * start or stop keys and no qualifiers, and the transaction reads a read-only snapshot (see
+     * {@link #readsReadOnlySnapshot(TxnView)}). Otherwise, the table is private to this join operation.
+     */
+    public static CacheKey keyFor(JoinOperation operation) throws StandardException{
+        TxnView txn=operation.getCurrentTransaction();
+        SpliceOperation right=operation.getRightOperation();
+        if(right.getClass()==TableScanOperation.class && readsReadOnlySnapshot(txn)){
+            TableScanOperation scan=(TableScanOperation)right;
+            if(scan.scanInformation.getClass()==DerbyScanInformation.class
+                    && ((DerbyScanInformation)scan.scanInformation).isFullScan()
+                    && scan.scanQualifiersField==null
+                    && !scan.oneRowScan
+                    && !scan.pin
+                    && scan.storedAs==null){
+                return new CacheKey(scan.scanInformation.getConglomerateId(),txn.getBeginTimestamp(),
+                        operation.getRightHashKeys(),scan.scanInformation.getAccessedColumns(),
+                        scan.baseColumnMap,scan.tableVersion,scan.rowIdKey);
+            }
+        }
+        return new CacheKey(operation.getSequenceId(),txn.getTxnId(),operation.getRightHashKeys());
+    }
+
+    /**
+     * @return true if the transaction and all of its ancestors are read-only snapshot isolation transactions,
+     * so that whatever it reads is fixed by its begin timestamp. A read-only child of a transaction which
+     * writes sees those writes, and a read committed transaction sees whatever was committed last, so neither
+     * of them reads a snapshot which can be reused.
+     */
+    static boolean readsReadOnlySnapshot(TxnView txn){
+        TxnView view=txn;
+        while(view!=null && !Txn.ROOT_TRANSACTION.equals(view)){
+            if(view.allowsWrites() || view.getIsolationLevel()!=Txn.IsolationLevel.SNAPSHOT_ISOLATION)
+                return false;
+            view=view.getParentTxnView();
+        }
+        return true;
+    }
+
+    /* ****************************************************************************************************************/
+    /*JMX methods*/
+
+    @Override
+    public long getHitCount(){
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount(){
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public double getHitRate(){
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getLoadExceptionCount(){
+        return cache.stats().loadExceptionCount();
+    }
+
+    @Override
+    public long getTotalBuildTime(){
+        return TimeUnit.NANOSECONDS.toMillis(cache.stats().totalLoadTime());
+    }
+
+    @Override
+    public double getAverageBuildTime(){
+        CacheStats stats=cache.stats();
+        long loads=stats.loadCount();
+        return loads==0?0d:stats.totalLoadTime()/(1000000d*loads);
+    }
+
+    @Override
+    public long getEvictionCount(){
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getCachedTableCount(){
+        return cache.size();
+    }
+
+    @Override
+    public long getCachedBytes(){
+        long size=0l;
+        for(ReferenceCountingFactory factory : cache.asMap().values()){
+            size+=factory.sizeInBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public long getMaxCachedBytes(){
+        return maxSizeInBytes;
+    }
+
+    @Override
+    public void invalidateAll(){
+        cache.invalidateAll();
+    }
+
+    /**
+     * Identifies a cached inner table. Keys are either shared (identifying a conglomerate, snapshot and
+     * row shape) or private to a single join operation.
+     */
+    public static final class CacheKey{
+        private final boolean shared;
+        private final long id; //the conglomerate id for shared keys, or the operation id otherwise
+        private final long txnId; //the begin timestamp of the snapshot for shared keys, or the transaction id otherwise
+        private final int[] innerHashKeys;
+        private final FormatableBitSet accessedColumns;
+        private final int[] baseColumnMap;
+        private final String tableVersion;
+        private final boolean rowIdKey;
+
+        CacheKey(long operationId,long txnId,int[] innerHashKeys){
+            this(false,operationId,txnId,innerHashKeys,null,null,null,false);
+        }
+
+        CacheKey(long conglomerateId,long snapshot,int[] innerHashKeys,
+                 FormatableBitSet accessedColumns,int[] baseColumnMap,String tableVersion,boolean rowIdKey){
+            this(true,conglomerateId,snapshot,innerHashKeys,accessedColumns,baseColumnMap,tableVersion,rowIdKey);
+        }
+
+        private CacheKey(boolean shared,long id,long txnId,int[] innerHashKeys,
+                         FormatableBitSet accessedColumns,int[] baseColumnMap,String tableVersion,boolean rowIdKey){
+            this.shared=shared;
+            this.id=id;
+            this.txnId=txnId;
+            this.innerHashKeys=innerHashKeys;
+            this.accessedColumns=accessedColumns;
+            this.baseColumnMap=baseColumnMap;
+            this.tableVersion=tableVersion;
+            this.rowIdKey=rowIdKey;
+        }
+
+        public boolean isShared(){
+            return shared;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof CacheKey)) return false;
+            CacheKey other=(CacheKey)o;
+            return shared==other.shared
+                    && id==other.id
+                    && txnId==other.txnId
+                    && rowIdKey==other.rowIdKey
+                    && Arrays.equals(innerHashKeys,other.innerHashKeys)
+                    && Arrays.equals(baseColumnMap,other.baseColumnMap)
+                    && (accessedColumns==null?other.accessedColumns==null:accessedColumns.equals(other.accessedColumns))
+                    && (tableVersion==null?other.tableVersion==null:tableVersion.equals(other.tableVersion));
+        }
+
+        @Override
+        public int hashCode(){
+            int result=(shared?1:0);
+            result=31*result+(int)(id^(id>>>32));
+            result=31*result+(int)(txnId^(txnId>>>32));
+            result=31*result+Arrays.hashCode(innerHashKeys);
+            result=31*result+Arrays.hashCode(baseColumnMap);
+            result=31*result+(accessedColumns==null?0:accessedColumns.hashCode());
+            result=31*result+(tableVersion==null?0:tableVersion.hashCode());
+            return 31*result+(rowIdKey?1:0);
+        }
+
+        @Override
+        public String toString(){
+            return (shared?"conglomerate=":"operation=")+id+(shared?",snapshot=":",txn=")+txnId+",hashKeys="+Arrays.toString(innerHashKeys);
+        }
+    }
+
     private class Loader implements Callable<ReferenceCountingFactory>{
         private final JoinTableLoader loader;
         private final int[] innerHashKeys;
-        private final int[] outerHashKeys;
-        private final ExecRow outerTemplateRow;
         private final Callable<Stream<ExecRow>> streamLoader;
 
-        private final Long operationId;
+        private final CacheKey key;
 
-        public Loader(Long operationId,
+        public Loader(CacheKey key,
                       JoinTableLoader loader,
                       int[] innerHashKeys,
-                      int[] outerHashKeys,
-                      ExecRow outerTemplateRow,
                       Callable<Stream<ExecRow>> streamLoader){
             this.loader=loader;
-            this.operationId=operationId;
+            this.key=key;
             this.innerHashKeys=innerHashKeys;
-            this.outerHashKeys=outerHashKeys;
-            this.outerTemplateRow=outerTemplateRow;
             this.streamLoader=streamLoader;
         }
 
         @Override
         public ReferenceCountingFactory call() throws Exception{
-            JoinTable.Factory load=loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
-            return new ReferenceCountingFactory(load,operationId);
+            JoinTable.Factory load=loader.load(streamLoader,innerHashKeys);
+            return new ReferenceCountingFactory(load,key);
         }
     }
 
@@ -134,23 +365,29 @@ public class BroadcastJoinCache{
 
     private class ReferenceCountingFactory implements JoinTable.Factory{
         private final JoinTable.Factory delegate;
-        private final Long id;
+        private final CacheKey key;
         private AtomicInteger refCount = new AtomicInteger(0);
 
-        public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
+        public ReferenceCountingFactory(JoinTable.Factory delegate,CacheKey key){
             this.delegate=delegate;
-            this.id=id;
+            this.key=key;
+        }
+
+        @Override
+        public JoinTable newTable(int[] outerHashKeys,ExecRow outerTemplateRow){
+            return new ReferenceCountedJoinTable(delegate.newTable(outerHashKeys,outerTemplateRow),this);
         }
 
         @Override
-        public JoinTable newTable(){
-            return new ReferenceCountedJoinTable(delegate.newTable(),this);
+        public long sizeInBytes(){
+            return delegate.sizeInBytes();
         }
 
         public void markClosed(){
             int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+            //shared tables are left for the later statements of the transaction, and are removed by size or age
+            if(refC<=0 && !key.isShared())
+                cache.asMap().remove(key,this);
         }
     }
 }
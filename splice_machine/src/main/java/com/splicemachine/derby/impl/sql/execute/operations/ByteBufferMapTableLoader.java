@@ -16,6 +16,7 @@
 package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.JoinTable;
 import com.splicemachine.derby.utils.marshall.BareKeyHash;
 import com.splicemachine.derby.utils.marshall.KeyEncoder;
@@ -42,11 +43,16 @@ import java.util.concurrent.ExecutionException;
 class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
     public static BroadcastJoinCache.JoinTableLoader INSTANCE = new ByteBufferMapTableLoader();
 
+    //rough heap cost of a map entry (entry, ByteBuffer and List) and of a row (row and its array)
+    private static final long ENTRY_OVERHEAD=128l;
+    private static final long ROW_OVERHEAD=48l;
+
     private ByteBufferMapTableLoader(){} //singleton class
 
     @Override
-    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws ExecutionException{
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys) throws ExecutionException{
         Map<ByteBuffer, List<ExecRow>> table=new HashMap<>();
+        long sizeInBytes=0l;
 
         DescriptorSerializer[] innerSerializers=null;
         KeyEncoder innerKeyEncoder=null;
@@ -65,8 +71,10 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
                 if(rows==null){
                     rows=new ArrayList<>(1);
                     table.put(key,rows);
+                    sizeInBytes+=ENTRY_OVERHEAD+key.capacity();
                 }
                 rows.add(right.getClone());
+                sizeInBytes+=estimateSize(right);
             }
         }catch(StreamException e){
            throw new ExecutionException(e.getCause());
@@ -75,6 +83,16 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
             else throw new ExecutionException(e);
         }
 
-        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow);
+        return new ByteBufferMappedJoinTable.Factory(table,sizeInBytes);
+    }
+
+    private static long estimateSize(ExecRow row){
+        DataValueDescriptor[] dvds=row.getRowArray();
+        long size=ROW_OVERHEAD+8l*dvds.length;
+        for(DataValueDescriptor dvd : dvds){
+            if(dvd!=null)
+                size+=dvd.estimateMemoryUsage();
+        }
+        return size;
     }
 }
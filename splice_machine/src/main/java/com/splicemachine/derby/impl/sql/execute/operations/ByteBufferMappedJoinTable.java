@@ -63,18 +63,21 @@ class ByteBufferMappedJoinTable implements JoinTable{
 
     static class Factory implements JoinTable.Factory{
         private final Map<ByteBuffer,List<ExecRow>> table;
-        private final int[] outerHashKeys;
-        private final ExecRow outerTemplateRow;
+        private final long sizeInBytes;
 
-        public Factory(Map<ByteBuffer, List<ExecRow>> table,int[] outerHashKeys,ExecRow outerTemplateRow){
+        public Factory(Map<ByteBuffer, List<ExecRow>> table,long sizeInBytes){
             this.table=table;
-            this.outerHashKeys=outerHashKeys;
-            this.outerTemplateRow=outerTemplateRow;
+            this.sizeInBytes=sizeInBytes;
         }
 
         @Override
-        public JoinTable newTable(){
+        public JoinTable newTable(int[] outerHashKeys,ExecRow outerTemplateRow){
             return new ByteBufferMappedJoinTable(table,outerHashKeys,outerTemplateRow);
         }
+
+        @Override
+        public long sizeInBytes(){
+            return sizeInBytes;
+        }
     }
 }
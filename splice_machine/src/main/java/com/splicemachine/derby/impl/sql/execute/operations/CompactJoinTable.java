@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.collections.hashtable.PackedByteMultimap;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A JoinTable which holds the inner rows in serialized form, packed into a {@link PackedByteMultimap}.
+ * <p/>
+ * Compared to holding a map of {@code ExecRow} objects, this holds only a handful of arrays regardless of the
+ * number of inner rows, at the cost of decoding each inner row when it matches.
+ */
+class CompactJoinTable implements JoinTable{
+    private final PackedByteMultimap table;
+    private final ExecRow innerTemplateRow;
+    private final KeyEncoder outerKeyEncoder;
+    private final KeyHashDecoder innerRowDecoder;
+
+    CompactJoinTable(PackedByteMultimap table,ExecRow innerTemplateRow,int[] outerHashkeys,ExecRow outerTemplateRow){
+        this.table=table;
+        this.innerTemplateRow=innerTemplateRow;
+        DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+        this.outerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(outerHashkeys,null,serializers),NoOpPostfix.INSTANCE);
+        this.innerRowDecoder=innerTemplateRow==null?null:rowDecoder(innerTemplateRow);
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(innerTemplateRow==null) return Collections.emptyIterator(); //no inner rows at all
+
+        byte[] outerKey=outerKeyEncoder.getKey(outer);
+        assert outerKey!=null: "Programmer error: outer row does not have row key";
+        int keyId=table.find(outerKey,0,outerKey.length);
+        if(keyId<0)
+            return Collections.emptyIterator();
+        return new InnerRows(table.firstValue(keyId));
+    }
+
+    @Override
+    public void close(){
+        if(innerRowDecoder==null) return;
+        try{
+            innerRowDecoder.close();
+        }catch(IOException ignored){ }
+    }
+
+    /**
+     * Encodes every column of the row, for use in the table.
+     */
+    static KeyEncoder rowEncoder(ExecRow template){
+        DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(template);
+        return new KeyEncoder(NoOpPrefix.INSTANCE,BareKeyHash.encoder(null,null,serializers),NoOpPostfix.INSTANCE);
+    }
+
+    private static KeyHashDecoder rowDecoder(ExecRow template){
+        DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(template);
+        return BareKeyHash.decoder(null,null,serializers);
+    }
+
+    private class InnerRows implements Iterator<ExecRow>{
+        private int nextValue;
+
+        InnerRows(int firstValue){
+            this.nextValue=firstValue;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return nextValue>=0;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(nextValue<0) throw new NoSuchElementException();
+            ExecRow row=innerTemplateRow.getNewNullRow();
+            innerRowDecoder.set(table.arena(),table.valueOffset(nextValue),table.valueLength(nextValue));
+            try{
+                innerRowDecoder.decode(row);
+            }catch(StandardException se){
+                throw new RuntimeException(se);
+            }
+            nextValue=table.nextValue(nextValue);
+            return row;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final PackedByteMultimap table;
+        private final ExecRow innerTemplateRow;
+
+        /**
+         * @param innerTemplateRow the template to decode inner rows into, or {@code null} if there are no inner rows
+         */
+        Factory(PackedByteMultimap table,ExecRow innerTemplateRow){
+            this.table=table;
+            this.innerTemplateRow=innerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(int[] outerHashKeys,ExecRow outerTemplateRow){
+            return new CompactJoinTable(table,innerTemplateRow,outerHashKeys,outerTemplateRow);
+        }
+
+        @Override
+        public long sizeInBytes(){
+            return table.sizeInBytes();
+        }
+    }
+}
@@ -31,6 +31,7 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableArrayHolder;
 import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.services.io.FormatableIntHolder;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecIndexRow;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
@@ -312,6 +313,38 @@ public class DerbyScanInformation implements ScanInformation<ExecRow>, Externali
         return conglomId;
     }
 
+    /**
+     * @return true if the scan has neither a start nor a stop key, and so covers the entire conglomerate.
+     */
+    public boolean isFullScan() {
+        return startKeyGetterMethodName == null && stopKeyGetterMethodName == null;
+    }
+
+    /**
+     * @return true if the start key of the scan is exactly the key of the only row which it can return: that is, if
+     * the start and stop positions are the same, and give a value of the column's own type to every column of the
+     * primary key. CHAR columns don't qualify, since their stored values may be padded beyond the value searched for.
+     */
+    public boolean isPointLookup() throws StandardException {
+        if (!sameStartStopPosition || rowIdKey || startKeyGetterMethodName == null)
+            return false;
+        int[] keyColumns = getColumnOrdering();
+        if (keyColumns == null || keyColumns.length == 0)
+            return false;
+        ExecIndexRow startPosition = getStartPosition();
+        if (startPosition == null || startPosition.nColumns() != keyColumns.length)
+            return false;
+        int[] formatIds = getConglomerate().getFormat_ids();
+        for (int i = 0; i < keyColumns.length; i++) {
+            DataValueDescriptor value = startPosition.getColumn(i + 1);
+            if (value == null
+                    || value.getTypeFormatId() != formatIds[keyColumns[i]]
+                    || value.getTypeFormatId() == StoredFormatIds.SQL_CHAR_ID)
+                return false;
+        }
+        return true;
+    }
+
     protected Qualifier[][] populateQualifiers() throws StandardException {
 
         Qualifier[][] scanQualifiers = null;
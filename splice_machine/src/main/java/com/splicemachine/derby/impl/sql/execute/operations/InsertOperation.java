@@ -39,6 +39,7 @@ import com.splicemachine.db.impl.sql.compile.InsertNode;
 import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
+import com.splicemachine.derby.impl.load.BulkImporter;
 import com.splicemachine.derby.impl.sql.execute.actions.InsertConstantOperation;
 import com.splicemachine.derby.impl.sql.execute.sequence.SequenceKey;
 import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
@@ -47,6 +48,8 @@ import com.splicemachine.derby.stream.function.InsertPairFunction;
 import com.splicemachine.derby.stream.output.DataSetWriter;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
 import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
+import com.splicemachine.derby.utils.marshall.PairEncoder;
+import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.txn.TxnView;
@@ -73,6 +76,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
     public InsertNode.InsertMode insertMode;
     public String statusDirectory;
     private int failBadRecordCount;
+    private String bulkImportDirectory;
     protected String delimited;
     protected String escaped;
     protected String lines;
@@ -100,6 +104,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                            String insertMode,
                            String statusDirectory,
                            int failBadRecordCount,
+                           String bulkImportDirectory,
                            double optimizerEstimatedRowCount,
                            double optimizerEstimatedCost,
                            String tableVersion,
@@ -114,6 +119,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         this.insertMode=InsertNode.InsertMode.valueOf(insertMode);
         this.statusDirectory=statusDirectory;
         this.failBadRecordCount = (failBadRecordCount >= 0 ? failBadRecordCount : -1);
+        this.bulkImportDirectory = bulkImportDirectory;
         this.delimited = delimited;
         this.escaped = escaped;
         this.lines = lines;
@@ -174,6 +180,10 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         return this.failBadRecordCount >= 0 && numberOfErrors > this.failBadRecordCount;
     }
 
+    public boolean hasPrimaryKey(){
+        return pkCols!=null && pkCols.length>0;
+    }
+
     @Override
     public String toString(){
         return "Insert{destTable="+heapConglom+",source="+source+"}";
@@ -215,6 +225,16 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
             this.getActivation().getLanguageConnectionContext().setIdentityValue(nextIncrement);
     }
 
+    /**
+     * @return an encoder for rows of the target table, producing exactly what this insert writes to the
+     * write pipeline
+     */
+    public PairEncoder getRowEncoder(TxnView txn) throws StandardException{
+        InsertPipelineWriter writer=new InsertPipelineWriter(pkCols,tableVersion,getExecRowDefinition(),
+                autoIncrementRowLocationArray,spliceSequences,heapConglom,txn,null,false);
+        return new PairEncoder(writer.getKeyEncoder(),writer.getRowHash(),KVPair.Type.INSERT);
+    }
+
     private boolean isSingleRowResultSet(){
         boolean isRow=false;
         if(source instanceof RowOperation)
@@ -246,6 +266,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if(in.readBoolean())
             statusDirectory=in.readUTF();
         failBadRecordCount=in.readInt();
+        bulkImportDirectory = in.readBoolean()?in.readUTF():null;
         delimited = in.readBoolean()?in.readUTF():null;
         escaped = in.readBoolean()?in.readUTF():null;
         lines = in.readBoolean()?in.readUTF():null;
@@ -268,6 +289,9 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if(statusDirectory!=null)
             out.writeUTF(statusDirectory);
         out.writeInt(failBadRecordCount);
+        out.writeBoolean(bulkImportDirectory!=null);
+        if (bulkImportDirectory!=null)
+            out.writeUTF(bulkImportDirectory);
         out.writeBoolean(delimited!=null);
         if (delimited!=null)
             out.writeUTF(delimited);
@@ -323,6 +347,9 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                 new RuntimeException("storedAs type not supported -> " + storedAs);
             }
 
+            if (bulkImportDirectory!=null)
+                return new BulkImporter(this,heapConglom,bulkImportDirectory).bulkImport(set,operationContext,txn);
+
 
 
 
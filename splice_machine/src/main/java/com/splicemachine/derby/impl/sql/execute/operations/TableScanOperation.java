@@ -303,6 +303,24 @@ public class TableScanOperation extends ScanOperation{
         return getTableScannerBuilder(dsp);
     }
 
+    /**
+     *
+     * Determine the key of the only row this scan can read, if the scan looks up a single row of a base table
+     * by its full primary key (as the inner table of a nested loop join often does).
+     *
+     * @return the row key given the current values of the scan's start position, or null if this scan
+     * can't be done as a lookup of a single key.
+     * @throws StandardException
+     */
+    public byte[] getPointLookupKey() throws StandardException{
+        if(indexName!=null || rowIdKey || pin || storedAs!=null
+                || scanInformation.getClass()!=DerbyScanInformation.class
+                || !((DerbyScanInformation)scanInformation).isPointLookup())
+            return null;
+        byte[] key=getNonSIScan().getStartKey();
+        return key==null || key.length==0?null:key;
+    }
+
     /**
      *
      * Return the string representation for TableScan.
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * The qualifiers of a scan which can be evaluated over a whole {@link ScanBatch} at once, before any of
+ * its rows are decoded.
+ * <p/>
+ * Only the simplest qualifiers are supported: those in the top-level AND list which compare a non-key
+ * column of a numeric (but not DECIMAL), DATE, or VARCHAR type against a constant. The rest of the
+ * qualifiers are left to be evaluated row by row, as they always have been; since the rows which pass
+ * this filter are still qualified individually, it only needs to remove rows which would fail anyway.
+ */
+class BatchQualifierFilter{
+    private final ColumnPredicate[] predicates;
+
+    private BatchQualifierFilter(ColumnPredicate[] predicates){
+        this.predicates=predicates;
+    }
+
+    /**
+     * @param qualifiers the scan's qualifiers
+     * @param baseColumnMap the map from the storage position of a qualified column to its position in the
+     *                      template, or {@code null} if they are the same
+     * @param template the row template which the scanner decodes into
+     * @param rowDecodingMap the map from field position to template position
+     * @return a filter for the qualifiers which can be evaluated over a batch, or {@code null} if there are none
+     */
+    static BatchQualifierFilter create(Qualifier[][] qualifiers,
+                                       int[] baseColumnMap,
+                                       ExecRow template,
+                                       int[] rowDecodingMap) throws StandardException{
+        if(qualifiers==null || qualifiers.length==0 || qualifiers[0]==null || rowDecodingMap==null)
+            return null;
+        List<ColumnPredicate> predicates=new ArrayList<>(qualifiers[0].length);
+        for(Qualifier qualifier : qualifiers[0]){
+            ColumnPredicate predicate=predicateFor(qualifier,baseColumnMap,template,rowDecodingMap);
+            if(predicate!=null)
+                predicates.add(predicate);
+        }
+        if(predicates.isEmpty()) return null;
+        return new BatchQualifierFilter(predicates.toArray(new ColumnPredicate[predicates.size()]));
+    }
+
+    void filter(ScanBatch batch){
+        for(ColumnPredicate predicate : predicates){
+            if(batch.numSelected()==0) return;
+            predicate.filter(batch);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ColumnPredicate predicateFor(Qualifier qualifier,
+                                                int[] baseColumnMap,
+                                                ExecRow template,
+                                                int[] rowDecodingMap) throws StandardException{
+        if(qualifier.getVariantType()==Qualifier.VARIANT) return null;
+        int storagePosition=qualifier.getStoragePosition();
+        int columnPosition=baseColumnMap!=null? baseColumnMap[storagePosition] : storagePosition;
+        int field=fieldPosition(rowDecodingMap,columnPosition);
+        if(field<0) return null; //a key column, or one which is not decoded by the scanner
+        DataValueDescriptor column=template.getRowArray()[columnPosition];
+        /*
+         * The cached orderable may be from an earlier scan: the inner scan of a nested loop join, for one,
+         * compares against the current outer row, which changes from one scan to the next
+         */
+        qualifier.clearOrderableCache();
+        DataValueDescriptor constant=qualifier.getOrderable();
+        if(column==null || constant==null || constant.isNull()) return null;
+
+        int operator=qualifier.getOperator();
+        boolean negate=qualifier.negateCompareResult();
+        int columnType=column.getTypeFormatId();
+        int constantType=constant.getTypeFormatId();
+        if(isNumeric(columnType) && isNumeric(constantType)){
+            /*
+             * Compare in the same domain that the dominant type of the two would: as longs if they are
+             * both integers, otherwise as doubles if either is a DOUBLE, otherwise as floats.
+             */
+            if(isIntegral(columnType) && isIntegral(constantType))
+                return ColumnPredicate.longPredicate(field,operator,negate,constant.getLong());
+            if(columnType==StoredFormatIds.SQL_DOUBLE_ID || constantType==StoredFormatIds.SQL_DOUBLE_ID)
+                return ColumnPredicate.doublePredicate(field,operator,negate,encodingOf(columnType),constant.getDouble());
+            return ColumnPredicate.floatPredicate(field,operator,negate,encodingOf(columnType),constant.getFloat());
+        }else if(columnType==StoredFormatIds.SQL_DATE_ID && constantType==StoredFormatIds.SQL_DATE_ID){
+            TimeZone timeZone=TimeZone.getDefault();
+            long day=ColumnPredicate.localDay(constant.getDate((Calendar)null).getTime(),timeZone);
+            return ColumnPredicate.datePredicate(field,operator,negate,timeZone,day);
+        }else if(isString(column) && isString(constant)
+                && (column.getClass()==SQLVarchar.class || constant.getClass()==SQLVarchar.class)){
+            //when either side is a VARCHAR, strings are compared without blank padding
+            return ColumnPredicate.stringPredicate(field,operator,negate,constant.getString());
+        }
+        return null;
+    }
+
+    private static int fieldPosition(int[] rowDecodingMap,int columnPosition){
+        for(int i=0;i<rowDecodingMap.length;i++){
+            if(rowDecodingMap[i]==columnPosition) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isIntegral(int typeFormatId){
+        switch(typeFormatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNumeric(int typeFormatId){
+        return isIntegral(typeFormatId)
+                || typeFormatId==StoredFormatIds.SQL_REAL_ID
+                || typeFormatId==StoredFormatIds.SQL_DOUBLE_ID;
+    }
+
+    private static int encodingOf(int typeFormatId){
+        switch(typeFormatId){
+            case StoredFormatIds.SQL_REAL_ID: return ColumnPredicate.FLOAT;
+            case StoredFormatIds.SQL_DOUBLE_ID: return ColumnPredicate.DOUBLE;
+            default: return ColumnPredicate.SCALAR;
+        }
+    }
+
+    private static boolean isString(DataValueDescriptor dvd){
+        //exact classes only: collated strings and LOBs compare differently
+        return dvd.getClass()==SQLChar.class || dvd.getClass()==SQLVarchar.class;
+    }
+}
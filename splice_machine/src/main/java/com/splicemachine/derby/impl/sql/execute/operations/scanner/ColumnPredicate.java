@@ -0,0 +1,347 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.encoding.Encoding;
+
+import java.util.TimeZone;
+
+/**
+ * A comparison of a single field against a constant, evaluated over a whole {@link ScanBatch} at a time.
+ * The field is first decoded from every selected row into a primitive vector, and the comparison is then
+ * made over the vector, compacting the batch's selection in place.
+ * <p/>
+ * This is a <em>pre</em>-filter: a row is only removed from the selection if the comparison is definitely
+ * false. Rows in which the field is null are always kept, and the full qualification of the row (which
+ * knows how the qualifier treats nulls) decides what to do with them.
+ */
+abstract class ColumnPredicate{
+    /** The field is encoded as a variable length integer */
+    static final int SCALAR=0;
+    /** The field is encoded as a float */
+    static final int FLOAT=1;
+    /** The field is encoded as a double */
+    static final int DOUBLE=2;
+
+    private static final long MILLIS_PER_DAY=86400000L;
+
+    final int position;
+    private final int operator;
+    private final boolean negate;
+    boolean[] nulls=new boolean[0];
+
+    private ColumnPredicate(int position,int operator,boolean negate){
+        this.position=position;
+        this.operator=operator;
+        this.negate=negate;
+    }
+
+    /**
+     * Compare integer valued fields against {@code value}.
+     */
+    static ColumnPredicate longPredicate(int position,int operator,boolean negate,long value){
+        return new LongPredicate(position,operator,negate,value);
+    }
+
+    /**
+     * Compare fields against {@code value} as floats--that is, with the precision of a REAL.
+     *
+     * @param encoding either {@link #SCALAR} or {@link #FLOAT}
+     */
+    static ColumnPredicate floatPredicate(int position,int operator,boolean negate,int encoding,float value){
+        assert encoding!=DOUBLE: "Cannot compare doubles with the precision of a float";
+        return new FloatPredicate(position,operator,negate,encoding,value);
+    }
+
+    /**
+     * Compare fields against {@code value} as doubles.
+     *
+     * @param encoding one of {@link #SCALAR}, {@link #FLOAT}, or {@link #DOUBLE}
+     */
+    static ColumnPredicate doublePredicate(int position,int operator,boolean negate,int encoding,double value){
+        return new DoublePredicate(position,operator,negate,encoding,value);
+    }
+
+    /**
+     * Compare DATE fields against the date which falls on the local day {@code day} (as returned by
+     * {@link #localDay(long, TimeZone)}) in {@code timeZone}.
+     */
+    static ColumnPredicate datePredicate(int position,int operator,boolean negate,TimeZone timeZone,long day){
+        return new DatePredicate(position,operator,negate,timeZone,day);
+    }
+
+    /**
+     * Compare string fields against {@code value}, using the ordering of {@link String#compareTo(String)}
+     * (i.e. that of VARCHAR, and not the blank padded ordering of CHAR).
+     */
+    static ColumnPredicate stringPredicate(int position,int operator,boolean negate,String value){
+        return new StringPredicate(position,operator,negate,value);
+    }
+
+    /**
+     * @return the number of days since the epoch of the date on which {@code millis} falls in {@code timeZone}.
+     */
+    static long localDay(long millis,TimeZone timeZone){
+        long local=millis+timeZone.getOffset(millis);
+        long day=local/MILLIS_PER_DAY;
+        if(local<0 && day*MILLIS_PER_DAY!=local) day--; //round towards negative infinity
+        return day;
+    }
+
+    /**
+     * Remove from the batch's selection every row for which the comparison is definitely false.
+     */
+    void filter(ScanBatch batch){
+        int n=batch.numSelected();
+        if(n==0) return;
+        if(nulls.length<n)
+            grow(batch.size());
+        int[] selection=batch.selection();
+        decode(batch,selection,n);
+        batch.setNumSelected(select(selection,n));
+    }
+
+    /**
+     * Decode the field from the first {@code n} rows of the selection into this predicate's vector, setting
+     * {@code nulls[i]} for each row in which it is null.
+     */
+    abstract void decode(ScanBatch batch,int[] selection,int n);
+
+    /**
+     * Evaluate the comparison over the vector, moving the rows that may qualify to the front of the selection.
+     *
+     * @return the number of rows which may qualify
+     */
+    abstract int select(int[] selection,int n);
+
+    void grow(int size){
+        nulls=new boolean[size];
+    }
+
+    final boolean satisfies(int compare){
+        boolean result;
+        switch(operator){
+            case Orderable.ORDER_OP_LESSTHAN: result = compare<0; break;
+            case Orderable.ORDER_OP_EQUALS: result = compare==0; break;
+            case Orderable.ORDER_OP_LESSOREQUALS: result = compare<=0; break;
+            case Orderable.ORDER_OP_GREATERTHAN: result = compare>0; break;
+            case Orderable.ORDER_OP_GREATEROREQUALS: result = compare>=0; break;
+            default:
+                throw new IllegalStateException("Unknown operator "+operator);
+        }
+        return result!=negate;
+    }
+
+    static boolean isNull(int encoding,byte[] data,int offset,int length){
+        switch(encoding){
+            case FLOAT: return length<=0 || Encoding.isNullFloat(data,offset,length);
+            case DOUBLE: return length<=0 || Encoding.isNullDOuble(data,offset,length);
+            default: return length<=0;
+        }
+    }
+
+    private static double decodeDouble(int encoding,byte[] data,int offset){
+        switch(encoding){
+            case FLOAT: return Encoding.decodeFloat(data,offset,false);
+            case DOUBLE: return Encoding.decodeDouble(data,offset,false);
+            default: return Encoding.decodeLong(data,offset,false);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*implementations*/
+    private static class LongPredicate extends ColumnPredicate{
+        private final long value;
+        private long[] values=new long[0];
+
+        LongPredicate(int position,int operator,boolean negate,long value){
+            super(position,operator,negate);
+            this.value=value;
+        }
+
+        @Override
+        void decode(ScanBatch batch,int[] selection,int n){
+            for(int i=0;i<n;i++){
+                int row=selection[i];
+                int length=batch.fieldLength(row,position);
+                if(nulls[i]=length<=0) continue;
+                values[i]=decodeValue(batch.fieldArray(row,position),batch.fieldOffset(row,position));
+            }
+        }
+
+        long decodeValue(byte[] data,int offset){
+            return Encoding.decodeLong(data,offset,false);
+        }
+
+        @Override
+        int select(int[] selection,int n){
+            int kept=0;
+            for(int i=0;i<n;i++){
+                if(nulls[i] || satisfies(Long.compare(values[i],value)))
+                    selection[kept++]=selection[i];
+            }
+            return kept;
+        }
+
+        @Override
+        void grow(int size){
+            super.grow(size);
+            values=new long[size];
+        }
+    }
+
+    private static class DatePredicate extends LongPredicate{
+        private final TimeZone timeZone;
+
+        DatePredicate(int position,int operator,boolean negate,TimeZone timeZone,long day){
+            super(position,operator,negate,day);
+            this.timeZone=timeZone;
+        }
+
+        @Override
+        long decodeValue(byte[] data,int offset){
+            return localDay(Encoding.decodeLong(data,offset,false),timeZone);
+        }
+    }
+
+    private static class FloatPredicate extends ColumnPredicate{
+        private final int encoding;
+        private final float value;
+        private float[] values=new float[0];
+
+        FloatPredicate(int position,int operator,boolean negate,int encoding,float value){
+            super(position,operator,negate);
+            this.encoding=encoding;
+            this.value=value;
+        }
+
+        @Override
+        void decode(ScanBatch batch,int[] selection,int n){
+            for(int i=0;i<n;i++){
+                int row=selection[i];
+                byte[] data=batch.fieldArray(row,position);
+                int offset=batch.fieldOffset(row,position);
+                if(nulls[i]=isNull(encoding,data,offset,batch.fieldLength(row,position))) continue;
+                values[i]=encoding==FLOAT? Encoding.decodeFloat(data,offset,false) : (float)Encoding.decodeLong(data,offset,false);
+            }
+        }
+
+        @Override
+        int select(int[] selection,int n){
+            int kept=0;
+            for(int i=0;i<n;i++){
+                if(nulls[i] || satisfies(compare(values[i],value)))
+                    selection[kept++]=selection[i];
+            }
+            return kept;
+        }
+
+        @Override
+        void grow(int size){
+            super.grow(size);
+            values=new float[size];
+        }
+
+        private static int compare(float left,float right){
+            //as the REAL type does, so that -0.0 and 0.0 are equal
+            return left==right? 0 : (left>right? 1 : -1);
+        }
+    }
+
+    private static class DoublePredicate extends ColumnPredicate{
+        private final int encoding;
+        private final double value;
+        private double[] values=new double[0];
+
+        DoublePredicate(int position,int operator,boolean negate,int encoding,double value){
+            super(position,operator,negate);
+            this.encoding=encoding;
+            this.value=value;
+        }
+
+        @Override
+        void decode(ScanBatch batch,int[] selection,int n){
+            for(int i=0;i<n;i++){
+                int row=selection[i];
+                byte[] data=batch.fieldArray(row,position);
+                int offset=batch.fieldOffset(row,position);
+                if(nulls[i]=isNull(encoding,data,offset,batch.fieldLength(row,position))) continue;
+                values[i]=decodeDouble(encoding,data,offset);
+            }
+        }
+
+        @Override
+        int select(int[] selection,int n){
+            int kept=0;
+            for(int i=0;i<n;i++){
+                if(nulls[i] || satisfies(compare(values[i],value)))
+                    selection[kept++]=selection[i];
+            }
+            return kept;
+        }
+
+        @Override
+        void grow(int size){
+            super.grow(size);
+            values=new double[size];
+        }
+
+        private static int compare(double left,double right){
+            //as the DOUBLE type does, so that -0.0 and 0.0 are equal
+            return left==right? 0 : (left>right? 1 : -1);
+        }
+    }
+
+    private static class StringPredicate extends ColumnPredicate{
+        private final String value;
+        private String[] values=new String[0];
+
+        StringPredicate(int position,int operator,boolean negate,String value){
+            super(position,operator,negate);
+            this.value=value;
+        }
+
+        @Override
+        void decode(ScanBatch batch,int[] selection,int n){
+            for(int i=0;i<n;i++){
+                int row=selection[i];
+                int length=batch.fieldLength(row,position);
+                if(nulls[i]=length<=0){
+                    values[i]=null;
+                    continue;
+                }
+                values[i]=Encoding.decodeString(batch.fieldArray(row,position),batch.fieldOffset(row,position),length,false);
+            }
+        }
+
+        @Override
+        int select(int[] selection,int n){
+            int kept=0;
+            for(int i=0;i<n;i++){
+                if(nulls[i] || satisfies(values[i].compareTo(value)))
+                    selection[kept++]=selection[i];
+            }
+            return kept;
+        }
+
+        @Override
+        void grow(int size){
+            super.grow(size);
+            values=new String[size];
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.RowLocation;
 import com.splicemachine.derby.impl.store.ExecRowAccumulator;
 import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
@@ -35,6 +36,7 @@ import com.splicemachine.si.api.filter.SIFilter;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.TxnPrefetchingScanner;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
 import com.splicemachine.si.impl.txn.DDLTxnView;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
@@ -70,6 +72,7 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private final String tableVersion;
     protected final int[] rowDecodingMap;
     private SIFilter siFilter;
+    private TxnFilter txnFilter;
     private EntryPredicateFilter predicateFilter;
     protected RowLocation currentRowLocation;
     private final boolean[] keyColumnSortOrder;
@@ -88,6 +91,10 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private final Counter outputBytesCounter;
     private long demarcationPoint;
     private DataValueDescriptor optionalProbeValue;
+    private BatchQualifierFilter batchFilter;
+    private ScanBatch batch;
+    private int batchPosition;
+    private boolean batchExhausted;
 
     protected SITableScanner(DataScanner scanner,
                              final TransactionalRegion region,
@@ -181,8 +188,45 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
 
     }
 
+    /**
+     * Read rows {@code batchSize} at a time, and evaluate those of {@code qualifiers} which can be evaluated
+     * over a whole batch before any of its rows are decoded, so that rows which fail them are never decoded
+     * at all. Rows which pass must still be qualified by the caller.
+     * <p/>
+     * This must be called before the first row is read.
+     *
+     * @return true if any of the qualifiers will be evaluated over batches
+     */
+    public boolean filterInBatches(Qualifier[][] qualifiers,int[] baseColumnMap,int batchSize) throws StandardException{
+        assert siFilter==null: "Rows have already been read";
+        if(batchSize<=0 || indexName!=null || optionalProbeValue!=null || template.nColumns()<=0)
+            return false;
+        BatchQualifierFilter filter = BatchQualifierFilter.create(qualifiers,baseColumnMap,template,rowDecodingMap);
+        if(filter==null)
+            return false;
+        this.batchFilter = filter;
+        this.batch = new ScanBatch(batchSize,rowDecodingMap.length);
+        return true;
+    }
+
+    /**
+     * Read rows {@code blockSize} at a time, and look up the transactions which wrote each block (and which
+     * have not been resolved) together before any of its rows are filtered, rather than one at a time.
+     * <p/>
+     * This must be called before the first row is read, and has no effect if the scanner was given its own
+     * filter factory.
+     */
+    public void prefetchTransactions(int blockSize){
+        assert siFilter==null: "Rows have already been read";
+        if(blockSize<=0 || txnFilter==null)
+            return;
+        regionScanner = new TxnPrefetchingScanner(regionScanner,txnFilter,blockSize);
+    }
+
     @Override
     public ExecRow next() throws StandardException, IOException {
+        if(batch!=null)
+            return nextFromBatch();
         SIFilter filter = getSIFilter();
         do{
             template.resetRowArray(); //necessary to deal with null entries--maybe make the underlying call faster?
@@ -215,6 +259,59 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         }while(true); //TODO -sf- this doesn't seem quite right
     }
 
+    private ExecRow nextFromBatch() throws StandardException, IOException {
+        while(batchPosition>=batch.numSelected()){
+            if(!readBatch()){
+                currentRowLocation = null;
+                return null;
+            }
+            batchFilter.filter(batch);
+            filterCounter.add(batch.size()-batch.numSelected());
+            batchPosition = 0;
+        }
+        int row = batch.selection()[batchPosition++];
+        template.resetRowArray();
+        byte[] key = batch.keyArray(row);
+        int keyOffset = batch.keyOffset(row);
+        int keyLength = batch.keyLength(row);
+        filterRowKey(key,keyOffset,keyLength); //decodes the key columns; the row has already passed
+        for(int i=0;i<batch.numFields();i++){
+            if(batch.hasField(row,i))
+                accumulator.decodeField(i,batch.fieldArray(row,i),batch.fieldOffset(row,i),batch.fieldLength(row,i));
+        }
+        setRowLocation(key,keyOffset,keyLength);
+        return template;
+    }
+
+    /**
+     * Fill the batch with the next rows which pass the SI and predicate filters. Rather than being decoded
+     * into the template, the fields of each row are collected into the batch.
+     *
+     * @return false if there are no more rows
+     */
+    private boolean readBatch() throws StandardException, IOException {
+        batch.clear();
+        if(batchExhausted) return false;
+        SIFilter filter = getSIFilter();
+        while(!batch.isFull()){
+            List<DataCell> keyValues=regionScanner.next(-1);
+            if(keyValues.size()<=0){
+                batchExhausted = true;
+                break;
+            }
+            DataCell currentKeyValue = keyValues.get(0);
+            batch.startRow(currentKeyValue.keyArray(),currentKeyValue.keyOffset(),currentKeyValue.keyLength());
+            if(!filterRowKey(currentKeyValue)||!filterRow(filter,keyValues)){
+                filterCounter.increment();
+                continue;
+            }
+            measureOutputSize(keyValues);
+            batch.finishRow();
+        }
+        batch.selectAll();
+        return batch.size()>0;
+    }
+
     public long getBytesOutput(){
         return outputBytesCounter.getTotal();
     }
@@ -258,6 +355,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
             siFilter.getAccumulator().close();
         if (regionScanner != null)
             regionScanner.close();
+        if (batch != null)
+            batch.clear();
     }
 
     public TimeView getTime(){
@@ -295,6 +394,7 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         SIFilterFactory siFilterFactory;
         try {
             final TxnFilter txnFilter = region.unpackedFilter(txnView);
+            this.txnFilter = txnFilter;
 
             siFilterFactory = new SIFilterFactory<Data>() {
                 @Override
@@ -350,7 +450,16 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         if(siFilter==null) {
             boolean isCountStar = scan.getAttribute(SIConstants.SI_COUNT_STAR)!=null;
             predicateFilter= buildInitialPredicateFilter();
-            accumulator = ExecRowAccumulator.newAccumulator(predicateFilter, false, template, rowDecodingMap, tableVersion);
+            if(batch!=null){
+                accumulator = ExecRowAccumulator.newDeferredAccumulator(predicateFilter, template, rowDecodingMap, tableVersion,
+                        new ExecRowAccumulator.FieldCollector(){
+                            @Override
+                            public void collect(int position,byte[] data,int offset,int length){
+                                batch.addField(position,data,offset,length);
+                            }
+                        });
+            }else
+                accumulator = ExecRowAccumulator.newAccumulator(predicateFilter, false, template, rowDecodingMap, tableVersion);
             siFilter = filterFactory.newFilter(predicateFilter,getRowEntryDecoder(),accumulator,isCountStar);
         }
         return siFilter;
@@ -396,18 +505,22 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
                 }
             }
         } else {
-            if (reuseRowLocation) {
-                slice.set(sampleKv.keyArray(),sampleKv.keyOffset(),sampleKv.keyLength());
-            } else {
-                slice = ByteSlice.wrap(sampleKv.keyArray(),sampleKv.keyOffset(),sampleKv.keyLength());
-            }
-            if(currentRowLocation==null || !reuseRowLocation)
-                currentRowLocation = new HBaseRowLocation(slice);
-            else
-                currentRowLocation.setValue(slice);
+            setRowLocation(sampleKv.keyArray(),sampleKv.keyOffset(),sampleKv.keyLength());
         }
     }
 
+    private void setRowLocation(byte[] key,int offset,int length) throws StandardException {
+        if (reuseRowLocation) {
+            slice.set(key,offset,length);
+        } else {
+            slice = ByteSlice.wrap(key,offset,length);
+        }
+        if(currentRowLocation==null || !reuseRowLocation)
+            currentRowLocation = new HBaseRowLocation(slice);
+        else
+            currentRowLocation.setValue(slice);
+    }
+
     @SuppressFBWarnings(value = "SF_SWITCH_NO_DEFAULT",justification = "Intentional")
     private boolean filterRow(SIFilter filter,List<DataCell> keyValues) throws IOException {
         filter.nextRow();
@@ -431,8 +544,12 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     }
 
     private boolean filterRowKey(DataCell data) throws IOException {
+        return filterRowKey(data.keyArray(), data.keyOffset(), data.keyLength());
+    }
+
+    private boolean filterRowKey(byte[] key,int offset,int length) throws IOException {
         if(!isKeyed) return true;
-        keyDecoder.set(data.keyArray(), data.keyOffset(), data.keyLength());
+        keyDecoder.set(key, offset, length);
         if(keyAccumulator==null)
             keyAccumulator = ExecRowAccumulator.newAccumulator(predicateFilter,false,template,
                     keyDecodingMap, keyColumnSortOrder, accessedKeys, tableVersion);
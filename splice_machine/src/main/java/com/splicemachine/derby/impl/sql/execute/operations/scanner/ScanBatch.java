@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A batch of rows read by a table scanner, held in column-major form as references to the still-encoded
+ * bytes of each row key and each field, together with a selection vector holding the (ascending) indices
+ * of the rows which have not been filtered out.
+ * <p/>
+ * No bytes are copied: the batch refers directly to the arrays of the cells that it was read from, so
+ * it is only valid until the scanner moves on to the next batch.
+ */
+@NotThreadSafe
+class ScanBatch{
+    private final int capacity;
+    private final int numFields;
+
+    private final byte[][] keyArrays;
+    private final int[] keyOffsets;
+    private final int[] keyLengths;
+
+    private final byte[][] fieldArrays;
+    private final int[] fieldOffsets;
+    private final int[] fieldLengths; //-1 if the field is not present in the row
+
+    private final int[] selection;
+    private int size;
+    private int numSelected;
+
+    ScanBatch(int capacity,int numFields){
+        assert capacity>0: "Capacity must be positive";
+        this.capacity=capacity;
+        this.numFields=numFields;
+        this.keyArrays=new byte[capacity][];
+        this.keyOffsets=new int[capacity];
+        this.keyLengths=new int[capacity];
+        this.fieldArrays=new byte[capacity*numFields][];
+        this.fieldOffsets=new int[capacity*numFields];
+        this.fieldLengths=new int[capacity*numFields];
+        this.selection=new int[capacity];
+    }
+
+    void clear(){
+        //release the references to the rows (including any that were started but not finished)
+        Arrays.fill(keyArrays,null);
+        Arrays.fill(fieldArrays,null);
+        size=0;
+        numSelected=0;
+    }
+
+    boolean isFull(){
+        return size==capacity;
+    }
+
+    int size(){
+        return size;
+    }
+
+    /**
+     * Begin a new row. The row is not part of the batch until {@link #finishRow()} is called, so a
+     * row which is rejected part way through is discarded by simply starting the next one.
+     */
+    void startRow(byte[] key,int offset,int length){
+        keyArrays[size]=key;
+        keyOffsets[size]=offset;
+        keyLengths[size]=length;
+        Arrays.fill(fieldLengths,size*numFields,(size+1)*numFields,-1);
+    }
+
+    void addField(int position,byte[] data,int offset,int length){
+        int pos=size*numFields+position;
+        fieldArrays[pos]=data;
+        fieldOffsets[pos]=offset;
+        fieldLengths[pos]=length;
+    }
+
+    void finishRow(){
+        size++;
+    }
+
+    void selectAll(){
+        for(int i=0;i<size;i++){
+            selection[i]=i;
+        }
+        numSelected=size;
+    }
+
+    int[] selection(){
+        return selection;
+    }
+
+    int numSelected(){
+        return numSelected;
+    }
+
+    void setNumSelected(int numSelected){
+        assert numSelected<=this.numSelected: "Cannot add rows to the selection";
+        this.numSelected=numSelected;
+    }
+
+    byte[] keyArray(int row){ return keyArrays[row]; }
+
+    int keyOffset(int row){ return keyOffsets[row]; }
+
+    int keyLength(int row){ return keyLengths[row]; }
+
+    boolean hasField(int row,int position){
+        return fieldLengths[row*numFields+position]>=0;
+    }
+
+    byte[] fieldArray(int row,int position){ return fieldArrays[row*numFields+position]; }
+
+    int fieldOffset(int row,int position){ return fieldOffsets[row*numFields+position]; }
+
+    int fieldLength(int row,int position){ return fieldLengths[row*numFields+position]; }
+
+    int numFields(){
+        return numFields;
+    }
+}
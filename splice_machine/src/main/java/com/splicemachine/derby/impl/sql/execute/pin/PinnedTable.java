@@ -0,0 +1,291 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A copy of every version of every cell in a table, held off-heap in row key order.
+ * <p/>
+ * Each row is laid out as
+ * <pre>
+ *     [key length][key][cell count] ([qualifier length][qualifier][version][value length][value])*
+ * </pre>
+ * and is located through a sorted array of row offsets. Because the copy holds the raw cells rather than the
+ * rows visible to some transaction, a scan of the copy can be filtered by any transaction, just as a scan of
+ * the table itself would be.
+ * <p/>
+ * The copy also remembers its <em>floor</em>: a transaction low watermark taken before the table was read.
+ * Any cell which is written to the table after the copy was made belongs to a transaction which began after
+ * the floor, and so has a version which is no less than the floor. Each time the table is checked against the
+ * copy, the floor is raised to a watermark taken before the check, so that later checks read less of the table.
+ */
+class PinnedTable{
+    private final ByteBuffer data;
+    private final int[] rowOffsets;
+    private volatile long floor;
+
+    private PinnedTable(ByteBuffer data,int[] rowOffsets,long floor){
+        this.data=data;
+        this.rowOffsets=rowOffsets;
+        this.floor=floor;
+    }
+
+    /**
+     * Copy the rows returned by a scanner.
+     *
+     * @param scanner a scanner over every version of every cell in the table
+     * @param floor a transaction low watermark, taken before the scanner was opened
+     * @param maxSizeInBytes the largest copy to make
+     * @return the copy, or {@code null} if it would be larger than {@code maxSizeInBytes}
+     */
+    static PinnedTable copy(DataScanner scanner,long floor,long maxSizeInBytes) throws IOException{
+        long limit=Math.min(maxSizeInBytes,Integer.MAX_VALUE);
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        DataOutputStream out=new DataOutputStream(bytes);
+        IntArrayList rowOffsets=new IntArrayList();
+        List<DataCell> cells;
+        while(!(cells=scanner.next(-1)).isEmpty()){
+            DataCell first=cells.get(0);
+            rowOffsets.add(out.size());
+            out.writeInt(first.keyLength());
+            out.write(first.keyArray(),first.keyOffset(),first.keyLength());
+            out.writeInt(cells.size());
+            for(DataCell cell : cells){
+                byte[] qualifier=cell.qualifier();
+                out.writeInt(qualifier.length);
+                out.write(qualifier);
+                out.writeLong(cell.version());
+                out.writeInt(cell.valueLength());
+                out.write(cell.valueArray(),cell.valueOffset(),cell.valueLength());
+            }
+            if(out.size()+4L*rowOffsets.size()>limit)
+                return null;
+        }
+        out.flush();
+        ByteBuffer data=ByteBuffer.allocateDirect(out.size());
+        data.put(bytes.toByteArray());
+        return new PinnedTable(data,rowOffsets.toArray(),floor);
+    }
+
+    long floor(){
+        return floor;
+    }
+
+    /**
+     * Raise the floor, once the table has been checked for cells written since the copy was made.
+     *
+     * @param newFloor a transaction low watermark, taken before the table was checked. Lower values are ignored.
+     */
+    synchronized void advanceFloor(long newFloor){
+        if(newFloor>floor)
+            floor=newFloor;
+    }
+
+    int rowCount(){
+        return rowOffsets.length;
+    }
+
+    long sizeInBytes(){
+        return data.capacity()+4L*rowOffsets.length;
+    }
+
+    /**
+     * @return true if the copy holds a cell with the same row key, qualifier, version and value
+     */
+    boolean contains(DataCell cell){
+        int row=lowerBound(cell.keyArray(),cell.keyOffset(),cell.keyLength());
+        if(row>=rowOffsets.length || compareKey(rowOffsets[row],cell.keyArray(),cell.keyOffset(),cell.keyLength())!=0)
+            return false;
+        byte[] qualifier=cell.qualifier();
+        int position=rowOffsets[row];
+        position+=4+data.getInt(position);
+        int cellCount=data.getInt(position);
+        position+=4;
+        for(int i=0;i<cellCount;i++){
+            int qualifierLength=data.getInt(position);
+            int qualifierOffset=position+4;
+            long version=data.getLong(qualifierOffset+qualifierLength);
+            int valueLength=data.getInt(qualifierOffset+qualifierLength+8);
+            int valueOffset=qualifierOffset+qualifierLength+12;
+            if(version==cell.version()
+                    && equal(qualifierOffset,qualifierLength,qualifier,0,qualifier.length)
+                    && equal(valueOffset,valueLength,cell.valueArray(),cell.valueOffset(),cell.valueLength()))
+                return true;
+            position=valueOffset+valueLength;
+        }
+        return false;
+    }
+
+    /**
+     * Scan the rows of the copy whose keys lie in {@code [startKey,stopKey)}, one row per call to
+     * {@link DataScanner#next(int)}.
+     *
+     * @param partition the table which was copied
+     * @param cellFactory creates the cells which are returned
+     * @param startKey the first row key to return, or an empty array to start at the first row
+     * @param stopKey the row key to stop before, or an empty array to stop after the last row
+     */
+    DataScanner scanner(Partition partition,OperationFactory cellFactory,byte[] startKey,byte[] stopKey){
+        int startRow=startKey==null || startKey.length==0?0:lowerBound(startKey,0,startKey.length);
+        int stopRow=stopKey==null || stopKey.length==0?rowOffsets.length:lowerBound(stopKey,0,stopKey.length);
+        return new RowScanner(partition,cellFactory,startRow,stopRow);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * The index of the first row whose key is no less than the given key
+     */
+    private int lowerBound(byte[] key,int offset,int length){
+        int low=0;
+        int high=rowOffsets.length;
+        while(low<high){
+            int mid=(low+high)>>>1;
+            if(compareKey(rowOffsets[mid],key,offset,length)<0)
+                low=mid+1;
+            else
+                high=mid;
+        }
+        return low;
+    }
+
+    private int compareKey(int rowOffset,byte[] key,int offset,int length){
+        int keyLength=data.getInt(rowOffset);
+        int keyOffset=rowOffset+4;
+        int n=Math.min(keyLength,length);
+        for(int i=0;i<n;i++){
+            int l=data.get(keyOffset+i)&0xff;
+            int r=key[offset+i]&0xff;
+            if(l!=r)
+                return l-r;
+        }
+        return keyLength-length;
+    }
+
+    private boolean equal(int dataOffset,int dataLength,byte[] bytes,int offset,int length){
+        if(dataLength!=length)
+            return false;
+        for(int i=0;i<length;i++){
+            if(data.get(dataOffset+i)!=bytes[offset+i])
+                return false;
+        }
+        return true;
+    }
+
+    private byte[] read(int offset,int length){
+        byte[] bytes=new byte[length];
+        for(int i=0;i<length;i++){
+            bytes[i]=data.get(offset+i);
+        }
+        return bytes;
+    }
+
+    private class RowScanner implements DataScanner{
+        private final Partition partition;
+        private final OperationFactory cellFactory;
+        private final int stopRow;
+        private int row;
+        private long bytesOutput;
+        private long rowsVisited;
+
+        RowScanner(Partition partition,OperationFactory cellFactory,int startRow,int stopRow){
+            this.partition=partition;
+            this.cellFactory=cellFactory;
+            this.row=startRow;
+            this.stopRow=stopRow;
+        }
+
+        /**
+         * @param limit ignored; every cell of the row is returned
+         */
+        @Nonnull
+        @Override
+        public List<DataCell> next(int limit) throws IOException{
+            if(row>=stopRow)
+                return Collections.emptyList();
+            int position=rowOffsets[row++];
+            int keyLength=data.getInt(position);
+            byte[] key=read(position+4,keyLength);
+            position+=4+keyLength;
+            int cellCount=data.getInt(position);
+            position+=4;
+            List<DataCell> cells=new ArrayList<>(cellCount);
+            for(int i=0;i<cellCount;i++){
+                int start=position;
+                int qualifierLength=data.getInt(position);
+                byte[] qualifier=read(position+4,qualifierLength);
+                position+=4+qualifierLength;
+                long version=data.getLong(position);
+                int valueLength=data.getInt(position+8);
+                byte[] value=read(position+12,valueLength);
+                position+=12+valueLength;
+                cells.add(cellFactory.newCell(key,SIConstants.DEFAULT_FAMILY_BYTES,qualifier,version,value));
+                bytesOutput+=position-start;
+            }
+            bytesOutput+=keyLength;
+            rowsVisited++;
+            return cells;
+        }
+
+        @Override
+        public TimeView getReadTime(){
+            return Metrics.noOpTimeView();
+        }
+
+        @Override
+        public long getBytesOutput(){
+            return bytesOutput;
+        }
+
+        @Override
+        public long getRowsFiltered(){
+            return 0;
+        }
+
+        @Override
+        public long getRowsVisited(){
+            return rowsVisited;
+        }
+
+        @Override
+        public void close() throws IOException{
+            row=stopRow;
+        }
+
+        @Override
+        public Partition getPartition(){
+            return partition;
+        }
+    }
+}
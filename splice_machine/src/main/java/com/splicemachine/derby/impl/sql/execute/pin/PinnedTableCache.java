@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+import org.spark_project.guava.cache.Weigher;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.txn.TxnLowWatermark;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds a local copy of each pinned table which this server has read, so that control-side scans of
+ * pinned tables don't have to go through Spark (or read the whole table from its region servers).
+ * <p/>
+ * Copies are kept consistent with the table through its versions rather than through any notification of
+ * writes. A copy holds every version of every cell, and is filtered by the transaction of each scan just as
+ * the table would be. Before each scan, the table is checked for cells at or above the copy's floor (see
+ * {@link PinnedTable}); the storage layer can skip every file which holds only older versions, so the check
+ * returns little or nothing while the table is unchanged. If any of those cells is missing from the copy, then
+ * the table has been written since the copy was made, and it is copied again. Otherwise the floor is raised to
+ * a watermark taken before the check, so that the next check only reads what has been written since this one.
+ * <p/>
+ * Copies are weighed by their size, and the least recently used are evicted once the configured budget is
+ * exceeded. The cache divides the budget between {@link #CONCURRENCY_LEVEL} segments, so tables which are
+ * larger than a segment's share are never copied.
+ */
+public class PinnedTableCache{
+    static final int CONCURRENCY_LEVEL=4;
+    private static volatile PinnedTableCache INSTANCE;
+
+    private final Cache<Long,PinnedTable> tables;
+    private final Set<Long> oversizedTables=Collections.newSetFromMap(new ConcurrentHashMap<Long,Boolean>());
+    private final long maxSizeInBytes;
+    private final long maxTableSizeInBytes;
+    private final TxnLowWatermark lowWatermark;
+    private final TxnOperationFactory operationFactory;
+    private final OperationFactory cellFactory;
+
+    /**
+     * @return the cache shared by all pinned table scans on this server.
+     */
+    public static PinnedTableCache getInstance(){
+        PinnedTableCache cache=INSTANCE;
+        if(cache==null){
+            synchronized(PinnedTableCache.class){
+                cache=INSTANCE;
+                if(cache==null){
+                    SIDriver driver=SIDriver.driver();
+                    cache=new PinnedTableCache(EngineDriver.driver().getConfiguration().getPinnedTableCacheSize(),
+                            driver.getTxnLowWatermark(),driver.getOperationFactory(),driver.baseOperationFactory());
+                    INSTANCE=cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param maxSizeInBytes the maximum number of bytes held by copies. If this is not positive, no table is copied.
+     * @param lowWatermark the source of the copies' floors
+     * @param operationFactory creates the scans of the tables
+     * @param cellFactory creates the cells returned by scans of the copies
+     */
+    public PinnedTableCache(long maxSizeInBytes,
+                            TxnLowWatermark lowWatermark,
+                            TxnOperationFactory operationFactory,
+                            OperationFactory cellFactory){
+        this.maxSizeInBytes=maxSizeInBytes;
+        this.maxTableSizeInBytes=maxSizeInBytes/CONCURRENCY_LEVEL;
+        this.lowWatermark=lowWatermark;
+        this.operationFactory=operationFactory;
+        this.cellFactory=cellFactory;
+        this.tables=CacheBuilder.newBuilder()
+                .concurrencyLevel(CONCURRENCY_LEVEL)
+                .maximumWeight(Math.max(1L,maxSizeInBytes/1024))
+                .weigher(new Weigher<Long,PinnedTable>(){
+                    @Override
+                    public int weigh(Long key,PinnedTable value){
+                        return (int)Math.min(Integer.MAX_VALUE,(value.sizeInBytes()+1023)/1024);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Open a scanner over the local copy of a table, copying the table first if there is no copy or the
+     * copy is out of date.
+     * <p/>
+     * The cells returned by the scanner have not been filtered by any transaction.
+     *
+     * @param conglomerateId the conglomerate of the table
+     * @param table the table to read
+     * @param scan the scan of the table. Only its start and stop keys are used.
+     * @return a scanner over the copy, or {@code null} if the table cannot be copied, in which case it must be
+     * read some other way
+     * @throws IOException if the table cannot be read
+     */
+    public DataScanner openScanner(long conglomerateId,Partition table,DataScan scan) throws IOException{
+        if(maxSizeInBytes<=0 || scan.isDescendingScan() || scan.getFilter()!=null)
+            return null;
+        if(oversizedTables.contains(conglomerateId))
+            return null;
+        PinnedTable copy=tables.getIfPresent(conglomerateId);
+        if(copy!=null && !isCurrent(table,copy)){
+            tables.invalidate(conglomerateId);
+            copy=null;
+        }
+        if(copy==null){
+            long floor=lowWatermark==null?-1L:lowWatermark.getLowWatermark();
+            if(floor<0)
+                return null; //without a floor, there is no telling when the copy goes out of date
+            copy=copy(table,floor);
+            if(copy==null){
+                oversizedTables.add(conglomerateId);
+                return null;
+            }
+            tables.put(conglomerateId,copy);
+        }
+        return copy.scanner(table,cellFactory,scan.getStartKey(),scan.getStopKey());
+    }
+
+    /**
+     * Discard the local copy of a table (if there is one).
+     */
+    public void invalidate(long conglomerateId){
+        tables.invalidate(conglomerateId);
+        oversizedTables.remove(conglomerateId);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private PinnedTable copy(Partition table,long floor) throws IOException{
+        DataScan scan=operationFactory.newDataScan(null);
+        scan.returnAllVersions();
+        try(DataScanner scanner=table.openScanner(scan)){
+            return PinnedTable.copy(scanner,floor,maxTableSizeInBytes);
+        }
+    }
+
+    /*
+     * Every cell written since the copy was made has a version at or above the copy's floor. Once they are all
+     * found in the copy, only cells written by transactions which began after the check started can be missing.
+     */
+    private boolean isCurrent(Partition table,PinnedTable copy) throws IOException{
+        long newFloor=lowWatermark==null?-1L:lowWatermark.getLowWatermark();
+        DataScan scan=operationFactory.newDataScan(null);
+        scan.returnAllVersions();
+        scan.setTimeRange(copy.floor(),Long.MAX_VALUE);
+        try(DataScanner scanner=table.openScanner(scan)){
+            List<DataCell> cells;
+            while(!(cells=scanner.next(-1)).isEmpty()){
+                for(DataCell cell : cells){
+                    if(!copy.contains(cell))
+                        return false;
+                }
+            }
+        }
+        copy.advanceFloor(newFloor);
+        return true;
+    }
+}
@@ -66,30 +66,8 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
                                                     FormatableBitSet cols,
                                                     String tableVersion){
         DataValueDescriptor[] dvds = row.getRowArray();
-        BitSet fieldsToCollect = new BitSet(dvds.length);
-        boolean hasColumns = false;
-        if(cols!=null){
-            for(int i=cols.anySetBit();i>=0;i=cols.anySetBit(i)){
-                hasColumns = true;
-                fieldsToCollect.set(i);
-            }
-        }else if(columnMap!=null){
-            for(int i=0;i<columnMap.length;i++){
-                int pos = columnMap[i];
-                if(pos<0) continue;
-                hasColumns=true;
-                if(dvds[pos]!=null)
-                    fieldsToCollect.set(i);
-            }
-        }else{
-            for(int i=0;i<dvds.length;i++){
-                if(dvds[i]!=null){
-                    hasColumns = true;
-                    fieldsToCollect.set(i);
-                }
-            }
-        }
-        if(!hasColumns) return NOOP_ACCUMULATOR;
+        BitSet fieldsToCollect = fieldsToCollect(dvds,columnMap,cols);
+        if(fieldsToCollect==null) return NOOP_ACCUMULATOR;
 
         DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,false).getSerializers(row);
         if(columnSortOrder!=null)
@@ -98,6 +76,24 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
             return new ExecRowAccumulator(predicateFilter,returnIndex,fieldsToCollect,dvds,columnMap,serializers);
     }
 
+    /**
+     * Create an accumulator which does not decode the fields that it accumulates, but instead hands their
+     * (still encoded) bytes to {@code collector}. The fields may then be decoded into the row later on,
+     * using {@link #decodeField(int, byte[], int, int)}.
+     */
+    public static ExecRowAccumulator newDeferredAccumulator(EntryPredicateFilter predicateFilter,
+                                                            ExecRow row,
+                                                            int[] columnMap,
+                                                            String tableVersion,
+                                                            FieldCollector collector){
+        DataValueDescriptor[] dvds = row.getRowArray();
+        BitSet fieldsToCollect = fieldsToCollect(dvds,columnMap,null);
+        if(fieldsToCollect==null) return NOOP_ACCUMULATOR;
+
+        DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,false).getSerializers(row);
+        return new Deferred(predicateFilter,fieldsToCollect,dvds,columnMap,serializers,collector);
+    }
+
     public static ExecRowAccumulator newAccumulator(EntryPredicateFilter predicateFilter,
                                                     boolean returnIndex,
                                                     ExecRow row,
@@ -150,6 +146,14 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
         return columnLengths[colPos];
     }
 
+    /**
+     * Decode a single field into the row. This is done as part of accumulating the field, except by
+     * accumulators created with {@link #newDeferredAccumulator}, which leave it for the caller to do.
+     */
+    public void decodeField(int position, byte[] data, int offset, int length){
+        decode(position, data, offset, length);
+    }
+
     protected void decode(int position, byte[] data, int offset, int length) {
         int colPos=columnMap[position];
         DataValueDescriptor dvd = dvds[colPos];
@@ -197,6 +201,64 @@ public class ExecRowAccumulator extends ByteEntryAccumulator {
         }
     }
 
+    /**
+     * Receives the encoded bytes of each field accumulated by a deferred accumulator.
+     */
+    public interface FieldCollector{
+        void collect(int position, byte[] data, int offset, int length);
+    }
+
+    private static class Deferred extends ExecRowAccumulator{
+        private final FieldCollector collector;
+
+        private Deferred(EntryPredicateFilter predicateFilter,
+                         BitSet fieldsToCollect,
+                         DataValueDescriptor[] dvds,
+                         int[] columnMap,
+                         DescriptorSerializer[] serializers,
+                         FieldCollector collector) {
+            super(predicateFilter, false, fieldsToCollect, dvds, columnMap, serializers);
+            this.collector = collector;
+        }
+
+        @Override
+        protected void decode(int position, byte[] data, int offset, int length) {
+            collector.collect(position, data, offset, length);
+        }
+
+        @Override
+        public void decodeField(int position, byte[] data, int offset, int length) {
+            super.decode(position, data, offset, length);
+        }
+    }
+
+    private static BitSet fieldsToCollect(DataValueDescriptor[] dvds,int[] columnMap,FormatableBitSet cols){
+        BitSet fieldsToCollect = new BitSet(dvds.length);
+        boolean hasColumns = false;
+        if(cols!=null){
+            for(int i=cols.anySetBit();i>=0;i=cols.anySetBit(i)){
+                hasColumns = true;
+                fieldsToCollect.set(i);
+            }
+        }else if(columnMap!=null){
+            for(int i=0;i<columnMap.length;i++){
+                int pos = columnMap[i];
+                if(pos<0) continue;
+                hasColumns=true;
+                if(dvds[pos]!=null)
+                    fieldsToCollect.set(i);
+            }
+        }else{
+            for(int i=0;i<dvds.length;i++){
+                if(dvds[i]!=null){
+                    hasColumns = true;
+                    fieldsToCollect.set(i);
+                }
+            }
+        }
+        return hasColumns? fieldsToCollect : null;
+    }
+
     private static final ExecRowAccumulator NOOP_ACCUMULATOR = new ExecRowAccumulator(){
         @Override protected void decode(int position, byte[] data, int offset, int length) { }
         @Override protected void occupy(int position, byte[] data, int offset, int length) { }
@@ -32,6 +32,7 @@ import com.splicemachine.db.impl.jdbc.EmbedConnection;
 import com.splicemachine.derby.ddl.DDLDriver;
 import com.splicemachine.derby.ddl.DDLEnvironmentLoader;
 import com.splicemachine.derby.impl.db.SpliceDatabase;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
 import com.splicemachine.derby.impl.store.access.SpliceAccessManager;
 import com.splicemachine.lifecycle.DatabaseLifecycleService;
 import com.splicemachine.pipeline.ContextFactoryDriverService;
@@ -125,6 +126,7 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
     @Override
     public void registerJMX(MBeanServer mbs) throws Exception{
         manifestReader.registerJMX(mbs);
+        SIDriver.driver().registerJMX(mbs);
 
         try{
             ObjectName on=new ObjectName("com.splicemachine.utils.logging:type=LogManager");
@@ -137,6 +139,20 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
              * this exception and don't worry about it too much.
              */
         }
+
+        try{
+            ObjectName on=new ObjectName("com.splicemachine.derby.impl.sql.execute:type=BroadcastJoinCache");
+            mbs.registerMBean(BroadcastJoinCache.getInstance(),on);
+        }catch(InstanceAlreadyExistsException ignored){
+            //can happen when the regionserver and master share a JVM; see above
+        }
+
+        try{
+            ObjectName on=new ObjectName("com.splicemachine.db.impl.sql.catalog:type=StatementCache");
+            mbs.registerMBean(((EmbedConnection)internalConnection).getLanguageConnection().getDataDictionary().getDataDictionaryCache(),on);
+        }catch(InstanceAlreadyExistsException ignored){
+            //can happen when the regionserver and master share a JVM; see above
+        }
     }
 
     @Override
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.management;
+
+import javax.management.MXBean;
+
+/**
+ * Statistics for the cache of broadcast join inner tables held on this server.
+ */
+@MXBean
+public interface BroadcastJoinCacheManagement{
+
+    /**
+     * @return the number of requests (since the cache was created) which were served by an already built table
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of requests (since the cache was created) which required a table to be built
+     */
+    long getMissCount();
+
+    /**
+     * @return the fraction of requests which were hits--i.e. hits/(hits+misses)
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of tables which failed to build
+     */
+    long getLoadExceptionCount();
+
+    /**
+     * @return the total time (in ms) spent building tables
+     */
+    long getTotalBuildTime();
+
+    /**
+     * @return the average time (in ms) to build a single table
+     */
+    double getAverageBuildTime();
+
+    /**
+     * @return the number of tables which were evicted due to size or expiration
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of tables currently held
+     */
+    long getCachedTableCount();
+
+    /**
+     * @return the (estimated) number of bytes held by the cached tables
+     */
+    long getCachedBytes();
+
+    /**
+     * @return the maximum (estimated) number of bytes which may be held before tables are evicted
+     */
+    long getMaxCachedBytes();
+
+    /**
+     * Discard all cached tables. Joins which are currently using a table are not affected.
+     */
+    void invalidateAll();
+}
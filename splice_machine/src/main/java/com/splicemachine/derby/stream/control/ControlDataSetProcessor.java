@@ -16,27 +16,42 @@
 package com.splicemachine.derby.stream.control;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.SequenceInputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 import com.splicemachine.EngineDriver;
+import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.stream.iapi.*;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.commons.collections.iterators.SingletonIterator;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.base.Charsets;
+import org.spark_project.guava.base.Function;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import scala.Tuple2;
 import com.splicemachine.access.api.DistributedFileSystem;
 import com.splicemachine.db.iapi.error.StandardException;
@@ -44,9 +59,14 @@ import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedTableCache;
 import com.splicemachine.derby.stream.function.Partitioner;
+import com.splicemachine.derby.stream.function.TableScanQualifierFunction;
 import com.splicemachine.derby.stream.iterator.TableScannerIterator;
+import com.splicemachine.derby.stream.utils.StreamLogUtils;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.server.Transactor;
@@ -55,6 +75,12 @@ import com.splicemachine.si.impl.TxnRegion;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
 import com.splicemachine.storage.Partition;
 
 /**
@@ -111,11 +137,25 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                if(pin && storedAs==null){
+                    DataSet<V> rows=pinnedScan();
+                    if(rows!=null)
+                        return rows;
+                }
+                if(pin || storedAs!=null)
+                    return externalScan();
                 Partition p;
                 try{
-                    p =SIDriver.driver().getTableFactory().getTable(tableName);
+                    SIDriver driver=SIDriver.driver();
+                    p =driver.getTableFactory().getTable(tableName);
+                    int parallelism=controlParallelism(activation);
+                    if(parallelism>1 && spliceOperation!=null && !scan.isDescendingScan()){
+                        List<Partition> regions=p.subPartitions(scan.getStartKey(),scan.getStopKey());
+                        if(regions.size()>1)
+                            return parallelScan(p,regions,parallelism);
+                    }
                     TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
-                            txnSupplier,transactory,txnOperationFactory);
+                            txnSupplier,transactory,txnOperationFactory,driver.getActiveTxnCache());
 
                     this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
@@ -128,9 +168,207 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     throw Exceptions.parseException(e);
                 }
             }
+
+            /*
+             * Pinned tables which are small enough are read from the copy which this server holds (if it is
+             * still current), and filtered by our transaction as a scan of the table would be. Returns null if
+             * the table can't be copied.
+             */
+            private DataSet<V> pinnedScan() throws StandardException{
+                try{
+                    SIDriver driver=SIDriver.driver();
+                    Partition p=driver.getTableFactory().getTable(tableName);
+                    DataScanner scanner=PinnedTableCache.getInstance().openScanner(Long.parseLong(tableName),p,getScan());
+                    if(scanner==null){
+                        p.close();
+                        return null;
+                    }
+                    TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                            txnSupplier,transactory,txnOperationFactory,driver.getActiveTxnCache());
+                    this.region(localRegion).scanner(scanner);
+                    TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
+                    if(spliceOperation!=null){
+                        spliceOperation.registerCloseable(tableScannerIterator);
+                        spliceOperation.registerCloseable(p);
+                    }
+                    return new ControlDataSet(tableScannerIterator);
+                }catch(IOException e){
+                    throw Exceptions.parseException(e);
+                }
+            }
+
+            /*
+             * Pinned and external tables are read the same way as on Spark, and the qualifiers applied afterwards.
+             */
+            @SuppressWarnings("unchecked")
+            private DataSet<V> externalScan() throws StandardException{
+                OperationContext context=spliceOperation!=null?createOperationContext(spliceOperation):createOperationContext(activation);
+                ScanOperation operation=(ScanOperation)spliceOperation;
+                ExecRow execRow=operation==null?template:operation.getExecRowDefinition();
+                Qualifier[][] qualifiers=operation==null?null:operation.getScanInformation().getScanQualifiers();
+                DataSet<LocatedRow> rows;
+                if(pin)
+                    rows=readPinnedTable(Long.parseLong(tableName),baseColumnMap,location,context,qualifiers,null,execRow);
+                else if(storedAs.equals("T"))
+                    rows=readTextFile(spliceOperation,location,escaped,delimited,baseColumnMap,context,execRow);
+                else if(storedAs.equals("P"))
+                    rows=readParquetFile(baseColumnMap,location,context,qualifiers,null,execRow);
+                else if(storedAs.equals("O"))
+                    rows=readORCFile(baseColumnMap,location,context,qualifiers,null,execRow);
+                else
+                    throw new UnsupportedOperationException("storedAs Type not supported -> "+storedAs);
+                return (DataSet<V>)rows.flatMap(new TableScanQualifierFunction(context,null));
+            }
+
+            /*
+             * Scan each region with its own scanner, reading up to parallelism regions at a time on the
+             * shared scan pool. Rows are returned in the same order as a serial scan would return them.
+             * A region's scanner is only opened once its region is read, so that regions which wait
+             * their turn don't hold scanners open (and let their leases expire) in the meantime.
+             */
+            private DataSet<V> parallelScan(Partition table,List<Partition> regions,int parallelism) throws StandardException, IOException{
+                SIDriver driver=SIDriver.driver();
+                ExecRow baseTemplate=template;
+                DataScan baseScan=scan;
+                List<TableScannerIterator> sources=new ArrayList<>(regions.size());
+                try{
+                    for(Partition region : regions){
+                        DataScan regionScan=copyScan(baseScan);
+                        regionScan.startKey(Bytes.max(Bytes.startComparator,baseScan.getStartKey(),region.getStartKey()));
+                        regionScan.stopKey(Bytes.min(Bytes.endComparator,baseScan.getStopKey(),region.getEndKey()));
+                        this.region(new TxnRegion(table,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                                txnSupplier,transactory,txnOperationFactory,driver.getActiveTxnCache()));
+                        this.scan(regionScan);
+                        this.template(baseTemplate.getClone());
+                        this.scanner(new DeferredScanner(table,regionScan,metricFactory));
+                        sources.add(TableScannerIterator.detached(this,build(),spliceOperation));
+                    }
+                }catch(IOException | StandardException | RuntimeException e){
+                    for(TableScannerIterator source : sources){
+                        source.close();
+                    }
+                    throw e;
+                }finally{
+                    this.template(baseTemplate);
+                    this.scan(baseScan);
+                }
+                OrderedParallelIterator<LocatedRow> rows=new OrderedParallelIterator<>(sources,ScanPool.INSTANCE,parallelism);
+                spliceOperation.registerCloseable(rows);
+                spliceOperation.registerCloseable(table);
+                return new ControlDataSet(Iterators.transform(rows,new Function<LocatedRow, LocatedRow>(){
+                    @Override
+                    public LocatedRow apply(LocatedRow locatedRow){
+                        //the regions are read in other threads, so the operation is updated here instead
+                        StreamLogUtils.logOperationRecord(locatedRow,spliceOperation);
+                        spliceOperation.setCurrentLocatedRow(locatedRow);
+                        return locatedRow;
+                    }
+                }));
+            }
         };
     }
 
+    /**
+     * @return the number of regions which a single scan may read concurrently: the session's setting, if it has
+     * one, or else the server default.
+     */
+    private static int controlParallelism(Activation activation){
+        if(activation!=null){
+            int sessionParallelism=activation.getLanguageConnectionContext().getControlParallelism();
+            if(sessionParallelism>0)
+                return sessionParallelism;
+        }
+        EngineDriver driver=EngineDriver.driver();
+        return driver==null?1:driver.getConfiguration().getControlSideParallelism();
+    }
+
+    private static Configuration hadoopConfiguration(){
+        Object source=SIDriver.driver().getConfiguration().getConfigSource().unwrapDelegate();
+        return source instanceof Configuration?(Configuration)source:new Configuration();
+    }
+
+    private DataScan copyScan(DataScan scan) throws IOException{
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        try(ObjectOutputStream out=new ObjectOutputStream(bytes)){
+            txnOperationFactory.writeScan(scan,out);
+        }
+        try(ObjectInputStream in=new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))){
+            return txnOperationFactory.readScan(in);
+        }
+    }
+
+    /**
+     * The threads which read regions for parallel control-side scans. Only a few regions may queue up for a
+     * thread; scans which cannot get one read their regions in the caller's thread instead, so a busy pool
+     * slows scans down rather than blocking them.
+     */
+    private static class ScanPool{
+        private static final int THREADS=Runtime.getRuntime().availableProcessors();
+        private static final ExecutorService INSTANCE=new ThreadPoolExecutor(THREADS,THREADS,
+                0l,TimeUnit.MILLISECONDS,new ArrayBlockingQueue<Runnable>(THREADS),
+                new ThreadFactoryBuilder().setNameFormat("control-scan-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Opens the scanner over a region when the first rows are requested, rather than when the scan is set up,
+     * so that the scanner is opened by whichever thread reads the region, just before it reads it.
+     */
+    private static class DeferredScanner implements DataScanner{
+        private final Partition table;
+        private final DataScan scan;
+        private final MetricFactory metricFactory;
+        private DataScanner delegate;
+        private boolean closed;
+
+        DeferredScanner(Partition table,DataScan scan,MetricFactory metricFactory){
+            this.table=table;
+            this.scan=scan;
+            this.metricFactory=metricFactory;
+        }
+
+        @Nonnull
+        @Override
+        public synchronized List<DataCell> next(int limit) throws IOException{
+            if(closed)
+                return Collections.emptyList();
+            if(delegate==null)
+                delegate=table.openScanner(scan,metricFactory);
+            return delegate.next(limit);
+        }
+
+        @Override
+        public synchronized TimeView getReadTime(){
+            return delegate==null?Metrics.noOpTimeView():delegate.getReadTime();
+        }
+
+        @Override
+        public synchronized long getBytesOutput(){
+            return delegate==null?0l:delegate.getBytesOutput();
+        }
+
+        @Override
+        public synchronized long getRowsFiltered(){
+            return delegate==null?0l:delegate.getRowsFiltered();
+        }
+
+        @Override
+        public synchronized long getRowsVisited(){
+            return delegate==null?0l:delegate.getRowsVisited();
+        }
+
+        @Override
+        public synchronized void close() throws IOException{
+            closed=true;
+            if(delegate!=null)
+                delegate.close();
+        }
+
+        @Override
+        public Partition getPartition(){
+            return table;
+        }
+    }
+
     @Override
     public <V> DataSet<V> getEmpty(){
         return new ControlDataSet<>(Collections.<V>emptyList().iterator());
@@ -314,9 +552,20 @@ public class ControlDataSetProcessor implements DataSetProcessor{
 
     @Override
     public <V> DataSet<V> readParquetFile(int[] baseColumnMap, String location, OperationContext context,Qualifier[][] qualifiers,DataValueDescriptor probeValue, ExecRow execRow) throws StandardException {
-            DistributedDataSetProcessor proc = EngineDriver.driver().processorFactory().distributedProcessor();
-            return new ControlDataSet(proc.readParquetFile(baseColumnMap, location, context, qualifiers, probeValue,execRow).toLocalIterator());
-   }
+        try{
+            ParquetFileIterator rows=ParquetFileIterator.open(hadoopConfiguration(),location,baseColumnMap,qualifiers,probeValue,execRow);
+            if(rows!=null){
+                if(context!=null && context.getOperation()!=null)
+                    context.getOperation().registerCloseable(rows);
+                return new ControlDataSet(rows);
+            }
+        }catch(IOException e){
+            throw StandardException.newException(SQLState.EXTERNAL_TABLES_READ_FAILURE,e.getMessage());
+        }
+        //partitioned or nested data, which only Spark knows how to read
+        DistributedDataSetProcessor proc = EngineDriver.driver().processorFactory().distributedProcessor();
+        return new ControlDataSet(proc.readParquetFile(baseColumnMap, location, context, qualifiers, probeValue,execRow).toLocalIterator());
+    }
 
     @Override
     public <V> DataSet<V> readORCFile(int[] baseColumnMap, String location, OperationContext context,Qualifier[][] qualifiers,DataValueDescriptor probeValue, ExecRow execRow) throws StandardException {
@@ -43,11 +43,10 @@ import org.spark_project.guava.base.Predicate;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
 
-import static com.splicemachine.derby.stream.control.ControlUtils.entryToTuple;
 import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIterator;
-import static org.spark_project.guava.collect.Maps.*;
 
 /**
  *
@@ -100,22 +99,30 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
-        Multimap<K,V> newMap = multimapFromIterator(source);
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.<K,V>forMap(transformValues(newMap.asMap(),
-                new Function<Collection<V>, V>() {
+        ExternalHashAggregator<K,V,V> aggregator = new ExternalHashAggregator<>(new ExternalHashAggregator.Combiner<V, V>() {
             @Override
-            public V apply(@Nullable Collection<V> vs) {
-                try {
-                    V returnValue = null;
-                    for (V v : vs) {
-                        returnValue = function2.call(returnValue, v);
-                    }
-                    return returnValue;
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+            public V createCombiner(V value) throws Exception {
+                return function2.call(null, value);
+            }
+
+            @Override
+            public V mergeValue(V combiner, V value) throws Exception {
+                return function2.call(combiner, value);
             }
-        })).entries()));
+
+            @Override
+            public V mergeCombiners(V first, V second) throws Exception {
+                return function2.call(first, second);
+            }
+        }, ControlUtils.spillSettings(), false);
+        closeWith(function2.operationContext, aggregator);
+        try {
+            aggregator.addAll(source);
+            return new ControlPairDataSet<>(aggregator.results());
+        } catch (Exception e) {
+            aggregator.close();
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -130,18 +137,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator) {
-        /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
-         */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(() -> source).iterator());
+        return sortByKey(comparator, null, null);
     }
 
     @Override
@@ -150,6 +146,19 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         return sortByKey(comparator);
     }
 
+    @Override
+    public PairDataSet<K, V> sortByKey(final Comparator<K> comparator, String name, OperationContext context) {
+        ExternalMergeSorter<K,V> sorter = new ExternalMergeSorter<>(comparator, ControlUtils.spillSettings());
+        closeWith(context, sorter);
+        try {
+            sorter.addAll(source);
+            return new ControlPairDataSet<>(sorter.sorted());
+        } catch (IOException | RuntimeException e) {
+            sorter.close();
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public PairDataSet<K, V> partitionBy(Partitioner<K> partitioner, Comparator<K> comparator) {
         // we don't need to partition
@@ -158,15 +167,46 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey() {
-        Multimap<K,V> newMap = multimapFromIterator(source);
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
-            @Nullable
+        return groupByKey(null, null);
+    }
+
+    @Override
+    public PairDataSet<K, Iterable<V>> groupByKey(String name, OperationContext context) {
+        ExternalHashAggregator<K,V,List<V>> aggregator = new ExternalHashAggregator<>(new ExternalHashAggregator.Combiner<V, List<V>>() {
+            @Override
+            public List<V> createCombiner(V value) {
+                List<V> values = new ArrayList<>();
+                values.add(value);
+                return values;
+            }
+
+            @Override
+            public List<V> mergeValue(List<V> combiner, V value) {
+                combiner.add(value);
+                return combiner;
+            }
+
             @Override
-            public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
-                assert e!=null: "E cannot be null";
-                return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
+            public List<V> mergeCombiners(List<V> first, List<V> second) {
+                first.addAll(second);
+                return first;
             }
-        }).iterator());
+        }, ControlUtils.spillSettings(), true);
+        closeWith(context, aggregator);
+        try {
+            aggregator.addAll(source);
+            return new ControlPairDataSet<>(Iterators.transform(aggregator.results(), new Function<Tuple2<K, List<V>>, Tuple2<K, Iterable<V>>>() {
+                @Nullable
+                @Override
+                public Tuple2<K, Iterable<V>> apply(@Nullable Tuple2<K, List<V>> t) {
+                    assert t!=null: "T cannot be null";
+                    return new Tuple2<K, Iterable<V>>(t._1(), t._2());
+                }
+            }));
+        } catch (Exception e) {
+            aggregator.close();
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -174,6 +214,20 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         return groupByKey();
     }
 
+    /**
+     * Have the operation of the context close the spilling operator when it closes, so that runs which
+     * are never read to the end (because of a LIMIT, a cancellation or an error) don't stay on disk.
+     */
+    private static void closeWith(OperationContext context, AutoCloseable closeable) {
+        if (context == null || context.getOperation() == null)
+            return; // nobody to close it; runs are still removed once they have been read
+        try {
+            context.getOperation().registerCloseable(closeable);
+        } catch (StandardException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public <W> PairDataSet< K, Tuple2<V, Optional<W>>> hashLeftOuterJoin(final PairDataSet< K, W> rightDataSet) {
         // Materializes the right side
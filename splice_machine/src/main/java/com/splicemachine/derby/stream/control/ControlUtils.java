@@ -15,10 +15,21 @@
 
 package com.splicemachine.derby.stream.control;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.utils.kryo.ExternalizableSerializer;
+import com.splicemachine.utils.kryo.KryoPool;
 import org.spark_project.guava.base.Function;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.Externalizable;
+import java.io.File;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -28,6 +39,40 @@ import java.util.Map;
  * Created by dgomezferro on 7/31/15.
  */
 public class ControlUtils {
+    private static final long OBJECT_OVERHEAD = 16L;
+    private static final SpillSettings.SizeEstimator ROW_SIZE_ESTIMATOR = new SpillSettings.SizeEstimator() {
+        @Override
+        public long estimateSize(Object o) {
+            if (o instanceof LocatedRow)
+                return OBJECT_OVERHEAD + estimateSize(((LocatedRow) o).getRow());
+            if (o instanceof ExecRow) {
+                DataValueDescriptor[] dvds = ((ExecRow) o).getRowArray();
+                long size = OBJECT_OVERHEAD + 8L * dvds.length;
+                for (DataValueDescriptor dvd : dvds) {
+                    if (dvd != null)
+                        size += dvd.estimateMemoryUsage();
+                }
+                return size;
+            }
+            return OBJECT_OVERHEAD;
+        }
+    };
+
+    /**
+     * @return the settings to use when spilling control-side aggregations and sorts to disk.
+     */
+    public static SpillSettings spillSettings() {
+        EngineDriver driver = EngineDriver.driver();
+        if (driver == null) {
+            // not running inside of a server, so there's no configuration to tell us where to spill
+            return new SpillSettings(Long.MAX_VALUE, new File(System.getProperty("java.io.tmpdir")),
+                    SpillKryoPool.INSTANCE, ROW_SIZE_ESTIMATOR);
+        }
+        SConfiguration config = driver.getConfiguration();
+        return new SpillSettings(config.getControlSideSpillThreshold(), new File(config.getControlSideSpillDirectory()),
+                SpillKryoPool.INSTANCE, ROW_SIZE_ESTIMATOR);
+    }
+
     public static <K, V> Iterator<Tuple2<K, V>> entryToTuple(Collection<Map.Entry<K, V>> collection) {
         return Iterators.transform(collection.iterator(),new Function<Map.Entry<K, V>, Tuple2<K, V>>() {
 
@@ -48,4 +93,24 @@ public class ControlUtils {
         }
         return newMap;
     }
+
+    /*
+     * Spilled runs never leave this JVM, so we can serialize classes which haven't been registered (like
+     * LocatedRow) by name.
+     */
+    private static class SpillKryoPool {
+        private static final KryoPool INSTANCE = new KryoPool(16);
+
+        static {
+            final SpliceKryoRegistry spliceRegistry = new SpliceKryoRegistry();
+            INSTANCE.setKryoRegistry(new KryoPool.KryoRegistry() {
+                @Override
+                public void register(Kryo instance) {
+                    spliceRegistry.register(instance);
+                    instance.setRegistrationRequired(false);
+                    instance.addDefaultSerializer(Externalizable.class, ExternalizableSerializer.INSTANCE);
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import org.spark_project.guava.base.Function;
+import org.spark_project.guava.collect.AbstractIterator;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.PeekingIterator;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Combines values by key in a hash table, using no more than a fixed (estimated) amount of memory.
+ * <p/>
+ * When the table exceeds the memory budget, its partial results are sorted by the hash code of their key and
+ * written to disk as a run, and the table is cleared. Once all values have been added, the runs are merged
+ * back together in hash order, and the partial results for each key are combined. If nothing was spilled, the
+ * results come straight from the hash table.
+ * <p/>
+ * Keys must have a {@code hashCode()} which survives serialization (i.e. which is based on their value).
+ * <p/>
+ * Runs are removed as soon as they have been merged. Closing the aggregator removes any runs which remain,
+ * so it must be closed if the results might not be read to the end.
+ * <p/>
+ * This class is <em>not</em> thread-safe.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the values to combine
+ * @param <C> the type of the combined value
+ */
+public class ExternalHashAggregator<K, V, C> implements Closeable{
+    private static final long ENTRY_OVERHEAD=48l;
+
+    /**
+     * Combines the values for a single key. The semantics are the same as Spark's {@code combineByKey}: since
+     * a key may be spilled more than once, partially combined values must be able to be combined with one
+     * another.
+     */
+    public interface Combiner<V, C>{
+        C createCombiner(V value) throws Exception;
+
+        C mergeValue(C combiner,V value) throws Exception;
+
+        C mergeCombiners(C first,C second) throws Exception;
+    }
+
+    private final Combiner<V, C> combiner;
+    private final SpillSettings settings;
+    private final boolean retainsValues;
+    private final Comparator<Tuple2<K, C>> hashOrder=new Comparator<Tuple2<K, C>>(){
+        @Override
+        public int compare(Tuple2<K, C> o1,Tuple2<K, C> o2){
+            return Integer.compare(Objects.hashCode(o1._1()),Objects.hashCode(o2._1()));
+        }
+    };
+    private final List<SpillRun<K, C>> runs=new ArrayList<>();
+    private final List<SpillRun<K, C>> written=new ArrayList<>(); //every run we have written, so that we can close them
+    private Map<K, C> table=new HashMap<>();
+    private long tableBytes;
+
+    /**
+     * @param combiner the function to combine values with
+     * @param settings when and where to spill
+     * @param retainsValues {@code true} if the combined value holds on to every value which is added (as when
+     *                      grouping), in which case every value counts against the memory budget. Otherwise,
+     *                      only the first value for each key is counted.
+     */
+    public ExternalHashAggregator(Combiner<V, C> combiner,SpillSettings settings,boolean retainsValues){
+        this.combiner=combiner;
+        this.settings=settings;
+        this.retainsValues=retainsValues;
+    }
+
+    public void add(K key,V value) throws Exception{
+        C current=table.get(key);
+        if(current==null){
+            table.put(key,combiner.createCombiner(value));
+            tableBytes+=settings.estimateSize(key)+settings.estimateSize(value)+ENTRY_OVERHEAD;
+        }else{
+            table.put(key,combiner.mergeValue(current,value));
+            if(retainsValues)
+                tableBytes+=settings.estimateSize(value);
+        }
+        if(tableBytes>=settings.getMemoryBudget())
+            spill();
+    }
+
+    public void addAll(Iterator<Tuple2<K, V>> entries) throws Exception{
+        while(entries.hasNext()){
+            Tuple2<K, V> next=entries.next();
+            add(next._1(),next._2());
+        }
+    }
+
+    /**
+     * @return the number of runs which have been written to disk so far.
+     */
+    public int numSpilledRuns(){
+        return runs.size();
+    }
+
+    /**
+     * @return the combined value for every key which has been added. This may only be called once.
+     */
+    public Iterator<Tuple2<K, C>> results() throws IOException{
+        if(runs.isEmpty()){
+            return Iterators.transform(table.entrySet().iterator(),new Function<Map.Entry<K, C>, Tuple2<K, C>>(){
+                @Override
+                public Tuple2<K, C> apply(Map.Entry<K, C> e){
+                    return new Tuple2<>(e.getKey(),e.getValue());
+                }
+            });
+        }
+
+        while(runs.size()>ExternalMergeSorter.MAX_MERGE_WIDTH){
+            List<SpillRun<K, C>> toMerge=new ArrayList<>(runs.subList(0,ExternalMergeSorter.MAX_MERGE_WIDTH));
+            runs.subList(0,ExternalMergeSorter.MAX_MERGE_WIDTH).clear();
+            runs.add(write(combineByKey(SpillRun.merge(SpillRun.openAll(toMerge),hashOrder))));
+        }
+        List<PeekingIterator<Tuple2<K, C>>> sources=SpillRun.openAll(runs);
+        sources.add(Iterators.peekingIterator(sortedTable().iterator()));
+        runs.clear();
+        table=null;
+        return combineByKey(SpillRun.merge(sources,hashOrder));
+    }
+
+    /**
+     * Remove any spilled runs which have not been read to the end yet.
+     */
+    @Override
+    public void close(){
+        for(SpillRun<K, C> run : written){
+            run.close();
+        }
+        written.clear();
+        runs.clear();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void spill() throws IOException{
+        runs.add(write(sortedTable().iterator()));
+        table=new HashMap<>();
+        tableBytes=0l;
+    }
+
+    private SpillRun<K, C> write(Iterator<Tuple2<K, C>> entries) throws IOException{
+        SpillRun<K, C> run=SpillRun.write(entries,settings);
+        written.add(run);
+        return run;
+    }
+
+    private List<Tuple2<K, C>> sortedTable(){
+        List<Tuple2<K, C>> entries=new ArrayList<>(table.size());
+        for(Map.Entry<K, C> entry : table.entrySet()){
+            entries.add(new Tuple2<>(entry.getKey(),entry.getValue()));
+        }
+        Collections.sort(entries,hashOrder);
+        return entries;
+    }
+
+    /*
+     * Given a stream of partial results in hash order, combine the partial results for each key. Every
+     * partial result for a key has the same hash code, so we only need to hold one hash code's worth of keys
+     * at a time.
+     */
+    private Iterator<Tuple2<K, C>> combineByKey(final Iterator<Tuple2<K, C>> hashOrdered){
+        final PeekingIterator<Tuple2<K, C>> source=Iterators.peekingIterator(hashOrdered);
+        return new AbstractIterator<Tuple2<K, C>>(){
+            private Iterator<Map.Entry<K, C>> currentGroup=Collections.emptyIterator();
+
+            @Override
+            protected Tuple2<K, C> computeNext(){
+                if(!currentGroup.hasNext()){
+                    if(!source.hasNext()) return endOfData();
+                    currentGroup=nextGroup();
+                }
+                Map.Entry<K, C> next=currentGroup.next();
+                return new Tuple2<>(next.getKey(),next.getValue());
+            }
+
+            private Iterator<Map.Entry<K, C>> nextGroup(){
+                Map<K, C> group=new LinkedHashMap<>();
+                int hash=Objects.hashCode(source.peek()._1());
+                try{
+                    while(source.hasNext() && Objects.hashCode(source.peek()._1())==hash){
+                        Tuple2<K, C> partial=source.next();
+                        C existing=group.get(partial._1());
+                        if(existing==null)
+                            group.put(partial._1(),partial._2());
+                        else
+                            group.put(partial._1(),combiner.mergeCombiners(existing,partial._2()));
+                    }
+                }catch(Exception e){
+                    throw new RuntimeException(e);
+                }
+                return group.entrySet().iterator();
+            }
+        };
+    }
+}
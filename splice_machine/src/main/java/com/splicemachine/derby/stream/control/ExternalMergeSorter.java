@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.PeekingIterator;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sorts key-value pairs by key, using no more than a fixed (estimated) amount of memory.
+ * <p/>
+ * Entries are buffered in memory until the buffer exceeds the memory budget, at which point the buffer is
+ * sorted and written to disk as a run. Once all the entries have been added, the runs are merged back
+ * together (along with whatever is left in memory). If there are too many runs to merge at once, runs are
+ * first merged together into larger runs.
+ * <p/>
+ * The sort is stable: entries with equal keys are returned in the order in which they were added.
+ * <p/>
+ * Runs are removed as soon as they have been merged. Closing the sorter removes any runs which remain,
+ * so it must be closed if the sorted entries might not be read to the end.
+ * <p/>
+ * This class is <em>not</em> thread-safe.
+ */
+public class ExternalMergeSorter<K, V> implements Closeable{
+    static final int MAX_MERGE_WIDTH=64;
+    private static final long ENTRY_OVERHEAD=32l;
+
+    private final Comparator<Tuple2<K, V>> comparator;
+    private final SpillSettings settings;
+    private final List<SpillRun<K, V>> runs=new ArrayList<>();
+    private final List<SpillRun<K, V>> written=new ArrayList<>(); //every run we have written, so that we can close them
+    private List<Tuple2<K, V>> buffer=new ArrayList<>();
+    private long bufferedBytes;
+
+    public ExternalMergeSorter(final Comparator<? super K> keyComparator,SpillSettings settings){
+        this.comparator=new Comparator<Tuple2<K, V>>(){
+            @Override
+            public int compare(Tuple2<K, V> o1,Tuple2<K, V> o2){
+                return keyComparator.compare(o1._1(),o2._1());
+            }
+        };
+        this.settings=settings;
+    }
+
+    public void add(Tuple2<K, V> entry) throws IOException{
+        buffer.add(entry);
+        bufferedBytes+=settings.estimateSize(entry._1())+settings.estimateSize(entry._2())+ENTRY_OVERHEAD;
+        if(bufferedBytes>=settings.getMemoryBudget())
+            spill();
+    }
+
+    public void addAll(Iterator<Tuple2<K, V>> entries) throws IOException{
+        while(entries.hasNext()){
+            add(entries.next());
+        }
+    }
+
+    /**
+     * @return the number of runs which have been written to disk so far.
+     */
+    public int numSpilledRuns(){
+        return runs.size();
+    }
+
+    /**
+     * @return all the entries which have been added, sorted by key. This may only be called once.
+     */
+    public Iterator<Tuple2<K, V>> sorted() throws IOException{
+        Collections.sort(buffer,comparator);
+        if(runs.isEmpty()) return buffer.iterator();
+
+        while(runs.size()>MAX_MERGE_WIDTH){
+            List<SpillRun<K, V>> toMerge=new ArrayList<>(runs.subList(0,MAX_MERGE_WIDTH));
+            runs.subList(0,MAX_MERGE_WIDTH).clear();
+            //later runs hold later entries, so the merged run goes at the front to keep the sort stable
+            runs.add(0,write(SpillRun.merge(SpillRun.openAll(toMerge),comparator)));
+        }
+        List<PeekingIterator<Tuple2<K, V>>> sources=SpillRun.openAll(runs);
+        sources.add(Iterators.peekingIterator(buffer.iterator()));
+        runs.clear();
+        return SpillRun.merge(sources,comparator);
+    }
+
+    /**
+     * Remove any spilled runs which have not been read to the end yet.
+     */
+    @Override
+    public void close(){
+        for(SpillRun<K, V> run : written){
+            run.close();
+        }
+        written.clear();
+        runs.clear();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void spill() throws IOException{
+        Collections.sort(buffer,comparator);
+        runs.add(write(buffer.iterator()));
+        buffer=new ArrayList<>();
+        bufferedBytes=0l;
+    }
+
+    private SpillRun<K, V> write(Iterator<Tuple2<K, V>> entries) throws IOException{
+        SpillRun<K, V> run=SpillRun.write(entries,settings);
+        written.add(run);
+        return run;
+    }
+}
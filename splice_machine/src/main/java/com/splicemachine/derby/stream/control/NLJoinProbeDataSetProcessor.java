@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SIFilterFactory;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
+import com.splicemachine.derby.stream.iterator.TableScannerIterator;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.filter.RowAccumulator;
+import com.splicemachine.si.api.filter.SIFilter;
+import com.splicemachine.si.api.server.Transactor;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.TxnRegion;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.filter.HRowAccumulator;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.storage.*;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Control-side DataSetProcessor for the inner side of a nested loop join, when the inner row of each outer
+ * row is looked up by its key and the rows for a whole batch of outer rows have already been fetched at once.
+ * <p/>
+ * The table scan of the inner side reads the row which was fetched for this outer row (if there was one) rather
+ * than opening a scanner of its own, and decodes and qualifies it just as it would a scanned row. The row was
+ * already filtered for the transaction by the server which returned it, so it isn't filtered again here.
+ */
+public class NLJoinProbeDataSetProcessor extends ControlDataSetProcessor{
+    private final DataResult probeResult;
+
+    /**
+     * @param probeResult the row fetched for the current outer row, as returned by a transactional get. Empty
+     *                    if there is no such row.
+     */
+    public NLJoinProbeDataSetProcessor(TxnSupplier txnSupplier,
+                                       Transactor transactory,
+                                       TxnOperationFactory txnOperationFactory,
+                                       DataResult probeResult){
+        super(txnSupplier,transactory,txnOperationFactory);
+        this.probeResult=probeResult;
+    }
+
+    @Override
+    public <Op extends SpliceOperation,V> ScanSetBuilder<V> newScanSet(final Op spliceOperation,final String tableName) throws StandardException{
+        return new TableScannerBuilder<V>(){
+            @Override
+            public DataSet<V> buildDataSet() throws StandardException{
+                try{
+                    SIDriver driver=SIDriver.driver();
+                    Partition p=driver.getTableFactory().getTable(tableName);
+                    TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                            txnSupplier,transactory,txnOperationFactory,driver.getActiveTxnCache());
+                    this.filterFactory(PREFILTERED);
+                    this.region(localRegion).scanner(new ResultScanner(p,probeResult));
+                    TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
+                    if(spliceOperation!=null){
+                        spliceOperation.registerCloseable(tableScannerIterator);
+                        spliceOperation.registerCloseable(p);
+                    }
+                    return new ControlDataSet(tableScannerIterator);
+                }catch(IOException e){
+                    throw Exceptions.parseException(e);
+                }
+            }
+        };
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Accumulates the cells of a row which the server has already resolved for our transaction.
+     */
+    private static final SIFilterFactory PREFILTERED=new SIFilterFactory(){
+        @Override
+        public SIFilter newFilter(EntryPredicateFilter predicateFilter,
+                                  EntryDecoder rowEntryDecoder,
+                                  EntryAccumulator accumulator,
+                                  boolean isCountStar) throws IOException{
+            final RowAccumulator rowAccumulator=new HRowAccumulator(predicateFilter,rowEntryDecoder,accumulator,isCountStar);
+            return new SIFilter(){
+                @Override
+                public void nextRow(){
+                    rowAccumulator.reset();
+                }
+
+                @Override
+                public RowAccumulator getAccumulator(){
+                    return rowAccumulator;
+                }
+
+                @Override
+                public DataFilter.ReturnCode filterCell(DataCell kv) throws IOException{
+                    if(kv.dataType()!=CellType.USER_DATA)
+                        return DataFilter.ReturnCode.SKIP;
+                    if(!rowAccumulator.isFinished() && rowAccumulator.isInteresting(kv)){
+                        if(!rowAccumulator.accumulateCell(kv))
+                            return DataFilter.ReturnCode.NEXT_ROW;
+                    }
+                    return DataFilter.ReturnCode.INCLUDE;
+                }
+            };
+        }
+    };
+
+    /*
+     * Returns the cells of a single fetched row, then nothing.
+     */
+    private static class ResultScanner implements DataScanner{
+        private final Partition partition;
+        private DataResult result;
+        private long rowsVisited;
+
+        ResultScanner(Partition partition,DataResult result){
+            this.partition=partition;
+            this.result=result;
+        }
+
+        @Nonnull
+        @Override
+        public List<DataCell> next(int limit) throws IOException{
+            if(result==null || result.size()<=0)
+                return Collections.emptyList();
+            List<DataCell> cells=new ArrayList<>(result.size());
+            for(DataCell cell : result){
+                cells.add(cell);
+            }
+            result=null;
+            rowsVisited++;
+            return cells;
+        }
+
+        @Override
+        public TimeView getReadTime(){
+            return Metrics.noOpTimeView();
+        }
+
+        @Override
+        public long getBytesOutput(){
+            return 0;
+        }
+
+        @Override
+        public long getRowsFiltered(){
+            return 0;
+        }
+
+        @Override
+        public long getRowsVisited(){
+            return rowsVisited;
+        }
+
+        @Override
+        public void close() throws IOException{
+            result=null;
+        }
+
+        @Override
+        public Partition getPartition(){
+            return partition;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a list of sources concurrently, and returns their elements in order: all of the elements of the first
+ * source, then all of the elements of the second, and so on--exactly as if the sources had been read one after
+ * the other.
+ * <p/>
+ * At most {@code parallelism} sources are read ahead at any one time, each into a small bounded buffer, so memory
+ * use does not depend on the size of the sources. If a source has not been picked up by the executor by the time
+ * its elements are needed (because the executor is busy with other work), it is read directly in the caller's
+ * thread instead. Thus the caller never waits on work which has not started, and a shared, bounded executor
+ * cannot deadlock.
+ * <p/>
+ * The sources are closed once they are exhausted, or when this iterator is closed.
+ */
+@NotThreadSafe
+class OrderedParallelIterator<T> implements Iterator<T>, Closeable{
+    private static final Logger LOG=Logger.getLogger(OrderedParallelIterator.class);
+    private static final int BATCH_SIZE=256;
+    private static final int BUFFERED_BATCHES=4;
+    private static final Object END=new Object();
+
+    private final List<Reader> readers;
+    private final Executor executor;
+    private final int parallelism;
+
+    private int current;
+    private int nextToSubmit;
+    private Iterator<T> currentElements=Collections.emptyIterator();
+    private volatile boolean closed;
+
+    OrderedParallelIterator(List<? extends Iterator<T>> sources,Executor executor,int parallelism){
+        assert parallelism>0: "Parallelism must be positive";
+        this.executor=executor;
+        this.parallelism=parallelism;
+        this.readers=new ArrayList<>(sources.size());
+        for(Iterator<T> source : sources){
+            readers.add(new Reader(source));
+        }
+        submitReaders();
+    }
+
+    @Override
+    public boolean hasNext(){
+        while(!currentElements.hasNext()){
+            if(closed || current>=readers.size()) return false;
+            Reader reader=readers.get(current);
+            if(reader.inline){
+                //we were reading the source directly, and have reached the end of it
+                reader.closeSource();
+                advance();
+            }else if(reader.claim()){
+                //the executor never got to this source, so read it ourselves
+                reader.inline=true;
+                currentElements=reader.source;
+            }else{
+                Object next=reader.take();
+                if(next==END)
+                    advance();
+                else if(next instanceof Failure)
+                    throw ((Failure)next).asRuntimeException();
+                else{
+                    @SuppressWarnings("unchecked") List<T> batch=(List<T>)next;
+                    currentElements=batch.iterator();
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        return currentElements.next();
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(closed) return;
+        closed=true;
+        currentElements=Collections.emptyIterator();
+        for(int i=current;i<readers.size();i++){
+            Reader reader=readers.get(i);
+            //readers which are running will close their own source once they notice that we are closed
+            if(reader.inline || reader.claim())
+                reader.closeSource();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void advance(){
+        currentElements=Collections.emptyIterator();
+        current++;
+        submitReaders();
+    }
+
+    private void submitReaders(){
+        while(nextToSubmit<readers.size() && nextToSubmit<current+parallelism){
+            try{
+                executor.execute(readers.get(nextToSubmit));
+            }catch(RejectedExecutionException ree){
+                //the source will be read in the caller's thread when it is reached
+            }
+            nextToSubmit++;
+        }
+    }
+
+    private static final class Failure{
+        private final Throwable cause;
+
+        Failure(Throwable cause){
+            this.cause=cause;
+        }
+
+        RuntimeException asRuntimeException(){
+            if(cause instanceof RuntimeException) return (RuntimeException)cause;
+            if(cause instanceof Error) throw (Error)cause;
+            return new RuntimeException(cause);
+        }
+    }
+
+    private final class Reader implements Runnable{
+        private static final int NEW=0;
+        private static final int RUNNING=1;
+        private static final int CLAIMED=2;
+
+        private final Iterator<T> source;
+        private final AtomicInteger state=new AtomicInteger(NEW);
+        private final BlockingQueue<Object> buffer=new ArrayBlockingQueue<>(BUFFERED_BATCHES);
+        private boolean inline; //only accessed by the consuming thread
+
+        Reader(Iterator<T> source){
+            this.source=source;
+        }
+
+        /**
+         * @return true if this reader had not yet started, and so will never be run by the executor.
+         */
+        boolean claim(){
+            return state.compareAndSet(NEW,CLAIMED);
+        }
+
+        @Override
+        public void run(){
+            if(!state.compareAndSet(NEW,RUNNING)) return; //the consumer got here first
+            try{
+                List<T> batch=new ArrayList<>(BATCH_SIZE);
+                while(!closed && source.hasNext()){
+                    batch.add(source.next());
+                    if(batch.size()==BATCH_SIZE){
+                        if(!put(batch)) return;
+                        batch=new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if(!batch.isEmpty() && !put(batch)) return;
+                put(END);
+            }catch(Throwable t){
+                put(new Failure(t));
+            }finally{
+                closeSource();
+            }
+        }
+
+        Object take(){
+            try{
+                return buffer.take();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        void closeSource(){
+            if(source instanceof Closeable){
+                try{
+                    ((Closeable)source).close();
+                }catch(IOException e){
+                    LOG.warn("Unable to close source",e);
+                }
+            }
+        }
+
+        /**
+         * @return false if the consumer was closed before the element could be handed over
+         */
+        private boolean put(Object element){
+            try{
+                while(!closed){
+                    if(buffer.offer(element,100,TimeUnit.MILLISECONDS))
+                        return true;
+                }
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.StringDataValue;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.Footer;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
+
+/**
+ * Reads the rows of a Parquet external table directly, without going through Spark.
+ * <p/>
+ * Only the columns in the base column map are read, and row groups whose statistics show that they
+ * cannot satisfy the scan qualifiers are skipped entirely (see {@link ParquetRowGroupFilter}). The rows
+ * of the remaining row groups are returned unqualified, in the same shape as the Spark reader returns them:
+ * the i-th column of the row is the i-th file column which is in the base column map.
+ * <p/>
+ * Values are converted the way Spark writes them, so that a table written through Spark reads back the same.
+ */
+public class ParquetFileIterator implements Iterator<LocatedRow>, Closeable{
+    private static final long MILLIS_PER_DAY=86400000L;
+    private static final long JULIAN_DAY_OF_EPOCH=2440588L;
+    private static final long NANOS_PER_MILLI=1000000L;
+    private static final long NANOS_PER_SECOND=1000000000L;
+
+    private final Configuration conf;
+    private final Iterator<Footer> footers;
+    private final int[] columns;
+    private final ExecRow template;
+    private final ParquetRowGroupFilter filter;
+
+    private ParquetFileReader reader;
+    private MessageColumnIO columnIO;
+    private MessageType requestedSchema;
+    private PrimitiveType[] types;
+    private RecordReader<Group> records;
+    private long remaining;
+    private LocatedRow next;
+    private boolean closed;
+
+    private ParquetFileIterator(Configuration conf,List<Footer> footers,int[] columns,ExecRow template,ParquetRowGroupFilter filter){
+        this.conf=conf;
+        this.footers=footers.iterator();
+        this.columns=columns;
+        this.template=template;
+        this.filter=filter;
+    }
+
+    /**
+     * Open the Parquet files at the specified location.
+     *
+     * @param location a Parquet file, or a directory of them
+     * @param baseColumnMap the file columns to read: column i is read if {@code baseColumnMap[i]!=-1}
+     * @param qualifiers the scan qualifiers, used to skip row groups. May be null.
+     * @param probeValue if not null, the value to use in place of the first qualifier's value
+     * @param template the template of the rows to return
+     * @return an iterator over the rows of the files, or {@code null} if the files have a layout which this
+     * reader doesn't understand (partitioned directories, or nested or repeated columns).
+     * @throws IOException if the files cannot be read
+     */
+    public static ParquetFileIterator open(Configuration conf,String location,int[] baseColumnMap,
+                                           Qualifier[][] qualifiers,DataValueDescriptor probeValue,
+                                           ExecRow template) throws IOException{
+        Path path=new Path(location);
+        FileSystem fs=path.getFileSystem(conf);
+        FileStatus status=fs.getFileStatus(path);
+        List<FileStatus> files=new ArrayList<>();
+        if(status.isDirectory()){
+            for(FileStatus child : fs.listStatus(path)){
+                if(isHidden(child.getPath()))
+                    continue;
+                if(child.isDirectory())
+                    return null; //partition directories
+                files.add(child);
+            }
+        }else
+            files.add(status);
+
+        int numColumns=0;
+        for(int column : baseColumnMap){
+            if(column!=-1)
+                numColumns++;
+        }
+        int[] columns=new int[numColumns];
+        for(int i=0,pos=0;i<baseColumnMap.length;i++){
+            if(baseColumnMap[i]!=-1)
+                columns[pos++]=i;
+        }
+
+        List<Footer> footers=new ArrayList<>(files.size());
+        for(FileStatus file : files){
+            ParquetMetadata metadata=ParquetFileReader.readFooter(conf,file,ParquetMetadataConverter.NO_FILTER);
+            MessageType schema=metadata.getFileMetaData().getSchema();
+            if(!isFlat(schema) || schema.getFieldCount()<baseColumnMap.length)
+                return null;
+            footers.add(new Footer(file.getPath(),metadata));
+        }
+        return new ParquetFileIterator(conf,footers,columns,template,new ParquetRowGroupFilter(qualifiers,probeValue));
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(next!=null)
+            return true;
+        try{
+            next=advance();
+        }catch(IOException|StandardException e){
+            throw new RuntimeException(e);
+        }
+        return next!=null;
+    }
+
+    @Override
+    public LocatedRow next(){
+        if(!hasNext())
+            throw new NoSuchElementException();
+        LocatedRow n=next;
+        next=null;
+        return n;
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(closed)
+            return;
+        closed=true;
+        if(reader!=null){
+            reader.close();
+            reader=null;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private LocatedRow advance() throws IOException, StandardException{
+        while(remaining==0){
+            if(!nextRowGroup()){
+                close();
+                return null;
+            }
+        }
+        remaining--;
+        ExecRow row=template.getNewNullRow();
+        if(records!=null){
+            Group record=records.read();
+            DataValueDescriptor[] fields=row.getRowArray();
+            for(int i=0;i<columns.length;i++){
+                setValue(fields[i],record,i,types[i]);
+            }
+        }
+        return new LocatedRow(row);
+    }
+
+    private boolean nextRowGroup() throws IOException, StandardException{
+        if(closed)
+            return false;
+        while(true){
+            if(reader!=null){
+                PageReadStore pages=reader.readNextRowGroup();
+                if(pages!=null){
+                    records=columnIO.getRecordReader(pages,new GroupRecordConverter(requestedSchema));
+                    remaining=pages.getRowCount();
+                    return true;
+                }
+                reader.close();
+                reader=null;
+            }
+            if(!footers.hasNext())
+                return false;
+            if(openFile(footers.next()))
+                return true;
+        }
+    }
+
+    /*
+     * Prepare to read the row groups of the file which can match the qualifiers. Returns true if there are
+     * no columns to read, in which case the rows to return are counted in remaining
+     */
+    private boolean openFile(Footer footer) throws IOException, StandardException{
+        ParquetMetadata metadata=footer.getParquetMetadata();
+        MessageType fileSchema=metadata.getFileMetaData().getSchema();
+        List<BlockMetaData> blocks=new ArrayList<>();
+        long rowCount=0L;
+        for(BlockMetaData block : metadata.getBlocks()){
+            if(block.getRowCount()>0 && filter.canMatch(fileSchema,block)){
+                blocks.add(block);
+                rowCount+=block.getRowCount();
+            }
+        }
+        if(blocks.isEmpty())
+            return false;
+        if(columns.length==0){
+            //nothing to decode, we just need the right number of rows
+            records=null;
+            remaining=rowCount;
+            return true;
+        }
+
+        List<Type> fields=new ArrayList<>(columns.length);
+        List<ColumnDescriptor> descriptors=new ArrayList<>(columns.length);
+        types=new PrimitiveType[columns.length];
+        for(int i=0;i<columns.length;i++){
+            types[i]=fileSchema.getType(columns[i]).asPrimitiveType();
+            fields.add(types[i]);
+            descriptors.add(fileSchema.getColumns().get(columns[i]));
+        }
+        requestedSchema=new MessageType(fileSchema.getName(),fields);
+        columnIO=new ColumnIOFactory().getColumnIO(requestedSchema,fileSchema);
+        reader=new ParquetFileReader(conf,footer.getFile(),blocks,descriptors);
+        return false;
+    }
+
+    private static void setValue(DataValueDescriptor dvd,Group record,int field,PrimitiveType type) throws StandardException{
+        if(record.getFieldRepetitionCount(field)==0){
+            dvd.setToNull();
+            return;
+        }
+        OriginalType originalType=type.getOriginalType();
+        switch(type.getPrimitiveTypeName()){
+            case BOOLEAN:
+                dvd.setValue(record.getBoolean(field,0));
+                break;
+            case INT32:
+                int i=record.getInteger(field,0);
+                if(originalType==OriginalType.DATE)
+                    dvd.setValue(toDate(i));
+                else if(originalType==OriginalType.DECIMAL)
+                    dvd.setBigDecimal(BigDecimal.valueOf(i,type.getDecimalMetadata().getScale()));
+                else
+                    dvd.setValue(i);
+                break;
+            case INT64:
+                long l=record.getLong(field,0);
+                if(originalType==OriginalType.TIMESTAMP_MILLIS)
+                    dvd.setValue(new Timestamp(l));
+                else if(originalType==OriginalType.DECIMAL)
+                    dvd.setBigDecimal(BigDecimal.valueOf(l,type.getDecimalMetadata().getScale()));
+                else
+                    dvd.setValue(l);
+                break;
+            case INT96:
+                dvd.setValue(toTimestamp(record.getInt96(field,0)));
+                break;
+            case FLOAT:
+                dvd.setValue(record.getFloat(field,0));
+                break;
+            case DOUBLE:
+                dvd.setValue(record.getDouble(field,0));
+                break;
+            default: //BINARY and FIXED_LEN_BYTE_ARRAY
+                Binary b=record.getBinary(field,0);
+                if(originalType==OriginalType.DECIMAL)
+                    dvd.setBigDecimal(new BigDecimal(new BigInteger(b.getBytes()),type.getDecimalMetadata().getScale()));
+                else if(originalType==OriginalType.UTF8 || dvd instanceof StringDataValue)
+                    dvd.setValue(b.toStringUsingUTF8());
+                else
+                    dvd.setValue(b.getBytes());
+        }
+    }
+
+    /*
+     * Dates are stored as days since the epoch, and Spark reads them as the start of that day in the local time zone
+     */
+    private static Date toDate(int days){
+        long millisUtc=days*MILLIS_PER_DAY;
+        return new Date(millisUtc-TimeZone.getDefault().getOffset(millisUtc));
+    }
+
+    /*
+     * INT96 timestamps are the nanoseconds within the day, followed by the Julian day, both little-endian
+     */
+    static Timestamp toTimestamp(Binary binary){
+        ByteBuffer buffer=binary.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        long nanosOfDay=buffer.getLong();
+        long julianDay=buffer.getInt();
+        long nanos=(julianDay-JULIAN_DAY_OF_EPOCH)*MILLIS_PER_DAY*NANOS_PER_MILLI+nanosOfDay;
+        long seconds=Math.floorDiv(nanos,NANOS_PER_SECOND);
+        Timestamp timestamp=new Timestamp(seconds*1000L);
+        timestamp.setNanos((int)Math.floorMod(nanos,NANOS_PER_SECOND));
+        return timestamp;
+    }
+
+    private static boolean isFlat(MessageType schema){
+        for(Type field : schema.getFields()){
+            if(!field.isPrimitive() || field.isRepetition(Type.Repetition.REPEATED))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isHidden(Path path){
+        String name=path.getName();
+        return name.startsWith("_") || name.startsWith(".");
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.NumberDataValue;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Decides from the statistics in the footer of a Parquet file whether a row group can hold any rows
+ * which satisfy the qualifiers of a scan, so that row groups which cannot are never read.
+ * <p/>
+ * Only qualifiers against plain numeric columns are evaluated; any other qualifier is assumed to match.
+ * The filter is conservative, so the rows of the groups which it keeps must still be qualified one at a time.
+ */
+class ParquetRowGroupFilter{
+    private final Qualifier[][] qualifiers;
+    private final DataValueDescriptor probeValue;
+
+    /**
+     * @param qualifiers the qualifiers of the scan, with columns identified by their position in the file. May be null.
+     * @param probeValue if not null, the value to use in place of the first qualifier's value (as in a multi-probe scan)
+     */
+    ParquetRowGroupFilter(Qualifier[][] qualifiers,DataValueDescriptor probeValue){
+        this.qualifiers=qualifiers;
+        this.probeValue=probeValue;
+    }
+
+    /**
+     * @param schema the schema of the file, which must consist of top-level primitive columns only
+     * @param block the row group to check
+     * @return false if no row in the row group can satisfy the qualifiers
+     */
+    boolean canMatch(MessageType schema,BlockMetaData block) throws StandardException{
+        if(qualifiers==null)
+            return true;
+        List<ColumnChunkMetaData> columns=block.getColumns();
+        Qualifier[] andQualifiers=qualifiers[0];
+        for(int i=0;i<andQualifiers.length;i++){
+            DataValueDescriptor value=i==0?probeValue:null;
+            if(!canMatch(andQualifiers[i],value,schema,columns))
+                return false;
+        }
+        for(int i=1;i<qualifiers.length;i++){
+            if(qualifiers[i].length==0)
+                continue;
+            boolean anyMatch=false;
+            for(Qualifier q : qualifiers[i]){
+                if(canMatch(q,null,schema,columns)){
+                    anyMatch=true;
+                    break;
+                }
+            }
+            if(!anyMatch)
+                return false;
+        }
+        return true;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private boolean canMatch(Qualifier q,DataValueDescriptor value,MessageType schema,List<ColumnChunkMetaData> columns) throws StandardException{
+        if(q.getVariantType()==Qualifier.VARIANT)
+            return true; //the value can change from row to row
+        int column=q.getStoragePosition();
+        if(column<0 || column>=columns.size() || !isPlainNumeric(schema.getType(column)))
+            return true;
+        Statistics stats=columns.get(column).getStatistics();
+        if(stats==null || stats.isEmpty())
+            return true; //the writer didn't record any statistics
+
+        boolean nullsQualify=q.getOrderedNulls() || q.getUnknownRV()!=q.negateCompareResult();
+        if(stats.getNumNulls()>0 && nullsQualify)
+            return true;
+        if(!stats.hasNonNullValue())
+            return false; //every value is null, and no null can qualify
+
+        if(value==null){
+            q.clearOrderableCache();
+            value=q.getOrderable();
+        }
+        if(value==null || value.isNull() || !(value instanceof NumberDataValue))
+            return true;
+        BigDecimal min=toBigDecimal(stats.genericGetMin());
+        BigDecimal max=toBigDecimal(stats.genericGetMax());
+        if(min==null || max==null)
+            return true;
+        BigDecimal v=SQLDecimal.getBigDecimal(value);
+        return canMatch(q.getOperator(),q.negateCompareResult(),v.compareTo(min),v.compareTo(max));
+    }
+
+    /*
+     * Whether a value x in [min,max] can satisfy x <op> v, given the comparisons of v against min and max
+     */
+    private static boolean canMatch(int operator,boolean negate,int vToMin,int vToMax){
+        switch(operator){
+            case Orderable.ORDER_OP_EQUALS:
+                return negate?(vToMin!=0 || vToMax!=0):(vToMin>=0 && vToMax<=0);
+            case Orderable.ORDER_OP_LESSTHAN: //negated: x >= v
+                return negate?vToMax<=0:vToMin>0;
+            case Orderable.ORDER_OP_LESSOREQUALS: //negated: x > v
+                return negate?vToMax<0:vToMin>=0;
+            case Orderable.ORDER_OP_GREATERTHAN: //negated: x <= v
+                return negate?vToMin>=0:vToMax<0;
+            case Orderable.ORDER_OP_GREATEROREQUALS: //negated: x < v
+                return negate?vToMin>0:vToMax<=0;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isPlainNumeric(Type type){
+        if(!type.isPrimitive())
+            return false;
+        OriginalType originalType=type.getOriginalType();
+        if(originalType!=null && originalType!=OriginalType.INT_8 && originalType!=OriginalType.INT_16
+                && originalType!=OriginalType.INT_32 && originalType!=OriginalType.INT_64)
+            return false; //dates, decimals, timestamps and unsigned values
+        PrimitiveType.PrimitiveTypeName typeName=type.asPrimitiveType().getPrimitiveTypeName();
+        switch(typeName){
+            case INT32:
+            case INT64:
+            case FLOAT:
+            case DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object statistic){
+        if(statistic instanceof Integer || statistic instanceof Long)
+            return BigDecimal.valueOf(((Number)statistic).longValue());
+        if(statistic instanceof Float || statistic instanceof Double){
+            double d=((Number)statistic).doubleValue();
+            if(Double.isNaN(d) || Double.isInfinite(d))
+                return null;
+            return new BigDecimal(d);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.spark_project.guava.collect.AbstractIterator;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.PeekingIterator;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A sorted run of key-value pairs which has been spilled to a local temporary file.
+ * <p/>
+ * A run can be read exactly once; the file is removed once the run has been read to the end, or as soon as
+ * the run is closed, whichever comes first. Whoever writes a run is responsible for closing it, so that a
+ * run which is never read to the end (because of a LIMIT, a cancellation or an error) doesn't leave its
+ * file and stream open.
+ */
+class SpillRun<K, V> implements Closeable{
+    private static final int BUFFER_SIZE=1<<16;
+
+    private final File file;
+    private final KryoPool kryoPool;
+    private final long size;
+    private Input input;
+    private Kryo kryo;
+    private boolean closed;
+
+    private SpillRun(File file,KryoPool kryoPool,long size){
+        this.file=file;
+        this.kryoPool=kryoPool;
+        this.size=size;
+    }
+
+    /**
+     * Write the entries to a new run, in the order in which they are returned.
+     */
+    static <K, V> SpillRun<K, V> write(Iterator<Tuple2<K, V>> entries,SpillSettings settings) throws IOException{
+        File file=File.createTempFile("splice-spill-",".run",settings.getSpillDirectory());
+        KryoPool kryoPool=settings.getKryoPool();
+        Kryo kryo=kryoPool.get();
+        long size=0l;
+        try(Output output=new Output(new FileOutputStream(file),BUFFER_SIZE)){
+            while(entries.hasNext()){
+                Tuple2<K, V> entry=entries.next();
+                kryo.writeClassAndObject(output,entry._1());
+                kryo.writeClassAndObject(output,entry._2());
+                size++;
+            }
+        }catch(IOException|RuntimeException e){
+            delete(file);
+            throw e;
+        }finally{
+            kryoPool.returnInstance(kryo);
+        }
+        return new SpillRun<>(file,kryoPool,size);
+    }
+
+    long size(){
+        return size;
+    }
+
+    /**
+     * @return an iterator over the run. The run is closed once the iterator is exhausted.
+     */
+    PeekingIterator<Tuple2<K, V>> open() throws IOException{
+        if(closed || input!=null)
+            throw new IOException("Spilled run "+file+" has already been read");
+        try{
+            input=new Input(new FileInputStream(file),BUFFER_SIZE);
+        }catch(FileNotFoundException fnfe){
+            throw new IOException("Spilled run "+file+" has been removed",fnfe);
+        }
+        kryo=kryoPool.get();
+        return Iterators.peekingIterator(new AbstractIterator<Tuple2<K, V>>(){
+            private long remaining=size;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected Tuple2<K, V> computeNext(){
+                if(remaining<=0 || closed){
+                    close();
+                    return endOfData();
+                }
+                try{
+                    K key=(K)kryo.readClassAndObject(input);
+                    V value=(V)kryo.readClassAndObject(input);
+                    remaining--;
+                    return new Tuple2<>(key,value);
+                }catch(RuntimeException e){
+                    close();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Release the stream (if the run is being read) and remove the backing file. Closing a run more than
+     * once has no effect.
+     */
+    @Override
+    public void close(){
+        if(closed) return;
+        closed=true;
+        if(input!=null){
+            input.close();
+            kryoPool.returnInstance(kryo);
+            kryo=null;
+        }
+        delete(file);
+    }
+
+    /**
+     * Merge several sorted sources into a single sorted stream. When entries compare equal, the entry
+     * from the earlier source is returned first, so that the merge is stable.
+     */
+    static <K, V> Iterator<Tuple2<K, V>> merge(List<PeekingIterator<Tuple2<K, V>>> sources,
+                                                 final Comparator<? super Tuple2<K, V>> comparator){
+        if(sources.size()==1) return sources.get(0);
+        final PriorityQueue<Source<K, V>> queue=new PriorityQueue<>(sources.size(),new Comparator<Source<K, V>>(){
+            @Override
+            public int compare(Source<K, V> o1,Source<K, V> o2){
+                int c=comparator.compare(o1.iterator.peek(),o2.iterator.peek());
+                if(c!=0) return c;
+                return Integer.compare(o1.position,o2.position);
+            }
+        });
+        int position=0;
+        for(PeekingIterator<Tuple2<K, V>> source : sources){
+            if(source.hasNext())
+                queue.add(new Source<>(source,position));
+            position++;
+        }
+        return new AbstractIterator<Tuple2<K, V>>(){
+            @Override
+            protected Tuple2<K, V> computeNext(){
+                Source<K, V> next=queue.poll();
+                if(next==null) return endOfData();
+                Tuple2<K, V> entry=next.iterator.next();
+                if(next.iterator.hasNext())
+                    queue.add(next);
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Open the runs, in order, for merging.
+     */
+    static <K, V> List<PeekingIterator<Tuple2<K, V>>> openAll(List<SpillRun<K, V>> runs) throws IOException{
+        List<PeekingIterator<Tuple2<K, V>>> iterators=new ArrayList<>(runs.size()+1);
+        for(SpillRun<K, V> run : runs){
+            iterators.add(run.open());
+        }
+        return iterators;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static void delete(File file){
+        //if we can't remove it now, make sure that it doesn't stick around forever
+        if(!file.delete())
+            file.deleteOnExit();
+    }
+
+    private static class Source<K, V>{
+        private final PeekingIterator<Tuple2<K, V>> iterator;
+        private final int position;
+
+        Source(PeekingIterator<Tuple2<K, V>> iterator,int position){
+            this.iterator=iterator;
+            this.position=position;
+        }
+    }
+}
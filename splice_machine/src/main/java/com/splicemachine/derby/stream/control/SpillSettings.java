@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.io.File;
+
+/**
+ * Determines when (and where) a control-side aggregation or sort spills its contents to disk.
+ *
+ * @see ExternalMergeSorter
+ * @see ExternalHashAggregator
+ */
+public class SpillSettings{
+    /**
+     * Estimates the number of bytes of heap that an entry occupies. This need not be
+     * exact, but should err on the side of overestimating.
+     */
+    public interface SizeEstimator{
+        long estimateSize(Object o);
+    }
+
+    private final long memoryBudget;
+    private final File spillDirectory;
+    private final KryoPool kryoPool;
+    private final SizeEstimator sizeEstimator;
+
+    /**
+     * @param memoryBudget the number of (estimated) bytes to hold in memory before spilling. If this is 0 or less,
+     *                     then we never spill.
+     * @param spillDirectory the directory to write spilled runs to
+     * @param kryoPool the pool to use when serializing spilled entries
+     * @param sizeEstimator the estimator to use when deciding how much memory we are using
+     */
+    public SpillSettings(long memoryBudget,File spillDirectory,KryoPool kryoPool,SizeEstimator sizeEstimator){
+        this.memoryBudget=memoryBudget<=0?Long.MAX_VALUE:memoryBudget;
+        this.spillDirectory=spillDirectory;
+        this.kryoPool=kryoPool;
+        this.sizeEstimator=sizeEstimator;
+    }
+
+    public long getMemoryBudget(){
+        return memoryBudget;
+    }
+
+    public File getSpillDirectory(){
+        return spillDirectory;
+    }
+
+    public KryoPool getKryoPool(){
+        return kryoPool;
+    }
+
+    public long estimateSize(Object o){
+        return sizeEstimator.estimateSize(o);
+    }
+}
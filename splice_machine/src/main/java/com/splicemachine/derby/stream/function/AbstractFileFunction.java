@@ -18,11 +18,18 @@ package com.splicemachine.derby.stream.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import com.splicemachine.db.iapi.types.DateTimeDataValue;
+import com.splicemachine.derby.impl.load.CsvByteParser;
+import com.splicemachine.derby.impl.load.CsvFileRange;
+import com.splicemachine.derby.impl.load.CsvRecordReader;
 import com.splicemachine.derby.stream.utils.BooleanList;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.supercsv.prefs.CsvPreference;
@@ -132,41 +139,13 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
                 throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(), 0);
             for (int i = 1; i <= returnRow.nColumns(); i++) {
                 DataValueDescriptor dvd = returnRow.getColumn(i);
-                int type = dvd.getTypeFormatId();
                 if (values.size()<=i-1) {
                     throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(),values.size());
                 }
                 String value = values.get(i - 1);
                 if (shouldBeNull(value,quotedColumns.valueAt(i-1)))
                     value = null;
-                switch(type){
-                    case StoredFormatIds.SQL_TIME_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timeFormat == null || value==null){
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        }else
-                            dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
-                        break;
-                    case StoredFormatIds.SQL_DATE_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (dateTimeFormat == null || value == null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
-                        break;
-                    case StoredFormatIds.SQL_TIMESTAMP_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timestampFormat == null || value==null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
-                        break;
-                    default:
-                        dvd.setValue(value);
-                }
+                setValue(dvd,value);
             }
             return new LocatedRow(returnRow);
         } catch (Exception e) {
@@ -178,6 +157,62 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
         }
     }
 
+    /**
+     * Convert the record last parsed into a row. Integer columns are parsed straight from the bytes of
+     * the file, and every other column is decoded into a string just once, to set its value from.
+     */
+    @SuppressFBWarnings(value = "REC_CATCH_EXCEPTION",justification = "Intentional")
+    public LocatedRow call(CsvByteParser record,Charset charset) throws Exception {
+        operationContext.recordRead();
+        try {
+            ExecRow returnRow = execRow.getClone();
+            for (int i = 1; i <= returnRow.nColumns(); i++) {
+                DataValueDescriptor dvd = returnRow.getColumn(i);
+                if (record.numFields()<=i-1) {
+                    throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(),record.numFields());
+                }
+                if (shouldBeNull(record,i-1))
+                    setValue(dvd,null);
+                else if (!setIntegerValue(dvd,record,i-1))
+                    setValue(dvd,record.fieldString(i-1,charset));
+            }
+            return new LocatedRow(returnRow);
+        } catch (Exception e) {
+            if (operationContext.isPermissive()) {
+                operationContext.recordBadRecord(e.getLocalizedMessage() + record.fieldStrings(charset), e);
+                return null;
+            }
+            throw e; // Not Permissive of errors
+        }
+    }
+
+    /**
+     * @return an iterator over the rows of the records read, up to the first record which starts at or
+     * after {@code end}
+     */
+    Iterator<LocatedRow> rows(CsvRecordReader reader,long end,Charset charset) {
+        return new RecordIterator(reader,end,charset);
+    }
+
+    public char quoteCharacter() {
+        return characterDelimiter!=null && characterDelimiter.length()>0?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING;
+    }
+
+    /**
+     * @return {@code true} if files in the charset can be parsed directly from their bytes, with a
+     * {@link CsvByteParser}
+     */
+    public boolean canParseBytes(String charset) {
+        return quoteCharacter()<=0x7F && delimiterCharacter()<=0x7F && CsvFileRange.isAsciiCompatible(charset);
+    }
+
+    CsvByteParser newParser(boolean oneLineRecords) {
+        int maxLinesPerRow = 1;
+        if (!oneLineRecords)
+            maxLinesPerRow = EngineDriver.driver().getConfiguration().getImportMaxQuotedColumnLines();
+        return new CsvByteParser(quoteCharacter(),delimiterCharacter(),maxLinesPerRow);
+    }
+
 
     void checkPreference() {
         if (preference==null){
@@ -199,6 +234,157 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
         else return value.isEmpty() || value.equalsIgnoreCase("null");
     }
 
+    private char delimiterCharacter(){
+        return columnDelimiter!=null && columnDelimiter.length()>0?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER;
+    }
+
+    @SuppressWarnings("SimplifiableIfStatement")
+    private boolean shouldBeNull(CsvByteParser record,int field){
+        if(record.isEmpty(field)) return true;
+        else if(record.isQuoted(field)) return false;
+        else return record.equalsIgnoreCase(field,"null");
+    }
+
+    private void setValue(DataValueDescriptor dvd,String value) throws StandardException, SQLException{
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TIME_ID:
+                if(calendar==null)
+                    calendar = new GregorianCalendar();
+                if (timeFormat == null || value==null){
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                }else
+                    dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_DATE_ID:
+                if(calendar==null)
+                    calendar = new GregorianCalendar();
+                if (dateTimeFormat == null || value == null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                if(calendar==null)
+                    calendar = new GregorianCalendar();
+                if (timestampFormat == null || value==null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
+                break;
+            default:
+                dvd.setValue(value);
+        }
+    }
+
+    /*
+     * Parse an integer column straight from the bytes of its field. Anything which isn't a plain, in range
+     * integer is left to be parsed as a string, so that it fails in exactly the same way as it always has.
+     */
+    private boolean setIntegerValue(DataValueDescriptor dvd,CsvByteParser record,int field) throws StandardException{
+        long min;
+        long max;
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+                min=Byte.MIN_VALUE;
+                max=Byte.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_SMALLINT_ID:
+                min=Short.MIN_VALUE;
+                max=Short.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_INTEGER_ID:
+                min=Integer.MIN_VALUE;
+                max=Integer.MAX_VALUE;
+                break;
+            case StoredFormatIds.SQL_LONGINT_ID:
+                min=Long.MIN_VALUE;
+                max=Long.MAX_VALUE;
+                break;
+            default:
+                return false;
+        }
+        byte[] bytes=record.fieldArray(field);
+        int p=record.fieldOffset(field);
+        int end=p+record.fieldLength(field);
+        //trim as String.trim() does
+        while(p<end && bytes[p]<=' ' && bytes[p]>=0) p++;
+        while(end>p && bytes[end-1]<=' ' && bytes[end-1]>=0) end--;
+        if(p==end) return false;
+        boolean negative=bytes[p]=='-';
+        if(negative || bytes[p]=='+') p++;
+        if(p==end) return false;
+        //accumulate negatively, so that Long.MIN_VALUE can be represented
+        long value=0L;
+        for(;p<end;p++){
+            int digit=bytes[p]-'0';
+            if(digit<0 || digit>9) return false;
+            if(value<(Long.MIN_VALUE+digit)/10) return false;
+            value=value*10-digit;
+        }
+        if(!negative){
+            if(value==Long.MIN_VALUE) return false;
+            value=-value;
+        }
+        if(value<min || value>max) return false;
+        dvd.setValue(value);
+        return true;
+    }
+
+    private class RecordIterator implements Iterator<LocatedRow>{
+        private final CsvRecordReader reader;
+        private final long end;
+        private final Charset charset;
+        private LocatedRow nextRow;
+        private boolean done;
+
+        RecordIterator(CsvRecordReader reader,long end,Charset charset){
+            this.reader=reader;
+            this.end=end;
+            this.charset=charset;
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(nextRow!=null) return true;
+            if(done) return false;
+            try{
+                while(true){
+                    try{
+                        if(!reader.next() || reader.recordOffset()>=end){
+                            done=true;
+                            reader.close();
+                            return false;
+                        }
+                        if(reader.parser().isEmptyLine())
+                            continue;
+                        nextRow=call(reader.parser(),charset);
+                        if(nextRow!=null)
+                            return true;
+                    }catch(CsvByteParser.MalformedRecordException e){
+                        if(!operationContext.isPermissive())
+                            throw StandardException.plainWrapException(e);
+                        operationContext.recordBadRecord(e.getLocalizedMessage(),e);
+                    }
+                }
+            }catch(Exception e){
+                throw new RuntimeException("Terminal, should have been caught",e);
+            }
+        }
+
+        @Override
+        public LocatedRow next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            LocatedRow row=nextRow;
+            nextRow=null;
+            return row;
+        }
+
+        @Override
+        public void remove(){
+            throw new RuntimeException("not supported");
+        }
+    }
+
 
 
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.impl.sql.execute.index.IndexTransformer;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.utils.marshall.PairEncoder;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Encodes the rows of a bulk import for the base table and each of its indexes, exactly as the write
+ * pipeline would.
+ * <p/>
+ * Each row key is prefixed with the conglomerate it belongs to, so that the rows of every conglomerate
+ * can be shuffled together by key. Rows which would violate a primary key or unique constraint then meet
+ * each other no matter which partition of the import they came from.
+ */
+public class BulkImportEncodeFunction extends SpliceFlatMapFunction<InsertOperation,Iterator<LocatedRow>,KVPair>{
+    private long heapConglom;
+    private List<DDLMessage.TentativeIndex> indexes;
+
+    public BulkImportEncodeFunction(){
+    }
+
+    public BulkImportEncodeFunction(OperationContext<InsertOperation> operationContext,
+                                    long heapConglom,
+                                    List<DDLMessage.TentativeIndex> indexes){
+        super(operationContext);
+        this.heapConglom=heapConglom;
+        this.indexes=indexes;
+    }
+
+    /**
+     * @return the pair, with its row key prefixed by the conglomerate which it is written to
+     */
+    public static KVPair tag(long conglomId,KVPair pair){
+        byte[] rowKey=pair.getRowKey();
+        byte[] taggedKey=new byte[Bytes.SIZEOF_LONG+rowKey.length];
+        System.arraycopy(Bytes.toBytes(conglomId),0,taggedKey,0,Bytes.SIZEOF_LONG);
+        System.arraycopy(rowKey,0,taggedKey,Bytes.SIZEOF_LONG,rowKey.length);
+        return new KVPair(taggedKey,pair.getValue(),pair.getType());
+    }
+
+    /**
+     * @return the conglomerate of a pair produced by {@link #tag(long,KVPair)}
+     */
+    public static long conglomerateOf(byte[] taggedKey){
+        return Bytes.toLong(taggedKey,0);
+    }
+
+    /**
+     * @return the row key of a pair produced by {@link #tag(long,KVPair)}, as it is written to its conglomerate
+     */
+    public static byte[] rowKeyOf(byte[] taggedKey){
+        byte[] rowKey=new byte[taggedKey.length-Bytes.SIZEOF_LONG];
+        System.arraycopy(taggedKey,Bytes.SIZEOF_LONG,rowKey,0,rowKey.length);
+        return rowKey;
+    }
+
+    @Override
+    public Iterator<KVPair> call(final Iterator<LocatedRow> locatedRows) throws Exception{
+        final InsertOperation insertOperation=operationContext.getOperation();
+        final PairEncoder encoder=insertOperation.getRowEncoder(operationContext.getTxn());
+        final List<IndexTransformer> transformers=new ArrayList<>(indexes.size());
+        for(DDLMessage.TentativeIndex index : indexes){
+            transformers.add(new IndexTransformer(index));
+        }
+
+        return new Iterator<KVPair>(){
+            private final List<KVPair> pending=new ArrayList<>(transformers.size()+1);
+            private int position;
+
+            @Override
+            public boolean hasNext(){
+                if(position<pending.size()) return true;
+                if(!locatedRows.hasNext()) return false;
+                pending.clear();
+                position=0;
+                try{
+                    ExecRow row=locatedRows.next().getRow();
+                    //computes generated columns and enforces check constraints, as the pipeline writer does
+                    insertOperation.evaluateGenerationClauses(row);
+                    KVPair pair=encoder.encode(row);
+                    pending.add(tag(heapConglom,pair));
+                    for(int i=0;i<transformers.size();i++){
+                        KVPair indexPair=transformers.get(i).translate(pair);
+                        if(indexPair!=null)
+                            pending.add(tag(indexes.get(i).getIndex().getConglomerate(),indexPair));
+                    }
+                }catch(Exception e){
+                    throw new RuntimeException(e);
+                }
+                return true;
+            }
+
+            @Override
+            public KVPair next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                return pending.get(position++);
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeLong(heapConglom);
+        out.writeInt(indexes.size());
+        for(DDLMessage.TentativeIndex index : indexes){
+            byte[] message=index.toByteArray();
+            out.writeInt(message.length);
+            out.write(message);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        heapConglom=in.readLong();
+        int size=in.readInt();
+        indexes=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            byte[] message=new byte[in.readInt()];
+            in.readFully(message);
+            indexes.add(DDLMessage.TentativeIndex.parseFrom(message));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.access.api.StoreFileWriter;
+import com.splicemachine.derby.impl.load.KeySample;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.driver.SIDriver;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Writes the encoded rows of a bulk import to sorted store files in a staging directory instead of sending
+ * them to the regions. Each row is written as a single user data cell, versioned by the importing transaction.
+ * <p/>
+ * The rows arrive grouped by their (conglomerate-prefixed) key, as produced by {@link BulkImportEncodeFunction},
+ * so every row with a given key is in the same group, whichever partition of the import it came from. The
+ * keys of non-unique indexes, and of tables without a primary key, are always distinct, so a group of more
+ * than one row means a primary key or unique constraint would be violated, and fails the import.
+ * <p/>
+ * Rows are buffered and sorted in memory, and written out as a new set of files whenever the buffer fills,
+ * so a partition of the import may produce several overlapping files for each conglomerate. Along the
+ * way, a random sample of the keys is taken, from which the caller chooses the points at which to split
+ * each conglomerate before the files are loaded.
+ */
+public class BulkImportFunction extends SpliceFlatMapFunction<InsertOperation,Iterator<Tuple2<KVPair,Iterable<KVPair>>>,KeySample>{
+    private static final long MAX_BUFFERED_BYTES=64*1024*1024;
+
+    private String stagingDirectory;
+    private long heapConglom;
+    private long txnId;
+    private double sampleFraction;
+
+    private transient Map<Long,List<KVPair>> buffers;
+    private transient long bufferedBytes;
+
+    public BulkImportFunction(){
+    }
+
+    public BulkImportFunction(OperationContext<InsertOperation> operationContext,
+                              String stagingDirectory,
+                              long heapConglom,
+                              long txnId,
+                              double sampleFraction){
+        super(operationContext);
+        this.stagingDirectory=stagingDirectory;
+        this.heapConglom=heapConglom;
+        this.txnId=txnId;
+        this.sampleFraction=sampleFraction;
+    }
+
+    /**
+     * @return the staging directory for the store files of a single conglomerate
+     */
+    public static String conglomerateDirectory(String stagingDirectory,long conglomId){
+        return stagingDirectory+"/"+conglomId;
+    }
+
+    @Override
+    public Iterator<KeySample> call(Iterator<Tuple2<KVPair,Iterable<KVPair>>> groups) throws Exception{
+        Map<Long,KeySample> samples=new LinkedHashMap<>();
+        buffers=new LinkedHashMap<>();
+        bufferedBytes=0L;
+
+        Random random=new Random();
+        try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+            while(groups.hasNext()){
+                Iterator<KVPair> group=groups.next()._2().iterator();
+                KVPair tagged=group.next();
+                byte[] taggedKey=tagged.getRowKey();
+                long conglomId=BulkImportEncodeFunction.conglomerateOf(taggedKey);
+                if(group.hasNext())
+                    throw ErrorState.LANG_DUPLICATE_KEY_CONSTRAINT.newException(Long.toString(conglomId),Long.toString(heapConglom));
+                buffer(conglomId,new KVPair(BulkImportEncodeFunction.rowKeyOf(taggedKey),tagged.getValue()),samples,random);
+                if(conglomId==heapConglom)
+                    operationContext.recordWrite();
+                if(bufferedBytes>=MAX_BUFFERED_BYTES)
+                    flush(admin);
+            }
+            flush(admin);
+        }
+        return samples.values().iterator();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeUTF(stagingDirectory);
+        out.writeLong(heapConglom);
+        out.writeLong(txnId);
+        out.writeDouble(sampleFraction);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        stagingDirectory=in.readUTF();
+        heapConglom=in.readLong();
+        txnId=in.readLong();
+        sampleFraction=in.readDouble();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void buffer(long conglomId,KVPair pair,Map<Long,KeySample> samples,Random random){
+        List<KVPair> buffer=buffers.get(conglomId);
+        if(buffer==null){
+            buffer=new ArrayList<>();
+            buffers.put(conglomId,buffer);
+            samples.put(conglomId,new KeySample(conglomId));
+        }
+        buffer.add(pair);
+        long size=pair.getSize();
+        bufferedBytes+=size;
+        boolean sampled=random.nextDouble()<sampleFraction;
+        samples.get(conglomId).add(sampled?pair.getRowKey():null,size);
+    }
+
+    private void flush(PartitionAdmin admin) throws Exception{
+        for(Map.Entry<Long,List<KVPair>> entry : buffers.entrySet()){
+            List<KVPair> pairs=entry.getValue();
+            if(pairs.isEmpty()) continue;
+            Collections.sort(pairs);
+            String conglomName=Long.toString(entry.getKey());
+            try(StoreFileWriter writer=admin.newStoreFile(conglomName,conglomerateDirectory(stagingDirectory,entry.getKey()))){
+                for(KVPair pair : pairs){
+                    writer.append(pair.getRowKey(),SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId,pair.getValue());
+                }
+            }
+            pairs.clear();
+        }
+        bufferedBytes=0L;
+    }
+}
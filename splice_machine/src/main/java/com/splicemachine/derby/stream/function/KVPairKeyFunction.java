@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.kvpair.KVPair;
+import scala.Tuple2;
+
+/**
+ * Keys each KVPair by itself. Unlike its row key bytes, a KVPair has value equality, so pairs with
+ * the same row key (and type) are grouped together.
+ */
+public class KVPairKeyFunction extends SplicePairFunction<SpliceOperation,KVPair,KVPair,KVPair> {
+
+    public KVPairKeyFunction() {
+        super();
+    }
+
+    public KVPairKeyFunction(OperationContext<SpliceOperation> operationContext) {
+        super(operationContext);
+    }
+
+    @Override
+    public Tuple2<KVPair, KVPair> call(KVPair kvPair) throws Exception {
+        return new Tuple2<>(kvPair,kvPair);
+    }
+
+    @Override
+    public KVPair genKey(KVPair kvPair) {
+        return kvPair;
+    }
+
+    @Override
+    public KVPair genValue(KVPair kvPair) {
+        return kvPair;
+    }
+}
@@ -23,13 +23,23 @@ import com.splicemachine.db.iapi.sql.execute.ExecutionFactory;
 import com.splicemachine.db.iapi.types.RowLocation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ProjectRestrictOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.derby.stream.control.NLJoinProbeDataSetProcessor;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.IterableJoinFunction;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iterator.GetNLJoinIterator;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.DataResult;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.storage.util.MapAttributes;
 import com.splicemachine.utils.Pair;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.*;
@@ -58,6 +68,10 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
     protected boolean isLeftOuterJoin;
     protected boolean isAntiJoin;
     protected boolean isOneRowInnerJoin;
+    protected int probeBatchSize;
+    protected int probeFetchSize;
+    protected OperationContext probeContext;
+    protected Deque<Pair<LocatedRow, DataSetProcessor>> probes;
 
     protected ExecutorCompletionService<Pair<OperationContext, Iterator<LocatedRow>>> completionService;
 
@@ -72,11 +86,13 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
         checkInit();
         SConfiguration configuration= EngineDriver.driver().getConfiguration();
         batchSize = configuration.getNestedLoopJoinBatchSize();
+        probeBatchSize = configuration.getNestedLoopJoinProbeBatchSize();
         nLeftRows = 0;
         leftSideIterator = from;
         completionService = new ExecutorCompletionService<>(EngineDriver.driver().getExecutorService());
 
         initOperationContexts();
+        initProbes();
         loadBatch();
     }
 
@@ -92,17 +108,34 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
         }
     }
 
+    /*
+     * If the right side looks up a single row by its primary key, the right rows of a number of left rows are
+     * fetched together in one request, and the scan of the right side for each left row then reads the row
+     * which was fetched for it, instead of making a request of its own. The first request covers as many left
+     * rows as are joined concurrently, and each one after that twice as many, up to probeBatchSize; so a join
+     * whose output is only partly consumed (under a LIMIT, say) reads little of the left side ahead.
+     */
+    private void initProbes() throws StandardException {
+        if (probeBatchSize <= 0 || getProbeScan(operationContext) == null)
+            return;
+        try {
+            probeContext = operationContext.getClone();
+            probes = new ArrayDeque<>(probeBatchSize);
+            probeFetchSize = Math.max(1, Math.min(batchSize, probeBatchSize));
+        }
+        catch (Exception e) {
+            throw Exceptions.parseException(e);
+        }
+    }
+
     private void loadBatch() throws StandardException {
 
         try {
             while (nLeftRows < batchSize) {
-                if (!leftSideIterator.hasNext())
+                if (!hasMoreLeftRows())
                     break;
                 nLeftRows++;
-                LocatedRow locatedRow = leftSideIterator.next();
-                GetNLJoinIterator getNLJoinIterator =  GetNLJoinIterator.makeGetNLJoinIterator(joinType,
-                        operationContextList.remove(0), locatedRow);
-                completionService.submit(getNLJoinIterator);
+                submitNextLeftRow();
             }
             if (nLeftRows > 0) {
                 Future<Pair<OperationContext, Iterator<LocatedRow>>> future = completionService.take();
@@ -132,12 +165,9 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
                 currentOperationContext.getOperation().close();
                 operationContextList.add(currentOperationContext);
 
-                if (leftSideIterator.hasNext()) {
+                if (hasMoreLeftRows()) {
                     // If we haven't consumed left side iterator, submit a task to scan righ side
-                    LocatedRow locatedRow = leftSideIterator.next();
-                    GetNLJoinIterator getNLJoinIterator = GetNLJoinIterator.makeGetNLJoinIterator(joinType,
-                            operationContextList.remove(0), locatedRow);
-                    completionService.submit(getNLJoinIterator);
+                    submitNextLeftRow();
                     nLeftRows++;
                 }
 
@@ -215,6 +245,96 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
         return row;
     }
 
+    private boolean hasMoreLeftRows() {
+        return (probes != null && !probes.isEmpty()) || leftSideIterator.hasNext();
+    }
+
+    /*
+     * Submit a task to scan the right side for the next row of the left side
+     */
+    private void submitNextLeftRow() throws StandardException {
+        LocatedRow locatedRow;
+        DataSetProcessor processor = null;
+        if (probes == null) {
+            locatedRow = leftSideIterator.next();
+        }
+        else {
+            if (probes.isEmpty())
+                fetchProbes();
+            Pair<LocatedRow, DataSetProcessor> probe = probes.remove();
+            locatedRow = probe.getFirst();
+            processor = probe.getSecond();
+        }
+        GetNLJoinIterator getNLJoinIterator = GetNLJoinIterator.makeGetNLJoinIterator(joinType,
+                operationContextList.remove(0), locatedRow, processor);
+        completionService.submit(getNLJoinIterator);
+    }
+
+    /*
+     * Read up to probeFetchSize rows from the left side, and fetch the right rows which they look up in a
+     * single request. Left rows whose key can't be determined are left to scan the right side as usual.
+     */
+    private void fetchProbes() throws StandardException {
+        try {
+            TableScanOperation scan = getProbeScan(probeContext);
+            SpliceOperation leftOperation = probeContext.getOperation().getLeftOperation();
+            List<LocatedRow> leftRows = new ArrayList<>(probeFetchSize);
+            List<byte[]> keys = new ArrayList<>(probeFetchSize);
+            List<byte[]> keysToFetch = new ArrayList<>(probeFetchSize);
+            while (leftRows.size() < probeFetchSize && leftSideIterator.hasNext()) {
+                LocatedRow locatedRow = leftSideIterator.next();
+                leftOperation.setCurrentLocatedRow(locatedRow);
+                byte[] key = scan.getPointLookupKey();
+                leftRows.add(locatedRow);
+                keys.add(key);
+                if (key != null)
+                    keysToFetch.add(key);
+            }
+            probeFetchSize = Math.min(probeBatchSize, 2 * probeFetchSize);
+            if (keysToFetch.isEmpty()) {
+                for (LocatedRow locatedRow : leftRows) {
+                    probes.add(new Pair<LocatedRow, DataSetProcessor>(locatedRow, null));
+                }
+                return;
+            }
+
+            SIDriver driver = SIDriver.driver();
+            MapAttributes attributes = new MapAttributes();
+            driver.getOperationFactory().encodeForReads(attributes, scan.getCurrentTransaction(), false);
+            String tableName = Long.toString(scan.getScanInformation().getConglomerateId());
+            try (Partition table = driver.getTableFactory().getTable(tableName)) {
+                Iterator<DataResult> results = table.batchGet(attributes, keysToFetch);
+                for (int i = 0; i < leftRows.size(); ++i) {
+                    DataSetProcessor processor = null;
+                    if (keys.get(i) != null) {
+                        if (!results.hasNext())
+                            throw new IllegalStateException("Programmer error: incompatible iterator sizes!");
+                        DataResult result = results.next();
+                        processor = new NLJoinProbeDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(),
+                                driver.getOperationFactory(), result == null ? null : result.getClone());
+                    }
+                    probes.add(new Pair<>(leftRows.get(i), processor));
+                }
+            }
+        }
+        catch (Exception e) {
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    /*
+     * The table scan of the right side, if the right side is a table scan under nothing but projections and
+     * restrictions. Whether a left row can look up its right row by key is decided one left row at a time.
+     */
+    private static TableScanOperation getProbeScan(OperationContext context) {
+        SpliceOperation rightOperation = context.getOperation().getRightOperation();
+        while (rightOperation instanceof ProjectRestrictOperation)
+            rightOperation = ((ProjectRestrictOperation) rightOperation).getSource();
+        if (rightOperation == null || rightOperation.getClass() != TableScanOperation.class)
+            return null;
+        return (TableScanOperation) rightOperation;
+    }
+
     private void setRightSideCurrentLocatedRow(SpliceOperation from, SpliceOperation to) {
         try {
             try {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.load.CsvFileRange;
+import com.splicemachine.derby.impl.load.CsvRecordReader;
+import com.splicemachine.derby.impl.load.ImportUtils;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Counts the quote characters in each {@link CsvFileRange} of a file, from which to tell whether each range
+ * starts inside a quoted field.
+ */
+public class QuoteCountFunction extends SpliceFunction<SpliceOperation, CsvFileRange, Long> {
+    private char quote;
+
+    public QuoteCountFunction() {
+        super();
+    }
+
+    public QuoteCountFunction(OperationContext operationContext, char quote) {
+        super(operationContext);
+        this.quote = quote;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeChar(quote);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        quote = in.readChar();
+    }
+
+    @Override
+    public Long call(CsvFileRange range) throws Exception {
+        DistributedFileSystem fileSystem = ImportUtils.getFileSystem(range.getFileName());
+        try (InputStream in = fileSystem.newInputStream(fileSystem.getPath(range.getFileName()), StandardOpenOption.READ)) {
+            CsvRecordReader.skipFully(in, range.getScanStart());
+            return CsvRecordReader.countQuotes(in, range.getScanEnd() - range.getScanStart(), quote);
+        }
+    }
+}
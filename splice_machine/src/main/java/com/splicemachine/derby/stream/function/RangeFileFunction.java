@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.load.CsvFileRange;
+import com.splicemachine.derby.impl.load.CsvRecordReader;
+import com.splicemachine.derby.impl.load.ImportUtils;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Function for parsing the records of a single {@link CsvFileRange} of a large file, so that the ranges of
+ * the file can be parsed in parallel.
+ */
+public class RangeFileFunction extends AbstractFileFunction<CsvFileRange> {
+    private String charset;
+    private boolean oneLineRecords;
+
+    public RangeFileFunction() {
+        super();
+    }
+
+    public RangeFileFunction(String characterDelimiter, String columnDelimiter, ExecRow execRow, int[] columnIndex, String timeFormat,
+                             String dateTimeFormat, String timestampFormat, String charset, boolean oneLineRecords, OperationContext operationContext) {
+        super(characterDelimiter,columnDelimiter,execRow,columnIndex,timeFormat,
+                dateTimeFormat,timestampFormat,operationContext);
+        assert charset != null;
+        this.charset = charset;
+        this.oneLineRecords = oneLineRecords;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeUTF(charset);
+        out.writeBoolean(oneLineRecords);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        charset = in.readUTF();
+        oneLineRecords = in.readBoolean();
+    }
+
+    @Override
+    public Iterator<LocatedRow> call(CsvFileRange range) throws Exception {
+        if (operationContext.isFailed())
+            return Collections.<LocatedRow>emptyList().iterator();
+        DistributedFileSystem fileSystem = ImportUtils.getFileSystem(range.getFileName());
+        InputStream in = fileSystem.newInputStream(fileSystem.getPath(range.getFileName()), StandardOpenOption.READ);
+        CsvRecordReader reader;
+        try {
+            CsvRecordReader.skipFully(in, range.getScanStart());
+            reader = new CsvRecordReader(in, newParser(oneLineRecords), range.getScanStart());
+            if (range.getStart() > 0)
+                reader.skipPartialRecord(range.startsInQuotes(), !oneLineRecords);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return rows(reader, range.getEnd(), Charset.forName(charset));
+    }
+}
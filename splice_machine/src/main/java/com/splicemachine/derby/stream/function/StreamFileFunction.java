@@ -17,51 +17,62 @@ package com.splicemachine.derby.stream.function;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.load.CsvRecordReader;
 import com.splicemachine.derby.impl.load.SpliceCsvReader;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.utils.BooleanList;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
+ * Function for parsing whole CSV files, whose records may span lines.
  *
- *
+ * Files in encodings which are compatible with ASCII are parsed directly from their bytes, with a
+ * {@link com.splicemachine.derby.impl.load.CsvByteParser}; files in any other encoding are decoded and tokenized
+ * a line at a time.
  */
     public class StreamFileFunction extends AbstractFileFunction<InputStream> {
     private String charset;
+    private boolean oneLineRecords;
 
     public StreamFileFunction() {
         super();
     }
     public StreamFileFunction(String characterDelimiter, String columnDelimiter, ExecRow execRow, int[] columnIndex, String timeFormat,
-                        String dateTimeFormat, String timestampFormat, String charset, OperationContext operationContext) {
+                        String dateTimeFormat, String timestampFormat, String charset, boolean oneLineRecords, OperationContext operationContext) {
         super(characterDelimiter,columnDelimiter,execRow,columnIndex,timeFormat,
                 dateTimeFormat,timestampFormat,operationContext);
         assert charset != null;
         this.charset = charset;
+        this.oneLineRecords = oneLineRecords;
     }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         super.writeExternal(out);
         out.writeUTF(charset);
+        out.writeBoolean(oneLineRecords);
     }
 
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         super.readExternal(in);
         charset = in.readUTF();
+        oneLineRecords = in.readBoolean();
     }
 
     @Override
     public Iterator<LocatedRow> call(final InputStream s) throws Exception {
         if (operationContext.isFailed())
             return Collections.<LocatedRow>emptyList().iterator();
+        if (canParseBytes(charset))
+            return rows(new CsvRecordReader(s,newParser(oneLineRecords),0L),Long.MAX_VALUE,Charset.forName(charset));
         checkPreference();
 
         return new Iterator<LocatedRow>() {
@@ -39,7 +39,6 @@ import java.util.concurrent.Callable;
  * Created by dgomezferro on 11/4/15.
  */
 public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends SpliceFlatMapFunction<JoinOperation, Iterator<In>, Out> {
-    private static final BroadcastJoinCache broadcastJoinCache = new BroadcastJoinCache();
     private JoinOperation operation;
 
     public AbstractBroadcastJoinFlatMapFunction() {
@@ -79,7 +78,8 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
             }
         };
         ExecRow leftTemplate = operation.getLeftOperation().getExecRowDefinition();
-        joinTable = broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
+        BroadcastJoinCache.CacheKey key = BroadcastJoinCache.keyFor(operation);
+        joinTable = BroadcastJoinCache.getInstance().get(key, rhsLoader, operation.getRightHashKeys()).newTable(operation.getLeftHashKeys(), leftTemplate);
 
         return call(locatedRows, joinTable).iterator();
     }
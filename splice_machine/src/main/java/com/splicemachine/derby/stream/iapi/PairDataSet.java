@@ -141,6 +141,20 @@ public interface PairDataSet<K,V> {
      * @return
      */
     PairDataSet<K,V> sortByKey(Comparator<K> comparator,String name);
+    /**
+     *
+     * Sort by key utilizing the comparator provided. Anything the sort holds on to
+     * (such as runs spilled to disk) is released when the operation of the context closes,
+     * even if the sorted data is never read to the end.
+     *
+     * @see Comparator
+     *
+     * @param comparator
+     * @param name
+     * @param context
+     * @return
+     */
+    PairDataSet<K,V> sortByKey(Comparator<K> comparator,String name,OperationContext context);
     /**
      *
      * Partition the pair DataSet via a custom partitioner and comparator.
@@ -155,6 +169,17 @@ public interface PairDataSet<K,V> {
     PairDataSet<K, V> partitionBy(Partitioner<K> partitioner, Comparator<K> comparator);
     PairDataSet<K, Iterable<V>> groupByKey();
     PairDataSet<K, Iterable<V>> groupByKey(String name);
+    /**
+     *
+     * Group the values for each key. Anything the grouping holds on to (such as runs spilled
+     * to disk) is released when the operation of the context closes, even if the groups are never
+     * read to the end.
+     *
+     * @param name
+     * @param context
+     * @return
+     */
+    PairDataSet<K, Iterable<V>> groupByKey(String name,OperationContext context);
     <W> PairDataSet<K,Tuple2<V,Optional<W>>> hashLeftOuterJoin(PairDataSet<K, W> rightDataSet);
     <W> PairDataSet<K,Tuple2<Optional<V>,W>> hashRightOuterJoin(PairDataSet<K, W> rightDataSet);
     <W> PairDataSet<K,Tuple2<V,W>> hashJoin(PairDataSet<K, W> rightDataSet);
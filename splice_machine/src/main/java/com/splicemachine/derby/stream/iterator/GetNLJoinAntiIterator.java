@@ -15,7 +15,6 @@
 
 package com.splicemachine.derby.stream.iterator;
 
-import com.splicemachine.EngineDriver;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
@@ -44,7 +43,7 @@ public class GetNLJoinAntiIterator extends GetNLJoinIterator {
         op.getLeftOperation().setCurrentLocatedRow(this.locatedRow);
         SpliceOperation rightOperation=op.getRightOperation();
 
-        rightOperation.openCore(EngineDriver.driver().processorFactory().localProcessor(op.getActivation(), op));
+        rightOperation.openCore(getProcessor(op));
         Iterator<LocatedRow> rightSideNLJIterator = rightOperation.getLocatedRowIterator();
         // Lets make sure we perform a call...
         boolean hasNext = rightSideNLJIterator.hasNext();
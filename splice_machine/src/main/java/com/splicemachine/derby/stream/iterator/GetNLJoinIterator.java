@@ -15,8 +15,11 @@
 
 package com.splicemachine.derby.stream.iterator;
 
+import com.splicemachine.EngineDriver;
+import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.NLJoinFunction;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.utils.Pair;
 
@@ -30,6 +33,7 @@ public abstract class GetNLJoinIterator implements Callable<Pair<OperationContex
 
     protected LocatedRow locatedRow;
     protected OperationContext operationContext;
+    protected DataSetProcessor processor;
 
     public GetNLJoinIterator() {}
 
@@ -45,21 +49,44 @@ public abstract class GetNLJoinIterator implements Callable<Pair<OperationContex
     public static GetNLJoinIterator makeGetNLJoinIterator(NLJoinFunction.JoinType joinType,
                                                    OperationContext operationContext,
                                                    LocatedRow locatedRow) {
+        return makeGetNLJoinIterator(joinType, operationContext, locatedRow, null);
+    }
+
+    /**
+     * @param processor the processor with which to open the right side, or null to use a local processor
+     */
+    public static GetNLJoinIterator makeGetNLJoinIterator(NLJoinFunction.JoinType joinType,
+                                                   OperationContext operationContext,
+                                                   LocatedRow locatedRow,
+                                                   DataSetProcessor processor) {
+        GetNLJoinIterator getNLJoinIterator;
         switch (joinType) {
             case INNER:
-                return new GetNLJoinInnerIterator(operationContext, locatedRow);
+                getNLJoinIterator = new GetNLJoinInnerIterator(operationContext, locatedRow);
+                break;
 
             case LEFT_OUTER:
-                return new GetNLJoinLeftOuterIterator(operationContext, locatedRow);
+                getNLJoinIterator = new GetNLJoinLeftOuterIterator(operationContext, locatedRow);
+                break;
 
             case ANTI:
-                return new GetNLJoinAntiIterator(operationContext, locatedRow);
+                getNLJoinIterator = new GetNLJoinAntiIterator(operationContext, locatedRow);
+                break;
 
             case ONE_ROW_INNER:
-                return new GetNLJoinOneRowIterator(operationContext, locatedRow);
+                getNLJoinIterator = new GetNLJoinOneRowIterator(operationContext, locatedRow);
+                break;
 
             default:
                 throw new RuntimeException("Unrecognized nested loop join type");
         }
+        getNLJoinIterator.processor = processor;
+        return getNLJoinIterator;
+    }
+
+    protected DataSetProcessor getProcessor(JoinOperation op) {
+        if (processor != null)
+            return processor;
+        return EngineDriver.driver().processorFactory().localProcessor(op.getActivation(), op);
     }
 }
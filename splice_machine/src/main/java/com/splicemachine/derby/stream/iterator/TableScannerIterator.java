@@ -15,6 +15,7 @@
 
 package com.splicemachine.derby.stream.iterator;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.Qualifier;
@@ -46,9 +47,17 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
     protected Qualifier[][] qualifiers;
     protected int[] baseColumnMap;
     protected boolean rowIdKey; // HACK Row ID Qualifiers point to the projection above them ?  TODO JL
+    private final boolean detached;
 
     public TableScannerIterator(TableScannerBuilder siTableBuilder, SpliceOperation operation) throws StandardException {
+        this(siTableBuilder, null, operation, false);
+    }
+
+    private TableScannerIterator(TableScannerBuilder siTableBuilder, SITableScanner tableScanner,
+                                 SpliceOperation operation, boolean detached) throws StandardException {
         this.siTableBuilder = siTableBuilder;
+        this.tableScanner = tableScanner;
+        this.detached = detached;
         this.operation = (ScanOperation) operation;
         if (operation != null) {
             this.qualifiers = ((ScanOperation) operation).getScanInformation().getScanQualifiers();
@@ -57,6 +66,16 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
         }
     }
 
+    /**
+     * Create an iterator over an already built scanner, which may be read from a thread other than the
+     * operation's. The operation is used only for its scan qualifiers: it is not updated as rows are read,
+     * and the caller is responsible for closing the iterator.
+     */
+    public static TableScannerIterator detached(TableScannerBuilder siTableBuilder, SITableScanner tableScanner,
+                                                SpliceOperation operation) throws StandardException {
+        return new TableScannerIterator(siTableBuilder, tableScanner, operation, true);
+    }
+
     @Override
     public Iterator<LocatedRow> iterator() {
         return this;
@@ -70,9 +89,13 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
             slotted = true;
             if (!initialized) {
                 initialized = true;
-                tableScanner = siTableBuilder.build();
+                if (!detached)
+                    tableScanner = siTableBuilder.build();
                 tableScanner.open();
-                if (operation!= null) {
+                if (qualifiers != null && !rowIdKey)
+                    tableScanner.filterInBatches(qualifiers, baseColumnMap, vectorizedScanBatchSize());
+                tableScanner.prefetchTransactions(txnPrefetchRows());
+                if (operation!= null && !detached) {
                     operation.registerCloseable(new Closeable() {
                         @Override
                         public void close() throws IOException {
@@ -110,7 +133,7 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
         slotted = false;
         rows++;
         LocatedRow locatedRow = new LocatedRow(tableScanner.getCurrentRowLocation(),execRow.getClone());
-        if (operation != null) {
+        if (operation != null && !detached) {
             StreamLogUtils.logOperationRecord(locatedRow, operation);
             operation.setCurrentLocatedRow(locatedRow);
         }
@@ -122,6 +145,16 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
         throw new RuntimeException("Not Implemented");
     }
 
+    private static int vectorizedScanBatchSize() {
+        EngineDriver driver = EngineDriver.driver();
+        return driver == null ? 0 : driver.getConfiguration().getVectorizedScanBatchSize();
+    }
+
+    private static int txnPrefetchRows() {
+        EngineDriver driver = EngineDriver.driver();
+        return driver == null ? 0 : driver.getConfiguration().getTxnPrefetchRows();
+    }
+
     @Override
     public void close() throws IOException {
         if (tableScanner != null) {
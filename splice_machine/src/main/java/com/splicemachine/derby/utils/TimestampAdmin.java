@@ -37,6 +37,7 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
 import com.splicemachine.db.iapi.types.SQLLongint;
 import com.splicemachine.db.iapi.types.SQLVarchar;
 import com.splicemachine.db.impl.jdbc.EmbedConnection;
@@ -61,7 +62,12 @@ public class TimestampAdmin extends BaseAdminProcedures {
 
 	private static final ResultColumnDescriptor[] TIMESTAMP_GENERATOR_INFO_COLUMNS = new GenericColumnDescriptor[] {
 		new GenericColumnDescriptor("numberTimestampsCreated", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-		new GenericColumnDescriptor("numberBlocksReserved",    DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT))
+		new GenericColumnDescriptor("numberBlocksReserved",    DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("numberBlocksReservedInBackground", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("backgroundReservationTime", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("numberStalls",            DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("stallTime",               DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("currentBlockSize",        DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER))
 	};
 	
     public static void SYSCS_GET_TIMESTAMP_GENERATOR_INFO(final ResultSet[] resultSet) throws SQLException {
@@ -70,13 +76,28 @@ public class TimestampAdmin extends BaseAdminProcedures {
             public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException {
                 long numberOfTimestamps = -1;
                 long numberOfBlocks = -1;
+                long numberOfBackgroundBlocks = -1;
+                long backgroundReservationTime = -1;
+                long numberOfStalls = -1;
+                long stallTime = -1;
+                int currentBlockSize = -1;
                 for (TimestampOracleStatistics mgmt : JMXUtils.getTimestampOracleStatistics(connections)) {
                 	numberOfTimestamps = mgmt.getNumberTimestampsCreated();
                 	numberOfBlocks = mgmt.getNumberBlocksReserved();
+                	numberOfBackgroundBlocks = mgmt.getNumberBlocksReservedInBackground();
+                	backgroundReservationTime = mgmt.getBackgroundReservationTime();
+                	numberOfStalls = mgmt.getNumberStalls();
+                	stallTime = mgmt.getStallTime();
+                	currentBlockSize = mgmt.getCurrentBlockSize();
                 }
-    			ExecRow row = new ValueRow(2);
+    			ExecRow row = new ValueRow(7);
     			row.setColumn(1, new SQLLongint(numberOfTimestamps));
     			row.setColumn(2, new SQLLongint(numberOfBlocks));
+    			row.setColumn(3, new SQLLongint(numberOfBackgroundBlocks));
+    			row.setColumn(4, new SQLLongint(backgroundReservationTime));
+    			row.setColumn(5, new SQLLongint(numberOfStalls));
+    			row.setColumn(6, new SQLLongint(stallTime));
+    			row.setColumn(7, new SQLInteger(currentBlockSize));
     			EmbedConnection defaultConn = (EmbedConnection)SpliceAdmin.getDefaultConn();
     			Activation lastActivation = defaultConn.getLanguageConnection().getLastActivation();
     			IteratorNoPutResultSet rs = new IteratorNoPutResultSet(Collections.singletonList(row), TIMESTAMP_GENERATOR_INFO_COLUMNS, lastActivation);
@@ -93,7 +114,9 @@ public class TimestampAdmin extends BaseAdminProcedures {
 	private static final ResultColumnDescriptor[] TIMESTAMP_REQUEST_INFO_COLUMNS = new GenericColumnDescriptor[] {
 		new GenericColumnDescriptor("hostName",           DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
 		new GenericColumnDescriptor("totalRequestCount",  DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-		new GenericColumnDescriptor("avgRequestDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE))
+		new GenericColumnDescriptor("avgRequestDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+		new GenericColumnDescriptor("totalBatchCount",    DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("avgBatchSize",       DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE))
 	};
 	
 	public static void SYSCS_GET_TIMESTAMP_REQUEST_INFO(final ResultSet[] resultSet) throws SQLException {
@@ -101,9 +124,9 @@ public class TimestampAdmin extends BaseAdminProcedures {
             @Override
             public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException {
                 List<Pair<String, TimestampClientStatistics>> mgrs = JMXUtils.getTimestampClientStatistics(connections);
-				ExecRow template = new ValueRow(3);
+				ExecRow template = new ValueRow(5);
 				template.setRowArray(new DataValueDescriptor[]{
-					new SQLVarchar(), new SQLDouble(), new SQLDouble()
+					new SQLVarchar(), new SQLDouble(), new SQLDouble(), new SQLLongint(), new SQLDouble()
 				});
 				List<ExecRow> rows = Lists.newArrayListWithExpectedSize(mgrs.size());
 				for (Pair<String, TimestampClientStatistics> mgmtPair : mgrs) {
@@ -114,6 +137,8 @@ public class TimestampAdmin extends BaseAdminProcedures {
 						dvds[0].setValue(mgmtPair.getFirst()); // region server name
 						dvds[1].setValue(mgmt.getNumberTimestampRequests());
 						dvds[2].setValue(mgmt.getAvgTimestampRequestDuration());
+						dvds[3].setValue(mgmt.getNumberTimestampBatches());
+						dvds[4].setValue(mgmt.getAvgTimestampBatchSize());
 					} catch (StandardException se) {
 						throw PublicAPI.wrapStandardException(se);
 					}
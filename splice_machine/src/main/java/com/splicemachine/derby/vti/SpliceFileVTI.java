@@ -23,9 +23,13 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.vti.VTICosting;
 import com.splicemachine.db.vti.VTIEnvironment;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.derby.impl.load.CsvFileRange;
 import com.splicemachine.derby.impl.load.ImportUtils;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.FileFunction;
+import com.splicemachine.derby.stream.function.QuoteCountFunction;
+import com.splicemachine.derby.stream.function.RangeFileFunction;
 import com.splicemachine.derby.stream.function.StreamFileFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
@@ -40,6 +44,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  *
@@ -126,20 +131,60 @@ public class SpliceFileVTI implements DatasetProvider, VTICosting {
             operationContext = dsp.createOperationContext((Activation)null);
         try {
             ImportUtils.validateReadable(fileName, false);
-            if (oneLineRecords && (charset==null || charset.toLowerCase().equals("utf-8"))) {
+            boolean utf8 = charset==null || charset.toLowerCase().equals("utf-8");
+            String charsetName = charset==null ? StandardCharsets.UTF_8.name() : charset;
+            if (dsp.getType() == DataSetProcessor.Type.SPARK && !oneLineRecords) {
+                // records may span lines, so split large files on record boundaries ourselves
+                DataSet<LocatedRow> rangeSet = readRanges(dsp, execRow, charsetName);
+                if (rangeSet != null)
+                    return rangeSet;
+            }
+            if (oneLineRecords && utf8 && dsp.getType() == DataSetProcessor.Type.SPARK) {
                 DataSet<String> textSet = dsp.readTextFile(fileName, op);
                 operationContext.pushScopeForOp("Parse File");
                 return textSet.flatMap(new FileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex, timeFormat, dateTimeFormat, timestampFormat, operationContext), true);
             } else {
                 PairDataSet<String,InputStream> streamSet = dsp.readWholeTextFile(fileName, op);
                 operationContext.pushScopeForOp("Parse File");
-                return streamSet.values().flatMap(new StreamFileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex, timeFormat, dateTimeFormat, timestampFormat, charset, operationContext), true);
+                return streamSet.values().flatMap(new StreamFileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex, timeFormat, dateTimeFormat, timestampFormat,
+                        charsetName, oneLineRecords && utf8, operationContext), true);
             }
+        } catch (IOException e) {
+            throw StandardException.plainWrapException(e);
         } finally {
             operationContext.popScope();
         }
     }
 
+    /**
+     * Split a large, uncompressed file into ranges which can be parsed in parallel, first counting the quotes
+     * in each range to tell which ranges start inside a quoted field.
+     *
+     * @return the parsed rows, or {@code null} if the file cannot be split
+     */
+    private DataSet<LocatedRow> readRanges(DataSetProcessor dsp, ExecRow execRow, String charsetName) throws IOException, StandardException {
+        RangeFileFunction rangeFunction = new RangeFileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex,
+                timeFormat, dateTimeFormat, timestampFormat, charsetName, false, operationContext);
+        if (!rangeFunction.canParseBytes(charsetName))
+            return null;
+        long splitSize = EngineDriver.driver().getConfiguration().getImportSplitSize();
+        List<CsvFileRange> ranges = CsvFileRange.split(ImportUtils.getFileSystem(fileName), fileName, charsetName, splitSize);
+        if (ranges == null)
+            return null;
+
+        operationContext.pushScopeForOp("Count Quotes");
+        List<Long> quoteCounts = dsp.createDataSet(ranges.iterator())
+                .map(new QuoteCountFunction(operationContext, rangeFunction.quoteCharacter())).collect();
+        operationContext.popScope();
+        long quotes = 0L;
+        for (int i = 0; i < ranges.size(); i++) {
+            ranges.get(i).setStartsInQuotes(quotes % 2 != 0);
+            quotes += quoteCounts.get(i);
+        }
+        operationContext.pushScopeForOp("Parse File");
+        return dsp.createDataSet(ranges.iterator(), fileName).flatMap(rangeFunction, true);
+    }
+
     private static final int defaultBytesPerRow = 100;
     public static int getBytesPerRow() {
         // Imprecise assumption of a fixed number of bytes per row,
@@ -1985,6 +1985,7 @@ public enum ErrorState{
     LANG_COLUMN_STATISTICS_NOT_POSSIBLE("SE020"),
     LANG_DISABLE_STATS_FOR_KEYED_COLUMN("SE021"),
     LANG_INVALID_DAY("SE022"),
+    LANG_BULK_IMPORT_NOT_SUPPORTED("SE023"),
     INCORRECT_COLUMN_COUNT_IN_IMPORT("XIE0A"),
     CANNOT_WRITE_AT_LOCATION("EXT22");
 
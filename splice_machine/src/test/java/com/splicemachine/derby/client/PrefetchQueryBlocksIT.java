@@ -0,0 +1,201 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.client;
+
+import com.splicemachine.db.client.net.NetConnection;
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceTableWatcher;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Tests the prefetching of query blocks of forward-only cursors: with the prefetchBlocks client attribute set,
+ * the network server sends extra QRYDTA blocks in its replies to OPNQRY and CNTQRY, and the result sets read the
+ * same rows, and close the same way, as without it.
+ */
+public class PrefetchQueryBlocksIT{
+    private static final String SCHEMA=PrefetchQueryBlocksIT.class.getSimpleName().toUpperCase();
+    /* about 2MB, which is many 32K query blocks */
+    private static final int ROWS=2000;
+    private static final int PADDING=1000;
+
+    private static final SpliceWatcher classWatcher=new SpliceWatcher();
+    private static final SpliceSchemaWatcher schemaWatcher=new SpliceSchemaWatcher(SCHEMA);
+    private static final SpliceTableWatcher table=
+            new SpliceTableWatcher("PREFETCH",SCHEMA,"(id int primary key, padding varchar("+PADDING+") not null)");
+
+    @ClassRule
+    public static TestRule chain=RuleChain.outerRule(classWatcher)
+            .around(schemaWatcher)
+            .around(table);
+
+    private static final String QUERY="select id, padding from "+table+" order by id";
+
+    @BeforeClass
+    public static void populate() throws Exception{
+        StringBuilder padding=new StringBuilder(PADDING);
+        for(int i=0;i<PADDING;i++){
+            padding.append((char)('a'+i%26));
+        }
+        try(PreparedStatement ps=classWatcher.prepareStatement("insert into "+table+" values (?,?)")){
+            for(int i=1;i<=ROWS;i++){
+                ps.setInt(1,i);
+                ps.setString(2,padding.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @Test
+    public void testReadsAllRowsWithPrefetch() throws Exception{
+        try(Connection conn=openConnection(4)){
+            try(Statement stmt=conn.createStatement();ResultSet rs=stmt.executeQuery(QUERY)){
+                assertRows(rs,ROWS);
+            }
+            NetConnection netConn=(NetConnection)conn;
+            Assert.assertTrue("No query blocks were prefetched",netConn.getQueryBlocksPrefetched()>0);
+            Assert.assertTrue("More blocks prefetched than received",
+                    netConn.getQueryBlocksPrefetched()<netConn.getQueryBlocksReceived());
+        }
+    }
+
+    @Test
+    public void testNoPrefetchByDefault() throws Exception{
+        try(Connection conn=openConnection(0)){
+            try(Statement stmt=conn.createStatement();ResultSet rs=stmt.executeQuery(QUERY)){
+                assertRows(rs,ROWS);
+            }
+            NetConnection netConn=(NetConnection)conn;
+            Assert.assertTrue("Too few query blocks received",netConn.getQueryBlocksReceived()>1);
+            Assert.assertEquals("Query blocks were prefetched",0,netConn.getQueryBlocksPrefetched());
+        }
+    }
+
+    /*
+     * Some of these results end exactly at the end of a query block, so the next block only holds the end of the
+     * data and closes the result set before any extra blocks are written.
+     */
+    @Test
+    public void testReadsResultsEndingNearBlockBoundaries() throws Exception{
+        try(Connection conn=openConnection(4);
+            PreparedStatement ps=conn.prepareStatement("select id, padding from "+table+" where id <= ? order by id")){
+            for(int rows=1;rows<=100;rows++){
+                ps.setInt(1,rows);
+                try(ResultSet rs=ps.executeQuery()){
+                    assertRows(rs,rows);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception{
+        try(Connection conn=openConnection(4)){
+            earlyClose(conn);
+            conn.setAutoCommit(false);
+            earlyClose(conn);
+            conn.commit();
+        }
+    }
+
+    @Test
+    public void testReuseAfterClose() throws Exception{
+        try(Connection conn=openConnection(4)){
+            try(PreparedStatement ps=conn.prepareStatement(QUERY)){
+                for(int i=0;i<3;i++){
+                    try(ResultSet rs=ps.executeQuery()){
+                        assertRows(rs,ROWS);
+                    }
+                }
+            }
+            try(Statement stmt=conn.createStatement();ResultSet rs=stmt.executeQuery("select count(*) from "+table)){
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(ROWS,rs.getInt(1));
+            }
+        }
+    }
+
+    /*
+     * Procedures which return result sets, as the metadata calls do, are run with EXCSQLSTT, which asks for rowsets
+     * with a MAXBLKEXT of -1. No extra blocks may be written after such a result set's single reply block, or the
+     * client reads them as the reply to its next request.
+     */
+    @Test
+    public void testProcedureResultSetsGetNoExtraBlocks() throws Exception{
+        for(int prefetchBlocks : new int[]{0,4}){
+            try(Connection conn=openConnection(prefetchBlocks)){
+                DatabaseMetaData dmd=conn.getMetaData();
+                try(ResultSet rs=dmd.getSchemas(null,"NO_SUCH_SCHEMA")){
+                    Assert.assertFalse("Found a schema which doesn't exist",rs.next());
+                }
+                try(ResultSet rs=dmd.getTables(null,SCHEMA,"PREFETCH",null)){
+                    Assert.assertTrue("The table was not found",rs.next());
+                    Assert.assertEquals("PREFETCH",rs.getString("TABLE_NAME"));
+                    Assert.assertFalse("The table was found twice",rs.next());
+                }
+                try(Statement stmt=conn.createStatement();ResultSet rs=stmt.executeQuery(QUERY)){
+                    assertRows(rs,ROWS);
+                }
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void earlyClose(Connection conn) throws SQLException{
+        try(Statement stmt=conn.createStatement()){
+            try(ResultSet rs=stmt.executeQuery(QUERY)){
+                for(int i=1;i<=10;i++){
+                    Assert.assertTrue("Result set ended early",rs.next());
+                    Assert.assertEquals(i,rs.getInt(1));
+                }
+            }
+            // the same query again reads every row, on the same statement
+            try(ResultSet rs=stmt.executeQuery(QUERY)){
+                assertRows(rs,ROWS);
+            }
+        }
+    }
+
+    private static void assertRows(ResultSet rs,int rows) throws SQLException{
+        int read=0;
+        while(rs.next()){
+            read++;
+            Assert.assertEquals("Incorrect row",read,rs.getInt(1));
+            Assert.assertEquals("Incorrect padding",PADDING,rs.getString(2).length());
+        }
+        Assert.assertEquals("Incorrect number of rows",rows,read);
+    }
+
+    private static Connection openConnection(int prefetchBlocks) throws SQLException{
+        return DriverManager.getConnection(SpliceNetConnection.getDefaultLocalURL()+";prefetchBlocks="+prefetchBlocks);
+    }
+}
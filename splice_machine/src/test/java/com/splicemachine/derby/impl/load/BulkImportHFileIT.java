@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.derby.test.framework.RuledConnection;
+import com.splicemachine.derby.test.framework.SchemaRule;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.TableRule;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests for the constraint checks of SYSCS_UTIL.BULK_IMPORT_HFILE, which writes store files directly
+ * instead of going through the write pipeline.
+ */
+public class BulkImportHFileIT{
+    public static final String SCHEMA_NAME=BulkImportHFileIT.class.getSimpleName().toUpperCase();
+    private final RuledConnection conn = new RuledConnection(null);
+
+    private final TableRule withPk = new TableRule(conn,"WITHPK","(a int primary key)");
+    private final TableRule withUnique = new TableRule(conn,"WITHUNIQUE","(a int, b int, constraint withunique_a unique(a))");
+
+    @Rule public final TestRule rules =RuleChain.outerRule(conn)
+            .around(new SchemaRule(conn,SCHEMA_NAME))
+            .around(withPk)
+            .around(withUnique);
+
+    private static File BADDIR;
+    private static String STAGING_DIR;
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        BADDIR = SpliceUnitTest.createBadLogDirectory(SCHEMA_NAME);
+        assertNotNull(BADDIR);
+        STAGING_DIR = SpliceUnitTest.getBaseDirectory()+"/target/bulk_import/"+SCHEMA_NAME;
+        new File(STAGING_DIR).mkdirs();
+    }
+
+    @Test
+    public void importsIntoEmptyTableWithPrimaryKey() throws Exception{
+        try(Statement s = conn.createStatement()){
+            bulkImport(s,withPk.toString(),"a",SpliceUnitTest.getResourceDirectory()+"/multiFilePKViolation/import");
+            Assert.assertEquals("Incorrect row count!",3L,count(s,withPk.toString()));
+        }
+    }
+
+    @Test
+    public void duplicateKeysInDifferentFilesAreRejected() throws Exception{
+        //the same keys occur in several of the files, which are read by different tasks
+        try(Statement s = conn.createStatement()){
+            try{
+                bulkImport(s,withPk.toString(),"a",SpliceUnitTest.getResourceDirectory()+"/multiFilePKViolation");
+                Assert.fail("Expected a primary key violation");
+            }catch(SQLException se){
+                Assert.assertEquals("Incorrect sql state!","23505",se.getSQLState());
+            }
+            Assert.assertEquals("Rows were loaded despite the violation!",0L,count(s,withPk.toString()));
+        }
+    }
+
+    @Test
+    public void duplicateKeysInDifferentFilesAreRejectedByUniqueIndex() throws Exception{
+        try(Statement s = conn.createStatement()){
+            try{
+                bulkImport(s,withUnique.toString(),"a",SpliceUnitTest.getResourceDirectory()+"/multiFilePKViolation");
+                Assert.fail("Expected a unique constraint violation");
+            }catch(SQLException se){
+                Assert.assertEquals("Incorrect sql state!","23505",se.getSQLState());
+            }
+            Assert.assertEquals("Rows were loaded despite the violation!",0L,count(s,withUnique.toString()));
+        }
+    }
+
+    @Test
+    public void refusesNonEmptyTableWithPrimaryKey() throws Exception{
+        //rows already in the table cannot be checked against the imported ones
+        try(Statement s = conn.createStatement()){
+            s.executeUpdate("insert into "+withPk+" values 100");
+            try{
+                bulkImport(s,withPk.toString(),"a",SpliceUnitTest.getResourceDirectory()+"/multiFilePKViolation/import");
+                Assert.fail("Expected the bulk import to be refused");
+            }catch(SQLException se){
+                Assert.assertEquals("Incorrect sql state!","SE023",se.getSQLState());
+            }
+            Assert.assertEquals("Incorrect row count!",1L,count(s,withPk.toString()));
+        }
+    }
+
+    private void bulkImport(Statement s,String table,String columns,String file) throws Exception{
+        s.execute(String.format("call SYSCS_UTIL.BULK_IMPORT_HFILE(" +
+                        "'%s'," +  // schema name
+                        "'%s'," +  // table name
+                        "'%s'," +  // insert column list
+                        "'%s'," +  // file path
+                        "','," +   // column delimiter
+                        "null," +  // character delimiter
+                        "null," +  // timestamp format
+                        "null," +  // date format
+                        "null," +  // time format
+                        "0," +    // max bad records
+                        "'%s'," +  // bad record dir
+                        "'true'," +  // has one line records
+                        "null," +  // char set
+                        "'%s')",   // bulk import directory
+                SCHEMA_NAME,table,columns,file,
+                BADDIR.getCanonicalPath(),STAGING_DIR));
+    }
+
+    private long count(Statement s,String table) throws Exception{
+        try(ResultSet rs = s.executeQuery("select count(*) from "+table)){
+            Assert.assertTrue("Did not return a row!",rs.next());
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class CsvByteParserTest{
+
+    @Test
+    public void parsesUnquotedFields() throws Exception{
+        List<List<String>> records=parse("hello,goodbye,,boots\n",0);
+        Assert.assertEquals(Arrays.asList(Arrays.asList("hello","goodbye",null,"boots")),records);
+    }
+
+    @Test
+    public void tracksQuotedFields() throws Exception{
+        CsvByteParser parser=new CsvByteParser('"',',',0);
+        byte[] bytes=bytes("\"hello\",goodbye,\"\"\n");
+        parser.reset(bytes,0,bytes.length,true);
+        Assert.assertTrue(parser.next());
+        Assert.assertEquals(3,parser.numFields());
+        Assert.assertTrue(parser.isQuoted(0));
+        Assert.assertFalse(parser.isQuoted(1));
+        Assert.assertTrue(parser.isQuoted(2));
+        Assert.assertTrue("An empty quoted field should be empty",parser.isEmpty(2));
+        Assert.assertSame("A plain quoted field should not be copied",bytes,parser.fieldArray(0));
+        Assert.assertEquals("hello",parser.fieldString(0,StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void unescapesQuotesAndKeepsSurroundingText() throws Exception{
+        List<List<String>> records=parse("\"say \"\"hi\"\"\",  \"padded\" ,\"ab\"c\n",0);
+        Assert.assertEquals(Arrays.asList(Arrays.asList("say \"hi\"","  padded ","abc")),records);
+    }
+
+    @Test
+    public void readsQuotedFieldsAcrossLines() throws Exception{
+        List<List<String>> records=parse("1,\"boots\r\nmagoo\"\n2,\"x\ny\"",0);
+        Assert.assertEquals(Arrays.asList(
+                Arrays.asList("1","boots\nmagoo"),
+                Arrays.asList("2","x\ny")),records);
+    }
+
+    @Test
+    public void acceptsEveryLineTerminatorAndSkipsEmptyLines() throws Exception{
+        List<List<String>> records=parse("a,b\r\n\nc,d\re,f\n\n",0);
+        Assert.assertEquals(Arrays.asList(
+                Arrays.asList("a","b"),
+                Arrays.asList("c","d"),
+                Arrays.asList("e","f")),records);
+    }
+
+    @Test
+    public void rejectsQuotedFieldsWhichSpanTooManyLines() throws Exception{
+        CsvRecordReader reader=reader("1,\"a\nb\"\n2,c\n",1,0);
+        try{
+            reader.next();
+            Assert.fail("Should not be able to read a quoted field across lines");
+        }catch(CsvByteParser.MalformedRecordException expected){
+            //expected
+        }
+        //the reader should pick up again on the next line, whose unbalanced quote is just as bad
+        try{
+            reader.next();
+            Assert.fail("Should not be able to read a quoted field across lines");
+        }catch(CsvByteParser.MalformedRecordException expected){
+            //expected
+        }
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(Arrays.asList("2","c"),fields(reader.parser()));
+    }
+
+    @Test
+    public void rejectsUnterminatedQuotes() throws Exception{
+        CsvRecordReader reader=reader("1,\"abc",0,0);
+        try{
+            reader.next();
+            Assert.fail("Should not be able to read an unterminated quoted field");
+        }catch(CsvByteParser.MalformedRecordException expected){
+            //expected
+        }
+        Assert.assertFalse(reader.next());
+    }
+
+    @Test
+    public void readsRecordsWhichSpanRefillsOfTheBuffer() throws Exception{
+        StringBuilder file=new StringBuilder();
+        List<List<String>> expected=new ArrayList<>();
+        for(int i=0;i<5000;i++){
+            file.append(i).append(",\"row ").append(i).append(" \"\"quoted\"\"\nline\",").append(i*2).append('\n');
+            expected.add(Arrays.asList(Integer.toString(i),"row "+i+" \"quoted\"\nline",Integer.toString(i*2)));
+        }
+        Assert.assertEquals(expected,parse(file.toString(),0));
+    }
+
+    @Test
+    public void parsesEachRecordOnceWhenSplitIntoRanges() throws Exception{
+        String file="1,\"a,\n\"\"b\"\"\nc\"\r\n\n2,plain\n3,\"\n\n\n\n\"\n4,\"x\"\"\"\n5,last";
+        byte[] bytes=bytes(file);
+        List<List<String>> expected=parse(file,0);
+        Assert.assertEquals(5,expected.size());
+        for(int splitSize=1;splitSize<=bytes.length;splitSize++){
+            Assert.assertEquals("Incorrect records for split size "+splitSize,expected,parseRanges(bytes,splitSize,false));
+        }
+    }
+
+    @Test
+    public void parsesEachLineOnceWhenSplitIntoRangesOfOneLineRecords() throws Exception{
+        String file="1,\"a\"\n2,\"b,c\"\r\n3,\"unterminated\n4,d\n";
+        byte[] bytes=bytes(file);
+        for(int splitSize=1;splitSize<=bytes.length;splitSize++){
+            List<List<String>> records=parseRanges(bytes,splitSize,true);
+            Assert.assertEquals("Incorrect records for split size "+splitSize,Arrays.asList(
+                    Arrays.asList("1","a"),
+                    Arrays.asList("2","b,c"),
+                    Arrays.asList("4","d")),records);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] bytes(String text){
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<List<String>> parse(String text,int maxLinesPerRow) throws IOException{
+        return readAll(reader(text,maxLinesPerRow,0),Long.MAX_VALUE);
+    }
+
+    private static CsvRecordReader reader(String text,int maxLinesPerRow,long offset){
+        return new CsvRecordReader(new TrickleInputStream(bytes(text)),new CsvByteParser('"',',',maxLinesPerRow),offset);
+    }
+
+    private static List<List<String>> readAll(CsvRecordReader reader,long end) throws IOException{
+        List<List<String>> records=new ArrayList<>();
+        while(true){
+            try{
+                if(!reader.next() || reader.recordOffset()>=end)
+                    return records;
+                if(!reader.parser().isEmptyLine())
+                    records.add(fields(reader.parser()));
+            }catch(CsvByteParser.MalformedRecordException ignored){
+                //skip the bad record
+            }
+        }
+    }
+
+    private static List<List<String>> parseRanges(byte[] file,int splitSize,boolean oneLineRecords) throws IOException{
+        int maxLinesPerRow=oneLineRecords?1:0;
+        List<CsvFileRange> ranges=new ArrayList<>();
+        for(long start=0;start<file.length;start+=splitSize){
+            ranges.add(new CsvFileRange("file",start,Math.min(file.length,start+splitSize)));
+        }
+        long quotes=0L;
+        for(CsvFileRange range : ranges){
+            range.setStartsInQuotes(quotes%2!=0);
+            InputStream in=new ByteArrayInputStream(file);
+            CsvRecordReader.skipFully(in,range.getScanStart());
+            quotes+=CsvRecordReader.countQuotes(in,range.getScanEnd()-range.getScanStart(),'"');
+        }
+
+        List<List<String>> records=new ArrayList<>();
+        for(CsvFileRange range : ranges){
+            InputStream in=new TrickleInputStream(file);
+            CsvRecordReader.skipFully(in,range.getScanStart());
+            CsvRecordReader reader=new CsvRecordReader(in,new CsvByteParser('"',',',maxLinesPerRow),range.getScanStart());
+            if(range.getStart()>0)
+                reader.skipPartialRecord(range.startsInQuotes(),!oneLineRecords);
+            records.addAll(readAll(reader,range.getEnd()));
+        }
+        return records;
+    }
+
+    private static List<String> fields(CsvByteParser parser){
+        return parser.fieldStrings(StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Returns at most a few bytes from each read, so that records are split across refills of the buffer
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream{
+        TrickleInputStream(byte[] buf){
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b,int off,int len){
+            return super.read(b,off,Math.min(len,3));
+        }
+    }
+}
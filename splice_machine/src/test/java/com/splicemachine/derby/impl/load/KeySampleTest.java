@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class KeySampleTest{
+
+    @Test
+    public void testNoSplitsWhenTheRowsFitInOneRegion() throws Exception{
+        KeySample sample=new KeySample(1L);
+        for(int i=0;i<100;i++){
+            sample.add(Bytes.toBytes(i),10);
+        }
+        Assert.assertEquals(0,sample.splitPoints(1000L).length);
+    }
+
+    @Test
+    public void testNoSplitsWithoutARegionSize() throws Exception{
+        KeySample sample=new KeySample(1L);
+        for(int i=0;i<100;i++){
+            sample.add(Bytes.toBytes(i),10);
+        }
+        Assert.assertEquals(0,sample.splitPoints(0L).length);
+        Assert.assertEquals(0,sample.splitPoints(Long.MAX_VALUE).length);
+    }
+
+    @Test
+    public void testSplitsAtTheQuantilesOfTheSample() throws Exception{
+        KeySample sample=new KeySample(1L);
+        //add the keys out of order, to make sure that they are sorted before choosing the quantiles
+        for(int i=99;i>=0;i--){
+            sample.add(Bytes.toBytes(i),10);
+        }
+        byte[][] splits=sample.splitPoints(250L);
+        Assert.assertEquals(3,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(25),splits[0]);
+        Assert.assertArrayEquals(Bytes.toBytes(50),splits[1]);
+        Assert.assertArrayEquals(Bytes.toBytes(75),splits[2]);
+    }
+
+    @Test
+    public void testUnsampledRowsCountTowardsTheSize() throws Exception{
+        KeySample sample=new KeySample(1L);
+        for(int i=0;i<1000;i++){
+            sample.add(i%100==0?Bytes.toBytes(i):null,10);
+        }
+        Assert.assertEquals(1000L,sample.getRowCount());
+        Assert.assertEquals(10000L,sample.getByteCount());
+        Assert.assertEquals(4,sample.splitPoints(2000L).length);
+    }
+
+    @Test
+    public void testCannotSplitMoreOftenThanThereAreSampledKeys() throws Exception{
+        KeySample sample=new KeySample(1L);
+        sample.add(Bytes.toBytes(1),1000);
+        sample.add(null,1000);
+        sample.add(null,1000);
+        byte[][] splits=sample.splitPoints(1L);
+        Assert.assertEquals(1,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(1),splits[0]);
+    }
+
+    @Test
+    public void testDuplicateKeysSplitOnlyOnce() throws Exception{
+        KeySample sample=new KeySample(1L);
+        for(int i=0;i<10;i++){
+            sample.add(Bytes.toBytes(7),10);
+        }
+        byte[][] splits=sample.splitPoints(10L);
+        Assert.assertEquals(1,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(7),splits[0]);
+    }
+
+    @Test
+    public void testMergeCombinesSamples() throws Exception{
+        KeySample first=new KeySample(1L);
+        KeySample second=new KeySample(1L);
+        for(int i=0;i<50;i++){
+            first.add(Bytes.toBytes(i),10);
+            second.add(Bytes.toBytes(i+50),10);
+        }
+        first.merge(second);
+        Assert.assertEquals(100L,first.getRowCount());
+        Assert.assertEquals(1000L,first.getByteCount());
+        byte[][] splits=first.splitPoints(500L);
+        Assert.assertEquals(1,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(50),splits[0]);
+    }
+}
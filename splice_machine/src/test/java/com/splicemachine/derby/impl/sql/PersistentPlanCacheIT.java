@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql;
+
+import com.splicemachine.db.iapi.reference.Property;
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceTableWatcher;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import com.splicemachine.test.SerialTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that a server which keeps the plans of queries in a plan cache directory loads them rather than compiling
+ * the queries again, and stops using them once the tables they read change.
+ *
+ * The test must be given the server's plan cache directory, as the {@code derby.language.planCacheDirectory} system
+ * property, and is skipped without it. A server loads a saved plan when it prepares a statement it hasn't compiled
+ * since it started; rather than restart the server, the test prepares enough other statements to push its query
+ * out of the statement cache, which leaves the server in the same state as far as the query is concerned.
+ */
+@Category(SerialTest.class)
+public class PersistentPlanCacheIT extends SpliceUnitTest{
+    private static final String SCHEMA=PersistentPlanCacheIT.class.getSimpleName().toUpperCase();
+    private static final int STATEMENT_CACHE_SIZE=1024;
+    private static final long TIMEOUT_MILLIS=60000L;
+
+    private static final SpliceWatcher classWatcher=new SpliceWatcher();
+    private static final SpliceSchemaWatcher schemaWatcher=new SpliceSchemaWatcher(SCHEMA);
+    private static final SpliceTableWatcher restoredTable=new SpliceTableWatcher("R",SCHEMA,"(a int, b varchar(10))");
+    private static final SpliceTableWatcher alteredTable=new SpliceTableWatcher("A",SCHEMA,"(a int, b varchar(10))");
+    private static final SpliceTableWatcher fillerTable=new SpliceTableWatcher("F",SCHEMA,"(a int)");
+
+    @ClassRule
+    public static TestRule chain=RuleChain.outerRule(classWatcher)
+            .around(schemaWatcher)
+            .around(restoredTable)
+            .around(alteredTable)
+            .around(fillerTable);
+
+    @Rule
+    public SpliceWatcher methodWatcher=new SpliceWatcher(SCHEMA);
+
+    private static Path directory;
+    private static int sentinels;
+    private WatchService watcher;
+
+    @BeforeClass
+    public static void findPlanCacheDirectory() throws Exception{
+        String dir=System.getProperty(Property.LANG_PLAN_CACHE_DIRECTORY);
+        Assume.assumeTrue("The server's plan cache directory was not given",dir!=null);
+        directory=Paths.get(dir);
+        Assume.assumeTrue("The server has no plan cache directory",Files.isDirectory(directory));
+
+        classWatcher.executeUpdate("insert into "+restoredTable+" values (1,'one'),(2,'two'),(3,'three')");
+        classWatcher.executeUpdate("insert into "+alteredTable+" values (1,'one'),(2,'two'),(3,'three')");
+    }
+
+    @Before
+    public void setUp() throws Exception{
+        watcher=directory.getFileSystem().newWatchService();
+        directory.register(watcher,StandardWatchEventKinds.ENTRY_CREATE);
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        watcher.close();
+    }
+
+    @Test
+    public void testLoadsTheSavedPlanOfAQueryTheServerHasForgotten() throws Exception{
+        String query="select a, b from "+restoredTable+" where a > ? order by a";
+        Map<Path,String> before=plans();
+        Assert.assertEquals("2 two|3 three|",run(query));
+        Path plan=awaitSaved(before,null);
+        String saved=plans().get(plan);
+
+        forget();
+        Assert.assertEquals("Incorrect results from the loaded plan","2 two|3 three|",run(query));
+        awaitWrites(plan);
+        Assert.assertEquals("The query was compiled again rather than loaded from its plan",saved,plans().get(plan));
+    }
+
+    @Test
+    public void testCompilesAgainOnceATableTheSavedPlanReadsIsAltered() throws Exception{
+        String query="select * from "+alteredTable+" where a > ? order by a";
+        Map<Path,String> before=plans();
+        Assert.assertEquals("2 two|3 three|",run(query));
+        Path plan=awaitSaved(before,null);
+        String saved=plans().get(plan);
+
+        methodWatcher.executeUpdate("alter table "+alteredTable+" add column c int not null default 7");
+        forget();
+        Assert.assertEquals("The stale plan was used","2 two 7|3 three 7|",run(query));
+        awaitWrites(plan);
+        Assert.assertNotEquals("The stale plan was kept",saved,plans().get(plan));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private String run(String query) throws Exception{
+        StringBuilder rows=new StringBuilder();
+        try(PreparedStatement ps=methodWatcher.prepareStatement(query)){
+            ps.setInt(1,1);
+            try(ResultSet rs=ps.executeQuery()){
+                int columns=rs.getMetaData().getColumnCount();
+                while(rs.next()){
+                    for(int i=1;i<=columns;i++){
+                        rows.append(rs.getString(i)).append(i<columns?" ":"|");
+                    }
+                }
+            }
+        }
+        return rows.toString();
+    }
+
+    /*
+     * Push every statement compiled so far out of the statement cache, by preparing a few times as many other
+     * statements as it holds. They are inserts, whose plans aren't saved.
+     */
+    private void forget() throws Exception{
+        for(int i=0;i<4*STATEMENT_CACHE_SIZE;i++){
+            methodWatcher.prepareStatement("insert into "+fillerTable+" values "+i).close();
+        }
+    }
+
+    /*
+     * Wait for every plan saved so far to be written out. Plans are written in the order they're saved, so once the
+     * plan of a query we haven't run before appears, any earlier plan has been written too.
+     */
+    private void awaitWrites(Path ignoring) throws Exception{
+        Map<Path,String> before=plans();
+        Assert.assertEquals("1",methodWatcher.query("select count(*) as sentinel"+(sentinels++)+" from "+restoredTable+" where a = 1").toString());
+        awaitSaved(before,ignoring);
+    }
+
+    /*
+     * Wait for a plan other than the one given to be written, and return its file.
+     */
+    private Path awaitSaved(Map<Path,String> before,Path ignoring) throws Exception{
+        long deadline=System.currentTimeMillis()+TIMEOUT_MILLIS;
+        for(;;){
+            for(Map.Entry<Path,String> plan : plans().entrySet()){
+                if(!plan.getKey().equals(ignoring) && !plan.getValue().equals(before.get(plan.getKey())))
+                    return plan.getKey();
+            }
+            long remaining=deadline-System.currentTimeMillis();
+            Assert.assertTrue("No plan was saved",remaining>0);
+            WatchKey key=watcher.poll(remaining,TimeUnit.MILLISECONDS);
+            if(key!=null){
+                key.pollEvents();
+                key.reset();
+            }
+        }
+    }
+
+    /*
+     * The plan files in the directory, each with its file key and modification time, which change whenever the
+     * plan is written again.
+     */
+    private static Map<Path,String> plans() throws IOException{
+        Map<Path,String> plans=new HashMap<>();
+        try(DirectoryStream<Path> files=Files.newDirectoryStream(directory,"*.plan")){
+            for(Path file : files){
+                try{
+                    BasicFileAttributes attributes=Files.readAttributes(file,BasicFileAttributes.class);
+                    plans.put(file,attributes.fileKey()+" "+attributes.lastModifiedTime());
+                }catch(NoSuchFileException e){
+                    //discarded while we were looking
+                }
+            }
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest{
+    private static final int[] HASH_KEYS={0};
+
+    @Test
+    public void testSharedTableIsKeptForLaterStatementsOfTheSnapshot() throws Exception{
+        CountingLoader loader=new CountingLoader();
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1<<20,60000l);
+
+        JoinTable first=cache.get(sharedKey(1l,10l),null,HASH_KEYS).newTable(HASH_KEYS,null);
+        JoinTable second=cache.get(sharedKey(1l,10l),null,HASH_KEYS).newTable(HASH_KEYS,null);
+        Assert.assertEquals("Did not share the table between open joins!",1,loader.loads.get());
+        first.close();
+        second.close();
+        Assert.assertEquals("Removed a table which a later statement could use!",1,cache.getCachedTableCount());
+
+        //a later statement which reads the same snapshot
+        cache.get(sharedKey(1l,10l),null,HASH_KEYS).newTable(HASH_KEYS,null).close();
+        Assert.assertEquals("Did not reuse the table of an earlier statement!",1,loader.loads.get());
+        Assert.assertEquals(2,cache.getHitCount());
+    }
+
+    @Test
+    public void testPrivateTableIsRemovedOnLastClose() throws Exception{
+        CountingLoader loader=new CountingLoader();
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1<<20,60000l);
+        BroadcastJoinCache.CacheKey key=new BroadcastJoinCache.CacheKey(5l,10l,HASH_KEYS);
+
+        JoinTable first=cache.get(key,null,HASH_KEYS).newTable(HASH_KEYS,null);
+        JoinTable second=cache.get(new BroadcastJoinCache.CacheKey(5l,10l,HASH_KEYS),null,HASH_KEYS).newTable(HASH_KEYS,null);
+        Assert.assertEquals(1,loader.loads.get());
+        first.close();
+        Assert.assertEquals("Removed a table which is still in use!",1,cache.getCachedTableCount());
+        second.close();
+        Assert.assertEquals("Did not remove the table once nobody was using it!",0,cache.getCachedTableCount());
+    }
+
+    @Test
+    public void testDifferentSnapshotsDoNotShare() throws Exception{
+        CountingLoader loader=new CountingLoader();
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,1<<20,60000l);
+
+        cache.get(sharedKey(1l,10l),null,HASH_KEYS).newTable(HASH_KEYS,null).close();
+        cache.get(sharedKey(1l,11l),null,HASH_KEYS).newTable(HASH_KEYS,null).close();
+        Assert.assertEquals(2,loader.loads.get());
+    }
+
+    @Test
+    public void testSharedTablesAreEvictedBySize() throws Exception{
+        CountingLoader loader=new CountingLoader();
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,16*1024,60000l);
+
+        for(long conglomerate=0;conglomerate<100;conglomerate++){
+            cache.get(sharedKey(conglomerate,10l),null,HASH_KEYS).newTable(HASH_KEYS,null).close();
+        }
+        Assert.assertTrue("Kept more than the budget!",cache.getCachedBytes()<=16*1024);
+        Assert.assertTrue(cache.getEvictionCount()>0);
+    }
+
+    @Test
+    public void testOnlyReadOnlySnapshotsAreShared() throws Exception{
+        TxnView readOnlyParent=txn(false,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION);
+        Assert.assertTrue(BroadcastJoinCache.readsReadOnlySnapshot(readOnlyParent));
+        Assert.assertTrue(BroadcastJoinCache.readsReadOnlySnapshot(
+                txn(false,Txn.IsolationLevel.SNAPSHOT_ISOLATION,readOnlyParent)));
+
+        TxnView writableParent=txn(true,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION);
+        Assert.assertFalse(BroadcastJoinCache.readsReadOnlySnapshot(writableParent));
+        Assert.assertFalse("A child sees the writes of its parent!",BroadcastJoinCache.readsReadOnlySnapshot(
+                txn(false,Txn.IsolationLevel.SNAPSHOT_ISOLATION,writableParent)));
+        Assert.assertFalse(BroadcastJoinCache.readsReadOnlySnapshot(
+                txn(false,Txn.IsolationLevel.READ_COMMITTED,Txn.ROOT_TRANSACTION)));
+    }
+
+    private static BroadcastJoinCache.CacheKey sharedKey(long conglomerate,long snapshot){
+        return new BroadcastJoinCache.CacheKey(conglomerate,snapshot,HASH_KEYS,null,null,"1.0",false);
+    }
+
+    private static TxnView txn(boolean allowsWrites,Txn.IsolationLevel level,TxnView parent){
+        TxnView txn=mock(TxnView.class);
+        when(txn.allowsWrites()).thenReturn(allowsWrites);
+        when(txn.getIsolationLevel()).thenReturn(level);
+        when(txn.getParentTxnView()).thenReturn(parent);
+        return txn;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class CountingLoader implements BroadcastJoinCache.JoinTableLoader{
+        private final AtomicInteger loads=new AtomicInteger(0);
+
+        @Override
+        public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys) throws ExecutionException{
+            loads.incrementAndGet();
+            return new JoinTable.Factory(){
+                @Override
+                public JoinTable newTable(int[] outerHashKeys,ExecRow outerTemplateRow){
+                    return new JoinTable(){
+                        @Override
+                        public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+                            return Collections.emptyIterator();
+                        }
+
+                        @Override
+                        public void close(){
+                        }
+                    };
+                }
+
+                @Override
+                public long sizeInBytes(){
+                    return 1024l;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares the build time, heap usage and probe throughput of the broadcast join tables, using an
+ * inner table of (id, name, price) rows joined on id, with a few duplicate keys.
+ *
+ * Run directly with {@code main()}; this is not part of the unit test suite.
+ */
+public class BroadcastJoinTableMicroBenchmark{
+    private static final int INNER_ROWS=500000;
+    private static final int PROBES=2000000;
+    private static final int ROUNDS=5;
+    private static final int[] HASH_KEYS=new int[]{0};
+
+    public static void main(String...args) throws Exception{
+        final List<ExecRow> innerRows=innerRows(new Random(0l));
+        ExecRow[] probes=probes(new Random(1l));
+
+        for(int round=0;round<ROUNDS;round++){
+            System.out.printf("----- round %d%n",round);
+            benchmark("ByteBufferMappedJoinTable",ByteBufferMapTableLoader.INSTANCE,innerRows,probes);
+            benchmark("CompactJoinTable",CompactJoinTableLoader.INSTANCE,innerRows,probes);
+        }
+    }
+
+    private static void benchmark(String name,BroadcastJoinCache.JoinTableLoader loader,
+                                  final List<ExecRow> innerRows,ExecRow[] probes) throws Exception{
+        System.gc();
+        long heapBefore=usedHeap();
+        long start=System.nanoTime();
+        JoinTable.Factory factory=loader.load(new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                return Streams.wrap(innerRows);
+            }
+        },HASH_KEYS);
+        long buildTime=System.nanoTime()-start;
+        System.gc();
+        long heapUsed=usedHeap()-heapBefore;
+
+        long matches=0l;
+        start=System.nanoTime();
+        try(JoinTable table=factory.newTable(HASH_KEYS,probes[0])){
+            for(ExecRow probe : probes){
+                Iterator<ExecRow> inner=table.fetchInner(probe);
+                while(inner.hasNext()){
+                    matches+=inner.next().nColumns();
+                }
+            }
+        }
+        long probeTime=System.nanoTime()-start;
+
+        System.out.printf("%s: build=%.1f ms, heap=%.1f MB, estimated=%.1f MB%n",name,buildTime/1e6,
+                heapUsed/(1024d*1024d),factory.sizeInBytes()/(1024d*1024d));
+        System.out.printf("%s: probe=%.0f ns/probe (%.0f probes/s), matches=%d%n",
+                name,(double)probeTime/probes.length,probes.length*1e9/probeTime,matches);
+        //hold on to the factory until after we measured, so that it isn't collected early
+        System.out.printf("%s: %s%n",name,factory.getClass().getSimpleName());
+    }
+
+    private static long usedHeap(){
+        Runtime runtime=Runtime.getRuntime();
+        return runtime.totalMemory()-runtime.freeMemory();
+    }
+
+    private static List<ExecRow> innerRows(Random random){
+        List<ExecRow> rows=new ArrayList<>(INNER_ROWS);
+        for(int i=0;i<INNER_ROWS;i++){
+            //about 10% of keys are duplicated
+            int id=random.nextInt(10)==0?random.nextInt(INNER_ROWS):i;
+            ValueRow row=new ValueRow(3);
+            row.setColumn(1,new SQLInteger(id));
+            row.setColumn(2,new SQLVarchar("item-"+id));
+            row.setColumn(3,new SQLDouble(random.nextInt(100000)/100d));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static ExecRow[] probes(Random random){
+        ExecRow[] probes=new ExecRow[PROBES];
+        for(int i=0;i<PROBES;i++){
+            //half of the probes miss
+            ValueRow row=new ValueRow(1);
+            row.setColumn(1,new SQLInteger(random.nextInt(2*INNER_ROWS)));
+            probes[i]=row;
+        }
+        return probes;
+    }
+}
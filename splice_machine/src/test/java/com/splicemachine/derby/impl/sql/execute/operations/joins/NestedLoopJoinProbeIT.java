@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.joins;
+
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import com.splicemachine.homeless.TestUtils;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration tests for nested loop joins whose inner rows are looked up by primary key, and so are fetched
+ * for a batch of outer rows at a time, and for the joins which fall back to a scan per outer row.
+ * <p/>
+ * The outer table has more rows than the largest batch, so each join goes through several batches of
+ * different sizes. Only the even keys are in the inner tables, so every batch looks up keys which are missing.
+ */
+public class NestedLoopJoinProbeIT {
+
+    private static final String SCHEMA = NestedLoopJoinProbeIT.class.getSimpleName().toUpperCase();
+    private static final int OUTER_ROWS = 300;
+    @ClassRule
+    public static SpliceSchemaWatcher schemaWatcher = new SpliceSchemaWatcher(SCHEMA);
+    @ClassRule
+    public static SpliceWatcher classWatcher = new SpliceWatcher(SCHEMA);
+    @Rule
+    public SpliceWatcher methodWatcher = new SpliceWatcher(SCHEMA);
+
+    @BeforeClass
+    public static void createSharedTables() throws Exception {
+        classWatcher.executeUpdate("create table OUTER_T(o int)");
+        classWatcher.executeUpdate("create table KEYED(k int primary key, v int)");
+        classWatcher.executeUpdate("create table KEYED2(k1 int, k2 int, v int, primary key(k1, k2))");
+        classWatcher.executeUpdate("create table NOKEY(k int, v int)");
+        classWatcher.executeUpdate("create table OUTER_CHAR(c char(5))");
+        classWatcher.executeUpdate("create table KEYED_CHAR(k char(5) primary key, v int)");
+
+        StringBuilder outer = new StringBuilder("insert into OUTER_T values (null),(null)");
+        StringBuilder keyed = new StringBuilder();
+        StringBuilder keyed2 = new StringBuilder();
+        for (int i = 1; i <= OUTER_ROWS; i++) {
+            outer.append(",(").append(i).append(")");
+            if (i % 2 == 0) {
+                keyed.append(keyed.length() == 0 ? "" : ",").append("(").append(i).append(",").append(10 * i).append(")");
+                keyed2.append(keyed2.length() == 0 ? "" : ",")
+                        .append("(").append(i).append(",1,").append(10 * i).append("),")
+                        .append("(").append(i).append(",2,").append(20 * i).append(")");
+            }
+        }
+        classWatcher.executeUpdate(outer.toString());
+        classWatcher.executeUpdate("insert into KEYED values " + keyed);
+        classWatcher.executeUpdate("insert into KEYED2 values " + keyed2);
+        classWatcher.executeUpdate("insert into NOKEY select * from KEYED");
+        classWatcher.executeUpdate("insert into OUTER_CHAR values ('a'),('b'),('c'),(null)");
+        classWatcher.executeUpdate("insert into KEYED_CHAR values ('a',1),('b',2)");
+    }
+
+    @Test
+    public void innerJoinByPrimaryKey() throws Exception {
+        assertCountAndSum("select count(*), sum(v) from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T, KEYED --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n where o = k", 150, 226500);
+    }
+
+    @Test
+    public void innerJoinByPrimaryKeyAppliesRestrictions() throws Exception {
+        // the restriction on v is evaluated against the fetched rows
+        assertCountAndSum("select count(*), sum(v) from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T, KEYED --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n where o = k and v > 1000", 100, 226500 - 25500);
+    }
+
+    @Test
+    public void leftJoinByPrimaryKeyReturnsNullsForMissingKeys() throws Exception {
+        ResultSet rs = methodWatcher.executeQuery("select count(*), count(k), sum(v) from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T left join KEYED --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n on o = k");
+        assertTrue("Did not return a row!", rs.next());
+        assertEquals("Incorrect row count!", OUTER_ROWS + 2, rs.getLong(1));
+        assertEquals("Incorrect match count!", 150, rs.getLong(2));
+        assertEquals("Incorrect sum!", 226500, rs.getLong(3));
+        assertFalse("Returned too many rows!", rs.next());
+
+        rs = methodWatcher.executeQuery("select o, k, v from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T left join KEYED --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n on o = k where o <= 4 or o is null");
+        assertEquals("" +
+                "O  |  K  |  V  |\n" +
+                "------------------\n" +
+                "  1  |NULL |NULL |\n" +
+                "  2  |  2  | 20  |\n" +
+                "  3  |NULL |NULL |\n" +
+                "  4  |  4  | 40  |\n" +
+                "NULL |NULL |NULL |\n" +
+                "NULL |NULL |NULL |", TestUtils.FormattedResult.ResultFactory.toString(rs));
+    }
+
+    @Test
+    public void antiJoinByPrimaryKey() throws Exception {
+        ResultSet rs = methodWatcher.executeQuery("select count(*) from OUTER_T where not exists " +
+                "(select 1 from KEYED --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n where k = o)");
+        assertTrue("Did not return a row!", rs.next());
+        assertEquals("Incorrect row count!", 152, rs.getLong(1));
+    }
+
+    @Test
+    public void innerJoinByFullCompositeKey() throws Exception {
+        assertCountAndSum("select count(*), sum(v) from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T, KEYED2 --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n where o = k1 and k2 = 2", 150, 453000);
+    }
+
+    @Test
+    public void innerJoinByPartialKeyScansEachOuterRow() throws Exception {
+        // only the first key column is given, so each outer row needs a range scan
+        assertCountAndSum("select count(*), sum(v) from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T, KEYED2 --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n where o = k1", 300, 226500 + 453000);
+    }
+
+    @Test
+    public void leftJoinWithoutPrimaryKeyScansEachOuterRow() throws Exception {
+        ResultSet rs = methodWatcher.executeQuery("select count(*), count(k), sum(v) from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_T left join NOKEY --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n on o = k");
+        assertTrue("Did not return a row!", rs.next());
+        assertEquals("Incorrect row count!", OUTER_ROWS + 2, rs.getLong(1));
+        assertEquals("Incorrect match count!", 150, rs.getLong(2));
+        assertEquals("Incorrect sum!", 226500, rs.getLong(3));
+    }
+
+    @Test
+    public void leftJoinByCharKeyScansEachOuterRow() throws Exception {
+        // CHAR keys are never fetched in batches, since a key may be stored with more padding than it is looked up by
+        ResultSet rs = methodWatcher.executeQuery("select c, v from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                "OUTER_CHAR left join KEYED_CHAR --SPLICE-PROPERTIES joinStrategy=NESTEDLOOP\n on c = k");
+        assertEquals("" +
+                "C  |  V  |\n" +
+                "------------\n" +
+                "NULL |NULL |\n" +
+                "  a  |  1  |\n" +
+                "  b  |  2  |\n" +
+                "  c  |NULL |", TestUtils.FormattedResult.ResultFactory.toString(rs));
+    }
+
+    private void assertCountAndSum(String query, long count, long sum) throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(query)) {
+            assertTrue("Did not return a row!", rs.next());
+            assertEquals("Incorrect row count!", count, rs.getLong(1));
+            assertEquals("Incorrect sum!", sum, rs.getLong(2));
+            assertFalse("Returned too many rows!", rs.next());
+        }
+    }
+}
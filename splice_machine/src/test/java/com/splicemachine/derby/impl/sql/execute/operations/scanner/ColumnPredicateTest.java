@@ -0,0 +1,238 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ColumnPredicateTest{
+    private static final byte[] KEY=new byte[]{1};
+
+    @Test
+    public void testLongComparison() throws Exception{
+        ScanBatch batch=batch(10);
+        for(long i=0;i<10;i++){
+            row(batch,Encoding.encode(i));
+        }
+        batch.selectAll();
+
+        ColumnPredicate.longPredicate(0,Orderable.ORDER_OP_LESSTHAN,false,4L).filter(batch);
+        assertSelected(batch,0,1,2,3);
+
+        ColumnPredicate.longPredicate(0,Orderable.ORDER_OP_GREATEROREQUALS,false,2L).filter(batch);
+        assertSelected(batch,2,3);
+    }
+
+    @Test
+    public void testNegatedComparison() throws Exception{
+        ScanBatch batch=batch(5);
+        for(long i=0;i<5;i++){
+            row(batch,Encoding.encode(i));
+        }
+        batch.selectAll();
+
+        //<> is represented as a negated =
+        ColumnPredicate.longPredicate(0,Orderable.ORDER_OP_EQUALS,true,3L).filter(batch);
+        assertSelected(batch,0,1,2,4);
+    }
+
+    @Test
+    public void testKeepsNullsAndMissingFields() throws Exception{
+        ScanBatch batch=batch(4);
+        row(batch,Encoding.encode(1L));
+        row(batch,new byte[0]); //an explicitly encoded null
+        row(batch,null); //a field which is not present at all
+        row(batch,Encoding.encode(100L));
+        batch.selectAll();
+
+        ColumnPredicate.longPredicate(0,Orderable.ORDER_OP_GREATERTHAN,false,10L).filter(batch);
+        assertSelected(batch,1,2,3);
+    }
+
+    @Test
+    public void testDoubleComparisonOfScalarField() throws Exception{
+        ScanBatch batch=batch(3);
+        row(batch,Encoding.encode(1L));
+        row(batch,Encoding.encode(2L));
+        row(batch,Encoding.encode(3L));
+        batch.selectAll();
+
+        ColumnPredicate.doublePredicate(0,Orderable.ORDER_OP_LESSOREQUALS,false,ColumnPredicate.SCALAR,2.5d).filter(batch);
+        assertSelected(batch,0,1);
+    }
+
+    @Test
+    public void testDoubleComparisonTreatsZerosAsEqual() throws Exception{
+        ScanBatch batch=batch(3);
+        row(batch,Encoding.encode(-0.0d));
+        row(batch,Encoding.encode(0.0d));
+        row(batch,Encoding.encode(Double.MIN_VALUE));
+        batch.selectAll();
+
+        ColumnPredicate.doublePredicate(0,Orderable.ORDER_OP_EQUALS,false,ColumnPredicate.DOUBLE,0.0d).filter(batch);
+        assertSelected(batch,0,1);
+    }
+
+    @Test
+    public void testFloatComparison() throws Exception{
+        ScanBatch batch=batch(3);
+        row(batch,Encoding.encode(0.1f));
+        row(batch,Encoding.encode(0.2f));
+        row(batch,Encoding.encode(0.3f));
+        batch.selectAll();
+
+        ColumnPredicate.floatPredicate(0,Orderable.ORDER_OP_EQUALS,false,ColumnPredicate.FLOAT,0.2f).filter(batch);
+        assertSelected(batch,1);
+    }
+
+    @Test
+    public void testDateComparisonUsesLocalDays() throws Exception{
+        TimeZone timeZone=TimeZone.getTimeZone("America/Los_Angeles");
+        Calendar calendar=new GregorianCalendar(timeZone);
+        calendar.clear();
+        calendar.set(2016,Calendar.JANUARY,10);
+        long dayStart=calendar.getTimeInMillis();
+        ScanBatch batch=batch(3);
+        row(batch,Encoding.encode(dayStart-1));
+        row(batch,Encoding.encode(dayStart));
+        row(batch,Encoding.encode(dayStart+23*3600*1000L));
+        batch.selectAll();
+
+        long day=ColumnPredicate.localDay(dayStart,timeZone);
+        ColumnPredicate.datePredicate(0,Orderable.ORDER_OP_EQUALS,false,timeZone,day).filter(batch);
+        assertSelected(batch,1,2);
+    }
+
+    @Test
+    public void testLocalDayRoundsTowardsNegativeInfinity() throws Exception{
+        TimeZone utc=TimeZone.getTimeZone("UTC");
+        Assert.assertEquals(0L,ColumnPredicate.localDay(0L,utc));
+        Assert.assertEquals(-1L,ColumnPredicate.localDay(-1L,utc));
+        Assert.assertEquals(-1L,ColumnPredicate.localDay(-86400000L,utc));
+    }
+
+    @Test
+    public void testStringComparison() throws Exception{
+        ScanBatch batch=batch(4);
+        row(batch,Encoding.encode("apple"));
+        row(batch,Encoding.encode("banana"));
+        row(batch,Encoding.encode("cherry"));
+        row(batch,Encoding.encode("banana "));
+        batch.selectAll();
+
+        ColumnPredicate.stringPredicate(0,Orderable.ORDER_OP_EQUALS,false,"banana").filter(batch);
+        assertSelected(batch,1);
+    }
+
+    @Test
+    public void testFiltersOnlySelectedRows() throws Exception{
+        ScanBatch batch=batch(6);
+        for(long i=0;i<6;i++){
+            row(batch,Encoding.encode(i));
+        }
+        batch.selectAll();
+        ColumnPredicate.longPredicate(0,Orderable.ORDER_OP_EQUALS,true,2L).filter(batch);
+        ColumnPredicate.longPredicate(0,Orderable.ORDER_OP_GREATERTHAN,false,0L).filter(batch);
+        assertSelected(batch,1,3,4,5);
+
+        batch.clear();
+        Assert.assertEquals(0,batch.size());
+        Assert.assertEquals(0,batch.numSelected());
+    }
+
+    @Test
+    public void testBatchFilterReadsTheCurrentQualifierValue() throws Exception{
+        /*
+         * Like the qualifier of the inner scan of a nested loop join, this one caches the value of the current
+         * outer row until its cache is cleared
+         */
+        final AtomicLong outerValue=new AtomicLong();
+        final AtomicReference<DataValueDescriptor> cached=new AtomicReference<>();
+        Qualifier qualifier=mock(Qualifier.class);
+        when(qualifier.getVariantType()).thenReturn(Qualifier.SCAN_INVARIANT);
+        when(qualifier.getOperator()).thenReturn(Orderable.ORDER_OP_EQUALS);
+        when(qualifier.getOrderable()).thenAnswer(new Answer<DataValueDescriptor>(){
+            @Override
+            public DataValueDescriptor answer(InvocationOnMock invocation) throws Throwable{
+                cached.compareAndSet(null,new SQLLongint(outerValue.get()));
+                return cached.get();
+            }
+        });
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable{
+                cached.set(null);
+                return null;
+            }
+        }).when(qualifier).clearOrderableCache();
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier}};
+        ExecRow template=new ValueRow(1);
+        template.setColumn(1,new SQLLongint());
+        int[] rowDecodingMap=new int[]{0};
+
+        for(long value : new long[]{2L,4L}){
+            outerValue.set(value);
+            ScanBatch batch=batch(5);
+            for(long i=0;i<5;i++){
+                row(batch,Encoding.encode(i));
+            }
+            batch.selectAll();
+            BatchQualifierFilter.create(qualifiers,null,template,rowDecodingMap).filter(batch);
+            assertSelected(batch,(int)value);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ScanBatch batch(int capacity){
+        return new ScanBatch(capacity,1);
+    }
+
+    private static void row(ScanBatch batch,byte[] field){
+        batch.startRow(KEY,0,KEY.length);
+        if(field!=null)
+            batch.addField(0,field,0,field.length);
+        batch.finishRow();
+    }
+
+    private static void assertSelected(ScanBatch batch,int... rows){
+        int[] selected=Arrays.copyOf(batch.selection(),batch.numSelected());
+        Assert.assertArrayEquals("Incorrect selection "+Arrays.toString(selected),rows,selected);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.impl.txn.TxnLowWatermark;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class PinnedTableCacheTest{
+    private static final long CONGLOMERATE=1568L;
+    private static final long FLOOR=100L;
+
+    private final OperationFactory cellFactory=mock(OperationFactory.class);
+    private final TxnOperationFactory operationFactory=mock(TxnOperationFactory.class);
+    private final TxnLowWatermark lowWatermark=mock(TxnLowWatermark.class);
+    private final Partition table=mock(Partition.class);
+    private final DataScan scan=mock(DataScan.class);
+    private final List<DataScan> tableScans=new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception{
+        when(cellFactory.newCell(any(byte[].class),any(byte[].class),any(byte[].class),anyLong(),any(byte[].class)))
+                .thenAnswer(new Answer<DataCell>(){
+                    @Override
+                    public DataCell answer(InvocationOnMock invocation) throws Throwable{
+                        Object[] args=invocation.getArguments();
+                        return cell((byte[])args[0],(byte[])args[2],(Long)args[3],(byte[])args[4]);
+                    }
+                });
+        when(operationFactory.newDataScan(null)).thenAnswer(new Answer<DataScan>(){
+            @Override
+            public DataScan answer(InvocationOnMock invocation) throws Throwable{
+                DataScan tableScan=mock(DataScan.class);
+                tableScans.add(tableScan);
+                return tableScan;
+            }
+        });
+        when(lowWatermark.getLowWatermark()).thenReturn(FLOOR);
+        when(scan.getStartKey()).thenReturn(new byte[0]);
+        when(scan.getStopKey()).thenReturn(new byte[0]);
+    }
+
+    @Test
+    public void testScansTheRowsInTheKeyRange() throws Exception{
+        PinnedTable copy=PinnedTable.copy(scanner(rows(1,5,10L)),FLOOR,Long.MAX_VALUE);
+        Assert.assertNotNull(copy);
+        Assert.assertEquals(5,copy.rowCount());
+
+        DataScanner scanner=copy.scanner(table,cellFactory,key(2),key(4));
+        assertRow(2,10L,scanner.next(-1));
+        assertRow(3,10L,scanner.next(-1));
+        Assert.assertTrue(scanner.next(-1).isEmpty());
+        Assert.assertEquals(2,scanner.getRowsVisited());
+    }
+
+    @Test
+    public void testContainsOnlyIdenticalCells() throws Exception{
+        PinnedTable copy=PinnedTable.copy(scanner(rows(1,3,10L)),FLOOR,Long.MAX_VALUE);
+        Assert.assertNotNull(copy);
+        Assert.assertTrue(copy.contains(cell(key(2),Bytes.toBytes("7"),10L,value(2))));
+        Assert.assertTrue(copy.contains(cell(key(2),Bytes.toBytes("9"),10L,new byte[0])));
+        Assert.assertFalse("Different version",copy.contains(cell(key(2),Bytes.toBytes("7"),11L,value(2))));
+        Assert.assertFalse("Different value",copy.contains(cell(key(2),Bytes.toBytes("7"),10L,value(3))));
+        Assert.assertFalse("Different qualifier",copy.contains(cell(key(2),Bytes.toBytes("8"),10L,value(2))));
+        Assert.assertFalse("Missing row",copy.contains(cell(key(4),Bytes.toBytes("7"),10L,value(4))));
+    }
+
+    @Test
+    public void testDoesNotCopyTablesLargerThanTheLimit() throws Exception{
+        Assert.assertNull(PinnedTable.copy(scanner(rows(1,100,10L)),FLOOR,256));
+    }
+
+    @Test
+    public void testReusesTheCopyWhileTheTableIsUnchanged() throws Exception{
+        PinnedTableCache cache=new PinnedTableCache(1<<20,lowWatermark,operationFactory,cellFactory);
+        DataScanner copy=scanner(rows(1,3,FLOOR+5));
+        DataScanner check=scanner(rows(1,3,FLOOR+5)); //finds only versions which are already in the copy
+        when(table.openScanner(any(DataScan.class))).thenReturn(copy,check);
+
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        verify(table,times(2)).openScanner(any(DataScan.class));
+    }
+
+    @Test
+    public void testCopiesTheTableAgainOnceItIsWritten() throws Exception{
+        PinnedTableCache cache=new PinnedTableCache(1<<20,lowWatermark,operationFactory,cellFactory);
+        DataScanner copy=scanner(rows(1,3,10L));
+        DataScanner check=scanner(rows(4,4,FLOOR+1)); //a row written after the copy was made
+        DataScanner recopy=scanner(rows(1,4,10L));
+        when(table.openScanner(any(DataScan.class))).thenReturn(copy,check,recopy);
+
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(4,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        verify(table,times(3)).openScanner(any(DataScan.class));
+    }
+
+    @Test
+    public void testAdvancesTheFloorAfterEachCheck() throws Exception{
+        when(lowWatermark.getLowWatermark()).thenReturn(FLOOR,FLOOR+50,FLOOR+80);
+        PinnedTableCache cache=new PinnedTableCache(1<<20,lowWatermark,operationFactory,cellFactory);
+        DataScanner copy=scanner(rows(1,3,10L));
+        DataScanner check=scanner(Collections.<List<DataCell>>emptyList());
+        DataScanner nextCheck=scanner(Collections.<List<DataCell>>emptyList());
+        when(table.openScanner(any(DataScan.class))).thenReturn(copy,check,nextCheck);
+
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(3,tableScans.size());
+        verify(tableScans.get(1)).setTimeRange(FLOOR,Long.MAX_VALUE);
+        verify(tableScans.get(2)).setTimeRange(FLOOR+50,Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testDoesNotAdvanceTheFloorWithoutALowWatermark() throws Exception{
+        when(lowWatermark.getLowWatermark()).thenReturn(FLOOR,-1L);
+        PinnedTableCache cache=new PinnedTableCache(1<<20,lowWatermark,operationFactory,cellFactory);
+        DataScanner copy=scanner(rows(1,3,10L));
+        DataScanner check=scanner(Collections.<List<DataCell>>emptyList());
+        DataScanner nextCheck=scanner(Collections.<List<DataCell>>emptyList());
+        when(table.openScanner(any(DataScan.class))).thenReturn(copy,check,nextCheck);
+
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        Assert.assertEquals(3,count(cache.openScanner(CONGLOMERATE,table,scan)));
+        verify(tableScans.get(1)).setTimeRange(FLOOR,Long.MAX_VALUE);
+        verify(tableScans.get(2)).setTimeRange(FLOOR,Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testDoesNotCopyTablesLargerThanASegment() throws Exception{
+        PinnedTableCache cache=new PinnedTableCache(4096,lowWatermark,operationFactory,cellFactory);
+        DataScanner copy=scanner(rows(1,60,10L)); //fits in the whole budget, but not in one segment's share
+        when(table.openScanner(any(DataScan.class))).thenReturn(copy);
+
+        Assert.assertNull(cache.openScanner(CONGLOMERATE,table,scan));
+    }
+
+    @Test
+    public void testDoesNotCopyWithoutALowWatermark() throws Exception{
+        when(lowWatermark.getLowWatermark()).thenReturn(-1L);
+        PinnedTableCache cache=new PinnedTableCache(1<<20,lowWatermark,operationFactory,cellFactory);
+        Assert.assertNull(cache.openScanner(CONGLOMERATE,table,scan));
+    }
+
+    @Test
+    public void testRemembersTablesWhichAreTooLarge() throws Exception{
+        PinnedTableCache cache=new PinnedTableCache(256,lowWatermark,operationFactory,cellFactory);
+        DataScanner copy=scanner(rows(1,100,10L));
+        when(table.openScanner(any(DataScan.class))).thenReturn(copy);
+
+        Assert.assertNull(cache.openScanner(CONGLOMERATE,table,scan));
+        Assert.assertNull(cache.openScanner(CONGLOMERATE,table,scan));
+        verify(table,times(1)).openScanner(any(DataScan.class));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<List<DataCell>> rows(int first,int last,long version){
+        List<List<DataCell>> rows=new ArrayList<>();
+        for(int i=first;i<=last;i++){
+            rows.add(Arrays.asList(cell(key(i),Bytes.toBytes("7"),version,value(i)),
+                    cell(key(i),Bytes.toBytes("9"),version,new byte[0])));
+        }
+        return rows;
+    }
+
+    private static DataScanner scanner(List<List<DataCell>> rows) throws Exception{
+        DataScanner scanner=mock(DataScanner.class);
+        List<List<DataCell>> results=new ArrayList<>(rows);
+        results.add(Collections.<DataCell>emptyList());
+        @SuppressWarnings("unchecked") List<DataCell>[] rest=results.subList(1,results.size()).toArray(new List[results.size()-1]);
+        when(scanner.next(anyInt())).thenReturn(results.get(0),rest);
+        return scanner;
+    }
+
+    private static int count(DataScanner scanner) throws Exception{
+        Assert.assertNotNull(scanner);
+        int rows=0;
+        while(!scanner.next(-1).isEmpty()){
+            rows++;
+        }
+        return rows;
+    }
+
+    private static void assertRow(int row,long version,List<DataCell> cells){
+        Assert.assertEquals(2,cells.size());
+        Assert.assertArrayEquals(key(row),cells.get(0).key());
+        Assert.assertArrayEquals(Bytes.toBytes("7"),cells.get(0).qualifier());
+        Assert.assertEquals(version,cells.get(0).version());
+        Assert.assertArrayEquals(value(row),cells.get(0).value());
+        Assert.assertArrayEquals(Bytes.toBytes("9"),cells.get(1).qualifier());
+    }
+
+    private static byte[] key(int row){
+        return Bytes.toBytes(row);
+    }
+
+    private static byte[] value(int row){
+        return Bytes.toBytes("value-"+row);
+    }
+
+    private static DataCell cell(byte[] key,byte[] qualifier,long version,byte[] value){
+        DataCell cell=mock(DataCell.class);
+        when(cell.key()).thenReturn(key);
+        when(cell.keyArray()).thenReturn(key);
+        when(cell.keyOffset()).thenReturn(0);
+        when(cell.keyLength()).thenReturn(key.length);
+        when(cell.qualifier()).thenReturn(qualifier);
+        when(cell.version()).thenReturn(version);
+        when(cell.value()).thenReturn(value);
+        when(cell.valueArray()).thenReturn(value);
+        when(cell.valueOffset()).thenReturn(0);
+        when(cell.valueLength()).thenReturn(value.length);
+        return cell;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalHashAggregatorTest{
+    private static final ExternalHashAggregator.Combiner<Long, Long> SUM=new ExternalHashAggregator.Combiner<Long, Long>(){
+        @Override
+        public Long createCombiner(Long value){
+            return value;
+        }
+
+        @Override
+        public Long mergeValue(Long combiner,Long value){
+            return combiner+value;
+        }
+
+        @Override
+        public Long mergeCombiners(Long first,Long second){
+            return first+second;
+        }
+    };
+
+    private static final ExternalHashAggregator.Combiner<Long, List<Long>> GROUP=new ExternalHashAggregator.Combiner<Long, List<Long>>(){
+        @Override
+        public List<Long> createCombiner(Long value){
+            List<Long> values=new ArrayList<>();
+            values.add(value);
+            return values;
+        }
+
+        @Override
+        public List<Long> mergeValue(List<Long> combiner,Long value){
+            combiner.add(value);
+            return combiner;
+        }
+
+        @Override
+        public List<Long> mergeCombiners(List<Long> first,List<Long> second){
+            first.addAll(second);
+            return first;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder spillDirectory=new TemporaryFolder();
+
+    @Test
+    public void testAggregatesInMemoryWithoutSpilling() throws Exception{
+        ExternalHashAggregator<Key, Long, Long> aggregator=new ExternalHashAggregator<>(SUM,settings(Long.MAX_VALUE),false);
+        for(long i=0;i<10000;i++){
+            aggregator.add(new Key(i%100),i);
+        }
+        Map<Key, Long> sums=toMap(aggregator.results());
+        Assert.assertEquals("Should not have spilled!",0,aggregator.numSpilledRuns());
+        assertSums(sums,100,10000);
+    }
+
+    @Test
+    public void testSpillsAndCombinesPartialAggregates() throws Exception{
+        ExternalHashAggregator<Key, Long, Long> aggregator=new ExternalHashAggregator<>(SUM,settings(5000),false);
+        for(long i=0;i<100000;i++){
+            aggregator.add(new Key(i%1000),i);
+        }
+        Assert.assertTrue("Should have spilled more than can be merged at once!",
+                aggregator.numSpilledRuns()>ExternalMergeSorter.MAX_MERGE_WIDTH);
+
+        Map<Key, Long> sums=toMap(aggregator.results());
+        assertSums(sums,1000,100000);
+        Assert.assertEquals("Did not clean up spilled runs!",0,spillDirectory.getRoot().list().length);
+    }
+
+    @Test
+    public void testGroupsWhenSpilling() throws Exception{
+        //count every value, since we are holding on to all of them
+        ExternalHashAggregator<Key, Long, List<Long>> aggregator=new ExternalHashAggregator<>(GROUP,settings(2000),true);
+        for(long i=0;i<5000;i++){
+            aggregator.add(new Key(i%50),i);
+        }
+        Assert.assertTrue("Should have spilled!",aggregator.numSpilledRuns()>0);
+
+        Map<Key, List<Long>> groups=toMap(aggregator.results());
+        Assert.assertEquals("Incorrect number of groups!",50,groups.size());
+        for(Map.Entry<Key, List<Long>> group : groups.entrySet()){
+            List<Long> values=new ArrayList<>(group.getValue());
+            Collections.sort(values);
+            Assert.assertEquals("Incorrect group size for "+group.getKey(),100,values.size());
+            for(int i=0;i<values.size();i++){
+                Assert.assertEquals("Incorrect value in group "+group.getKey(),group.getKey().id+50l*i,values.get(i).longValue());
+            }
+        }
+    }
+
+    @Test
+    public void testCloseRemovesRunsWhichWereNotReadToTheEnd() throws Exception{
+        ExternalHashAggregator<Key, Long, Long> aggregator=new ExternalHashAggregator<>(SUM,settings(5000),false);
+        for(long i=0;i<10000;i++){
+            aggregator.add(new Key(i%1000),i);
+        }
+        Assert.assertTrue("Should have spilled!",aggregator.numSpilledRuns()>0);
+
+        //stop early, as a LIMIT would
+        Iterator<Tuple2<Key, Long>> results=aggregator.results();
+        Assert.assertTrue(results.hasNext());
+        results.next();
+        Assert.assertTrue("Runs should still be on disk!",spillDirectory.getRoot().list().length>0);
+
+        aggregator.close();
+        Assert.assertEquals("Did not clean up spilled runs!",0,spillDirectory.getRoot().list().length);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private SpillSettings settings(long memoryBudget){
+        return new SpillSettings(memoryBudget,spillDirectory.getRoot(),new KryoPool(1),new SpillSettings.SizeEstimator(){
+            @Override
+            public long estimateSize(Object o){
+                return 1l;
+            }
+        });
+    }
+
+    private static <C> Map<Key, C> toMap(Iterator<Tuple2<Key, C>> results){
+        Map<Key, C> map=new HashMap<>();
+        while(results.hasNext()){
+            Tuple2<Key, C> next=results.next();
+            Assert.assertNull("Returned key "+next._1()+" twice!",map.put(next._1(),next._2()));
+        }
+        return map;
+    }
+
+    private static void assertSums(Map<Key, Long> sums,int numKeys,long numValues){
+        Assert.assertEquals("Incorrect number of keys!",numKeys,sums.size());
+        for(Map.Entry<Key, Long> sum : sums.entrySet()){
+            long expected=0l;
+            for(long i=sum.getKey().id;i<numValues;i+=numKeys){
+                expected+=i;
+            }
+            Assert.assertEquals("Incorrect sum for "+sum.getKey(),expected,sum.getValue().longValue());
+        }
+    }
+
+    /*
+     * A key with lots of hash collisions, to make sure that we combine by key and not by hash.
+     */
+    public static class Key{
+        private long id;
+
+        public Key(){ }
+
+        Key(long id){
+            this.id=id;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            return o instanceof Key && ((Key)o).id==id;
+        }
+
+        @Override
+        public int hashCode(){
+            return (int)(id%7);
+        }
+
+        @Override
+        public String toString(){
+            return "Key("+id+")";
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalMergeSorterTest{
+    private static final Comparator<Integer> NATURAL_ORDER=new Comparator<Integer>(){
+        @Override
+        public int compare(Integer o1,Integer o2){
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Rule
+    public TemporaryFolder spillDirectory=new TemporaryFolder();
+
+    @Test
+    public void testSortsInMemoryWithoutSpilling() throws Exception{
+        ExternalMergeSorter<Integer, String> sorter=new ExternalMergeSorter<>(NATURAL_ORDER,settings(Long.MAX_VALUE));
+        List<Tuple2<Integer, String>> entries=randomEntries(1000,100);
+        sorter.addAll(entries.iterator());
+
+        assertSorted(entries,sorter.sorted());
+        Assert.assertEquals("Should not have spilled!",0,sorter.numSpilledRuns());
+        Assert.assertEquals("Should not have written any files!",0,spillDirectory.getRoot().list().length);
+    }
+
+    @Test
+    public void testSpillsAndMergesRuns() throws Exception{
+        //each entry is 1 + 1 + 32 bytes, so this spills every 10 entries
+        ExternalMergeSorter<Integer, String> sorter=new ExternalMergeSorter<>(NATURAL_ORDER,settings(340));
+        List<Tuple2<Integer, String>> entries=randomEntries(1005,50);
+        sorter.addAll(entries.iterator());
+        Assert.assertEquals("Did not spill the expected number of runs!",100,sorter.numSpilledRuns());
+
+        assertSorted(entries,sorter.sorted());
+        Assert.assertEquals("Did not clean up spilled runs!",0,spillDirectory.getRoot().list().length);
+    }
+
+    @Test
+    public void testCloseRemovesRunsWhichWereNotReadToTheEnd() throws Exception{
+        ExternalMergeSorter<Integer, String> sorter=new ExternalMergeSorter<>(NATURAL_ORDER,settings(340));
+        sorter.addAll(randomEntries(1005,50).iterator());
+        Assert.assertTrue("Should have spilled more than can be merged at once!",
+                sorter.numSpilledRuns()>ExternalMergeSorter.MAX_MERGE_WIDTH);
+
+        //stop early, as a LIMIT would
+        Iterator<Tuple2<Integer, String>> sorted=sorter.sorted();
+        for(int i=0;i<5;i++){
+            Assert.assertTrue(sorted.hasNext());
+            sorted.next();
+        }
+        Assert.assertTrue("Runs should still be on disk!",spillDirectory.getRoot().list().length>0);
+
+        sorter.close();
+        Assert.assertEquals("Did not clean up spilled runs!",0,spillDirectory.getRoot().list().length);
+        sorter.close(); //closing again is harmless
+    }
+
+    @Test
+    public void testCloseRemovesRunsWhichWereNeverRead() throws Exception{
+        ExternalMergeSorter<Integer, String> sorter=new ExternalMergeSorter<>(NATURAL_ORDER,settings(340));
+        sorter.addAll(randomEntries(100,50).iterator());
+        Assert.assertEquals(10,spillDirectory.getRoot().list().length);
+
+        sorter.close();
+        Assert.assertEquals("Did not clean up spilled runs!",0,spillDirectory.getRoot().list().length);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private SpillSettings settings(long memoryBudget){
+        return new SpillSettings(memoryBudget,spillDirectory.getRoot(),new KryoPool(1),new SpillSettings.SizeEstimator(){
+            @Override
+            public long estimateSize(Object o){
+                return 1l;
+            }
+        });
+    }
+
+    private static List<Tuple2<Integer, String>> randomEntries(int count,int numKeys){
+        Random random=new Random(0l);
+        List<Tuple2<Integer, String>> entries=new ArrayList<>(count);
+        for(int i=0;i<count;i++){
+            entries.add(new Tuple2<>(random.nextInt(numKeys),"value-"+i));
+        }
+        return entries;
+    }
+
+    private static void assertSorted(List<Tuple2<Integer, String>> entries,Iterator<Tuple2<Integer, String>> actual){
+        //Collections.sort is stable, so equal keys must come back in the order they were added
+        List<Tuple2<Integer, String>> expected=new ArrayList<>(entries);
+        Collections.sort(expected,new Comparator<Tuple2<Integer, String>>(){
+            @Override
+            public int compare(Tuple2<Integer, String> o1,Tuple2<Integer, String> o2){
+                return o1._1().compareTo(o2._1());
+            }
+        });
+        List<Tuple2<Integer, String>> sorted=new ArrayList<>(entries.size());
+        while(actual.hasNext()){
+            sorted.add(actual.next());
+        }
+        Assert.assertEquals("Incorrect sort order!",expected,sorted);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Category(ArchitectureIndependent.class)
+public class OrderedParallelIteratorTest{
+    private final ExecutorService pool=Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() throws Exception{
+        pool.shutdownNow();
+        pool.awaitTermination(10,TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testReturnsElementsInSourceOrder() throws Exception{
+        List<CountingSource> sources=sources(10,1000);
+        List<Integer> read=new ArrayList<>();
+        try(OrderedParallelIterator<Integer> iterator=new OrderedParallelIterator<>(sources,pool,3)){
+            while(iterator.hasNext())
+                read.add(iterator.next());
+        }
+
+        Assert.assertEquals(10*1000,read.size());
+        for(int i=0;i<read.size();i++){
+            Assert.assertEquals("Incorrect element at position "+i,i,read.get(i).intValue());
+        }
+        for(CountingSource source : sources){
+            Assert.assertTrue("Source was not closed!",source.closed);
+        }
+    }
+
+    @Test
+    public void testReadsInCallerWhenExecutorNeverRuns() throws Exception{
+        Executor neverRuns=new Executor(){
+            @Override
+            public void execute(Runnable command){
+                //drop the task, as a saturated executor would (for a while)
+            }
+        };
+        List<CountingSource> sources=sources(5,10);
+        int count=0;
+        try(OrderedParallelIterator<Integer> iterator=new OrderedParallelIterator<>(sources,neverRuns,2)){
+            while(iterator.hasNext()){
+                Assert.assertEquals(count,iterator.next().intValue());
+                count++;
+            }
+        }
+        Assert.assertEquals(50,count);
+    }
+
+    @Test
+    public void testReadsInCallerWhenExecutorRejects() throws Exception{
+        //a single, busy thread with room to queue a single source, so the rest are rejected
+        ThreadPoolExecutor bounded=new ThreadPoolExecutor(1,1,0l,TimeUnit.MILLISECONDS,new ArrayBlockingQueue<Runnable>(1));
+        final CountDownLatch busy=new CountDownLatch(1);
+        bounded.execute(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    busy.await();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try{
+            List<CountingSource> sources=sources(5,10);
+            int count=0;
+            try(OrderedParallelIterator<Integer> iterator=new OrderedParallelIterator<>(sources,bounded,4)){
+                while(iterator.hasNext()){
+                    Assert.assertEquals(count,iterator.next().intValue());
+                    count++;
+                }
+            }
+            Assert.assertEquals(50,count);
+            for(CountingSource source : sources){
+                Assert.assertTrue("Source was not closed!",source.closed);
+            }
+        }finally{
+            busy.countDown();
+            bounded.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPropagatesSourceFailures() throws Exception{
+        List<Iterator<Integer>> sources=new ArrayList<>();
+        sources.add(new CountingSource(0,10));
+        sources.add(new Iterator<Integer>(){
+            @Override public boolean hasNext(){ throw new IllegalStateException("broken region"); }
+            @Override public Integer next(){ throw new AssertionError(); }
+            @Override public void remove(){ throw new UnsupportedOperationException(); }
+        });
+        try(OrderedParallelIterator<Integer> iterator=new OrderedParallelIterator<>(sources,pool,2)){
+            for(int i=0;i<10;i++)
+                Assert.assertEquals(i,iterator.next().intValue());
+            iterator.hasNext();
+            Assert.fail("Did not propagate failure");
+        }catch(IllegalStateException expected){
+            Assert.assertEquals("broken region",expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseEarlyClosesAllSources() throws Exception{
+        List<CountingSource> sources=sources(8,100000);
+        OrderedParallelIterator<Integer> iterator=new OrderedParallelIterator<>(sources,pool,4);
+        for(int i=0;i<10;i++)
+            iterator.next();
+        iterator.close();
+        Assert.assertFalse(iterator.hasNext());
+
+        pool.shutdown();
+        Assert.assertTrue("Readers did not stop",pool.awaitTermination(10,TimeUnit.SECONDS));
+        for(CountingSource source : sources){
+            Assert.assertTrue("Source was not closed!",source.closed);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<CountingSource> sources(int numSources,int sourceSize){
+        List<CountingSource> sources=new ArrayList<>(numSources);
+        for(int i=0;i<numSources;i++){
+            sources.add(new CountingSource(i*sourceSize,sourceSize));
+        }
+        return sources;
+    }
+
+    private static class CountingSource implements Iterator<Integer>, Closeable{
+        private int next;
+        private final int end;
+        private volatile boolean closed;
+
+        CountingSource(int start,int size){
+            this.next=start;
+            this.end=start+size;
+        }
+
+        @Override public boolean hasNext(){ return next<end; }
+        @Override public Integer next(){ return next++; }
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+        @Override public void close(){ closed=true; }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.GroupWriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class ParquetFileIteratorTest{
+    private static final MessageType SCHEMA=MessageTypeParser.parseMessageType(
+            "message spark_schema { required int32 i; optional binary name (UTF8); required double d; }");
+    private static final int NUM_ROWS=1000;
+
+    @Rule
+    public TemporaryFolder tableDirectory=new TemporaryFolder();
+
+    private final Configuration conf=new Configuration();
+
+    @Test
+    public void testReadsOnlyTheProjectedColumns() throws Exception{
+        writeFile("part-00000.parquet",0,NUM_ROWS);
+        List<ExecRow> rows=read(new int[]{0,-1,1},null,new SQLInteger(),new SQLDouble());
+
+        Assert.assertEquals(NUM_ROWS,rows.size());
+        for(int i=0;i<NUM_ROWS;i++){
+            DataValueDescriptor[] row=rows.get(i).getRowArray();
+            Assert.assertEquals(i,row[0].getInt());
+            Assert.assertEquals(i/2d,row[1].getDouble(),0d);
+        }
+    }
+
+    @Test
+    public void testReadsNullsAndStrings() throws Exception{
+        writeFile("part-00000.parquet",0,NUM_ROWS);
+        List<ExecRow> rows=read(new int[]{-1,0},null,new SQLVarchar());
+
+        Assert.assertEquals(NUM_ROWS,rows.size());
+        for(int i=0;i<NUM_ROWS;i++){
+            DataValueDescriptor name=rows.get(i).getColumn(1);
+            if(i%10==0)
+                Assert.assertTrue("Row "+i+" should be null",name.isNull());
+            else
+                Assert.assertEquals("name-"+i,name.getString());
+        }
+    }
+
+    @Test
+    public void testReturnsOneRowPerRecordWhenNoColumnsAreNeeded() throws Exception{
+        writeFile("part-00000.parquet",0,NUM_ROWS);
+        Assert.assertEquals(NUM_ROWS,read(new int[]{-1,-1,-1},null).size());
+    }
+
+    @Test
+    public void testSkipsRowGroupsWhichCannotMatch() throws Exception{
+        writeFile("part-00000.parquet",0,NUM_ROWS);
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,50)}};
+        List<ExecRow> rows=read(new int[]{0},qualifiers,new SQLInteger());
+
+        Assert.assertTrue("Should have skipped some row groups",rows.size()<NUM_ROWS);
+        Assert.assertTrue("Should have returned every matching row",rows.size()>=50);
+        for(int i=0;i<rows.size();i++){
+            Assert.assertEquals(i,rows.get(i).getColumn(1).getInt());
+        }
+    }
+
+    @Test
+    public void testKeepsRowGroupsWhichMatchAnyOrClause() throws Exception{
+        writeFile("part-00000.parquet",0,NUM_ROWS);
+        Qualifier[][] qualifiers=new Qualifier[][]{
+                {},
+                {qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,10),qualifier(0,Orderable.ORDER_OP_GREATEROREQUALS,false,990)}
+        };
+        List<ExecRow> rows=read(new int[]{0},qualifiers,new SQLInteger());
+
+        Assert.assertTrue("Should have skipped some row groups",rows.size()<NUM_ROWS);
+        Assert.assertEquals(0,rows.get(0).getColumn(1).getInt());
+        Assert.assertEquals(NUM_ROWS-1,rows.get(rows.size()-1).getColumn(1).getInt());
+    }
+
+    @Test
+    public void testNegatedEqualityOnlySkipsGroupsOfThatValue() throws Exception{
+        writeFile("part-00000.parquet",0,NUM_ROWS);
+        //i <> 5 may be true in any row group
+        Qualifier[][] qualifiers=new Qualifier[][]{{qualifier(0,Orderable.ORDER_OP_EQUALS,true,5)}};
+        Assert.assertEquals(NUM_ROWS,read(new int[]{0},qualifiers,new SQLInteger()).size());
+    }
+
+    @Test
+    public void testReadsEveryDataFileInTheDirectory() throws Exception{
+        writeFile("part-00000.parquet",0,100);
+        writeFile("part-00001.parquet",100,200);
+        Assert.assertTrue(new File(tableDirectory.getRoot(),"_SUCCESS").createNewFile());
+
+        Assert.assertEquals(200,read(new int[]{0},null,new SQLInteger()).size());
+    }
+
+    @Test
+    public void testEmptyDirectoryHasNoRows() throws Exception{
+        Assert.assertEquals(0,read(new int[]{0},null,new SQLInteger()).size());
+    }
+
+    @Test
+    public void testLeavesPartitionedDirectoriesToSpark() throws Exception{
+        Assert.assertTrue(tableDirectory.newFolder("c=1").isDirectory());
+        Assert.assertNull(ParquetFileIterator.open(conf,tableDirectory.getRoot().getPath(),new int[]{0},null,null,template(new SQLInteger())));
+    }
+
+    @Test
+    public void testConvertsInt96Timestamps() throws Exception{
+        //one and a half seconds into the first day of the epoch
+        ByteBuffer buffer=ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(1500000001L).putInt(2440588);
+        Timestamp timestamp=ParquetFileIterator.toTimestamp(Binary.fromByteArray(buffer.array()));
+
+        Assert.assertEquals(1500L,timestamp.getTime());
+        Assert.assertEquals(500000001,timestamp.getNanos());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void writeFile(String name,int start,int stop) throws Exception{
+        GroupWriteSupport.setSchema(SCHEMA,conf);
+        SimpleGroupFactory groups=new SimpleGroupFactory(SCHEMA);
+        Path path=new Path(new File(tableDirectory.getRoot(),name).getPath());
+        //tiny row groups, so that a file holds many of them
+        try(ParquetWriter<Group> writer=new ParquetWriter<>(path,new GroupWriteSupport(),CompressionCodecName.UNCOMPRESSED,
+                1024,1024,1024,false,false,ParquetProperties.WriterVersion.PARQUET_1_0,conf)){
+            for(int i=start;i<stop;i++){
+                Group group=groups.newGroup().append("i",i);
+                if(i%10!=0)
+                    group.append("name","name-"+i);
+                group.append("d",i/2d);
+                writer.write(group);
+            }
+        }
+    }
+
+    private List<ExecRow> read(int[] baseColumnMap,Qualifier[][] qualifiers,DataValueDescriptor... columns) throws Exception{
+        List<ExecRow> rows=new ArrayList<>();
+        try(ParquetFileIterator iterator=ParquetFileIterator.open(conf,tableDirectory.getRoot().getPath(),
+                baseColumnMap,qualifiers,null,template(columns))){
+            Assert.assertNotNull(iterator);
+            while(iterator.hasNext()){
+                LocatedRow row=iterator.next();
+                rows.add(row.getRow());
+            }
+        }
+        return rows;
+    }
+
+    private static ExecRow template(DataValueDescriptor... columns){
+        ValueRow row=new ValueRow(columns.length);
+        row.setRowArray(columns);
+        return row;
+    }
+
+    private static Qualifier qualifier(int column,int operator,boolean negate,int value) throws Exception{
+        DataValueDescriptor orderable=new SQLInteger(value);
+        Qualifier q=Mockito.mock(Qualifier.class);
+        Mockito.when(q.getStoragePosition()).thenReturn(column);
+        Mockito.when(q.getOperator()).thenReturn(operator);
+        Mockito.when(q.negateCompareResult()).thenReturn(negate);
+        Mockito.when(q.getUnknownRV()).thenReturn(negate);
+        Mockito.when(q.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        Mockito.when(q.getOrderable()).thenReturn(orderable);
+        return q;
+    }
+}
@@ -18,6 +18,8 @@ package com.splicemachine.si.api.filter;
 import com.splicemachine.storage.DataCell;
 import com.splicemachine.storage.DataFilter;
 
+import java.io.IOException;
+
 public interface TxnFilter extends DataFilter{
     void nextRow();
 
@@ -25,4 +27,13 @@ public interface TxnFilter extends DataFilter{
     boolean getExcludeRow();
 
     RowAccumulator getAccumulator();
+
+    /**
+     * Look up the transactions with the specified ids together, ahead of the cells which they wrote, so that
+     * filtering those cells does not have to look them up one at a time.
+     *
+     * @param txnIds the ids of the transactions which are about to be seen
+     * @throws IOException if the transactions could not be fetched
+     */
+    void prefetchTransactions(long[] txnIds) throws IOException;
 }
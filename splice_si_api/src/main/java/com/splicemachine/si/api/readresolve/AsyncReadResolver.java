@@ -26,6 +26,13 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +43,12 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
  * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * <p/>
+ * Rather than resolving each event on its own, the background thread collects all the events which are
+ * available to it (up to {@link #MAX_BATCH_SIZE} of them) and groups them by region, discarding any duplicates.
+ * Each region's rows are then resolved as a single batch, so that under load (which is when many scanners
+ * are likely to be submitting the same unresolved rows) a region sees a few large writes rather than
+ * a great many single-row ones.
  *
  * @author Scott Fines
  *         Date: 7/1/14
@@ -43,6 +56,7 @@ import java.util.concurrent.TimeUnit;
 @ThreadSafe
 public class AsyncReadResolver{
     private static final Logger LOG=Logger.getLogger(AsyncReadResolver.class);
+    static final int MAX_BATCH_SIZE=1024;
     private final RingBuffer<ResolveEvent> ringBuffer;
     private final Disruptor<ResolveEvent> disruptor;
 
@@ -107,11 +121,58 @@ public class AsyncReadResolver{
         }
     }
 
+    private static final Comparator<ResolveEvent> TXN_THEN_ROW_ORDER=new Comparator<ResolveEvent>(){
+        @Override
+        public int compare(ResolveEvent o1,ResolveEvent o2){
+            int compare=Long.compare(o1.txnId,o2.txnId);
+            if(compare!=0) return compare;
+            return o1.rowKey.compareTo(o2.rowKey);
+        }
+    };
+
     private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        /*
+         * The pending events, grouped by region name. The events are held by reference: the disruptor
+         * won't reuse a slot until we've returned from the end of the batch which contains it, and we
+         * always flush by then.
+         */
+        private final Map<String, List<ResolveEvent>> pending=new HashMap<>();
+        private int numPending;
+
+        private ByteSlice[] rowKeys=new ByteSlice[0];
+        private long[] txnIds=new long[0];
+        private boolean[] resolved=new boolean[0];
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
+            List<ResolveEvent> regionEvents=pending.get(event.region.getName());
+            if(regionEvents==null){
+                regionEvents=new ArrayList<>();
+                pending.put(event.region.getName(),regionEvents);
+            }
+            regionEvents.add(event);
+            numPending++;
+            if(endOfBatch || numPending>=MAX_BATCH_SIZE)
+                flush();
+        }
+
+        private void flush() throws Exception{
             try{
+                for(List<ResolveEvent> regionEvents : pending.values()){
+                    resolve(regionEvents);
+                }
+            }catch(Exception e){
+                LOG.info("Error during read resolution",e);
+                throw e;
+            }finally{
+                pending.clear();
+                numPending=0;
+            }
+        }
+
+        private void resolve(List<ResolveEvent> regionEvents){
+            if(regionEvents.size()==1){
+                ResolveEvent event=regionEvents.get(0);
                 if(synchronousResolver.resolve(event.region,
                         event.rowKey,
                         event.txnId,
@@ -121,10 +182,47 @@ public class AsyncReadResolver{
                         trafficControl)){
                     event.rollForward.recordResolved(event.rowKey,event.txnId);
                 }
-            }catch(Exception e){
-                LOG.info("Error during read resolution",e);
-                throw e;
+                return;
+            }
+
+            //group the rows by transaction, which also puts any duplicates next to each other
+            Collections.sort(regionEvents,TXN_THEN_ROW_ORDER);
+            ensureCapacity(regionEvents.size());
+            int size=0;
+            ResolveEvent last=null;
+            for(ResolveEvent event : regionEvents){
+                if(last!=null && TXN_THEN_ROW_ORDER.compare(last,event)==0) continue; //already going to resolve this one
+                rowKeys[size]=event.rowKey;
+                txnIds[size]=event.txnId;
+                size++;
+                last=event;
+            }
+
+            ResolveEvent first=regionEvents.get(0);
+            int numResolved=synchronousResolver.resolve(first.region,rowKeys,txnIds,size,
+                    txnSupplier,status,false,trafficControl,resolved);
+            if(numResolved>0){
+                int row=-1;
+                last=null;
+                for(ResolveEvent event : regionEvents){
+                    if(last==null || TXN_THEN_ROW_ORDER.compare(last,event)!=0){
+                        row++;
+                        last=event;
+                    }
+                    if(resolved[row])
+                        event.rollForward.recordResolved(event.rowKey,event.txnId);
+                }
             }
+            for(int i=0;i<size;i++){
+                rowKeys[i]=null;
+            }
+        }
+
+        private void ensureCapacity(int size){
+            if(rowKeys.length>=size) return;
+            rowKeys=new ByteSlice[size];
+            txnIds=new long[size];
+            resolved=new boolean[size];
         }
     }
 
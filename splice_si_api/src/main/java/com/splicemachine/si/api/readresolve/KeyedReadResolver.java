@@ -33,4 +33,26 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve a batch of rows, all of which belong to {@code region}, at once.
+     * <p/>
+     * The rows should be sorted by transaction id, so that rows written by the same transaction
+     * are adjacent, and should contain no duplicates.
+     *
+     * @param rowKeys the keys of the rows to resolve
+     * @param txnIds the id of the transaction which wrote each row
+     * @param size the number of rows in the batch
+     * @param resolved set to true for each row which was resolved
+     * @return the number of rows which were resolved
+     */
+    int resolve(Partition region,
+                ByteSlice[] rowKeys,
+                long[] txnIds,
+                int size,
+                TxnSupplier txnSupplier,
+                RollForwardStatus status,
+                boolean failOnError,
+                TrafficControl trafficControl,
+                boolean[] resolved);
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.api.txn;
+
+import java.io.IOException;
+
+/**
+ * The place where every server shares the begin timestamp of the oldest transaction which it has begun and
+ * which is still active.
+ * <p/>
+ * Read-only transactions are never recorded in the transaction table, so this is the only way that one
+ * server can learn about the read-only transactions of another.
+ */
+public interface ActiveTxnRegistry{
+
+    /**
+     * Record the oldest active transaction of this server, and find the oldest active transaction of the cluster.
+     * <p/>
+     * The published value must be no greater than the begin timestamp of any transaction which is active on this
+     * server, or which this server will begin in the future.
+     *
+     * @param oldestActive the begin timestamp of the oldest transaction which is active on this server
+     * @return the smallest value published by any server which is still running, including this one, or a negative
+     * value if the registry cannot currently tell (for example because this server's own entry was lost for a while),
+     * in which case nothing may be discarded.
+     * @throws IOException if the value could not be published, or the values of the other servers could
+     * not be read.
+     */
+    long publishOldestActive(long oldestActive) throws IOException;
+
+    /**
+     * Record the transaction low watermark, where processes which don't compute it themselves can find it.
+     * The recorded value never moves backwards, so a smaller value than the one already recorded is ignored.
+     *
+     * @param lowWatermark the current low watermark
+     * @throws IOException if the value could not be recorded
+     */
+    void publishLowWatermark(long lowWatermark) throws IOException;
+}
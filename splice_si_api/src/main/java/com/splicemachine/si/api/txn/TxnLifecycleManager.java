@@ -172,6 +172,16 @@ public interface TxnLifecycleManager{
      */
     void rollback(long txnId) throws IOException;
 
+    /**
+     * Tell the manager that a read-only transaction has been committed or rolled back.
+     * <p/>
+     * Read-only transactions don't go through {@link #commit(long)} or {@link #rollback(long)}, but the
+     * manager may still be keeping track of them while they are active.
+     *
+     * @param txn the read-only transaction which ended
+     */
+    void readOnlyTransactionFinished(Txn txn);
+
     /**
      * "Chains" a new transaction to the old one.
      * <p/>
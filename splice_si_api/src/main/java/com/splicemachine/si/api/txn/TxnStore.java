@@ -38,6 +38,17 @@ public interface TxnStore extends TxnSupplier{
 
     boolean keepAlive(long txnId) throws IOException;
 
+    /**
+     * Keep alive a group of transactions at once. A transaction which has already timed out does not
+     * cause the call to fail; instead, it is marked in {@code timedOut}.
+     *
+     * @param txnIds the ids of the transactions to keep alive
+     * @param timedOut set to true for each transaction which has already timed out, and so must be rolled back
+     * @return for each transaction, true if keep alives should continue (e.g. the transaction is still active)
+     * @throws IOException if the keep alives could not be performed
+     */
+    boolean[] keepAlive(long[] txnIds,boolean[] timedOut) throws IOException;
+
     void elevateTransaction(Txn txn,byte[] newDestinationTable) throws IOException;
 
     /**
@@ -43,6 +43,18 @@ public interface TxnSupplier {
 		 */
 		TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException;
 
+		/**
+		 * Get the transactions associated with each of {@code txnIds}.
+		 *
+		 * Functionally equivalent to calling {@link #getTransaction(long)} for each
+		 * id, but a supplier which must go over the network to find a transaction
+		 * will fetch all of those it is missing at once.
+		 *
+		 * @param txnIds the transaction ids to fetch.
+		 * @return the transactions, in the same order as {@code txnIds}
+		 */
+		TxnView[] getTransactions(long[] txnIds) throws IOException;
+
 		/**
 		 * Determines whether this Store has the transaction in its local cache
 		 * or not.
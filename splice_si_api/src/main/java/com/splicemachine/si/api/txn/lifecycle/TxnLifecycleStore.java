@@ -36,8 +36,26 @@ public interface TxnLifecycleStore{
 
     boolean keepAlive(long txnId) throws IOException;
 
+    /**
+     * Keep alive several transactions at once. A transaction which has already timed out
+     * is recorded in {@code timedOut}, and does not prevent the others from being kept alive.
+     *
+     * @param txnIds the transactions to keep alive
+     * @param timedOut set to true for each transaction which has already timed out
+     * @return for each transaction, true if keep alives should continue
+     * @throws IOException if something goes wrong
+     */
+    boolean[] keepAlive(long[] txnIds,boolean[] timedOut) throws IOException;
+
     TxnMessage.Txn getTransaction(long txnId) throws IOException;
 
+    /**
+     * @param txnIds the transactions to fetch
+     * @return the transactions, in the same order as {@code txnIds}
+     * @throws IOException if something goes wrong
+     */
+    TxnMessage.Txn[] getTransactions(long[] txnIds) throws IOException;
+
     long[] getActiveTransactionIds(byte[] destTable, long startId, long endId) throws IOException;
 
     Source<TxnMessage.Txn> getActiveTransactions(byte[] destTable, long startId, long endId) throws IOException;
@@ -18,6 +18,8 @@ package com.splicemachine.si.impl;
 import com.splicemachine.annotations.ThreadSafe;
 import com.splicemachine.si.api.data.ExceptionFactory;
 import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
+import com.splicemachine.si.impl.txn.ActiveTxnTracker;
 import com.splicemachine.si.impl.txn.ReadOnlyTxn;
 import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.timestamp.api.TimestampSource;
@@ -40,6 +42,8 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
     @ThreadSafe private TxnStore store;
     @ThreadSafe private KeepAliveScheduler keepAliveScheduler;
     @ThreadSafe private final ExceptionFactory exceptionFactory;
+    @ThreadSafe private SharedActiveTxnCache activeTxnCache;
+    @ThreadSafe private final ActiveTxnTracker activeTxns=new ActiveTxnTracker();
 
     private volatile boolean restoreMode=false;
 
@@ -57,6 +61,17 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
         this.keepAliveScheduler = kas;
     }
 
+    public void setActiveTxnCache(SharedActiveTxnCache activeTxnCache){
+        this.activeTxnCache = activeTxnCache;
+    }
+
+    /**
+     * @return the top-level transactions which were begun here, and are still active
+     */
+    public ActiveTxnTracker getActiveTxnTracker(){
+        return activeTxns;
+    }
+
     @Override
     public Txn beginTransaction() throws IOException{
         return beginTransaction(Txn.ROOT_TRANSACTION.getIsolationLevel());
@@ -103,8 +118,19 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
         if(parentTxn.getState()!=Txn.State.ACTIVE)
             throw exceptionFactory.doNotRetry("Cannot create a child of an inactive transaction. Parent: "+parentTxn);
         if(destinationTable!=null){
-            long timestamp=timestampSource.nextTimestamp();
-            return createWritableTransaction(timestamp,isolationLevel,additive,parentTxn,destinationTable);
+            if(!Txn.ROOT_TRANSACTION.equals(parentTxn)){
+                long timestamp=timestampSource.nextTimestamp();
+                return createWritableTransaction(timestamp,isolationLevel,additive,parentTxn,destinationTable);
+            }
+            ActiveTxnTracker.Registration registration=activeTxns.register();
+            Txn txn=null;
+            try{
+                long timestamp=timestampSource.nextTimestamp();
+                txn=createWritableTransaction(timestamp,isolationLevel,additive,parentTxn,destinationTable);
+                return txn;
+            }finally{
+                registration.begun(txn);
+            }
         }else
             return createReadableTransaction(isolationLevel,additive,parentTxn);
     }
@@ -134,17 +160,26 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
              */
             throw exceptionFactory.doNotRetry("Cannot chain a read-only parent transaction from a read-only transaction. Elevate the transaction("+txnToCommit.getTxnId()+") first");
         }
-        txnToCommit.commit();
-        long oldTs=txnToCommit.getCommitTimestamp();
-
-        if(destinationTable!=null)
-            return createWritableTransaction(oldTs,isolationLevel,additive,parentTxn,destinationTable);
-        else{
-            if(parentTxn.equals(Txn.ROOT_TRANSACTION)){
-                return ReadOnlyTxn.createReadOnlyParentTransaction(oldTs,oldTs,isolationLevel,this,exceptionFactory,additive);
-            }else{
-                return ReadOnlyTxn.createReadOnlyTransaction(oldTs,parentTxn,oldTs,isolationLevel,additive,this,exceptionFactory);
+        //the new transaction begins at the commit timestamp, so it must be registered before we commit
+        ActiveTxnTracker.Registration registration=Txn.ROOT_TRANSACTION.equals(parentTxn)?activeTxns.register():null;
+        Txn txn=null;
+        try{
+            txnToCommit.commit();
+            long oldTs=txnToCommit.getCommitTimestamp();
+
+            if(destinationTable!=null)
+                txn=createWritableTransaction(oldTs,isolationLevel,additive,parentTxn,destinationTable);
+            else{
+                if(parentTxn.equals(Txn.ROOT_TRANSACTION)){
+                    txn=ReadOnlyTxn.createReadOnlyParentTransaction(oldTs,oldTs,isolationLevel,this,exceptionFactory,additive);
+                }else{
+                    txn=ReadOnlyTxn.createReadOnlyTransaction(oldTs,parentTxn,oldTs,isolationLevel,additive,this,exceptionFactory);
+                }
             }
+            return txn;
+        }finally{
+            if(registration!=null)
+                registration.begun(txn);
         }
     }
 
@@ -161,6 +196,8 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
             Txn writableTxn=new WritableTxn(txn,this,destinationTable,exceptionFactory);
             store.recordNewTransaction(writableTxn);
             keepAliveScheduler.scheduleKeepAlive(writableTxn);
+            if(Txn.ROOT_TRANSACTION.equals(writableTxn.getParentTxnView()))
+                activeTxns.elevated(txn,writableTxn);
             txn=writableTxn;
         }else
             store.elevateTransaction(txn,destinationTable);
@@ -170,23 +207,39 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
     @Override
     public long commit(long txnId) throws IOException{
         if(restoreMode){
+            activeTxns.finished(txnId);
             return -1; // we are in restore mode, don't try to access the store
         }
-        return store.commit(txnId);
-        //TODO -sf- add the transaction to the global cache?
+        long commitTs = store.commit(txnId);
+        activeTxns.finished(txnId);
+        invalidateCachedTxn(txnId);
+        return commitTs;
     }
 
     @Override
     public void rollback(long txnId) throws IOException{
         if(restoreMode){
+            activeTxns.finished(txnId);
             return; // we are in restore mode, don't try to access the store
         }
         store.rollback(txnId);
-        //TODO -sf- add the transaction to the global cache?
+        activeTxns.finished(txnId);
+        invalidateCachedTxn(txnId);
+    }
+
+    @Override
+    public void readOnlyTransactionFinished(Txn txn){
+        if(Txn.ROOT_TRANSACTION.equals(txn.getParentTxnView()))
+            activeTxns.finished(txn);
     }
 
     /**********************************************************************************************************/
         /*private helper method*/
+    private void invalidateCachedTxn(long txnId){
+        if(activeTxnCache!=null)
+            activeTxnCache.invalidate(txnId);
+    }
+
     private Txn createWritableTransaction(long timestamp,
                                           Txn.IsolationLevel isolationLevel,
                                           boolean additive,
@@ -226,8 +279,15 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
 		 *
 		 */
         if(parentTxn.equals(Txn.ROOT_TRANSACTION)){
-            long beginTimestamp=timestampSource.nextTimestamp();
-            return ReadOnlyTxn.createReadOnlyParentTransaction(beginTimestamp,beginTimestamp,isolationLevel,this,exceptionFactory,additive);
+            ActiveTxnTracker.Registration registration=activeTxns.register();
+            Txn txn=null;
+            try{
+                long beginTimestamp=timestampSource.nextTimestamp();
+                txn=ReadOnlyTxn.createReadOnlyParentTransaction(beginTimestamp,beginTimestamp,isolationLevel,this,exceptionFactory,additive);
+                return txn;
+            }finally{
+                registration.begun(txn);
+            }
         }else{
             return ReadOnlyTxn.createReadOnlyChildTransaction(parentTxn,this,additive,exceptionFactory);
         }
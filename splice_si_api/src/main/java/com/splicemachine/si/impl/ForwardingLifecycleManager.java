@@ -110,6 +110,11 @@ public class ForwardingLifecycleManager implements TxnLifecycleManager{
 				lifecycleManager.rollback(txnId);
 		}
 
+		@Override
+		public void readOnlyTransactionFinished(Txn txn) {
+				lifecycleManager.readOnlyTransactionFinished(txn);
+		}
+
 
 		protected void afterStart(Txn txn){
 				//no-op by default
@@ -23,6 +23,7 @@ import com.splicemachine.si.api.readresolve.ReadResolver;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.si.impl.txn.CommittedTxn;
 import com.splicemachine.storage.CellType;
 import com.splicemachine.storage.DataCell;
@@ -61,13 +62,28 @@ public class SimpleTxnFilter implements TxnFilter{
      */
     private TxnView currentTxn;
 
-    @SuppressWarnings("unchecked")
     public SimpleTxnFilter(String tableName,
                            TxnView myTxn,
                            ReadResolver readResolver,
                            TxnSupplier baseSupplier){
+        this(tableName,myTxn,readResolver,baseSupplier,null);
+    }
+
+    /**
+     * @param activeTxnCache the server-wide transaction cache to share with other filters, or {@code null}
+     *                       if this filter should keep its own private cache of active transactions.
+     */
+    @SuppressWarnings("unchecked")
+    public SimpleTxnFilter(String tableName,
+                           TxnView myTxn,
+                           ReadResolver readResolver,
+                           TxnSupplier baseSupplier,
+                           SharedActiveTxnCache activeTxnCache){
         assert readResolver!=null;
-        this.transactionStore = new ActiveTxnCacheSupplier(baseSupplier,1024); //TODO -sf- configure
+        if(activeTxnCache!=null)
+            this.transactionStore = activeTxnCache.newReader(baseSupplier);
+        else
+            this.transactionStore = new ActiveTxnCacheSupplier(baseSupplier,1024);
         this.tableName=tableName;
         this.myTxn=myTxn;
         this.readResolver=readResolver;
@@ -130,6 +146,12 @@ public class SimpleTxnFilter implements TxnFilter{
         return false;
     }
 
+    @Override
+    public void prefetchTransactions(long[] txnIds) throws IOException{
+        //the transaction store caches what it fetches, so later lookups of these transactions are cheap
+        transactionStore.getTransactions(txnIds);
+    }
+
 
     private void readResolve(DataCell element) throws IOException{
         /*
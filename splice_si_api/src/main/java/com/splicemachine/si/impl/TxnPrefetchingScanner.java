@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.carrotsearch.hppc.LongOpenHashSet;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.si.api.filter.TxnFilter;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scanner which reads rows ahead of its caller in blocks. Before the first row of a block is returned,
+ * the transactions which wrote cells in the block without a commit timestamp are looked up through the
+ * transaction filter all at once, so that filtering those rows finds them already cached instead of looking
+ * them up one at a time.
+ * <p/>
+ * This class is <em>not</em> thread-safe.
+ */
+public class TxnPrefetchingScanner implements DataScanner{
+    private final DataScanner delegate;
+    private final TxnFilter txnFilter;
+    private final int blockSize;
+    private final List<List<DataCell>> block;
+    private final LongOpenHashSet committedTxnIds=new LongOpenHashSet();
+    private final LongOpenHashSet unresolvedTxnIds=new LongOpenHashSet();
+    private int position;
+    private boolean exhausted;
+
+    /**
+     * @param delegate the scanner to read rows from
+     * @param txnFilter the filter which the rows will be given to, and which caches the transactions it is given
+     * @param blockSize the number of rows to read ahead
+     */
+    public TxnPrefetchingScanner(DataScanner delegate,TxnFilter txnFilter,int blockSize){
+        assert blockSize>0:"Cannot prefetch less than one row";
+        this.delegate=delegate;
+        this.txnFilter=txnFilter;
+        this.blockSize=blockSize;
+        this.block=new ArrayList<>(blockSize);
+    }
+
+    @Override
+    @Nonnull
+    public List<DataCell> next(int limit) throws IOException{
+        if(position>=block.size() && !readBlock(limit))
+            return Collections.emptyList();
+        return block.get(position++);
+    }
+
+    @Override public TimeView getReadTime(){ return delegate.getReadTime(); }
+    @Override public long getBytesOutput(){ return delegate.getBytesOutput(); }
+    @Override public long getRowsFiltered(){ return delegate.getRowsFiltered(); }
+    @Override public long getRowsVisited(){ return delegate.getRowsVisited(); }
+    @Override public Partition getPartition(){ return delegate.getPartition(); }
+
+    @Override
+    public void close() throws IOException{
+        block.clear();
+        delegate.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private boolean readBlock(int limit) throws IOException{
+        block.clear();
+        position=0;
+        if(exhausted) return false;
+        unresolvedTxnIds.clear();
+        while(block.size()<blockSize){
+            List<DataCell> row=delegate.next(limit);
+            if(row.size()<=0){
+                exhausted=true;
+                break;
+            }
+            //the delegate may reuse its cells, so we have to hold on to copies
+            List<DataCell> copy=new ArrayList<>(row.size());
+            committedTxnIds.clear();
+            for(DataCell cell : row){
+                DataCell clone=cell.getClone();
+                copy.add(clone);
+                if(clone.dataType()==CellType.COMMIT_TIMESTAMP)
+                    committedTxnIds.add(clone.version());
+            }
+            for(DataCell cell : copy){
+                switch(cell.dataType()){
+                    case USER_DATA:
+                    case TOMBSTONE:
+                    case ANTI_TOMBSTONE:
+                        //versions with a commit timestamp are resolved without looking up the transaction
+                        if(!committedTxnIds.contains(cell.version()))
+                            unresolvedTxnIds.add(cell.version());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            block.add(copy);
+        }
+        if(unresolvedTxnIds.size()>0)
+            txnFilter.prefetchTransactions(unresolvedTxnIds.toArray());
+        return block.size()>0;
+    }
+}
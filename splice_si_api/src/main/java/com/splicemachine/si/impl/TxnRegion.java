@@ -27,6 +27,7 @@ import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.storage.*;
 import com.splicemachine.utils.ByteSlice;
 import org.spark_project.guava.collect.Iterators;
@@ -46,6 +47,7 @@ public class TxnRegion<InternalScanner> implements TransactionalRegion<InternalS
     private final TxnSupplier txnSupplier;
     private final Transactor transactor;
     private final TxnOperationFactory opFactory;
+    private final SharedActiveTxnCache activeTxnCache;
     private Partition region;
     private String tableName;
 
@@ -55,7 +57,17 @@ public class TxnRegion<InternalScanner> implements TransactionalRegion<InternalS
                      ReadResolver readResolver,
                      TxnSupplier txnSupplier,
                      Transactor transactor,TxnOperationFactory opFactory){
+        this(region,rollForward,readResolver,txnSupplier,transactor,opFactory,null);
+    }
+
+    public TxnRegion(Partition region,
+                     RollForward rollForward,
+                     ReadResolver readResolver,
+                     TxnSupplier txnSupplier,
+                     Transactor transactor,TxnOperationFactory opFactory,
+                     SharedActiveTxnCache activeTxnCache){
         this.region=region;
+        this.activeTxnCache=activeTxnCache;
         this.rollForward=rollForward;
         this.readResolver=readResolver;
         this.txnSupplier=txnSupplier;
@@ -68,7 +80,7 @@ public class TxnRegion<InternalScanner> implements TransactionalRegion<InternalS
 
     @Override
     public TxnFilter unpackedFilter(TxnView txn) throws IOException{
-        return new SimpleTxnFilter(tableName,txn,readResolver,txnSupplier);
+        return new SimpleTxnFilter(tableName,txn,readResolver,txnSupplier,activeTxnCache);
     }
 
     @Override
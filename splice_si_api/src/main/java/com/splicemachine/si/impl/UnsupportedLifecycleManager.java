@@ -80,6 +80,11 @@ public class UnsupportedLifecycleManager implements TxnLifecycleManager {
 				throw new UnsupportedOperationException("Cannot rollback a transaction from the UnsupportedLifecycle Manager. Use a real Lifecycle manager instead");
 		}
 
+		@Override
+		public void readOnlyTransactionFinished(Txn txn) {
+				//nothing was begun here, so there is nothing to forget
+		}
+
 		@Override
 		public Txn chainTransaction(TxnView parentTxn, Txn.IsolationLevel isolationLevel, boolean additive, byte[] destinationTable, Txn txnToCommit) throws IOException {
 				throw new UnsupportedOperationException("Cannot chain a transaction from the UnsupportedLifecycle Manager. Use a real Lifecycle manager instead");
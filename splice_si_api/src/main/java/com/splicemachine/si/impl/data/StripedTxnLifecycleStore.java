@@ -16,6 +16,7 @@
 package com.splicemachine.si.impl.data;
 
 import com.splicemachine.concurrent.LongStripedSynchronizer;
+import com.splicemachine.si.api.txn.lifecycle.TransactionTimeoutException;
 import com.splicemachine.si.api.txn.lifecycle.TxnLifecycleStore;
 import com.splicemachine.access.api.ServerControl;
 import com.splicemachine.si.api.txn.Txn;
@@ -146,6 +147,20 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
         }
     }
 
+    @Override
+    public boolean[] keepAlive(long[] txnIds,boolean[] timedOut) throws IOException{
+        boolean[] keepGoing=new boolean[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            try{
+                keepGoing[i]=keepAlive(txnIds[i]);
+            }catch(IOException ioe){
+                if(!(ioe instanceof TransactionTimeoutException)) throw ioe;
+                timedOut[i]=true;
+            }
+        }
+        return keepGoing;
+    }
+
 
     @Override
     public TxnMessage.Txn getTransaction(long txnId) throws IOException{
@@ -162,6 +177,16 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
         }
     }
 
+    @Override
+    public TxnMessage.Txn[] getTransactions(long[] txnIds) throws IOException{
+        //each transaction is read under its own lock, so that we never hold more than one stripe at a time
+        TxnMessage.Txn[] txns=new TxnMessage.Txn[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     @Override
     public long[] getActiveTransactionIds(byte[] destTable,long startId,long endId) throws IOException{
         if(endId<0)
@@ -40,7 +40,10 @@ import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
 import com.splicemachine.si.impl.server.SITransactor;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
 import com.splicemachine.si.impl.txn.SITransactionReadController;
+import com.splicemachine.si.impl.txn.TxnLowWatermark;
+import com.splicemachine.si.jmx.ManagedTransactor;
 import com.splicemachine.storage.DataFilterFactory;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.PartitionInfoCache;
@@ -48,6 +51,14 @@ import com.splicemachine.timestamp.api.TimestampSource;
 import com.splicemachine.utils.GreenLight;
 import org.apache.log4j.Logger;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class SIDriver {
     private static final Logger LOG = Logger.getLogger("splice.uncaught");
 
@@ -89,6 +100,10 @@ public class SIDriver {
     private final OperationFactory baseOpFactory;
     private final PartitionInfoCache partitionInfoCache;
     private final SnowflakeFactory snowflakeFactory;
+    private final SharedActiveTxnCache activeTxnCache;
+    private final TxnLowWatermark txnLowWatermark;
+    private final ManagedTransactor transactorStatus;
+    private final AtomicBoolean jmxRegistered = new AtomicBoolean(false);
     private final SIEnvironment env;
 
     public SIDriver(SIEnvironment env){
@@ -105,6 +120,7 @@ public class SIDriver {
         this.clock = env.systemClock();
         this.partitionInfoCache = env.partitionInfoCache();
         this.snowflakeFactory = env.snowflakeFactory();
+        this.activeTxnCache = initializeActiveTxnCache(config,clock);
 
         //noinspection unchecked
         this.transactor = new SITransactor(
@@ -116,8 +132,19 @@ public class SIDriver {
         ClientTxnLifecycleManager clientTxnLifecycleManager=new ClientTxnLifecycleManager(this.timestampSource,env.exceptionFactory());
         clientTxnLifecycleManager.setTxnStore(this.txnStore);
         clientTxnLifecycleManager.setKeepAliveScheduler(env.keepAliveScheduler());
+        clientTxnLifecycleManager.setActiveTxnCache(activeTxnCache);
         this.lifecycleManager =clientTxnLifecycleManager;
-        readController = new SITransactionReadController(txnSupplier);
+        this.txnLowWatermark = new TxnLowWatermark(txnStore,
+                timestampSource,
+                clientTxnLifecycleManager.getActiveTxnTracker(),
+                env.activeTxnRegistry(),
+                config.getTxnLowWatermarkRefreshInterval());
+        this.txnLowWatermark.start();
+        readController = new SITransactionReadController(txnSupplier,activeTxnCache);
+        this.transactorStatus = new ManagedTransactor();
+        this.transactorStatus.setTransactor(transactor);
+        this.transactorStatus.setActiveTxnCache(activeTxnCache);
+        this.transactorStatus.setTxnLowWatermark(txnLowWatermark);
         readResolver = initializedReadResolver(config,env.keyedReadResolver());
         this.fileSystem = env.fileSystem();
         this.baseOpFactory = env.baseOperationFactory();
@@ -156,6 +183,29 @@ public class SIDriver {
         return txnSupplier;
     }
 
+    /**
+     * @return the transaction cache shared by all transactional reads on this server, or {@code null}
+     * if each read keeps its own cache.
+     */
+    public SharedActiveTxnCache getActiveTxnCache(){
+        return activeTxnCache;
+    }
+
+    /**
+     * @return the timestamp before which committed versions are visible to every transaction, and so
+     * may be used to discard the versions that they hide.
+     */
+    public TxnLowWatermark getTxnLowWatermark(){
+        return txnLowWatermark;
+    }
+
+    public void registerJMX(MBeanServer mbs) throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException{
+        if(jmxRegistered.compareAndSet(false,true)){
+            ObjectName transactorName=new ObjectName("com.splicemachine.txn:type=TransactorStatus");
+            mbs.registerMBean(transactorStatus,transactorName);
+        }
+    }
+
     public OperationStatusFactory getOperationStatusLib() {
         return operationStatusFactory;
     }
@@ -203,14 +253,16 @@ public class SIDriver {
                     getReadResolver(basePartition),
                     getTxnSupplier(),
                     getTransactor(),
-                    getOperationFactory());
+                    getOperationFactory(),
+                    getActiveTxnCache());
         }else{
             return new TxnRegion(basePartition,
                     NoopRollForward.INSTANCE,
                     NoOpReadResolver.INSTANCE,
                     getTxnSupplier(),
                     getTransactor(),
-                    getOperationFactory());
+                    getOperationFactory(),
+                    getActiveTxnCache());
         }
     }
 
@@ -234,6 +286,12 @@ public class SIDriver {
 
     /* ****************************************************************************************************************/
     /*private helper methods*/
+    private static SharedActiveTxnCache initializeActiveTxnCache(SConfiguration config,Clock clock){
+        int maxSize = config.getSharedActiveTxnCacheSize();
+        if(maxSize<=0) return null;
+        return new SharedActiveTxnCache(maxSize,config.getSharedActiveTxnCacheTtl(),clock);
+    }
+
     private AsyncReadResolver initializedReadResolver(SConfiguration config,KeyedReadResolver keyedResolver){
         int maxThreads = config.getReadResolverThreads();
         int bufferSize = config.getReadResolverQueueSize();
@@ -23,6 +23,7 @@ import com.splicemachine.concurrent.Clock;
 import com.splicemachine.si.api.data.*;
 import com.splicemachine.si.api.readresolve.KeyedReadResolver;
 import com.splicemachine.si.api.readresolve.RollForward;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
 import com.splicemachine.si.api.txn.KeepAliveScheduler;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -85,4 +86,9 @@ public interface SIEnvironment{
 
     SnowflakeFactory snowflakeFactory();
 
+    /**
+     * @return the registry through which servers share their oldest active transactions
+     */
+    ActiveTxnRegistry activeTxnRegistry();
+
 }
@@ -123,4 +123,9 @@ public class PackedTxnFilter implements TxnFilter, SIFilter{
         excludeRow=false;
     }
 
+    @Override
+    public void prefetchTransactions(long[] txnIds) throws IOException{
+        simpleFilter.prefetchTransactions(txnIds);
+    }
+
 }
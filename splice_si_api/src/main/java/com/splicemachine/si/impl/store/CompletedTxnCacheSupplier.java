@@ -15,7 +15,7 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.carrotsearch.hppc.LongArrayList;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
@@ -28,27 +28,40 @@ import java.util.concurrent.atomic.AtomicLong;
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * Transactions are held in a {@link PackedCompletedTxnCache}, so the memory used by the cache is fixed
+ * by {@code maxSize}, and lookups neither lock nor box the transaction id.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
 public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+    private final PackedCompletedTxnCache cache;
     private final TxnSupplier delegate;
     private final AtomicLong hits=new AtomicLong();
     private final AtomicLong requests=new AtomicLong();
+    private final AtomicLong evictions=new AtomicLong();
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        this.cache=new PackedCompletedTxnCache(maxSize,concurrencyLevel);
         this.delegate=delegate;
     }
 
     public int getMaxSize(){
-        return cache.size();
+        return cache.capacity();
+    }
+
+    public long getHits(){
+        return hits.get();
+    }
+
+    public long getRequests(){
+        return requests.get();
+    }
+
+    public long getEvictions(){
+        return evictions.get();
     }
 
     @Override
@@ -64,10 +77,13 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
         requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
-        if(txn!=null){
-            hits.incrementAndGet();
-            return txn;
+        if(!getDestinationTables){
+            //we don't keep destination tables around, so we have to go to the delegate if we need them
+            TxnView txn=cache.get(txnId,this);
+            if(txn!=null){
+                hits.incrementAndGet();
+                return txn;
+            }
         }
         //bummer, we aren't in the cache, need to check the delegate
         TxnView transaction=delegate.getTransaction(txnId,getDestinationTables);
@@ -77,28 +93,68 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         switch(transaction.getEffectiveState()){
             case COMMITTED:
             case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                put(transaction); // Cache for Future Use
         }
         return transaction;
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        LongArrayList missing=null;
+        requests.addAndGet(txnIds.length);
+        for(int i=0;i<txnIds.length;i++){
+            if(txnIds[i]==-1)
+                txns[i]=Txn.ROOT_TRANSACTION;
+            else
+                txns[i]=cache.get(txnIds[i],this);
+            if(txns[i]==null){
+                if(missing==null)
+                    missing=new LongArrayList();
+                missing.add(txnIds[i]);
+            }
+        }
+        if(missing==null){
+            hits.addAndGet(txnIds.length);
+            return txns;
+        }
+        hits.addAndGet(txnIds.length-missing.size());
+
+        TxnView[] fetched=delegate.getTransactions(missing.toArray());
+        for(int i=0,j=0;i<txns.length;i++){
+            if(txns[i]!=null) continue;
+            TxnView txn=fetched[j++];
+            txns[i]=txn;
+            if(txn!=null && txn.getEffectiveState().isFinal())
+                put(txn);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        return cache.contains(txnId);
     }
 
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        put(toCache);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
         requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
+        TxnView txn=cache.getIfPresent(txnId);
         if(txn!=null)
             hits.incrementAndGet();
         return txn;
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void put(TxnView txn){
+        if(cache.put(txn))
+            evictions.incrementAndGet();
+    }
 }
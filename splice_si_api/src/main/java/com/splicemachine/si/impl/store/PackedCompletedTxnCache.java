@@ -0,0 +1,297 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size cache of completed transactions, keyed by primitive transaction id.
+ * <p/>
+ * Rather than holding on to {@link TxnView} objects, each transaction is packed into a
+ * fixed number of longs in a single array:
+ * <pre>
+ *     version | txnId | beginTs | parentTxnId | commitTs | globalCommitTs | flags | referenced
+ * </pre>
+ * so the cache costs 64 bytes per entry, regardless of how many transactions it holds, and creates no garbage
+ * as entries are replaced.
+ * <p/>
+ * Next to each slot we keep the {@link TxnView} last materialized from it, so that repeated hits on the same
+ * transaction (and on the parents which its children share) return the same view without unpacking the slot
+ * or rebuilding the parent chain. Since a cached transaction never changes, a view remains valid for as long
+ * as its transaction id matches the slot; it is dropped when the slot is reused.
+ * <p/>
+ * The cache is set-associative: a transaction id hashes to a set of {@link #WAYS} consecutive slots, and can
+ * only be stored in one of those slots. When the set is full, we evict using the CLOCK algorithm: readers set
+ * the referenced bit of the slot that they read, and the writer sweeps the set, clearing referenced bits, until
+ * it finds a slot which has not been referenced since the last sweep.
+ * <p/>
+ * Reads are lock-free: each slot carries a version, which is odd while the slot is being written. A reader
+ * which sees an odd version, or a version which changed while it was reading, treats the slot as a miss.
+ * Writers lock the set that they are writing to.
+ * <p/>
+ * Only completed transactions (whose effective state is either COMMITTED or ROLLEDBACK) may be cached, as
+ * those never change once written. Because the state is unchanging, a transaction is never written twice.
+ * The destination tables of a transaction are <em>not</em> retained.
+ */
+public class PackedCompletedTxnCache{
+    static final int WAYS=8;
+
+    private static final int STRIDE=8;
+    private static final int VERSION=0;
+    private static final int TXN_ID=1;
+    private static final int BEGIN_TS=2;
+    private static final int PARENT_TXN_ID=3;
+    private static final int COMMIT_TS=4;
+    private static final int GLOBAL_COMMIT_TS=5;
+    private static final int FLAGS=6;
+    private static final int REFERENCED=7;
+
+    private static final long OCCUPIED=1l;
+    private static final long COMMITTED=1l<<1;
+    private static final long ADDITIVE=1l<<2;
+    private static final long ALLOWS_WRITES=1l<<3;
+    private static final int ISOLATION_LEVEL_SHIFT=4; //0 means no isolation level
+
+    private final AtomicLongArray slots;
+    private final AtomicReferenceArray<TxnView> views; //indexed by slot rather than by field offset
+    private final int setMask;
+    private final Object[] locks;
+    private final int lockMask;
+    private final int[] clockHands; //guarded by the lock for the set
+
+    /**
+     * @param maxSize the maximum number of transactions to hold. This is rounded up to a power of 2.
+     * @param concurrencyLevel the number of concurrent writers to support. This is rounded up to a power of 2.
+     */
+    public PackedCompletedTxnCache(int maxSize,int concurrencyLevel){
+        int size=WAYS;
+        while(size<maxSize)
+            size<<=1;
+        int numSets=size/WAYS;
+        this.slots=new AtomicLongArray(size*STRIDE);
+        this.views=new AtomicReferenceArray<>(size);
+        this.setMask=numSets-1;
+        this.clockHands=new int[numSets];
+
+        int numLocks=1;
+        while(numLocks<concurrencyLevel && numLocks<numSets)
+            numLocks<<=1;
+        this.locks=new Object[numLocks];
+        for(int i=0;i<numLocks;i++){
+            locks[i]=new Object();
+        }
+        this.lockMask=numLocks-1;
+    }
+
+    /**
+     * @return the maximum number of transactions which this cache can hold.
+     */
+    public int capacity(){
+        return slots.length()/STRIDE;
+    }
+
+    public boolean contains(long txnId){
+        return find(txnId)>=0;
+    }
+
+    /**
+     * Get a transaction from the cache.
+     *
+     * @param txnId the transaction to fetch
+     * @param parentSupplier the supplier to use when looking up the parent of the transaction
+     * @return the transaction, or {@code null} if it is not cached.
+     * @throws IOException if the parent transaction could not be fetched
+     */
+    public TxnView get(long txnId,TxnSupplier parentSupplier) throws IOException{
+        assert parentSupplier!=null;
+        return read(txnId,parentSupplier);
+    }
+
+    /**
+     * Get a transaction from the cache, without going anywhere else to look up its parent.
+     *
+     * @param txnId the transaction to fetch
+     * @return the transaction, or {@code null} if either it or one of its ancestors is not cached.
+     */
+    public TxnView getIfPresent(long txnId){
+        try{
+            return read(txnId,null);
+        }catch(IOException e){
+            throw new IllegalStateException("Unexpected IOException without a parent supplier",e); //we never go remote
+        }
+    }
+
+    /**
+     * Add a completed transaction to the cache, evicting another transaction if necessary.
+     *
+     * @param txn the transaction to cache. Its effective state must be COMMITTED or ROLLEDBACK.
+     * @return {@code true} if another transaction was evicted to make room.
+     */
+    public boolean put(TxnView txn){
+        long txnId=txn.getTxnId();
+        Txn.State state=txn.getState();
+        long flags=OCCUPIED;
+        if(state==Txn.State.COMMITTED) flags|=COMMITTED;
+        else
+            assert state==Txn.State.ROLLEDBACK || txn.getEffectiveState()==Txn.State.ROLLEDBACK:
+                    "Cannot cache active transaction "+txn;
+        if(txn.isAdditive()) flags|=ADDITIVE;
+        if(txn.allowsWrites()) flags|=ALLOWS_WRITES;
+        Txn.IsolationLevel level=txn.getIsolationLevel();
+        if(level!=null) flags|=((long)level.getLevel())<<ISOLATION_LEVEL_SHIFT;
+        long beginTs=txn.getBeginTimestamp();
+        long parentTxnId=txn.getParentTxnId();
+        long commitTs=txn.getCommitTimestamp();
+        long globalCommitTs=txn.getGlobalCommitTimestamp();
+
+        int set=set(txnId);
+        int base=set*WAYS*STRIDE;
+        synchronized(locks[set&lockMask]){
+            int freeSlot=-1;
+            for(int i=0;i<WAYS;i++){
+                int offset=base+i*STRIDE;
+                if((slots.get(offset+FLAGS)&OCCUPIED)==0){
+                    if(freeSlot<0) freeSlot=offset;
+                }else if(slots.get(offset+TXN_ID)==txnId){
+                    return false; //completed transactions never change, so no need to write it again
+                }
+            }
+            boolean evicted=false;
+            if(freeSlot<0){
+                freeSlot=evict(set,base);
+                evicted=true;
+            }
+            long version=slots.get(freeSlot+VERSION);
+            slots.set(freeSlot+VERSION,version+1);
+            views.set(freeSlot/STRIDE,null);
+            slots.set(freeSlot+TXN_ID,txnId);
+            slots.set(freeSlot+BEGIN_TS,beginTs);
+            slots.set(freeSlot+PARENT_TXN_ID,parentTxnId);
+            slots.set(freeSlot+COMMIT_TS,commitTs);
+            slots.set(freeSlot+GLOBAL_COMMIT_TS,globalCommitTs);
+            slots.set(freeSlot+FLAGS,flags);
+            slots.set(freeSlot+REFERENCED,0l);
+            slots.set(freeSlot+VERSION,version+2);
+            return evicted;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int find(long txnId){
+        int base=setOffset(txnId);
+        for(int i=0;i<WAYS;i++){
+            int offset=base+i*STRIDE;
+            long version=slots.get(offset+VERSION);
+            if((version&1l)!=0) continue;
+            boolean matches=slots.get(offset+TXN_ID)==txnId && (slots.get(offset+FLAGS)&OCCUPIED)!=0;
+            if(matches && slots.get(offset+VERSION)==version) return offset;
+        }
+        return -1;
+    }
+
+    /*
+     * Get the view of the slot holding txnId, or return null if the transaction (or, when there is no
+     * parentSupplier, one of its ancestors) isn't present. If the slot has no view yet, we unpack its fields;
+     * a slot which is being written (or which changed while we were unpacking it) counts as absent.
+     */
+    private TxnView read(long txnId,TxnSupplier parentSupplier) throws IOException{
+        int base=setOffset(txnId);
+        for(int i=0;i<WAYS;i++){
+            int offset=base+i*STRIDE;
+            long version=slots.get(offset+VERSION);
+            if((version&1l)!=0) continue;
+            if(slots.get(offset+TXN_ID)!=txnId) continue;
+            int slot=offset/STRIDE;
+            TxnView view=views.get(slot);
+            if(view==null || view.getTxnId()!=txnId){
+                long beginTs=slots.get(offset+BEGIN_TS);
+                long parentTxnId=slots.get(offset+PARENT_TXN_ID);
+                long commitTs=slots.get(offset+COMMIT_TS);
+                long globalCommitTs=slots.get(offset+GLOBAL_COMMIT_TS);
+                long flags=slots.get(offset+FLAGS);
+                if((flags&OCCUPIED)==0 || slots.get(offset+TXN_ID)!=txnId) continue;
+                if(slots.get(offset+VERSION)!=version) continue;
+
+                TxnView parent;
+                if(parentTxnId==Txn.ROOT_TRANSACTION.getTxnId()) parent=Txn.ROOT_TRANSACTION;
+                else if(parentSupplier==null) parent=getIfPresent(parentTxnId);
+                else parent=parentSupplier.getTransaction(parentTxnId);
+                if(parent==null) return null;
+                view=toTxn(txnId,beginTs,commitTs,globalCommitTs,flags,parent);
+                /*
+                 * If the slot was reused in the meantime, this puts a view of the wrong transaction there, which
+                 * is harmless: whoever reads the slot next sees that the transaction ids don't match.
+                 */
+                views.lazySet(slot,view);
+            }
+
+            slots.lazySet(offset+REFERENCED,1l);
+            return view;
+        }
+        return null;
+    }
+
+    private static TxnView toTxn(long txnId,long beginTs,long commitTs,long globalCommitTs,long flags,TxnView parent){
+        int isolationLevel=(int)(flags>>>ISOLATION_LEVEL_SHIFT);
+        return new InheritingTxnView(parent,txnId,beginTs,
+                isolationLevel==0?null:Txn.IsolationLevel.fromInt(isolationLevel),
+                true,(flags&ADDITIVE)!=0,
+                true,(flags&ALLOWS_WRITES)!=0,
+                commitTs,globalCommitTs,
+                (flags&COMMITTED)!=0?Txn.State.COMMITTED:Txn.State.ROLLEDBACK);
+    }
+
+    /*
+     * Sweep the clock hand around the set until we find a slot which hasn't been referenced
+     * since the last time we passed it. Must be called while holding the lock for the set.
+     */
+    private int evict(int set,int base){
+        int hand=clockHands[set];
+        while(true){
+            int offset=base+hand*STRIDE;
+            hand=(hand+1)&(WAYS-1);
+            if(slots.get(offset+REFERENCED)!=0){
+                slots.set(offset+REFERENCED,0l);
+            }else{
+                clockHands[set]=hand;
+                return offset;
+            }
+        }
+    }
+
+    private int setOffset(long txnId){
+        return set(txnId)*WAYS*STRIDE;
+    }
+
+    private int set(long txnId){
+        //the finalization step of murmur3, so that sequential ids spread over all the sets
+        long h=txnId;
+        h^=h>>>33;
+        h*=0xff51afd7ed558ccdL;
+        h^=h>>>33;
+        h*=0xc4ceb9fe1a85ec53L;
+        h^=h>>>33;
+        return (int)h&setMask;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A server-wide cache of transactions, which is shared by all the transactional filters on the server.
+ * <p/>
+ * Completed transactions never change, so they can be handed to anyone. An active transaction, on the other
+ * hand, may commit at any point after we looked it up, so an active entry is only handed to readers which
+ * started <em>before</em> the entry was looked up; such a reader could not have seen the commit anyway. This gives
+ * us the same visibility that a per-scanner cache would, while allowing concurrent scans to share lookups.
+ * <p/>
+ * Entries are further bounded by a (short) time-to-live, and by a maximum number of entries (evicting in LRU order).
+ * When this server commits or rolls back a transaction, we are told to {@link #invalidate(long)} it.
+ * <p/>
+ * This class is thread-safe, and safe to be shared between many threads.
+ */
+public class SharedActiveTxnCache{
+    private final ConcurrentLinkedHashMap<Long, Entry> cache;
+    private final Clock clock;
+    private final long ttlNanos;
+
+    private final AtomicLong hits=new AtomicLong();
+    private final AtomicLong misses=new AtomicLong();
+    private final AtomicLong evictions=new AtomicLong();
+    private final AtomicLong invalidations=new AtomicLong();
+
+    public SharedActiveTxnCache(int maxSize,long ttlMillis,Clock clock){
+        this.cache=new ConcurrentLinkedHashMap.Builder<Long, Entry>()
+                .maximumWeightedCapacity(maxSize)
+                .listener(new EvictionListener<Long, Entry>(){
+                    @Override
+                    public void onEviction(Long key,Entry value){
+                        evictions.incrementAndGet();
+                    }
+                })
+                .build();
+        this.clock=clock;
+        this.ttlNanos=TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Create a supplier for a single reader (i.e. a single filter), which begins now.
+     *
+     * @param delegate the supplier to use when the transaction is not cached.
+     * @return a supplier which uses this cache to serve requests
+     */
+    public TxnSupplier newReader(TxnSupplier delegate){
+        return new SharedActiveTxnCacheSupplier(this,delegate,currentTime());
+    }
+
+    /**
+     * @param txnId the transaction to fetch
+     * @param readerStart the time at which the reader started (as returned by {@link #currentTime()})
+     * @return the cached transaction, or {@code null} if it is not cached, or if the cached entry
+     * is not valid for a reader which started at {@code readerStart}.
+     */
+    public TxnView get(long txnId,long readerStart){
+        TxnView txn=getIfPresent(txnId,readerStart);
+        if(txn!=null)
+            hits.incrementAndGet();
+        else
+            misses.incrementAndGet();
+        return txn;
+    }
+
+    /**
+     * Same as {@link #get(long, long)}, but does not record a hit or a miss.
+     */
+    public TxnView getIfPresent(long txnId,long readerStart){
+        Entry entry=cache.get(txnId);
+        if(entry==null) return null;
+        if(clock.nanoTime()-entry.observedAt>ttlNanos){
+            if(cache.remove(txnId,entry))
+                evictions.incrementAndGet();
+            return null;
+        }
+        if(entry.completed || entry.observedAt>=readerStart)
+            return entry.txn;
+        return null;
+    }
+
+    /**
+     * @param txn the transaction to cache
+     * @param observedAt the time at which the state of {@code txn} was looked up (as returned by {@link #currentTime()}).
+     *                   It is always safe to pass a time from before the lookup began.
+     */
+    public void put(TxnView txn,long observedAt){
+        Entry entry=new Entry(txn,observedAt);
+        Long txnId=txn.getTxnId();
+        while(true){
+            Entry existing=cache.putIfAbsent(txnId,entry);
+            if(existing==null) return;
+            //never replace a better entry with a worse one
+            if(existing.completed || (!entry.completed && existing.observedAt>=observedAt)) return;
+            if(cache.replace(txnId,existing,entry)) return;
+        }
+    }
+
+    /**
+     * Remove the transaction from the cache, because it has changed state.
+     *
+     * @param txnId the transaction which has been committed or rolled back.
+     */
+    public void invalidate(long txnId){
+        if(cache.remove(txnId)!=null)
+            invalidations.incrementAndGet();
+    }
+
+    public long currentTime(){
+        return clock.nanoTime();
+    }
+
+    public int size(){
+        return cache.size();
+    }
+
+    public long getHits(){
+        return hits.get();
+    }
+
+    public long getMisses(){
+        return misses.get();
+    }
+
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    public long getInvalidations(){
+        return invalidations.get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class Entry{
+        private final TxnView txn;
+        private final long observedAt;
+        private final boolean completed;
+
+        Entry(TxnView txn,long observedAt){
+            this.txn=txn;
+            this.observedAt=observedAt;
+            Txn.State state=txn.getEffectiveState();
+            this.completed=state==Txn.State.COMMITTED || state==Txn.State.ROLLEDBACK;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.io.IOException;
+
+/**
+ * The view of a {@link SharedActiveTxnCache} for a single reader. Use
+ * {@link SharedActiveTxnCache#newReader(TxnSupplier)} to construct one.
+ * <p/>
+ * This class is <em>not</em> thread-safe, and should be used by a single filter.
+ */
+public class SharedActiveTxnCacheSupplier implements TxnSupplier{
+    private final SharedActiveTxnCache cache;
+    private final TxnSupplier delegate;
+    private final long readerStart;
+
+    SharedActiveTxnCacheSupplier(SharedActiveTxnCache cache,TxnSupplier delegate,long readerStart){
+        this.cache=cache;
+        this.delegate=delegate;
+        this.readerStart=readerStart;
+    }
+
+    @Override
+    public TxnView getTransaction(long txnId) throws IOException{
+        return getTransaction(txnId,false);
+    }
+
+    @Override
+    public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+        TxnView txn=cache.get(txnId,readerStart);
+        if(txn!=null) return txn;
+
+        //take the time before we go to the delegate, so that we never claim an entry is newer than it is
+        long observedAt=cache.currentTime();
+        txn=delegate.getTransaction(txnId,getDestinationTables);
+        if(txn==null) return null;
+        cache.put(txn,observedAt);
+        return txn;
+    }
+
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        LongArrayList missing=null;
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=cache.get(txnIds[i],readerStart);
+            if(txns[i]==null){
+                if(missing==null)
+                    missing=new LongArrayList();
+                missing.add(txnIds[i]);
+            }
+        }
+        if(missing==null) return txns;
+
+        long observedAt=cache.currentTime();
+        TxnView[] fetched=delegate.getTransactions(missing.toArray());
+        for(int i=0,j=0;i<txns.length;i++){
+            if(txns[i]!=null) continue;
+            TxnView txn=fetched[j++];
+            txns[i]=txn;
+            if(txn!=null)
+                cache.put(txn,observedAt);
+        }
+        return txns;
+    }
+
+    @Override
+    public boolean transactionCached(long txnId){
+        return cache.getIfPresent(txnId,readerStart)!=null;
+    }
+
+    @Override
+    public void cache(TxnView toCache){
+        Txn.State state=toCache.getEffectiveState();
+        if(state==Txn.State.COMMITTED || state==Txn.State.ROLLEDBACK)
+            cache.put(toCache,readerStart);
+        /*
+         * We don't know when the state of an active transaction was observed, so we can't share it with
+         * other readers. The delegate is free to decide whether it wants it or not.
+         */
+        delegate.cache(toCache);
+    }
+
+    @Override
+    public TxnView getTransactionFromCache(long txnId){
+        TxnView txn=cache.get(txnId,readerStart);
+        if(txn!=null) return txn;
+        return delegate.getTransactionFromCache(txnId);
+    }
+}
@@ -15,6 +15,7 @@
 
 package com.splicemachine.si.impl.store;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import org.spark_project.guava.cache.Cache;
@@ -58,6 +59,31 @@ public class SimpleCompletedTxnCacheSupplier implements TxnSupplier{
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException {
+        TxnView[] txns = new TxnView[txnIds.length];
+        LongArrayList missing = null;
+        for (int i = 0; i < txnIds.length; i++) {
+            txns[i] = cache.getIfPresent(txnIds[i]);
+            if (txns[i] == null) {
+                if (missing == null)
+                    missing = new LongArrayList();
+                missing.add(txnIds[i]);
+            }
+        }
+        if (missing == null) return txns;
+
+        TxnView[] fetched = delegate.getTransactions(missing.toArray());
+        for (int i = 0, j = 0; i < txns.length; i++) {
+            if (txns[i] != null) continue;
+            TxnView txn = fetched[j++];
+            txns[i] = txn;
+            if (txn != null)
+                cache.put(txnIds[i], txn);
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId) {
         return getTransactionFromCache(txnId)!=null;
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.txn;
+
+import com.splicemachine.annotations.ThreadSafe;
+import com.splicemachine.si.api.txn.Txn;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the top-level transactions which were begun by this server, and which are still active.
+ * <p/>
+ * A transaction is registered <em>before</em> its begin timestamp is generated, with a placeholder timestamp which
+ * is known to be no greater than the one it will receive. That way there is no window in which a transaction
+ * exists but cannot be seen by {@link #oldestActive(long)}.
+ * <p/>
+ * Transactions are held strongly, and stay registered until they are committed, rolled back or elevated. A
+ * transaction can still be read through a {@code TxnView} (by a scan, a Spark task or a child transaction) after
+ * its {@link Txn} object is no longer referenced here, so nothing but the end of the transaction may release it.
+ * A writable transaction which is abandoned is rolled back by the keep alive once it times out, which
+ * unregisters it. A read-only transaction which is abandoned holds back the watermark, which only stops versions
+ * from being discarded.
+ */
+@ThreadSafe
+public class ActiveTxnTracker{
+    private final Set<Registration> registrations=ConcurrentHashMap.newKeySet();
+    /*
+     * A timestamp which was generated before now, and is therefore no greater than any
+     * begin timestamp which has yet to be generated.
+     */
+    private volatile long floor=0L;
+
+    /**
+     * Register a transaction which is about to be begun. Call {@link Registration#begun(Txn)} once the
+     * transaction has been created (or failed to be).
+     */
+    public Registration register(){
+        Registration registration=new Registration(floor);
+        registrations.add(registration);
+        return registration;
+    }
+
+    /**
+     * Replace a read-only transaction with the writable transaction that it was elevated to. The read-only
+     * transaction is never committed itself, so it would otherwise stay registered.
+     */
+    public void elevated(Txn readOnlyTxn,Txn writableTxn){
+        for(Registration registration : registrations){
+            if(registration.txn==readOnlyTxn){
+                registration.txn=writableTxn;
+                return;
+            }
+        }
+        Registration registration=new Registration(writableTxn.getBeginTimestamp());
+        registration.txn=writableTxn;
+        registrations.add(registration);
+    }
+
+    /**
+     * Unregister a top-level writable transaction which was committed or rolled back.
+     *
+     * @param txnId the id of the transaction
+     */
+    public void finished(long txnId){
+        Iterator<Registration> iter=registrations.iterator();
+        while(iter.hasNext()){
+            Txn txn=iter.next().txn;
+            if(txn!=null && txn.allowsWrites() && txn.getTxnId()==txnId)
+                iter.remove();
+        }
+    }
+
+    /**
+     * Unregister a top-level read-only transaction which was committed or rolled back. Read-only transactions
+     * share their id with their read-only children, so they are matched by identity.
+     */
+    public void finished(Txn txn){
+        Iterator<Registration> iter=registrations.iterator();
+        while(iter.hasNext()){
+            if(iter.next().txn==txn)
+                iter.remove();
+        }
+    }
+
+    /**
+     * @param now a timestamp which was generated before this method was called.
+     * @return the begin timestamp of the oldest active transaction, or {@code now} if there are none.
+     */
+    public long oldestActive(long now){
+        if(now>floor)
+            floor=now;
+        long oldest=now;
+        for(Registration registration : registrations){
+            if(registration.beginTimestamp<oldest)
+                oldest=registration.beginTimestamp;
+        }
+        return oldest;
+    }
+
+    /**
+     * @return the number of transactions which are currently registered
+     */
+    public int size(){
+        return registrations.size();
+    }
+
+    public class Registration{
+        private volatile long beginTimestamp;
+        private volatile Txn txn;
+
+        private Registration(long beginTimestamp){
+            this.beginTimestamp=beginTimestamp;
+        }
+
+        /**
+         * @param txn the transaction which was begun, or {@code null} if it could not be.
+         */
+        public void begun(Txn txn){
+            if(txn==null){
+                registrations.remove(this);
+                return;
+            }
+            this.beginTimestamp=txn.getBeginTimestamp();
+            this.txn=txn;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.txn;
+
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
+
+/**
+ * An ActiveTxnRegistry for when there is only a single server, which therefore knows about every
+ * active transaction itself.
+ */
+public class LocalActiveTxnRegistry implements ActiveTxnRegistry{
+    public static final LocalActiveTxnRegistry INSTANCE=new LocalActiveTxnRegistry();
+
+    private LocalActiveTxnRegistry(){ }
+
+    @Override
+    public long publishOldestActive(long oldestActive){
+        return oldestActive;
+    }
+
+    @Override
+    public void publishLowWatermark(long lowWatermark){
+        //there is nobody else to tell
+    }
+}
@@ -146,6 +146,8 @@ public class ReadOnlyTxn extends AbstractTxn{
                     shouldContinue=!state.compareAndSet(currState,State.COMMITTED);
             }
         }while(shouldContinue);
+        if(tc!=null)
+            tc.readOnlyTransactionFinished(this);
         if(LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG,"After commit: txn=%s",this);
     }
@@ -162,9 +164,11 @@ public class ReadOnlyTxn extends AbstractTxn{
                 case ROLLEDBACK:
                     return;
                 default:
-                    shouldContinue=state.compareAndSet(currState,State.ROLLEDBACK);
+                    shouldContinue=!state.compareAndSet(currState,State.ROLLEDBACK);
             }
         }while(shouldContinue);
+        if(tc!=null)
+            tc.readOnlyTransactionFinished(this);
         if(LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG,"After rollback: txn=%s",this);
     }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.txn;
+
+import com.splicemachine.annotations.ThreadSafe;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
+import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.timestamp.api.TimestampSource;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintains the transaction low watermark: a timestamp which is no greater than the begin timestamp of any
+ * transaction which is active anywhere in the cluster, or which will be begun in the future.
+ * <p/>
+ * Any version of a row which was committed before the low watermark is therefore visible to every transaction
+ * which can still read it, and so compactions can discard the versions which those committed versions hide.
+ * <p/>
+ * The watermark is recomputed periodically from
+ * <ol>
+ *     <li>the oldest transaction begun by each server (as shared through the {@link ActiveTxnRegistry}),
+ *     which is the only place that read-only transactions are known, and</li>
+ *     <li>the oldest active transaction in the transaction table, in case a writable transaction was
+ *     begun by a server which did not publish it.</li>
+ * </ol>
+ * On region servers the result is also published through the {@link ActiveTxnRegistry}, in a place of its own.
+ * (It is not remembered by the timestamp source: the value kept there is the lower bound of searches for active
+ * transactions, which means something else.) Other processes leave it alone, so as not to write it from every
+ * JVM on every refresh.
+ */
+@ThreadSafe
+public class TxnLowWatermark{
+    private static final Logger LOG=Logger.getLogger(TxnLowWatermark.class);
+
+    private final TxnStore txnStore;
+    private final TimestampSource timestampSource;
+    private final ActiveTxnTracker activeTxns;
+    private final ActiveTxnRegistry registry;
+    private final long refreshIntervalMs;
+    private volatile ScheduledExecutorService refresher;
+    private volatile boolean publishesWatermark=false;
+
+    private volatile long lowWatermark=-1L;
+
+    private final LongAdder purgedDataCells=new LongAdder();
+    private final LongAdder purgedDeleteMarkers=new LongAdder();
+    private final LongAdder purgedCommitTimestamps=new LongAdder();
+
+    /**
+     * @param refreshIntervalMs how often to recompute the watermark. If this is not positive, the watermark
+     *                          is never computed, and so no versions are ever discarded.
+     */
+    public TxnLowWatermark(TxnStore txnStore,
+                           TimestampSource timestampSource,
+                           ActiveTxnTracker activeTxns,
+                           ActiveTxnRegistry registry,
+                           long refreshIntervalMs){
+        this.txnStore=txnStore;
+        this.timestampSource=timestampSource;
+        this.activeTxns=activeTxns;
+        this.registry=registry;
+        this.refreshIntervalMs=refreshIntervalMs;
+    }
+
+    public void start(){
+        if(refreshIntervalMs<=0) return;
+        refresher=Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("txnLowWatermark").setDaemon(true).build());
+        refresher.scheduleWithFixedDelay(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    refresh();
+                }catch(Exception e){
+                    LOG.warn("Unable to refresh the transaction low watermark, will try again later",e);
+                }
+            }
+        },0L,refreshIntervalMs,TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown(){
+        ScheduledExecutorService r=refresher;
+        if(r!=null)
+            r.shutdownNow();
+    }
+
+    /**
+     * Publish each new watermark through the registry. Only region servers should do this.
+     */
+    public void setPublishesWatermark(boolean publishesWatermark){
+        this.publishesWatermark=publishesWatermark;
+    }
+
+    /**
+     * @return the current low watermark, or {@code -1} if it is not (yet) known, in which case
+     * no versions should be discarded.
+     */
+    public long getLowWatermark(){
+        return lowWatermark;
+    }
+
+    /**
+     * Recompute the low watermark.
+     */
+    public void refresh() throws IOException{
+        /*
+         * Every transaction which begins after this point has a begin timestamp greater than now, so we only
+         * need to consider those which have already begun.
+         */
+        long now=timestampSource.nextTimestamp();
+        long watermark=registry.publishOldestActive(activeTxns.oldestActive(now));
+        if(watermark<0){
+            //the registry can't vouch for every server right now, so stop discarding until it can
+            lowWatermark=-1L;
+            return;
+        }
+        watermark=Math.min(watermark,now);
+
+        long searchFrom=Math.max(lowWatermark,0L);
+        long[] activeTxnIds=txnStore.getActiveTransactionIds(searchFrom,now,null);
+        for(long activeTxnId : activeTxnIds){
+            if(activeTxnId<watermark)
+                watermark=activeTxnId;
+        }
+
+        if(watermark<=lowWatermark) return; //we never move backwards
+        lowWatermark=watermark;
+        if(publishesWatermark)
+            registry.publishLowWatermark(watermark);
+        if(LOG.isDebugEnabled())
+            LOG.debug("Transaction low watermark is now "+watermark);
+    }
+
+    /**
+     * Record the number of cells which a compaction discarded because of the low watermark.
+     */
+    public void recordPurged(long dataCells,long deleteMarkers,long commitTimestamps){
+        purgedDataCells.add(dataCells);
+        purgedDeleteMarkers.add(deleteMarkers);
+        purgedCommitTimestamps.add(commitTimestamps);
+    }
+
+    public long getPurgedDataCells(){
+        return purgedDataCells.sum();
+    }
+
+    public long getPurgedDeleteMarkers(){
+        return purgedDeleteMarkers.sum();
+    }
+
+    public long getPurgedCommitTimestamps(){
+        return purgedCommitTimestamps.sum();
+    }
+}
@@ -17,10 +17,14 @@ package com.splicemachine.si.jmx;
 
 import com.splicemachine.si.api.server.Transactor;
 import com.splicemachine.si.api.txn.TransactorListener;
+import com.splicemachine.si.impl.store.SharedActiveTxnCache;
+import com.splicemachine.si.impl.txn.TxnLowWatermark;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ManagedTransactor<Mutation,OperationStatus,Put,RowLock,Table> implements TransactorListener, TransactorStatus {
     private Transactor transactor;
+    private SharedActiveTxnCache activeTxnCache;
+    private TxnLowWatermark txnLowWatermark;
 
     private final AtomicLong createdChildTxns = new AtomicLong(0l);
 
@@ -40,6 +44,14 @@ public class ManagedTransactor<Mutation,OperationStatus,Put,RowLock,Table> imple
         this.transactor = transactor;
     }
 
+    public void setActiveTxnCache(SharedActiveTxnCache activeTxnCache) {
+        this.activeTxnCache = activeTxnCache;
+    }
+
+    public void setTxnLowWatermark(TxnLowWatermark txnLowWatermark) {
+        this.txnLowWatermark = txnLowWatermark;
+    }
+
     // Implement TransactorListener
 
     @Override
@@ -115,4 +127,49 @@ public class ManagedTransactor<Mutation,OperationStatus,Put,RowLock,Table> imple
         return writes.get();
     }
 
+    @Override
+    public long getActiveTxnCacheHits() {
+        return activeTxnCache==null?0l:activeTxnCache.getHits();
+    }
+
+    @Override
+    public long getActiveTxnCacheMisses() {
+        return activeTxnCache==null?0l:activeTxnCache.getMisses();
+    }
+
+    @Override
+    public long getActiveTxnCacheEvictions() {
+        return activeTxnCache==null?0l:activeTxnCache.getEvictions();
+    }
+
+    @Override
+    public long getActiveTxnCacheInvalidations() {
+        return activeTxnCache==null?0l:activeTxnCache.getInvalidations();
+    }
+
+    @Override
+    public int getActiveTxnCacheSize() {
+        return activeTxnCache==null?0:activeTxnCache.size();
+    }
+
+    @Override
+    public long getTransactionLowWatermark() {
+        return txnLowWatermark==null?-1l:txnLowWatermark.getLowWatermark();
+    }
+
+    @Override
+    public long getPurgedDataCells() {
+        return txnLowWatermark==null?0l:txnLowWatermark.getPurgedDataCells();
+    }
+
+    @Override
+    public long getPurgedDeleteMarkers() {
+        return txnLowWatermark==null?0l:txnLowWatermark.getPurgedDeleteMarkers();
+    }
+
+    @Override
+    public long getPurgedCommitTimestamps() {
+        return txnLowWatermark==null?0l:txnLowWatermark.getPurgedCommitTimestamps();
+    }
+
 }
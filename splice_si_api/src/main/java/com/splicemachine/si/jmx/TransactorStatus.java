@@ -73,4 +73,53 @@ public interface TransactorStatus {
      * @return the total number of Transaction updates which were written
      */
     long getNumTxnUpdatesWritten();
+
+    /**
+     * @return the total number of transaction lookups which were served by the shared transaction cache
+     */
+    long getActiveTxnCacheHits();
+
+    /**
+     * @return the total number of transaction lookups which could not be served by the shared transaction cache
+     */
+    long getActiveTxnCacheMisses();
+
+    /**
+     * @return the total number of entries removed from the shared transaction cache because it was full,
+     * or because they expired
+     */
+    long getActiveTxnCacheEvictions();
+
+    /**
+     * @return the total number of entries removed from the shared transaction cache because the transaction
+     * was committed or rolled back by this node
+     */
+    long getActiveTxnCacheInvalidations();
+
+    /**
+     * @return the number of transactions currently held in the shared transaction cache
+     */
+    int getActiveTxnCacheSize();
+
+    /**
+     * @return the timestamp before which committed versions are visible to every transaction in the cluster,
+     * or -1 if it is not yet known
+     */
+    long getTransactionLowWatermark();
+
+    /**
+     * @return the total number of data cells discarded by compactions on this node because they were
+     * hidden by newer versions committed before the low watermark
+     */
+    long getPurgedDataCells();
+
+    /**
+     * @return the total number of tombstones and anti-tombstones discarded by compactions on this node
+     */
+    long getPurgedDeleteMarkers();
+
+    /**
+     * @return the total number of commit timestamp cells discarded by compactions on this node
+     */
+    long getPurgedCommitTimestamps();
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.si.api.filter.TxnFilter;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class TxnPrefetchingScannerTest{
+
+    @Test
+    public void testPrefetchesUnresolvedTransactionsOfEachBlock() throws Exception{
+        List<DataCell> row1=Arrays.asList(cell(CellType.COMMIT_TIMESTAMP,1),cell(CellType.USER_DATA,1),cell(CellType.USER_DATA,2));
+        List<DataCell> row2=Arrays.asList(cell(CellType.TOMBSTONE,3),cell(CellType.USER_DATA,2));
+        List<DataCell> row3=Collections.singletonList(cell(CellType.USER_DATA,4));
+        DataScanner delegate=mock(DataScanner.class);
+        when(delegate.next(anyInt())).thenReturn(row1,row2,row3,Collections.<DataCell>emptyList());
+        TxnFilter filter=mock(TxnFilter.class);
+
+        TxnPrefetchingScanner scanner=new TxnPrefetchingScanner(delegate,filter,2);
+        Assert.assertEquals(row1,scanner.next(-1));
+        ArgumentCaptor<long[]> txnIds=ArgumentCaptor.forClass(long[].class);
+        verify(filter).prefetchTransactions(txnIds.capture());
+        long[] firstBlock=txnIds.getValue();
+        Arrays.sort(firstBlock);
+        Assert.assertArrayEquals("Should only prefetch transactions without a commit timestamp",new long[]{2,3},firstBlock);
+
+        Assert.assertEquals(row2,scanner.next(-1));
+        Assert.assertEquals(row3,scanner.next(-1));
+        verify(filter,times(2)).prefetchTransactions(txnIds.capture());
+        Assert.assertArrayEquals(new long[]{4},txnIds.getValue());
+
+        Assert.assertTrue(scanner.next(-1).isEmpty());
+        Assert.assertTrue(scanner.next(-1).isEmpty());
+        verify(delegate,times(4)).next(anyInt());
+    }
+
+    @Test
+    public void testDoesNotPrefetchWhenEveryVersionIsResolved() throws Exception{
+        List<DataCell> row=Arrays.asList(cell(CellType.COMMIT_TIMESTAMP,1),cell(CellType.USER_DATA,1));
+        DataScanner delegate=mock(DataScanner.class);
+        when(delegate.next(anyInt())).thenReturn(row,Collections.<DataCell>emptyList());
+        TxnFilter filter=mock(TxnFilter.class);
+
+        TxnPrefetchingScanner scanner=new TxnPrefetchingScanner(delegate,filter,16);
+        Assert.assertEquals(row,scanner.next(-1));
+        Assert.assertTrue(scanner.next(-1).isEmpty());
+        verify(filter,never()).prefetchTransactions(any(long[].class));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static DataCell cell(CellType type,long version){
+        DataCell cell=mock(DataCell.class);
+        when(cell.dataType()).thenReturn(type);
+        when(cell.version()).thenReturn(version);
+        when(cell.getClone()).thenReturn(cell);
+        return cell;
+    }
+}
@@ -26,6 +26,8 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
@@ -160,4 +162,42 @@ public class CompletedTxnCacheSupplierTest{
         TxnView fromCache=store.getTransaction(txn.getTxnId());
         assertTxnsMatch("Transaction from store is not correct!",txn,fromCache);
     }
+
+    @Test
+    public void testGetTransactionsOnlyFetchesUncachedTransactions() throws Exception{
+        final AtomicLong al=new AtomicLong(0l);
+        TxnLifecycleManager tc=mock(TxnLifecycleManager.class);
+        when(tc.commit(anyLong())).thenAnswer(new Answer<Long>(){
+
+            @Override
+            public Long answer(InvocationOnMock invocationOnMock) throws Throwable{
+                return al.incrementAndGet();
+            }
+        });
+        Txn cachedTxn=new WritableTxn(1,1,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,tc,false,null);
+        cachedTxn.commit();
+        Txn uncachedTxn=new WritableTxn(2,2,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,tc,false,null);
+        uncachedTxn.rollback();
+
+        final List<long[]> fetched=new ArrayList<>();
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE){
+            @Override
+            public TxnView[] getTransactions(long[] txnIds) throws IOException{
+                fetched.add(txnIds);
+                return super.getTransactions(txnIds);
+            }
+        };
+        backStore.recordNewTransaction(cachedTxn);
+        backStore.recordNewTransaction(uncachedTxn);
+
+        TxnSupplier store=new CompletedTxnCacheSupplier(backStore,10,16);
+        store.getTransaction(cachedTxn.getTxnId());
+
+        TxnView[] txns=store.getTransactions(new long[]{uncachedTxn.getTxnId(),cachedTxn.getTxnId()});
+        Assert.assertEquals("Should have made a single lookup",1,fetched.size());
+        Assert.assertArrayEquals("Should only have looked up the uncached transaction",new long[]{uncachedTxn.getTxnId()},fetched.get(0));
+        assertTxnsMatch("Transaction from store is not correct!",uncachedTxn,txns[0]);
+        assertTxnsMatch("Transaction from cache is not correct!",cachedTxn,txns[1]);
+        Assert.assertTrue("Cache does not think it is present!",store.transactionCached(uncachedTxn.getTxnId()));
+    }
 }
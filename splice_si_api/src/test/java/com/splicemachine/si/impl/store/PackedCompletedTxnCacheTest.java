@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class PackedCompletedTxnCacheTest{
+
+    @Test
+    public void testCapacityIsRoundedUpToAPowerOfTwo() throws Exception{
+        Assert.assertEquals(PackedCompletedTxnCache.WAYS,new PackedCompletedTxnCache(1,1).capacity());
+        Assert.assertEquals(16,new PackedCompletedTxnCache(10,16).capacity());
+        Assert.assertEquals(1024,new PackedCompletedTxnCache(1024,16).capacity());
+    }
+
+    @Test
+    public void testRoundTripsCommittedTransaction() throws Exception{
+        PackedCompletedTxnCache cache=new PackedCompletedTxnCache(16,1);
+        TxnView txn=committed(1l,Txn.ROOT_TRANSACTION,2l);
+        Assert.assertFalse("Cache thinks it already has the item!",cache.contains(txn.getTxnId()));
+        Assert.assertFalse(cache.put(txn));
+
+        Assert.assertTrue("Cache does not think it is present!",cache.contains(txn.getTxnId()));
+        assertTxnsMatch("Incorrect cached transaction!",txn,cache.getIfPresent(txn.getTxnId()));
+        Assert.assertNull("Found a transaction which was never cached!",cache.getIfPresent(3l));
+    }
+
+    @Test
+    public void testRoundTripsRolledBackChildTransaction() throws Exception{
+        PackedCompletedTxnCache cache=new PackedCompletedTxnCache(16,1);
+        TxnView parent=committed(1l,Txn.ROOT_TRANSACTION,5l);
+        TxnView child=new InheritingTxnView(parent,2l,2l,null,
+                true,true,
+                true,true,
+                -1l,-1l,Txn.State.ROLLEDBACK);
+        cache.put(child);
+
+        Assert.assertNull("Should not be able to build a child without its parent",cache.getIfPresent(child.getTxnId()));
+
+        TxnSupplier parentSupplier=mock(TxnSupplier.class);
+        when(parentSupplier.getTransaction(parent.getTxnId())).thenReturn(parent);
+        TxnView fromCache=cache.get(child.getTxnId(),parentSupplier);
+        assertTxnsMatch("Incorrect cached transaction!",child,fromCache);
+        Assert.assertTrue("Did not keep the additive flag!",fromCache.isAdditive());
+        Assert.assertEquals("Did not inherit the isolation level!",
+                Txn.IsolationLevel.SNAPSHOT_ISOLATION,fromCache.getIsolationLevel());
+
+        cache.put(parent);
+        assertTxnsMatch("Incorrect cached transaction!",child,cache.getIfPresent(child.getTxnId()));
+    }
+
+    @Test
+    public void testEvictsUnreferencedTransactionsFirst() throws Exception{
+        PackedCompletedTxnCache cache=new PackedCompletedTxnCache(1,1); //a single set
+        int ways=PackedCompletedTxnCache.WAYS;
+        for(int i=1;i<=ways;i++){
+            Assert.assertFalse("Evicted before the cache was full!",cache.put(committed(i,Txn.ROOT_TRANSACTION,100+i)));
+        }
+        //read everything except the last entry, so that it is the only one which is not referenced
+        for(int i=1;i<ways;i++){
+            Assert.assertNotNull(cache.getIfPresent(i));
+        }
+
+        Assert.assertTrue("Did not evict when the cache was full!",cache.put(committed(ways+1,Txn.ROOT_TRANSACTION,200)));
+        Assert.assertFalse("Did not evict the unreferenced transaction!",cache.contains(ways));
+        for(int i=1;i<ways;i++){
+            Assert.assertTrue("Evicted referenced transaction "+i,cache.contains(i));
+        }
+        Assert.assertTrue(cache.contains(ways+1));
+
+        //nothing has been read since the last sweep, so the next entry goes in the following slot
+        Assert.assertTrue(cache.put(committed(ways+2,Txn.ROOT_TRANSACTION,201)));
+        Assert.assertFalse("Did not evict the oldest transaction!",cache.contains(1));
+    }
+
+    @Test
+    public void testRepeatedHitsReuseTheMaterializedTransaction() throws Exception{
+        PackedCompletedTxnCache cache=new PackedCompletedTxnCache(16,1);
+        TxnView parent=committed(1l,Txn.ROOT_TRANSACTION,5l);
+        TxnView child=committed(2l,parent,4l);
+        cache.put(parent);
+        cache.put(child);
+
+        TxnView first=cache.getIfPresent(child.getTxnId());
+        assertTxnsMatch("Incorrect cached transaction!",child,first);
+        Assert.assertSame("Rebuilt the transaction on a second hit!",first,cache.getIfPresent(child.getTxnId()));
+        Assert.assertSame("Rebuilt the parent chain!",cache.getIfPresent(parent.getTxnId()),first.getParentTxnView());
+    }
+
+    @Test
+    public void testDropsMaterializedTransactionWhenSlotIsReused() throws Exception{
+        PackedCompletedTxnCache cache=new PackedCompletedTxnCache(1,1); //a single set
+        int ways=PackedCompletedTxnCache.WAYS;
+        for(int i=1;i<=ways;i++){
+            cache.put(committed(i,Txn.ROOT_TRANSACTION,100+i));
+            Assert.assertNotNull(cache.getIfPresent(i));
+        }
+        //every slot has been referenced, so the sweep comes back around to the first one
+        cache.put(committed(ways+1,Txn.ROOT_TRANSACTION,200));
+        Assert.assertNull("Returned the view of an evicted transaction!",cache.getIfPresent(1));
+        assertTxnsMatch("Incorrect cached transaction!",committed(ways+1,Txn.ROOT_TRANSACTION,200),cache.getIfPresent(ways+1));
+    }
+
+    @Test
+    public void testHitsDoNotAllocate() throws Exception{
+        java.lang.management.ThreadMXBean bean=java.lang.management.ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean=(com.sun.management.ThreadMXBean)bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        PackedCompletedTxnCache cache=new PackedCompletedTxnCache(16,1);
+        TxnView parent=committed(1l,Txn.ROOT_TRANSACTION,5l);
+        cache.put(parent);
+        cache.put(committed(2l,parent,4l));
+        Assert.assertNotNull(cache.getIfPresent(2l));
+
+        int hits=100000;
+        long threadId=Thread.currentThread().getId();
+        long before=threadBean.getThreadAllocatedBytes(threadId);
+        for(int i=0;i<hits;i++){
+            cache.getIfPresent(2l);
+        }
+        long allocated=threadBean.getThreadAllocatedBytes(threadId)-before;
+        //unpacking the child and its parent on every hit costs well over 100 bytes
+        Assert.assertTrue("Allocated "+allocated+" bytes for "+hits+" hits",allocated<hits);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static TxnView committed(long txnId,TxnView parent,long commitTs){
+        return new InheritingTxnView(parent,txnId,txnId,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,
+                true,true,
+                commitTs,commitTs,Txn.State.COMMITTED);
+    }
+}
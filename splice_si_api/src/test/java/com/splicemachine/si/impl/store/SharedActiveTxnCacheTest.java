@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.txn.WritableTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that the SharedActiveTxnCache shares transactions between readers, without
+ * handing out stale active transactions.
+ */
+@Category(ArchitectureIndependent.class)
+public class SharedActiveTxnCacheTest{
+    private IncrementingClock clock;
+    private AtomicInteger accessCount;
+    private TxnStore backStore;
+
+    @Before
+    public void setUp() throws Exception{
+        clock=new IncrementingClock();
+        accessCount=new AtomicInteger(0);
+        backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE){
+            @Override
+            public Txn getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+                accessCount.incrementAndGet();
+                return super.getTransaction(txnId,getDestinationTables);
+            }
+        };
+    }
+
+    @Test
+    public void testActiveTransactionIsSharedWithEarlierReaders() throws Exception{
+        Txn txn=newTxn(1);
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(16,1000,clock);
+        TxnSupplier first=cache.newReader(backStore);
+        TxnSupplier second=cache.newReader(backStore);
+
+        clock.increment(1);
+        assertTxnsMatch("Transaction from store is not correct!",txn,first.getTransaction(txn.getTxnId()));
+        assertTxnsMatch("Transaction from cache is not correct!",txn,second.getTransaction(txn.getTxnId()));
+        Assert.assertEquals("Did not share the transaction between readers",1,accessCount.get());
+        Assert.assertEquals("Incorrect hit count",1,cache.getHits());
+        Assert.assertEquals("Incorrect miss count",1,cache.getMisses());
+    }
+
+    @Test
+    public void testActiveTransactionIsNotSharedWithLaterReaders() throws Exception{
+        Txn txn=newTxn(1);
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(16,1000,clock);
+        TxnSupplier first=cache.newReader(backStore);
+        assertTxnsMatch("Transaction from store is not correct!",txn,first.getTransaction(txn.getTxnId()));
+
+        //the transaction may have committed since we looked it up, so a new reader must look for itself
+        clock.increment(1);
+        TxnSupplier second=cache.newReader(backStore);
+        Assert.assertFalse("Cache thinks it is present!",second.transactionCached(txn.getTxnId()));
+        assertTxnsMatch("Transaction from store is not correct!",txn,second.getTransaction(txn.getTxnId()));
+        Assert.assertEquals("Did not go back to the store",2,accessCount.get());
+
+        //but the first reader still sees it from the cache
+        Assert.assertTrue("Cache does not think it is present!",first.transactionCached(txn.getTxnId()));
+    }
+
+    @Test
+    public void testCompletedTransactionIsSharedWithAllReaders() throws Exception{
+        Txn txn=newTxn(1);
+        txn.rollback();
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(16,1000,clock);
+        TxnSupplier first=cache.newReader(backStore);
+        assertTxnsMatch("Transaction from store is not correct!",txn,first.getTransaction(txn.getTxnId()));
+
+        clock.increment(1);
+        TxnSupplier second=cache.newReader(backStore);
+        assertTxnsMatch("Transaction from cache is not correct!",txn,second.getTransaction(txn.getTxnId()));
+        Assert.assertEquals("Did not share the transaction between readers",1,accessCount.get());
+    }
+
+    @Test
+    public void testInvalidateRemovesTransaction() throws Exception{
+        Txn txn=newTxn(1);
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(16,1000,clock);
+        TxnSupplier reader=cache.newReader(backStore);
+        reader.getTransaction(txn.getTxnId());
+        Assert.assertTrue("Cache does not think it is present!",reader.transactionCached(txn.getTxnId()));
+
+        cache.invalidate(txn.getTxnId());
+        Assert.assertFalse("Cache thinks it is present!",reader.transactionCached(txn.getTxnId()));
+        Assert.assertEquals("Incorrect invalidation count",1,cache.getInvalidations());
+        Assert.assertEquals("Incorrect size",0,cache.size());
+    }
+
+    @Test
+    public void testExpiredTransactionIsEvicted() throws Exception{
+        Txn txn=newTxn(1);
+        txn.rollback();
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(16,1000,clock);
+        TxnSupplier reader=cache.newReader(backStore);
+        reader.getTransaction(txn.getTxnId());
+
+        clock.increment(TimeUnit.MILLISECONDS.toNanos(1001));
+        assertTxnsMatch("Transaction from store is not correct!",txn,reader.getTransaction(txn.getTxnId()));
+        Assert.assertEquals("Did not go back to the store",2,accessCount.get());
+        Assert.assertEquals("Incorrect eviction count",1,cache.getEvictions());
+    }
+
+    @Test
+    public void testEvictsWhenFull() throws Exception{
+        SharedActiveTxnCache cache=new SharedActiveTxnCache(4,1000,clock);
+        TxnSupplier reader=cache.newReader(backStore);
+        for(int i=1;i<=8;i++){
+            reader.getTransaction(newTxn(i).getTxnId());
+        }
+        Assert.assertEquals("Incorrect size",4,cache.size());
+        Assert.assertEquals("Incorrect eviction count",4,cache.getEvictions());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Txn newTxn(long txnId) throws IOException{
+        Txn txn=new WritableTxn(txnId,txnId,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,getLifecycleManager(),false,null);
+        backStore.recordNewTransaction(txn);
+        return txn;
+    }
+
+    private TxnLifecycleManager getLifecycleManager() throws IOException{
+        final AtomicLong al=new AtomicLong(0l);
+        TxnLifecycleManager tc=mock(TxnLifecycleManager.class);
+        when(tc.commit(anyLong())).thenAnswer(new Answer<Long>(){
+
+            @Override
+            public Long answer(InvocationOnMock invocationOnMock) throws Throwable{
+                return al.incrementAndGet();
+            }
+        });
+        return tc;
+    }
+}
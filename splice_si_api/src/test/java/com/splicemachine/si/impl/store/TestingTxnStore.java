@@ -70,6 +70,15 @@ public class TestingTxnStore implements TxnStore{
         return getTransaction(txnId);
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
 
     @Override
     public boolean transactionCached(long txnId){
@@ -204,6 +213,19 @@ public class TestingTxnStore implements TxnStore{
         return true;
     }
 
+    @Override
+    public boolean[] keepAlive(long[] txnIds,boolean[] timedOut) throws IOException{
+        boolean[] keepGoing=new boolean[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            TxnHolder holder=txnMap.get(txnIds[i]);
+            if(holder!=null && holder.txn.getState()==Txn.State.ACTIVE && isTimedOut(holder))
+                timedOut[i]=true;
+            else
+                keepGoing[i]=keepAlive(txnIds[i]);
+        }
+        return keepGoing;
+    }
+
     //		@Override
     public void timeout(long txnId) throws IOException{
         rollback(txnId);
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.txn;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.api.data.ExceptionFactory;
+import com.splicemachine.si.api.txn.ActiveTxnRegistry;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.ClientTxnLifecycleManager;
+import com.splicemachine.si.impl.ManualKeepAliveScheduler;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.impl.store.TestingTxnStore;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.timestamp.api.TimestampSource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+
+import static org.mockito.Mockito.mock;
+
+@Category(ArchitectureIndependent.class)
+public class TxnLowWatermarkTest{
+    private static final byte[] TABLE=new byte[]{1,2,3};
+
+    private TimestampSource timestampSource;
+    private TestingTxnStore txnStore;
+    private ClientTxnLifecycleManager lifecycleManager;
+
+    @Before
+    public void setUp() throws Exception{
+        timestampSource=new TestingTimestampSource();
+        txnStore=new TestingTxnStore(new IncrementingClock(),timestampSource,null,Long.MAX_VALUE);
+        lifecycleManager=new ClientTxnLifecycleManager(timestampSource,mock(ExceptionFactory.class));
+        lifecycleManager.setTxnStore(txnStore);
+        lifecycleManager.setKeepAliveScheduler(new ManualKeepAliveScheduler(txnStore));
+        txnStore.setLifecycleManager(lifecycleManager);
+    }
+
+    @Test
+    public void testUnknownUntilRefreshed() throws Exception{
+        TxnLowWatermark watermark=watermark(LocalActiveTxnRegistry.INSTANCE);
+        Assert.assertEquals(-1L,watermark.getLowWatermark());
+        watermark.refresh();
+        Assert.assertTrue("Watermark was not computed",watermark.getLowWatermark()>0);
+    }
+
+    @Test
+    public void testReadOnlyTransactionHoldsBackWatermark() throws Exception{
+        TxnLowWatermark watermark=watermark(LocalActiveTxnRegistry.INSTANCE);
+        Txn txn=lifecycleManager.beginTransaction();
+        Assert.assertFalse("Should be read-only",txn.allowsWrites());
+
+        watermark.refresh();
+        Assert.assertEquals(txn.getBeginTimestamp(),watermark.getLowWatermark());
+
+        lifecycleManager.beginTransaction(); //a newer transaction doesn't matter
+        watermark.refresh();
+        Assert.assertEquals(txn.getBeginTimestamp(),watermark.getLowWatermark());
+
+        txn.commit();
+        watermark.refresh();
+        Assert.assertTrue("Watermark did not advance",watermark.getLowWatermark()>txn.getBeginTimestamp());
+    }
+
+    @Test
+    public void testWritableTransactionHoldsBackWatermark() throws Exception{
+        TxnLowWatermark watermark=watermark(LocalActiveTxnRegistry.INSTANCE);
+        Txn txn=lifecycleManager.beginTransaction(TABLE);
+
+        watermark.refresh();
+        Assert.assertEquals(txn.getBeginTimestamp(),watermark.getLowWatermark());
+
+        txn.rollback();
+        watermark.refresh();
+        Assert.assertTrue("Watermark did not advance",watermark.getLowWatermark()>txn.getBeginTimestamp());
+    }
+
+    @Test
+    public void testElevatedTransactionHoldsBackWatermark() throws Exception{
+        TxnLowWatermark watermark=watermark(LocalActiveTxnRegistry.INSTANCE);
+        Txn readOnly=lifecycleManager.beginTransaction();
+        Txn writable=readOnly.elevateToWritable(TABLE);
+        long beginTs=writable.getBeginTimestamp();
+
+        watermark.refresh();
+        Assert.assertEquals(beginTs,watermark.getLowWatermark());
+
+        writable.commit();
+        watermark.refresh();
+        Assert.assertTrue("Watermark did not advance",watermark.getLowWatermark()>beginTs);
+    }
+
+    @Test
+    public void testOtherServersHoldBackWatermark() throws Exception{
+        final long[] otherServer=new long[]{-1L};
+        TxnLowWatermark watermark=watermark(new ActiveTxnRegistry(){
+            @Override
+            public long publishOldestActive(long oldestActive) throws IOException{
+                if(otherServer[0]<0)
+                    otherServer[0]=oldestActive;
+                return Math.min(oldestActive,otherServer[0]);
+            }
+
+            @Override
+            public void publishLowWatermark(long lowWatermark){
+            }
+        });
+        watermark.refresh();
+        long first=watermark.getLowWatermark();
+        Assert.assertEquals(otherServer[0],first);
+
+        lifecycleManager.beginTransaction().commit();
+        watermark.refresh();
+        Assert.assertEquals("Watermark should be held back by the other server",first,watermark.getLowWatermark());
+    }
+
+    @Test
+    public void testPublishesWatermark() throws Exception{
+        long remembered=timestampSource.retrieveTimestamp();
+        PublishingRegistry registry=new PublishingRegistry();
+        TxnLowWatermark watermark=watermark(registry);
+        watermark.setPublishesWatermark(true);
+        watermark.refresh();
+        Assert.assertEquals(watermark.getLowWatermark(),registry.published);
+        Assert.assertEquals("The timestamp source should be left alone",remembered,timestampSource.retrieveTimestamp());
+    }
+
+    @Test
+    public void testDoesNotPublishWatermarkUnlessAsked() throws Exception{
+        long remembered=timestampSource.retrieveTimestamp();
+        PublishingRegistry registry=new PublishingRegistry();
+        TxnLowWatermark watermark=watermark(registry);
+        watermark.refresh();
+        Assert.assertTrue("Watermark was not computed",watermark.getLowWatermark()>0);
+        Assert.assertEquals(-1L,registry.published);
+        Assert.assertEquals(remembered,timestampSource.retrieveTimestamp());
+    }
+
+    @Test
+    public void testUnreferencedTransactionHoldsBackWatermark() throws Exception{
+        TxnLowWatermark watermark=watermark(LocalActiveTxnRegistry.INSTANCE);
+        long beginTs=beginAndForget();
+        for(int i=0;i<5;i++){
+            System.gc();
+            watermark.refresh();
+            Assert.assertEquals("Watermark moved past a transaction which is still active",beginTs,watermark.getLowWatermark());
+        }
+    }
+
+    @Test
+    public void testUnknownWhileRegistryCannotTell() throws Exception{
+        final boolean[] lost=new boolean[]{false};
+        TxnLowWatermark watermark=watermark(new ActiveTxnRegistry(){
+            @Override
+            public long publishOldestActive(long oldestActive) throws IOException{
+                return lost[0]?-1L:oldestActive;
+            }
+
+            @Override
+            public void publishLowWatermark(long lowWatermark){
+            }
+        });
+        watermark.refresh();
+        long first=watermark.getLowWatermark();
+        Assert.assertTrue("Watermark was not computed",first>0);
+
+        lost[0]=true;
+        watermark.refresh();
+        Assert.assertEquals("Watermark should be unknown",-1L,watermark.getLowWatermark());
+
+        lost[0]=false;
+        watermark.refresh();
+        Assert.assertTrue("Watermark was not recomputed",watermark.getLowWatermark()>=first);
+    }
+
+    @Test
+    public void testTrackerForgetsFinishedTransactions() throws Exception{
+        ActiveTxnTracker tracker=lifecycleManager.getActiveTxnTracker();
+        Txn readOnly=lifecycleManager.beginTransaction();
+        Txn rolledBack=lifecycleManager.beginTransaction();
+        Txn writable=lifecycleManager.beginTransaction(TABLE);
+        Assert.assertEquals(3,tracker.size());
+
+        readOnly.commit();
+        Assert.assertEquals(2,tracker.size());
+        rolledBack.rollback();
+        Assert.assertEquals(1,tracker.size());
+        writable.commit();
+        Assert.assertEquals(0,tracker.size());
+    }
+
+    @Test
+    public void testTrackerKeepsParentWhenReadOnlyChildEnds() throws Exception{
+        ActiveTxnTracker tracker=lifecycleManager.getActiveTxnTracker();
+        Txn parent=lifecycleManager.beginTransaction();
+        Txn child=lifecycleManager.beginChildTransaction(parent,null);
+        Assert.assertEquals("Children share their parent's id",parent.getTxnId(),child.getTxnId());
+
+        child.commit();
+        Assert.assertEquals(1,tracker.size());
+        parent.commit();
+        Assert.assertEquals(0,tracker.size());
+    }
+
+    @Test
+    public void testTrackerReplacesElevatedTransaction() throws Exception{
+        ActiveTxnTracker tracker=lifecycleManager.getActiveTxnTracker();
+        Txn readOnly=lifecycleManager.beginTransaction();
+        Txn writable=readOnly.elevateToWritable(TABLE);
+        Assert.assertEquals(1,tracker.size());
+
+        writable.rollback();
+        Assert.assertEquals(0,tracker.size());
+    }
+
+    @Test
+    public void testCountsPurgedCells() throws Exception{
+        TxnLowWatermark watermark=watermark(LocalActiveTxnRegistry.INSTANCE);
+        watermark.recordPurged(3,2,1);
+        watermark.recordPurged(1,0,0);
+        Assert.assertEquals(4L,watermark.getPurgedDataCells());
+        Assert.assertEquals(2L,watermark.getPurgedDeleteMarkers());
+        Assert.assertEquals(1L,watermark.getPurgedCommitTimestamps());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private TxnLowWatermark watermark(ActiveTxnRegistry registry){
+        return new TxnLowWatermark(txnStore,timestampSource,lifecycleManager.getActiveTxnTracker(),registry,0L);
+    }
+
+    private long beginAndForget() throws IOException{
+        return lifecycleManager.beginTransaction().getBeginTimestamp();
+    }
+
+    private static class PublishingRegistry implements ActiveTxnRegistry{
+        private long published=-1L;
+
+        @Override
+        public long publishOldestActive(long oldestActive){
+            return oldestActive;
+        }
+
+        @Override
+        public void publishLowWatermark(long lowWatermark){
+            published=lowWatermark;
+        }
+    }
+}
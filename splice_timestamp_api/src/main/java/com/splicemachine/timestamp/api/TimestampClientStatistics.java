@@ -30,5 +30,26 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
+
+	/**
+	 * @return the number of messages sent to the timestamp server. Concurrent
+	 * requests are coalesced into a single message, so this will be less than or equal
+	 * to {@link #getNumberTimestampRequests()}.
+	 */
+	long getNumberTimestampBatches();
+
+	/**
+	 * @return the average number of timestamp requests served by a single message
+	 * to the timestamp server.
+	 */
+	double getAvgTimestampBatchSize();
+
+	/**
+	 * @return a histogram of the number of requests served by each message sent
+	 * to the timestamp server. Entry {@code i} counts the batches whose size was in the
+	 * range {@code (2^(i-1),2^i]}; i.e. entry 0 counts batches of size 1, entry 1 counts
+	 * batches of size 2, entry 2 counts batches of size 3-4, and so on.
+	 */
+	long[] getTimestampBatchSizeHistogram();
 	
 }
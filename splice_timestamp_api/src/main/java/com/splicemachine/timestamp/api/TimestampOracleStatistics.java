@@ -42,5 +42,48 @@ public interface TimestampOracleStatistics{
      * @return number of timestamp blocks reserved
      */
     long getNumberBlocksReserved();
+
+    /**
+     * Returns the number of timestamp blocks which were reserved in the
+     * background, before the previous block ran out, so that no request
+     * had to wait for them.
+     *
+     * @return number of timestamp blocks reserved in the background
+     */
+    long getNumberBlocksReservedInBackground();
+
+    /**
+     * Returns the total time (in milliseconds) spent writing the blocks which
+     * were reserved in the background. No request waited for these writes;
+     * the time requests did wait is reported by {@link #getStallTime()}.
+     *
+     * @return time spent reserving blocks in the background, in milliseconds
+     */
+    long getBackgroundReservationTime();
+
+    /**
+     * Returns the number of requests which had to wait for a block to be
+     * reserved, because they outran the background reservation.
+     *
+     * @return number of stalled requests
+     */
+    long getNumberStalls();
+
+    /**
+     * Returns the total time (in milliseconds) that requests spent waiting
+     * for blocks to be reserved.
+     *
+     * @return the total stall time, in milliseconds
+     */
+    long getStallTime();
+
+    /**
+     * Returns the number of timestamps in the next block to be reserved.
+     * This adapts to the rate at which timestamps are requested, but is
+     * never smaller than the configured block size.
+     *
+     * @return the current block size
+     */
+    int getCurrentBlockSize();
 	
 }
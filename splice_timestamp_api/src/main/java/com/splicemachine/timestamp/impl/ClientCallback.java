@@ -26,6 +26,7 @@ public class ClientCallback implements Callback {
     private volatile long _newTimestamp = -1l;
     private Exception _e = null;
     private CountDownLatch _latch = new CountDownLatch(1);
+    private volatile TimestampBatch _batch = null;
     		
     public ClientCallback(short callerId) {
     	_callerId = callerId;
@@ -34,6 +35,17 @@ public class ClientCallback implements Callback {
     public short getCallerId() {
     	return _callerId;
     }
+
+    /**
+     * @return the batch that this request was sent with, or {@code null} if it has not been sent yet.
+     */
+    public TimestampBatch getBatch() {
+        return _batch;
+    }
+
+    public void setBatch(TimestampBatch batch) {
+        _batch = batch;
+    }
     
     public Exception getException() {
        return _e;
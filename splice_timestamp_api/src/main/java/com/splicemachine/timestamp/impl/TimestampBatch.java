@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A group of concurrent timestamp requests which are written to the server together.
+ * Each request keeps its own caller id, and the server answers each of them separately,
+ * so a single request can be abandoned without affecting the others in the batch.
+ */
+public class TimestampBatch {
+
+    private final List<ClientCallback> _callbacks;
+    private final AtomicInteger _unanswered;
+
+    public TimestampBatch(List<ClientCallback> callbacks) {
+        _callbacks = callbacks;
+        _unanswered = new AtomicInteger(callbacks.size());
+    }
+
+    public List<ClientCallback> getCallbacks() {
+        return _callbacks;
+    }
+
+    public int size() {
+        return _callbacks.size();
+    }
+
+    /**
+     * Record that one of the requests in this batch has been answered.
+     *
+     * @return true if that was the last request of the batch still waiting for an answer
+     */
+    public boolean answered() {
+        return _unanswered.decrementAndGet() == 0;
+    }
+
+    public String toString() {
+        return "Batch (size = " + _callbacks.size() + ", unanswered = " + _unanswered.get() + ")";
+    }
+}
@@ -17,9 +17,12 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
@@ -40,7 +43,6 @@ import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.concurrent.CountDownLatches;
-import com.splicemachine.timestamp.api.Callback;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
@@ -53,6 +55,18 @@ import org.apache.log4j.Logger;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * Requests are coalesced: while a batch is outstanding to the server, new requests
+ * queue up, and are written together in a single write once the outstanding one returns.
+ * Each request is still the usual 2 byte frame carrying its own caller id, so servers which
+ * answer one request at a time understand batches too, while newer servers reserve a single
+ * contiguous range for all the requests they read at once. Every timestamp is still reserved
+ * by the server after its caller made its request, so timestamps remain monotonic across all
+ * clients; we never hand a timestamp from an earlier range to a caller which arrived later.
+ * <p>
+ * Requests are only written while there is a connection. If the connection is lost, the requests
+ * which were already written are failed, since their answers will never arrive, but the ones
+ * still queued are kept until the client has reconnected, and are then sent over the new connection.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -69,6 +83,22 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
      */
     private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    /**
+     * Number of bytes in the message we send to the server for each request.
+     */
+    private static final int FIXED_MSG_SENT_LENGTH = 2; // 2 byte client id
+
+    /**
+     * The maximum number of requests which will be coalesced into a single write.
+     */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * The number of buckets in the batch size histogram; the last bucket also
+     * counts any batches which are larger than it.
+     */
+    private static final int BATCH_HISTOGRAM_BUCKETS = 12;
+
     private enum State {
         DISCONNECTED, CONNECTING, CONNECTED, SHUTDOWN
     }
@@ -77,7 +107,15 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
      * A map representing all currently active callers to this TimestampClient
      * waiting for their response.
      */
-    private ConcurrentMap<Short, Callback> clientCallbacks = null;
+    private ConcurrentMap<Short, ClientCallback> clientCallbacks = null;
+
+    /**
+     * Requests which are waiting to be sent with the next batch, and whether
+     * or not there is a batch outstanding to the server. Both are guarded by {@code batchLock}.
+     */
+    private final Object batchLock = new Object();
+    private List<ClientCallback> pendingCallbacks = new ArrayList<>();
+    private TimestampBatch outstandingBatch = null;
 
     private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
 
@@ -102,6 +140,9 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numBatches = new AtomicLong(0);
+    private AtomicLong totalBatchSize = new AtomicLong(0);
+    private AtomicLongArray batchSizeHistogram = new AtomicLongArray(BATCH_HISTOGRAM_BUCKETS);
     private TimestampHostProvider timestampHostProvider;
 
 
@@ -201,6 +242,8 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         CountDownLatches.uncheckedAwait(latchConnect);
         if(channel == null) {
+            // let the next caller try again
+            state.compareAndSet(State.CONNECTING, State.DISCONNECTED);
             throw new TimestampIOException("Unable to connect to TimestampServer");
         }
 
@@ -219,47 +262,34 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         final ClientCallback callback = new ClientCallback(clientCallId);
         SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
 
-        // Add this caller (id and callback) to the map of current clients.
-        // If an entry was already present for this caller id, that is a bug,
-        // so throw an exception.
-        if (clientCallbacks.putIfAbsent(clientCallId, callback) != null) {
-            doClientErrorThrow(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", null, clientCallId);
+        TimestampBatch batch;
+        synchronized (batchLock) {
+            pendingCallbacks.add(callback);
+            batch = nextBatch();
         }
+        requestQueued(callback);
+        if (batch != null)
+            sendBatch(batch);
 
-        try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
-            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            ChannelFuture futureWrite = channel.write(buffer);
-            futureWrite.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture future) throws Exception {
-                    if (!future.isSuccess()) {
-                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
-                    } else {
-                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", callback);
-                    }
-                }
-            });
-        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
-            clientCallbacks.remove(clientCallId);
-            callback.error(e);
-            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client: %s", e, callback);
-        }
-
-        // If we get here, request was successfully sent without exception.
-        // However, we might not have received response yet, so we need to
-        // wait for that now.
+        // If we get here, our request has either been sent, or will be sent
+        // once the outstanding batch returns. Either way, we need to
+        // wait for the response now.
 
         try {
             boolean success = callback.await(timeoutMillis);
             if (!success) {
+                abandon(callback);
                 doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
             }
         } catch (InterruptedException e) {
+            abandon(callback);
             doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, callback);
         }
 
+        if (callback.getException() != null) {
+            doClientErrorThrow(LOG, "Exception requesting timestamp for client: %s", callback.getException(), callback);
+        }
+
         // If we get here, it should mean the client received the response with the timestamp,
         // which we can fetch now from the callback and send it back to the caller.
 
@@ -291,25 +321,225 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         ensureReadableBytes(buf, 0);
 
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
-        Callback cb = clientCallbacks.remove(clientCallerId);
+        ClientCallback cb = clientCallbacks.remove(clientCallerId);
         if (cb == null) {
-            doClientErrorThrow(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", null, clientCallerId, timestamp);
+            /*
+             * The caller was abandoned (i.e. it timed out), so there is no-one to give
+             * this timestamp to. That's safe, since timestamps are allowed to have gaps.
+             */
+            SpliceLogUtils.warn(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", clientCallerId, timestamp);
+        } else {
+            // This releases the latch the original client thread is waiting for
+            // (to provide the synchronous behavior for that caller) and also
+            // provides the timestamp.
+            cb.complete(timestamp);
+            TimestampBatch batch = cb.getBatch();
+            if (batch.answered())
+                batchFinished(batch);
         }
 
-        // This releases the latch the original client thread is waiting for
-        // (to provide the synchronous behavior for that caller) and also
-        // provides the timestamp.
-        cb.complete(timestamp);
-
         super.messageReceived(ctx, e);
     }
 
+    /**
+     * Called once a request has been added to the pending requests, before it is sent. Only
+     * tests need to know about this.
+     */
+    void requestQueued(ClientCallback callback) {
+    }
+
+    /**
+     * Take the pending callbacks as a new batch, if there are any, there is
+     * no batch outstanding and we are connected. Must be called while holding {@code batchLock}.
+     *
+     * @return the batch to send, or {@code null} if there is nothing to send yet.
+     */
+    private TimestampBatch nextBatch() {
+        assert Thread.holdsLock(batchLock);
+        if (outstandingBatch != null || pendingCallbacks.isEmpty() || channel == null)
+            return null;
+
+        List<ClientCallback> callbacks;
+        if (pendingCallbacks.size() <= MAX_BATCH_SIZE) {
+            callbacks = pendingCallbacks;
+            pendingCallbacks = new ArrayList<>();
+        } else {
+            List<ClientCallback> head = pendingCallbacks.subList(0, MAX_BATCH_SIZE);
+            callbacks = new ArrayList<>(head);
+            head.clear();
+        }
+        TimestampBatch batch = new TimestampBatch(callbacks);
+        for (ClientCallback callback : callbacks) {
+            callback.setBatch(batch);
+        }
+        outstandingBatch = batch;
+        return batch;
+    }
+
+    private void sendBatch(final TimestampBatch batch) {
+        Channel channel = this.channel;
+        if (channel == null) {
+            // we were disconnected after the batch was taken, so it goes back to the front of the queue
+            synchronized (batchLock) {
+                if (outstandingBatch == batch)
+                    outstandingBatch = null;
+                for (ClientCallback callback : batch.getCallbacks()) {
+                    callback.setBatch(null);
+                }
+                pendingCallbacks.addAll(0, batch.getCallbacks());
+            }
+            sendPending();
+            return;
+        }
+        List<ClientCallback> callbacks = new ArrayList<>(batch.size());
+        for (ClientCallback callback : batch.getCallbacks()) {
+            // Add this request (id and callback) to the map of current clients.
+            // If an entry was already present for this id, that is a bug.
+            if (clientCallbacks.putIfAbsent(callback.getCallerId(), callback) != null) {
+                callback.error(new TimestampIOException("Found existing client callback with caller id " + callback.getCallerId() + ", so unable to handle new call."));
+                if (batch.answered())
+                    batchFinished(batch);
+            } else {
+                callbacks.add(callback);
+            }
+        }
+        if (callbacks.isEmpty())
+            return;
+        recordBatchSize(callbacks.size());
+
+        try {
+            ChannelBuffer buffer = ChannelBuffers.buffer(FIXED_MSG_SENT_LENGTH * callbacks.size());
+            for (ClientCallback callback : callbacks) {
+                buffer.writeShort(callback.getCallerId());
+            }
+            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", batch);
+            ChannelFuture futureWrite = channel.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        failBatch(batch, new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                    } else {
+                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", batch);
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
+            SpliceLogUtils.error(LOG, "Exception writing message to timestamp server for client: %s", e, batch);
+            failBatch(batch, e);
+        }
+    }
+
+    private void failBatch(TimestampBatch batch, Exception e) {
+        for (ClientCallback callback : batch.getCallbacks()) {
+            if (clientCallbacks.remove(callback.getCallerId(), callback)) {
+                callback.error(e);
+            }
+        }
+        batchFinished(batch);
+    }
+
+    /**
+     * Called when a batch is no longer outstanding (successfully or not), so that the
+     * requests which queued up behind it can be sent.
+     */
+    private void batchFinished(TimestampBatch batch) {
+        TimestampBatch next;
+        synchronized (batchLock) {
+            if (outstandingBatch != batch) return;
+            outstandingBatch = null;
+            next = nextBatch();
+        }
+        if (next != null)
+            sendBatch(next);
+    }
+
+    /**
+     * Send the requests which queued up while there was no connection, or no room to send them.
+     */
+    private void sendPending() {
+        TimestampBatch next;
+        synchronized (batchLock) {
+            next = nextBatch();
+        }
+        if (next != null)
+            sendBatch(next);
+    }
+
+    /**
+     * Reconnect without waiting for the connection, for the requests which are still queued
+     * after the connection was lost. They are sent from {@link #channelConnected}, or failed
+     * if we cannot connect.
+     */
+    private void reconnect() {
+        if (!state.compareAndSet(State.DISCONNECTED, State.CONNECTING))
+            return;
+        ChannelFuture futureConnect;
+        try {
+            SpliceLogUtils.info(LOG, "Reconnecting to server (host %s, port %s)", timestampHostProvider.getHost(), getPort());
+            futureConnect = bootstrap.connect(new InetSocketAddress(timestampHostProvider.getHost(), getPort()));
+        } catch (Exception e) {
+            reconnectFailed(e);
+            return;
+        }
+        futureConnect.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (!future.isSuccess())
+                    reconnectFailed(future.getCause());
+            }
+        });
+    }
+
+    private void reconnectFailed(Throwable cause) {
+        SpliceLogUtils.error(LOG, "TimestampClient unable to reconnect to TimestampServer", cause);
+        state.compareAndSet(State.CONNECTING, State.DISCONNECTED);
+        List<ClientCallback> queued;
+        synchronized (batchLock) {
+            queued = pendingCallbacks;
+            pendingCallbacks = new ArrayList<>();
+        }
+        TimestampIOException unreachable = new TimestampIOException("Unable to connect to TimestampServer", cause);
+        for (ClientCallback callback : queued) {
+            callback.error(unreachable);
+        }
+    }
+
+    /**
+     * Give up on a request which timed out or was interrupted. Only this request is dropped; the other
+     * requests of its batch keep waiting for their own responses. If the request has already been sent,
+     * the batch no longer holds back the requests queued behind it, so that they can proceed even if
+     * the server never answers it.
+     */
+    private void abandon(ClientCallback callback) {
+        TimestampBatch batch;
+        synchronized (batchLock) {
+            batch = callback.getBatch();
+            if (batch == null) {
+                pendingCallbacks.remove(callback);
+                return;
+            }
+        }
+        if (clientCallbacks.remove(callback.getCallerId(), callback)) {
+            batch.answered();
+            batchFinished(batch);
+        }
+    }
+
+    private void recordBatchSize(int size) {
+        numBatches.incrementAndGet();
+        totalBatchSize.addAndGet(size);
+        int bucket = 32 - Integer.numberOfLeadingZeros(size - 1);
+        batchSizeHistogram.incrementAndGet(Math.min(bucket, BATCH_HISTOGRAM_BUCKETS - 1));
+    }
+
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         SpliceLogUtils.info(LOG, "Successfully connected to server");
         channel = e.getChannel();
         state.set(State.CONNECTED);
         super.channelConnected(ctx, e);
+        sendPending();
     }
 
     @Override
@@ -322,7 +552,22 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             channel=null;
             shouldContinue = !state.compareAndSet(s,State.DISCONNECTED);
         }while(shouldContinue);
-        connectIfNeeded();
+
+        // Requests which were already sent will never receive a response, so fail them. The ones still
+        // queued wait for the new connection.
+        TimestampIOException disconnected = new TimestampIOException("TimestampClient was disconnected from the server");
+        for (ClientCallback callback : clientCallbacks.values()) {
+            if (clientCallbacks.remove(callback.getCallerId(), callback)) {
+                callback.error(disconnected);
+            }
+        }
+        boolean queued;
+        synchronized (batchLock) {
+            outstandingBatch = null;
+            queued = !pendingCallbacks.isEmpty();
+        }
+        if (queued)
+            reconnect();
     }
 
     @Override
@@ -353,6 +598,28 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public long getNumberTimestampBatches() {
+        return numBatches.get();
+    }
+
+    @Override
+    public double getAvgTimestampBatchSize() {
+        long batches = numBatches.get();
+        if (batches == 0)
+            return 0d;
+        return (double) totalBatchSize.get() / batches;
+    }
+
+    @Override
+    public long[] getTimestampBatchSizeHistogram() {
+        long[] histogram = new long[BATCH_HISTOGRAM_BUCKETS];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = batchSizeHistogram.get(i);
+        }
+        return histogram;
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
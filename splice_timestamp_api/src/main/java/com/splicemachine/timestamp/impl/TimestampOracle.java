@@ -20,7 +20,14 @@ import com.splicemachine.timestamp.api.TimestampIOException;
 import com.splicemachine.timestamp.api.TimestampOracleStatistics;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
+import org.spark_project.guava.base.Ticker;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanRegistrationException;
@@ -33,12 +40,26 @@ public class TimestampOracle implements TimestampOracleStatistics{
 
     private static final Logger LOG = Logger.getLogger(TimestampOracle.class);
 
+    // The next block is reserved in the background once less than this fraction of the current block remains
+    private static final double RESERVE_AHEAD_FRACTION = 0.5;
+    // Block sizes are adjusted so that a block lasts about this long at the observed request rate
+    private static final long TARGET_BLOCK_DURATION_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Blocks grow to at most this multiple of the configured block size
+    private static final int MAX_BLOCK_SIZE_MULTIPLE = 32;
+    private static final String MBEAN_NAME = "com.splicemachine.si.client.timestamp.generator:type=TimestampOracleStatistics";  // Same string is in JMXUtils
+
 	// Contains the next timestamp value to be returned to caller use
 	private final AtomicLong _timestampCounter = new AtomicLong(0l);
 	
 	// Maximum timestamp that we can feed before reserving another block
 	private volatile long _maxReservedTimestamp = -1l;
 
+	// Once the counter passes this, the next block is reserved in the background
+	private volatile long _lowWatermark = -1l;
+	private final AtomicBoolean _reservationPending = new AtomicBoolean(false);
+	private final ExecutorService _reserver;
+	private volatile boolean _jmxRegistered;
+
 	// Singleton instance, used by TimestampServerHandler
 	private static volatile TimestampOracle _instance;
 	
@@ -46,9 +67,20 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	// for solid definitions of each metric.
     private AtomicLong _numBlocksReserved = new AtomicLong(0);
     private AtomicLong _numTimestampsCreated = new AtomicLong(0);
+    private AtomicLong _numBackgroundReservations = new AtomicLong(0);
+    private AtomicLong _backgroundReservationNanos = new AtomicLong(0);
+    private AtomicLong _numStalls = new AtomicLong(0);
+    private AtomicLong _stallNanos = new AtomicLong(0);
 
     private TimestampBlockManager timestampBlockManager;
-    private int blockSize;
+    private final int minBlockSize;
+    private final int maxBlockSize;
+    private volatile int blockSize;
+    private final Ticker ticker;
+
+    // Guarded by this: the time and counter value when the last block was reserved, for measuring the request rate
+    private long lastReservationNanos;
+    private long lastReservationCounter;
 
     public static TimestampOracle getInstance(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException{
 		TimestampOracle to = _instance;
@@ -65,7 +97,20 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	}
 	
 	private TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
+        this(timestampBlockManager,blockSize,Ticker.systemTicker(),Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("TimestampBlockReserver-%d").setDaemon(true).build()));
+	}
+
+    /**
+     * Visible for testing: the ticker is only used to measure the request rate when sizing blocks, and
+     * the reserver runs the background reservations.
+     */
+	TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize, Ticker ticker, ExecutorService reserver) throws TimestampIOException {
         this.timestampBlockManager=timestampBlockManager;
+        this.ticker=ticker;
+        this._reserver=reserver;
+        this.minBlockSize = blockSize;
+        this.maxBlockSize = (int)Math.min(Integer.MAX_VALUE,(long)blockSize*MAX_BLOCK_SIZE_MULTIPLE);
         this.blockSize = blockSize;
 		initialize();
 	}
@@ -78,36 +123,134 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	private void initialize() throws TimestampIOException {
 			synchronized(this) {
                 _maxReservedTimestamp = timestampBlockManager.initialize();
+				_lowWatermark = _maxReservedTimestamp;
 				_timestampCounter.set(_maxReservedTimestamp + 1);
 			}
 			try {
 				registerJMX();
+				_jmxRegistered = true;
 			} catch (Exception e) {
                 SpliceLogUtils.error(LOG, "Unable to register Timestamp Generator with JMX. Service will function but metrics will not be available.");
 			}
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.getAndIncrement();
-		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
-			reserveNextBlock(maxTS);
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Reserve a contiguous range of {@code count} timestamps.
+	 * <p/>
+	 * Normally the block containing the range has already been reserved in the background, once the
+	 * previous block was half used. Only if requests outrun the background reservation does the caller
+	 * have to wait for the block to be reserved.
+	 *
+	 * @param count the number of timestamps to reserve
+	 * @return the first timestamp in the range. The range is {@code [first,first+count)}.
+	 * @throws TimestampIOException if a new block needed to be reserved and the reservation failed
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count > 0 : "Must request at least one timestamp";
+		long firstTS = _timestampCounter.getAndAdd(count);
+		long lastTS = firstTS + count - 1;
+		if (lastTS > _maxReservedTimestamp) {
+			long start = System.nanoTime();
+			reserveNextBlock(lastTS);
+			_numStalls.incrementAndGet(); // JMX metric
+			_stallNanos.addAndGet(System.nanoTime() - start);
+		} else if (lastTS > _lowWatermark) {
+			reserveNextBlockInBackground();
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
-		return nextTS;
+		_numTimestampsCreated.addAndGet(count); // JMX metric
+		return firstTS;
 	}
 
-    private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
+    private void reserveNextBlock(long requiredTimestamp) throws TimestampIOException {
         synchronized(this)  {
-            if (_maxReservedTimestamp > priorMaxReservedTimestamp) return; // some other thread got there first
+            if (_maxReservedTimestamp >= requiredTimestamp) return; // some other thread got there first
             long nextMax = _maxReservedTimestamp + blockSize;
+            while (nextMax < requiredTimestamp)
+                nextMax += blockSize;
             timestampBlockManager.reserveNextBlock(nextMax);
-            _maxReservedTimestamp = nextMax;
-            _numBlocksReserved.incrementAndGet(); // JMX metric
-            SpliceLogUtils.debug(LOG, "Next timestamp block reserved with max = %s", _maxReservedTimestamp);
+            blockReserved(nextMax);
         }
 	}
 
+    private void reserveNextBlockInBackground() {
+        if (!_reservationPending.compareAndSet(false, true)) return; // already on its way
+        try {
+            _reserver.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reserveNextBlockAhead();
+                    } catch (Throwable t) {
+                        // callers will reserve the block themselves once they run out
+                        SpliceLogUtils.warn(LOG, "Unable to reserve the next timestamp block in the background", t);
+                    } finally {
+                        _reservationPending.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            _reservationPending.set(false);
+        }
+    }
+
+    private void reserveNextBlockAhead() throws TimestampIOException {
+        synchronized(this) {
+            if (_timestampCounter.get() <= _lowWatermark + 1) return; // the next block was reserved in the meantime
+            long nextMax = _maxReservedTimestamp + blockSize;
+            long start = System.nanoTime();
+            timestampBlockManager.reserveNextBlock(nextMax);
+            _numBackgroundReservations.incrementAndGet(); // JMX metric
+            _backgroundReservationNanos.addAndGet(System.nanoTime() - start);
+            blockReserved(nextMax);
+        }
+    }
+
+    /**
+     * Stop reserving blocks in the background, and let a server started again in this JVM create a
+     * new oracle. A reservation which is already under way still completes. Callers which keep using
+     * this oracle reserve blocks themselves.
+     */
+    public void shutdown() {
+        _reserver.shutdown();
+        synchronized(TimestampOracle.class) {
+            if (_instance == this) _instance = null;
+        }
+        if (!_jmxRegistered) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            SpliceLogUtils.warn(LOG, "Unable to unregister Timestamp Generator from JMX", e);
+        }
+    }
+
+    /**
+     * Make a newly reserved block available, and size the next block so that it should last about
+     * {@link #TARGET_BLOCK_DURATION_NANOS} at the rate that timestamps were requested since the last one.
+     * Must be called while holding the lock.
+     */
+    private void blockReserved(long nextMax) {
+        long now = ticker.read();
+        long counter = _timestampCounter.get();
+        if (lastReservationNanos > 0) {
+            long elapsed = Math.max(1L, now - lastReservationNanos);
+            double targetSize = (double)(counter - lastReservationCounter) * TARGET_BLOCK_DURATION_NANOS / elapsed;
+            // move at most a factor of 2 at a time, so that a single burst or lull doesn't swing it too far
+            long size = Math.max(blockSize / 2, Math.min(2L * blockSize, (long)targetSize));
+            blockSize = (int)Math.max(minBlockSize, Math.min(maxBlockSize, size));
+        }
+        lastReservationNanos = now;
+        lastReservationCounter = counter;
+
+        _maxReservedTimestamp = nextMax;
+        _lowWatermark = nextMax - (long)(blockSize * RESERVE_AHEAD_FRACTION);
+        _numBlocksReserved.incrementAndGet(); // JMX metric
+        SpliceLogUtils.debug(LOG, "Next timestamp block reserved with max = %s, next block size = %s", nextMax, blockSize);
+    }
+
 	private void registerJMX() throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException {
         MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
         registerJMX(mbs);
@@ -115,7 +258,7 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	}
 
     private void registerJMX(MBeanServer mbs) throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException {
-        ObjectName name = new ObjectName("com.splicemachine.si.client.timestamp.generator:type=TimestampOracleStatistics");  // Same string is in JMXUtils
+        ObjectName name = new ObjectName(MBEAN_NAME);
         mbs.registerMBean(this, name);
     }
 
@@ -128,4 +271,29 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	public long getNumberBlocksReserved() {
 		return _numBlocksReserved.get();
 	}
+
+	@Override
+	public long getNumberBlocksReservedInBackground() {
+		return _numBackgroundReservations.get();
+	}
+
+	@Override
+	public long getBackgroundReservationTime() {
+		return TimeUnit.NANOSECONDS.toMillis(_backgroundReservationNanos.get());
+	}
+
+	@Override
+	public long getNumberStalls() {
+		return _numStalls.get();
+	}
+
+	@Override
+	public long getStallTime() {
+		return TimeUnit.NANOSECONDS.toMillis(_stallNanos.get());
+	}
+
+	@Override
+	public int getCurrentBlockSize() {
+		return blockSize;
+	}
 }
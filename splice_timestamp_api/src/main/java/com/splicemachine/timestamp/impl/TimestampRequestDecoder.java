@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+
+/**
+ * Splits the bytes received from a client into timestamp requests of
+ * {@link TimestampServer#FIXED_MSG_RECEIVED_LENGTH} bytes each, like a fixed length decoder would,
+ * except that all the complete requests which have arrived so far are passed on together as one
+ * message. This lets the {@link TimestampServerHandler} reserve a single range of timestamps for
+ * the requests a client wrote at once, while the frame of each request stays the same.
+ */
+public class TimestampRequestDecoder extends FrameDecoder {
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+        int numRequests = buffer.readableBytes() / TimestampServer.FIXED_MSG_RECEIVED_LENGTH;
+        if (numRequests == 0)
+            return null;
+        return buffer.readBytes(numRequests * TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+    }
+}
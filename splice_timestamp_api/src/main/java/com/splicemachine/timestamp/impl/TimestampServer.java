@@ -44,6 +44,7 @@ public class TimestampServer {
     private int port;
     private ChannelFactory factory;
     private Channel channel;
+    private TimestampServerHandler handler;
     private TimestampBlockManager timestampBlockManager;
     private int blockSize;
 
@@ -63,7 +64,7 @@ public class TimestampServer {
         ServerBootstrap bootstrap = new ServerBootstrap(factory);
 
         // Instantiate handler once and share it
-        final TimestampServerHandler handler = new TimestampServerHandler(timestampBlockManager,blockSize);
+        this.handler = new TimestampServerHandler(timestampBlockManager,blockSize);
 
         // If we end up needing to use one of the memory aware executors,
         // do so with code like this (leave commented out for reference).
@@ -101,5 +102,6 @@ public class TimestampServer {
             LOG.error("unexpected exception during stop server", e);
         }
         this.factory.shutdown();
+        this.handler.shutdown();
     }
 }
@@ -57,13 +57,19 @@ public class TimestampServerHandler extends TimestampBaseHandler {
 
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
         assert buf != null;
-        ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
-
-        final short callerId = buf.readShort();
-        ensureReadableBytes(buf, 0);
+        final int numRequests = buf.readableBytes() / TimestampServer.FIXED_MSG_RECEIVED_LENGTH;
+        ensureReadableBytes(buf, numRequests * TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+        if (numRequests <= 0) {
+            throw new TimestampIOException("Empty timestamp request received");
+        }
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
+        SpliceLogUtils.trace(LOG, "Received %s timestamp requests from client", numRequests);
+        /*
+         * The client coalesces concurrent requests into a single write, so we reserve
+         * a contiguous range of timestamps for all the requests read together, and
+         * answer each of them with its own timestamp from the range.
+         */
+        long nextTimestamp = oracle.getNextTimestamps(numRequests);
         assert nextTimestamp > 0;
 
 
@@ -71,17 +77,20 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         // Respond to the client
         //
 
-        ChannelBuffer writeBuf = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_SENT_LENGTH);
-        writeBuf.writeShort(callerId);
-        writeBuf.writeLong(nextTimestamp);
-        SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp);
+        ChannelBuffer writeBuf = ChannelBuffers.buffer(numRequests * TimestampServer.FIXED_MSG_SENT_LENGTH);
+        for (int i = 0; i < numRequests; i++) {
+            short callerId = buf.readShort();
+            writeBuf.writeShort(callerId);
+            writeBuf.writeLong(nextTimestamp + i);
+            SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp + i);
+        }
         ChannelFuture futureResponse = e.getChannel().write(writeBuf); // Could also use Channels.write
         futureResponse.addListener(new ChannelFutureListener() {
                                        @Override
                                        public void operationComplete(ChannelFuture cf) throws Exception {
                                            if (!cf.isSuccess()) {
                                                throw new TimestampIOException(
-                                                       "Failed to respond successfully to caller id " + callerId, cf.getCause());
+                                                       "Failed to respond successfully to " + numRequests + " timestamp requests", cf.getCause());
                                            }
                                        }
                                    }
@@ -90,6 +99,13 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         super.messageReceived(ctx, e);
     }
 
+    /**
+     * Stops the oracle's background work, if it was ever started.
+     */
+    public void shutdown() {
+        if (oracle != null) oracle.shutdown();
+    }
+
     protected void doError(String message, Throwable t, Object... args) {
         SpliceLogUtils.error(LOG, message, t, args);
     }
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TimestampClientTest {
+
+    @Test
+    public void testAverageBatchSizeBeforeFirstBatch() throws Exception {
+        TimestampClient client = new TimestampClient(1000, hostProvider(1));
+        try {
+            Assert.assertEquals(0d, client.getAvgTimestampBatchSize(), 0d);
+            Assert.assertEquals(0, client.getNumberTimestampBatches());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentCallersGetUniqueTimestamps() throws Exception {
+        int port = freePort();
+        TimestampServer server = new TimestampServer(port, new MemoryBlockManager(), 1000);
+        server.startServer();
+        TimestampClient client = new TimestampClient(10000, hostProvider(port));
+        try {
+            List<List<Long>> perThread = getTimestamps(client, 16, 200);
+            assertUniqueAndIncreasing(perThread);
+            Assert.assertEquals(16 * 200 + 1, client.getNumberTimestampRequests());
+            Assert.assertTrue(client.getNumberTimestampBatches() <= 16 * 200 + 1);
+            Assert.assertTrue(client.getAvgTimestampBatchSize() >= 1d);
+        } finally {
+            client.shutdown();
+            server.stopServer();
+        }
+    }
+
+    @Test
+    public void testServerReservesOneRangeForRequestsWrittenTogether() throws Exception {
+        int port = freePort();
+        TimestampServer server = new TimestampServer(port, new MemoryBlockManager(), 1000);
+        server.startServer();
+        try (Socket socket = new Socket("localhost", port)) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // a single request, as every client used to send it
+            out.writeShort(7);
+            out.flush();
+            Assert.assertEquals(7, in.readShort());
+            long single = in.readLong();
+
+            // several requests written at once
+            byte[] requests = new byte[]{0, 1, 0, 2, 0, 3};
+            out.write(requests);
+            out.flush();
+            long previous = single;
+            for (short id = 1; id <= 3; id++) {
+                Assert.assertEquals(id, in.readShort());
+                long timestamp = in.readLong();
+                Assert.assertTrue("Timestamps must increase", timestamp > previous);
+                previous = timestamp;
+            }
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    @Test
+    public void testServerAnsweringOneRequestAtATime() throws Exception {
+        // the way servers answered before requests were batched
+        final ScriptedServer server = new ScriptedServer();
+        Thread answerer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    server.accept();
+                    long timestamp = 1000;
+                    while (true) {
+                        server.reply(server.readRequest(), timestamp++);
+                    }
+                } catch (IOException ignored) {
+                    // client went away
+                }
+            }
+        });
+        answerer.setDaemon(true);
+        answerer.start();
+        TimestampClient client = new TimestampClient(10000, hostProvider(server.getPort()));
+        try {
+            assertUniqueAndIncreasing(getTimestamps(client, 8, 100));
+        } finally {
+            client.shutdown();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testRequestsQueuedBehindOutstandingBatchAreSentTogether() throws Exception {
+        ScriptedServer server = new ScriptedServer();
+        QueueWatchingClient client = new QueueWatchingClient(10000, hostProvider(server.getPort()));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<Long> first = executor.submit(timestampCall(client));
+            server.accept();
+            short firstId = server.readRequest();
+
+            client.expectQueued(5);
+            List<Future<Long>> queued = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                queued.add(executor.submit(timestampCall(client)));
+            }
+            client.awaitQueued(); // all five are queued up behind the outstanding request
+
+            server.reply(firstId, 100);
+            Assert.assertEquals(100L, first.get(5, TimeUnit.SECONDS).longValue());
+            long timestamp = 200;
+            for (int i = 0; i < 5; i++) {
+                server.reply(server.readRequest(), timestamp++);
+            }
+            Set<Long> received = new HashSet<>();
+            for (Future<Long> future : queued) {
+                received.add(future.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(5, received.size());
+            Assert.assertEquals(2, client.getNumberTimestampBatches());
+            Assert.assertEquals(3d, client.getAvgTimestampBatchSize(), 0d);
+        } finally {
+            executor.shutdownNow();
+            client.shutdown();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testAbandonedRequestDoesNotFailRestOfBatch() throws Exception {
+        ScriptedServer server = new ScriptedServer();
+        final QueueWatchingClient client = new QueueWatchingClient(10000, hostProvider(server.getPort()));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<Long> first = executor.submit(timestampCall(client));
+            server.accept();
+            short firstId = server.readRequest();
+
+            final Thread[] abandoningThread = new Thread[1];
+            client.expectQueued(1);
+            Future<Long> abandoning = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    abandoningThread[0] = Thread.currentThread();
+                    return timestampCall(client).call();
+                }
+            });
+            client.awaitQueued();
+            client.expectQueued(1);
+            Future<Long> survivor = executor.submit(timestampCall(client));
+            client.awaitQueued(); // both are now queued behind the outstanding request, in this order
+
+            server.reply(firstId, 100);
+            Assert.assertEquals(100L, first.get(5, TimeUnit.SECONDS).longValue());
+            short abandonedId = server.readRequest();
+            short survivorId = server.readRequest();
+
+            // the first of the batch gives up before the server answers
+            abandoningThread[0].interrupt();
+            try {
+                abandoning.get(5, TimeUnit.SECONDS);
+                Assert.fail("Interrupted request should have failed");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TimestampIOException);
+            }
+
+            // the other request of the batch is still answered
+            server.reply(survivorId, 201);
+            Assert.assertEquals(201L, survivor.get(5, TimeUnit.SECONDS).longValue());
+            // and the late answer to the abandoned one is dropped
+            server.reply(abandonedId, 200);
+
+            // later requests are not held up
+            Future<Long> next = executor.submit(timestampCall(client));
+            server.reply(server.readRequest(), 300);
+            Assert.assertEquals(300L, next.get(5, TimeUnit.SECONDS).longValue());
+        } finally {
+            executor.shutdownNow();
+            client.shutdown();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testQueuedRequestsAreSentAfterReconnecting() throws Exception {
+        ScriptedServer server = new ScriptedServer();
+        QueueWatchingClient client = new QueueWatchingClient(10000, hostProvider(server.getPort()));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<Long> sent = executor.submit(timestampCall(client));
+            server.accept();
+            server.readRequest();
+
+            client.expectQueued(3);
+            List<Future<Long>> queued = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                queued.add(executor.submit(timestampCall(client)));
+            }
+            client.awaitQueued();
+
+            // the server goes away before answering
+            server.disconnect();
+            try {
+                sent.get(5, TimeUnit.SECONDS);
+                Assert.fail("Request which was sent over the lost connection should have failed");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TimestampIOException);
+            }
+
+            // the queued requests are sent over the new connection
+            server.accept();
+            long timestamp = 200;
+            for (int i = 0; i < 3; i++) {
+                server.reply(server.readRequest(), timestamp++);
+            }
+            Set<Long> received = new HashSet<>();
+            for (Future<Long> future : queued) {
+                received.add(future.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(3, received.size());
+        } finally {
+            executor.shutdownNow();
+            client.shutdown();
+            server.close();
+        }
+    }
+
+    private static List<List<Long>> getTimestamps(final TimestampClient client, int numThreads, final int perThread) throws Exception {
+        client.getNextTimestamp(); // connect before the callers pile in
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        List<Long> timestamps = new ArrayList<>(perThread);
+                        for (int j = 0; j < perThread; j++) {
+                            timestamps.add(client.getNextTimestamp());
+                        }
+                        return timestamps;
+                    }
+                }));
+            }
+            List<List<Long>> results = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertUniqueAndIncreasing(List<List<Long>> perThread) {
+        Set<Long> all = new HashSet<>();
+        int count = 0;
+        for (List<Long> timestamps : perThread) {
+            long previous = 0;
+            for (long timestamp : timestamps) {
+                Assert.assertTrue("Timestamps of a caller must increase", timestamp > previous);
+                previous = timestamp;
+                all.add(timestamp);
+                count++;
+            }
+        }
+        Assert.assertEquals("Duplicate timestamps handed out", count, all.size());
+    }
+
+    private static Callable<Long> timestampCall(final TimestampClient client) {
+        return new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return client.getNextTimestamp();
+            }
+        };
+    }
+
+    private static TimestampHostProvider hostProvider(final int port) {
+        return new TimestampHostProvider() {
+            @Override
+            public String getHost() {
+                return "localhost";
+            }
+
+            @Override
+            public int getPort() {
+                return port;
+            }
+        };
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class MemoryBlockManager implements TimestampBlockManager {
+        private long maxReserved = 0;
+
+        @Override
+        public synchronized void reserveNextBlock(long currentMaxReserved) throws TimestampIOException {
+            maxReserved = currentMaxReserved;
+        }
+
+        @Override
+        public synchronized long initialize() throws TimestampIOException {
+            return maxReserved;
+        }
+    }
+
+    /**
+     * A client which lets the test wait until its requests have been queued.
+     */
+    private static class QueueWatchingClient extends TimestampClient {
+        private volatile CountDownLatch queued = new CountDownLatch(0);
+
+        QueueWatchingClient(int timeoutMillis, TimestampHostProvider timestampHostProvider) {
+            super(timeoutMillis, timestampHostProvider);
+        }
+
+        void expectQueued(int requests) {
+            queued = new CountDownLatch(requests);
+        }
+
+        void awaitQueued() throws InterruptedException {
+            Assert.assertTrue("Requests were not queued", queued.await(5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        void requestQueued(ClientCallback callback) {
+            queued.countDown();
+        }
+    }
+
+    /**
+     * A timestamp server whose answers are driven by the test.
+     */
+    private static class ScriptedServer {
+        private final ServerSocket serverSocket;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        ScriptedServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            serverSocket.setSoTimeout(5000);
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void accept() throws IOException {
+            socket = serverSocket.accept();
+            socket.setSoTimeout(5000);
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(socket.getOutputStream());
+        }
+
+        short readRequest() throws IOException {
+            return in.readShort();
+        }
+
+        void reply(short callerId, long timestamp) throws IOException {
+            out.writeShort(callerId);
+            out.writeLong(timestamp);
+            out.flush();
+        }
+
+        void disconnect() throws IOException {
+            socket.close();
+        }
+
+        void close() throws IOException {
+            if (socket != null)
+                socket.close();
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spark_project.guava.base.Ticker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimestampOracleTest {
+
+    @Test
+    public void testReservesNextBlockInBackgroundOnceHalfUsed() throws Exception {
+        RecordingBlockManager blocks = new RecordingBlockManager();
+        ManualTicker ticker = new ManualTicker();
+        ManualExecutor reserver = new ManualExecutor();
+        TimestampOracle oracle = new TimestampOracle(blocks, 100, ticker, reserver);
+
+        // nothing is reserved yet, so the very first caller has to wait for the block
+        Assert.assertEquals(1, oracle.getNextTimestamp());
+        Assert.assertEquals(1, oracle.getNumberStalls());
+        Assert.assertEquals(Arrays.asList(100L), blocks.reserved());
+
+        // up to the half-way mark nothing more is reserved
+        ticker.advance(1, TimeUnit.SECONDS);
+        Assert.assertEquals(2, oracle.getNextTimestamps(49));
+        Assert.assertEquals(0, reserver.runPending());
+        Assert.assertEquals(1, oracle.getNumberBlocksReserved());
+        Assert.assertEquals(0, oracle.getNumberBlocksReservedInBackground());
+
+        // the first timestamp past it kicks off the reservation of the next block
+        Assert.assertEquals(51, oracle.getNextTimestamp());
+        Assert.assertEquals(1, oracle.getNumberBlocksReserved());
+        Assert.assertEquals(1, reserver.runPending());
+        Assert.assertEquals(2, oracle.getNumberBlocksReserved());
+        Assert.assertEquals(1, oracle.getNumberBlocksReservedInBackground());
+        Assert.assertEquals(Arrays.asList(100L, 200L), blocks.reserved());
+
+        // so crossing into it doesn't stall
+        Assert.assertEquals(52, oracle.getNextTimestamps(60));
+        Assert.assertEquals(1, oracle.getNumberStalls());
+        Assert.assertEquals(100, oracle.getCurrentBlockSize());
+    }
+
+    @Test
+    public void testBlockSizeStaysWithinBounds() throws Exception {
+        int minBlockSize = 1000;
+        int maxBlockSize = 32 * minBlockSize;
+        ManualTicker ticker = new ManualTicker();
+        TimestampOracle oracle = new TimestampOracle(new RecordingBlockManager(), minBlockSize, ticker, new ManualExecutor());
+
+        // two blocks' worth every millisecond wants far bigger blocks than allowed
+        for (int i = 0; i < 20; i++) {
+            ticker.advance(1, TimeUnit.MILLISECONDS);
+            oracle.getNextTimestamps(2 * oracle.getCurrentBlockSize());
+            int size = oracle.getCurrentBlockSize();
+            Assert.assertTrue("Block size " + size + " above the maximum", size <= maxBlockSize);
+            Assert.assertTrue("Block size " + size + " below the minimum", size >= minBlockSize);
+        }
+        Assert.assertEquals(maxBlockSize, oracle.getCurrentBlockSize());
+
+        // two blocks' worth every ten seconds wants far smaller ones
+        for (int i = 0; i < 20; i++) {
+            ticker.advance(10, TimeUnit.SECONDS);
+            oracle.getNextTimestamps(2 * oracle.getCurrentBlockSize());
+            int size = oracle.getCurrentBlockSize();
+            Assert.assertTrue("Block size " + size + " above the maximum", size <= maxBlockSize);
+            Assert.assertTrue("Block size " + size + " below the minimum", size >= minBlockSize);
+        }
+        Assert.assertEquals(minBlockSize, oracle.getCurrentBlockSize());
+    }
+
+    @Test
+    public void testBlockSizeChangesAtMostTwofoldPerBlock() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        TimestampOracle oracle = new TimestampOracle(new RecordingBlockManager(), 1000, ticker, new ManualExecutor());
+        oracle.getNextTimestamp();
+
+        ticker.advance(1, TimeUnit.MILLISECONDS);
+        oracle.getNextTimestamps(2000);
+        Assert.assertEquals(2000, oracle.getCurrentBlockSize());
+        ticker.advance(1, TimeUnit.MILLISECONDS);
+        oracle.getNextTimestamps(4000);
+        Assert.assertEquals(4000, oracle.getCurrentBlockSize());
+
+        ticker.advance(1, TimeUnit.HOURS);
+        oracle.getNextTimestamps(8000);
+        Assert.assertEquals(2000, oracle.getCurrentBlockSize());
+    }
+
+    @Test
+    public void testConcurrentCallersGetUniqueIncreasingTimestamps() throws Exception {
+        final RecordingBlockManager blocks = new RecordingBlockManager();
+        // a small block, so that callers keep running into both background and stalled reservations
+        ExecutorService reserver = Executors.newSingleThreadExecutor();
+        final TimestampOracle oracle = new TimestampOracle(blocks, 10, Ticker.systemTicker(), reserver);
+        final int threads = 16;
+        final int calls = 5000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        long[] seen = new long[calls * 4];
+                        int n = 0;
+                        long last = 0;
+                        for (int i = 0; i < calls; i++) {
+                            int count = 1 + (i % 4);
+                            long first = oracle.getNextTimestamps(count);
+                            Assert.assertTrue("Timestamps went backwards", first > last);
+                            last = first + count - 1;
+                            Assert.assertTrue("Timestamp " + last + " handed out before it was reserved",
+                                    last <= blocks.maxReserved());
+                            for (long ts = first; ts <= last; ts++)
+                                seen[n++] = ts;
+                        }
+                        return Arrays.copyOf(seen, n);
+                    }
+                }));
+            }
+
+            List<long[]> perThread = new ArrayList<>(threads);
+            int total = 0;
+            for (Future<long[]> future : futures) {
+                long[] seen = future.get(60, TimeUnit.SECONDS);
+                perThread.add(seen);
+                total += seen.length;
+            }
+            long[] all = new long[total];
+            int pos = 0;
+            for (long[] seen : perThread) {
+                System.arraycopy(seen, 0, all, pos, seen.length);
+                pos += seen.length;
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++)
+                Assert.assertNotEquals("Duplicate timestamp", all[i - 1], all[i]);
+            Assert.assertEquals(total, oracle.getNumberTimestampsCreated());
+        } finally {
+            executor.shutdownNow();
+            oracle.shutdown();
+        }
+        Assert.assertTrue("The block reserver was not shut down", reserver.isShutdown());
+    }
+
+    @Test
+    public void testReservesBlocksItselfAfterShutdown() throws Exception {
+        RecordingBlockManager blocks = new RecordingBlockManager();
+        ManualExecutor reserver = new ManualExecutor();
+        TimestampOracle oracle = new TimestampOracle(blocks, 100, new ManualTicker(), reserver);
+        Assert.assertEquals(1, oracle.getNextTimestamps(50));
+
+        oracle.shutdown();
+        Assert.assertTrue(reserver.isShutdown());
+
+        // nothing more is handed to the reserver, but timestamps are still served
+        Assert.assertEquals(51, oracle.getNextTimestamps(100));
+        Assert.assertEquals(151, oracle.getNextTimestamp());
+        Assert.assertEquals(0, reserver.runPending());
+        Assert.assertEquals(0, oracle.getNumberBlocksReservedInBackground());
+        Assert.assertEquals(2, oracle.getNumberStalls());
+        Assert.assertEquals(Arrays.asList(100L, 200L), blocks.reserved());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * Holds on to the background reservations until the test runs them.
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private boolean shutdown;
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            if (shutdown) throw new RejectedExecutionException();
+            pending.add(command);
+        }
+
+        int runPending() {
+            int run = 0;
+            Runnable next;
+            while ((next = poll()) != null) {
+                next.run();
+                run++;
+            }
+            return run;
+        }
+
+        private synchronized Runnable poll() {
+            return pending.poll();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public synchronized List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> notRun = new ArrayList<>(pending);
+            pending.clear();
+            return notRun;
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return shutdown && pending.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+
+    private static class RecordingBlockManager implements TimestampBlockManager {
+        private final List<Long> reserved = new ArrayList<>();
+        private long maxReserved = 0;
+
+        @Override
+        public synchronized void reserveNextBlock(long currentMaxReserved) throws TimestampIOException {
+            Assert.assertTrue("Reserved blocks went backwards", currentMaxReserved > maxReserved);
+            maxReserved = currentMaxReserved;
+            reserved.add(currentMaxReserved);
+        }
+
+        @Override
+        public synchronized long initialize() throws TimestampIOException {
+            return maxReserved;
+        }
+
+        synchronized long maxReserved() {
+            return maxReserved;
+        }
+
+        synchronized List<Long> reserved() {
+            return new ArrayList<>(reserved);
+        }
+    }
+
+    private static class ManualTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+
+        void advance(long time, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(time));
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}
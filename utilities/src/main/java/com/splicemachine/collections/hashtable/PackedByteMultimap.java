@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.collections.hashtable;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+
+import java.util.Arrays;
+
+/**
+ * A multimap from byte[] keys to byte[] values, which packs all keys and values into a single
+ * contiguous byte arena.
+ * <p/>
+ * Keys are located using an open-addressed (linear probing) index of ints, so the only objects held
+ * are a handful of primitive arrays, regardless of how many entries are stored. Values for the same key
+ * are chained together in insertion order.
+ * <p/>
+ * Entries are referred to by int ids rather than by objects, so that lookups do not allocate:
+ * <pre>
+ *     int key = map.find(bytes,offset,length);
+ *     for(int v = map.firstValue(key); v>=0; v = map.nextValue(v)){
+ *         decode(map.arena(), map.valueOffset(v), map.valueLength(v));
+ *     }
+ * </pre>
+ * Entries cannot be removed.
+ * <p/>
+ * This class is <em>not</em> thread-safe while it is being built. Once all entries have been added,
+ * any number of threads may read from it concurrently, provided it was safely published.
+ */
+public class PackedByteMultimap{
+    private static final Hash32 HASH=HashFunctions.murmur3(0);
+    private static final float MAX_LOAD=0.5f;
+
+    private byte[] arena;
+    private int arenaSize;
+
+    //per-key data, indexed by key id
+    private int[] keyOffsets;
+    private int[] keyLengths;
+    private int[] keyHashes;
+    private int[] firstValues;
+    private int[] lastValues;
+    private int numKeys;
+
+    //per-value data, indexed by value id
+    private int[] valueOffsets;
+    private int[] valueLengths;
+    private int[] nextValues;
+    private int numValues;
+
+    //open-addressed index; holds key id + 1, so that 0 marks an empty slot
+    private int[] slots;
+    private int slotMask;
+
+    public PackedByteMultimap(int expectedKeys){
+        int numSlots=2;
+        while(numSlots*MAX_LOAD<expectedKeys)
+            numSlots<<=1;
+        this.slots=new int[numSlots];
+        this.slotMask=numSlots-1;
+
+        int keyCapacity=Math.max(expectedKeys,1);
+        this.keyOffsets=new int[keyCapacity];
+        this.keyLengths=new int[keyCapacity];
+        this.keyHashes=new int[keyCapacity];
+        this.firstValues=new int[keyCapacity];
+        this.lastValues=new int[keyCapacity];
+
+        this.valueOffsets=new int[keyCapacity];
+        this.valueLengths=new int[keyCapacity];
+        this.nextValues=new int[keyCapacity];
+
+        this.arena=new byte[Math.max(keyCapacity*16,64)];
+    }
+
+    public void put(byte[] key,byte[] value){
+        put(key,0,key.length,value,0,value.length);
+    }
+
+    /**
+     * Add a value for the key. The bytes are copied, so the caller is free to reuse the arrays.
+     */
+    public void put(byte[] key,int keyOffset,int keyLength,byte[] value,int valueOffset,int valueLength){
+        int hash=HASH.hash(key,keyOffset,keyLength);
+        int keyId=find(hash,key,keyOffset,keyLength);
+        if(keyId<0)
+            keyId=addKey(hash,key,keyOffset,keyLength);
+
+        if(numValues==valueOffsets.length){
+            int newSize=grow(numValues);
+            valueOffsets=Arrays.copyOf(valueOffsets,newSize);
+            valueLengths=Arrays.copyOf(valueLengths,newSize);
+            nextValues=Arrays.copyOf(nextValues,newSize);
+        }
+        int valueId=numValues++;
+        valueOffsets[valueId]=append(value,valueOffset,valueLength);
+        valueLengths[valueId]=valueLength;
+        nextValues[valueId]=-1;
+        if(firstValues[keyId]<0)
+            firstValues[keyId]=valueId;
+        else
+            nextValues[lastValues[keyId]]=valueId;
+        lastValues[keyId]=valueId;
+    }
+
+    /**
+     * @return the id of the key, or -1 if the key is not present.
+     */
+    public int find(byte[] key,int offset,int length){
+        return find(HASH.hash(key,offset,length),key,offset,length);
+    }
+
+    /**
+     * @return the id of the first value for the key, or -1 if there are no more values.
+     */
+    public int firstValue(int keyId){
+        return firstValues[keyId];
+    }
+
+    /**
+     * @return the id of the value which follows {@code valueId} for the same key, or -1 if there are no more values.
+     */
+    public int nextValue(int valueId){
+        return nextValues[valueId];
+    }
+
+    /**
+     * @return the bytes holding all keys and values. The array may be replaced when more entries are added.
+     */
+    public byte[] arena(){
+        return arena;
+    }
+
+    public int valueOffset(int valueId){
+        return valueOffsets[valueId];
+    }
+
+    public int valueLength(int valueId){
+        return valueLengths[valueId];
+    }
+
+    public int numKeys(){
+        return numKeys;
+    }
+
+    public int numValues(){
+        return numValues;
+    }
+
+    /**
+     * Release any unused space. This should be called once all the entries have been added.
+     */
+    public void trim(){
+        if(arena.length>arenaSize)
+            arena=Arrays.copyOf(arena,arenaSize);
+        keyOffsets=Arrays.copyOf(keyOffsets,numKeys);
+        keyLengths=Arrays.copyOf(keyLengths,numKeys);
+        keyHashes=Arrays.copyOf(keyHashes,numKeys);
+        firstValues=Arrays.copyOf(firstValues,numKeys);
+        lastValues=Arrays.copyOf(lastValues,numKeys);
+        valueOffsets=Arrays.copyOf(valueOffsets,numValues);
+        valueLengths=Arrays.copyOf(valueLengths,numValues);
+        nextValues=Arrays.copyOf(nextValues,numValues);
+    }
+
+    /**
+     * @return the number of bytes of heap held by this map (not counting object headers).
+     */
+    public long sizeInBytes(){
+        long size=arena.length;
+        size+=4l*(keyOffsets.length+keyLengths.length+keyHashes.length+firstValues.length+lastValues.length);
+        size+=4l*(valueOffsets.length+valueLengths.length+nextValues.length);
+        size+=4l*slots.length;
+        return size;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int find(int hash,byte[] key,int offset,int length){
+        int pos=hash&slotMask;
+        while(true){
+            int slot=slots[pos];
+            if(slot==0) return -1;
+            int keyId=slot-1;
+            if(keyHashes[keyId]==hash && keyLengths[keyId]==length && matches(keyOffsets[keyId],key,offset,length))
+                return keyId;
+            pos=(pos+1)&slotMask;
+        }
+    }
+
+    private boolean matches(int arenaOffset,byte[] key,int offset,int length){
+        for(int i=0;i<length;i++){
+            if(arena[arenaOffset+i]!=key[offset+i]) return false;
+        }
+        return true;
+    }
+
+    private int addKey(int hash,byte[] key,int offset,int length){
+        if(numKeys==keyOffsets.length){
+            int newSize=grow(numKeys);
+            keyOffsets=Arrays.copyOf(keyOffsets,newSize);
+            keyLengths=Arrays.copyOf(keyLengths,newSize);
+            keyHashes=Arrays.copyOf(keyHashes,newSize);
+            firstValues=Arrays.copyOf(firstValues,newSize);
+            lastValues=Arrays.copyOf(lastValues,newSize);
+        }
+        int keyId=numKeys++;
+        keyOffsets[keyId]=append(key,offset,length);
+        keyLengths[keyId]=length;
+        keyHashes[keyId]=hash;
+        firstValues[keyId]=-1;
+        lastValues[keyId]=-1;
+
+        if(numKeys>slots.length*MAX_LOAD)
+            resizeIndex();
+        else
+            insertIntoIndex(keyId);
+        return keyId;
+    }
+
+    private void insertIntoIndex(int keyId){
+        int pos=keyHashes[keyId]&slotMask;
+        while(slots[pos]!=0)
+            pos=(pos+1)&slotMask;
+        slots[pos]=keyId+1;
+    }
+
+    private void resizeIndex(){
+        slots=new int[slots.length<<1];
+        slotMask=slots.length-1;
+        for(int keyId=0;keyId<numKeys;keyId++){
+            insertIntoIndex(keyId);
+        }
+    }
+
+    private int append(byte[] bytes,int offset,int length){
+        if(arenaSize+length>arena.length){
+            long newSize=Math.max((long)arena.length<<1,(long)arenaSize+length);
+            if(newSize>Integer.MAX_VALUE-8){
+                if((long)arenaSize+length>Integer.MAX_VALUE-8)
+                    throw new IllegalStateException("Cannot hold more than 2GB of data");
+                newSize=Integer.MAX_VALUE-8;
+            }
+            arena=Arrays.copyOf(arena,(int)newSize);
+        }
+        int position=arenaSize;
+        System.arraycopy(bytes,offset,arena,position,length);
+        arenaSize+=length;
+        return position;
+    }
+
+    private static int grow(int size){
+        return Math.max(size+(size>>1),size+16);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure-java implementation of the LZ4 block format.
+ *
+ * This is deliberately the "fast" variant of LZ4: a single-probe hash table of 4-byte sequences,
+ * with no chain searching. That gives up a little bit of compression ratio in exchange for
+ * compression speeds that are fast enough to sit on the write path without becoming the bottleneck.
+ *
+ * The block format does not carry the uncompressed length, so callers are responsible for recording
+ * it somewhere alongside the compressed block (e.g. in a frame header).
+ *
+ * Instances are not thread-safe, since they hold onto a reusable hash table; use one instance per thread
+ * (or create one per call, which is cheap enough for large blocks).
+ */
+public final class LZ4BlockCodec{
+    private static final int MIN_MATCH=4;
+    private static final int LAST_LITERALS=5;
+    private static final int MF_LIMIT=12;
+    private static final int MAX_DISTANCE=(1<<16)-1;
+    private static final int RUN_MASK=0x0F;
+    private static final int ML_MASK=0x0F;
+
+    private static final int HASH_LOG=12;
+    private static final int HASH_TABLE_SIZE=1<<HASH_LOG;
+    private static final int SKIP_STRENGTH=6;
+
+    private final int[] hashTable=new int[HASH_TABLE_SIZE];
+
+    /**
+     * @param uncompressedLength the length of the data to be compressed
+     * @return the maximum number of bytes that compressing {@code uncompressedLength} bytes could ever take.
+     */
+    public static int maxCompressedLength(int uncompressedLength){
+        return uncompressedLength+(uncompressedLength/255)+16;
+    }
+
+    /**
+     * Compress {@code src[srcOff..srcOff+srcLen)} into {@code dest}, starting at {@code destOff}.
+     *
+     * @param dest the destination buffer. Must have at least {@link #maxCompressedLength(int)} bytes available
+     *             after {@code destOff}.
+     * @return the number of bytes written to {@code dest}
+     */
+    public int compress(byte[] src,int srcOff,int srcLen,byte[] dest,int destOff){
+        assert dest.length-destOff>=maxCompressedLength(srcLen): "Destination buffer is too small!";
+        final int srcEnd=srcOff+srcLen;
+        int dp=destOff;
+        int anchor=srcOff;
+        if(srcLen>=MF_LIMIT+1){
+            Arrays.fill(hashTable,-1);
+            final int mfLimit=srcEnd-MF_LIMIT;
+            final int matchLimit=srcEnd-LAST_LITERALS;
+            int ip=srcOff;
+            int searchCount=1<<SKIP_STRENGTH;
+            while(ip<mfLimit){
+                int sequence=readInt(src,ip);
+                int h=hash(sequence);
+                int ref=hashTable[h];
+                hashTable[h]=ip;
+                if(ref<0 || ip-ref>MAX_DISTANCE || readInt(src,ref)!=sequence){
+                    /*
+                     * Accelerate through incompressible data: the longer we go without finding a match,
+                     * the larger the stride we take.
+                     */
+                    ip+=searchCount++>>>SKIP_STRENGTH;
+                    continue;
+                }
+                searchCount=1<<SKIP_STRENGTH;
+
+                //extend the match backwards into the pending literals
+                while(ip>anchor && ref>srcOff && src[ip-1]==src[ref-1]){
+                    ip--;
+                    ref--;
+                }
+                int matchLength=MIN_MATCH;
+                while(ip+matchLength<matchLimit && src[ip+matchLength]==src[ref+matchLength])
+                    matchLength++;
+
+                dp=writeSequence(src,anchor,ip-anchor,ip-ref,matchLength,dest,dp);
+                ip+=matchLength;
+                anchor=ip;
+            }
+        }
+        dp=writeLastLiterals(src,anchor,srcEnd-anchor,dest,dp);
+        return dp-destOff;
+    }
+
+    /**
+     * Decompress the block {@code src[srcOff..srcOff+srcLen)} into {@code dest}.
+     *
+     * @param destLen the exact uncompressed length of the block
+     * @return the number of bytes written to {@code dest} (always {@code destLen})
+     * @throws IOException if the block is malformed, or does not decompress to exactly {@code destLen} bytes
+     */
+    public static int decompress(byte[] src,int srcOff,int srcLen,byte[] dest,int destOff,int destLen) throws IOException{
+        final int srcEnd=srcOff+srcLen;
+        final int destEnd=destOff+destLen;
+        int sp=srcOff;
+        int dp=destOff;
+        while(sp<srcEnd){
+            int token=src[sp++]&0xFF;
+
+            int literalLength=token>>>4;
+            if(literalLength==RUN_MASK){
+                int b;
+                do{
+                    if(sp>=srcEnd) throw malformed(sp);
+                    b=src[sp++]&0xFF;
+                    literalLength+=b;
+                }while(b==0xFF);
+            }
+            if(sp+literalLength>srcEnd || dp+literalLength>destEnd) throw malformed(sp);
+            System.arraycopy(src,sp,dest,dp,literalLength);
+            sp+=literalLength;
+            dp+=literalLength;
+            if(sp==srcEnd) break; //the last sequence carries only literals
+
+            if(sp+2>srcEnd) throw malformed(sp);
+            int offset=(src[sp]&0xFF)|((src[sp+1]&0xFF)<<8);
+            sp+=2;
+            int ref=dp-offset;
+            if(offset==0 || ref<destOff) throw malformed(sp);
+
+            int matchLength=token&ML_MASK;
+            if(matchLength==ML_MASK){
+                int b;
+                do{
+                    if(sp>=srcEnd) throw malformed(sp);
+                    b=src[sp++]&0xFF;
+                    matchLength+=b;
+                }while(b==0xFF);
+            }
+            matchLength+=MIN_MATCH;
+            if(dp+matchLength>destEnd) throw malformed(sp);
+            if(offset>=matchLength){
+                System.arraycopy(dest,ref,dest,dp,matchLength);
+                dp+=matchLength;
+            }else{
+                //overlapping copy (i.e. a run), which must be done byte-at-a-time
+                for(int i=0;i<matchLength;i++){
+                    dest[dp++]=dest[ref++];
+                }
+            }
+        }
+        if(dp!=destEnd)
+            throw new IOException("Malformed LZ4 block: expected "+destLen+" bytes, but decompressed "+(dp-destOff));
+        return destLen;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int writeSequence(byte[] src,int literalStart,int literalLength,int offset,int matchLength,byte[] dest,int dp){
+        int tokenPos=dp++;
+        int token;
+        if(literalLength>=RUN_MASK){
+            token=RUN_MASK<<4;
+            dp=writeLength(literalLength-RUN_MASK,dest,dp);
+        }else
+            token=literalLength<<4;
+        System.arraycopy(src,literalStart,dest,dp,literalLength);
+        dp+=literalLength;
+
+        dest[dp++]=(byte)offset;
+        dest[dp++]=(byte)(offset>>>8);
+
+        int ml=matchLength-MIN_MATCH;
+        if(ml>=ML_MASK){
+            token|=ML_MASK;
+            dp=writeLength(ml-ML_MASK,dest,dp);
+        }else
+            token|=ml;
+        dest[tokenPos]=(byte)token;
+        return dp;
+    }
+
+    private static int writeLastLiterals(byte[] src,int literalStart,int literalLength,byte[] dest,int dp){
+        if(literalLength>=RUN_MASK){
+            dest[dp++]=(byte)(RUN_MASK<<4);
+            dp=writeLength(literalLength-RUN_MASK,dest,dp);
+        }else
+            dest[dp++]=(byte)(literalLength<<4);
+        System.arraycopy(src,literalStart,dest,dp,literalLength);
+        return dp+literalLength;
+    }
+
+    private static int writeLength(int length,byte[] dest,int dp){
+        while(length>=0xFF){
+            dest[dp++]=(byte)0xFF;
+            length-=0xFF;
+        }
+        dest[dp++]=(byte)length;
+        return dp;
+    }
+
+    private static int readInt(byte[] buf,int pos){
+        return (buf[pos]&0xFF)
+                |((buf[pos+1]&0xFF)<<8)
+                |((buf[pos+2]&0xFF)<<16)
+                |((buf[pos+3]&0xFF)<<24);
+    }
+
+    private static int hash(int sequence){
+        return (sequence*-1640531535)>>>(32-HASH_LOG);
+    }
+
+    private static IOException malformed(int position){
+        return new IOException("Malformed LZ4 block at position "+position);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.collections.hashtable;
+
+import com.splicemachine.primitives.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PackedByteMultimapTest{
+
+    @Test
+    public void testFindsValuesInInsertionOrder() throws Exception{
+        PackedByteMultimap map=new PackedByteMultimap(1);
+        map.put(Bytes.toBytes("a"),Bytes.toBytes("1"));
+        map.put(Bytes.toBytes("b"),Bytes.toBytes("2"));
+        map.put(Bytes.toBytes("a"),Bytes.toBytes("3"));
+
+        Assert.assertEquals(2,map.numKeys());
+        Assert.assertEquals(3,map.numValues());
+        Assert.assertEquals(Arrays.asList("1","3"),values(map,Bytes.toBytes("a")));
+        Assert.assertEquals(Arrays.asList("2"),values(map,Bytes.toBytes("b")));
+        Assert.assertEquals(-1,map.find(Bytes.toBytes("c"),0,1));
+    }
+
+    @Test
+    public void testFindsKeyInsideLargerArray() throws Exception{
+        PackedByteMultimap map=new PackedByteMultimap(16);
+        map.put(new byte[]{1,2,3},new byte[]{4});
+
+        byte[] probe=new byte[]{9,1,2,3,9};
+        int key=map.find(probe,1,3);
+        Assert.assertTrue("Did not find key!",key>=0);
+        Assert.assertEquals(-1,map.find(probe,0,3));
+        Assert.assertEquals(-1,map.find(probe,1,2));
+    }
+
+    @Test
+    public void testEmptyKeysAndValues() throws Exception{
+        PackedByteMultimap map=new PackedByteMultimap(16);
+        map.put(new byte[]{},new byte[]{});
+        int key=map.find(new byte[]{},0,0);
+        Assert.assertTrue("Did not find empty key!",key>=0);
+        Assert.assertEquals(0,map.valueLength(map.firstValue(key)));
+    }
+
+    @Test
+    public void testGrowsPastInitialSize() throws Exception{
+        PackedByteMultimap map=new PackedByteMultimap(4);
+        int numKeys=100000;
+        for(int i=0;i<numKeys;i++){
+            map.put(Bytes.toBytes(i),Bytes.toBytes("value-"+i));
+            if(i%3==0)
+                map.put(Bytes.toBytes(i),Bytes.toBytes("other-"+i));
+        }
+        long untrimmed=map.sizeInBytes();
+        map.trim();
+        Assert.assertTrue("Trimming did not release space!",map.sizeInBytes()<untrimmed);
+
+        Assert.assertEquals(numKeys,map.numKeys());
+        for(int i=0;i<numKeys;i++){
+            List<String> expected=new ArrayList<>();
+            expected.add("value-"+i);
+            if(i%3==0)
+                expected.add("other-"+i);
+            Assert.assertEquals("Incorrect values for key "+i,expected,values(map,Bytes.toBytes(i)));
+        }
+        Assert.assertEquals(-1,map.find(Bytes.toBytes(numKeys),0,4));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<String> values(PackedByteMultimap map,byte[] key){
+        List<String> values=new ArrayList<>();
+        int keyId=map.find(key,0,key.length);
+        if(keyId<0) return values;
+        for(int v=map.firstValue(keyId);v>=0;v=map.nextValue(v)){
+            values.add(Bytes.toString(map.arena(),map.valueOffset(v),map.valueLength(v)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.compression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class LZ4BlockCodecTest{
+
+    @Test
+    public void testRoundTripEmpty() throws Exception{
+        assertRoundTrip(new byte[]{});
+    }
+
+    @Test
+    public void testRoundTripShorterThanMinimumMatch() throws Exception{
+        assertRoundTrip(new byte[]{1,2,3,4,5,6,7});
+    }
+
+    @Test
+    public void testRoundTripRandomData() throws Exception{
+        Random random=new Random(0l);
+        for(int size:new int[]{13,64,255,1024,65536,200000}){
+            byte[] data=new byte[size];
+            random.nextBytes(data);
+            assertRoundTrip(data);
+        }
+    }
+
+    @Test
+    public void testRoundTripLongRun() throws Exception{
+        byte[] data=new byte[100000];
+        Arrays.fill(data,(byte)7);
+        int compressedSize=assertRoundTrip(data);
+        Assert.assertTrue("Run was not compressed:"+compressedSize,compressedSize<data.length/100);
+    }
+
+    @Test
+    public void testRoundTripRepetitiveText() throws Exception{
+        StringBuilder sb=new StringBuilder();
+        Random random=new Random(1l);
+        for(int i=0;i<5000;i++){
+            sb.append("customer-").append(random.nextInt(100)).append("|district-").append(i%10).append('\n');
+        }
+        byte[] data=sb.toString().getBytes(StandardCharsets.UTF_8);
+        int compressedSize=assertRoundTrip(data);
+        Assert.assertTrue("Text was not compressed:"+compressedSize,compressedSize<data.length/2);
+    }
+
+    @Test
+    public void testRoundTripAtOffsets() throws Exception{
+        byte[] data=new byte[4096];
+        for(int i=0;i<data.length;i++){
+            data[i]=(byte)(i%37);
+        }
+        LZ4BlockCodec codec=new LZ4BlockCodec();
+        byte[] compressed=new byte[LZ4BlockCodec.maxCompressedLength(1000)+10];
+        int cLen=codec.compress(data,100,1000,compressed,10);
+
+        byte[] decompressed=new byte[1005];
+        LZ4BlockCodec.decompress(compressed,10,cLen,decompressed,5,1000);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data,100,1100),Arrays.copyOfRange(decompressed,5,1005));
+    }
+
+    @Test(expected=IOException.class)
+    public void testDecompressWithWrongLengthFails() throws Exception{
+        byte[] data="aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.UTF_8);
+        byte[] compressed=new byte[LZ4BlockCodec.maxCompressedLength(data.length)];
+        int cLen=new LZ4BlockCodec().compress(data,0,data.length,compressed,0);
+        LZ4BlockCodec.decompress(compressed,0,cLen,new byte[data.length+1],0,data.length+1);
+    }
+
+    @Test(expected=IOException.class)
+    public void testDecompressTruncatedBlockFails() throws Exception{
+        byte[] data=new byte[1000];
+        for(int i=0;i<data.length;i++){
+            data[i]=(byte)(i%11);
+        }
+        byte[] compressed=new byte[LZ4BlockCodec.maxCompressedLength(data.length)];
+        int cLen=new LZ4BlockCodec().compress(data,0,data.length,compressed,0);
+        LZ4BlockCodec.decompress(compressed,0,cLen-3,new byte[data.length],0,data.length);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int assertRoundTrip(byte[] data) throws IOException{
+        LZ4BlockCodec codec=new LZ4BlockCodec();
+        byte[] compressed=new byte[LZ4BlockCodec.maxCompressedLength(data.length)];
+        int cLen=codec.compress(data,0,data.length,compressed,0);
+        Assert.assertTrue("Exceeded maximum compressed length",cLen<=compressed.length);
+
+        byte[] decompressed=new byte[data.length];
+        int dLen=LZ4BlockCodec.decompress(compressed,0,cLen,decompressed,0,data.length);
+        Assert.assertEquals("Incorrect decompressed length",data.length,dLen);
+        Assert.assertArrayEquals("Incorrect decompressed data",data,decompressed);
+        return cLen;
+    }
+}